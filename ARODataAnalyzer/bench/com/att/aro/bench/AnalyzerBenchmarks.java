@@ -0,0 +1,300 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.bench;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.att.aro.model.BurstCollectionAnalysis;
+import com.att.aro.model.CacheAnalysis;
+import com.att.aro.model.HttpRequestResponseInfo;
+import com.att.aro.model.Profile;
+import com.att.aro.model.Profile3G;
+import com.att.aro.model.ProfileLTE;
+import com.att.aro.model.ProfileWiFi;
+import com.att.aro.model.RrcStateRange;
+import com.att.aro.model.TCPSession;
+import com.att.aro.model.Throughput;
+import com.att.aro.model.TraceData;
+import com.att.aro.pcap.Packet;
+
+/**
+ * The benchmarks of the hot paths of the analyzer, from the decoding of the
+ * captured frames to the whole analysis of a trace. Each operation processes
+ * the whole fixture.
+ */
+public final class AnalyzerBenchmarks {
+
+	private AnalyzerBenchmarks() {
+	}
+
+	/**
+	 * Returns all the benchmarks.
+	 *
+	 * @return The benchmarks in the order they are run.
+	 */
+	public static List<Benchmark> all() {
+		return Arrays.<Benchmark> asList(new PacketDecoding(), new TraceLoad(),
+				new SessionExtraction(), new HttpParsing(), new ContentDecoding(),
+				new RrcSimulation("3G", new Profile3G()), new RrcSimulation("LTE", new ProfileLTE()),
+				new RrcSimulation("WiFi", new ProfileWiFi()), new ThroughputCalculation(),
+				new BurstAnalysis(), new CacheAnalysisBenchmark(), new FullAnalysis());
+	}
+
+	/**
+	 * Base class of the benchmarks that run on an analysis of the fixture.
+	 */
+	private abstract static class AnalysisBenchmark implements Benchmark {
+		private final String name;
+		private final Profile profile;
+		protected TraceData.Analysis analysis;
+
+		AnalysisBenchmark(String name, Profile profile) {
+			this.name = name;
+			this.profile = profile;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public void setUp(TraceFixture fixture) throws Exception {
+			analysis = fixture.analyze(profile);
+		}
+
+		@Override
+		public void prepare() throws Exception {
+		}
+	}
+
+	/**
+	 * Decodes the captured frames with the decoder of their datalink.
+	 */
+	static class PacketDecoding implements Benchmark {
+		private int datalink;
+		private List<TraceFixture.Frame> frames;
+
+		@Override
+		public String getName() {
+			return "Packet.createPacketFromPcap";
+		}
+
+		@Override
+		public void setUp(TraceFixture fixture) throws Exception {
+			datalink = fixture.readDatalink();
+			frames = fixture.readFrames();
+		}
+
+		@Override
+		public void prepare() {
+		}
+
+		@Override
+		public long run() {
+			long result = 0;
+			for (TraceFixture.Frame frame : frames) {
+				Packet packet = Packet.createPacketFromPcap(datalink, frame.seconds,
+						frame.microSeconds, frame.len, frame.data);
+				result += packet.getPayloadLen();
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Loads the trace, reading its pcap file in Java when the native pcap
+	 * library is not loaded.
+	 */
+	static class TraceLoad implements Benchmark {
+		private TraceFixture fixture;
+
+		@Override
+		public String getName() {
+			return "TraceData.load";
+		}
+
+		@Override
+		public void setUp(TraceFixture fixture) {
+			this.fixture = fixture;
+		}
+
+		@Override
+		public void prepare() {
+		}
+
+		@Override
+		public long run() throws Exception {
+			return fixture.load().getAllPackets().size();
+		}
+	}
+
+	/**
+	 * Groups the packets into sessions, reassembles the streams and parses
+	 * the requests and responses.
+	 */
+	static class SessionExtraction extends AnalysisBenchmark {
+		SessionExtraction() {
+			super("TCPSession.extractTCPSessions", new Profile3G());
+		}
+
+		@Override
+		public long run() throws Exception {
+			return TCPSession.extractTCPSessions(analysis).size();
+		}
+	}
+
+	/**
+	 * Parses the requests and responses of the reassembled sessions.
+	 */
+	static class HttpParsing extends AnalysisBenchmark {
+		HttpParsing() {
+			super("RequestResponseBuilder", new Profile3G());
+		}
+
+		@Override
+		public long run() throws Exception {
+			long result = 0;
+			for (TCPSession session : analysis.getTcpSessions()) {
+				if (!session.isUDP()) {
+					result += HttpRequestResponseInfo.extractHttpRequestResponseInfo(session).size();
+				}
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Reassembles and decompresses the bodies of the responses. The sessions
+	 * are extracted again before each iteration, so that no body is cached.
+	 */
+	static class ContentDecoding extends AnalysisBenchmark {
+		private List<TCPSession> sessions;
+
+		ContentDecoding() {
+			super("HttpRequestResponseInfo.getContent", new Profile3G());
+		}
+
+		@Override
+		public void prepare() throws Exception {
+			sessions = TCPSession.extractTCPSessions(analysis);
+		}
+
+		@Override
+		public long run() throws Exception {
+			long result = 0;
+			for (TCPSession session : sessions) {
+				if (session.isUDP()) {
+					continue;
+				}
+				for (HttpRequestResponseInfo rr : session.getRequestResponseInfo()) {
+					if (rr.getDirection() == HttpRequestResponseInfo.Direction.RESPONSE) {
+						byte[] content = rr.getContent();
+						if (content != null) {
+							result += content.length;
+						}
+					}
+				}
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Simulates the RRC state machine of a network type over the packets.
+	 */
+	static class RrcSimulation extends AnalysisBenchmark {
+		RrcSimulation(String networkType, Profile profile) {
+			super("RrcStateRange.runTrace." + networkType, profile);
+		}
+
+		@Override
+		public long run() {
+			return RrcStateRange.runTrace(analysis).size();
+		}
+	}
+
+	/**
+	 * Calculates the throughput over the trace, with the window of the
+	 * profile.
+	 */
+	static class ThroughputCalculation extends AnalysisBenchmark {
+		ThroughputCalculation() {
+			super("Throughput.calculateThroughput", new Profile3G());
+		}
+
+		@Override
+		public long run() {
+			return Throughput.calculateThroughput(0.0, analysis.getTraceData().getTraceDuration(),
+					analysis.getProfile().getThroughputWindow(), analysis.getPackets()).size();
+		}
+	}
+
+	/**
+	 * Groups the packets into bursts and classifies them.
+	 */
+	static class BurstAnalysis extends AnalysisBenchmark {
+		BurstAnalysis() {
+			super("BurstCollectionAnalysis", new Profile3G());
+		}
+
+		@Override
+		public long run() {
+			return new BurstCollectionAnalysis(analysis).getBurstCollection().size();
+		}
+	}
+
+	/**
+	 * Simulates the cache of the device over the requests and responses.
+	 */
+	static class CacheAnalysisBenchmark extends AnalysisBenchmark {
+		CacheAnalysisBenchmark() {
+			super("CacheAnalysis", new Profile3G());
+		}
+
+		@Override
+		public long run() throws Exception {
+			return new CacheAnalysis(analysis.getTcpSessions()).getDiagnosisResults().size();
+		}
+	}
+
+	/**
+	 * Runs the whole analysis of the loaded trace.
+	 */
+	static class FullAnalysis implements Benchmark {
+		private TraceData traceData;
+
+		@Override
+		public String getName() {
+			return "TraceData.runAnalysis";
+		}
+
+		@Override
+		public void setUp(TraceFixture fixture) throws Exception {
+			traceData = fixture.load();
+		}
+
+		@Override
+		public void prepare() {
+		}
+
+		@Override
+		public long run() throws Exception {
+			return traceData.runAnalysis(new Profile3G(), null, false).getTcpSessions().size();
+		}
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.bench;
+
+/**
+ * A benchmark of a hot path of the analyzer over a fixture trace. The runner
+ * sets the benchmark up once per fixture, then prepares and runs it for each
+ * warmup and measurement iteration. Only the run is timed.
+ */
+public interface Benchmark {
+
+	/**
+	 * Returns the name of the benchmark, used in the results and the
+	 * baselines.
+	 *
+	 * @return The name.
+	 */
+	String getName();
+
+	/**
+	 * Sets the benchmark up for a fixture.
+	 *
+	 * @param fixture
+	 *            The fixture trace.
+	 * @throws Exception
+	 *             when the benchmark cannot run on the fixture; it is skipped.
+	 */
+	void setUp(TraceFixture fixture) throws Exception;
+
+	/**
+	 * Prepares an iteration, such as by resetting state the run consumes.
+	 *
+	 * @throws Exception
+	 *             when the iteration cannot be prepared.
+	 */
+	void prepare() throws Exception;
+
+	/**
+	 * Runs one operation of the benchmark.
+	 *
+	 * @return A value computed from the results, so that the work is not
+	 *         optimized away.
+	 * @throws Exception
+	 *             when the operation fails.
+	 */
+	long run() throws Exception;
+}
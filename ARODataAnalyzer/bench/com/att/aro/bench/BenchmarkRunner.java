@@ -0,0 +1,348 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import com.att.aro.synthetic.TraceGenerator;
+import com.att.aro.synthetic.Workload;
+
+/**
+ * Runs the analyzer benchmarks over a synthetic trace, written by the
+ * TraceGenerator, and over recorded traces, and writes the results as CSV. The results can be compared with a
+ * baseline written by a previous run; the runner then exits with status 2 when
+ * a benchmark is slower than its baseline by more than the tolerance. The
+ * runner exits with status 3 when a benchmark fails, or when a benchmark of
+ * the baseline selected by the filter has no result.
+ * <p>
+ * Options:
+ * <ul>
+ * <li>-n sessions: number of sessions of the synthetic trace, 0 for none
+ * (default 200)</li>
+ * <li>-l file: workload properties of the synthetic trace, the number of
+ * sessions still comes from -n</li>
+ * <li>-t trace: recorded trace directory or pcap file, may be repeated</li>
+ * <li>-f regex: runs the benchmarks whose name matches</li>
+ * <li>-w count: warmup iterations (default 3)</li>
+ * <li>-i count: measurement iterations (default 5)</li>
+ * <li>-o file: results file (default standard output)</li>
+ * <li>-b file: baseline results file</li>
+ * <li>-r percent: tolerated regression of the mean time (default 10)</li>
+ * </ul>
+ */
+public class BenchmarkRunner {
+
+	private static final String HEADER = "benchmark,fixture,iterations,mean_ms,stddev_ms,min_ms,max_ms,ops_per_s";
+
+	/**
+	 * The measurements of a benchmark over a fixture.
+	 */
+	static class Result {
+		final String benchmark;
+		final String fixture;
+		final double[] millis;
+
+		Result(String benchmark, String fixture, double[] millis) {
+			this.benchmark = benchmark;
+			this.fixture = fixture;
+			this.millis = millis;
+		}
+
+		double mean() {
+			double sum = 0;
+			for (double m : millis) {
+				sum += m;
+			}
+			return sum / millis.length;
+		}
+
+		double stddev() {
+			double mean = mean();
+			double sum = 0;
+			for (double m : millis) {
+				sum += (m - mean) * (m - mean);
+			}
+			return millis.length > 1 ? Math.sqrt(sum / (millis.length - 1)) : 0;
+		}
+
+		double min() {
+			double min = Double.MAX_VALUE;
+			for (double m : millis) {
+				min = Math.min(min, m);
+			}
+			return min;
+		}
+
+		double max() {
+			double max = 0;
+			for (double m : millis) {
+				max = Math.max(max, m);
+			}
+			return max;
+		}
+
+		String key() {
+			return benchmark + "," + fixture;
+		}
+
+		String toCsv() {
+			double mean = mean();
+			return String.format(Locale.US, "%s,%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f", benchmark,
+					fixture, millis.length, mean, stddev(), min(), max(), mean > 0 ? 1000 / mean : 0);
+		}
+	}
+
+	// Held so that the level is kept, the progress of each stage is logged
+	private static final Logger LOGGER = Logger.getLogger("com.att.aro");
+
+	// Results of the operations, so that they are not optimized away
+	static volatile long sink;
+
+	private int sessions = 200;
+	private File workload;
+	private final List<File> traces = new ArrayList<File>();
+	private Pattern filter;
+	private int warmups = 3;
+	private int iterations = 5;
+	private File output;
+	private File baseline;
+	private double tolerance = 10;
+	private int failures;
+
+	/**
+	 * Runs the benchmarks.
+	 *
+	 * @param args
+	 *            The options.
+	 */
+	public static void main(String[] args) {
+		LOGGER.setLevel(Level.WARNING);
+		BenchmarkRunner runner = new BenchmarkRunner();
+		try {
+			runner.parse(args);
+			System.exit(runner.run());
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	private void parse(String[] args) {
+		for (int i = 0; i < args.length; ++i) {
+			String option = args[i];
+			if (i + 1 >= args.length) {
+				throw new IllegalArgumentException("Missing value of option " + option);
+			}
+			String value = args[++i];
+			if ("-n".equals(option)) {
+				sessions = Integer.parseInt(value);
+			} else if ("-l".equals(option)) {
+				workload = new File(value);
+			} else if ("-t".equals(option)) {
+				traces.add(new File(value));
+			} else if ("-f".equals(option)) {
+				filter = Pattern.compile(value);
+			} else if ("-w".equals(option)) {
+				warmups = Integer.parseInt(value);
+			} else if ("-i".equals(option)) {
+				iterations = Math.max(1, Integer.parseInt(value));
+			} else if ("-o".equals(option)) {
+				output = new File(value);
+			} else if ("-b".equals(option)) {
+				baseline = new File(value);
+			} else if ("-r".equals(option)) {
+				tolerance = Double.parseDouble(value);
+			} else {
+				throw new IllegalArgumentException("Unknown option " + option);
+			}
+		}
+	}
+
+	/**
+	 * Runs the benchmarks over the fixtures.
+	 *
+	 * @return The exit status: 0, 2 when a benchmark regressed, or 3 when a
+	 *         benchmark failed or a baseline benchmark has no result.
+	 */
+	private int run() throws IOException {
+		List<TraceFixture> fixtures = new ArrayList<TraceFixture>();
+		File synthetic = null;
+		if (sessions > 0) {
+			synthetic = File.createTempFile("synthetic", "");
+			synthetic.delete();
+			writeSyntheticTrace(synthetic);
+			fixtures.add(new TraceFixture("synthetic-" + sessions, synthetic));
+		}
+		for (File trace : traces) {
+			fixtures.add(new TraceFixture(trace.getName(), trace));
+		}
+
+		List<Result> results = new ArrayList<Result>();
+		for (TraceFixture fixture : fixtures) {
+			for (Benchmark benchmark : AnalyzerBenchmarks.all()) {
+				if (filter == null || filter.matcher(benchmark.getName()).find()) {
+					Result result = measure(benchmark, fixture);
+					if (result != null) {
+						results.add(result);
+					}
+				}
+			}
+		}
+		if (synthetic != null) {
+			delete(synthetic);
+		}
+
+		Writer writer = output != null ? new FileWriter(output) : new OutputStreamWriter(System.out);
+		PrintWriter out = new PrintWriter(writer);
+		out.println(HEADER);
+		for (Result result : results) {
+			out.println(result.toCsv());
+		}
+		out.flush();
+		if (output != null) {
+			out.close();
+		}
+		boolean regressed = baseline != null && regressed(results);
+		if (failures > 0) {
+			System.err.println(failures + " benchmark(s) failed or missing");
+			return 3;
+		}
+		return regressed ? 2 : 0;
+	}
+
+	/**
+	 * Writes the synthetic trace directory: the workload of the -l file, or
+	 * the default workload, limited to the number of sessions and without
+	 * limit of duration so that the trace does not depend on the timing of
+	 * the flows.
+	 */
+	private void writeSyntheticTrace(File traceDir) throws IOException {
+		Properties properties = new Properties();
+		if (workload != null) {
+			FileInputStream input = new FileInputStream(workload);
+			try {
+				properties.load(input);
+			} finally {
+				input.close();
+			}
+		}
+		properties.setProperty(Workload.MAX_CONNECTIONS, Integer.toString(sessions));
+		properties.setProperty(Workload.DURATION, "0");
+		new TraceGenerator(new Workload(properties)).generate(traceDir);
+	}
+
+	private static void delete(File file) {
+		File[] files = file.listFiles();
+		if (files != null) {
+			for (File child : files) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	private Result measure(Benchmark benchmark, TraceFixture fixture) {
+		String name = benchmark.getName() + " on " + fixture.getName();
+		try {
+			benchmark.setUp(fixture);
+		} catch (Exception e) {
+			System.err.println("Failed to set up " + name + ": " + e);
+			++failures;
+			return null;
+		}
+		try {
+			for (int i = 0; i < warmups; ++i) {
+				benchmark.prepare();
+				sink += benchmark.run();
+			}
+			double[] millis = new double[iterations];
+			for (int i = 0; i < iterations; ++i) {
+				benchmark.prepare();
+				long start = System.nanoTime();
+				sink += benchmark.run();
+				millis[i] = (System.nanoTime() - start) / 1e6;
+			}
+			Result result = new Result(benchmark.getName(), fixture.getName(), millis);
+			System.err.println(String.format(Locale.US, "%s: %.3f ms", name, result.mean()));
+			return result;
+		} catch (Exception e) {
+			System.err.println("Failed " + name + ": " + e);
+			++failures;
+			return null;
+		}
+	}
+
+	/**
+	 * Compares the results with the baseline. A benchmark of the baseline
+	 * selected by the filter that has no result is counted as a failure.
+	 *
+	 * @return True when a benchmark is slower than the tolerance allows.
+	 */
+	private boolean regressed(List<Result> results) throws IOException {
+		Map<String, Double> means = new HashMap<String, Double>();
+		BufferedReader reader = new BufferedReader(new FileReader(baseline));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split(",");
+				if (fields.length >= 4 && !line.startsWith("benchmark,")) {
+					means.put(fields[0] + "," + fields[1], Double.valueOf(fields[3]));
+				}
+			}
+		} finally {
+			reader.close();
+		}
+
+		boolean regressed = false;
+		for (Result result : results) {
+			Double base = means.remove(result.key());
+			if (base != null && result.mean() > base * (1 + tolerance / 100)) {
+				System.err.println(String.format(Locale.US,
+						"Regression: %s on %s took %.3f ms, baseline %.3f ms", result.benchmark,
+						result.fixture, result.mean(), base));
+				regressed = true;
+			}
+		}
+		for (String key : means.keySet()) {
+			String benchmark = key.substring(0, key.indexOf(','));
+			if (filter == null || filter.matcher(benchmark).find()) {
+				System.err.println("Missing: " + key.replace(",", " on ") + " has no result");
+				++failures;
+			}
+		}
+		return regressed;
+	}
+}
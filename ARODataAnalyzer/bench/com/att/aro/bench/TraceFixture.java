@@ -0,0 +1,163 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.bench;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.att.aro.model.Profile;
+import com.att.aro.model.TraceData;
+import com.att.aro.pcap.PCapFileReader;
+import com.att.aro.pcap.Packet;
+import com.att.aro.pcap.PacketListener;
+
+/**
+ * A trace the benchmarks run on: a synthetic trace written by the runner, or
+ * a recorded trace directory or pcap file.
+ */
+public class TraceFixture {
+
+	private static final int MAGIC_MICROSECONDS = 0xa1b2c3d4;
+	private static final int MAGIC_NANOSECONDS = 0xa1b23c4d;
+
+	/**
+	 * A captured frame, as handed to the datalink decoders.
+	 */
+	public static class Frame {
+		final long seconds;
+		final long microSeconds;
+		final int len;
+		final byte[] data;
+
+		Frame(long seconds, long microSeconds, int len, byte[] data) {
+			this.seconds = seconds;
+			this.microSeconds = microSeconds;
+			this.len = len;
+			this.data = data;
+		}
+	}
+
+	private final String name;
+	private final File trace;
+
+	/**
+	 * Initializes an instance of the TraceFixture class.
+	 *
+	 * @param name
+	 *            The name of the fixture in the results.
+	 * @param trace
+	 *            The trace directory or pcap file.
+	 */
+	public TraceFixture(String name, File trace) {
+		this.name = name;
+		this.trace = trace;
+	}
+
+	/**
+	 * Returns the name of the fixture.
+	 *
+	 * @return The name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the pcap file of the trace.
+	 *
+	 * @return The pcap file.
+	 */
+	public File getPcapFile() {
+		return trace.isDirectory() ? new File(trace, TraceData.PCAP_FILE) : trace;
+	}
+
+	/**
+	 * Loads the trace.
+	 *
+	 * @return The trace data.
+	 * @throws IOException
+	 *             when the trace cannot be read.
+	 */
+	public TraceData load() throws IOException {
+		return new TraceData(trace);
+	}
+
+	/**
+	 * Loads and analyzes the whole trace.
+	 *
+	 * @param profile
+	 *            The device profile.
+	 * @return The analysis.
+	 * @throws IOException
+	 *             when the trace cannot be read.
+	 */
+	public TraceData.Analysis analyze(Profile profile) throws IOException {
+		return load().runAnalysis(profile, null, false);
+	}
+
+	/**
+	 * Returns the datalink type of the pcap file of the trace.
+	 *
+	 * @return The datalink type.
+	 * @throws IOException
+	 *             when the file is not a classic pcap file.
+	 */
+	public int readDatalink() throws IOException {
+		DataInputStream input = new DataInputStream(new FileInputStream(getPcapFile()));
+		try {
+			int magic = input.readInt();
+			input.skipBytes(16);
+			int datalink = input.readInt();
+			if (magic == MAGIC_MICROSECONDS || magic == MAGIC_NANOSECONDS) {
+				return datalink;
+			} else if (Integer.reverseBytes(magic) == MAGIC_MICROSECONDS
+					|| Integer.reverseBytes(magic) == MAGIC_NANOSECONDS) {
+				return Integer.reverseBytes(datalink);
+			}
+			throw new IOException("Not a pcap file: " + getPcapFile());
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Reads the captured frames of the pcap file of the trace.
+	 *
+	 * @return The frames in capture order.
+	 * @throws IOException
+	 *             when the file is not a classic pcap file.
+	 */
+	public List<Frame> readFrames() throws IOException {
+		final List<Frame> frames = new ArrayList<Frame>();
+		PCapFileReader reader = new PCapFileReader(getPcapFile());
+		try {
+			reader.read(new PacketListener() {
+				@Override
+				public void packetArrived(String appName, Packet packet) {
+					frames.add(new Frame(packet.getSeconds(), packet.getMicroSeconds(), packet
+							.getLen(), packet.getData()));
+				}
+			});
+		} finally {
+			reader.close();
+		}
+		return frames;
+	}
+}
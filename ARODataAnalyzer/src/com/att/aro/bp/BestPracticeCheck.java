@@ -0,0 +1,69 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.bp;
+
+import com.att.aro.model.HttpRequestResponseInfo;
+import com.att.aro.model.TCPSession;
+
+/**
+ * Defines the callbacks of a best practice check run by the
+ * BestPracticeEngine. The engine walks the TCP sessions of a trace once and
+ * calls every registered check for each session and each HTTP request or
+ * response in it. Checks override the callbacks they need; the default
+ * implementations do nothing.
+ */
+public abstract class BestPracticeCheck {
+
+	/**
+	 * Called before the requests and responses of a TCP session are visited.
+	 * 
+	 * @param session
+	 *            The TCP session.
+	 */
+	public void beginSession(TCPSession session) {
+	}
+
+	/**
+	 * Called for each HTTP request and response of a TCP session, in session
+	 * order.
+	 * 
+	 * @param session
+	 *            The TCP session.
+	 * @param rr
+	 *            The request or response.
+	 * @param content
+	 *            The content of the request or response, decoded and parsed
+	 *            at most once for all the checks.
+	 */
+	public void visitTransaction(TCPSession session, HttpRequestResponseInfo rr,
+			ParsedContent content) {
+	}
+
+	/**
+	 * Called after the requests and responses of a TCP session are visited.
+	 * 
+	 * @param session
+	 *            The TCP session.
+	 */
+	public void endSession(TCPSession session) {
+	}
+
+	/**
+	 * Called once all the TCP sessions are visited.
+	 */
+	public void finish() {
+	}
+}
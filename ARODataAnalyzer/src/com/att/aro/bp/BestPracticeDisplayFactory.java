@@ -27,28 +27,36 @@ import java.util.ResourceBundle;
 import javax.swing.JPanel;
 import javax.swing.event.HyperlinkEvent;
 
+import com.att.aro.bp.asynccheck.AsyncCheckEntry;
 import com.att.aro.bp.asynccheck.AsyncCheckResultPanel;
 import com.att.aro.bp.asynccheck.BPAsyncCheckInScript;
 import com.att.aro.bp.displaynoneincss.DisplayNoneInCSSBestPractice;
+import com.att.aro.bp.displaynoneincss.DisplayNoneInCSSEntry;
 import com.att.aro.bp.displaynoneincss.DisplayNoneInCSSResultPanel;
 import com.att.aro.bp.duplicate.DuplicateBestPractice;
 import com.att.aro.bp.duplicate.DuplicateResultPanel;
 import com.att.aro.bp.emptyurl.EmptyUrlBestPractice;
 import com.att.aro.bp.fileorder.FileOrderBestPractice;
+import com.att.aro.bp.fileorder.FileOrderEntry;
 import com.att.aro.bp.fileorder.FileOrderResultPanel;
 import com.att.aro.bp.flash.FlashBestPractice;
 import com.att.aro.bp.httprspcd.Http3xxBestPractice;
 import com.att.aro.bp.http4xx5xxrespcodes.Http4xx5xxBestPractice;
+import com.att.aro.bp.http4xx5xxrespcodes.Http4xx5xxStatusResponseCodesEntry;
 import com.att.aro.bp.http4xx5xxrespcodes.Http4xx5xxStatusResponseCodesResultPanel;
+import com.att.aro.bp.httprspcd.HttpCode3XXEntry;
 import com.att.aro.bp.httprspcd.HttpCode3XXResultPanel;
 import com.att.aro.bp.imageSize.ImageSizeBestPractice;
+import com.att.aro.bp.imageSize.ImageSizeEntry;
 import com.att.aro.bp.imageSize.ImageSizeResultPanel;
 import com.att.aro.bp.minification.MinificationBestPractice;
+import com.att.aro.bp.minification.MinificationEntry;
 import com.att.aro.bp.minification.MinificationResultPanel;
 import com.att.aro.bp.scripts.Scripts;
 //import com.att.aro.bp.smallrequest.SmallRequestBestPractice;
 //import com.att.aro.bp.smallrequest.SmallRequestResultPanel;
 import com.att.aro.bp.spriteimage.SpriteImageBestPractice;
+import com.att.aro.bp.spriteimage.SpriteImageEntry;
 import com.att.aro.bp.spriteimage.SpriteImageResultPanel;
 import com.att.aro.main.ApplicationResourceOptimizer;
 import com.att.aro.main.ChartPlotOptions;
@@ -56,6 +64,8 @@ import com.att.aro.main.ResourceBundleManager;
 import com.att.aro.main.TextFileCompressionResultPanel;
 import com.att.aro.model.BestPractices;
 import com.att.aro.model.BurstCollectionAnalysis;
+import com.att.aro.model.CacheEntry;
+import com.att.aro.model.TextFileCompressionEntry;
 import com.att.aro.model.TraceData;
 import com.att.aro.model.TraceData.Analysis;
 
@@ -144,6 +154,105 @@ public class BestPracticeDisplayFactory {
 		getTextFileCompression().clearTable();
 	}
 	
+	/**
+	 * Fills the BP results tables with the results of an analysis. The
+	 * analysis does not use the tables, they are only filled when the best
+	 * practices are displayed.
+	 * 
+	 * @param analysis
+	 *            The analysis, null clears the tables.
+	 */
+	static public void setBPResultsTables(TraceData.Analysis analysis) {
+		if (analysis == null) {
+			clearsBPResultsTables();
+			return;
+		}
+		BestPractices bp = analysis.getBestPractice();
+
+		List<TextFileCompressionEntry> textFileCompression = analysis.getTextFileCompressionAnalysis().getResults();
+		TextFileCompressionResultPanel textFileCompressionPanel = getTextFileCompression();
+		textFileCompressionPanel.setNoOfRecords(textFileCompression.size());
+		if (textFileCompression.size() > 0) {
+			textFileCompressionPanel.setData(textFileCompression);
+		}
+		textFileCompressionPanel.setVisible(textFileCompression.size() > 0);
+
+		List<ImageSizeEntry> imageSize = analysis.getImageSizeAnalysis().getResults();
+		ImageSizeResultPanel imageSizePanel = getImageSize();
+		imageSizePanel.setNoOfRecords(imageSize.size());
+		if (imageSize.size() > 0) {
+			imageSizePanel.setData(imageSize);
+		}
+		imageSizePanel.setVisible(imageSize.size() > 0);
+
+		List<MinificationEntry> minification = analysis.getMinificationAnalysis().getResults();
+		MinificationResultPanel minificationPanel = getMinification();
+		minificationPanel.setNoOfRecords(minification.size());
+		if (minification.size() > 0) {
+			minificationPanel.setData(minification);
+		}
+		minificationPanel.setVisible(minification.size() > 0);
+
+		List<SpriteImageEntry> spriteImage = analysis.getSpriteImageAnalysis().getResults();
+		SpriteImageResultPanel spriteImagePanel = getSpriteImageResults();
+		spriteImagePanel.setNoOfRecords(spriteImage.size());
+		if (spriteImage.size() > 0) {
+			spriteImagePanel.setData(spriteImage);
+		}
+		spriteImagePanel.setVisible(spriteImage.size() > 0);
+
+		List<HttpCode3XXEntry> http3xx = bp.getHttpRspCodeResults();
+		HttpCode3XXResultPanel http3xxPanel = getHttpRspCdResults();
+		http3xxPanel.setNumberOfRecords(http3xx.size());
+		if (http3xx.size() > 0) {
+			http3xxPanel.setData(http3xx);
+		}
+		http3xxPanel.setVisible(http3xx.size() > 0);
+
+		List<AsyncCheckEntry> asyncCheck = analysis.getAsyncCheckAnalysis().getResults();
+		AsyncCheckResultPanel asyncCheckPanel = getAsyncCheckResults();
+		asyncCheckPanel.setNoOfRecords(asyncCheck.size());
+		if (asyncCheck.size() > 0) {
+			asyncCheckPanel.setData(asyncCheck);
+		}
+		asyncCheckPanel.setVisible(asyncCheck.size() > 0);
+
+		List<FileOrderEntry> fileOrder = analysis.getFileOrderAnalysis().getResults();
+		FileOrderResultPanel fileOrderPanel = getFileOrderResultPanel();
+		fileOrderPanel.setNoOfRecords(fileOrder.size());
+		if (fileOrder.size() > 0) {
+			fileOrderPanel.setData(fileOrder);
+		}
+		fileOrderPanel.setVisible(fileOrder.size() > 0);
+
+		List<DisplayNoneInCSSEntry> displayNoneInCSS = analysis.getDisplayNoneInCSSAnalysis().getResults();
+		DisplayNoneInCSSResultPanel displayNoneInCSSPanel = getDisplayNoneInCSSResultPanel();
+		displayNoneInCSSPanel.setNoOfRecords(displayNoneInCSS.size());
+		if (displayNoneInCSS.size() > 0) {
+			displayNoneInCSSPanel.setData(displayNoneInCSS);
+		}
+		displayNoneInCSSPanel.setVisible(displayNoneInCSS.size() > 0);
+
+		List<Http4xx5xxStatusResponseCodesEntry> http4xx5xx = bp.get4xx5xxResults();
+		Http4xx5xxStatusResponseCodesResultPanel http4xx5xxPanel = getHttp4xx5xxResults();
+		http4xx5xxPanel.setNumberOfRecords(http4xx5xx.size());
+		if (http4xx5xx.size() > 0) {
+			http4xx5xxPanel.setData(http4xx5xx);
+		}
+		http4xx5xxPanel.setVisible(http4xx5xx.size() > 0);
+
+		List<CacheEntry> duplicates = bp.getDuplicateContentUniqueItems();
+		DuplicateResultPanel duplicatePanel = getDupicate();
+		duplicatePanel.setNoOfRecords(duplicates.size());
+		if (duplicates.size() > 0) {
+			duplicatePanel.setData(duplicates);
+		}
+		duplicatePanel.setCrossUrlDuplicates(bp.getCrossUrlDuplicateContentSize(),
+				bp.getCrossUrlDuplicateContentBytes());
+		duplicatePanel.setVisible(duplicates.size() > 0
+				|| bp.getCrossUrlDuplicateContentSize() > 0);
+	}
+	
 	/**
 	 * Returns a results panel for duplicate content.
 	 * 
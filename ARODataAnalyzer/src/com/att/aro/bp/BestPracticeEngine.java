@@ -0,0 +1,132 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.bp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.att.aro.model.HttpRequestResponseInfo;
+import com.att.aro.model.ProgressMonitor;
+import com.att.aro.model.StageProgress;
+import com.att.aro.model.TCPSession;
+
+/**
+ * Runs best practice checks over the TCP sessions of a trace in a single
+ * pass. The requests and responses are visited once for all the checks, and
+ * the content of each of them is decoded and parsed at most once, when the
+ * first check asks for it.
+ */
+public class BestPracticeEngine {
+
+	private final List<BestPracticeCheck> checks = new ArrayList<BestPracticeCheck>();
+
+	/**
+	 * Initializes an instance of the BestPracticeEngine class with the
+	 * specified checks.
+	 * 
+	 * @param checks
+	 *            The checks, called in this order.
+	 */
+	public BestPracticeEngine(BestPracticeCheck... checks) {
+		this.checks.addAll(Arrays.asList(checks));
+	}
+
+	/**
+	 * Adds a check to the engine. Checks are called in the order they are
+	 * added.
+	 * 
+	 * @param check
+	 *            The check.
+	 */
+	public void register(BestPracticeCheck check) {
+		checks.add(check);
+	}
+
+	/**
+	 * Runs the checks over the TCP sessions.
+	 * 
+	 * @param tcpSessions
+	 *            The TCP sessions of the trace, may be null.
+	 */
+	public void run(List<TCPSession> tcpSessions) {
+		run(tcpSessions, null);
+	}
+
+	/**
+	 * Runs the checks over the TCP sessions, timing each check as a stage of
+	 * the specified monitor. The stage of a check counts the requests and
+	 * responses it visits and their content bytes.
+	 * 
+	 * @param tcpSessions
+	 *            The TCP sessions of the trace, may be null.
+	 * @param monitor
+	 *            The progress monitor, may be null.
+	 */
+	public void run(List<TCPSession> tcpSessions, ProgressMonitor monitor) {
+		StageProgress[] stages = new StageProgress[checks.size()];
+		if (monitor != null) {
+			for (int i = 0; i < stages.length; ++i) {
+				stages[i] = monitor.createStage(ProgressMonitor.BEST_PRACTICE
+						+ checks.get(i).getClass().getSimpleName(), 0);
+			}
+		}
+		if (tcpSessions != null) {
+			for (TCPSession session : tcpSessions) {
+				for (int i = 0; i < stages.length; ++i) {
+					resume(stages[i]);
+					checks.get(i).beginSession(session);
+					pause(stages[i]);
+				}
+				for (HttpRequestResponseInfo rr : session.getRequestResponseInfo()) {
+					ParsedContent content = new ParsedContent(rr);
+					for (int i = 0; i < stages.length; ++i) {
+						resume(stages[i]);
+						checks.get(i).visitTransaction(session, rr, content);
+						if (stages[i] != null) {
+							stages[i].advance(1, rr.getContentLength());
+						}
+						pause(stages[i]);
+					}
+				}
+				for (int i = 0; i < stages.length; ++i) {
+					resume(stages[i]);
+					checks.get(i).endSession(session);
+					pause(stages[i]);
+				}
+			}
+		}
+		for (int i = 0; i < stages.length; ++i) {
+			resume(stages[i]);
+			checks.get(i).finish();
+			if (stages[i] != null) {
+				stages[i].finish();
+			}
+		}
+	}
+
+	private static void resume(StageProgress stage) {
+		if (stage != null) {
+			stage.resume();
+		}
+	}
+
+	private static void pause(StageProgress stage) {
+		if (stage != null) {
+			stage.pause();
+		}
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.bp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ResourceBundle;
+
+import com.att.aro.main.ResourceBundleManager;
+import com.att.aro.model.TraceData;
+
+/**
+ * Evaluates the result of the best practices of an analysis without any UI,
+ * so that exports and the best practices tab report the same results.
+ */
+public final class BestPracticeEvaluator {
+
+	/**
+	 * The result of a best practice.
+	 */
+	public enum Result {
+		PASS("bestPractice.tooltip.pass"),
+		WARNING("bestPractice.tooltip.warning"),
+		FAIL("bestPractice.tooltip.fail"),
+		MANUAL("bestPractice.tooltip.manual");
+
+		private final String key;
+
+		private Result(String key) {
+			this.key = key;
+		}
+
+		/**
+		 * Returns the localized name of the result.
+		 *
+		 * @return The result text.
+		 */
+		public String getText() {
+			return rb.getString(key);
+		}
+	}
+
+	private static final ResourceBundle rb = ResourceBundleManager.getDefaultBundle();
+
+	/**
+	 * Best practices that only warn when they do not pass.
+	 */
+	private static final String[] WARNING_TITLES = { "caching.usingCache.title",
+			"caching.cacheControl.title", "connections.offloadingToWifi.title",
+			"html.httpUsage.title", "other.accessingPeripherals.title" };
+
+	private BestPracticeEvaluator() {
+	}
+
+	/**
+	 * Returns the result of a best practice for an analysis.
+	 *
+	 * @param bp
+	 *            The best practice.
+	 * @param analysis
+	 *            The analysis.
+	 * @return The result.
+	 */
+	public static Result evaluate(BestPracticeDisplay bp, TraceData.Analysis analysis) {
+		if (bp.isSelfTest()) {
+			return Result.MANUAL;
+		}
+		if (bp.isPass(analysis)) {
+			return Result.PASS;
+		}
+		String title = bp.getOverviewTitle();
+		if (title.equals(rb.getString(BPTextFileCompression.TEXT_FILE_COMPRESSION_OVERVIEW_TITLE))) {
+			return bp.isWarning(analysis) ? Result.WARNING : Result.FAIL;
+		}
+		for (String key : WARNING_TITLES) {
+			if (title.equals(rb.getString(key))) {
+				return Result.WARNING;
+			}
+		}
+		return Result.FAIL;
+	}
+
+	/**
+	 * Returns every best practice in display order.
+	 *
+	 * @return List of best practices.
+	 */
+	public static List<BestPracticeDisplay> getBestPractices() {
+		List<BestPracticeDisplay> result = new ArrayList<BestPracticeDisplay>();
+		for (BestPracticeDisplayGroup group : BestPracticeDisplayFactory.getInstance()
+				.getBestPracticeDisplay()) {
+			result.addAll(group.getBestPractices());
+		}
+		return result;
+	}
+}
@@ -37,13 +37,15 @@ public class BestPracticeExport {
 	public static void writeValue(Writer writer, String s) throws IOException {
 		writer.write('"');
 		if (s != null) {
-			for (char c : s.toCharArray()) {
-				if (c == '"') {
-					writer.write("\"\"");
-				} else {
-					writer.write(c);
-				}
+			// Write the runs between quotes at once, doubling the quotes
+			int start = 0;
+			int quote;
+			while ((quote = s.indexOf('"', start)) >= 0) {
+				writer.write(s, start, quote + 1 - start);
+				writer.write('"');
+				start = quote + 1;
 			}
+			writer.write(s, start, s.length() - start);
 		}
 		writer.write('"');
 	}
@@ -0,0 +1,100 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.bp;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import com.att.aro.model.ContentException;
+import com.att.aro.model.HttpRequestResponseInfo;
+
+/**
+ * Content of an HTTP request or response shared by the best practice checks.
+ * The content is decoded to a string and parsed as an HTML document the first
+ * time a check asks for it, and the result is kept for the other checks.
+ * Checks must not modify the parsed document.
+ */
+public final class ParsedContent {
+
+	private static final Logger LOGGER = Logger.getLogger(ParsedContent.class.getName());
+
+	private final HttpRequestResponseInfo rr;
+	private boolean decoded;
+	private String text;
+	private boolean parsed;
+	private Document document;
+
+	/**
+	 * Initializes an instance of the ParsedContent class for a request or
+	 * response. Nothing is decoded until it is asked for.
+	 * 
+	 * @param rr
+	 *            The request or response.
+	 */
+	public ParsedContent(HttpRequestResponseInfo rr) {
+		this.rr = rr;
+	}
+
+	/**
+	 * Returns the request or response of the content.
+	 * 
+	 * @return The request or response.
+	 */
+	public HttpRequestResponseInfo getRequestResponse() {
+		return rr;
+	}
+
+	/**
+	 * Returns the content as a string, see
+	 * HttpRequestResponseInfo.getContentString().
+	 * 
+	 * @return The content, or null if there is none or it cannot be read.
+	 */
+	public String getString() {
+		if (!decoded) {
+			decoded = true;
+			try {
+				text = rr.getContentString();
+			} catch (ContentException e) {
+				LOGGER.log(Level.FINE, "Content is not available: {0}", e.getMessage());
+			} catch (IOException e) {
+				LOGGER.log(Level.WARNING, "Unable to read content: {0}", e.getMessage());
+			}
+		}
+		return text;
+	}
+
+	/**
+	 * Returns the content parsed with Jsoup. Any text content can be parsed,
+	 * so callers check the content type first.
+	 * 
+	 * @return The document, or null if there is no content.
+	 */
+	public Document getHtmlDocument() {
+		if (!parsed) {
+			parsed = true;
+			String content = getString();
+			if (content != null) {
+				document = Jsoup.parse(content);
+			}
+		}
+		return document;
+	}
+}
@@ -15,16 +15,17 @@
  */
 package com.att.aro.bp.asynccheck;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
-import com.att.aro.model.ContentException;
+import com.att.aro.bp.BestPracticeCheck;
+import com.att.aro.bp.BestPracticeEngine;
+import com.att.aro.bp.ParsedContent;
 import com.att.aro.model.HttpRequestResponseInfo;
 import com.att.aro.model.HttpRequestResponseInfo.Direction;
 import com.att.aro.model.TCPSession;
@@ -33,7 +34,7 @@ import com.att.aro.model.TCPSession;
  * Represents Asynchronous script load Analysis
  * 
  */
-public class AsyncCheckAnalysis {
+public class AsyncCheckAnalysis extends BestPracticeCheck {
 
 	private static final Logger LOGGER = Logger
 			.getLogger(AsyncCheckAnalysis.class.getName());
@@ -43,6 +44,13 @@ public class AsyncCheckAnalysis {
 	private int syncLoadedScripts = 0;
 	private int syncPacketCount = 0;
 	private int asyncPacketCount = 0;
+	private HttpRequestResponseInfo lastRequestObj;
+
+	/**
+	 * Initializes an Async Check Analysis to be run by a BestPracticeEngine.
+	 */
+	public AsyncCheckAnalysis() {
+	}
 
 	/**
 	 * Performs Async Check Analysis
@@ -51,22 +59,28 @@ public class AsyncCheckAnalysis {
 	 *            - TCP sessions to be analyzed.
 	 */
 	public AsyncCheckAnalysis(List<TCPSession> tcpSessions) {
-		for (TCPSession tcpSession : tcpSessions) {
-			
-			/*Taking this variable inside TCPSession FOR loop because after analyzing the content, 
-			we should always reset lastRequestObj to null for a different TCP session.*/
-			HttpRequestResponseInfo lastRequestObj = null;
-			
-			for (HttpRequestResponseInfo rr : tcpSession
-					.getRequestResponseInfo()) {
-				if (rr.getDirection() == Direction.RESPONSE) {
-					if (!rr.checkAsyncAttributeInHead(this)) {
-						results.add(new AsyncCheckEntry(rr, lastRequestObj));
-					}
-				} else if (rr.getDirection() == Direction.REQUEST) {
-					lastRequestObj = rr;
-				}
+		new BestPracticeEngine(this).run(tcpSessions);
+	}
+
+	@Override
+	public void beginSession(TCPSession session) {
+		/*Resetting lastRequestObj for every TCP session because after analyzing the content, 
+		we should always reset lastRequestObj to null for a different TCP session.*/
+		lastRequestObj = null;
+	}
+
+	@Override
+	public void visitTransaction(TCPSession session, HttpRequestResponseInfo rr,
+			ParsedContent content) {
+		if (rr.getDirection() == Direction.RESPONSE) {
+			// Checking the content length and content type (only text/html).
+			if (rr.getContentLength() != 0 && rr.getContentType() != null
+					&& rr.getContentType().equalsIgnoreCase("text/html")
+					&& !findSyncLoadingScripts(content.getHtmlDocument())) {
+				results.add(new AsyncCheckEntry(rr, lastRequestObj));
 			}
+		} else if (rr.getDirection() == Direction.REQUEST) {
+			lastRequestObj = rr;
 		}
 	}
 
@@ -79,21 +93,15 @@ public class AsyncCheckAnalysis {
 	 */
 	public boolean parseHtmlToFindSyncLoadingScripts(
 			HttpRequestResponseInfo info) {
+		return findSyncLoadingScripts(new ParsedContent(info).getHtmlDocument());
+	}
 
-		org.jsoup.nodes.Document doc;
-		String packetContent = null;
-		try {
-			packetContent = info.getContentString();
-		} catch (ContentException e1) {
-			LOGGER.log(Level.FINE,
-					"Content Exception while getting the content from the packet");
-		} catch (IOException e1) {
-			LOGGER.log(Level.FINE,
-					"IOException while getting the content from the packet");
-		}
-
-		if (packetContent != null) {
-			doc = Jsoup.parse(packetContent);
+	/**
+	 * Finds whether the scripts of a parsed html file are loaded
+	 * asynchronously or not
+	 */
+	private boolean findSyncLoadingScripts(Document doc) {
+		if (doc != null) {
 			Elements headLink = null;
 			Elements scriptLink = null;
 
@@ -1,17 +1,15 @@
 package com.att.aro.bp.displaynoneincss;
 
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
-import com.att.aro.model.ContentException;
+import com.att.aro.bp.BestPracticeCheck;
+import com.att.aro.bp.BestPracticeEngine;
+import com.att.aro.bp.ParsedContent;
 import com.att.aro.model.HttpRequestResponseInfo;
 import com.att.aro.model.HttpRequestResponseInfo.Direction;
 import com.att.aro.model.TCPSession;
@@ -22,80 +20,45 @@ import com.att.aro.model.TCPSession;
  *
  */
 
-public class DisplayNoneInCSSAnalysis {
-	
-	private static final Logger logger = Logger.getLogger(DisplayNoneInCSSAnalysis.class.getName());
+public class DisplayNoneInCSSAnalysis extends BestPracticeCheck {
 
 	private List<DisplayNoneInCSSEntry> results = new ArrayList<DisplayNoneInCSSEntry>();
 		
-	public DisplayNoneInCSSAnalysis(List<TCPSession> tcpSessions) {
-		for (TCPSession tcpSession : tcpSessions) {
-			for (HttpRequestResponseInfo rr : tcpSession
-					.getRequestResponseInfo()) {
-				Document doc = null;
-				String css;
-				if ((rr.getDirection() == Direction.RESPONSE) && (rr.getContentType() != null)
-						&& (rr.getContentType().equalsIgnoreCase("text/html"))) {
-				
-					doc = getParsedHtml(rr);
-					if (doc != null) {
-						if (checkIfDisplayNoneIsPresentInCSSembeddedInHTML(doc)) {
-							results.add(new DisplayNoneInCSSEntry(rr));
-						}
-					}
-				}
-				else if(rr.getDirection() == Direction.RESPONSE && rr.getContentType() != null
-						&& rr.getContentType().equalsIgnoreCase("text/css")){
-					css = getCSS(rr);
-					if (css != null) {
-						if (checkIfDisplayNoneIsPresentInCSS(css)) {
-							results.add(new DisplayNoneInCSSEntry(rr));
-						}
-					}
-				}
-			}
-		}
-	}
-	
 	/**
-	 * Parse the HTML file using JSOUP
-	 * @return Document, the parsed HTML file
+	 * Initializes a Display:none in CSS Analysis to be run by a
+	 * BestPracticeEngine.
 	 */
-	private Document getParsedHtml(HttpRequestResponseInfo rr){
+	public DisplayNoneInCSSAnalysis() {
+	}
+
+	public DisplayNoneInCSSAnalysis(List<TCPSession> tcpSessions) {
+		new BestPracticeEngine(this).run(tcpSessions);
+	}
+
+	@Override
+	public void visitTransaction(TCPSession session, HttpRequestResponseInfo rr,
+			ParsedContent content) {
 		Document doc = null;
-		String htmlContent = null;
-		try {
-			htmlContent = rr.getContentString();
-		}catch (ContentException e) {
-			logger.log(Level.FINE, "HTML content is not available.");
-		} catch (IOException e) {
-			logger.log(Level.SEVERE, "HTML content is not available.");
-		}
+		String css;
+		if ((rr.getDirection() == Direction.RESPONSE) && (rr.getContentType() != null)
+				&& (rr.getContentType().equalsIgnoreCase("text/html"))) {
 		
-		if (htmlContent != null){
-			doc = Jsoup.parse(htmlContent);
-		}
-		if (doc != null) {
-			return doc;
-		} else { 
-			return null;
+			doc = content.getHtmlDocument();
+			if (doc != null) {
+				if (checkIfDisplayNoneIsPresentInCSSembeddedInHTML(doc)) {
+					results.add(new DisplayNoneInCSSEntry(rr));
+				}
+			}
 		}
-	}
-	/**
-	 * This method return the CSS file from the RR objects
-	 * @return CSS file 
-	 */
-	private String getCSS(HttpRequestResponseInfo rr){
-		
-		String cssContent = null;
-		try {
-			cssContent = rr.getContentString();
-		} catch (ContentException e) {
-			logger.log(Level.SEVERE, "CSS content is not available.");
-		} catch (IOException e) {
-			logger.log(Level.SEVERE, "CSS content is not available.");
+		else if(rr.getDirection() == Direction.RESPONSE && rr.getContentType() != null
+				&& rr.getContentType().equalsIgnoreCase("text/css")){
+			css = content.getString();
+			if (css != null) {
+				if (checkIfDisplayNoneIsPresentInCSS(css)) {
+					results.add(new DisplayNoneInCSSEntry(rr));
+				}
+			}
 		}
-		return cssContent;
 	}
 
 	/**
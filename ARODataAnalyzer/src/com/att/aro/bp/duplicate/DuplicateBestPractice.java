@@ -76,16 +76,18 @@ public class DuplicateBestPractice extends BestPracticeDisplay {
 
 	@Override
 	public String resultText(Analysis analysisData) {
+		BestPractices bp = analysisData.getBestPractice();
+		NumberFormat nf2 = NumberFormat.getInstance();
+		nf2.setMaximumFractionDigits(3);
+
+		String result;
 		if (isPass(analysisData)) {
-			return rb.getString("caching.duplicateContent.pass");
+			result = rb.getString("caching.duplicateContent.pass");
 		} else {
-			BestPractices bp = analysisData.getBestPractice();
 			NumberFormat nf = NumberFormat.getInstance();
 			nf.setMaximumFractionDigits(1);
-			NumberFormat nf2 = NumberFormat.getInstance();
-			nf2.setMaximumFractionDigits(3);
 
-			return MessageFormat.format(
+			result = MessageFormat.format(
 					rb.getString("caching.duplicateContent.results"),
 					nf.format(bp.getDuplicateContentBytesRatio() * 100.0),
 					bp.getDuplicateContentSizeOfUniqueItems(),
@@ -94,6 +96,14 @@ public class DuplicateBestPractice extends BestPracticeDisplay {
 					nf2.format(((double) bp.getTotalContentBytes())
 							/ DUPLICATE_CONTENT_DENOMINATOR));
 		}
+		if (bp.getCrossUrlDuplicateContentSize() > 0) {
+			result += " " + MessageFormat.format(
+					rb.getString("caching.duplicateContent.crossUrl"),
+					bp.getCrossUrlDuplicateContentSize(),
+					nf2.format(((double) bp.getCrossUrlDuplicateContentBytes())
+							/ DUPLICATE_CONTENT_DENOMINATOR));
+		}
+		return result;
 	}
 
 	@Override
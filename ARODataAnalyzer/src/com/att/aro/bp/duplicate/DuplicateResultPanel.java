@@ -25,6 +25,8 @@ import java.awt.Insets;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
+import java.text.MessageFormat;
+import java.text.NumberFormat;
 import java.util.Collection;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -61,6 +63,7 @@ public class DuplicateResultPanel extends JPanel implements DataTableResultPanel
 	private int noOfRecords = 0;
 
 	private JLabel title;
+	private JLabel crossUrlLabel;
 	private JPanel contentPanel;
 	private JScrollPane scrollPane;
 	private BestPracticeButtonPanel bpButtonPanel;
@@ -96,6 +99,27 @@ public class DuplicateResultPanel extends JPanel implements DataTableResultPanel
 		}
 	}
 
+	/**
+	 * Sets the number of files that downloaded content already downloaded
+	 * from other URLs.
+	 * 
+	 * @param count
+	 *            - The number of cross URL duplicate files.
+	 * @param bytes
+	 *            - The content bytes of the cross URL duplicate files.
+	 */
+	public void setCrossUrlDuplicates(int count, long bytes) {
+		JLabel label = getCrossUrlLabel();
+		if (count > 0) {
+			NumberFormat nf = NumberFormat.getInstance();
+			nf.setMaximumFractionDigits(1);
+			label.setText(MessageFormat.format(
+					Util.RB.getString("duplicate.table.crossUrl"), count,
+					nf.format(bytes / 1024.0)));
+		}
+		label.setVisible(count > 0);
+	}
+
 	/**
 	 * Initializes the DuplicateResultPanel.
 	 */
@@ -125,6 +149,19 @@ public class DuplicateResultPanel extends JPanel implements DataTableResultPanel
 		return this.title;
 	}
 
+	/**
+	 * Returns the label of the cross URL duplicates.
+	 * 
+	 * @return JLabel cross URL duplicates
+	 */
+	private JLabel getCrossUrlLabel() {
+		if (this.crossUrlLabel == null) {
+			this.crossUrlLabel = new JLabel();
+			this.crossUrlLabel.setVisible(false);
+		}
+		return this.crossUrlLabel;
+	}
+
 	/**
 	 * Initializes and returns the content panel.
 	 * 
@@ -135,6 +172,7 @@ public class DuplicateResultPanel extends JPanel implements DataTableResultPanel
 			this.contentPanel = new JPanel(new BorderLayout());
 			this.contentPanel.add(getScrollPane(), BorderLayout.CENTER);
 			this.contentPanel.add(getButtonsPanel(), BorderLayout.EAST);
+			this.contentPanel.add(getCrossUrlLabel(), BorderLayout.SOUTH);
 		}
 		return this.contentPanel;
 	}
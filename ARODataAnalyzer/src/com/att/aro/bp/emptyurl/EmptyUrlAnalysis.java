@@ -15,17 +15,17 @@
  */
 package com.att.aro.bp.emptyurl;
 
-import java.io.IOException;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
-import com.att.aro.model.ContentException;
+import com.att.aro.bp.BestPracticeCheck;
+import com.att.aro.bp.BestPracticeEngine;
+import com.att.aro.bp.ParsedContent;
 import com.att.aro.model.HttpRequestResponseInfo;
 import com.att.aro.model.HttpRequestResponseInfo.Direction;
 import com.att.aro.model.TCPSession;
@@ -34,13 +34,19 @@ import com.att.aro.model.TCPSession;
  * Represents empty URL analysis.
  * 
  */
-public class EmptyUrlAnalysis {
+public class EmptyUrlAnalysis extends BestPracticeCheck {
 
 	private static final Logger LOGGER = Logger.getLogger(EmptyUrlAnalysis.class.getName());
 
 	private HttpRequestResponseInfo firstFailedHtml;
 	private int numberOfFailedFiles;
 
+	/**
+	 * Initializes an empty URL analysis to be run by a BestPracticeEngine.
+	 */
+	public EmptyUrlAnalysis() {
+	}
+
 	/**
 	 * Performs empty URL analysis.
 	 * 
@@ -49,38 +55,22 @@ public class EmptyUrlAnalysis {
 	 * 
 	 */
 	public EmptyUrlAnalysis(List<TCPSession> tcpSessions) {
-		if (null != tcpSessions) {
-			analyzeTcpSessions(tcpSessions);
-		}
+		new BestPracticeEngine(this).run(tcpSessions);
 	}
 
-	private void analyzeTcpSessions(List<TCPSession> tcpSessions) {
-		String contentType;
-		// loop through TCP session
-		for (TCPSession tcpSession : tcpSessions) {
-			// loop through HTTP requests and responses
-			for (HttpRequestResponseInfo rr : tcpSession.getRequestResponseInfo()) {
-
-				contentType = rr.getContentType();
-				if ((rr.getDirection() == Direction.RESPONSE) && (rr.getContentLength() != 0) && (contentType != null)) {
-					analyzeContent(rr, contentType);
-				}
-			}
-		}
-	}
-
-	private void analyzeContent(HttpRequestResponseInfo rr, String contentType) {
-		if (HttpRequestResponseInfo.isHtml(contentType)) {
-			analyzeHtml(rr);
+	@Override
+	public void visitTransaction(TCPSession session, HttpRequestResponseInfo rr,
+			ParsedContent content) {
+		String contentType = rr.getContentType();
+		if ((rr.getDirection() == Direction.RESPONSE) && (rr.getContentLength() != 0) && (contentType != null)
+				&& HttpRequestResponseInfo.isHtml(contentType)) {
+			analyzeHtml(rr, content.getHtmlDocument());
 		}
 	}
 
-	private void analyzeHtml(HttpRequestResponseInfo rr) {
-
-		Document htmlDoc;
-		try {
-			htmlDoc = Jsoup.parse(rr.getContentString());
+	private void analyzeHtml(HttpRequestResponseInfo rr, Document htmlDoc) {
 
+		if (htmlDoc != null) {
 			Elements allHrefElements = new Elements();
 			allHrefElements.addAll(htmlDoc.select("a"));
 			allHrefElements.addAll(htmlDoc.select("link"));
@@ -97,11 +87,6 @@ public class EmptyUrlAnalysis {
 			if (isAttributeEmpty(rr, allSrcElements, "src")) {
 				return;
 			}
-
-		} catch (ContentException e) {
-			LOGGER.log(Level.FINE, "Empty URL Analysis - Unexpected Exception {0}", e.getMessage());
-		} catch (IOException e) {
-			LOGGER.log(Level.WARNING, "Empty URL Analysis - Unexpected Exception {0}", e.getMessage());
 		}
 	}
 
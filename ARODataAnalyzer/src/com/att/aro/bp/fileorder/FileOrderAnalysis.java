@@ -7,6 +7,9 @@ import java.util.logging.Logger;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
+import com.att.aro.bp.BestPracticeCheck;
+import com.att.aro.bp.BestPracticeEngine;
+import com.att.aro.bp.ParsedContent;
 import com.att.aro.model.HttpRequestResponseInfo;
 import com.att.aro.model.HttpRequestResponseInfo.Direction;
 import com.att.aro.model.TCPSession;
@@ -15,7 +18,7 @@ import com.att.aro.model.TCPSession;
  * Represents File Order Analysis
  * 
  */
-public class FileOrderAnalysis {
+public class FileOrderAnalysis extends BestPracticeCheck {
 
 	private static final Logger LOGGER = Logger
 			.getLogger(FileOrderAnalysis.class.getName());
@@ -24,28 +27,40 @@ public class FileOrderAnalysis {
 	private int fileOrderCount = 0;
 	private Elements css; // To store all the CSS elements present in HEAD
 	private Elements js; // To store all the js elements present in HEAD
+	private HttpRequestResponseInfo lastRequestObj;
+
+	/**
+	 * Initializes a File Order Analysis to be run by a BestPracticeEngine.
+	 */
+	public FileOrderAnalysis() {
+	}
 
 	public FileOrderAnalysis(List<TCPSession> tcpSessions) {
-		for (TCPSession tcpSession : tcpSessions) {
-			
-			/*Taking this variable inside TCPSession FOR loop because after analyzing the content, 
-			we should always reset lastRequestObj to null for a different TCP session.*/
-			HttpRequestResponseInfo lastRequestObj = null;
-			
-			for (HttpRequestResponseInfo rr : tcpSession
-					.getRequestResponseInfo()) {
-				org.jsoup.nodes.Document doc = null;
-				if (rr.getDirection() == Direction.RESPONSE) {
-					doc = rr.parseHtml(this);
-					if (doc != null) {
-						if (checkFileOrderAnalysisResults(doc)) {
-							results.add(new FileOrderEntry(rr, lastRequestObj));
-						}
+		new BestPracticeEngine(this).run(tcpSessions);
+	}
+
+	@Override
+	public void beginSession(TCPSession session) {
+		/*Resetting lastRequestObj for every TCP session because after analyzing the content, 
+		we should always reset lastRequestObj to null for a different TCP session.*/
+		lastRequestObj = null;
+	}
+
+	@Override
+	public void visitTransaction(TCPSession session, HttpRequestResponseInfo rr,
+			ParsedContent content) {
+		if (rr.getDirection() == Direction.RESPONSE) {
+			if (rr.getContentLength() != 0 && rr.getContentType() != null
+					&& rr.getContentType().equalsIgnoreCase("text/html")) {
+				org.jsoup.nodes.Document doc = content.getHtmlDocument();
+				if (doc != null) {
+					if (checkFileOrderAnalysisResults(doc)) {
+						results.add(new FileOrderEntry(rr, lastRequestObj));
 					}
-				} else if (rr.getDirection() == Direction.REQUEST) {
-					lastRequestObj = rr;
 				}
 			}
+		} else if (rr.getDirection() == Direction.REQUEST) {
+			lastRequestObj = rr;
 		}
 	}
 
@@ -1,23 +1,19 @@
 package com.att.aro.bp.flash;
 
-import java.io.IOException;
 import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
-import com.att.aro.model.ContentException;
+import com.att.aro.bp.BestPracticeCheck;
+import com.att.aro.bp.BestPracticeEngine;
+import com.att.aro.bp.ParsedContent;
 import com.att.aro.model.HttpRequestResponseInfo;
 import com.att.aro.model.HttpRequestResponseInfo.Direction;
 import com.att.aro.model.TCPSession;
 
-public class FlashAnalysis {
-	
-	private static final Logger LOGGER = Logger.getLogger(FlashAnalysis.class.getName());
+public class FlashAnalysis extends BestPracticeCheck {
 	
 	private HttpRequestResponseInfo firstFlash = null;
 	private int numberOfFlash = 0;
@@ -30,31 +26,31 @@ public class FlashAnalysis {
 	 * 
 	 */
 	public FlashAnalysis(List<TCPSession> tcpSessions) {
-		if (null != tcpSessions) {
-			analyzeTcpSessions(tcpSessions);
-		}
+		new BestPracticeEngine(this).run(tcpSessions);
+	}
+
+	/**
+	 * Initializes a Flash Analysis to be run by a BestPracticeEngine.
+	 */
+	public FlashAnalysis() {
 	}
 
-	private void analyzeTcpSessions(List<TCPSession> tcpSessions) {
-		// loop through TCP session
-		for (TCPSession tcpSession : tcpSessions) {
-			// loop through HTTP requests and responses
-			for (HttpRequestResponseInfo reqRessInfo : tcpSession.getRequestResponseInfo()) {
-				if (reqRessInfo.getDirection() == Direction.RESPONSE 
-					&& reqRessInfo.getContentType() != null 
-					&& reqRessInfo.getContentLength() > 0) {
-						if (reqRessInfo.getContentType().equalsIgnoreCase("application/x-shockwave-flash")
-							|| reqRessInfo.getContentType().equalsIgnoreCase("video/x-flv")) {
-						numberOfFlash++;
-						if (this.firstFlash == null) {
-							this.firstFlash = reqRessInfo;
-						}
-					} else {
-						String contentType = reqRessInfo.getContentType();
-						if (contentType.equalsIgnoreCase("text/css") || contentType.equalsIgnoreCase("text/html")) {
-							checkEmbeddedFlashInHTMLOrCSS(reqRessInfo);
-						}
-					}
+	@Override
+	public void visitTransaction(TCPSession session, HttpRequestResponseInfo reqRessInfo,
+			ParsedContent content) {
+		if (reqRessInfo.getDirection() == Direction.RESPONSE 
+			&& reqRessInfo.getContentType() != null 
+			&& reqRessInfo.getContentLength() > 0) {
+				if (reqRessInfo.getContentType().equalsIgnoreCase("application/x-shockwave-flash")
+					|| reqRessInfo.getContentType().equalsIgnoreCase("video/x-flv")) {
+				numberOfFlash++;
+				if (this.firstFlash == null) {
+					this.firstFlash = reqRessInfo;
+				}
+			} else {
+				String contentType = reqRessInfo.getContentType();
+				if (contentType.equalsIgnoreCase("text/css") || contentType.equalsIgnoreCase("text/html")) {
+					checkEmbeddedFlashInHTMLOrCSS(reqRessInfo, content.getHtmlDocument());
 				}
 			}
 		}
@@ -63,18 +59,8 @@ public class FlashAnalysis {
 	/**
 	 * Checks embedded Flash in HTML Or CSS content.
 	*/
-	private void checkEmbeddedFlashInHTMLOrCSS(HttpRequestResponseInfo reqRessInfo) {
-		String flashDownloaded = null;
-		try {
-			flashDownloaded = reqRessInfo.getContentString();
-		} catch (ContentException e) {
-			LOGGER.log(Level.FINE, "Failed getting content", e.getMessage());
-		} catch (IOException e) {
-			LOGGER.log(Level.WARNING, "Failed getting content", e.getMessage());
-		}
-		
-		if (flashDownloaded != null) {
-			Document doc = Jsoup.parse(flashDownloaded);
+	private void checkEmbeddedFlashInHTMLOrCSS(HttpRequestResponseInfo reqRessInfo, Document doc) {
+		if (doc != null) {
 			
 			//Parsing "embed" in HTML or CSS
 			Elements srcsEmbed = doc.select("embed");
@@ -0,0 +1,219 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.bp.imageSize;
+
+import java.awt.image.BufferedImage;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.imageio.ImageIO;
+
+import com.att.aro.model.ContentException;
+import com.att.aro.model.HttpRequestResponseInfo;
+
+/**
+ * Reads the width and height of a downloaded image from the header of its
+ * format, without decoding the image: the SOF segment of a JPEG, the IHDR
+ * chunk of a PNG, the logical screen descriptor of a GIF and the VP8, VP8L or
+ * VP8X chunk of a WebP image. Other formats are decoded with ImageIO.
+ */
+public final class ImageDimensionProber {
+
+	private static final Logger LOGGER = Logger.getLogger(ImageDimensionProber.class.getName());
+
+	private static final int PNG_SIGNATURE_HIGH = 0x89504E47;
+	private static final int PNG_SIGNATURE_LOW = 0x0D0A1A0A;
+	private static final int PNG_IHDR = 0x49484452;
+	private static final int GIF_SIGNATURE = 0x47494638; // "GIF8"
+	private static final int RIFF = 0x52494646;
+	private static final int WEBP = 0x57454250;
+	private static final int VP8 = 0x56503820; // "VP8 "
+	private static final int VP8L = 0x5650384C;
+	private static final int VP8X = 0x56503858;
+
+	private ImageDimensionProber() {
+	}
+
+	/**
+	 * Returns the width and height of the image downloaded by a response.
+	 *
+	 * @param rr
+	 *            The response.
+	 * @return The dimensions of the image, or null when there is no content
+	 *         or it is not a readable image.
+	 */
+	public static Image probe(HttpRequestResponseInfo rr) {
+		try {
+			InputStream input = rr.getContentStream();
+			if (input == null) {
+				return null;
+			}
+			try {
+				Image image = readHeader(new DataInputStream(input));
+				if (image != null) {
+					return image;
+				}
+			} catch (EOFException e) {
+				LOGGER.log(Level.FINE, "Image header is truncated");
+			} finally {
+				input.close();
+			}
+
+			// Unknown format, decode the whole image
+			input = rr.getContentStream();
+			try {
+				BufferedImage decoded = ImageIO.read(input);
+				return decoded != null ? new Image(decoded.getWidth(), decoded.getHeight()) : null;
+			} finally {
+				input.close();
+			}
+		} catch (ContentException e) {
+			// The content may be corrupted, nothing to do.
+			LOGGER.log(Level.FINE, "The content may be corrupted.");
+		} catch (IOException e) {
+			LOGGER.log(Level.FINE, "Unable to read image: {0}", e.getMessage());
+		}
+		return null;
+	}
+
+	/**
+	 * Reads the dimensions from the header of an image.
+	 *
+	 * @return The dimensions, or null when the format is not known.
+	 */
+	static Image readHeader(DataInputStream in) throws IOException {
+		int magic = in.readUnsignedShort();
+		if (magic == 0xFFD8) {
+			return readJpeg(in);
+		}
+		int signature = (magic << 16) | in.readUnsignedShort();
+		if (signature == PNG_SIGNATURE_HIGH) {
+			return readPng(in);
+		} else if (signature == GIF_SIGNATURE) {
+			return readGif(in);
+		} else if (signature == RIFF) {
+			return readWebp(in);
+		}
+		return null;
+	}
+
+	private static Image readPng(DataInputStream in) throws IOException {
+		if (in.readInt() != PNG_SIGNATURE_LOW) {
+			return null;
+		}
+		in.readInt(); // chunk length
+		if (in.readInt() != PNG_IHDR) {
+			return null;
+		}
+		return new Image(in.readInt(), in.readInt());
+	}
+
+	private static Image readGif(DataInputStream in) throws IOException {
+		skipFully(in, 2); // "7a" or "9a"
+		return new Image(readLittleEndianShort(in), readLittleEndianShort(in));
+	}
+
+	private static Image readWebp(DataInputStream in) throws IOException {
+		in.readInt(); // file size
+		if (in.readInt() != WEBP) {
+			return null;
+		}
+		int chunk = in.readInt();
+		in.readInt(); // chunk size
+		if (chunk == VP8) {
+
+			// Frame tag and start code of a key frame
+			skipFully(in, 6);
+			return new Image(readLittleEndianShort(in) & 0x3FFF, readLittleEndianShort(in) & 0x3FFF);
+		} else if (chunk == VP8L) {
+			if (in.readUnsignedByte() != 0x2F) {
+				return null;
+			}
+			int bits = Integer.reverseBytes(in.readInt());
+			return new Image((bits & 0x3FFF) + 1, ((bits >>> 14) & 0x3FFF) + 1);
+		} else if (chunk == VP8X) {
+			skipFully(in, 4); // flags
+			return new Image(readLittleEndian24(in) + 1, readLittleEndian24(in) + 1);
+		}
+		return null;
+	}
+
+	/**
+	 * Walks the JPEG segments up to the first start of frame segment.
+	 */
+	private static Image readJpeg(DataInputStream in) throws IOException {
+		while (true) {
+			int marker = in.readUnsignedByte();
+			if (marker != 0xFF) {
+				return null;
+			}
+
+			// Markers may be preceded by fill bytes
+			while (marker == 0xFF) {
+				marker = in.readUnsignedByte();
+			}
+			if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD8)) {
+
+				// Markers without a segment
+				continue;
+			}
+			if (marker == 0xD9 || marker == 0xDA) {
+
+				// End of image or start of scan before any frame
+				return null;
+			}
+			int length = in.readUnsignedShort();
+			if (marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8
+					&& marker != 0xCC) {
+				in.readUnsignedByte(); // sample precision
+				int height = in.readUnsignedShort();
+				int width = in.readUnsignedShort();
+				return new Image(width, height);
+			}
+			if (length < 2) {
+				return null;
+			}
+			skipFully(in, length - 2);
+		}
+	}
+
+	private static int readLittleEndianShort(DataInputStream in) throws IOException {
+		int low = in.readUnsignedByte();
+		return low | (in.readUnsignedByte() << 8);
+	}
+
+	private static int readLittleEndian24(DataInputStream in) throws IOException {
+		int low = readLittleEndianShort(in);
+		return low | (in.readUnsignedByte() << 16);
+	}
+
+	private static void skipFully(DataInputStream in, int n) throws IOException {
+		while (n > 0) {
+			int skipped = in.skipBytes(n);
+			if (skipped <= 0) {
+
+				// skipBytes may stop at the end of a part of the content
+				in.readUnsignedByte();
+				skipped = 1;
+			}
+			n -= skipped;
+		}
+	}
+}
@@ -15,20 +15,17 @@
  */
 package com.att.aro.bp.imageSize;
 
-import java.io.IOException;
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import javax.swing.ImageIcon;
-
-import com.att.aro.model.ContentException;
+import com.att.aro.bp.BestPracticeCheck;
+import com.att.aro.bp.BestPracticeEngine;
+import com.att.aro.bp.ParsedContent;
 import com.att.aro.model.HttpRequestResponseInfo;
 import com.att.aro.model.TCPSession;
 import com.att.aro.model.HttpRequestResponseInfo.Direction;
@@ -37,7 +34,7 @@ import com.att.aro.model.HttpRequestResponseInfo.Direction;
  * Represents image size analysis.
  * 
  */
-public class ImageSizeAnalysis {
+public class ImageSizeAnalysis extends BestPracticeCheck {
 
 	private static final Logger LOGGER = Logger.getLogger(ImageSizeAnalysis.class.getName());
 
@@ -46,7 +43,20 @@ public class ImageSizeAnalysis {
 	boolean m_ImageFoundInHtmlOrCss = false;
 	private int deviceScreenSizeRangeX = 0;
 	private int deviceScreenSizeRangeY = 0;
+	// contents of the requests and responses of the current session, in session order
+	private List<ParsedContent> sessionContents = new ArrayList<ParsedContent>();
 	
+	/**
+	 * Initializes an image size analysis to be run by a BestPracticeEngine.
+	 * 
+	 * @param deviceScreenSizeX
+	 * @param deviceScreenSizeY
+	 */
+	public ImageSizeAnalysis(int deviceScreenSizeX, int deviceScreenSizeY) {
+		deviceScreenSizeRangeX = (deviceScreenSizeX * 110) / 100;
+		deviceScreenSizeRangeY = (deviceScreenSizeY * 110) / 100;
+	}
+
 	/**
 	 * Performs image size analysis.
 	 * 
@@ -54,42 +64,58 @@ public class ImageSizeAnalysis {
 	 *            - TCP sessions to be analyzed.
 	 */
 	public ImageSizeAnalysis(List<TCPSession> tcpSessions, int deviceScreenSizeX, int deviceScreenSizeY) {
-		deviceScreenSizeRangeX = (deviceScreenSizeX * 110) / 100;
-		deviceScreenSizeRangeY = (deviceScreenSizeY * 110) / 100;
+		this(deviceScreenSizeX, deviceScreenSizeY);
+		new BestPracticeEngine(this).run(tcpSessions);
+	}
 
-		if (null != tcpSessions) {
-			// loop through TCP session
-			for (TCPSession tcpSession : tcpSessions) {
-				
-				// loop through HTTP requests and responses
-				for (HttpRequestResponseInfo reqRessInfo : tcpSession.getRequestResponseInfo()) {
-					if (reqRessInfo.getDirection() == Direction.RESPONSE 
-							&& reqRessInfo.getContentType() != null 
-							&& reqRessInfo.getContentType().contains("image/")) {
-						boolean isBigSize = false;
-						List<HtmlImage> htmlImageLst = checkThisImageInAllHTMLOrCSS(tcpSession, reqRessInfo);
-						if (m_ImageFoundInHtmlOrCss) {
-							m_ImageFoundInHtmlOrCss = false;
-							int size = htmlImageLst.size();
-							if (size > 0) {
-								for(int index=0; index<size; index++) {
-									HtmlImage htmlImage = htmlImageLst.get(index);
-									isBigSize = compareDownloadedImgSizeWithStdImageSize(reqRessInfo, htmlImage);									
-									if (isBigSize) {
-										break;
-									}
-								}
-							} else {
-								isBigSize = compareDownloadedImgSizeWithStdImageSize(reqRessInfo, null);
-							}
+	@Override
+	public void beginSession(TCPSession session) {
+		sessionContents.clear();
+	}
+
+	@Override
+	public void visitTransaction(TCPSession session, HttpRequestResponseInfo rr,
+			ParsedContent content) {
+		sessionContents.add(content);
+	}
+
+	/**
+	 * Images are looked up in every HTML or CSS file of their session, so the
+	 * session is analyzed once all its contents are known.
+	 */
+	@Override
+	public void endSession(TCPSession tcpSession) {
+		// loop through HTTP requests and responses
+		for (HttpRequestResponseInfo reqRessInfo : tcpSession.getRequestResponseInfo()) {
+			if (reqRessInfo.getDirection() == Direction.RESPONSE 
+					&& reqRessInfo.getContentType() != null 
+					&& reqRessInfo.getContentType().contains("image/")) {
+				boolean isBigSize = false;
+				List<HtmlImage> htmlImageLst = checkThisImageInAllHTMLOrCSS(tcpSession, reqRessInfo);
+				if (m_ImageFoundInHtmlOrCss) {
+					m_ImageFoundInHtmlOrCss = false;
+					Image downloadedImg = ImageDimensionProber.probe(reqRessInfo);
+					int size = htmlImageLst.size();
+					if (downloadedImg == null) {
+						LOGGER.fine("The image size could not be read.");
+					} else if (size > 0) {
+						for(int index=0; index<size; index++) {
+							HtmlImage htmlImage = htmlImageLst.get(index);
+							isBigSize = compareDownloadedImgSizeWithStdImageSize(downloadedImg, htmlImage);									
 							if (isBigSize) {
-								this.results.add(new ImageSizeEntry(reqRessInfo));
-							}	
+								break;
+							}
 						}
+					} else {
+						isBigSize = compareDownloadedImgSizeWithStdImageSize(downloadedImg, null);
 					}
+					if (isBigSize) {
+						this.results.add(new ImageSizeEntry(reqRessInfo));
+					}	
 				}
 			}
 		}
+		sessionContents.clear();
 	}
 
 	/**
@@ -108,19 +134,11 @@ public class ImageSizeAnalysis {
 					HttpRequestResponseInfo assocReqResp = reqRessInfo.getAssocReqResp();
 					if (assocReqResp != null) {
 						String imageToSearchFor = assocReqResp.getObjName();
-						String imageDownloaded = null;
-						try {
-							imageDownloaded = rr.getContentString();
-						} catch (ContentException e) {
-							// The content may be corrupted, nothing to do.
-							LOGGER.log(Level.FINE, "The content may be corrupted.");
-						} catch (IOException e) {
-							// IOException, something is wrong.
-							LOGGER.log(Level.WARNING, "IOException, something is wrong.");
-						}
+						ParsedContent content = sessionContents.get(noOfRRRecords - 1);
+						String imageDownloaded = content.getString();
 						if (imageToSearchFor != null && imageDownloaded != null) {
 							if (imageDownloaded.toLowerCase().contains(imageToSearchFor.toLowerCase())) {
-								Document doc = Jsoup.parse(imageDownloaded);
+								Document doc = content.getHtmlDocument();
 								Elements images = doc.select("[src]");
 								for (Element src : images) {
 									 if (src.tagName().equals("img")) {
@@ -173,31 +191,14 @@ public class ImageSizeAnalysis {
 	 * 
 	 * @return true if the height or width of downloaded image >= 110% of Standard Image Size else false
 	 */
-	private boolean compareDownloadedImgSizeWithStdImageSize(HttpRequestResponseInfo reqRessInfo, HtmlImage htmlImage) {
-		try {
-			if (reqRessInfo.getContent() != null) {
-				int widthRange = deviceScreenSizeRangeX;
-				int heightRange = deviceScreenSizeRangeY;
-				if (htmlImage != null) {
-					widthRange = (htmlImage.getWidth() * 110) / 100;
-					heightRange = (htmlImage.getHeight() * 110) / 100;			
-				}
-				
-				ImageIcon downloadedImg = new ImageIcon(reqRessInfo.getContent());
-				if (downloadedImg != null) {
-					if (downloadedImg.getIconWidth() >= widthRange || downloadedImg.getIconHeight() >= heightRange) {
-						return true;					
-					}
-				}
-			}
-		} catch (ContentException e) {
-			// The content may be corrupted, nothing to do.
-			LOGGER.log(Level.FINE, "The content may be corrupted.");
-		} catch (IOException e) {
-			// IOException, something is wrong.
-			LOGGER.log(Level.WARNING, "IOException, something is wrong.");
+	private boolean compareDownloadedImgSizeWithStdImageSize(Image downloadedImg, HtmlImage htmlImage) {
+		int widthRange = deviceScreenSizeRangeX;
+		int heightRange = deviceScreenSizeRangeY;
+		if (htmlImage != null) {
+			widthRange = (htmlImage.getWidth() * 110) / 100;
+			heightRange = (htmlImage.getHeight() * 110) / 100;			
 		}
-		return false;
+		return downloadedImg.getWidth() >= widthRange || downloadedImg.getHeight() >= heightRange;
 	}
 	
 	/**
@@ -11,6 +11,9 @@ import java.util.regex.Pattern;
 public class JsonCompressor {
 	
 	private static final Logger LOGGER = Logger.getLogger(JsonCompressor.class.getName());
+	private static final Pattern TOKENIZER = Pattern.compile("\"|(/\\*)|(\\*/)|(//)|\\n|\\r");
+	private static final Pattern WHITESPACE = Pattern.compile("(\\n|\\r|\\s)*");
+	private static final Pattern WHITESPACE_CHAR = Pattern.compile("\\n|\\r|\\s");
 	private BufferedReader in ;
 	public JsonCompressor(BufferedReader in){
 		this.in = in;
@@ -65,29 +68,26 @@ public class JsonCompressor {
 	 * @param  jsonString
 	 * */
 	private String minifyJson(String jsonString){
-		String tokenizer = "\"|(/\\*)|(\\*/)|(//)|\\n|\\r";
-		String tmp ,tmp2,leftString,rightString = "";
 		int from = 0;
-		StringBuffer sb = new StringBuffer();
-		Pattern pattern = Pattern.compile(tokenizer);
-		Matcher matcher = pattern.matcher(jsonString);
+		StringBuilder sb = new StringBuilder(jsonString.length());
+		Matcher matcher = TOKENIZER.matcher(jsonString);
 		if (!matcher.find()){
 			return jsonString;
 		}else{
 			matcher.reset();
 		}
 		while (matcher.find()) {
-			leftString = jsonString.substring(0, matcher.start());
-			rightString = jsonString.substring(matcher.end(), jsonString.length());
-			tmp = jsonString.substring(matcher.start(), matcher.end());
-			tmp2 = leftString.substring(from).replaceAll("(\\n|\\r|\\s)*", "");
-			sb.append(tmp2);
+
+			// Only the text since the previous token is copied, so that the
+			// whole string is not copied for each token
+			String tmp = matcher.group();
+			sb.append(WHITESPACE.matcher(jsonString.substring(from, matcher.start())).replaceAll(""));
 			from = matcher.end();
-			if (!tmp.substring(0, 1).matches("\\n|\\r|\\s")) {
+			if (!WHITESPACE_CHAR.matcher(tmp.substring(0, 1)).matches()) {
 				sb.append(tmp);
 			}
 		}
-		sb.append(rightString);
+		sb.append(jsonString, from, jsonString.length());
 		return sb.toString();		
 		
 	}
@@ -15,59 +15,62 @@
  */
 package com.att.aro.bp.minification;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.DataInputStream;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.io.Reader;
-import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import org.mozilla.javascript.ErrorReporter;
-import org.mozilla.javascript.EvaluatorException;
-
-import com.att.aro.model.ContentException;
+import com.att.aro.bp.BestPracticeCheck;
+import com.att.aro.bp.BestPracticeEngine;
+import com.att.aro.bp.ParsedContent;
 import com.att.aro.model.HttpRequestResponseInfo;
 import com.att.aro.model.HttpRequestResponseInfo.Direction;
 import com.att.aro.model.TCPSession;
-import com.att.aro.util.Util;
-import com.googlecode.htmlcompressor.compressor.HtmlCompressor;
-import com.yahoo.platform.yui.compressor.JavaScriptCompressor;
-import com.yahoo.platform.yui.compressor.CssCompressor;
 
 /**
- * Represents minification analysis.
+ * Represents minification analysis. The content of the responses is minified
+ * in memory by a Minifier, on a thread per processor, and the savings are
+ * evaluated in the order of the responses once all the sessions are visited.
  * 
  */
-public class MinificationAnalysis {
+public class MinificationAnalysis extends BestPracticeCheck {
 
 	private static final Logger LOGGER = Logger
 			.getLogger(MinificationAnalysis.class.getName());
 
-	private static final String ORIG_FILE_NAME = "minifyOrig.aro";
-	private static final String MINI_FILE_NAME = "minify.aro";
 	private static final int MIN_FILE_COMPRESSION = 5;
 	private static final float HUNDRED_PERCENT = 100F;
-	private static final int NO_LINE_BREAK = -1;
-
-	private static final boolean IS_JAVA_SCRIPT = true;
-	private static final boolean IS_CSS = false;
-	private static final boolean IS_JSON = true;
 
-	private File tmpOriginalFile;
-	private File tmpMinifiedFile;
-	private HtmlCompressor htmlCompressor;
+	private Minifier minifier;
+	private ExecutorService executor;
+	private List<PendingMinification> pending = new ArrayList<PendingMinification>();
 	private List<MinificationEntry> analysisResults = new ArrayList<MinificationEntry>();
 	private long totalSavingsInKb = 0L;
+	private HttpRequestResponseInfo lastRequestObj;
+
+	/**
+	 * Initializes a minification analysis to be run by a BestPracticeEngine.
+	 */
+	public MinificationAnalysis() {
+		this(new Minifier());
+	}
+
+	/**
+	 * Initializes a minification analysis with the specified minifier, to be
+	 * run by a BestPracticeEngine.
+	 * 
+	 * @param minifier
+	 *            The minifier, that may be shared between analyses.
+	 */
+	public MinificationAnalysis(Minifier minifier) {
+		this.minifier = minifier;
+	}
 
 	/**
 	 * Performs minification analysis.
@@ -77,237 +80,132 @@ public class MinificationAnalysis {
 	 * 
 	 */
 	public MinificationAnalysis(List<TCPSession> tcpSessions) {
-		if (null != tcpSessions) {
-			createTmpFileObjects();
-			initHtmlCompressor();
-			analyzeTcpSessions(tcpSessions);
-			deleteTempFiles();
-		}
+		this();
+		new BestPracticeEngine(this).run(tcpSessions);
 	}
 
 	public long getTotalSavingsInKb() {
 		return totalSavingsInKb;
 	}
 
-	private void createTmpFileObjects() {
-		tmpMinifiedFile = new File(Util.TEMP_DIR, MINI_FILE_NAME);
-		tmpOriginalFile = new File(Util.TEMP_DIR, ORIG_FILE_NAME);
+	@Override
+	public void beginSession(TCPSession session) {
+		/*Resetting lastRequestObj for every TCP session because after analyzing the content, 
+		we should always reset lastRequestObj to null for a different TCP session.*/
+		lastRequestObj = null;
 	}
 
-	private void initHtmlCompressor() {
-		htmlCompressor = new HtmlCompressor();
-		htmlCompressor.setRemoveIntertagSpaces(true); // removes iter-tag
-														// whitespace characters
-		htmlCompressor.setRemoveQuotes(true); // removes unnecessary tag
-												// attribute quotes
-		htmlCompressor.setSimpleDoctype(true); // simplify existing doctype
-		htmlCompressor.setRemoveScriptAttributes(true); // remove optional
-														// attributes from
-														// script tags
-		htmlCompressor.setRemoveStyleAttributes(true); // remove optional
-														// attributes from style
-														// tags
-		htmlCompressor.setRemoveLinkAttributes(true); // remove optional
-														// attributes from link
-														// tags
-		htmlCompressor.setRemoveFormAttributes(true); // remove optional
-														// attributes from form
-														// tags
-		htmlCompressor.setRemoveInputAttributes(true); // remove optional
-														// attributes from input
-														// tags
-		htmlCompressor.setSimpleBooleanAttributes(true); // remove values from
-															// boolean tag
-															// attributes
-		htmlCompressor.setRemoveJavaScriptProtocol(true); // remove
-															// "javascript:"
-															// from inline event
-															// handlers
-		htmlCompressor.setRemoveHttpProtocol(true); // replace "http://" with
-													// "//" inside tag
-													// attributes
-		htmlCompressor.setRemoveHttpsProtocol(true); // replace "https://" with
-														// "//" inside tag
-														// attributes
-		htmlCompressor.setPreserveLineBreaks(false); // preserves original line
-														// breaks
-		htmlCompressor.setRemoveSurroundingSpaces("br,p"); // remove spaces
-															// around provided
-															// tags
-		htmlCompressor.setCompressCss(true); // compress inline css
-		htmlCompressor.setCompressJavaScript(true); // compress inline
-													// javascript
-		htmlCompressor.setYuiCssLineBreak(NO_LINE_BREAK); // --line-break param
-															// for Yahoo YUI
-															// Compressor
-		htmlCompressor.setYuiJsDisableOptimizations(false); // --disable-optimizations
-															// param for Yahoo
-															// YUI Compressor
-		htmlCompressor.setYuiJsLineBreak(NO_LINE_BREAK); // --line-break param
-															// for Yahoo YUI
-															// Compressor
-		htmlCompressor.setYuiJsNoMunge(true); // --nomunge param for Yahoo YUI
-												// Compressor
-		htmlCompressor.setYuiJsPreserveAllSemiColons(true); // --preserve-semi
-															// param for Yahoo
-															// YUI Compressor
-	}
+	@Override
+	public void visitTransaction(TCPSession session, HttpRequestResponseInfo rr,
+			ParsedContent content) {
+		String contentType = rr.getContentType();
+		if ((rr.getDirection() == Direction.RESPONSE)
+				&& (rr.getContentLength() != 0)
+				&& (contentType != null)) {
 
-	private void analyzeTcpSessions(List<TCPSession> tcpSessions) {
-		String contentType;
-		// loop through TCP session
-		for (TCPSession tcpSession : tcpSessions) {
-			
-			/*Taking this variable inside TCPSession FOR loop because after analyzing the content, 
-			we should always reset lastRequestObj to null for a different TCP session.*/
-			HttpRequestResponseInfo lastRequestObj = null;
-			
-			// loop through HTTP requests and responses
-			for (HttpRequestResponseInfo rr : tcpSession
-					.getRequestResponseInfo()) {
-				contentType = rr.getContentType();
-				if ((rr.getDirection() == Direction.RESPONSE)
-						&& (rr.getContentLength() != 0)
-						&& (contentType != null)) {
+			try {
+				analyzeContent(rr, lastRequestObj, contentType, content);
+			} catch (Exception e) {
+				LOGGER.log(
+						Level.FINE,
+						"MinificationAnalysis - Unexpected Exception {0}",
+						e.getMessage());
+			}
+		} else if (rr.getDirection() == Direction.REQUEST) {
+			lastRequestObj = rr;
+		}
+	}
 
-					try {
-						analyzeContent(rr, lastRequestObj, contentType);
-					} catch (Exception e) {
-						LOGGER.log(
-								Level.FINE,
-								"MinificationAnalysis - Unexpected Exception {0}",
-								e.getMessage());
+	@Override
+	public void finish() {
+		try {
+			for (PendingMinification p : pending) {
+				try {
+					Minifier.Result result = p.result.get();
+					if (result != null) {
+						evaluateMinificationSavings(p.rr, p.lastRequestObj,
+								getMinificationFileSizeSaving(result.getOriginalSize(),
+										result.getMinifiedSize()),
+								result.getOriginalSize() - result.getMinifiedSize());
 					}
-				} else if (rr.getDirection() == Direction.REQUEST) {
-					lastRequestObj = rr;
+				} catch (ExecutionException e) {
+					LOGGER.log(
+							Level.FINE,
+							"MinificationAnalysis - Unexpected Exception {0}",
+							e.getCause().getMessage());
 				}
 			}
+		} catch (InterruptedException e) {
+			LOGGER.log(Level.FINE, "MinificationAnalysis interrupted");
+			Thread.currentThread().interrupt();
+		} finally {
+			pending.clear();
+			if (executor != null) {
+				executor.shutdownNow();
+				executor = null;
+			}
+			minifier.saveCache();
 		}
 	}
 
-	private void analyzeContent(HttpRequestResponseInfo rr, HttpRequestResponseInfo lastRequestObj, String contentType)
-			throws Exception {
+	private void analyzeContent(HttpRequestResponseInfo rr, HttpRequestResponseInfo lastRequestObj, String contentType,
+			ParsedContent content) {
 
 		if (HttpRequestResponseInfo.isJavaScript(contentType)) {
-			analyzeJavaScript(rr, lastRequestObj);
+			submit(rr, lastRequestObj, Minifier.Type.JAVASCRIPT);
 
 		} else if (HttpRequestResponseInfo.isCss(contentType)) {
-			analyzeCss(rr, lastRequestObj);
+			submit(rr, lastRequestObj, Minifier.Type.CSS);
 
 		} else if (HttpRequestResponseInfo.isHtml(contentType)) {
-			analyzeHtml(rr, lastRequestObj);
+
+			// The parsed content is shared with the other checks of this thread
+			String htmlIn = content.getString();
+			if (htmlIn != null) {
+				submitHtml(rr, lastRequestObj, htmlIn);
+			}
 		}else if ( HttpRequestResponseInfo.isJSON(contentType)){
-			analyzeJSON(rr, lastRequestObj);
+			submit(rr, lastRequestObj, Minifier.Type.JSON);
 		}
 	}
 
-	private void analyzeJSON(HttpRequestResponseInfo rr, HttpRequestResponseInfo lastRequestObj) throws IOException {
-		savePayloadToTmpFile(rr);
-		runJsonMinify();
-		evaluateMinificationSavings(rr, lastRequestObj, getMinificationFileSizeSaving(),tmpOriginalFile.length()-tmpMinifiedFile.length());
-	}
-
-	private void analyzeJavaScript(HttpRequestResponseInfo rr, HttpRequestResponseInfo lastRequestObj) throws Exception {
-		savePayloadToTmpFile(rr);
-		runJavaScriptMinify(IS_JAVA_SCRIPT);
-		evaluateMinificationSavings(rr, lastRequestObj, getMinificationFileSizeSaving(),tmpOriginalFile.length()-tmpMinifiedFile.length());
-	}
-
-	private void analyzeCss(HttpRequestResponseInfo rr, HttpRequestResponseInfo lastRequestObj) throws Exception {
-		savePayloadToTmpFile(rr);
-		runJavaScriptMinify(IS_CSS);
-		evaluateMinificationSavings(rr, lastRequestObj, getMinificationFileSizeSaving(),tmpOriginalFile.length()-tmpMinifiedFile.length());
-	}
-
-	private void analyzeHtml(HttpRequestResponseInfo rr, HttpRequestResponseInfo lastRequestObj) throws IOException, ContentException {
-		htmlMinificationResult result = runHtmlMinify(rr); 
-		evaluateMinificationSavings(rr, lastRequestObj, getMinificationFileSizeSaving(result.originalSize, result.minifiedSize),new Long(result.originalSize-result.minifiedSize));
-	}
-
-	private void savePayloadToTmpFile(HttpRequestResponseInfo rr)
-			throws IOException {
-		rr.saveContentToFile(tmpOriginalFile);
-	}
-	private void runJsonMinify() throws IOException{
-		FileInputStream fstream = new FileInputStream(tmpOriginalFile);
-		// Get the object of DataInputStream
-		DataInputStream in = new DataInputStream(fstream);
-		BufferedReader br = new BufferedReader(new InputStreamReader(in));
-		JsonCompressor jsonCompressor = new JsonCompressor(br);
-		BufferedWriter out = new BufferedWriter(new FileWriter(tmpMinifiedFile));
-		jsonCompressor.compress(out);
-		
-		
-		
+	private void submit(final HttpRequestResponseInfo rr, HttpRequestResponseInfo lastRequestObj,
+			final Minifier.Type type) {
+		pending.add(new PendingMinification(rr, lastRequestObj, getExecutor().submit(
+				new Callable<Minifier.Result>() {
+					@Override
+					public Minifier.Result call() throws Exception {
+						byte[] content = rr.getContent();
+						return content != null ? minifier.minify(type, content,
+								rr.getContentDigest()) : null;
+					}
+				})));
 	}
 
-	private void runJavaScriptMinify(boolean isJavaScript) throws IOException {
-		Reader in = null;
-		Writer out = null;
-		JsMinificationOptions o = new JsMinificationOptions();
-		try {
-			in = new InputStreamReader(new FileInputStream(tmpOriginalFile),
-					o.charset);
-			out = new OutputStreamWriter(new FileOutputStream(tmpMinifiedFile),
-					o.charset);
-			if (isJavaScript) {
-				JavaScriptCompressor compressor = new JavaScriptCompressor(in,
-						new YuiCompressorErrorReporter());
-				compressor.compress(out, o.lineBreakPos, o.munge, o.verbose,
-						o.preserveAllSemiColons, o.disableOptimizations);
-
-			} else {
-				CssCompressor compressor = new CssCompressor(in);
-				compressor.compress(out, o.lineBreakPos);
-			}
-		} catch (IOException e) {
-			LOGGER.log(Level.FINE,
-					"Error from JavaScript minifiaction: {0}", e.getMessage());
-			throw (e);
-		} catch (EvaluatorException e) {
-			LOGGER.log(Level.FINE,
-					"Error from JavaScript minifiaction: {0}", e.getMessage());
-			throw (e);
-		} finally {
-			try {
-				if (in != null) {
-					in.close();
-				}
-				if (out != null) {
-					out.flush();
-					out.close();
-				}
-			} catch (IOException e) {
-				LOGGER.log(Level.FINE,
-						"Error from JavaScript minifiaction: {0}",
-						e.getMessage());
-				throw (e);
-			}
-		}
+	private void submitHtml(final HttpRequestResponseInfo rr, HttpRequestResponseInfo lastRequestObj,
+			final String htmlIn) {
+		pending.add(new PendingMinification(rr, lastRequestObj, getExecutor().submit(
+				new Callable<Minifier.Result>() {
+					@Override
+					public Minifier.Result call() {
+						return minifier.minifyHtml(htmlIn, rr.getContentDigest());
+					}
+				})));
 	}
 
-	private htmlMinificationResult runHtmlMinify(HttpRequestResponseInfo rr)
-			throws ContentException, IOException {
-
-		htmlMinificationResult result = new htmlMinificationResult(0, 0);
-		String htmlIn;
-		try {
-			htmlIn = rr.getContentString();
-			if (htmlIn != null) {
-				String compressedHtml = htmlCompressor.compress(htmlIn);
-				result.originalSize = htmlIn.length();
-				result.minifiedSize = compressedHtml.length();
-			}
-		} catch (ContentException e) {
-			LOGGER.log(Level.FINE, "Error from runHtmlMinify: {0}",
-					e.getMessage());
-			throw (e);
-		} catch (IOException e) {
-			LOGGER.log(Level.FINE, "Error from runHtmlMinify: {0}",
-					e.getMessage());
-			throw (e);
+	private ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+					new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable r) {
+							Thread thread = new Thread(r, "Minification");
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
 		}
-		return result;
+		return executor;
 	}
 
 	private void evaluateMinificationSavings(HttpRequestResponseInfo rr, HttpRequestResponseInfo lastRequestObj, int saving,Long savingzinKb) {
@@ -320,12 +218,6 @@ public class MinificationAnalysis {
 		}
 	}
 
-	private int getMinificationFileSizeSaving() {
-		long origSize = tmpOriginalFile.length();
-		long miniSize = tmpMinifiedFile.length();
-		return getMinificationFileSizeSaving(origSize, miniSize);
-	}
-
 	private int getMinificationFileSizeSaving(long origSize, long miniSize) {
 		totalSavingsInKb+=(origSize-miniSize);
 		float saving = HUNDRED_PERCENT - (miniSize * HUNDRED_PERCENT / origSize);
@@ -333,16 +225,6 @@ public class MinificationAnalysis {
 		return Math.round(saving);
 	}
 
-	private void deleteTempFiles() {
-
-		if (tmpMinifiedFile.exists() && !tmpMinifiedFile.delete()) {
-			LOGGER.log(Level.SEVERE, "Cannot delete minified tmp file.");
-		}
-		if (tmpOriginalFile.exists() && !tmpOriginalFile.delete()) {
-			LOGGER.log(Level.SEVERE, "Cannot delete original tmp file.");
-		}
-	}
-
 	/**
 	 * Indicates whether the test has passed or failed.
 	 * 
@@ -370,55 +252,17 @@ public class MinificationAnalysis {
 		return this.analysisResults;
 	}
 
-	private static class htmlMinificationResult {
-		public htmlMinificationResult(int originalSize, int minifiedSize) {
-			this.originalSize = originalSize;
-			this.minifiedSize = minifiedSize;
-		}
-
-		int originalSize;
-		int minifiedSize;
-	}
-
-	private static class JsMinificationOptions {
-		String charset = "UTF-8";
-		// do not split long lines
-		int lineBreakPos = NO_LINE_BREAK;
-		boolean munge = false;
-		boolean verbose = false;
-		boolean preserveAllSemiColons = false;
-		boolean disableOptimizations = false;
-	}
+	private static class PendingMinification {
+		private final HttpRequestResponseInfo rr;
+		private final HttpRequestResponseInfo lastRequestObj;
+		private final Future<Minifier.Result> result;
 
-	private static class YuiCompressorErrorReporter implements ErrorReporter {
-
-		@Override
-		public void warning(String message, String sourceName, int line,
-				String lineSource, int lineOffset) {
-			if (line < 0) {
-				LOGGER.log(Level.FINE, message);
-			} else {
-				LOGGER.log(Level.FINE, line + ':' + lineOffset + ':' + message);
-			}
-		}
-
-		@Override
-		public void error(String message, String sourceName, int line,
-				String lineSource, int lineOffset) {
-			if (line < 0) {
-				LOGGER.log(Level.FINE, message);
-			} else {
-				LOGGER.log(Level.FINE, line + ':' + lineOffset + ':' + message);
-			}
-		}
-
-		@Override
-		public EvaluatorException runtimeError(String message,
-				String sourceName, int line, String lineSource, int lineOffset) {
-			error(message, sourceName, line, lineSource, lineOffset);
-			return new EvaluatorException(message);
+		PendingMinification(HttpRequestResponseInfo rr,
+				HttpRequestResponseInfo lastRequestObj, Future<Minifier.Result> result) {
+			this.rr = rr;
+			this.lastRequestObj = lastRequestObj;
+			this.result = result;
 		}
-
 	}
 
 }
@@ -0,0 +1,441 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.att.aro.bp.minification;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.mozilla.javascript.ErrorReporter;
+import org.mozilla.javascript.EvaluatorException;
+
+import com.att.aro.model.ContentDigest;
+import com.googlecode.htmlcompressor.compressor.HtmlCompressor;
+import com.yahoo.platform.yui.compressor.CssCompressor;
+import com.yahoo.platform.yui.compressor.JavaScriptCompressor;
+
+/**
+ * Minifies JavaScript, CSS, JSON and HTML content in memory and measures the
+ * result. The minified content itself is never kept: it is written to a writer
+ * that only counts its UTF-8 bytes.
+ * <p>
+ * Results are memoized by content digest, so that content downloaded several
+ * times, such as a JavaScript library, is minified once. The memoized results
+ * are also saved to a cache file in the temporary directory and loaded by the
+ * next analysis, so that common content is minified once per machine.
+ * <p>
+ * The minify methods may be called from several threads at the same time.
+ */
+public class Minifier {
+
+	private static final Logger LOGGER = Logger.getLogger(Minifier.class.getName());
+
+	private static final String CACHE_FILE_NAME = "minifyCache.aro";
+	private static final int CACHE_FILE_VERSION = 1;
+	private static final int MAX_CACHE_FILE_ENTRIES = 4096;
+	private static final String CHARSET = "UTF-8";
+	private static final int NO_LINE_BREAK = -1;
+
+	/**
+	 * The kinds of content that can be minified.
+	 */
+	public enum Type {
+		JAVASCRIPT, CSS, JSON, HTML
+	}
+
+	/**
+	 * The sizes of content before and after minification. JavaScript, CSS and
+	 * JSON sizes are in bytes, HTML sizes are in characters.
+	 */
+	public static final class Result {
+		private final long originalSize;
+		private final long minifiedSize;
+
+		Result(long originalSize, long minifiedSize) {
+			this.originalSize = originalSize;
+			this.minifiedSize = minifiedSize;
+		}
+
+		/**
+		 * Returns the size of the content.
+		 *
+		 * @return The original size.
+		 */
+		public long getOriginalSize() {
+			return originalSize;
+		}
+
+		/**
+		 * Returns the size of the minified content.
+		 *
+		 * @return The minified size.
+		 */
+		public long getMinifiedSize() {
+			return minifiedSize;
+		}
+	}
+
+	private final File cacheFile;
+	private final Map<String, Result> cache = new ConcurrentHashMap<String, Result>();
+	private int loadedEntries;
+
+	private final ThreadLocal<HtmlCompressor> htmlCompressor = new ThreadLocal<HtmlCompressor>() {
+		@Override
+		protected HtmlCompressor initialValue() {
+			return createHtmlCompressor();
+		}
+	};
+
+	private final ThreadLocal<Utf8CountingWriter> counter = new ThreadLocal<Utf8CountingWriter>() {
+		@Override
+		protected Utf8CountingWriter initialValue() {
+			return new Utf8CountingWriter();
+		}
+	};
+
+	/**
+	 * Initializes an instance of the Minifier class with the results saved in
+	 * the cache file of the temporary directory.
+	 */
+	public Minifier() {
+		this(new File(System.getProperty("java.io.tmpdir"), CACHE_FILE_NAME));
+	}
+
+	/**
+	 * Initializes an instance of the Minifier class with the results saved in
+	 * the specified cache file.
+	 *
+	 * @param cacheFile
+	 *            The cache file, or null for results that are not saved.
+	 */
+	public Minifier(File cacheFile) {
+		this.cacheFile = cacheFile;
+		loadCache();
+	}
+
+	/**
+	 * Minifies JavaScript, CSS or JSON content.
+	 *
+	 * @param type
+	 *            The type of the content, not HTML.
+	 * @param content
+	 *            The decoded content.
+	 * @param digest
+	 *            The digest of the content, or null if it is not memoized.
+	 * @return The sizes of the content.
+	 * @throws IOException
+	 * @throws EvaluatorException
+	 *             when the JavaScript cannot be parsed.
+	 */
+	public Result minify(Type type, byte[] content, ContentDigest digest) throws IOException {
+		String key = getKey(type, digest);
+		Result result = key != null ? cache.get(key) : null;
+		if (result == null) {
+			Utf8CountingWriter out = counter.get();
+			out.reset();
+			Reader in = new InputStreamReader(new ByteArrayInputStream(content), CHARSET);
+			switch (type) {
+			case JAVASCRIPT:
+				JavaScriptCompressor jsCompressor = new JavaScriptCompressor(in,
+						new YuiCompressorErrorReporter());
+				jsCompressor.compress(out, NO_LINE_BREAK, false, false, false, false);
+				break;
+			case CSS:
+				new CssCompressor(in).compress(out, NO_LINE_BREAK);
+				break;
+			case JSON:
+				new JsonCompressor(new BufferedReader(in)).compress(new BufferedWriter(out));
+				break;
+			default:
+				throw new IllegalArgumentException("Not a byte content type: " + type);
+			}
+			result = new Result(content.length, out.getCount());
+			if (key != null) {
+				cache.put(key, result);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Minifies HTML content.
+	 *
+	 * @param html
+	 *            The decoded content.
+	 * @param digest
+	 *            The digest of the content, or null if it is not memoized.
+	 * @return The sizes of the content, in characters.
+	 */
+	public Result minifyHtml(String html, ContentDigest digest) {
+		String key = getKey(Type.HTML, digest);
+		Result result = key != null ? cache.get(key) : null;
+		if (result == null) {
+			String compressedHtml = htmlCompressor.get().compress(html);
+			result = new Result(html.length(), compressedHtml.length());
+			if (key != null) {
+				cache.put(key, result);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Saves the memoized results to the cache file, when there are new ones.
+	 */
+	public void saveCache() {
+		if (cacheFile == null || cache.size() == loadedEntries) {
+			return;
+		}
+		// Written to a temporary file first, other analyses may be loading or
+		// saving the cache file at the same time
+		File tempFile = null;
+		DataOutputStream out = null;
+		try {
+			tempFile = File.createTempFile(CACHE_FILE_NAME, null, cacheFile.getAbsoluteFile().getParentFile());
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+			int count = Math.min(cache.size(), MAX_CACHE_FILE_ENTRIES);
+			out.writeInt(CACHE_FILE_VERSION);
+			out.writeInt(count);
+			for (Map.Entry<String, Result> entry : cache.entrySet()) {
+				if (count-- == 0) {
+					break;
+				}
+				out.writeUTF(entry.getKey());
+				out.writeLong(entry.getValue().originalSize);
+				out.writeLong(entry.getValue().minifiedSize);
+			}
+			out.close();
+			out = null;
+			if (!tempFile.renameTo(cacheFile)) {
+
+				// The target cannot be replaced on all platforms
+				cacheFile.delete();
+				if (!tempFile.renameTo(cacheFile)) {
+					LOGGER.log(Level.FINE, "Unable to save minification cache to {0}", cacheFile);
+				}
+			}
+		} catch (IOException e) {
+			LOGGER.log(Level.FINE, "Unable to save minification cache: {0}", e.getMessage());
+		} finally {
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException e) {
+					LOGGER.log(Level.FINE, "Unable to save minification cache: {0}", e.getMessage());
+				}
+			}
+			if (tempFile != null && tempFile.exists()) {
+				tempFile.delete();
+			}
+		}
+	}
+
+	private void loadCache() {
+		if (cacheFile == null || !cacheFile.isFile()) {
+			return;
+		}
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+			if (in.readInt() == CACHE_FILE_VERSION) {
+				for (int count = in.readInt(); count > 0; --count) {
+					String key = in.readUTF();
+					cache.put(key, new Result(in.readLong(), in.readLong()));
+				}
+			}
+		} catch (IOException e) {
+			LOGGER.log(Level.FINE, "Unable to load minification cache: {0}", e.getMessage());
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+					LOGGER.log(Level.FINE, "Unable to load minification cache: {0}", e.getMessage());
+				}
+			}
+		}
+		loadedEntries = cache.size();
+	}
+
+	private static String getKey(Type type, ContentDigest digest) {
+		return digest != null ? type + ":" + digest + ":" + digest.getLength() : null;
+	}
+
+	private static HtmlCompressor createHtmlCompressor() {
+		HtmlCompressor htmlCompressor = new HtmlCompressor();
+		htmlCompressor.setRemoveIntertagSpaces(true); // removes iter-tag
+														// whitespace characters
+		htmlCompressor.setRemoveQuotes(true); // removes unnecessary tag
+												// attribute quotes
+		htmlCompressor.setSimpleDoctype(true); // simplify existing doctype
+		htmlCompressor.setRemoveScriptAttributes(true); // remove optional
+														// attributes from
+														// script tags
+		htmlCompressor.setRemoveStyleAttributes(true); // remove optional
+														// attributes from style
+														// tags
+		htmlCompressor.setRemoveLinkAttributes(true); // remove optional
+														// attributes from link
+														// tags
+		htmlCompressor.setRemoveFormAttributes(true); // remove optional
+														// attributes from form
+														// tags
+		htmlCompressor.setRemoveInputAttributes(true); // remove optional
+														// attributes from input
+														// tags
+		htmlCompressor.setSimpleBooleanAttributes(true); // remove values from
+															// boolean tag
+															// attributes
+		htmlCompressor.setRemoveJavaScriptProtocol(true); // remove
+															// "javascript:"
+															// from inline event
+															// handlers
+		htmlCompressor.setRemoveHttpProtocol(true); // replace "http://" with
+													// "//" inside tag
+													// attributes
+		htmlCompressor.setRemoveHttpsProtocol(true); // replace "https://" with
+														// "//" inside tag
+														// attributes
+		htmlCompressor.setPreserveLineBreaks(false); // preserves original line
+														// breaks
+		htmlCompressor.setRemoveSurroundingSpaces("br,p"); // remove spaces
+															// around provided
+															// tags
+		htmlCompressor.setCompressCss(true); // compress inline css
+		htmlCompressor.setCompressJavaScript(true); // compress inline
+													// javascript
+		htmlCompressor.setYuiCssLineBreak(NO_LINE_BREAK); // --line-break param
+															// for Yahoo YUI
+															// Compressor
+		htmlCompressor.setYuiJsDisableOptimizations(false); // --disable-optimizations
+															// param for Yahoo
+															// YUI Compressor
+		htmlCompressor.setYuiJsLineBreak(NO_LINE_BREAK); // --line-break param
+															// for Yahoo YUI
+															// Compressor
+		htmlCompressor.setYuiJsNoMunge(true); // --nomunge param for Yahoo YUI
+												// Compressor
+		htmlCompressor.setYuiJsPreserveAllSemiColons(true); // --preserve-semi
+															// param for Yahoo
+															// YUI Compressor
+		return htmlCompressor;
+	}
+
+	/**
+	 * Counts the bytes of the characters written to it once encoded in UTF-8,
+	 * without keeping them. Closing the writer does nothing, so that one
+	 * instance is reused for every content of a thread.
+	 */
+	private static class Utf8CountingWriter extends Writer {
+		private long count;
+
+		void reset() {
+			count = 0;
+		}
+
+		long getCount() {
+			return count;
+		}
+
+		@Override
+		public void write(int c) {
+			count += utf8Length((char) c);
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) {
+			for (int i = off; i < off + len; ++i) {
+				count += utf8Length(cbuf[i]);
+			}
+		}
+
+		@Override
+		public void write(String str, int off, int len) {
+			for (int i = off; i < off + len; ++i) {
+				count += utf8Length(str.charAt(i));
+			}
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+
+		/**
+		 * Returns the UTF-8 length of a character; each half of a surrogate
+		 * pair counts for half of the four bytes of the pair.
+		 */
+		private static int utf8Length(char c) {
+			if (c < 0x80) {
+				return 1;
+			} else if (c < 0x800
+					|| (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE)) {
+				return 2;
+			} else {
+				return 3;
+			}
+		}
+	}
+
+	private static class YuiCompressorErrorReporter implements ErrorReporter {
+
+		@Override
+		public void warning(String message, String sourceName, int line,
+				String lineSource, int lineOffset) {
+			if (line < 0) {
+				LOGGER.log(Level.FINE, message);
+			} else {
+				LOGGER.log(Level.FINE, line + ":" + lineOffset + ":" + message);
+			}
+		}
+
+		@Override
+		public void error(String message, String sourceName, int line,
+				String lineSource, int lineOffset) {
+			if (line < 0) {
+				LOGGER.log(Level.FINE, message);
+			} else {
+				LOGGER.log(Level.FINE, line + ":" + lineOffset + ":" + message);
+			}
+		}
+
+		@Override
+		public EvaluatorException runtimeError(String message,
+				String sourceName, int line, String lineSource, int lineOffset) {
+			error(message, sourceName, line, lineSource, lineOffset);
+			return new EvaluatorException(message);
+		}
+
+	}
+}
@@ -15,7 +15,6 @@
  */
 package com.att.aro.bp.scripts;
 
-import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
@@ -23,12 +22,13 @@ import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
-import com.att.aro.model.ContentException;
+import com.att.aro.bp.BestPracticeCheck;
+import com.att.aro.bp.BestPracticeEngine;
+import com.att.aro.bp.ParsedContent;
 import com.att.aro.model.HttpRequestResponseInfo;
 import com.att.aro.model.HttpRequestResponseInfo.Direction;
 import com.att.aro.model.TCPSession;
@@ -37,7 +37,7 @@ import com.att.aro.model.TCPSession;
  * Represents 3rd party scripts analysis.
  * 
  */
-public class ScriptsAnalysis {
+public class ScriptsAnalysis extends BestPracticeCheck {
 
 	private static final Logger LOGGER = Logger.getLogger(ScriptsAnalysis.class.getName());
 
@@ -46,6 +46,13 @@ public class ScriptsAnalysis {
 	private HttpRequestResponseInfo firstFailedHtml;
 	private int numberOfFailedFiles;
 
+	/**
+	 * Initializes a 3rd party scripts analysis to be run by a
+	 * BestPracticeEngine.
+	 */
+	public ScriptsAnalysis() {
+	}
+
 	/**
 	 * Performs 3rd party scripts analysis.
 	 * 
@@ -54,44 +61,28 @@ public class ScriptsAnalysis {
 	 * 
 	 */
 	public ScriptsAnalysis(List<TCPSession> tcpSessions) {
-		if (null != tcpSessions) {
-			analyzeTcpSessions(tcpSessions);
-		}
+		new BestPracticeEngine(this).run(tcpSessions);
 	}
 
-	private void analyzeTcpSessions(List<TCPSession> tcpSessions) {
-		String contentType;
-		// loop through TCP session
-		for (TCPSession tcpSession : tcpSessions) {
-			// loop through HTTP requests and responses
-			for (HttpRequestResponseInfo rr : tcpSession.getRequestResponseInfo()) {
+	@Override
+	public void visitTransaction(TCPSession session, HttpRequestResponseInfo rr,
+			ParsedContent content) {
+		String contentType = rr.getContentType();
+		if ((rr.getDirection() == Direction.RESPONSE) && (rr.getContentLength() != 0) && (contentType != null)
+				&& (HttpRequestResponseInfo.isHtml(contentType))) {
 
-				contentType = rr.getContentType();
-				if ((rr.getDirection() == Direction.RESPONSE) && (rr.getContentLength() != 0) && (contentType != null)
-						&& (HttpRequestResponseInfo.isHtml(contentType))) {
-
-					analyzeHtml(rr);
-				}
-			}
+			analyzeHtml(rr, content.getHtmlDocument());
 		}
 	}
 
-	private void analyzeHtml(HttpRequestResponseInfo rr) {
-
-		Document htmlDoc;
-		try {
-			htmlDoc = Jsoup.parse(rr.getContentString());
+	private void analyzeHtml(HttpRequestResponseInfo rr, Document htmlDoc) {
 
+		if (htmlDoc != null) {
 			Elements allSrcElements = new Elements(htmlDoc.select("script"));
 
 			if (allSrcElements.size() >= ScriptsAnalysis.MIN_NUM_OF_SCRIPTS_IN_HTML_DOC) {
 				is3rdPartyScript(rr, allSrcElements);
 			}
-
-		} catch (ContentException e) {
-			ScriptsAnalysis.LOGGER.log(Level.FINE, "Empty URL Analysis - Unexpected Exception {0}", e.getMessage());
-		} catch (IOException e) {
-			ScriptsAnalysis.LOGGER.log(Level.WARNING, "Empty URL Analysis - Unexpected Exception {0}", e.getMessage());
 		}
 	}
 
@@ -5,73 +5,86 @@ import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.att.aro.bp.BestPracticeCheck;
+import com.att.aro.bp.BestPracticeEngine;
+import com.att.aro.bp.ParsedContent;
 import com.att.aro.model.HttpRequestResponseInfo;
 import com.att.aro.model.PacketInfo;
 import com.att.aro.model.TCPSession;
 import com.att.aro.model.HttpRequestResponseInfo.Direction;
 
-public class SpriteImageAnalysis {
+public class SpriteImageAnalysis extends BestPracticeCheck {
 	private static Logger LOGGER = Logger.getLogger(SpriteImageAnalysis.class.getName());
 
 	private static final int IMAGE_SIZE_LIMIT = 6144;
 	private List<SpriteImageEntry> analysisResults = new ArrayList<SpriteImageEntry>();
 
+	private double lastTimeStamp;
+	private HttpRequestResponseInfo lastReqRessInfo;
+	private HttpRequestResponseInfo secondReqRessInfo;
+	private boolean thirdOccurrenceTriggered;
+
+	/**
+	 * Initializes a SpriteImage analysis to be run by a BestPracticeEngine.
+	 */
+	public SpriteImageAnalysis() {
+	}
+
 	/**
 	 * Represents SpriteImage analysis.
 	 * 
 	 */
 	public SpriteImageAnalysis(List<TCPSession> tcpSessions) {
+		new BestPracticeEngine(this).run(tcpSessions);
+	}
+
+	@Override
+	public void beginSession(TCPSession session) {
+		lastTimeStamp = 0.0;
+		lastReqRessInfo = null;
+		secondReqRessInfo = null;
+		thirdOccurrenceTriggered = false;
+	}
 
-		if (null != tcpSessions) {
-			// loop through TCP session
-			for (TCPSession tcpSession : tcpSessions) {
-				
-				double lastTimeStamp = 0.0;
-				HttpRequestResponseInfo lastReqRessInfo = null;
-				HttpRequestResponseInfo secondReqRessInfo = null;
-				boolean thirdOccurrenceTriggered = false;
-				
-				// loop through HTTP requests and responses
-				for (HttpRequestResponseInfo reqRessInfo : tcpSession.getRequestResponseInfo()) {
-					if (reqRessInfo.getDirection() == Direction.RESPONSE) {
-						if (reqRessInfo.getContentType() != null) {
-							PacketInfo pktInfo = reqRessInfo.getFirstDataPacket();
-							if (pktInfo != null) {
-								if (reqRessInfo.getContentType().contains("image/") && reqRessInfo.getContentLength() < IMAGE_SIZE_LIMIT) {
-									if (lastTimeStamp == 0.0) {
-										lastTimeStamp = pktInfo.getTimeStamp();
-										lastReqRessInfo = reqRessInfo;
-										continue;
-									} else{ 
-										if ((pktInfo.getTimeStamp() - lastTimeStamp) <= 5.0) {
-											if (!thirdOccurrenceTriggered) {
-												secondReqRessInfo = reqRessInfo;
-												thirdOccurrenceTriggered = true;
-												continue;
-											} else {
-												/* -At this stage 3 images found to be downloaded in 5 secs. store them.
-												 * -fix for defect DE26829*/
-												analyzeContent(lastReqRessInfo);
-												analyzeContent(secondReqRessInfo);
-												analyzeContent(reqRessInfo);
-												/* -reset the variables to search more such images in this session
-												 * -fix for defect DE26829 */
-												
-												lastTimeStamp = 0.0;
-												lastReqRessInfo = null;
-												secondReqRessInfo = null;
-												thirdOccurrenceTriggered = false;
-											}
-										}
-										lastTimeStamp = pktInfo.getTimeStamp();
-										lastReqRessInfo = reqRessInfo;
-										secondReqRessInfo = null;
-										thirdOccurrenceTriggered = false;
-									}
-								} 
+	@Override
+	public void visitTransaction(TCPSession session, HttpRequestResponseInfo reqRessInfo,
+			ParsedContent content) {
+		if (reqRessInfo.getDirection() == Direction.RESPONSE) {
+			if (reqRessInfo.getContentType() != null) {
+				PacketInfo pktInfo = reqRessInfo.getFirstDataPacket();
+				if (pktInfo != null) {
+					if (reqRessInfo.getContentType().contains("image/") && reqRessInfo.getContentLength() < IMAGE_SIZE_LIMIT) {
+						if (lastTimeStamp == 0.0) {
+							lastTimeStamp = pktInfo.getTimeStamp();
+							lastReqRessInfo = reqRessInfo;
+							return;
+						} else{ 
+							if ((pktInfo.getTimeStamp() - lastTimeStamp) <= 5.0) {
+								if (!thirdOccurrenceTriggered) {
+									secondReqRessInfo = reqRessInfo;
+									thirdOccurrenceTriggered = true;
+									return;
+								} else {
+									/* -At this stage 3 images found to be downloaded in 5 secs. store them.
+									 * -fix for defect DE26829*/
+									analyzeContent(lastReqRessInfo);
+									analyzeContent(secondReqRessInfo);
+									analyzeContent(reqRessInfo);
+									/* -reset the variables to search more such images in this session
+									 * -fix for defect DE26829 */
+									
+									lastTimeStamp = 0.0;
+									lastReqRessInfo = null;
+									secondReqRessInfo = null;
+									thirdOccurrenceTriggered = false;
+								}
 							}
+							lastTimeStamp = pktInfo.getTimeStamp();
+							lastReqRessInfo = reqRessInfo;
+							secondReqRessInfo = null;
+							thirdOccurrenceTriggered = false;
 						}
-					}			
+					} 
 				}
 			}
 		}
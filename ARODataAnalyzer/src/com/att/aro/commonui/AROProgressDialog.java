@@ -20,19 +20,26 @@ package com.att.aro.commonui;
 import java.awt.BorderLayout;
 import java.awt.Dimension;
 import java.awt.Window;
+import java.text.MessageFormat;
+import java.util.MissingResourceException;
 import java.util.ResourceBundle;
 
 import javax.swing.JDialog;
 import javax.swing.JLabel;
 import javax.swing.JProgressBar;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 
 import com.att.aro.main.ResourceBundleManager;
+import com.att.aro.model.ProgressListener;
+import com.att.aro.model.ProgressMonitor;
+import com.att.aro.model.StageProgress;
 
 /**
  * Represents a progress dialog that indicates a background process such as loading, is in progress.
+ * When registered with a ProgressMonitor, the dialog displays the progress of the current stage.
  */
-public class AROProgressDialog extends JDialog {
+public class AROProgressDialog extends JDialog implements ProgressListener {
 	private static final long serialVersionUID = 1L;
 
 	private static final ResourceBundle rb = ResourceBundleManager
@@ -68,4 +75,81 @@ public class AROProgressDialog extends JDialog {
 		pack();
 		setLocationRelativeTo(parent);
 	}
+
+	/**
+	 * Displays the progress of a stage that started.
+	 * 
+	 * @see com.att.aro.model.ProgressListener#stageStarted(com.att.aro.model.StageProgress)
+	 */
+	@Override
+	public void stageStarted(StageProgress stage) {
+		showProgress(stage);
+	}
+
+	/**
+	 * Displays the progress of a running stage.
+	 * 
+	 * @see com.att.aro.model.ProgressListener#stageProgress(com.att.aro.model.StageProgress)
+	 */
+	@Override
+	public void stageProgress(StageProgress stage) {
+		showProgress(stage);
+	}
+
+	/**
+	 * Displays the completion of a stage.
+	 * 
+	 * @see com.att.aro.model.ProgressListener#stageFinished(com.att.aro.model.StageProgress)
+	 */
+	@Override
+	public void stageFinished(StageProgress stage) {
+		showProgress(stage);
+	}
+
+	/**
+	 * Returns the description of the progress of a stage, such as its name, the
+	 * number of items processed, the throughput and the estimated time left.
+	 * 
+	 * @param stage
+	 *            The stage.
+	 * @return The description.
+	 */
+	public static String describe(StageProgress stage) {
+		String name = stage.getName();
+		if (name.startsWith(ProgressMonitor.BEST_PRACTICE)) {
+			name = MessageFormat.format(rb.getString("progress.stage.bestPractice"),
+					name.substring(ProgressMonitor.BEST_PRACTICE.length()));
+		} else {
+			try {
+				name = rb.getString("progress.stage." + name);
+			} catch (MissingResourceException e) {
+				// Stage of an extension, use its name
+			}
+		}
+		long remaining = stage.getEstimatedRemainingMillis();
+		if (stage.getTotal() > 0 && remaining >= 0 && !stage.isFinished()) {
+			return MessageFormat.format(rb.getString("progress.stage.estimate"), name, stage.getCount(),
+					stage.getTotal(), Math.round(stage.getItemsPerSecond()), (remaining + 999) / 1000);
+		}
+		return MessageFormat.format(rb.getString("progress.stage.count"), name, stage.getCount());
+	}
+
+	/**
+	 * Displays the progress of a stage on the event dispatch thread.
+	 */
+	private void showProgress(StageProgress stage) {
+		final String text = describe(stage);
+		final int percent = stage.getPercentDone();
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				label.setText(text);
+				progressBar.setIndeterminate(percent < 0);
+				progressBar.setStringPainted(percent >= 0);
+				if (percent >= 0) {
+					progressBar.setValue(percent);
+				}
+			}
+		});
+	}
 }
@@ -24,10 +24,12 @@ import java.util.List;
 import javax.swing.JPopupMenu;
 import javax.swing.JTable;
 import javax.swing.ListSelectionModel;
+import javax.swing.RowSorter;
 import javax.swing.table.JTableHeader;
 import javax.swing.table.TableColumn;
 import javax.swing.table.TableColumnModel;
 import javax.swing.table.TableModel;
+import javax.swing.table.TableRowSorter;
 
 /**
  * Represents a data table for use with the ARO Data Analyzer by customizing a
@@ -217,6 +219,26 @@ public class DataTable<T> extends JTable {
 		super.setModel(dataModel);
 	}
 
+	/**
+	 * Sets the row sorter of the table. The row sorter that JTable creates
+	 * when the auto create row sorter property is set is replaced with a
+	 * DataTableRowSorter, which sorts large tables without boxing the values
+	 * of their numeric columns.
+	 * 
+	 * @param sorter
+	 *            The new RowSorter.
+	 * @see javax.swing.JTable#setRowSorter(javax.swing.RowSorter)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void setRowSorter(RowSorter<? extends TableModel> sorter) {
+		if (sorter != null && sorter.getClass() == TableRowSorter.class
+				&& getAutoCreateRowSorter() && sorter.getModel() instanceof DataTableModel) {
+			sorter = new DataTableRowSorter<T>((DataTableModel<T>) sorter.getModel());
+		}
+		super.setRowSorter(sorter);
+	}
+
 	/**
 	 * Marks the specified item in the table as selected, if it exists.If the
 	 * item exists in the table and is already marked as selected, the the
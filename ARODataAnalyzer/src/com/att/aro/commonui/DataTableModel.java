@@ -18,7 +18,9 @@ package com.att.aro.commonui;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.swing.table.AbstractTableModel;
 import javax.swing.table.DefaultTableColumnModel;
@@ -36,6 +38,9 @@ public abstract class DataTableModel<T> extends AbstractTableModel {
 	private List<T> data = new ArrayList<T>();
 	private String[] columns;
 
+	// Row of each item, built on the first lookup
+	private transient Map<T, Integer> rowIndex;
+
 	/**
 	 * Initializes a new instance of an empty DataTableModel class.
 	 * 
@@ -147,6 +152,7 @@ public abstract class DataTableModel<T> extends AbstractTableModel {
 		if (data != null) {
 			this.data.addAll(data);
 		}
+		this.rowIndex = null;
 		fireTableDataChanged();
 	}
 
@@ -157,8 +163,10 @@ public abstract class DataTableModel<T> extends AbstractTableModel {
 	 *            The new row to be added.
 	 */
 	public synchronized void addRow(T row) {
+		int index = this.data.size();
 		this.data.add(row);
-		fireTableDataChanged();
+		indexRow(row, index);
+		fireTableRowsInserted(index, index);
 	}
 
 	/**
@@ -171,7 +179,8 @@ public abstract class DataTableModel<T> extends AbstractTableModel {
 	 */
 	public synchronized void addRow(int location, T row) {
 		this.data.add(location, row);
-		fireTableDataChanged();
+		this.rowIndex = null;
+		fireTableRowsInserted(location, location);
 	}
 
 	/**
@@ -183,8 +192,12 @@ public abstract class DataTableModel<T> extends AbstractTableModel {
 	 */
 	public synchronized void addRows(Collection<T> rows) {
 		if (rows != null && rows.size() > 0) {
+			int first = this.data.size();
 			this.data.addAll(rows);
-			fireTableDataChanged();
+			for (int i = first; i < this.data.size(); ++i) {
+				indexRow(this.data.get(i), i);
+			}
+			fireTableRowsInserted(first, this.data.size() - 1);
 		}
 	}
 
@@ -197,7 +210,8 @@ public abstract class DataTableModel<T> extends AbstractTableModel {
 	 */
 	public synchronized T removeRow(int index) {
 		T removed = this.data.remove(index);
-		fireTableDataChanged();
+		this.rowIndex = null;
+		fireTableRowsDeleted(index, index);
 		return removed;
 	}
 
@@ -218,6 +232,7 @@ public abstract class DataTableModel<T> extends AbstractTableModel {
 	 */
 	public synchronized void removeAllRows() {
 		this.data.clear();
+		this.rowIndex = null;
 		fireTableDataChanged();
 	}
 
@@ -229,12 +244,59 @@ public abstract class DataTableModel<T> extends AbstractTableModel {
 	 *            The item to return the index for.
 	 * @return The index of the specified item, or -1 if the item is not found.
 	 */
-	public int indexOf(T item) {
+	public synchronized int indexOf(T item) {
 		if (this.data == null || this.data.isEmpty()){
 			return -1;
 		}
 		
-		return this.data.indexOf(item);
+		// Items are looked up by identity first, which is what selecting a
+		// row of the analysis needs, then by equality
+		if (rowIndex == null) {
+			rowIndex = new IdentityHashMap<T, Integer>(this.data.size() * 2);
+			for (int i = 0; i < this.data.size(); ++i) {
+				indexRow(this.data.get(i), i);
+			}
+		}
+		Integer index = rowIndex.get(item);
+		return index != null ? index : this.data.indexOf(item);
+	}
+
+	/**
+	 * Records the row of an item when the index is built, keeping the first
+	 * occurrence.
+	 */
+	private void indexRow(T item, int index) {
+		if (rowIndex != null && !rowIndex.containsKey(item)) {
+			rowIndex.put(item, index);
+		}
+	}
+
+	/**
+	 * Returns true if the values of the specified column are numbers that can
+	 * be sorted with getColumnSortValue, without boxing them. Subclasses
+	 * override this method and getColumnSortValue for the numeric columns of
+	 * large tables.
+	 * 
+	 * @param columnIndex
+	 *            The index of the column.
+	 * @return true if the column is sorted by number.
+	 */
+	protected boolean isNumericColumn(int columnIndex) {
+		return false;
+	}
+
+	/**
+	 * Returns the number an item is sorted by in a numeric column.
+	 * 
+	 * @param item
+	 *            The item to retrieve the value for.
+	 * @param columnIndex
+	 *            The index of a numeric column.
+	 * @return The sort value, or Double.NaN to sort the column by its column
+	 *         values instead.
+	 */
+	protected double getColumnSortValue(T item, int columnIndex) {
+		return Double.NaN;
 	}
 
 	/**
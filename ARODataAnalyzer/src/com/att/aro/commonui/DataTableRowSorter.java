@@ -0,0 +1,379 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.commonui;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+
+/**
+ * Sorts the rows of a DataTableModel through index permutations. Numeric
+ * columns are sorted on the primitive values returned by the model, and the
+ * ascending permutation of each column is kept until the data changes, so
+ * sorting a column again or reversing its order does not sort the rows again.
+ * The view and model indexes are converted in constant time.
+ * <p>
+ * The rows are sorted by the primary sort key only; rows with equal values
+ * keep their model order.
+ *
+ * @param <T>
+ *            The type of the rows of the model.
+ */
+public class DataTableRowSorter<T> extends RowSorter<DataTableModel<T>> {
+
+	private final DataTableModel<T> model;
+	private List<SortKey> sortKeys = Collections.emptyList();
+
+	// Ascending order of each column sorted since the last change
+	private final Map<Integer, ColumnOrder> permutations = new HashMap<Integer, ColumnOrder>();
+
+	// null when the rows are in model order
+	private int[] viewToModel;
+	private int[] modelToView;
+	private int modelRowCount;
+
+	/**
+	 * Initializes a new instance of the DataTableRowSorter class.
+	 *
+	 * @param model
+	 *            The model sorted.
+	 */
+	public DataTableRowSorter(DataTableModel<T> model) {
+		this.model = model;
+		this.modelRowCount = model.getRowCount();
+	}
+
+	@Override
+	public DataTableModel<T> getModel() {
+		return model;
+	}
+
+	/**
+	 * Sorts the specified column ascending, or reverses its order if it is
+	 * already the primary sort key.
+	 *
+	 * @see javax.swing.RowSorter#toggleSortOrder(int)
+	 */
+	@Override
+	public void toggleSortOrder(int column) {
+		checkColumn(column);
+		SortOrder order = SortOrder.ASCENDING;
+		if (!sortKeys.isEmpty() && sortKeys.get(0).getColumn() == column
+				&& sortKeys.get(0).getSortOrder() == SortOrder.ASCENDING) {
+			order = SortOrder.DESCENDING;
+		}
+		setSortKeys(Collections.singletonList(new SortKey(column, order)));
+	}
+
+	@Override
+	public int convertRowIndexToModel(int index) {
+		if (viewToModel == null) {
+			if (index < 0 || index >= modelRowCount) {
+				throw new IndexOutOfBoundsException("Invalid index");
+			}
+			return index;
+		}
+		return viewToModel[index];
+	}
+
+	@Override
+	public int convertRowIndexToView(int index) {
+		if (index < 0 || index >= modelRowCount) {
+			throw new IndexOutOfBoundsException("Invalid index");
+		}
+		if (viewToModel == null) {
+			return index;
+		}
+		if (modelToView == null) {
+			modelToView = new int[viewToModel.length];
+			for (int i = 0; i < viewToModel.length; ++i) {
+				modelToView[viewToModel[i]] = i;
+			}
+		}
+		return modelToView[index];
+	}
+
+	@Override
+	public void setSortKeys(List<? extends SortKey> keys) {
+		List<SortKey> old = sortKeys;
+		if (keys != null && !keys.isEmpty()) {
+			for (SortKey key : keys) {
+				checkColumn(key.getColumn());
+			}
+			sortKeys = Collections.unmodifiableList(new ArrayList<SortKey>(keys));
+		} else {
+			sortKeys = Collections.emptyList();
+		}
+		if (!sortKeys.equals(old)) {
+			fireSortOrderChanged();
+			sort();
+		}
+	}
+
+	@Override
+	public List<? extends SortKey> getSortKeys() {
+		return sortKeys;
+	}
+
+	@Override
+	public int getViewRowCount() {
+		return modelRowCount;
+	}
+
+	@Override
+	public int getModelRowCount() {
+		return model.getRowCount();
+	}
+
+	@Override
+	public void modelStructureChanged() {
+		permutations.clear();
+		sortKeys = Collections.emptyList();
+		sort();
+	}
+
+	@Override
+	public void allRowsChanged() {
+		permutations.clear();
+		sort();
+	}
+
+	@Override
+	public void rowsInserted(int firstRow, int endRow) {
+		allRowsChanged();
+	}
+
+	@Override
+	public void rowsDeleted(int firstRow, int endRow) {
+		allRowsChanged();
+	}
+
+	@Override
+	public void rowsUpdated(int firstRow, int endRow) {
+		allRowsChanged();
+	}
+
+	@Override
+	public void rowsUpdated(int firstRow, int endRow, int column) {
+		if (!sortKeys.isEmpty() && sortKeys.get(0).getColumn() == column) {
+			allRowsChanged();
+		} else {
+			permutations.remove(column);
+		}
+	}
+
+	/**
+	 * Updates the view order with the sort keys and notifies the listeners.
+	 */
+	private void sort() {
+		int[] lastViewToModel = getViewToModel();
+		modelRowCount = model.getRowCount();
+		modelToView = null;
+		if (sortKeys.isEmpty() || sortKeys.get(0).getSortOrder() == SortOrder.UNSORTED) {
+			viewToModel = null;
+		} else {
+			SortKey key = sortKeys.get(0);
+			ColumnOrder order = permutations.get(key.getColumn());
+			if (order == null || order.ascending.length != modelRowCount) {
+				order = sortColumn(key.getColumn());
+				permutations.put(key.getColumn(), order);
+			}
+			if (key.getSortOrder() == SortOrder.ASCENDING) {
+				viewToModel = order.ascending;
+			} else {
+				// reverse the runs of equal values, the rows of a run keep
+				// their model order
+				viewToModel = new int[modelRowCount];
+				int view = 0;
+				for (int end = modelRowCount; end > 0;) {
+					int start = end - 1;
+					while (start > 0 && order.tied.get(start)) {
+						--start;
+					}
+					System.arraycopy(order.ascending, start, viewToModel, view, end - start);
+					view += end - start;
+					end = start;
+				}
+			}
+		}
+		fireRowSorterChanged(lastViewToModel);
+	}
+
+	private int[] getViewToModel() {
+		if (viewToModel != null) {
+			return viewToModel.clone();
+		}
+		int[] result = new int[modelRowCount];
+		for (int i = 0; i < modelRowCount; ++i) {
+			result[i] = i;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the rows of the model sorted ascending on a column.
+	 */
+	private ColumnOrder sortColumn(int column) {
+		List<T> data = model.getData();
+		int size = data.size();
+		RowComparator comparator = null;
+		if (model.isNumericColumn(column)) {
+			double[] values = new double[size];
+			for (int i = 0; i < size; ++i) {
+				values[i] = model.getColumnSortValue(data.get(i), column);
+				if (Double.isNaN(values[i])) {
+					// no sort value, fall back to the column values
+					values = null;
+					break;
+				}
+			}
+			if (values != null) {
+				comparator = new NumberComparator(values);
+			}
+		}
+		if (comparator == null) {
+			Object[] values = new Object[size];
+			for (int i = 0; i < size; ++i) {
+				values[i] = model.getColumnValue(data.get(i), column);
+			}
+			comparator = new ObjectComparator(values);
+		}
+
+		int[] rows = new int[size];
+		for (int i = 0; i < size; ++i) {
+			rows[i] = i;
+		}
+		mergeSort(rows, new int[size], 0, size, comparator);
+		BitSet tied = new BitSet(size);
+		for (int i = 1; i < size; ++i) {
+			if (comparator.compare(rows[i - 1], rows[i]) == 0) {
+				tied.set(i);
+			}
+		}
+		return new ColumnOrder(rows, tied);
+	}
+
+	/**
+	 * Stable sort of rows[from, to), using buffer as scratch space.
+	 */
+	private static void mergeSort(int[] rows, int[] buffer, int from, int to, RowComparator comparator) {
+		if (to - from < 8) {
+			for (int i = from + 1; i < to; ++i) {
+				int row = rows[i];
+				int j = i;
+				while (j > from && comparator.compare(rows[j - 1], row) > 0) {
+					rows[j] = rows[j - 1];
+					--j;
+				}
+				rows[j] = row;
+			}
+			return;
+		}
+		int middle = (from + to) >>> 1;
+		mergeSort(rows, buffer, from, middle, comparator);
+		mergeSort(rows, buffer, middle, to, comparator);
+		if (comparator.compare(rows[middle - 1], rows[middle]) <= 0) {
+			return;
+		}
+		System.arraycopy(rows, from, buffer, from, to - from);
+		int left = from;
+		int right = middle;
+		for (int i = from; i < to; ++i) {
+			if (right >= to || (left < middle && comparator.compare(buffer[left], buffer[right]) <= 0)) {
+				rows[i] = buffer[left++];
+			} else {
+				rows[i] = buffer[right++];
+			}
+		}
+	}
+
+	private void checkColumn(int column) {
+		if (column < 0 || column >= model.getColumnCount()) {
+			throw new IndexOutOfBoundsException("Column " + column + " out of range");
+		}
+	}
+
+	/**
+	 * Compares two rows of the model.
+	 */
+	/**
+	 * The ascending order of a column, with the rows whose value equals the
+	 * value of the previous row.
+	 */
+	private static class ColumnOrder {
+		final int[] ascending;
+		final BitSet tied;
+
+		ColumnOrder(int[] ascending, BitSet tied) {
+			this.ascending = ascending;
+			this.tied = tied;
+		}
+	}
+
+	private interface RowComparator {
+		int compare(int row1, int row2);
+	}
+
+	private static class NumberComparator implements RowComparator {
+		private final double[] values;
+
+		NumberComparator(double[] values) {
+			this.values = values;
+		}
+
+		@Override
+		public int compare(int row1, int row2) {
+			return Double.compare(values[row1], values[row2]);
+		}
+	}
+
+	/**
+	 * Compares values the way TableRowSorter does: comparable values of the
+	 * same class with compareTo, other values as strings with a Collator.
+	 * Null values come first.
+	 */
+	private static class ObjectComparator implements RowComparator {
+		private final Object[] values;
+		private final Collator collator = Collator.getInstance();
+
+		ObjectComparator(Object[] values) {
+			this.values = values;
+		}
+
+		@Override
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		public int compare(int row1, int row2) {
+			Object v1 = values[row1];
+			Object v2 = values[row2];
+			if (v1 == null) {
+				return v2 == null ? 0 : -1;
+			} else if (v2 == null) {
+				return 1;
+			}
+			if (v1 instanceof Comparable && v1.getClass() == v2.getClass() && !(v1 instanceof String)) {
+				return ((Comparable) v1).compareTo(v2);
+			}
+			return collator.compare(v1.toString(), v2.toString());
+		}
+	}
+}
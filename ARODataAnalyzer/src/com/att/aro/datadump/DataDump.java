@@ -19,9 +19,11 @@ package com.att.aro.datadump;
 import java.awt.Desktop;
 import java.awt.Frame;
 import java.awt.Window;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.text.DateFormat;
 import java.text.DecimalFormat;
 import java.text.MessageFormat;
@@ -42,10 +44,10 @@ import javax.swing.JOptionPane;
 import javax.swing.SwingWorker;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
-import com.att.aro.bp.BPTextFileCompression;
 import com.att.aro.bp.BestPracticeDisplay;
 import com.att.aro.bp.BestPracticeDisplayFactory;
 import com.att.aro.bp.BestPracticeDisplayGroup;
+import com.att.aro.bp.BestPracticeEvaluator;
 import com.att.aro.bp.BestPracticeExport;
 import com.att.aro.commonui.AROUIManager;
 import com.att.aro.commonui.MessageDialogFactory;
@@ -82,14 +84,7 @@ public class DataDump {
 	private boolean subfolderAccess = true;
 	private boolean userConfirmation = false;
 	private Collection<BestPracticeDisplayGroup> bestPracticeGroups = BestPracticeDisplayFactory.getInstance().getBestPracticeDisplay();
-	private Collection<BestPracticeDisplay> bestPractices = new ArrayList<BestPracticeDisplay>();
-	{
-		for (BestPracticeDisplayGroup group : bestPracticeGroups) {
-			for (BestPracticeDisplay bp : group.getBestPractices()) {
-				bestPractices.add(bp);
-			}
-		}
-	}
+	private Collection<BestPracticeDisplay> bestPractices = BestPracticeEvaluator.getBestPractices();
 
 	private static final Window MSG_WINDOW = new Window(new Frame());
 
@@ -272,12 +267,12 @@ public class DataDump {
 	 * 
 	 * @param traceFolders
 	 *            - List of trace folder names.
-	 * @return A FileWriter object.
+	 * @return A Writer object.
 	 * @throws IOException
 	 */
-	private FileWriter startDataDump(List<File> traceFolders) throws IOException, ProfileException {
+	private Writer startDataDump(List<File> traceFolders) throws IOException, ProfileException {
 
-		FileWriter writer = new FileWriter(fileToSave);
+		Writer writer = new BufferedWriter(new FileWriter(fileToSave));
 		try {
 			Profile currentProfile = profile != null ? profile : ProfileManager
 					.getInstance().getLastUserProfile(ProfileType.T3G);
@@ -309,6 +304,9 @@ public class DataDump {
 					boolean datadump = true;
 					analysis = traceData.runAnalysis(currentProfile, null, datadump);
 					addAnalysisContent(writer, analysis);
+
+					// Write the rows of each trace as soon as it is analyzed
+					writer.flush();
 				} catch (Exception e) {
 					LOGGER.log(Level.WARNING, "Unable to run analysis on folder: " + traceDirectory, e);
 				}
@@ -360,13 +358,13 @@ public class DataDump {
 	 * Adds trace content into CSV file.
 	 * 
 	 * @param writer
-	 *            - A FileWriter object.
+	 *            - A Writer object.
 	 * @param analysis
 	 *            - A TraceData.Analysis object.
-	 * @return A FileWriter object.
+	 * @return A Writer object.
 	 * @throws IOException
 	 */
-	private FileWriter addAnalysisContent(FileWriter writer, TraceData.Analysis analysis)
+	private Writer addAnalysisContent(Writer writer, TraceData.Analysis analysis)
 			throws IOException {
 
 		addCommonContents(writer, analysis);
@@ -425,7 +423,7 @@ public class DataDump {
 		return writer;
 	}
 
-	private FileWriter addPeripheralEnergy(FileWriter writer, Analysis analysis) throws IOException {
+	private Writer addPeripheralEnergy(Writer writer, Analysis analysis) throws IOException {
 		NumberFormat nf = NumberFormat.getNumberInstance();
 		nf.setMaximumFractionDigits(2);
 		nf.setMinimumFractionDigits(2);
@@ -458,7 +456,7 @@ public class DataDump {
 	 * @return
 	 * @throws IOException
 	 */
-	private FileWriter addCacheContent(FileWriter writer, Analysis analysis) throws IOException {
+	private Writer addCacheContent(Writer writer, Analysis analysis) throws IOException {
 		CacheInfoParser cIPaser = analysis.getCacheInfoParser();
 		NumberFormat format = NumberFormat.getNumberInstance();
 		format.setMaximumFractionDigits(1);
@@ -605,7 +603,7 @@ public class DataDump {
 	 * @return
 	 * @throws IOException
 	 */
-	private FileWriter addApplicationEndPointSummary(FileWriter writer, Analysis analysis)
+	private Writer addApplicationEndPointSummary(Writer writer, Analysis analysis)
 			throws IOException {
 		ArrayList<ApplicationPacketSummary> appList = new ArrayList<ApplicationPacketSummary>(
 				analysis.getApplicationPacketSummary());
@@ -656,7 +654,7 @@ public class DataDump {
 	 * @return
 	 * @throws IOException
 	 */
-	private FileWriter addApplicationScore(FileWriter writer, Analysis analysis) throws IOException {
+	private Writer addApplicationScore(Writer writer, Analysis analysis) throws IOException {
 		writer.append(QUOTE_SEP + analysis.getApplicationScore().getCausesScore() + QUOTE_SEP);
 		writer.append(COMMA_SEP);
 		writer.append(QUOTE_SEP + analysis.getApplicationScore().getEffectScore() + QUOTE_SEP);
@@ -675,7 +673,7 @@ public class DataDump {
 	 * @return
 	 * @throws IOException
 	 */
-	private FileWriter addConnectionStatics(FileWriter writer, Analysis analysis)
+	private Writer addConnectionStatics(Writer writer, Analysis analysis)
 			throws IOException {
 		writer.append(QUOTE_SEP
 				+ (analysis != null ? analysis.calculateSessionTermPercentage(analysis) : 0)
@@ -708,7 +706,7 @@ public class DataDump {
 	 * @return
 	 * @throws IOException
 	 */
-	private FileWriter addCommonContents(FileWriter writer, Analysis analysis)
+	private Writer addCommonContents(Writer writer, Analysis analysis)
 			throws IOException {
 
 		String traceDirPath = analysis.getTraceData().getTraceDir().toString();
@@ -761,7 +759,7 @@ public class DataDump {
 	 * @return
 	 * @throws IOException
 	 */
-	private FileWriter addTraceBenchmarking(FileWriter writer, Analysis analysis)
+	private Writer addTraceBenchmarking(Writer writer, Analysis analysis)
 			throws IOException {
 
 		writer.append("" + (analysis != null ? analysis.getAvgKbps() : 0));
@@ -794,7 +792,7 @@ public class DataDump {
 	 * @return
 	 * @throws IOException
 	 */
-	private FileWriter addFileTypes(FileWriter writer, Analysis analysis) throws IOException {
+	private Writer addFileTypes(Writer writer, Analysis analysis) throws IOException {
 		final List<FileTypeSummary> content = analysis.constructContent(analysis);
 		for (int i = 0; i < 5; i++) {
 			if (i < content.size()) {
@@ -834,34 +832,27 @@ public class DataDump {
 	 * @return
 	 * @throws IOException
 	 */
-	private FileWriter addBestPractices(FileWriter writer, Analysis analysis) throws IOException {
+	private Writer addBestPractices(Writer writer, Analysis analysis) throws IOException {
 		final String bpPass = Util.RB.getString("bestPractices.pass");
 		final String bpFail = Util.RB.getString("bestPractices.fail");
 		String bpWarning = Util.RB.getString("bestPractice.tooltip.warning");
 		final String commaSepWithSpace = COMMA_SEP + " ";
 		
 		for (BestPracticeDisplay bp : this.bestPractices) {
-			//Added for Text Compression US197546
-			if (bp.getOverviewTitle().equals(Util.RB.getString(BPTextFileCompression.TEXT_FILE_COMPRESSION_OVERVIEW_TITLE))){
-				String status = bpFail;
-				if (bp.isPass(analysis)){
-					status = bpPass;
-				}
-				else if (bp.isWarning(analysis)){
-					status = bpWarning;
-				}
-				
-				BestPracticeExport.writeValue(writer, status);
-			} //end for Text Compression US197546
-			else if(((bp.getOverviewTitle()).equals(Util.RB.getString("caching.usingCache.title")))
-					|| ((bp.getOverviewTitle()).equals(Util.RB.getString("caching.cacheControl.title")))
-					|| ((bp.getOverviewTitle()).equals(Util.RB.getString("connections.offloadingToWifi.title")))
-					|| ((bp.getOverviewTitle()).equals(Util.RB.getString("html.httpUsage.title")))
-					|| ((bp.getOverviewTitle()).equals(Util.RB.getString("other.accessingPeripherals.title")))
-					) {
-				writer.append(bp.isPass(analysis) ? bpPass : bpWarning);
-			} else {
+			switch (BestPracticeEvaluator.evaluate(bp, analysis)) {
+			case PASS:
+				writer.append(bpPass);
+				break;
+			case WARNING:
+				writer.append(bpWarning);
+				break;
+			case MANUAL:
+				// self tests are reported as pass or fail in the data dump
 				writer.append(bp.isPass(analysis) ? bpPass : bpFail);
+				break;
+			default:
+				writer.append(bpFail);
+				break;
 			}
 			writer.append(COMMA_SEP);
 			
@@ -887,13 +878,13 @@ public class DataDump {
 	 * Adds burst analysis data for provided burst category.
 	 * 
 	 * @param writer
-	 *            - A FileWriter object.
+	 *            - A Writer object.
 	 * @param analysis
 	 *            - A TraceData.Analysis object.
 	 * @param category
 	 * @throws IOException
 	 */
-	private void addBurstAnalysis(FileWriter writer, Analysis analysis, BurstCategory category) throws IOException {
+	private void addBurstAnalysis(Writer writer, Analysis analysis, BurstCategory category) throws IOException {
 		
 		BurstAnalysisInfo burst = null;
 		List<BurstAnalysisInfo> burstInfo = analysis.getBcAnalysis().getBurstAnalysisInfo();
@@ -930,13 +921,13 @@ public class DataDump {
 	 * Adds 3G RRC state and energy simulation.
 	 * 
 	 * @param writer
-	 *            - A FileWriter object.
+	 *            - A Writer object.
 	 * @param analysis
 	 *            - A TraceData.Analysis object.
-	 * @return A FileWriter object.
+	 * @return A Writer object.
 	 * @throws IOException
 	 */
-	private FileWriter add3GRRCStateAndEnergySimulation(FileWriter writer, Analysis analysis)
+	private Writer add3GRRCStateAndEnergySimulation(Writer writer, Analysis analysis)
 			throws IOException {
 		RRCStateMachine rrc = analysis.getRrcStateMachine();
 		// RRC simulation
@@ -1019,13 +1010,13 @@ public class DataDump {
 	 * Adds LTE RRC state and energy simulation.
 	 * 
 	 * @param writer
-	 *            - A FileWriter object.
+	 *            - A Writer object.
 	 * @param analysis
 	 *            - A TraceData.Analysis object.
-	 * @return A FileWriter object.
+	 * @return A Writer object.
 	 * @throws IOException
 	 */
-	private FileWriter addLTERRCStateAndEnergySimulation(FileWriter writer, Analysis analysis)
+	private Writer addLTERRCStateAndEnergySimulation(Writer writer, Analysis analysis)
 			throws IOException {
 		RRCStateMachine rrc = analysis.getRrcStateMachine();
 		// RRC simulation
@@ -1108,13 +1099,13 @@ public class DataDump {
 	 * Adds WiFi RRC state and energy simulation.
 	 * 
 	 * @param writer
-	 *            - A FileWriter object.
+	 *            - A Writer object.
 	 * @param analysis
 	 *            - A TraceData.Analysis object.
-	 * @return A FileWriter object.
+	 * @return A Writer object.
 	 * @throws IOException
 	 */
-	private FileWriter addWiFiRRCStateAndEnergySimulation(FileWriter writer, Analysis analysis)
+	private Writer addWiFiRRCStateAndEnergySimulation(Writer writer, Analysis analysis)
 			throws IOException {
 		RRCStateMachine rrc = analysis.getRrcStateMachine();
 		// RRC simulation
@@ -1159,13 +1150,13 @@ public class DataDump {
 	 * Adds Basic Statistics data in writer.
 	 * 
 	 * @param writer
-	 *            - A FileWriter object.
+	 *            - A Writer object.
 	 * @param analysis
 	 *            - A TraceData.Analysis object.
-	 * @return A FileWriter object.
+	 * @return A Writer object.
 	 * @throws IOException
 	 */
-	private FileWriter addBasicStatistics(FileWriter writer, TraceData.Analysis analysis)
+	private Writer addBasicStatistics(Writer writer, TraceData.Analysis analysis)
 			throws IOException {
 		// Size
 		writer.append(QUOTE_SEP + analysis.getTotalBytes() + QUOTE_SEP);
@@ -15,8 +15,8 @@
  */
 package com.att.aro.datadump;
 
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.Collection;
@@ -85,7 +85,7 @@ public abstract class DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	static void addAnchor(FileWriter writer) throws IOException {
+	static void addAnchor(Writer writer) throws IOException {
 		writer.append(COMMA_SEP);
 		writer.append(ANCHOR);
 	}
@@ -97,7 +97,7 @@ public abstract class DataDumpHelper {
 	 * @param repeat
 	 * @throws IOException
 	 */
-	static void addCommas(FileWriter writer, int repeat) throws IOException {
+	static void addCommas(Writer writer, int repeat) throws IOException {
 		for (int i = 1; i <= repeat; i++) {
 			writer.append(COMMA_SEP);
 		}
@@ -111,19 +111,17 @@ public abstract class DataDumpHelper {
 	 * @return Cell data in string format.
 	 */
 	static String createCSVEntry(Object val) {
-		StringBuffer writer = new StringBuffer();
 		String str = val != null ? val.toString() : "";
+		StringBuilder writer = new StringBuilder(str.length() + 2);
 		writer.append('"');
-		for (char c : str.toCharArray()) {
-			switch (c) {
-			case '"':
-				// Add an extra
-				writer.append("\"\"");
-				break;
-			default:
-				writer.append(c);
-			}
+		int start = 0;
+		int quote;
+		while ((quote = str.indexOf('"', start)) >= 0) {
+			// Add an extra
+			writer.append(str, start, quote + 1).append('"');
+			start = quote + 1;
 		}
+		writer.append(str, start, str.length());
 		writer.append('"');
 		return writer.toString();
 	}
@@ -134,7 +132,7 @@ public abstract class DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	static void startNewLine(FileWriter writer) throws IOException {
+	static void startNewLine(Writer writer) throws IOException {
 		writer.append(LINE_SEP);
 	}
 
@@ -145,7 +143,7 @@ public abstract class DataDumpHelper {
 	 * @param bpc
 	 * @throws IOException
 	 */
-	private void addBestPractice(FileWriter writer, Collection<BestPracticeDisplay> bpc) throws IOException {
+	private void addBestPractice(Writer writer, Collection<BestPracticeDisplay> bpc) throws IOException {
 		// Write best practice titles
 		for (BestPracticeDisplay bp : bpc) {
 			addContinuousHeader(writer, createCSVEntry(bp.getDetailTitle()), 1);
@@ -159,7 +157,7 @@ public abstract class DataDumpHelper {
 	 * @param bpc
 	 * @throws IOException
 	 */
-	void addBestPracticeHeadersLine3(FileWriter writer, Collection<BestPracticeDisplay> bpc) throws IOException {
+	void addBestPracticeHeadersLine3(Writer writer, Collection<BestPracticeDisplay> bpc) throws IOException {
 		// Write best practice column headers
 		for (int i = 0; i < bpc.size(); i++) {
 			writer.append(COMMA_SEP);
@@ -175,7 +173,7 @@ public abstract class DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	private void addBurstCategoryTitles(FileWriter writer) throws IOException {
+	private void addBurstCategoryTitles(Writer writer) throws IOException {
 		
 		for (BurstCategory bc : BurstCategory.values()) {
 			// unknown bursts are excluded
@@ -191,7 +189,7 @@ public abstract class DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	private void addConnectionStatistics(FileWriter writer) throws IOException {
+	private void addConnectionStatistics(Writer writer) throws IOException {
 		for (int j = 0; j <= 4; j++) {
 			writer.append(COMMA_SEP);
 			writer.append(conStats);
@@ -207,7 +205,7 @@ public abstract class DataDumpHelper {
 	 * @throws IOException
 	 */
 	@Deprecated
-	void addContinuousHeader(FileWriter writer, String inputStr, int maxLength) throws IOException {
+	void addContinuousHeader(Writer writer, String inputStr, int maxLength) throws IOException {
 		for (int i = 0; i <= maxLength; i++) {
 			writer.append(COMMA_SEP);
 			writer.append(inputStr);
@@ -223,7 +221,7 @@ public abstract class DataDumpHelper {
 	 * @param size
 	 * @throws IOException
 	 */
-	void addContinuousHeaders(FileWriter writer, String inputStr, int size) throws IOException {
+	void addContinuousHeaders(Writer writer, String inputStr, int size) throws IOException {
 		for (int i = 1; i <= size; i++) {
 			writer.append(COMMA_SEP);
 			writer.append(inputStr);
@@ -236,7 +234,7 @@ public abstract class DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	void addEnergyHeaderLine3(FileWriter writer) throws IOException {
+	void addEnergyHeaderLine3(Writer writer) throws IOException {
 		writer.append(COMMA_SEP);
 		writer.append(Util.RB.getString("burstAnalysis.jpkb"));
 		writer.append(COMMA_SEP);
@@ -263,7 +261,7 @@ public abstract class DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	private void addFileTypes(FileWriter writer) throws IOException {
+	private void addFileTypes(Writer writer) throws IOException {
 		for (int i = 1; i <= 5; i++) {
 			for (int j = 1; j <= 3; j++) {
 				writer.append(COMMA_SEP);
@@ -278,7 +276,7 @@ public abstract class DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	private void addFiveEndPointSummaryHeaders(FileWriter writer) throws IOException {
+	private void addFiveEndPointSummaryHeaders(Writer writer) throws IOException {
 		// Five End Point Summary headers
 		for (int i = 1; i <= 5; i++) {
 			for (int j = 1; j <= 3; j++) {
@@ -294,7 +292,7 @@ public abstract class DataDumpHelper {
 	 * @param writer
 	 * @param bpc
 	 */
-	public abstract void addHeader(FileWriter writer, Collection<BestPracticeDisplay> bpc) throws IOException;
+	public abstract void addHeader(Writer writer, Collection<BestPracticeDisplay> bpc) throws IOException;
 
 	/**
 	 * Adds headers.
@@ -304,7 +302,7 @@ public abstract class DataDumpHelper {
 	 * @return
 	 * @throws IOException
 	 */
-	void addHeadersLine2b(FileWriter writer, Collection<BestPracticeDisplay> bpc) throws IOException {
+	void addHeadersLine2b(Writer writer, Collection<BestPracticeDisplay> bpc) throws IOException {
 
 		addContinuousHeader(writer, Util.RB.getString("datadump.energytitle"), 7);
 
@@ -345,7 +343,7 @@ public abstract class DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	void addHeadersLine3a(FileWriter writer) throws IOException {
+	void addHeadersLine3a(Writer writer) throws IOException {
 		for (int i = 0; i <= 4; i++) {
 			writer.append(COMMA_SEP);
 			writer.append(packettype);
@@ -362,7 +360,7 @@ public abstract class DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	void addHeadersLine3b(FileWriter writer) throws IOException {
+	void addHeadersLine3b(Writer writer) throws IOException {
 		for (int i = 0; i <= 2; i++) {
 			writer.append(COMMA_SEP);
 			writer.append(value);
@@ -377,7 +375,7 @@ public abstract class DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	void addHeadersLine3c(FileWriter writer) throws IOException {
+	void addHeadersLine3c(Writer writer) throws IOException {
 		writer.append(COMMA_SEP);
 		writer.append(Util.RB.getString("Export.sessionoverview.sessionTerm"));
 		writer.append(COMMA_SEP);
@@ -402,7 +400,7 @@ public abstract class DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	void addHeadersLine3d(FileWriter writer) throws IOException {
+	void addHeadersLine3d(Writer writer) throws IOException {
 		for (int i = 0; i <= 4; i++) {
 			writer.append(COMMA_SEP);
 			writer.append(endpntapp);
@@ -419,7 +417,7 @@ public abstract class DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	void addHeadersLine3e(FileWriter writer) throws IOException {
+	void addHeadersLine3e(Writer writer) throws IOException {
 		for (int j = 0; j <= 15; j++) {
 			writer.append(COMMA_SEP);
 			writer.append(Util.RB.getString("statics.csvFormat.response"));
@@ -436,7 +434,7 @@ public abstract class DataDumpHelper {
 	 * @return
 	 * @throws IOException
 	 */
-	void addHeadersLine1(FileWriter writer, Collection<BestPracticeDisplay> bpc) throws IOException {
+	void addHeadersLine1(Writer writer, Collection<BestPracticeDisplay> bpc) throws IOException {
 
 		addCommas(writer, 8);
 
@@ -463,7 +461,7 @@ public abstract class DataDumpHelper {
 	 * @param bpc
 	 * @throws IOException
 	 */
-	void addHeadersLine2a(FileWriter writer, Collection<BestPracticeDisplay> bpc) throws IOException {
+	void addHeadersLine2a(Writer writer, Collection<BestPracticeDisplay> bpc) throws IOException {
 		addCommas(writer, 4);
 		addBestPractice(writer, bpc);
 		addContinuousHeader(writer, basicStat, 3);
@@ -475,7 +473,7 @@ public abstract class DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	void addTraceInfoHeaderLine3a(FileWriter writer) throws IOException {
+	void addTraceInfoHeaderLine3a(Writer writer) throws IOException {
 		writer.append(Util.RB.getString("datadump.tracename"));
 		writer.append(COMMA_SEP);
 		writer.append(Util.RB.getString("datadump.tracedate"));
@@ -493,7 +491,7 @@ public abstract class DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	void addTraceInfoHeadersLine3b(FileWriter writer) throws IOException {
+	void addTraceInfoHeadersLine3b(Writer writer) throws IOException {
 		writer.append(COMMA_SEP);
 		writer.append(Util.RB.getString("datadump.sizeinbyte"));
 		writer.append(COMMA_SEP);
@@ -510,7 +508,7 @@ public abstract class DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	private void addTraceScoreStatistics(FileWriter writer) throws IOException {
+	private void addTraceScoreStatistics(Writer writer) throws IOException {
 		for (int j = 0; j <= 2; j++) {
 			writer.append(COMMA_SEP);
 			writer.append(appScore);
@@ -523,7 +521,7 @@ public abstract class DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	void addBurstHeadersLine3(FileWriter writer, String header) throws IOException {
+	void addBurstHeadersLine3(Writer writer, String header) throws IOException {
 		// exclude 1 burst, unknown burst
 		int len = BurstCategory.values().length -1;
 		for (int i = 1; i <= len; i++) {
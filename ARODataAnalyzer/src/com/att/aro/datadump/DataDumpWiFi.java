@@ -15,8 +15,8 @@
  */
 package com.att.aro.datadump;
 
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.Collection;
 
 import com.att.aro.bp.BestPracticeDisplay;
@@ -37,7 +37,7 @@ public class DataDumpWiFi extends DataDumpHelper {
 	 *            best practice display collection
 	 */
 	@Override
-	public void addHeader(FileWriter writer, Collection<BestPracticeDisplay> bpc) throws IOException {
+	public void addHeader(Writer writer, Collection<BestPracticeDisplay> bpc) throws IOException {
 
 		// LINE 1:
 		addContinuousHeader(writer, bestPractices, (bpc.size() * 2) - 1);
@@ -86,7 +86,7 @@ public class DataDumpWiFi extends DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	private void addBurstHeadersLine3(FileWriter writer) throws IOException {
+	private void addBurstHeadersLine3(Writer writer) throws IOException {
 		StringBuilder strBuff = new StringBuilder();
 		strBuff.append(COMMA_SEP);
 		strBuff.append(burstbytes);
@@ -111,7 +111,7 @@ public class DataDumpWiFi extends DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	private void addRrcEnergyHeadersLine3(FileWriter writer) throws IOException {
+	private void addRrcEnergyHeadersLine3(Writer writer) throws IOException {
 		for (int i = 0; i <= 2; i++) {
 			writer.append(COMMA_SEP);
 			writer.append(energyJ);
@@ -126,7 +126,7 @@ public class DataDumpWiFi extends DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	private void addRrcHeadersLine3(FileWriter writer) throws IOException {
+	private void addRrcHeadersLine3(Writer writer) throws IOException {
 		for (int i = 0; i <= 2; i++) {
 			writer.append(COMMA_SEP);
 			writer.append(rrcSec);
@@ -141,7 +141,7 @@ public class DataDumpWiFi extends DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	private void addTotalEnergyHeadersLine3(FileWriter writer) throws IOException {
+	private void addTotalEnergyHeadersLine3(Writer writer) throws IOException {
 		writer.append(COMMA_SEP);
 		writer.append(Util.RB.getString("datadump.totalE"));
 	}
@@ -152,7 +152,7 @@ public class DataDumpWiFi extends DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	private void addWifiHeaders2(FileWriter writer) throws IOException {
+	private void addWifiHeaders2(Writer writer) throws IOException {
 		writer.append(wifiAct);
 		writer.append(COMMA_SEP);
 		writer.append(wifiAct);
@@ -173,7 +173,7 @@ public class DataDumpWiFi extends DataDumpHelper {
 	 * @param writer
 	 * @throws IOException
 	 */
-	private void addWifiHeadersLine2(FileWriter writer) throws IOException {
+	private void addWifiHeadersLine2(Writer writer) throws IOException {
 		writer.append(COMMA_SEP);
 		writer.append(wifiAct);
 		writer.append(COMMA_SEP);
@@ -57,6 +57,7 @@ import com.att.aro.main.ResourceBundleManager;
 import com.att.aro.model.HttpRequestResponseInfo;
 import com.att.aro.model.PacketInfo;
 import com.att.aro.model.TCPSession;
+import com.att.aro.model.TimeIndex;
 import com.att.aro.model.TraceData;
 import com.att.aro.video.AROVideoPlayer;
 
@@ -661,26 +662,21 @@ public class AROAdvancedTabb extends SearchablePanel {
 			}
 		}
 
-		double packetTimeStamp = 0.0;
-		PacketInfo matchedPacket = null;
-		if(!tcpSession.isUDP()){
-			for (PacketInfo p : tcpSession.getPackets()) {
-				packetTimeStamp = p.getTimeStamp();
-				if ((bExactMatch && (packetTimeStamp == timeStamp))
-						|| ((packetTimeStamp >= (timeStamp - dTimeRangeInterval)) && (packetTimeStamp <= (timeStamp + dTimeRangeInterval)))) {
-					matchedPacket = p;
-				}
-			}
-		}else{
-			for (PacketInfo p : tcpSession.getUDPPackets()) {
-				packetTimeStamp = p.getTimeStamp();
-				if ((bExactMatch && (packetTimeStamp == timeStamp))
-						|| ((packetTimeStamp >= (timeStamp - dTimeRangeInterval)) && (packetTimeStamp <= (timeStamp + dTimeRangeInterval)))) {
-					matchedPacket = p;
-				}
+		// Session packets are sorted by timestamp, the match is the last
+		// packet within the interval
+		List<PacketInfo> packets = !tcpSession.isUDP() ? tcpSession.getPackets() : tcpSession
+				.getUDPPackets();
+		int index = TimeIndex.lastBeginningAtOrBefore(packets, TimeIndex.PACKETS, timeStamp
+				+ dTimeRangeInterval);
+		if (index >= 0) {
+			PacketInfo p = packets.get(index);
+			double packetTimeStamp = p.getTimeStamp();
+			if ((bExactMatch && (packetTimeStamp == timeStamp))
+					|| (packetTimeStamp >= (timeStamp - dTimeRangeInterval))) {
+				return p;
 			}
 		}
-		return matchedPacket;
+		return null;
 	}
 
 	/**
@@ -456,7 +456,7 @@ public class GraphPanel extends JPanel implements ActionListener, ChartMouseList
 	private double zoomFactor = 2;
 
 	private Set<GraphPanelListener> listeners = new HashSet<GraphPanelListener>();
-	private static List<XYPointerAnnotation> pointerAnnotation = new ArrayList<XYPointerAnnotation>();
+	private List<XYPointerAnnotation> pointerAnnotation = new ArrayList<XYPointerAnnotation>();
 
 	/**
 	 * Initializes a new instance of the GraphPanel class.
@@ -1899,7 +1899,7 @@ public class GraphPanel extends JPanel implements ActionListener, ChartMouseList
 	/**
 	 * Creating Alarm triggered data for graph plot
 	 */
-	private static void populateAlarmPlot(XYPlot plot,
+	private void populateAlarmPlot(XYPlot plot,
 			TraceData.Analysis analysis) {
 
 		final XYIntervalSeriesCollection alarmDataCollection = new XYIntervalSeriesCollection();
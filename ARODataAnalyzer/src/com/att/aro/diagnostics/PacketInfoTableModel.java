@@ -94,6 +94,43 @@ public class PacketInfoTableModel extends DataTableModel<PacketInfo> {
 		}
 	}
 
+	/**
+	 * Returns true for the numeric columns, which are sorted without boxing
+	 * their values.
+	 * 
+	 * @see com.att.aro.commonui.DataTableModel#isNumericColumn(int)
+	 */
+	@Override
+	protected boolean isNumericColumn(int columnIndex) {
+		switch (columnIndex) {
+		case ID_COL:
+		case TIME_COL:
+		case PAYLOAD_COL:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Returns the number a row is sorted by in a numeric column.
+	 * 
+	 * @see com.att.aro.commonui.DataTableModel#getColumnSortValue(java.lang.Object, int)
+	 */
+	@Override
+	protected double getColumnSortValue(PacketInfo item, int columnIndex) {
+		switch (columnIndex) {
+		case ID_COL:
+			return item.getId();
+		case TIME_COL:
+			return item.getTimeStamp();
+		case PAYLOAD_COL:
+			return item.getPacket().getPayloadLen();
+		default:
+			return super.getColumnSortValue(item, columnIndex);
+		}
+	}
+
 	/**
 	 * This is the one method that must be implemented by subclasses. This method defines how 
 	 * the data object managed by this table model is mapped to its columns when displayed 
@@ -195,6 +195,47 @@ public class TCPFlowsTableModel extends DataTableModel<TCPSession> {
     }
 	
 	
+	/**
+	 * Returns true for the numeric columns, which are sorted without boxing
+	 * their values.
+	 * 
+	 * @see com.att.aro.commonui.DataTableModel#isNumericColumn(int)
+	 */
+	@Override
+	protected boolean isNumericColumn(int columnIndex) {
+		switch (columnIndex) {
+		case TIME_COL:
+		case REMOTEPORT_COL:
+		case BYTE_COUNT_COL:
+		case PACKETCOUNT_COL:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Returns the number a row is sorted by in a numeric column.
+	 * 
+	 * @see com.att.aro.commonui.DataTableModel#getColumnSortValue(java.lang.Object, int)
+	 */
+	@Override
+	protected double getColumnSortValue(TCPSession item, int columnIndex) {
+		switch (columnIndex) {
+		case TIME_COL:
+			return !item.isUDP() ? item.getPackets().get(0).getTimeStamp()
+					: item.getUDPPackets().get(0).getTimeStamp();
+		case REMOTEPORT_COL:
+			return item.getRemotePort();
+		case BYTE_COUNT_COL:
+			return item.getBytesTransferred();
+		case PACKETCOUNT_COL:
+			return !item.isUDP() ? item.getPackets().size() : item.getUDPPackets().size();
+		default:
+			return super.getColumnSortValue(item, columnIndex);
+		}
+	}
+
 	/**
 	 * This is the one method that must be implemented by subclasses. This method defines how 
 	 * the data object managed by this table model is mapped to its columns when displayed 
@@ -3,9 +3,13 @@
  */
 package com.att.aro.json;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+import org.codehaus.jackson.JsonGenerator;
+
 import com.att.aro.model.Burst;
 import com.att.aro.model.BurstAnalysisInfo;
 import com.att.aro.model.TraceData;
@@ -17,7 +21,7 @@ import com.att.aro.model.TraceData;
 public class BurstAnalysisGenerator {
 	
 	List<BurstAnalysis> burstAnalysisList = new ArrayList<BurstAnalysis>();
-	List<BurstDetails> burstDetailsList = new ArrayList<BurstDetails>();
+	List<Burst> individualBurstList = Collections.emptyList();
 	
 	public BurstAnalysisGenerator(){
 		
@@ -25,7 +29,8 @@ public class BurstAnalysisGenerator {
 	
 	public void refresh(TraceData.Analysis analysis){
 		List<BurstAnalysisInfo> burstAnalysisInfoList = analysis.getBcAnalysis().getBurstAnalysisInfo();
-		List<Burst> individualBurstList = analysis.getBcAnalysis().getBurstCollection();
+		List<Burst> bursts = analysis.getBcAnalysis().getBurstCollection();
+		burstAnalysisList = new ArrayList<BurstAnalysis>();
 		if(burstAnalysisInfoList != null ){
 			for (BurstAnalysisInfo burstAnalysisInfo: burstAnalysisInfoList) {
 				BurstAnalysis burstAnalysis = new BurstAnalysis();
@@ -42,26 +47,45 @@ public class BurstAnalysisGenerator {
 			}
 		}
 		
-		if(individualBurstList != null){
-			for (Burst burst : individualBurstList) {
-				BurstDetails burstDetails = new BurstDetails();
-				burstDetails.setBurst(burst.getBurstCategory().getBurstTypeDescription());
-				burstDetails.setStartTime(burst.getBeginTime());
-				burstDetails.setTimeElasped(burst.getElapsedTime());
-				burstDetails.setBytes(burst.getBurstBytes());
-				burstDetails.setPacketCount(burst.getPackets().size());
-				burstDetailsList.add(burstDetails);
-			}
-		}
+		// Individual bursts are converted when they are written
+		individualBurstList = bursts != null ? bursts : Collections.<Burst>emptyList();
 		
 	}
 	
+	private BurstDetails getBurstDetails(Burst burst){
+		BurstDetails burstDetails = new BurstDetails();
+		burstDetails.setBurst(burst.getBurstCategory().getBurstTypeDescription());
+		burstDetails.setStartTime(burst.getBeginTime());
+		burstDetails.setTimeElasped(burst.getElapsedTime());
+		burstDetails.setBytes(burst.getBurstBytes());
+		burstDetails.setPacketCount(burst.getPackets().size());
+		return burstDetails;
+	}
+	
 	public BurstAnalysis[] getBurstAnalysis(){
 		return this.burstAnalysisList.toArray(new BurstAnalysis[this.burstAnalysisList.size()]);
 	}
 
 	public BurstDetails[] getAllIndividualBursts(){
-		return this.burstDetailsList.toArray(new BurstDetails[this.burstDetailsList.size()]);
+		BurstDetails[] burstDetails = new BurstDetails[individualBurstList.size()];
+		for(int i = 0; i < burstDetails.length; i++){
+			burstDetails[i] = getBurstDetails(individualBurstList.get(i));
+		}
+		return burstDetails;
+	}
+	
+	/**
+	 * Writes the individual bursts as a JSON array, one burst at a time.
+	 * 
+	 * @param generator The generator, with an object codec.
+	 * @throws IOException
+	 */
+	public void writeIndividualBursts(JsonGenerator generator) throws IOException{
+		generator.writeStartArray();
+		for(Burst burst : individualBurstList){
+			generator.writeObject(getBurstDetails(burst));
+		}
+		generator.writeEndArray();
 	}
 	
 	
@@ -3,9 +3,17 @@
  */
 package com.att.aro.json;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
-import com.att.aro.main.AROBestPracticesTab;
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.map.ObjectMapper;
+
+import com.att.aro.bp.BestPracticeDisplay;
+import com.att.aro.bp.BestPracticeEvaluator;
+import com.att.aro.bp.BestPracticeExport;
 import com.att.aro.model.CacheInfoParser;
 import com.att.aro.model.EnergyModel;
 import com.att.aro.model.FileTypeSummary;
@@ -54,11 +62,11 @@ public class JsonGenerator {
 	}
 	
 	
-	public JsonMapper getJsonMapper(AROBestPracticesTab aroBestPracticesPanel){
+	public JsonMapper getJsonMapper(){
 		JsonMapper jsonFileMapper = new JsonMapper();
 		
 		jsonFileMapper.setTraceSummary(getTraceSummaryGanerator().getTraceSummaryObject());
-		jsonFileMapper.setBestPractices(aroBestPracticesPanel.getBestPracticesPanel().getBestPracticeContentForJson(analysisData));
+		jsonFileMapper.setBestPractices(getBestPractices());
 		jsonFileMapper.setFileTypeSummary(getFileTypesSummery());
 		jsonFileMapper.setTraceBenchmarking(getBenchMarkGenerator().getBenchMarkingDetails());
 		jsonFileMapper.setConnectionStatistics(getBenchMarkGenerator().getConnectionStats());
@@ -78,6 +86,77 @@ public class JsonGenerator {
 		return jsonFileMapper;
 	}
 		
+	/**
+	 * Writes the JSON report of the analysis to a file. Each section is
+	 * generated and flushed before the next one, so that the report is never
+	 * held in memory as a whole. The individual bursts are written one at a
+	 * time.
+	 * 
+	 * @param file The report file.
+	 * @throws IOException
+	 */
+	public void writeJson(File file) throws IOException{
+		ObjectMapper objectMapper = new ObjectMapper();
+		org.codehaus.jackson.JsonGenerator generator = objectMapper.getJsonFactory().createJsonGenerator(file, JsonEncoding.UTF8);
+		try{
+			generator.writeStartObject();
+			writeSection(generator, "traceSummary", getTraceSummaryGanerator().getTraceSummaryObject());
+			writeSection(generator, "bestPractices", getBestPractices());
+			writeSection(generator, "fileTypeSummary", getFileTypesSummery());
+			writeSection(generator, "traceBenchmarking", getBenchMarkGenerator().getBenchMarkingDetails());
+			writeSection(generator, "connectionStatistics", getBenchMarkGenerator().getConnectionStats());
+			writeSection(generator, "traceScore", getTraceScoreGenerator().getTraceScore());
+			writeSection(generator, "applicationEndpointSummary", getEndpointSummaryGenerator().getAppPacketSummary());
+			writeSection(generator, "ipAddressEndpointSummary", getEndpointSummaryGenerator().getIPPacketSummary());
+			writeSection(generator, "rrcMachineStates", getRRCStateGenerator().getRRCStateDetails());
+			writeSection(generator, "burstAnalysis", getBurstAnalysisGenerator().getBurstAnalysis());
+			generator.writeFieldName("individualBurstAnalysis");
+			getBurstAnalysisGenerator().writeIndividualBursts(generator);
+			generator.flush();
+			writeSection(generator, "cacheSimulationDetails", this.cacheParser);
+			writeSection(generator, "energyEffeciencyDetails", this.energyEfficency);
+			generator.writeEndObject();
+		} finally {
+			generator.close();
+		}
+	}
+	
+	private void writeSection(org.codehaus.jackson.JsonGenerator generator, String name, Object value) throws IOException{
+		generator.writeFieldName(name);
+		generator.writeObject(value);
+		generator.flush();
+	}
+	
+	/**
+	 * Returns the best practice results of the analysis, without using the
+	 * best practices tab.
+	 */
+	private BestPractices[] getBestPractices(){
+		List<BestPractices> bestPracticesList = new ArrayList<BestPractices>();
+		if(this.analysisData == null){
+			return new BestPractices[0];
+		}
+		for(BestPracticeDisplay bp : BestPracticeEvaluator.getBestPractices()){
+			BestPractices bpObj = new BestPractices();
+			bpObj.setName(bp.getDetailTitle());
+			bpObj.setResult(BestPracticeEvaluator.evaluate(bp, analysisData).getText());
+			
+			List<BestPracticeDetails> resultList = new ArrayList<BestPracticeDetails>();
+			List<BestPracticeExport> list = bp.getExportData(analysisData);
+			if(list != null){
+				for(BestPracticeExport bpe : list){
+					BestPracticeDetails resultDetails = new BestPracticeDetails();
+					resultDetails.setValue(bpe.getValue());
+					resultDetails.setDescription(bpe.getUnitsDescription());
+					resultList.add(resultDetails);
+				}
+			}
+			bpObj.setResultDetails(resultList.toArray(new BestPracticeDetails[resultList.size()]));
+			bestPracticesList.add(bpObj);
+		}
+		return bestPracticesList.toArray(new BestPractices[bestPracticesList.size()]);
+	}
+	
 	private TraceSummaryGenerator getTraceSummaryGanerator(){
 		if(traceSummaryGenerator == null){
 			traceSummaryGenerator = new TraceSummaryGenerator();
@@ -72,7 +72,7 @@ public class TraceSummaryGenerator {
 			
 			this.summary.setProfile(analysisData.getProfile().getName()); //Profile
 			
-			if(TraceData.getCryptAdapter() != null) {
+			if(traceData.getCryptAdapter() != null) {
 				double totalhttpsDataKB = (double)analysisData.getTotalHTTPSBytes()/1024;
 				
 				//Https Data
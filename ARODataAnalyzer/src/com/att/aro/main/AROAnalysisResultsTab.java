@@ -50,7 +50,6 @@ import javax.swing.filechooser.FileNameExtensionFilter;
 
 import org.codehaus.jackson.JsonGenerationException;
 import org.codehaus.jackson.map.JsonMappingException;
-import org.codehaus.jackson.map.ObjectMapper;
 
 import com.att.aro.commonui.AROUIManager;
 import com.att.aro.commonui.ImagePanel;
@@ -58,7 +57,6 @@ import com.att.aro.commonui.MessageDialogFactory;
 import com.att.aro.commonui.RoundedBorder;
 import com.att.aro.images.Images;
 import com.att.aro.json.JsonGenerator;
-import com.att.aro.json.JsonMapper;
 import com.att.aro.model.Profile;
 import com.att.aro.model.Profile3G;
 import com.att.aro.model.ProfileLTE;
@@ -855,7 +853,6 @@ public class AROAnalysisResultsTab extends JScrollPane implements Printable {
 		}
 
 //		final Profile profile = this.parent.getProfile();
-		final AROBestPracticesTab aroBestPracticesPanel = this.parent.getBestPracticesPanel();
 //		final AROAnalysisResultsTab analyisResultsPanel = this.parent.getAnalysisResultsPanel();
 /*
 		TraceData traceData = null;
@@ -864,16 +861,9 @@ public class AROAnalysisResultsTab extends JScrollPane implements Printable {
 		}
 */		
 //		FileWriter writer = new FileWriter(file);
-		ObjectMapper objectMapper = new ObjectMapper();
-		
-		JsonMapper jsonFileMapper;
 		try {
 			
-			jsonFileMapper = getJsonGenerator().getJsonMapper(aroBestPracticesPanel);
-						
-			
-		    objectMapper.writeValue(file, jsonFileMapper);
-		 
+			getJsonGenerator().writeJson(file);
 	
 		} catch (JsonGenerationException e) {
             e.printStackTrace();
@@ -46,16 +46,14 @@ import javax.swing.JScrollPane;
 import javax.swing.SwingConstants;
 import javax.swing.UIManager;
 
-import com.att.aro.bp.BPTextFileCompression;
 import com.att.aro.bp.BestPracticeDisplay;
 import com.att.aro.bp.BestPracticeDisplayFactory;
 import com.att.aro.bp.BestPracticeDisplayGroup;
+import com.att.aro.bp.BestPracticeEvaluator;
 import com.att.aro.bp.BestPracticeExport;
 import com.att.aro.commonui.AROUIManager;
 import com.att.aro.commonui.ImagePanel;
 import com.att.aro.images.Images;
-import com.att.aro.json.BestPracticeDetails;
-import com.att.aro.json.BestPractices;
 import com.att.aro.model.TraceData;
 
 /**
@@ -148,6 +146,7 @@ public class AROBestPracticesPanel extends JScrollPane implements Printable {
 	 *            - The Analysis object containing the trace data.
 	 */
 	public void refresh(TraceData.Analysis analysisData) {
+		BestPracticeDisplayFactory.setBPResultsTables(analysisData);
 		bpOverallResultsPanel.refresh(analysisData);
 		for (AROBpDetailedResultPanel panel : detailedResultPanels) {
 			panel.refresh(analysisData);
@@ -222,10 +221,6 @@ public class AROBestPracticesPanel extends JScrollPane implements Printable {
 	public void addBestPracticeContent(FileWriter writer, TraceData.Analysis analysisData) throws IOException {
 		String lineSep = BestPracticeExport.lINE;
 		String cellSep = BestPracticeExport.COMMA;
-		String pass = rb.getString("bestPractice.tooltip.pass");
-		String fail = rb.getString("bestPractice.tooltip.fail");
-		String warning = rb.getString("bestPractice.tooltip.warning");
-		String manual = rb.getString("bestPractice.tooltip.manual");
 
 		// Write the section header
 		writer.append(rb.getString("exportall.csvHeader.bestpractice"));
@@ -239,33 +234,7 @@ public class AROBestPracticesPanel extends JScrollPane implements Printable {
 			// Write title and status
 			BestPracticeExport.writeValue(writer, bp.getDetailTitle());
 			writer.append(cellSep);
-			if (bp.isSelfTest()) {
-				BestPracticeExport.writeValue(writer, manual);
-			} else {
-				//Added for Text Compression US197546
-				if (bp.getOverviewTitle().equals(rb.getString(BPTextFileCompression.TEXT_FILE_COMPRESSION_OVERVIEW_TITLE))){
-					String status = fail;
-					if (bp.isPass(analysisData)){
-						status = pass;
-					}
-					else if (bp.isWarning(analysisData)){
-						status = warning;
-					}
-					
-					BestPracticeExport.writeValue(writer, status);
-				} //end for Text Compression US197546
-				
-				else if(((bp.getOverviewTitle()).equals(rb.getString("caching.usingCache.title")))
-						|| ((bp.getOverviewTitle()).equals(rb.getString("caching.cacheControl.title")))
-						|| ((bp.getOverviewTitle()).equals(rb.getString("connections.offloadingToWifi.title")))
-						|| ((bp.getOverviewTitle()).equals(rb.getString("html.httpUsage.title")))
-						|| ((bp.getOverviewTitle()).equals(rb.getString("other.accessingPeripherals.title")))
-						) {
-					BestPracticeExport.writeValue(writer, bp.isPass(analysisData) ? pass : warning);
-				} else {
-					BestPracticeExport.writeValue(writer, bp.isPass(analysisData) ? pass : fail);
-				}
-			}
+			BestPracticeExport.writeValue(writer, BestPracticeEvaluator.evaluate(bp, analysisData).getText());
 			writer.write(lineSep);
 			
 			// Write custom info for best practice
@@ -364,79 +333,6 @@ public class AROBestPracticesPanel extends JScrollPane implements Printable {
 		return bestPracticesList;
 	}
 */
-	/**
-	 * Genarate data for Json file
-	 * @param analysisData
-	 * @return
-	 */
-	public BestPractices[] getBestPracticeContentForJson(TraceData.Analysis analysisData) {
-
-		String pass = rb.getString("bestPractice.tooltip.pass");
-		String fail = rb.getString("bestPractice.tooltip.fail");
-		String warning = rb.getString("bestPractice.tooltip.warning");
-		String manual = rb.getString("bestPractice.tooltip.manual");
-		List<BestPractices> bestPracticesList = new ArrayList<BestPractices>();
-		// Iterate through best practices
-		for (AROBpOverallResulsPanel.BPResultRowPanel resultPanel : bpOverallResultsPanel.getResultRowPanels(null)) {
-			
-			//Map<String, Object> bestPractices = new HashMap<String, Object>();
-			BestPractices bpObj = new BestPractices();
-			BestPracticeDisplay bp = resultPanel.getBp();
-			
-			// Write title and status
-			bpObj.setName(bp.getDetailTitle());
-			
-			String bpresultString = "";
-			if (bp.isSelfTest()) {
-				bpresultString = manual;
-			} else {
-				//Added for Text Compression US197546
-				if (bp.getOverviewTitle().equals(rb.getString(BPTextFileCompression.TEXT_FILE_COMPRESSION_OVERVIEW_TITLE))){
-					String status = fail;
-					if (bp.isPass(analysisData)){
-						status = pass;
-					}
-					else if (bp.isWarning(analysisData)){
-						status = warning;
-					}
-					
-					bpresultString = status;
-				} //end for Text Compression US197546
-				
-				else if(((bp.getOverviewTitle()).equals(rb.getString("caching.usingCache.title")))
-						|| ((bp.getOverviewTitle()).equals(rb.getString("caching.cacheControl.title")))
-						|| ((bp.getOverviewTitle()).equals(rb.getString("connections.offloadingToWifi.title")))
-						|| ((bp.getOverviewTitle()).equals(rb.getString("html.httpUsage.title")))
-						|| ((bp.getOverviewTitle()).equals(rb.getString("other.accessingPeripherals.title")))
-						) {
-					bpresultString = bp.isPass(analysisData) ? pass : warning;
-					
-				} else {
-					bpresultString = bp.isPass(analysisData) ? pass : fail;
-				}
-			}
-			bpObj.setResult(bpresultString);
-			
-			List<BestPracticeDetails> resultList = new ArrayList<BestPracticeDetails>();
-			// Write custom info for best practice
-			List<BestPracticeExport> list = bp.getExportData(analysisData);
-			if (list != null && list.size() > 0) {
-				for (BestPracticeExport bpe : list) {
-					BestPracticeDetails resultDetails = new BestPracticeDetails();
-					resultDetails.setValue(bpe.getValue());
-					resultDetails.setDescription(bpe.getUnitsDescription());
-					
-					resultList.add(resultDetails);
-					
-				}
-			} 
-			bpObj.setResultDetails(resultList.toArray(new BestPracticeDetails[resultList.size()]));
-			
-			bestPracticesList.add(bpObj);
-		}
-		
-		return bestPracticesList.toArray(new BestPractices[bestPracticesList.size()]);
-	}
 	
 	
 	/**
@@ -52,6 +52,7 @@ import org.jfree.ui.tabbedui.VerticalLayout;
 
 import com.att.aro.bp.BestPracticeDisplay;
 import com.att.aro.bp.BestPracticeDisplayGroup;
+import com.att.aro.bp.BestPracticeEvaluator;
 import com.att.aro.commonui.AROUIManager;
 import com.att.aro.commonui.HyperlinkLabel;
 import com.att.aro.commonui.ImagePanel;
@@ -297,7 +298,7 @@ public class AROBpOverallResulsPanel extends JPanel {
 					pctFmt.format(httpsDataNotAnalyzedPct), 
 					df.format(httpsDataNotAnalyzedKB)));
 			
-			if(TraceData.getCryptAdapter() == null) {
+			if(analysisData.getTraceData().getCryptAdapter() == null) {
 				totalhttpsDataPanel.setVisible(false);
 				httpsDataAnalyzedPanel.setVisible(false);
 			} else {
@@ -606,25 +607,18 @@ public class AROBpOverallResulsPanel extends JPanel {
 				iconLabel.setToolTipText(MANUAL);
 				referSectionLabel.setVisible(true);
 			} else {
-				boolean isPass = bp.isPass(analysis);
-				if (isPass) {
+				BestPracticeEvaluator.Result result = BestPracticeEvaluator.evaluate(bp, analysis);
+				if (result == BestPracticeEvaluator.Result.PASS) {
 					iconLabel.setIcon(PASS_ICON);
 					iconLabel.setToolTipText(PASS);
-				}else{
-					if(((bp.getOverviewTitle()).equals(rb.getString("caching.usingCache.title")))
-							|| ((bp.getOverviewTitle()).equals(rb.getString("caching.cacheControl.title")))
-							|| ((bp.getOverviewTitle()).equals(rb.getString("connections.offloadingToWifi.title")))
-							|| ((bp.getOverviewTitle()).equals(rb.getString("html.httpUsage.title")))
-							|| ((bp.getOverviewTitle()).equals(rb.getString("other.accessingPeripherals.title")))
-							|| (bp.isWarning(analysis))){
-						iconLabel.setIcon(WARNING_ICON);
-						iconLabel.setToolTipText(WARNING); 
-					}else {
-						iconLabel.setIcon(FAIL_ICON);
-						iconLabel.setToolTipText(FAIL);
-					}
+				} else if (result == BestPracticeEvaluator.Result.WARNING) {
+					iconLabel.setIcon(WARNING_ICON);
+					iconLabel.setToolTipText(WARNING); 
+				} else {
+					iconLabel.setIcon(FAIL_ICON);
+					iconLabel.setToolTipText(FAIL);
 				}
-				referSectionLabel.setVisible(!isPass);
+				referSectionLabel.setVisible(result != BestPracticeEvaluator.Result.PASS);
 			}
 		}
 
@@ -682,7 +676,7 @@ public class AROBpOverallResulsPanel extends JPanel {
 		nf.setMinimumIntegerDigits(1);
 		DecimalFormat df = new DecimalFormat("#.##");
 		
-		if(TraceData.getCryptAdapter() != null) {
+		if(analysisData.getTraceData().getCryptAdapter() != null) {
 			double totalhttpsDataKB = (double)analysisData.getTotalHTTPSBytes()/1024;
 			writer = addKeyValue(writer, RB.getString("bestPractices.TotalHTTPSData"),
 					MessageFormat.format(
@@ -69,7 +69,6 @@ import javax.swing.JTabbedPane;
 import javax.swing.JToolTip;
 import javax.swing.SwingConstants;
 import javax.swing.SwingWorker;
-import javax.swing.Timer;
 import javax.swing.ToolTipManager;
 import javax.swing.UIManager;
 import javax.swing.event.ChangeEvent;
@@ -110,8 +109,10 @@ import com.att.aro.model.Profile3G;
 import com.att.aro.model.ProfileException;
 import com.att.aro.model.ProfileLTE;
 import com.att.aro.model.ProfileType;
+import com.att.aro.model.ProgressMonitor;
 import com.att.aro.interfaces.Settings;
 import com.att.aro.model.SettingsImpl;
+import com.att.aro.model.StageProgress;
 import com.att.aro.model.TimeRange;
 import com.att.aro.model.TraceData;
 import com.att.aro.model.UserPreferences;
@@ -119,7 +120,6 @@ import com.att.aro.pcap.PCapAdapter;
 import com.att.aro.plugin.AnalyzerPlugin;
 import com.att.aro.plugin.MenuPlugin;
 import com.att.aro.plugin.ResultExportPlugin;
-import com.att.aro.ssl.SslKey;
 import com.att.aro.util.ShellReceiver;
 import com.att.aro.util.Util;
 import com.att.aro.video.AROVideoPlayer;
@@ -384,7 +384,7 @@ public class ApplicationResourceOptimizer extends JFrame {
 
 			traceDirectory = traceFileName.getParentFile();
 			try {
-				traceData = new TraceData(traceFileName);
+				traceData = new TraceData(traceFileName, progressMonitor);
 				sendTraceInfoToGA();
 			} catch (UnsatisfiedLinkError e1) {
 				LOGGER.log(Level.SEVERE, "UnsatisifiedLinkError while getting the parent file");
@@ -418,6 +418,13 @@ public class ApplicationResourceOptimizer extends JFrame {
 			} catch (Exception e) {
 				LOGGER.log(Level.SEVERE, "Exception while finding the missing files");
 			}
+
+			// Errors reading the trace, such as reading its SSL keys
+			if (traceData != null) {
+				for (String error : traceData.getLoadErrors()) {
+					MessageDialogFactory.showMessageDialog(mAROAnalyzer, error, RB.getString("Error.title"), JOptionPane.ERROR_MESSAGE);
+				}
+			}
 			// Make sure profile type matches network type of trace
 			try {
 
@@ -453,89 +460,17 @@ public class ApplicationResourceOptimizer extends JFrame {
 
 			// Change window name to reflect trace directory
 			setTitle(MessageFormat.format(RB.getString("aro.title"), traceFileName.toString()));
+			progressMonitor.removeListener(pb);
 			pb.dispose();
 		}
 
 	}
 
-	public Timer timer;
 	private ApplicationResourceOptimizer mAROAnalyzer;
-	private DeterminateProgressBar pb = new DeterminateProgressBar(ApplicationResourceOptimizer.this, RB.getString("progress.loadingTrace"));
+	private AROProgressDialog pb = new AROProgressDialog(ApplicationResourceOptimizer.this, RB.getString("progress.loadingTrace"));
 	private File traceFileName = null;
-
-	public class DeterminateProgressBar extends JDialog {
-
-		private static final long serialVersionUID = 1L;
-
-		public final static int ONE_SECOND = 1000;
-
-		private JProgressBar progressBar;
-		private JLabel label;
-		private int onePercent = 0;
-		private int setPBNewValue = 0;
-
-		public DeterminateProgressBar(Window parent, String message) {
-
-			super(parent, RB.getString("aro.title.short"));
-			setResizable(false);
-			setLayout(new BorderLayout());
-			setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
-
-			this.label = new JLabel(message, SwingConstants.CENTER);
-			this.label.setPreferredSize(new Dimension(350, 60));
-			add(label, BorderLayout.NORTH);
-
-			progressBar = new JProgressBar(0, 100);
-			progressBar.setValue(0);
-			progressBar.setPreferredSize(new Dimension(320, 15));
-			progressBar.setIndeterminate(false);
-			progressBar.setStringPainted(true);
-			add(progressBar, BorderLayout.CENTER);
-			pack();
-			setLocationRelativeTo(parent);
-
-			progressBar.setVisible(true);
-
-			// Create a timer.
-			timer = new Timer(3000, new ActionListener() {
-				public void actionPerformed(ActionEvent evt) {
-
-					// progressBar.setValue(0);
-					LOGGER.log(Level.FINE, "completed " + TraceData.packetIdx + " out of " + TraceData.totalNoPackets + " and remaining is "
-							+ TraceData.remainingPackets);
-					try {
-						/*
-						 * Waiting for an additional 2 seconds as sometimes
-						 * parsing doesnt start in the given 3 seconds time
-						 */
-						if (TraceData.totalNoPackets == 0) {
-							try {
-								Thread.sleep(2000);
-							} catch (InterruptedException e) {
-								LOGGER.log(Level.INFO, "Exception while calling sleep");
-							}
-						}
-
-						if (TraceData.totalNoPackets > 0) {
-							onePercent = TraceData.totalNoPackets / 100;
-							setPBNewValue = TraceData.packetIdx / onePercent;
-							progressBar.setValue(setPBNewValue);
-						}
-						if (TraceData.remainingPackets < onePercent) {
-							timer.stop();
-							pb.dispose();
-						}
-					} catch (ArithmeticException e) {
-						LOGGER.log(Level.INFO, "Divide by zero error, there are no packets in the trace");
-						timer.stop();
-					} catch (NullPointerException e) {
-						LOGGER.log(Level.INFO, "Null Pointer Exception, there are no packets to parse");
-						timer.stop();
-					}
-				}
-			});
-		}
-	}
+	private ProgressMonitor progressMonitor;
+	private File timingProfileFile;
 
 	/**
 	 * Opens the specified trace directory.
@@ -551,17 +486,15 @@ public class ApplicationResourceOptimizer extends JFrame {
     
 		traceFileName = dir;
 
-		// Initializing all the packet counters
-		TraceData.packetIdx = 0;
-		TraceData.totalNoPackets = 0;
-		TraceData.remainingPackets = 0;
+		// The progress dialog displays the stages of the load
+		progressMonitor = new ProgressMonitor();
+		progressMonitor.addListener(pb);
 
 		clearTrace();
 		
 		// Calling the parsethread to start analyzing the packets
 		Thread parseTraceThread = new Thread(new ParseTrace(), "ParseThread");
 		parseTraceThread.start();// Actual packet parsing happens here
-		timer.start();// Calling the timer to start the determinate progress bar
 		pb.pack();
 		pb.setVisible(true);
 	}
@@ -594,7 +527,6 @@ public class ApplicationResourceOptimizer extends JFrame {
 		if (this.analysisData != null) {
 			getAroVideoPlayer().clear();
 			this.analysisData.clear();
-			SslKey.clearSavedTLSSessions();
 			displayAnalysis(null, this.profile, null, null);
 		}
 	}
@@ -627,6 +559,8 @@ public class ApplicationResourceOptimizer extends JFrame {
 		pcapFileName = pcap;
 
 		this.progress = new AROProgressDialog(ApplicationResourceOptimizer.this, RB.getString("progress.loadingTrace"));
+		progressMonitor = new ProgressMonitor();
+		progressMonitor.addListener(progress);
 		progress.setVisible(true);
 
 		new SwingWorker<Void, Void>() {
@@ -640,7 +574,7 @@ public class ApplicationResourceOptimizer extends JFrame {
 
 				traceDirectory = pcapFileName.getParentFile();
 				try {
-					traceData = new TraceData(pcapFileName);
+					traceData = new TraceData(pcapFileName, progressMonitor);
 					AnalyticFactory.getGoogleAnalytics().sendAnalyticsEvents(RB.getString("ga.request.event.category.analyzer"), RB.getString("ga.request.event.analyzer.action.load"), RB.getString("ga.request.event.analyzer.action.load.pcap"));
 				} catch (UnsatisfiedLinkError e) {
 					LOGGER.log(Level.SEVERE, "Unsatisfied Link Error Exception while loading the traces");
@@ -651,6 +585,7 @@ public class ApplicationResourceOptimizer extends JFrame {
 			}
 
 			protected void done() {
+				progressMonitor.removeListener(progress);
 				try {
 					if(getTraceData().getAllPackets().size() == 0) {
 						progress.dispose();
@@ -1839,27 +1774,27 @@ public class ApplicationResourceOptimizer extends JFrame {
 			if(analysis != null) {
 				BestPractices bp = analysis.getBestPractice();
 				if(bp != null) {
-					HttpCode3XXResultPanel httpCode3XXPanel = bp.getHttpPanel();
+					HttpCode3XXResultPanel httpCode3XXPanel = BestPracticeDisplayFactory.getHttpRspCdResults();
 					Http4xx5xxStatusResponseCodesResultPanel http4xx5xxStatusResponseCodesResultPanel
-					= bp.getHttp4xx5xxPanel();
+					= BestPracticeDisplayFactory.getHttp4xx5xxResults();
 					DuplicateResultPanel duplicateResultPanel
-					= bp.getDuplicatePanel();
+					= BestPracticeDisplayFactory.getDupicate();
 					AsyncCheckResultPanel asyncCheckResultPanel
-					= bp.getAsyncPanel();
+					= BestPracticeDisplayFactory.getAsyncCheckResults();
 					DisplayNoneInCSSResultPanel displayNoneInCSSResultPanel
-					= bp.getdisplayNoneInCSSResultPanel();
+					= BestPracticeDisplayFactory.getDisplayNoneInCSSResultPanel();
 					FileOrderResultPanel fileOrderResultPanel
-					= bp.getfileOrderResultPanel();
+					= BestPracticeDisplayFactory.getFileOrderResultPanel();
 					ImageSizeResultPanel imageSizeResultPanel
-					= bp.getimageSizeResultPanel();
+					= BestPracticeDisplayFactory.getImageSize();
 					MinificationResultPanel minificationResultPanel
-					= bp.getminificationResultPanel();
+					= BestPracticeDisplayFactory.getMinification();
 //					SmallRequestResultPanel smallRequestResultPanel
 //					= bp.getsmallRequestResultPanel();
 					SpriteImageResultPanel spriteImageResultPanel
-					= bp.getspriteImageResultPanel();
+					= BestPracticeDisplayFactory.getSpriteImageResults();
 					TextFileCompressionResultPanel textFileCompressionResultPanel
-					= bp.gettextFileCompressionResultPanel();
+					= BestPracticeDisplayFactory.getTextFileCompression();
 					
 					if(httpCode3XXPanel != null) {
 						httpCode3XXPanel.updateTableForPrint();
@@ -2185,6 +2120,7 @@ public class ApplicationResourceOptimizer extends JFrame {
 			new SwingWorker<TraceData.Analysis, Object>() {
 
 				private AROProgressDialog dialog;
+				private ProgressMonitor monitor = traceData.getProgressMonitor();
 				private WindowListener wl = new WindowAdapter() {
 
 					@Override
@@ -2201,6 +2137,7 @@ public class ApplicationResourceOptimizer extends JFrame {
 				{
 					dialog = new AROProgressDialog(ApplicationResourceOptimizer.this, RB.getString("progress.loadingTraceResults"));
 					dialog.addWindowListener(wl);
+					monitor.addListener(dialog);
 					dialog.setVisible(true);
 				}
 
@@ -2215,7 +2152,10 @@ public class ApplicationResourceOptimizer extends JFrame {
 				protected void done() {
 					try {
 						if (!this.isCancelled()) {
+							StageProgress stage = monitor.startStage(ProgressMonitor.REPORT, 0);
 							displayAnalysis(get(), profile, filter, msg);
+							stage.finish();
+							writeTimingProfile(monitor);
 						} else {
 							return;
 						}
@@ -2234,6 +2174,7 @@ public class ApplicationResourceOptimizer extends JFrame {
 							MessageDialogFactory.showUnexpectedExceptionDialog(ApplicationResourceOptimizer.this, e);
 						}
 					} finally {
+						monitor.removeListener(dialog);
 						dialog.removeWindowListener(wl);
 						dialog.dispose();
 						if(CommandLineHandler.getInstance().IsCommandLineEvent() == true) {
@@ -2258,6 +2199,32 @@ public class ApplicationResourceOptimizer extends JFrame {
 		}
 	}
 	
+	/**
+	 * Sets the file the timing profile of the stages of each load and analysis
+	 * is written to.
+	 * 
+	 * @param timingProfileFile
+	 *            The CSV file, or null to not write the profile.
+	 */
+	public void setTimingProfileFile(File timingProfileFile) {
+		this.timingProfileFile = timingProfileFile;
+	}
+
+	/**
+	 * Writes the timings of the stages of a load to the timing profile file,
+	 * when one is set.
+	 */
+	private void writeTimingProfile(ProgressMonitor monitor) {
+		if (timingProfileFile != null) {
+			try {
+				monitor.writeProfile(timingProfileFile);
+				LOGGER.log(Level.INFO, "Timing profile written to {0}", timingProfileFile);
+			} catch (IOException e) {
+				LOGGER.log(Level.WARNING, "Unable to write timing profile", e);
+			}
+		}
+	}
+
 	/**
 	 * Load the ResultExportPlugin to Analyzer.
 	 * Target class must be defined in the 'cmdline.plugin.export.class.list' resource bundle
@@ -22,6 +22,7 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.text.MessageFormat;
 import java.util.Date;
 import java.util.ResourceBundle;
 import java.util.logging.FileHandler;
@@ -29,6 +30,7 @@ import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
 
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
 
 import com.android.ddmlib.IDevice;
@@ -38,6 +40,8 @@ import com.att.aro.analytics.AnalyticFactory;
 import com.att.aro.commonui.DataCollectorFolderDialog;
 import com.att.aro.commonui.MessageDialogFactory;
 import com.att.aro.interfaces.ImageSubscriber;
+import com.att.aro.model.LiveAnalysis;
+import com.att.aro.model.LiveTraceMonitor;
 import com.att.aro.model.MobileDevice;
 import com.att.aro.model.NetworkType;
 import com.att.aro.model.TraceData;
@@ -84,6 +88,11 @@ public class DataCollectorNoRootVpn implements ImageSubscriber {
   * VPN based non rooted packet capture
   */
     VPNPacketCapture vpnPacketCapture;
+
+	/**
+	 * Analyzes the capture while it runs, shown below the live screen
+	 */
+	private LiveTraceMonitor liveMonitor;
 	private FileHandler logFile;
 	private String traceFolder = null;
 	
@@ -160,7 +169,7 @@ public class DataCollectorNoRootVpn implements ImageSubscriber {
 		Thread pcapThread = new Thread(new Runnable() {
 			public void run() {
 				//String tracePath = dirpath + Util.FILE_SEPARATOR + Util.TRAFFIC_FILE;
-				vpnPacketCapture.startPacketCapture(device, traceFolder);
+				vpnPacketCapture.startPacketCapture(device, traceFolder, folder.isCaptureVideo());
 			}
 		});
 		pcapThread.start();
@@ -200,6 +209,7 @@ public class DataCollectorNoRootVpn implements ImageSubscriber {
 					}
 					logger.info("Check flag for the video capture :" + vpnPacketCapture.isCancelFlag());
 					if (!vpnPacketCapture.isCancelFlag()) {
+						startLiveAnalysis();
 						doBackgroundTask();
 					} else {
 						liveview.setVisible(false);
@@ -294,6 +304,46 @@ public class DataCollectorNoRootVpn implements ImageSubscriber {
 		return dirpath;
 	}
 	
+	/**
+	 * Tails the capture on the device and shows its live analysis below the
+	 * live screen
+	 */
+	private void startLiveAnalysis() {
+		DeviceCaptureSource source = new DeviceCaptureSource(device, "/sdcard/ARO", new File(localTraceFolder, "live"));
+		liveMonitor = new LiveTraceMonitor(source, mAROAnalyzer.getProfile(), new LiveTraceMonitor.Listener() {
+			@Override
+			public void liveAnalysisUpdated(LiveAnalysis.Snapshot snapshot) {
+				double[] down = snapshot.getDownlinkThroughput();
+				double[] up = snapshot.getUplinkThroughput();
+				double energy = snapshot.getRrc() != null ? snapshot.getRrc().getTotalRRCEnergy() : 0.0;
+				final String text = MessageFormat.format(rb.getString("collector.livestatus"),
+						snapshot.getOpenSessionCount(),
+						down.length > 0 ? down[down.length - 1] : 0.0,
+						up.length > 0 ? up[up.length - 1] : 0.0,
+						energy);
+				SwingUtilities.invokeLater(new Runnable() {
+					@Override
+					public void run() {
+						liveview.setLiveStatus(text);
+					}
+				});
+			}
+
+			@Override
+			public void liveAnalysisFailed(IOException e) {
+				logger.info("Live analysis stopped: " + e.getMessage());
+			}
+		});
+		liveMonitor.start(LiveTraceMonitor.DEFAULT_POLL_INTERVAL);
+	}
+
+	private void stopLiveAnalysis() {
+		if (liveMonitor != null) {
+			liveMonitor.stop();
+			liveMonitor = null;
+		}
+	}
+
 	void doBackgroundTask(){
         logger.info("Inside the background process ");
 		startTime = System.currentTimeMillis();
@@ -306,6 +356,7 @@ public class DataCollectorNoRootVpn implements ImageSubscriber {
 	 */
 	public void stopCollector() throws IOException{
 		AnalyticFactory.getGoogleAnalytics().sendAnalyticsEvents(rb.getString("ga.request.event.category.collector"), rb.getString("ga.request.event.collector.action.endtrace")); //end of GA Req
+        stopLiveAnalysis();
         //Stop collecting the trace
         if(vpnPacketCapture != null){
             vpnPacketCapture.stopPacketCapture();
@@ -425,6 +476,8 @@ public class DataCollectorNoRootVpn implements ImageSubscriber {
 					System.out.println("Failed :" + srcFile);
 				}
 			}
+			// rotated captures, traffic1.cap ... or the segments listed in the segment index
+			rez = TraceSegmentPuller.pullSegments(vpnPacketCapture.getAndroidDevice(), "/sdcard/ARO", localTraceFolder);
 		} catch (IOException e) {
 			rez = "Error :" + e.getMessage();
 			e.printStackTrace();
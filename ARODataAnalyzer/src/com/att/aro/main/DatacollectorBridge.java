@@ -752,12 +752,9 @@ public class DatacollectorBridge {
 
 							//We do need to pull multiple pcap files if they are 
 							//available in trace directory (traffic1.cap,traffic2.cap ...)
-							for (int index = 1; index < 50; index++) {
-								final String fileName = "traffic" + index + ".cap";
-								SyncResult result = service.pullFile(deviceTracePath + "/" + fileName, new File(localTraceFolder, fileName).getAbsolutePath(), SyncService.getNullProgressMonitor());
-								if (result.getCode() != SyncService.RESULT_OK) {
-									continue;
-								}
+							String segmentError = TraceSegmentPuller.pullSegments(mAndroidDevice, deviceTracePath, localTraceFolder);
+							if (segmentError != null) {
+								return segmentError;
 							}
 						}
 					
@@ -807,14 +804,9 @@ public class DatacollectorBridge {
 
 							//We do need to pull multiple pcap files if they are 
 							//available in trace directory (traffic1.cap,traffic2.cap ...)
-							for (int index = 1; index < 50; index++) {
-								final String fileName = "traffic" + index + ".cap";
-								SyncResult result = service.pullFile(deviceTracePath + "/" + fileName, new File(localTraceFolder, fileName).getAbsolutePath(),
-										SyncService.getNullProgressMonitor());
-								if (result.getCode() != SyncService.RESULT_OK) {
-									logger.log(Level.WARNING, "" + result.getMessage());
-									return result.getMessage();
-								}
+							String segmentError = TraceSegmentPuller.pullSegments(mAndroidDevice, deviceTracePath, localTraceFolder);
+							if (segmentError != null) {
+								return segmentError;
 							}
 						}
 					}
@@ -35,6 +35,7 @@ import javax.swing.text.html.HTMLEditorKit;
 import javax.swing.text.html.StyleSheet;
 
 import com.att.aro.bp.BestPracticeDisplay;
+import com.att.aro.bp.BestPracticeEvaluator;
 import com.att.aro.commonui.MessageDialogFactory;
 import com.att.aro.images.Images;
 import com.att.aro.model.TraceData;
@@ -116,28 +117,23 @@ public class DetailedResultRowPanel {
 			iconLabel.setIcon(manualIcon);
 			iconLabel.setToolTipText(MANUAL);
 		} else {
-			if (bp.isPass(analysisData)) {
+			switch (BestPracticeEvaluator.evaluate(bp, analysisData)) {
+			case PASS:
 				iconLabel.setIcon(passIcon);
 				iconLabel.setToolTipText(PASS);
-				resultDetailsLabel.setText(bp.resultText(analysisData));
 				result = Boolean.TRUE;
-			}else{
-				if(((bp.getDetailTitle()).equals(rb.getString("caching.cacheControl.detailedTitle")))
-						|| ((bp.getDetailTitle()).equals(rb.getString("caching.usingCache.detailedTitle")))
-						|| ((bp.getDetailTitle()).equals(rb.getString("connections.offloadingToWifi.detailedTitle")))
-						|| ((bp.getDetailTitle()).equals(rb.getString("other.accessingPeripherals.detailedTitle")))
-						|| ((bp.getDetailTitle()).equals(rb.getString("html.httpUsage.detailedTitle")))
-						|| (bp.isWarning(analysisData))){
-					iconLabel.setIcon(warningIcon);
-					iconLabel.setToolTipText(WARNING);
-					resultDetailsLabel.setText(bp.resultText(analysisData));
-				}else {
-					iconLabel.setIcon(failIcon);
-					iconLabel.setToolTipText(FAIL);
-					resultDetailsLabel.setText(bp.resultText(analysisData));
-					result = Boolean.FALSE;
-				}
+				break;
+			case WARNING:
+				iconLabel.setIcon(warningIcon);
+				iconLabel.setToolTipText(WARNING);
+				break;
+			default:
+				iconLabel.setIcon(failIcon);
+				iconLabel.setToolTipText(FAIL);
+				result = Boolean.FALSE;
+				break;
 			}
+			resultDetailsLabel.setText(bp.resultText(analysisData));
 		}
 
 		// Recalculate preferred size of results text box
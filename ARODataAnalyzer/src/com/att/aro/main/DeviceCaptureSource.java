@@ -0,0 +1,176 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.main;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+import com.android.ddmlib.IDevice;
+import com.android.ddmlib.SyncService;
+import com.android.ddmlib.SyncService.SyncResult;
+import com.att.aro.model.LiveTraceMonitor;
+import com.att.aro.model.TraceData;
+
+/**
+ * Copies the capture of a running device collector to a scratch folder, so
+ * that a LiveTraceMonitor can tail it. Each update pulls the segment being
+ * written, the last one of the segment index, or traffic.cap when the
+ * collector writes no index. When the collector starts a new segment, the
+ * previous one is pulled a last time so that its end is not lost, from its
+ * compressed copy when the collector already compressed it.
+ * <p>
+ * adb can only pull whole files; reading from an offset through the shell
+ * is not binary safe on devices that run the shell on a pty. The collector
+ * is therefore started with segments of LIVE_SEGMENT_MB when the capture is
+ * analyzed live, which bounds each pull.
+ */
+final class DeviceCaptureSource implements LiveTraceMonitor.CaptureSource {
+
+	private static final Logger logger = Logger.getLogger(DeviceCaptureSource.class.getName());
+
+	/**
+	 * Segment size, in MB, of a capture analyzed live
+	 */
+	static final int LIVE_SEGMENT_MB = 2;
+
+	private final IDevice device;
+	private final String deviceTracePath;
+	private final File scratchFolder;
+	private SyncService service;
+	private String segment;
+
+	/**
+	 * @param device
+	 *            device running the collector
+	 * @param deviceTracePath
+	 *            trace folder on the device
+	 * @param scratchFolder
+	 *            local folder receiving the copies, deleted by close
+	 */
+	DeviceCaptureSource(IDevice device, String deviceTracePath, File scratchFolder) {
+		this.device = device;
+		this.deviceTracePath = deviceTracePath;
+		this.scratchFolder = scratchFolder;
+	}
+
+	@Override
+	public File update() throws IOException {
+		if (!scratchFolder.exists() && !scratchFolder.mkdirs()) {
+			throw new IOException("Unable to create " + scratchFolder);
+		}
+		String current = TraceData.PCAP_FILE;
+		File localIndex = new File(scratchFolder, TraceData.SEGMENT_INDEX_FILE);
+		if (pull(TraceData.SEGMENT_INDEX_FILE, localIndex)) {
+			List<String> segments = TraceData.readSegmentIndex(localIndex);
+			if (segments.isEmpty()) {
+				return null;
+			}
+			// older collectors list the segment being written under its compressed name
+			current = plainName(segments.get(segments.size() - 1));
+		}
+		if (segment != null && !segment.equals(current)) {
+			// the collector rotated, read the end of the previous segment
+			pullFinished(segment);
+		}
+		segment = current;
+		File file = new File(scratchFolder, current);
+		return pull(current, file) ? file : null;
+	}
+
+	@Override
+	public void close() {
+		if (service != null) {
+			service.close();
+			service = null;
+		}
+		File[] files = scratchFolder.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		scratchFolder.delete();
+	}
+
+	/**
+	 * Pulls a segment that is no longer written, or its compressed copy once
+	 * the collector compressed it.
+	 */
+	private void pullFinished(String fileName) throws IOException {
+		File localFile = new File(scratchFolder, fileName);
+		if (pull(fileName, localFile)) {
+			return;
+		}
+		File compressed = new File(scratchFolder, fileName + TraceData.GZIP_EXT);
+		if (!pull(fileName + TraceData.GZIP_EXT, compressed)) {
+			logger.log(Level.FINE, "End of segment lost: " + fileName);
+			return;
+		}
+		InputStream in = new GZIPInputStream(new FileInputStream(compressed));
+		try {
+			OutputStream out = new FileOutputStream(localFile);
+			try {
+				byte[] buffer = new byte[64 * 1024];
+				int read;
+				while ((read = in.read(buffer)) > 0) {
+					out.write(buffer, 0, read);
+				}
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+			compressed.delete();
+		}
+	}
+
+	private static String plainName(String fileName) {
+		return fileName.endsWith(TraceData.GZIP_EXT) ? fileName.substring(0, fileName.length()
+				- TraceData.GZIP_EXT.length()) : fileName;
+	}
+
+	/**
+	 * Pulls a file of the trace folder of the device. A failed pull leaves the
+	 * SyncService unusable, so the next pull opens a new one.
+	 *
+	 * @return true if the file was copied
+	 */
+	private boolean pull(String fileName, File localFile) throws IOException {
+		if (service == null) {
+			service = device.getSyncService();
+			if (service == null) {
+				throw new IOException("No sync service for " + device.getSerialNumber());
+			}
+		}
+		SyncResult result = service.pullFile(deviceTracePath + "/" + fileName, localFile.getAbsolutePath(),
+				SyncService.getNullProgressMonitor());
+		if (result.getCode() != SyncService.RESULT_OK) {
+			logger.log(Level.FINE, "Failed :" + fileName + " " + result.getMessage());
+			service.close();
+			service = null;
+			return false;
+		}
+		return true;
+	}
+}
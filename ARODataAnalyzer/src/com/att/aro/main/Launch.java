@@ -192,6 +192,12 @@ public class Launch {
 
                 //TODO sync with CommandLineHandler
 				Map<String,String> opt = parseArgs(args);
+				String profile = opt.get("-p");
+				if (profile != null) {
+
+					// Timing profile of the stages of the loads
+					mainClass.setTimingProfileFile(new File(profile));
+				}
 				String directory = opt.get("-d");
 				if(null != directory && new File(directory).exists()){
                     try {
@@ -5,6 +5,7 @@ import java.awt.FlowLayout;
 import java.awt.Image;
 import javax.swing.JButton;
 import javax.swing.JDialog;
+import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.border.EmptyBorder;
 import java.awt.Toolkit;
@@ -22,6 +23,8 @@ public class LiveScreenViewDialog extends JDialog {
 
 	private ImagePanel imagePanel;
 	
+	private JLabel liveStatus;
+
 
 	/**
 	 * Create the dialog.
@@ -33,7 +36,7 @@ public class LiveScreenViewDialog extends JDialog {
 		setModal(true);
 		setTitle("Live Video Screen Capture");
 		setResizable(false);
-		setBounds(100, 100, 367, 722);
+		setBounds(100, 100, 367, 747);
 		getContentPane().setLayout(new BorderLayout());
 		contentPanel.setBorder(new EmptyBorder(5, 5, 5, 5));
 		getContentPane().add(contentPanel, BorderLayout.CENTER);
@@ -45,6 +48,10 @@ public class LiveScreenViewDialog extends JDialog {
 	    imagePanel.setBounds(0, 0, 360, 640);
 	    
 		contentPanel.add(imagePanel);
+
+		liveStatus = new JLabel(" ");
+		liveStatus.setBounds(5, 642, 350, 20);
+		contentPanel.add(liveStatus);
 		{
 			JPanel buttonPane = new JPanel();
 			buttonPane.setLayout(new FlowLayout(FlowLayout.RIGHT));
@@ -67,6 +74,13 @@ public class LiveScreenViewDialog extends JDialog {
 	void onStop(){
 		this.setVisible(false);
 	}
+	/**
+	 * Shows a line of the live analysis of the capture below the screen.
+	 * @param text
+	 */
+	public void setLiveStatus(String text){
+		this.liveStatus.setText(text);
+	}
 	public void setImage(Image image){
 		this.imagePanel.setImage(image);
 	}
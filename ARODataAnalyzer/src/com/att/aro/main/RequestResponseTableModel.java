@@ -97,6 +97,40 @@ public class RequestResponseTableModel extends DataTableModel<HttpRequestRespons
 		}
 	}
 
+	/**
+	 * Returns true for the numeric columns, which are sorted without boxing
+	 * their values.
+	 * 
+	 * @see com.att.aro.commonui.DataTableModel#isNumericColumn(int)
+	 */
+	@Override
+	protected boolean isNumericColumn(int columnIndex) {
+		switch (columnIndex) {
+		case TIME_COL:
+		case ON_WIRE_CONTENT_LENGTH:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Returns the number a row is sorted by in a numeric column.
+	 * 
+	 * @see com.att.aro.commonui.DataTableModel#getColumnSortValue(java.lang.Object, int)
+	 */
+	@Override
+	protected double getColumnSortValue(HttpRequestResponseInfo item, int columnIndex) {
+		switch (columnIndex) {
+		case TIME_COL:
+			return item.getTimeStamp();
+		case ON_WIRE_CONTENT_LENGTH:
+			return item.getActualByteCount();
+		default:
+			return super.getColumnSortValue(item, columnIndex);
+		}
+	}
+
 	/**
 	 * This is the one method that must be implemented by subclasses. This method defines how 
 	 * the data object managed by this table model is mapped to its columns when displayed 
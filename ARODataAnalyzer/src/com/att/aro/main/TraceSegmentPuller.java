@@ -0,0 +1,104 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.main;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.android.ddmlib.IDevice;
+import com.android.ddmlib.SyncService;
+import com.android.ddmlib.SyncService.SyncResult;
+import com.att.aro.model.TraceData;
+
+/**
+ * Pulls the pcap segments of a trace from the device. Collectors that rotate the capture
+ * write a segment index listing the segments, compressed or not, that are still on the
+ * device. Older collectors write traffic.cap followed by traffic1.cap, traffic2.cap ...
+ */
+final class TraceSegmentPuller {
+
+	private static final Logger logger = Logger.getLogger(TraceSegmentPuller.class.getName());
+
+	/**
+	 * Highest segment number probed when the device has no segment index
+	 */
+	private static final int MAX_UNINDEXED_SEGMENTS = 50;
+
+	private TraceSegmentPuller() {
+	}
+
+	/**
+	 * Pulls the segment index and every segment it lists, or the numbered
+	 * segments traffic1.cap ... when there is no index. traffic.cap itself is
+	 * expected to be pulled with the other trace files. A failed pull leaves the
+	 * SyncService unusable, so the puller opens its own from the device and
+	 * reconnects when the index is missing.
+	 *
+	 * @param device
+	 *            device the trace is pulled from
+	 * @param deviceTracePath
+	 *            trace folder on the device
+	 * @param localTraceFolder
+	 * @return null on success, otherwise the failure message
+	 * @throws IOException
+	 */
+	static String pullSegments(IDevice device, String deviceTracePath, File localTraceFolder) throws IOException {
+		SyncService service = device.getSyncService();
+		if (service == null) {
+			return "Failed : no sync service";
+		}
+		try {
+			File localIndex = new File(localTraceFolder, TraceData.SEGMENT_INDEX_FILE);
+			SyncResult result = service.pullFile(deviceTracePath + "/" + TraceData.SEGMENT_INDEX_FILE, localIndex.getAbsolutePath(),
+					SyncService.getNullProgressMonitor());
+			if (result.getCode() == SyncService.RESULT_OK) {
+				for (String fileName : TraceData.readSegmentIndex(localIndex)) {
+					result = service.pullFile(deviceTracePath + "/" + fileName, new File(localTraceFolder, fileName).getAbsolutePath(),
+							SyncService.getNullProgressMonitor());
+					if (result.getCode() != SyncService.RESULT_OK) {
+						logger.log(Level.WARNING, "Failed :" + fileName + " " + result.getMessage());
+						return result.getMessage();
+					}
+					logger.log(Level.INFO, "Copied :" + fileName);
+				}
+				return null;
+			}
+
+			// older collector without an index, the failed pull needs a new SyncService
+			localIndex.delete();
+			service.close();
+			service = device.getSyncService();
+			if (service == null) {
+				return "Failed : no sync service";
+			}
+			for (int index = 1; index < MAX_UNINDEXED_SEGMENTS; index++) {
+				final String fileName = TraceData.TRAFFIC + index + TraceData.CAP_EXT;
+				result = service.pullFile(deviceTracePath + "/" + fileName, new File(localTraceFolder, fileName).getAbsolutePath(),
+						SyncService.getNullProgressMonitor());
+				if (result.getCode() != SyncService.RESULT_OK) {
+					// numbered segments are contiguous, the first missing one ends the trace
+					new File(localTraceFolder, fileName).delete();
+					break;
+				}
+			}
+			return null;
+		} finally {
+			service.close();
+		}
+	}
+}
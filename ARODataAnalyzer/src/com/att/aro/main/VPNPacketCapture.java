@@ -34,8 +34,10 @@ public class VPNPacketCapture extends Thread{
 	 * 
 	 * @param androidDevice
 	 * @param tracePath
+	 * @param live true when the capture is analyzed while it runs, the collector
+	 *            then writes small segments so that they can be pulled often
 	 */
-	public void startPacketCapture(IDevice androidDevice, String tracePath) {
+	public void startPacketCapture(IDevice androidDevice, String tracePath, boolean live) {
 
 		this.androidDevice = androidDevice;
 		this.tracePath = tracePath;
@@ -67,6 +69,9 @@ public class VPNPacketCapture extends Thread{
 		// Starts collector application on device.
 		ShellReceiver shelloutPut = new ShellReceiver();
 		String shellCmd = MessageFormat.format(rb.getString("Emulator.startDeviceVpnApk"), tracePath);
+		if (live) {
+			shellCmd += " --el SEGMENT_SIZE_MB " + DeviceCaptureSource.LIVE_SEGMENT_MB;
+		}
 		try {
 			androidDevice.executeShellCommand(shellCmd, shelloutPut);
 			this.pcapStartTime = new Date();
@@ -0,0 +1,147 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Loads and analyzes traces without a user interface, for embedding the
+ * analyzer in other applications such as a service analyzing uploaded traces.
+ * The state of a load and of its analyses is held by the TraceData of the
+ * trace, so one engine may be used by several threads analyzing different
+ * traces at the same time. Errors reading a trace are reported by
+ * TraceData.getLoadErrors instead of dialogs.
+ */
+public class AnalysisEngine {
+
+	private final Profile profile;
+	private final List<ProgressListener> listeners = new CopyOnWriteArrayList<ProgressListener>();
+	private volatile boolean deferredDecoding = Boolean.getBoolean("com.att.aro.deferredDecoding");
+
+	/**
+	 * Initializes an instance of the AnalysisEngine class that analyzes LTE
+	 * traces with the default LTE profile and other traces with the default 3G
+	 * profile.
+	 */
+	public AnalysisEngine() {
+		this(null);
+	}
+
+	/**
+	 * Initializes an instance of the AnalysisEngine class that analyzes traces
+	 * with the specified device profile.
+	 * 
+	 * @param profile
+	 *            The device profile, or null to choose the default profile of
+	 *            the network type of each trace.
+	 */
+	public AnalysisEngine(Profile profile) {
+		this.profile = profile;
+	}
+
+	/**
+	 * Adds a listener of the progress of the loads and analyses started after
+	 * the call.
+	 * 
+	 * @param listener
+	 *            The listener, called on the threads running the analyses.
+	 */
+	public void addProgressListener(ProgressListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Removes a listener of the progress of the loads and analyses.
+	 * 
+	 * @param listener
+	 *            The listener.
+	 */
+	public void removeProgressListener(ProgressListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Sets whether the traces loaded after the call decrypt their TLS sessions,
+	 * and analyze their HTTP content, when first asked for. An analysis then
+	 * only extracts the sessions and simulates the RRC states and the energy
+	 * of the trace, which is much faster for large HTTPS traces.
+	 * 
+	 * @param deferredDecoding
+	 *            True to defer decoding.
+	 * @see TraceData#setDeferredDecoding(boolean)
+	 */
+	public void setDeferredDecoding(boolean deferredDecoding) {
+		this.deferredDecoding = deferredDecoding;
+	}
+
+	/**
+	 * Loads a trace.
+	 * 
+	 * @param trace
+	 *            The trace directory, or a pcap file.
+	 * @return The trace data.
+	 * @throws IOException
+	 *             when the trace cannot be read.
+	 */
+	public TraceData load(File trace) throws IOException {
+		ProgressMonitor monitor = new ProgressMonitor();
+		for (ProgressListener listener : listeners) {
+			monitor.addListener(listener);
+		}
+		TraceData traceData = new TraceData(trace, monitor);
+		traceData.setDeferredDecoding(deferredDecoding);
+		return traceData;
+	}
+
+	/**
+	 * Analyzes a loaded trace. Analyses of the same trace are run one at a
+	 * time.
+	 * 
+	 * @param traceData
+	 *            The trace data.
+	 * @param filter
+	 *            The applications, IP addresses and time range analyzed, or
+	 *            null to analyze the whole trace.
+	 * @return The analysis.
+	 * @throws IOException
+	 *             when the analysis fails to read trace files.
+	 */
+	public TraceData.Analysis analyze(TraceData traceData, AnalysisFilter filter) throws IOException {
+		Profile analysisProfile = profile;
+		if (analysisProfile == null) {
+			analysisProfile = traceData.getNetworkType() == NetworkType.LTE ? new ProfileLTE()
+					: new Profile3G();
+		}
+		return traceData.runAnalysis(analysisProfile, filter, false);
+	}
+
+	/**
+	 * Loads and analyzes a whole trace.
+	 * 
+	 * @param trace
+	 *            The trace directory, or a pcap file.
+	 * @return The analysis. The trace data is returned by its getTraceData
+	 *         method.
+	 * @throws IOException
+	 *             when the trace cannot be read.
+	 */
+	public TraceData.Analysis analyze(File trace) throws IOException {
+		return analyze(load(trace), null);
+	}
+}
@@ -27,34 +27,12 @@ import java.util.TreeMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import com.att.aro.bp.BestPracticeDisplayFactory;
 import com.att.aro.bp.asynccheck.AsyncCheckAnalysis;
-import com.att.aro.bp.asynccheck.AsyncCheckEntry;
-import com.att.aro.bp.asynccheck.AsyncCheckResultPanel;
-import com.att.aro.bp.displaynoneincss.DisplayNoneInCSSAnalysis;
-import com.att.aro.bp.displaynoneincss.DisplayNoneInCSSEntry;
-import com.att.aro.bp.displaynoneincss.DisplayNoneInCSSResultPanel;
-import com.att.aro.bp.duplicate.DuplicateResultPanel;
 import com.att.aro.bp.fileorder.FileOrderAnalysis;
-import com.att.aro.bp.fileorder.FileOrderEntry;
-import com.att.aro.bp.fileorder.FileOrderResultPanel;
 import com.att.aro.bp.httprspcd.HttpCode3XXEntry;
-import com.att.aro.bp.httprspcd.HttpCode3XXResultPanel;
 import com.att.aro.bp.http4xx5xxrespcodes.Http4xx5xxStatusResponseCodesEntry;
-import com.att.aro.bp.http4xx5xxrespcodes.Http4xx5xxStatusResponseCodesResultPanel;
-import com.att.aro.bp.imageSize.ImageSizeAnalysis;
-import com.att.aro.bp.imageSize.ImageSizeEntry;
-import com.att.aro.bp.imageSize.ImageSizeResultPanel;
-import com.att.aro.bp.minification.MinificationAnalysis;
-import com.att.aro.bp.minification.MinificationEntry;
-import com.att.aro.bp.minification.MinificationResultPanel;
 //import com.att.aro.bp.smallrequest.SmallRequestAnalysis;
 //import com.att.aro.bp.smallrequest.SmallRequestEntry;
-//import com.att.aro.bp.smallrequest.SmallRequestResultPanel;
-import com.att.aro.bp.spriteimage.SpriteImageAnalysis;
-import com.att.aro.bp.spriteimage.SpriteImageEntry;
-import com.att.aro.bp.spriteimage.SpriteImageResultPanel;
-import com.att.aro.main.TextFileCompressionResultPanel;
 import com.att.aro.model.HttpRequestResponseInfo.Direction;
 import com.att.aro.model.TextFileCompressionAnalysis.TextCompressionAnalysisResult;
 
@@ -81,17 +59,6 @@ public class BestPractices {
 	private Map<Integer, HttpRequestResponseInfo> firstRedirectRespMap_3XX = new HashMap<Integer, HttpRequestResponseInfo>();
 	private List<HttpCode3XXEntry> httpRspCd = new ArrayList<HttpCode3XXEntry>();
 	private List<Http4xx5xxStatusResponseCodesEntry> results = new ArrayList<Http4xx5xxStatusResponseCodesEntry>();
-	private HttpCode3XXResultPanel http_code_3XX_panel = null;
-	private Http4xx5xxStatusResponseCodesResultPanel http4xx5xxStatusResponseCodesResultPanel;
-	private DisplayNoneInCSSResultPanel displayNoneInCSSResultPanel;
-	private DuplicateResultPanel duplicateResultPanel;
-	private AsyncCheckResultPanel asyncCheckResultPanel;
-	private FileOrderResultPanel fileOrderResultPanel;
-	private ImageSizeResultPanel imageSizeResultPanel;
-	private MinificationResultPanel minificationResultPanel;
-	//private SmallRequestResultPanel smallRequestResultPanel;
-	private SpriteImageResultPanel spriteImageResultPanel;
-	private TextFileCompressionResultPanel textFileCompressionResultPanel;
 	
 	private boolean multipleTcpCon = true;
 	private boolean periodicTrans = true;
@@ -109,7 +76,10 @@ public class BestPractices {
 	private double duplicateContentBytesRatio = 0;
 	private int duplicateContentsize = 0;
 	private int duplicateContentSizeOfUniqueItems = 0;
+	private List<CacheEntry> duplicateContentUniqueItems;
 	private long duplicateContentBytes = 0;
+	private int crossUrlDuplicateContentSize = 0;
+	private long crossUrlDuplicateContentBytes = 0;
 	private long totalContentBytes = 0;
 	private double gpsActiveStateRatio = 0;
 	private double bluetoothActiveStateRatio = 0;
@@ -135,7 +105,7 @@ public class BestPractices {
 	 * @param analysisData
 	 *            An Analysis object containing the set of trace analysis data.
 	 */
-	public BestPractices(TraceData.Analysis analysisData, boolean datadump) {
+	public BestPractices(TraceData.Analysis analysisData) {
 		this.analysisData = analysisData;
 		this.traceData = analysisData.getTraceData();
 
@@ -421,46 +391,14 @@ public class BestPractices {
 		this.duplicateContentsize = cacheAnalysis.getDuplicateContent().size();
 		this.duplicateContent = duplicateContentsize <= 3;
 
-		if(!datadump) {
-			setResultsOfTextFileCompressionTest(analysisData);
-			setResultsOfImageSizeTest(analysisData);
-			setResultsOfMinificationTest(analysisData);
-			setResultsOfSpriteImageTest(analysisData);
-			//setResultsOfSmallRequestTest(analysisData);
-			setResultsOfHTTPRspCodeTest(analysisData);
-			setResultsOfAsyncCheckTest(analysisData);
-			setResultsOfFileOrderTest(analysisData);
-			setResultsOfDisplayNoneInCSS(analysisData);
-			setResultsOfHttp4xx5xxStatusResponseCodes(analysisData);
-			setResultsOfCacheTest(analysisData);
-		}
-	}
+		this.duplicateContentUniqueItems = createUniqueItemList(cacheAnalysis.getDuplicateContent());
+		this.duplicateContentSizeOfUniqueItems = duplicateContentUniqueItems.size();
 
-	/**
-	 * 
-	 * Sets duplicate content test results.
-	 * 
-	 * @param analysisData
-	 */
-	private void setResultsOfCacheTest(TraceData.Analysis analysisData) {
-		// obtain the results of Text File Compression Analysis
-		CacheAnalysis ca = analysisData.getCacheAnalysis();
-		List<CacheEntry> caUResult = createUniqueItemList(ca.getDuplicateContent());
-		this.duplicateContentSizeOfUniqueItems = caUResult.size();
-		duplicateResultPanel = BestPracticeDisplayFactory.getInstance()
-				.getDupicate();
-
-		if (duplicateResultPanel != null) {
-			duplicateResultPanel.setNoOfRecords(caUResult.size());
-			if (caUResult.size() > 0) {
-				duplicateResultPanel.setData(caUResult);
-				duplicateResultPanel.setVisible(true);
-			} else {
-				duplicateResultPanel.setVisible(false);
-			}
-		}
+		ContentStore contentStore = cacheAnalysis.getContentStore();
+		this.crossUrlDuplicateContentSize = contentStore.getCrossUrlDuplicates().size();
+		this.crossUrlDuplicateContentBytes = contentStore.getCrossUrlDuplicateBytes();
 	}
-	
+
 	/**
 	 * 
 	 * Createa unique item list.
@@ -481,277 +419,6 @@ public class BestPractices {
 		return caUResult;
 	}
 
-	public DuplicateResultPanel getDuplicatePanel() {
-		return duplicateResultPanel;
-	}
-
-	/**
-	 * 
-	 * Sets text file compression test results.
-	 * 
-	 * @param analysisData
-	 */
-	private void setResultsOfTextFileCompressionTest(
-			TraceData.Analysis analysisData) {
-		// obtain the results of Text File Compression Analysis
-		TextFileCompressionAnalysis tfca = analysisData
-				.getTextFileCompressionAnalysis();
-		List<TextFileCompressionEntry> tfcaResult = tfca.getResults();
-		textFileCompressionResultPanel = BestPracticeDisplayFactory
-				.getInstance().getTextFileCompression();
-		if (textFileCompressionResultPanel != null) {
-			textFileCompressionResultPanel.setNoOfRecords(tfcaResult.size());
-			if (tfcaResult.size() > 0) {
-				textFileCompressionResultPanel.setData(tfcaResult);
-				textFileCompressionResultPanel.setVisible(true);
-			} else {
-				textFileCompressionResultPanel.setVisible(false);
-			}
-		}
-	}
-	public TextFileCompressionResultPanel gettextFileCompressionResultPanel() {
-		return textFileCompressionResultPanel;
-	}
-
-	/**
-	 * Sets image size test results.
-	 * 
-	 * @param analysisData
-	 */
-	private void setResultsOfImageSizeTest(TraceData.Analysis analysisData) {
-		// obtain the results of Image Size Analysis
-		ImageSizeAnalysis isa = analysisData.getImageSizeAnalysis();
-		List<ImageSizeEntry> results = isa.getResults();
-		imageSizeResultPanel = BestPracticeDisplayFactory.getInstance()
-				.getImageSize();
-		if (imageSizeResultPanel != null) {
-			imageSizeResultPanel.setNoOfRecords(results.size());
-			if (results.size() > 0) {
-				imageSizeResultPanel.setData(results);
-				imageSizeResultPanel.setVisible(true);
-			} else {
-				imageSizeResultPanel.setVisible(false);
-			}
-		}
-	}
-	public ImageSizeResultPanel getimageSizeResultPanel() {
-		return imageSizeResultPanel;
-	}
-	
-			
-	/**
-	 * Sets minification test results.
-	 * 
-	 * @param analysisData
-	 */
-	private void setResultsOfMinificationTest(TraceData.Analysis analysisData) {
-		// obtain the results of Minification Analysis
-		MinificationAnalysis ma = analysisData.getMinificationAnalysis();
-		List<MinificationEntry> results = ma.getResults();
-		minificationResultPanel  = BestPracticeDisplayFactory
-				.getInstance().getMinification();
-		if (minificationResultPanel != null) {
-			minificationResultPanel.setNoOfRecords(results.size());
-			if (results.size() > 0) {
-				minificationResultPanel.setData(results);
-				minificationResultPanel.setVisible(true);
-			} else {
-				minificationResultPanel.setVisible(false);
-			}
-		}
-	}
-	public MinificationResultPanel getminificationResultPanel() {
-		return minificationResultPanel;
-	}
-
-	/**
-	 * Sets Sprite Image test results.
-	 * 
-	 * @param analysisData
-	 */
-	private void setResultsOfSpriteImageTest(TraceData.Analysis analysisData) {
-		// obtain the results of Sprite Image Analysis
-		SpriteImageAnalysis siAnalysis = analysisData.getSpriteImageAnalysis();
-		List<SpriteImageEntry> results = siAnalysis.getResults();
-		spriteImageResultPanel = BestPracticeDisplayFactory.getInstance()
-				.getSpriteImageResults();
-		if (spriteImageResultPanel != null) {
-			spriteImageResultPanel.setNoOfRecords(results.size());
-			if (results.size() > 0) {
-				spriteImageResultPanel.setData(results);
-				spriteImageResultPanel.setVisible(true);
-			} else {
-				spriteImageResultPanel.setVisible(false);
-			}
-		}
-	}
-	public SpriteImageResultPanel getspriteImageResultPanel() {
-		return spriteImageResultPanel;
-	}
-
-//	/**
-//	 * Sets small request test results.
-//	 * 
-//	 * @param analysisData
-//	 */
-//	private void setResultsOfSmallRequestTest(TraceData.Analysis analysisData) {
-//		// obtain the results of small request Analysis
-//		SmallRequestAnalysis siAnalysis = analysisData
-//				.getSmallRequestAnalysis();
-//		List<SmallRequestEntry> results = siAnalysis.getResults();
-//		smallRequestResultPanel = BestPracticeDisplayFactory
-//				.getInstance().getSmallRequestResults();
-//		if (smallRequestResultPanel != null) {
-//			smallRequestResultPanel.setNoOfRecords(results.size());
-//			if (results.size() > 0) {
-//				smallRequestResultPanel.setData(results);
-//				smallRequestResultPanel.setVisible(true);
-//			} else {
-//				smallRequestResultPanel.setVisible(false);
-//			}
-//		}
-//	}
-//	
-//	public SmallRequestResultPanel getsmallRequestResultPanel() {
-//		return smallRequestResultPanel;
-//	}
-
-	/**
-	 * Sets http response code test results.
-	 * 
-	 * @param analysisData
-	 */
-	private void setResultsOfHTTPRspCodeTest(TraceData.Analysis analysisData) {
-		// obtain the results of http response code Analysis
-		http_code_3XX_panel = BestPracticeDisplayFactory.getInstance()
-				.getHttpRspCdResults();
-		if (http_code_3XX_panel != null) {
-			http_code_3XX_panel.setNumberOfRecords(this.getHttpRspCodeResults()
-					.size());
-			if (this.getHttpRspCodeResults().size() > 0) {
-				http_code_3XX_panel.setData(this.getHttpRspCodeResults());
-				http_code_3XX_panel.setVisible(true);
-			} else {
-				http_code_3XX_panel.setVisible(false);
-			}
-		}
-	}
-
-	public HttpCode3XXResultPanel getHttpPanel() {
-		return http_code_3XX_panel;
-	}
-
-	/**
-	 * Sets Async loading results
-	 * 
-	 * @param analysisData
-	 */
-	private void setResultsOfAsyncCheckTest(TraceData.Analysis analysisData) {
-		// obtain the results of TFC Analysis
-		AsyncCheckAnalysis asyncAnalysis = analysisData.getAsyncCheckAnalysis();
-		List<AsyncCheckEntry> asyncAnalysisResults = asyncAnalysis.getResults();
-		asyncCheckResultPanel = BestPracticeDisplayFactory.getInstance()
-				.getAsyncCheckResults();
-		if (asyncCheckResultPanel != null) {
-			asyncCheckResultPanel.setNoOfRecords(asyncAnalysisResults.size());
-			if (asyncAnalysisResults.size() > 0) {
-				asyncCheckResultPanel.setData(asyncAnalysisResults);
-				asyncCheckResultPanel.setVisible(true);
-			} else {
-				asyncCheckResultPanel.setVisible(false);
-			}
-		}
-	}
-
-	public AsyncCheckResultPanel getAsyncPanel() {
-		return asyncCheckResultPanel;
-	}
-
-	/**
-	 * Sets File Order results
-	 * 
-	 * @param analysisData
-	 */
-	private void setResultsOfFileOrderTest(TraceData.Analysis analysisData) {
-		// obtain the results of TFC Analysis
-		FileOrderAnalysis fileOrderAnalysis = analysisData.getFileOrderAnalysis();
-		List<FileOrderEntry> fileOrderResults = fileOrderAnalysis.getResults();
-		fileOrderResultPanel = BestPracticeDisplayFactory.getInstance().getFileOrderResultPanel();
-		if(fileOrderResultPanel != null) {
-			fileOrderResultPanel.setNoOfRecords(fileOrderResults.size());
-			if (fileOrderResults.size() > 0) {
-				fileOrderResultPanel.setData(fileOrderResults);
-				fileOrderResultPanel.setVisible(true);
-			} else {
-				fileOrderResultPanel.setVisible(false);
-			}		
-		
-		}
-	}
-
-	public FileOrderResultPanel getfileOrderResultPanel() {
-		return fileOrderResultPanel;
-	}
-
-	/**
-	 * Sets File Order results
-	 * 
-	 * @param analysisData
-	 */
-	private void setResultsOfDisplayNoneInCSS(TraceData.Analysis analysisData) {
-
-		DisplayNoneInCSSAnalysis displayNoneInCSS = analysisData
-				.getDisplayNoneInCSSAnalysis();
-		List<DisplayNoneInCSSEntry> displayNoneInCSSResults = displayNoneInCSS
-				.getResults();
-
-		displayNoneInCSSResultPanel = BestPracticeDisplayFactory.getInstance()
-				.getDisplayNoneInCSSResultPanel();
-		if (displayNoneInCSSResultPanel != null) {
-			displayNoneInCSSResultPanel.setNoOfRecords(displayNoneInCSSResults
-					.size());
-			if (displayNoneInCSSResults.size() > 0) {
-				displayNoneInCSSResultPanel.setData(displayNoneInCSSResults);
-				displayNoneInCSSResultPanel.setVisible(true);
-			} else {
-				displayNoneInCSSResultPanel.setVisible(false);
-			}
-		}
-	}
-
-	public DisplayNoneInCSSResultPanel getdisplayNoneInCSSResultPanel() {
-		return displayNoneInCSSResultPanel;
-	}
-
-	/**
-	 * Sets HTTP 4xx/5xx Status Response Codes Results
-	 * 
-	 * @param analysisData
-	 */
-	private void setResultsOfHttp4xx5xxStatusResponseCodes(
-			TraceData.Analysis analysisData) {
-
-		/* Get the results of http 4xx/5xx response status codes. */
-
-		http4xx5xxStatusResponseCodesResultPanel = BestPracticeDisplayFactory
-				.getInstance().getHttp4xx5xxResults();
-		if (http4xx5xxStatusResponseCodesResultPanel != null) {
-			http4xx5xxStatusResponseCodesResultPanel
-					.setNumberOfRecords(get4xx5xxResults().size());
-			if (get4xx5xxResults().size() > 0) {
-				http4xx5xxStatusResponseCodesResultPanel
-						.setData(get4xx5xxResults());
-				http4xx5xxStatusResponseCodesResultPanel.setVisible(true);
-			} else {
-				http4xx5xxStatusResponseCodesResultPanel.setVisible(false);
-			}
-		}
-	}
-
-	public Http4xx5xxStatusResponseCodesResultPanel getHttp4xx5xxPanel() {
-		return http4xx5xxStatusResponseCodesResultPanel;
-	}
-
 	/**
 	 * Returns a value that indicates if any multiple TCP connections were
 	 * found.
@@ -977,6 +644,16 @@ public class BestPractices {
 		return duplicateContentSizeOfUniqueItems;
 	}
 
+	/**
+	 * Returns the duplicate content entries, one per object and number of
+	 * cache hits.
+	 * 
+	 * @return A List of CacheEntry objects.
+	 */
+	public List<CacheEntry> getDuplicateContentUniqueItems() {
+		return duplicateContentUniqueItems;
+	}
+
 	/**
 	 * Returns the amount of duplicate content in bytes.
 	 * 
@@ -986,6 +663,26 @@ public class BestPractices {
 		return duplicateContentBytes;
 	}
 
+	/**
+	 * Returns the number of responses that downloaded content that was
+	 * already downloaded from another URL.
+	 * 
+	 * @return The number of cross URL duplicate responses.
+	 */
+	public int getCrossUrlDuplicateContentSize() {
+		return crossUrlDuplicateContentSize;
+	}
+
+	/**
+	 * Returns the amount of content in bytes that was already downloaded from
+	 * another URL.
+	 * 
+	 * @return The amount of cross URL duplicate content in bytes.
+	 */
+	public long getCrossUrlDuplicateContentBytes() {
+		return crossUrlDuplicateContentBytes;
+	}
+
 	/**
 	 * Returns the total amount of content in bytes.
 	 * 
@@ -0,0 +1,244 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Groups packets appended in time order into bursts, so that the bursts of a
+ * trace can be found in segments. The builder keeps the burst being built
+ * between packets and passes each Burst to its listener as soon as the packets
+ * that follow it start a new burst.
+ * <p>
+ * Bursts that are only separated by promotion delays are merged, so the
+ * builder also receives the RRC state ranges of the trace, in time order, for
+ * example from an RrcStateRangeBuilder listener. A packet is held until the
+ * state ranges reach its timestamp.
+ * <p>
+ * Appending all of the state ranges and packets of a trace and finishing it
+ * gives the same bursts as BurstCollectionAnalysis.
+ */
+public class BurstBuilder {
+
+	private static final double EPS = 1 * Math.pow(10, -6);
+
+	/**
+	 * Receives the bursts of a builder in time order.
+	 */
+	public interface Listener {
+
+		/**
+		 * Called when a burst can no longer change. The burst of each of its
+		 * packets is set.
+		 *
+		 * @param burst
+		 *            The burst.
+		 */
+		void burstFinalized(Burst burst);
+	}
+
+	private final double burstThresh;
+	private final double longBurstThresh;
+	private final Set<Integer> mss;
+	private final Listener listener;
+
+	// Promotion delays that packets have not passed yet, sorted by time
+	private final ArrayDeque<RrcStateRange> promoDelays = new ArrayDeque<RrcStateRange>();
+	private double stateRangeEndTime;
+	private boolean finished;
+
+	// Packets waiting for the state ranges up to their timestamp
+	private final ArrayDeque<PacketInfo> pendingPackets = new ArrayDeque<PacketInfo>();
+
+	// Removal of the promotion delays from the packet timestamps
+	private double timeStampShift;
+	private boolean inPromoDelay;
+	private double middlePos;
+
+	// Packets grouped with the burst time threshold
+	private final List<PacketInfo> burstPackets = new ArrayList<PacketInfo>();
+	private PacketInfo lastPacket;
+	private double lastTimeStamp;
+
+	// Bursts merged across promotion delays
+	private Burst current;
+
+	/**
+	 * Initializes an instance of the BurstBuilder class.
+	 *
+	 * @param profile
+	 *            The profile giving the burst thresholds.
+	 * @param mss
+	 *            The payload lengths of full size packets. A burst does not end
+	 *            after a packet of one of these lengths.
+	 * @param listener
+	 *            Receives the bursts.
+	 */
+	public BurstBuilder(Profile profile, Set<Integer> mss, Listener listener) {
+		this.burstThresh = profile.getBurstTh();
+		this.longBurstThresh = profile.getLongBurstTh();
+		this.mss = mss;
+		this.listener = listener;
+	}
+
+	/**
+	 * Adds an RRC state range of the trace. State ranges are added in time
+	 * order, each one beginning where the previous one ends.
+	 *
+	 * @param range
+	 *            The state range.
+	 * @throws IllegalStateException
+	 *             when the trace is finished.
+	 */
+	public void addStateRange(RrcStateRange range) {
+		if (finished) {
+			throw new IllegalStateException("The trace is finished");
+		}
+		RRCState state = range.getState();
+		if ((state == RRCState.PROMO_FACH_DCH) || (state == RRCState.PROMO_IDLE_DCH)) {
+			promoDelays.addLast(range);
+		}
+		stateRangeEndTime = Math.max(stateRangeEndTime, range.getEndTime());
+
+		// Later state ranges cannot change the packets they do not reach
+		PacketInfo packet;
+		while ((packet = pendingPackets.peekFirst()) != null
+				&& packet.getTimeStamp() + EPS < stateRangeEndTime) {
+			addPacket(pendingPackets.removeFirst());
+		}
+	}
+
+	/**
+	 * Appends a packet to the trace.
+	 *
+	 * @param packet
+	 *            The packet, not older than the previous one.
+	 * @throws IllegalStateException
+	 *             when the trace is finished.
+	 */
+	public void append(PacketInfo packet) {
+		if (finished) {
+			throw new IllegalStateException("The trace is finished");
+		}
+		if (pendingPackets.isEmpty() && packet.getTimeStamp() + EPS < stateRangeEndTime) {
+			addPacket(packet);
+		} else {
+			pendingPackets.addLast(packet);
+		}
+	}
+
+	/**
+	 * Ends the trace and passes the last burst to the listener. All of the
+	 * state ranges of the trace must have been added.
+	 *
+	 * @throws IllegalStateException
+	 *             when the trace is already finished.
+	 */
+	public void finish() {
+		if (finished) {
+			throw new IllegalStateException("The trace is finished");
+		}
+		finished = true;
+		while (!pendingPackets.isEmpty()) {
+			addPacket(pendingPackets.removeFirst());
+		}
+		if (!burstPackets.isEmpty()) {
+			mergeBurstPackets();
+			current.setbLong(true);
+			emit(current);
+			current = null;
+		}
+	}
+
+	/**
+	 * Groups a packet once the promotion delays before it are known.
+	 */
+	private void addPacket(PacketInfo packet) {
+		double timeStamp = removePromoDelays(packet.getTimeStamp());
+		if (lastPacket != null
+				&& packet.getTimeStamp() - lastPacket.getTimeStamp() > burstThresh
+				&& !mss.contains(lastPacket.getPayloadLen())) {
+			mergeBurstPackets();
+
+			// Bursts are not merged when the gap is more than promotion delays
+			if (timeStamp - lastTimeStamp >= burstThresh) {
+				double ibt = packet.getTimeStamp() - current.getEndTime();
+				assert (ibt >= burstThresh);
+				current.setbLong(ibt > longBurstThresh);
+				emit(current);
+				current = null;
+			}
+		}
+		burstPackets.add(packet);
+		lastPacket = packet;
+		lastTimeStamp = timeStamp;
+	}
+
+	/**
+	 * Merges the packets grouped with the burst time threshold into the
+	 * current burst.
+	 */
+	private void mergeBurstPackets() {
+		Burst burst = new Burst(burstPackets);
+		burstPackets.clear();
+		if (current == null) {
+			current = burst;
+		} else {
+			current.merge(burst);
+		}
+	}
+
+	/**
+	 * Returns a packet timestamp without the promotion delays before it. This
+	 * step was orginally found in whatif.cpp.
+	 */
+	private double removePromoDelays(double timeStamp) {
+		RrcStateRange promo;
+		while ((promo = promoDelays.peekFirst()) != null
+				&& timeStamp >= promo.getEndTime() - EPS) {
+			if (inPromoDelay) {
+				assert (promo.getEndTime() >= middlePos);
+				timeStampShift += promo.getEndTime() - middlePos;
+				inPromoDelay = false;
+			} else {
+				timeStampShift += promo.getEndTime() - promo.getBeginTime();
+			}
+			promoDelays.removeFirst();
+		}
+		if (promo != null && (promo.getBeginTime() - EPS) < timeStamp
+				&& timeStamp < (promo.getEndTime() + EPS)) {
+			if (!inPromoDelay) {
+				timeStampShift += timeStamp - promo.getBeginTime();
+				inPromoDelay = true;
+			} else {
+				assert (timeStamp >= middlePos);
+				timeStampShift += timeStamp - middlePos;
+			}
+			middlePos = timeStamp;
+		}
+		return timeStamp - timeStampShift;
+	}
+
+	private void emit(Burst burst) {
+		for (PacketInfo p : burst.getPackets()) {
+			p.setBurst(burst);
+		}
+		listener.burstFinalized(burst);
+	}
+}
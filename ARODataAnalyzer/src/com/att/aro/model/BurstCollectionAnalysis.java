@@ -19,12 +19,11 @@ import java.io.Serializable;
 import java.net.InetAddress;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -53,7 +52,6 @@ public class BurstCollectionAnalysis implements Serializable {
 	
 	private static final Logger LOGGER = Logger.getLogger(BurstCollectionAnalysis.class.getName());
 
-	private static final double EPS = 1 * Math.pow(10, -6);
 	private static final double USER_EVENT_TOLERATE = 4.0f;
 	private static final double AVG_CPU_USAGE_THRESHOLD = 70.0f;
 
@@ -70,15 +68,12 @@ public class BurstCollectionAnalysis implements Serializable {
 	private double minimumPeriodicRepeatTime = 0.0;
 	private TCPSession shortestPeriodTCPSession = null;
 	private PacketInfo shortestPeriodPacketInfo = null;
+	private Map<String, PeriodicityDetector.Result> periodicHosts = Collections.emptyMap();
+	private Map<String, PeriodicityDetector.Result> periodicObjects = Collections.emptyMap();
+	private Map<InetAddress, PeriodicityDetector.Result> periodicIPs = Collections.emptyMap();
 	
 	private static final String LOG_MSG1 = "Burst set to: {0}";
 
-	/*
-	 *  Maximum number of requests the algorithm can process in reasonable time.
-	 *  Testings have shown that the number should be smaller than 400 or even smaller for large traces.
-	 */
-	private static final int MAX_NUM_OF_REQUESTS = Integer.parseInt(Util.RB.getString("max.number.of.requests"));
-
 	private static final int SMALL_PERIODICITY = Integer.parseInt(Util.RB.getString("small.periodicity"));;
 
 	// Contains the burst analysis info
@@ -109,58 +104,6 @@ public class BurstCollectionAnalysis implements Serializable {
 	public BurstCollectionAnalysis() {
 	}
 	
-	/**
-	 * Private utility class
-	 */
-	private class PacketTimestamp {
-		private PacketInfo packet;
-		private double timestamp;
-
-		public PacketTimestamp(PacketInfo packet) {
-			this.packet = packet;
-			this.timestamp = packet.getTimeStamp();
-		}
-	}
-
-	/**
-	 * Bean class to contain the information of Request Event's Inter Arrival
-	 * Time.
-	 */
-	class IatInfo {
-		private double iat;
-		private double beginTime;
-		private int beginEvent;
-		private int endEvent;
-		
-		IatInfo(double iat, double beginTime, int beginEvent, int endEvent) {
-			super();
-			this.iat = iat;
-			this.beginTime = beginTime;
-			this.beginEvent = beginEvent;
-			this.endEvent = endEvent;
-		}
-
-		public IatInfo() {
-		}
-		
-		
-	}
-
-	private class SortByBeginTime implements Comparator<IatInfo> {
-		@Override
-		public int compare(IatInfo o1, IatInfo o2) {
-			return Double.valueOf(o1.beginTime).compareTo(o2.beginTime);
-		}
-	}
-
-	private class SortByIAT implements Comparator<IatInfo> {
-
-		@Override
-		public int compare(IatInfo o1, IatInfo o2) {
-			return Double.valueOf(o1.iat).compareTo(o2.iat);
-		}
-	}
-
 	/**
 	 * Returns the collection of bursts.
 	 * 
@@ -253,6 +196,34 @@ public class BurstCollectionAnalysis implements Serializable {
 		return shortestPeriodPacketInfo;
 	}
 
+	/**
+	 * Returns the hosts requested periodically.
+	 * 
+	 * @return A Map of the host names to their periods.
+	 */
+	public Map<String, PeriodicityDetector.Result> getPeriodicHosts() {
+		return Collections.unmodifiableMap(periodicHosts);
+	}
+
+	/**
+	 * Returns the objects requested periodically.
+	 * 
+	 * @return A Map of the object names, without parameters, to their periods.
+	 */
+	public Map<String, PeriodicityDetector.Result> getPeriodicObjects() {
+		return Collections.unmodifiableMap(periodicObjects);
+	}
+
+	/**
+	 * Returns the remote IPs to which connections are established
+	 * periodically.
+	 * 
+	 * @return A Map of the remote IPs to their periods.
+	 */
+	public Map<InetAddress, PeriodicityDetector.Result> getPeriodicIPs() {
+		return Collections.unmodifiableMap(periodicIPs);
+	}
+
 	/**
 	 * Returns the total energy of all bursts in the collection.
 	 * 
@@ -307,130 +278,21 @@ public class BurstCollectionAnalysis implements Serializable {
 			this.burstCollection = Collections.emptyList();
 			return;
 		}
-		ArrayList<Burst> result = new ArrayList<Burst>();
-		double burstThresh = profile.getBurstTh();
-		double longBurstThresh = profile.getLongBurstTh();
-		List<PacketInfo> burstPackets = new ArrayList<PacketInfo>();
-		// Step 1: Build bursts using burst time threshold
-		PacketInfo lastPacket = null;
-		for (PacketInfo packet : packets) {
-			if (lastPacket == null
-					|| (packet.getTimeStamp() - lastPacket.getTimeStamp() > burstThresh && !mss
-							.contains(lastPacket.getPayloadLen()))) {
-				if (burstPackets.size() > 0) {
-					result.add(new Burst(burstPackets));
-					burstPackets.clear();
-				}
-			}
-			burstPackets.add(packet);
-			lastPacket = packet;
-		}
-		result.add(new Burst(burstPackets));
-
-		// Step 2: Remove promotion delays and merge bursts if possible
-		Map<PacketInfo, Double> timestampList = normalizeCore(packets);
-		List<Burst> newBurstColl = new ArrayList<Burst>(result.size());
-		int n = result.size();
-		Burst newBurst = result.get(0);
-		for (int i = 0; i < n - 1; i++) {
-			Burst bnext = result.get(i + 1);
-			double time1 = timestampList.get(newBurst.getEndPacket());
-			double time2 = timestampList.get(bnext.getBeginPacket());
-			if ((time2 - time1) < burstThresh) {
-				newBurst.merge(bnext);
-			} else {
-				newBurstColl.add(newBurst);
-				newBurst = bnext;
+		final List<Burst> result = new ArrayList<Burst>();
+		BurstBuilder builder = new BurstBuilder(profile, mss, new BurstBuilder.Listener() {
+			@Override
+			public void burstFinalized(Burst burst) {
+				result.add(burst);
 			}
-		}
-		newBurstColl.add(newBurst);
-		this.burstCollection = newBurstColl;
-
-		// Step 3: compute burstID for each packet
-		n = burstCollection.size();
-		for (Burst b : burstCollection) {
-			for (PacketInfo p : b.getPackets()) {
-				p.setBurst(b);
-			}
-		}
-
-		// Step 4: determine short/long IBTs
-		n = burstCollection.size();
-		for (int i = 0; i < n; i++) {
-			Burst b = burstCollection.get(i);
-			assert (b.getEndTime() >= b.getBeginTime());
-			if (i < n - 1) {
-				double ibt = burstCollection.get(i + 1).getBeginTime() - b.getEndTime();
-				assert (ibt >= burstThresh);
-				b.setbLong((ibt > longBurstThresh));
-			} else {
-				b.setbLong(true);
-			}
-		}
-	}
-
-	/**
-	 * Method orginally found in whatif.cpp
-	 * 
-	 * @param packets
-	 *            returns timestampList - List of doubles
-	 */
-	private Map<PacketInfo, Double> normalizeCore(List<PacketInfo> packets) {
-
-		// Step 1: Identify Promotions
-		List<RrcStateRange> promoDelays = new ArrayList<RrcStateRange>();
+		});
 		for (RrcStateRange rrc : analysis.getRrcStateMachine().getRRcStateRanges()) {
-			RRCState state = rrc.getState();
-			if ((state == RRCState.PROMO_FACH_DCH) || (state == RRCState.PROMO_IDLE_DCH)) {
-				promoDelays.add(rrc);
-			}
-		}
-		Collections.sort(promoDelays);
-		PacketTimestamp[] timeStampList = new PacketTimestamp[packets.size()];
-		for (int i = 0; i < packets.size(); i++) {
-			timeStampList[i] = new PacketTimestamp(packets.get(i));
-		}
-
-		// Step 2: Remove all promo delays
-		int m = promoDelays.size();
-		double timeStampShift = 0.0f;
-		int j = 0;
-		int j0 = -1; // "in-the-middle" position
-		double middlePos = 0; // How to initialize??
-		for (int i = 0; i < timeStampList.length; i++) {
-			double timeStamp = timeStampList[i].timestamp;
-			while (j < m && timeStamp >= promoDelays.get(j).getEndTime() - EPS) {
-				if (j0 != -1) {
-					assert (j0 == j && i > 0 && promoDelays.get(j).getEndTime() >= middlePos);
-					timeStampShift += promoDelays.get(j).getEndTime() - middlePos;
-					j0 = -1;
-				} else {
-					timeStampShift += promoDelays.get(j).getEndTime()
-							- promoDelays.get(j).getBeginTime();
-				}
-				j++;
-			}
-			if (j < m && (promoDelays.get(j).getBeginTime() - EPS) < timeStamp
-					&& timeStamp < (promoDelays.get(j).getEndTime() + EPS)) {
-				if (j0 == -1) {
-					timeStampShift += timeStamp - promoDelays.get(j).getBeginTime();
-					middlePos = timeStamp;
-					j0 = j;
-				} else {
-					assert (j0 == j && i > 0);
-					assert (timeStamp >= middlePos);
-					timeStampShift += timeStamp - middlePos;
-					middlePos = timeStamp;
-				}
-			}
-			timeStampList[i].timestamp = timeStampList[i].timestamp - timeStampShift;
-			assert (i == 0 || timeStampList[i].timestamp >= timeStampList[i - 1].timestamp);
+			builder.addStateRange(rrc);
 		}
-		Map<PacketInfo, Double> result = new LinkedHashMap<PacketInfo, Double>(timeStampList.length);
-		for (int i = 0; i < timeStampList.length; ++i) {
-			result.put(timeStampList[i].packet, timeStampList[i].timestamp);
+		for (PacketInfo packet : packets) {
+			builder.append(packet);
 		}
-		return result;
+		builder.finish();
+		this.burstCollection = result;
 	}
 
 	/**
@@ -837,26 +699,12 @@ public class BurstCollectionAnalysis implements Serializable {
 			}
 		}
 
-		Set<String> hostList = new HashSet<String>();
-		Set<String> objList = new HashSet<String>();
-		Set<InetAddress> ipList = new HashSet<InetAddress>();
-		for (Map.Entry<String, List<Double>> iter : requestedHost2tsList.entrySet()) {
-			if (determinePeriodicity(iter.getValue())) {
-				hostList.add(iter.getKey());
-			}
-		}
-		for (Map.Entry<String, List<Double>> iter : requestedObj2tsList.entrySet()) {
-			if (determinePeriodicity(iter.getValue())) {
-				objList.add(iter.getKey());
-			}
-		}
-		for (Map.Entry<InetAddress, List<Double>> iter : connectedIP2tsList.entrySet()) {
-			if (determinePeriodicity(iter.getValue())) {
-				ipList.add(iter.getKey());
-			}
-		}
+		PeriodicityDetector detector = new PeriodicityDetector(profile);
+		periodicHosts = determinePeriodicity(detector, requestedHost2tsList);
+		periodicObjects = determinePeriodicity(detector, requestedObj2tsList);
+		periodicIPs = determinePeriodicity(detector, connectedIP2tsList);
 
-		determinePeriodicity(hostList, objList, ipList);
+		determinePeriodicity(periodicHosts.keySet(), periodicObjects.keySet(), periodicIPs.keySet());
 		
 	}
 
@@ -870,6 +718,7 @@ public class BurstCollectionAnalysis implements Serializable {
 	private void determinePeriodicity(Set<String> hostList, Set<String> objList, Set<InetAddress> ipList) {
 		
 		Set<String> hostPeriodicInfoSet = new HashSet<String>();
+		Map<PacketInfo, List<HttpRequestResponseInfo>> periodicRequests = getPeriodicRequests(hostList, objList);
 
 		for (int i = 0; i < burstCollection.size(); i++) {
 			
@@ -903,7 +752,7 @@ public class BurstCollectionAnalysis implements Serializable {
 				}
 			}
 
-			findPeriodicalBursts(hostPeriodicInfoSet, hostList, objList, burst, firstUplinkPayloadPacket);
+			findPeriodicalBursts(hostPeriodicInfoSet, hostList, periodicRequests, burst, firstUplinkPayloadPacket);
 		}
 		diffPeriodicCount = hostPeriodicInfoSet.size();
 	}
@@ -959,326 +808,115 @@ public class BurstCollectionAnalysis implements Serializable {
 	}
 
 	/**
-	 * Loops through all the HTTP requests in all TCP session. 
-	 * If the host/object in the HTTP request is in the provided list of hosts/objects and
-	 * the first data packet associated with the HTTP request is the first uplink payload packet from the burst then
-	 * increase periodic count by one and mark the burst periodical.
-	 * 
+	 * Indexes the HTTP requests to a host/object of the provided lists of
+	 * hosts/objects by their first data packet.
 	 * 
-	 * @param hostPeriodicInfoSet
 	 * @param hostList
 	 * @param objList
-	 * @param burst
-	 * @param firstUplinkPayloadPacket
+	 * @return Map of the first data packets to their requests
 	 */
-	private void findPeriodicalBursts(Set<String> hostPeriodicInfoSet, Set<String> hostList, Set<String> objList, Burst burst, PacketInfo firstUplinkPayloadPacket) {
+	private Map<PacketInfo, List<HttpRequestResponseInfo>> getPeriodicRequests(Set<String> hostList, Set<String> objList) {
 
+		Map<PacketInfo, List<HttpRequestResponseInfo>> periodicRequests = new IdentityHashMap<PacketInfo, List<HttpRequestResponseInfo>>();
+		if (hostList.isEmpty() && objList.isEmpty()) {
+			return periodicRequests;
+		}
 		for (TCPSession session : analysis.getTcpSessions()) {
 			if(!session.isUDP()){
 				for (HttpRequestResponseInfo httpInfo : session.getRequestResponseInfo()) {
 					if (httpInfo.getDirection() == HttpRequestResponseInfo.Direction.REQUEST
 							&& (hostList.contains(httpInfo.getHostName()) || objList.contains(httpInfo.getObjNameWithoutParams()))) {
-						if (httpInfo.getFirstDataPacket() == firstUplinkPayloadPacket) {
-							LOGGER.fine("Found packet which is the firstUplinkPayloadPacket");
-							periodicCount++;
-							burst.setBurstInfo(BurstCategory.PERIODICAL);
-							burst.setFirstUplinkDataPacket(firstUplinkPayloadPacket);
-							if (hostList.contains(httpInfo.getHostName())) {
-								hostPeriodicInfoSet.add(httpInfo.getHostName());
-							} else {
-								hostPeriodicInfoSet.add(httpInfo.getObjNameWithoutParams());
-							}
-							LOGGER.log(Level.FINE, LOG_MSG1, burst.getBurstInfos());
-							continue;
+						List<HttpRequestResponseInfo> requests = periodicRequests.get(httpInfo.getFirstDataPacket());
+						if (requests == null) {
+							requests = new ArrayList<HttpRequestResponseInfo>(1);
+							periodicRequests.put(httpInfo.getFirstDataPacket(), requests);
 						}
+						requests.add(httpInfo);
 					}
 				}
 			}
 		}
+		return periodicRequests;
 	}
 
 	/**
-	 * Getter for getting the payload length for the provided burst.
+	 * Looks up the HTTP requests to a periodic host/object whose first data packet
+	 * is the first uplink payload packet from the burst. For each of them 
+	 * increase periodic count by one and mark the burst periodical.
 	 * 
-	 * @param burst
-	 * @param bIncludeBkgApp
-	 * @return
-	 */
-	private int getPayloadLength(Burst burst, boolean bIncludeBkgApp) {
-		int r = 0;
-		for (PacketInfo p : burst.getPackets()) {
-			if (bIncludeBkgApp || p.getAppName() != null) {
-				r += p.getPayloadLen();
-			}
-		}
-		return r;
-	}
-
-	/**
-	 * Determines whether the request are periodic.
 	 * 
-	 * @param timeList List of timestamps when the object was requested
-	 * @return true if periodic, false if not
+	 * @param hostPeriodicInfoSet
+	 * @param hostList
+	 * @param periodicRequests
+	 * @param burst
+	 * @param firstUplinkPayloadPacket
 	 */
-	private boolean determinePeriodicity(List<Double> timeList) {
+	private void findPeriodicalBursts(Set<String> hostPeriodicInfoSet, Set<String> hostList,
+			Map<PacketInfo, List<HttpRequestResponseInfo>> periodicRequests, Burst burst, PacketInfo firstUplinkPayloadPacket) {
 
-		// ignore request occurring only few times
-		if (timeList.size() > SMALL_PERIODICITY) {
-
-			// requests occurring too frequently must be split to improve performance
-			if (timeList.size() > MAX_NUM_OF_REQUESTS) {
-
-				List<List<Double>> chunks = splitIntoChunks(timeList, MAX_NUM_OF_REQUESTS);
-				boolean ret = false;
-				for (List<Double> list : chunks) {
-					if (isPeriodicalTraffic(list)) {
-						ret = true;
-					}
-				}
-				return ret;
-
-			} else {
-				// requests occurring less frequently can be processed all at once
-				return isPeriodicalTraffic(timeList);
-			}
-		} else {
-			return false;
+		List<HttpRequestResponseInfo> requests = periodicRequests.get(firstUplinkPayloadPacket);
+		if (requests == null) {
+			return;
 		}
-	}
-
-	/**
-	 * Determines whether the request are periodic.
-	 * 
-	 * @param timeList List of timestamps when the object was requested
-	 * @return true if periodic, false if not
-	 */
-	private boolean isPeriodicalTraffic(List<Double> timeList) {
-		
-		int numberOfRequests = timeList.size();
-		// Collection for storing Inter-Arrival Times
-		List<IatInfo> iatInfoList = new ArrayList<IatInfo>(numberOfRequests * (numberOfRequests - 1) / 2);
-		calculateInterArrivalTime(timeList, numberOfRequests, iatInfoList);
-		sortInterArrivalTime(iatInfoList);
-		return calculateClusterParameters(iatInfoList);
-	}
-
-	/**
-	 * Splits List into smaller Lists/chunks
-	 * 
-	 * @param timeList List of timestamps when the object was requested
-	 * @param maxChunkLength determines the maximum size of chunks
-	 * @return List of chunks
-	 */
-	public static List<List<Double>> splitIntoChunks(List<Double> timeList, final int maxChunkLength) {
-		
-		List<List<Double>> chunks = new ArrayList<List<Double>>();
-		final int size = timeList.size();
-		final int numOfChunks = size / maxChunkLength;
-		final int reminder = size % maxChunkLength;
-		LOGGER.log(Level.FINE, "size: {2}, chunk size: {3}, num. of chunks: {0}, reminder: {1}", new Object[]{numOfChunks, reminder, size, maxChunkLength} );
-		
-		for(int ii=0; ii < size; ii += maxChunkLength) {
-	
-			if(ii + maxChunkLength <= size) {
-				chunks.add(timeList.subList(ii, ii + maxChunkLength));
-			} else if (reminder > 0) {
-				chunks.add(timeList.subList(size - reminder, size));
+		for (HttpRequestResponseInfo httpInfo : requests) {
+			LOGGER.fine("Found packet which is the firstUplinkPayloadPacket");
+			periodicCount++;
+			burst.setBurstInfo(BurstCategory.PERIODICAL);
+			burst.setFirstUplinkDataPacket(firstUplinkPayloadPacket);
+			if (hostList.contains(httpInfo.getHostName())) {
+				hostPeriodicInfoSet.add(httpInfo.getHostName());
 			} else {
-				assert(false);
+				hostPeriodicInfoSet.add(httpInfo.getObjNameWithoutParams());
 			}
-			
+			LOGGER.log(Level.FINE, LOG_MSG1, burst.getBurstInfos());
 		}
-		return chunks;
 	}
 
 	/**
-	 * Calculates Inter-Arrival Time between all events in the collection, time between each events.
-	 * 
-	 * @param timeList Contains a collection of events represented by the event's occurrence timestamp.
-	 * @param numberOfRequests The total number of events.
-	 * @param iatInfoList Stores the results; the calculated IAT, begin time, and other information.
-	 */
-	private void calculateInterArrivalTime(List<Double> timeList, int numberOfRequests, List<IatInfo> iatInfoList) {
-		
-		double time1;
-		double time2;
-		IatInfo ii;
-		
-		for (int i = 0; i < numberOfRequests - 1; i++) {
-			for (int j = i + 1; j < numberOfRequests; j++) {
-				time1 = timeList.get(i).doubleValue();
-				time2 = timeList.get(j).doubleValue();
-
-				ii = new IatInfo();
-				if (time1 <= time2) {
-					ii.beginTime = time1;
-					ii.iat = time2 - time1;
-					ii.beginEvent = i;
-					ii.endEvent = j;
-				} else {
-					ii.beginTime = time2;
-					ii.iat = time1 - time2;
-					ii.beginEvent = j;
-					ii.endEvent = i;
-				}
-
-				iatInfoList.add(ii);
-			}
-		}
-	}
-	
-	/**
-	 * Sorts Inter-Arrival Time collection.
-	 * 
-	 * @param iatInfoList Collection to be sorted.
-	 */
-	private void sortInterArrivalTime(List<IatInfo> iatInfoList) {
-		LOGGER.log(Level.FINE, "sortInterArrivalTime, collection size: {0}", iatInfoList.size());
-		Collections.sort(iatInfoList, new SortByIAT());
-	}
-	
-	/**
-	 * Creates clusters from the list of Inter-Arrival Time list and calculates
-	 * cluster related parameters. Compare these parameters with the profile thresholds and
-	 * returns boolean as a result of the comparison.
+	 * Getter for getting the payload length for the provided burst.
 	 * 
-	 * @param iatInfoList List of IAT objects
-	 * @return true if periodic, false if not
+	 * @param burst
+	 * @param bIncludeBkgApp
+	 * @return
 	 */
-	private boolean calculateClusterParameters(List<IatInfo> iatInfoList) {
-		
-		/*
-		 * This parameter is used to find clusters of PTs (periodic transfers). 
-		 * This parameter/criterion is applied onto all identified clusters of PTs. 
-		 * In order for the cluster to be considered periodical its average value of 
-		 * IATs must be greater than this parameter. 
-		 * The default value of the parameter is 10 seconds.
-		 */
-		double minVariation = profile.getPeriodMinCycle();
-		/* 
-		 * This parameter is used to find clusters of PTs. Each PT has so called 
-		 * IAT (Inter Arrival Time) which is the length of time this PT took place. 
-		 * A cluster is only created from PTs which have their IAT values close 
-		 * to each another within the value specified here by this parameters. 
-		 * Only resulting clusters are considered to be further analyzed for periodicity. 
-		 * The default value of the parameter is 1 second.
-		 */
-		double maxVariation = profile.getPeriodCycleTol();
-		/*
-		 * This parameter is used to find clusters of PTs.
-		 * A cluster of PTs must contain PTs which are continuously linked. 
-		 * The number of linked PTs must be greater than this parameter. 
-		 * The default value is 3.
-		 */
-		int minSamples = profile.getPeriodMinSamples();
-		
-		int iatInfoSize = iatInfoList.size();
-		int bestNonOverlapSize = 0;
-		double cycle = 0;
-		List<IatInfo> iAtCluster;
-		double sumOfClusterIATs;
-		int nonOverlapSize;
-		double avgIatInCluster;
-		for (int idx = 0; idx < iatInfoSize; idx++) {
-
-			iAtCluster = new ArrayList<IatInfo>();
-			sumOfClusterIATs = 0;
-			sumOfClusterIATs += createIatCluster(iatInfoList, iAtCluster, idx, maxVariation);
-			
-			avgIatInCluster = sumOfClusterIATs / iAtCluster.size();
-			if (avgIatInCluster > minVariation) {
-				nonOverlapSize = getNonOverlapSize(iAtCluster);
-				if (nonOverlapSize > bestNonOverlapSize) {
-					LOGGER.fine("The avg. IAT for the cluster has exceeded the threshold");
-					bestNonOverlapSize = nonOverlapSize;
-					cycle = avgIatInCluster;
-				}
+	private int getPayloadLength(Burst burst, boolean bIncludeBkgApp) {
+		int r = 0;
+		for (PacketInfo p : burst.getPackets()) {
+			if (bIncludeBkgApp || p.getAppName() != null) {
+				r += p.getPayloadLen();
 			}
 		}
-
-		if (bestNonOverlapSize < minSamples) {
-			LOGGER.fine("Exiting SelfCorr(), returning: " + false);
-			return false;
-		} else {
-			LOGGER.fine("Exiting SelfCorr(), returning: " + (cycle > 0));
-			return cycle > 0;
-		} 
-	}
-
-	/**
-	 * Finds all IAT objects with IAT.time close to IAT.time of a IAT object identified by index idx. 
-	 * 
-	 * If IAT.time difference between the objects is less than the threshold (maxVariation), the IAT object is added to IAT Cluster.
-	 * Sum of all IAT.time in the cluster is returned.
-	 * 
-	 * @param iatInfoList List of IAT objects
-	 * @param iat IAT object
-	 * @param iAtCluster Cluster of IAT objects 
-	 * @param idx Starting index
-	 * @param maxVariation max. variation
-	 * @return Sum of all IAT.time in the cluster is returned.
-	 */
-	double createIatCluster(List<IatInfo> iatInfoList, List<IatInfo> iAtCluster, int idx, double maxVariation) {
-
-		int i = idx;
-		IatInfo iat = iatInfoList.get(i);
-		IatInfo iatInfo;
-		int iatInfoSize = iatInfoList.size();
-		double sumOfIatInCluster = 0;
-		while ((i < iatInfoSize) && (iatInfoList.get(i).iat - iat.iat < maxVariation)) {
-			iatInfo = iatInfoList.get(i);
-			iAtCluster.add(iatInfo);
-			sumOfIatInCluster += iatInfo.iat;
-			++i;
-		}
-		LOGGER.log(Level.FINE, "Inter-Arrival Time Cluster of size {0} was created", iAtCluster.size());
-		return sumOfIatInCluster;
+		return r;
 	}
 
 	/**
-	 * Method to calculate the over lap events in burst.
-	 * 
-	 * It finds the longest series of subsequent events linked together by event end ID and event begin ID.
+	 * Determines which of the request series are periodic.
 	 * 
+	 * @param detector Finds the period of a series
+	 * @param timeLists Lists of timestamps when each host/object/IP was requested
+	 * @return Map of the periodic keys to their periods
 	 */
-	int getNonOverlapSize(List<IatInfo> iAtCluster) {
-
-		sortIatClusterByBeginTime(iAtCluster);
+	private <K> Map<K, PeriodicityDetector.Result> determinePeriodicity(PeriodicityDetector detector,
+			Map<K, List<Double>> timeLists) {
+		Map<K, PeriodicityDetector.Result> result = new HashMap<K, PeriodicityDetector.Result>();
+		for (Map.Entry<K, List<Double>> iter : timeLists.entrySet()) {
+			List<Double> timeList = iter.getValue();
 
-		// find the longest path
-		int clusterSize = iAtCluster.size();
-		int[] opt = new int[clusterSize];
-		int best = -1;
-		int tmpBest;
-		IatInfo iatInfo;
-
-		for (int i = 0; i < clusterSize; i++) {
-			iatInfo = iAtCluster.get(i);
-			tmpBest = 1;
-
-			for (int j = 0; j <= i - 1; j++) {
-				if (opt[j] >= tmpBest && iAtCluster.get(j).endEvent == iatInfo.beginEvent) {
-					tmpBest = opt[j] + 1;
+			// ignore request occurring only few times
+			if (timeList.size() > SMALL_PERIODICITY) {
+				double[] times = new double[timeList.size()];
+				for (int i = 0; i < times.length; ++i) {
+					times[i] = timeList.get(i).doubleValue();
+				}
+				PeriodicityDetector.Result period = detector.detect(times);
+				if (period != null) {
+					LOGGER.log(Level.FINE, "Periodic requests to {0}, period {1}s, confidence {2}",
+							new Object[] { iter.getKey(), period.getPeriod(), period.getConfidence() });
+					result.put(iter.getKey(), period);
 				}
 			}
-
-			if (tmpBest > best) {
-				best = tmpBest;
-			}
-
-			opt[i] = tmpBest;
 		}
-
-		LOGGER.log(Level.FINE, "Best value: {0}", best);
-		return best;
-	}
-
-	/**
-	 * @param iAtCluster
-	 */
-	private void sortIatClusterByBeginTime(List<IatInfo> iAtCluster) {
-		LOGGER.log(Level.FINE, "sortIatClusterByBeginTime, collection size: {0}", iAtCluster.size());
-		Collections.sort(iAtCluster, new SortByBeginTime());
+		return result;
 	}
 
 	/**
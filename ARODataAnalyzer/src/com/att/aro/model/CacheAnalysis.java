@@ -112,6 +112,7 @@ public class CacheAnalysis implements Serializable {
 	private List<CacheEntry> diagnosisResults = new ArrayList<CacheEntry>();
 	private List<CacheEntry> duplicateContent = new ArrayList<CacheEntry>();
 	private List<CacheEntry> duplicateContentWithOriginals = new ArrayList<CacheEntry>();
+	private ContentStore contentStore = new ContentStore();
 
 	/**
 	 * Initializes an instance of the CacheAnalysis class using the specified collection of TCP session data.
@@ -213,6 +214,11 @@ public class CacheAnalysis implements Serializable {
 				continue;
 			}
 
+			// Index the downloaded content, whatever its URL
+			if (statusCode == 200) {
+				contentStore.add(request, response);
+			}
+
 			// [B] Object cacheable?
 			if (response.isNoStore() || request.isNoStore()
 					|| HttpRequestResponseInfo.HTTP_POST.equals(requestType)
@@ -456,6 +462,15 @@ public class CacheAnalysis implements Serializable {
 		return totalRequestResponseBytes;
 	}
 
+	/**
+	 * Returns the index of the downloaded content by content digest.
+	 * 
+	 * @return The content store of the trace.
+	 */
+	public ContentStore getContentStore() {
+		return contentStore;
+	}
+
 	/**
 	 * Returns the cache expiration response data that consists of a mapping of cache 
 	 * entries with cache expiration values.
@@ -0,0 +1,183 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.model;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * The fingerprint of the body of an HTTP request/response: a 128-bit
+ * MurmurHash3 of the body bytes, as transferred, and their number. Two bodies
+ * with equal digests are taken to be the same content.
+ */
+public final class ContentDigest implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private static final long C1 = 0x87c37b91114253d5L;
+	private static final long C2 = 0x4cf5ad432745937fL;
+	private static final int BLOCK_SIZE = 16;
+
+	private final long high;
+	private final long low;
+	private final long length;
+
+	private ContentDigest(long high, long low, long length) {
+		this.high = high;
+		this.low = low;
+		this.length = length;
+	}
+
+	/**
+	 * Computes the digest of the body stored in the specified ranges of a
+	 * buffer. A range that runs past the end of the buffer only includes the
+	 * bytes that were actually downloaded.
+	 *
+	 * @param buffer
+	 *            The storage buffer of a TCP session.
+	 * @param ranges
+	 *            The offset and length of each part of the body, in order.
+	 * @return The digest.
+	 */
+	public static ContentDigest compute(byte[] buffer, SortedMap<Integer, Integer> ranges) {
+		long h1 = 0;
+		long h2 = 0;
+		long length = 0;
+
+		// Bytes of a block split between two ranges
+		byte[] pending = new byte[BLOCK_SIZE];
+		int pendingCount = 0;
+
+		int bufferSize = buffer != null ? buffer.length : 0;
+		for (Map.Entry<Integer, Integer> entry : ranges.entrySet()) {
+			int pos = entry.getKey();
+			int end = pos + Math.min(entry.getValue(), bufferSize - pos);
+			if (end <= pos) {
+				continue;
+			}
+			length += end - pos;
+			if (pendingCount > 0) {
+				int n = Math.min(BLOCK_SIZE - pendingCount, end - pos);
+				System.arraycopy(buffer, pos, pending, pendingCount, n);
+				pendingCount += n;
+				pos += n;
+				if (pendingCount < BLOCK_SIZE) {
+					continue;
+				}
+				long k1 = mixK1(getLong(pending, 0));
+				long k2 = mixK2(getLong(pending, 8));
+				h1 = mixH1(h1 ^ k1, h2);
+				h2 = mixH2(h2 ^ k2, h1);
+				pendingCount = 0;
+			}
+			for (; pos + BLOCK_SIZE <= end; pos += BLOCK_SIZE) {
+				long k1 = mixK1(getLong(buffer, pos));
+				long k2 = mixK2(getLong(buffer, pos + 8));
+				h1 = mixH1(h1 ^ k1, h2);
+				h2 = mixH2(h2 ^ k2, h1);
+			}
+			pendingCount = end - pos;
+			System.arraycopy(buffer, pos, pending, 0, pendingCount);
+		}
+
+		// Tail
+		if (pendingCount > 0) {
+			long k1 = 0;
+			long k2 = 0;
+			for (int i = pendingCount - 1; i >= 8; --i) {
+				k2 = (k2 << 8) | (pending[i] & 0xff);
+			}
+			for (int i = Math.min(pendingCount, 8) - 1; i >= 0; --i) {
+				k1 = (k1 << 8) | (pending[i] & 0xff);
+			}
+			h1 ^= mixK1(k1);
+			h2 ^= mixK2(k2);
+		}
+
+		h1 ^= length;
+		h2 ^= length;
+		h1 += h2;
+		h2 += h1;
+		h1 = fmix(h1);
+		h2 = fmix(h2);
+		h1 += h2;
+		h2 += h1;
+		return new ContentDigest(h1, h2, length);
+	}
+
+	/**
+	 * Returns the number of bytes in the body.
+	 *
+	 * @return The length in bytes.
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (low ^ (low >>> 32));
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj instanceof ContentDigest) {
+			ContentDigest d = (ContentDigest) obj;
+			return high == d.high && low == d.low && length == d.length;
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%016x%016x", high, low);
+	}
+
+	private static long getLong(byte[] b, int off) {
+		return (b[off] & 0xffL) | (b[off + 1] & 0xffL) << 8 | (b[off + 2] & 0xffL) << 16
+				| (b[off + 3] & 0xffL) << 24 | (b[off + 4] & 0xffL) << 32
+				| (b[off + 5] & 0xffL) << 40 | (b[off + 6] & 0xffL) << 48
+				| (b[off + 7] & 0xffL) << 56;
+	}
+
+	private static long mixK1(long k1) {
+		return Long.rotateLeft(k1 * C1, 31) * C2;
+	}
+
+	private static long mixK2(long k2) {
+		return Long.rotateLeft(k2 * C2, 33) * C1;
+	}
+
+	private static long mixH1(long h1, long h2) {
+		return (Long.rotateLeft(h1, 27) + h2) * 5 + 0x52dce729;
+	}
+
+	private static long mixH2(long h2, long h1) {
+		return (Long.rotateLeft(h2, 31) + h1) * 5 + 0x38495ab5;
+	}
+
+	private static long fmix(long k) {
+		k ^= k >>> 33;
+		k *= 0xff51afd7ed558ccdL;
+		k ^= k >>> 33;
+		k *= 0xc4ceb9fe1a85ec53L;
+		k ^= k >>> 33;
+		return k;
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Indexes the downloaded response bodies of a trace by their content digest,
+ * so that the same bytes downloaded from different URLs, such as CDN shards or
+ * URLs with cache busting query strings, are found with a lookup instead of a
+ * byte by byte comparison.
+ */
+public class ContentStore implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private Map<ContentDigest, List<HttpRequestResponseInfo>> responses = new HashMap<ContentDigest, List<HttpRequestResponseInfo>>();
+	private Map<ContentDigest, Set<String>> urls = new HashMap<ContentDigest, Set<String>>();
+	private List<HttpRequestResponseInfo> crossUrlDuplicates = new ArrayList<HttpRequestResponseInfo>();
+	private long crossUrlDuplicateBytes;
+
+	/**
+	 * Adds a response to the store. Responses are added in time order. A
+	 * response is a cross URL duplicate when the same content was already
+	 * downloaded, but never from the URL of the response.
+	 *
+	 * @param request
+	 *            The request of the response.
+	 * @param response
+	 *            The response. Responses without content are ignored.
+	 */
+	public void add(HttpRequestResponseInfo request, HttpRequestResponseInfo response) {
+		ContentDigest digest = response.getContentDigest();
+		if (digest == null || digest.getLength() == 0) {
+			return;
+		}
+		String url = request.getHostName() + request.getObjName();
+		List<HttpRequestResponseInfo> list = responses.get(digest);
+		if (list == null) {
+			list = new ArrayList<HttpRequestResponseInfo>(1);
+			responses.put(digest, list);
+			Set<String> set = new HashSet<String>(2);
+			set.add(url);
+			urls.put(digest, set);
+		} else if (urls.get(digest).add(url)) {
+			crossUrlDuplicates.add(response);
+			crossUrlDuplicateBytes += digest.getLength();
+		}
+		list.add(response);
+	}
+
+	/**
+	 * Returns the responses with the specified content.
+	 *
+	 * @param digest
+	 *            The digest of the content.
+	 * @return The responses in time order, or an empty list.
+	 */
+	public List<HttpRequestResponseInfo> getResponses(ContentDigest digest) {
+		List<HttpRequestResponseInfo> list = responses.get(digest);
+		return list != null ? Collections.unmodifiableList(list) : Collections
+				.<HttpRequestResponseInfo> emptyList();
+	}
+
+	/**
+	 * Returns the number of different contents in the store.
+	 *
+	 * @return The number of contents.
+	 */
+	public int getUniqueContentCount() {
+		return responses.size();
+	}
+
+	/**
+	 * Returns the responses that downloaded content already downloaded from
+	 * another URL.
+	 *
+	 * @return The cross URL duplicate responses in time order.
+	 */
+	public List<HttpRequestResponseInfo> getCrossUrlDuplicates() {
+		return Collections.unmodifiableList(crossUrlDuplicates);
+	}
+
+	/**
+	 * Returns the number of content bytes that would be saved by not
+	 * downloading the cross URL duplicates.
+	 *
+	 * @return The number of bytes.
+	 */
+	public long getCrossUrlDuplicateBytes() {
+		return crossUrlDuplicateBytes;
+	}
+}
@@ -29,7 +29,8 @@ public class ExternalTcpdumpExecutor extends Thread implements ExternalProcessRe
 	
 	@Override
     public void run() {
-		tcpdumpCommand = "echo "+ this.sudoPassword +" | sudo -S tcpdump -i rvi0 -s 0 -w \""+this.pcappath+"\"";
+		// -U writes each packet as it is captured, so that the file can be analyzed live
+		tcpdumpCommand = "echo "+ this.sudoPassword +" | sudo -S tcpdump -i rvi0 -s 0 -U -w \""+this.pcappath+"\"";
 		String[] cmds = new String[]{"bash","-c",tcpdumpCommand};
 		
 		ProcessBuilder builder = new ProcessBuilder(cmds);
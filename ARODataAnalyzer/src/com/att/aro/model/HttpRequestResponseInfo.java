@@ -20,15 +20,20 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.Charset;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -41,10 +46,6 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.GZIPInputStream;
 
-import org.jsoup.Jsoup;
-
-import com.att.aro.bp.fileorder.FileOrderAnalysis;
-import com.att.aro.bp.asynccheck.AsyncCheckAnalysis;
 import com.att.aro.pcap.TCPPacket;
 import com.att.aro.util.Util;
 
@@ -137,6 +138,7 @@ public class HttpRequestResponseInfo implements
 	
 	// Map of the content offset/
 	private SortedMap<Integer,Integer> contentOffsetLength;
+	private ContentDigest contentDigest;
 
 	// packets
 	private PacketInfo firstDataPacket;
@@ -206,7 +208,12 @@ public class HttpRequestResponseInfo implements
 	}
 
 	/**
-	 * This is a synchronized request/response builder class
+	 * Builds the requests and responses of a TCP session. The builder scans
+	 * the reassembled storage of the session in place: a line is a range of
+	 * the storage, the header names are looked up in a table of the headers of
+	 * interest without regard to case, and a value is decoded only when it is
+	 * stored as a String. An instance is only used by the thread that
+	 * creates it.
 	 */
 	private static class RequestResponseBuilder {
 
@@ -229,6 +236,14 @@ public class HttpRequestResponseInfo implements
 		private static final String PATTERN_ASCTIME = "EEE MMM d HH:mm:ss yyyy";
 		private static final String PATTERN_ASCTIME2 = "EEE MMM d HH:mm:ss zzz yyyy";
 
+		private static final Charset UTF8_CHARSET = Charset.forName(UTF8);
+
+		/**
+		 * A 0xFF byte, which cannot occur in the text of a header, ends a line
+		 * like the end of the input does.
+		 */
+		private static final byte END_OF_INPUT = -1;
+
 		private static final String CHARSET = "charset";
 		private static final String CHUNKED = "chunked";
 		private static final String NOCACHE = "no-cache";
@@ -238,64 +253,92 @@ public class HttpRequestResponseInfo implements
 		private static final String MUSTREVALIDATE = "must-revalidate";
 		private static final String PROXYREVALIDATE = "proxy-revalidate";
 		private static final String ONLYIFCACHED = "only-if-cached";
+		private static final String MAXAGE = "max-age";
+		private static final String SMAXAGE = "s-maxage";
+		private static final String MINFRESH = "min-fresh";
+		private static final String MAXSTALE = "max-stale";
+		private static final String BYTES = "bytes ";
+
+		private static final char HEADERS_SEPARATOR = ' ';
+
+		// The headers of interest, matched without regard to case
+		private static final int HOST = 0;
+		private static final int CONTENT_LENGTH = 1;
+		private static final int TRANSFER_ENCODING = 2;
+		private static final int CONTENT_ENCODING = 3;
+		private static final int CONTENT_TYPE = 4;
+		private static final int DATE = 5;
+		private static final int PRAGMA = 6;
+		private static final int CACHE_CONTROL = 7;
+		private static final int ETAG = 8;
+		private static final int AGE = 9;
+		private static final int EXPIRES = 10;
+		private static final int LAST_MODIFIED = 11;
+		private static final int CONTENT_RANGE = 12;
+		private static final int REFERER = 13;
+		private static final int IF_MODIFIED_SINCE = 14;
+		private static final int IF_NONE_MATCH = 15;
+		private static final String[] HEADER_NAMES = { "host", "content-length",
+				"transfer-encoding", "content-encoding", "content-type", "date", "pragma",
+				"cache-control", "etag", "age", "expires", "last-modified", "content-range",
+				"referer", "if-modified-since", "if-none-match" };
 
-		private static final Object HEADERS_SEPARATOR = " ";
+		/**
+		 * The headers of interest by the length of their names.
+		 */
+		private static final int[][] HEADERS_BY_LENGTH;
+
+		private static final String[] MONTHS = { "january", "february", "march", "april", "may",
+				"june", "july", "august", "september", "october", "november", "december" };
+		private static final String[] DAYS_OF_WEEK = { "sunday", "monday", "tuesday",
+				"wednesday", "thursday", "friday", "saturday" };
+		private static final String[] TIME_ZONES = { "gmt", "utc", "ut", "z", "est", "edt", "cst",
+				"cdt", "mst", "mdt", "pst", "pdt" };
+		private static final int[] TIME_ZONE_OFFSETS = { 0, 0, 0, 0, -5, -4, -6, -5, -7, -6, -8,
+				-7 };
+
+		/**
+		 * The first year of the century of the two digit years, 80 years
+		 * before now as for SimpleDateFormat.
+		 */
+		private static final int CENTURY_START = Calendar.getInstance().get(Calendar.YEAR) - 80;
+
+		static {
+			int maxLength = 0;
+			for (String name : HEADER_NAMES) {
+				maxLength = Math.max(maxLength, name.length());
+			}
+			HEADERS_BY_LENGTH = new int[maxLength + 1][0];
+			for (int i = 0; i < HEADER_NAMES.length; ++i) {
+				int[] headers = HEADERS_BY_LENGTH[HEADER_NAMES[i].length()];
+				int[] newHeaders = new int[headers.length + 1];
+				System.arraycopy(headers, 0, newHeaders, 0, headers.length);
+				newHeaders[headers.length] = i;
+				HEADERS_BY_LENGTH[HEADER_NAMES[i].length()] = newHeaders;
+			}
+		}
 
 		private static Pattern strReRequestType = Pattern
 				.compile("(\\S*)\\s* \\s*(\\S*)\\s* \\s*(HTTP/1\\.[0|1]|RTSP/1\\.[0|1])");
-		private static Pattern strReRequestHost = Pattern.compile("[H|h]ost:");
-		private static Pattern strReResponseContentLength = Pattern
-				.compile("[C|c]ontent-[L|l]ength:");
-		private static Pattern strReTransferEncoding = Pattern
-				.compile("[T|t]ransfer-[E|e]ncoding:");
-		private static Pattern strReResponseContentType = Pattern
-				.compile("[C|c]ontent-[T|t]ype:");
-		private static Pattern strReResponseContentEncoding = Pattern
-				.compile("[C|c]ontent-[E|e]ncoding:");
 		private static Pattern strReResponseResults = Pattern
 				.compile("(HTTP/1\\.[0|1]|RTSP/1\\.[0|1])\\s* \\s*(\\d++)\\s* \\s*(.*)");
-		private static Pattern strReResponseEtag = Pattern
-				.compile("ETag\\s*:\\s*(W/)?\"(.*)\"");
-		private static Pattern strReResponseAge = Pattern
-				.compile("Age\\s*:\\s*(\\d*)");
-		private static Pattern strReResponseExpires = Pattern
-				.compile("Expires\\s*:(.*)");
-		private static Pattern strReResponseReferer = Pattern
-				.compile("Referer\\s*:(.*)");
-		private static Pattern strReResponseLastMod = Pattern
-				.compile("Last-Modified\\s*:(.*)");
-		private static Pattern strReResponseDate = Pattern
-				.compile("Date\\s*:(.*)");
-		private static Pattern strReResponsePragmaNoCache = Pattern
-				.compile("Pragma\\s*:\\s*no-cache");
-		private static Pattern strReResponseCacheControl = Pattern
-				.compile("Cache-Control\\s*:(.*)");
-		private static Pattern strReCacheMaxAge = Pattern
-				.compile("max-age\\s*=\\s*(\\d++)");
-		private static Pattern strReCacheSMaxAge = Pattern
-				.compile("s-maxage\\s*=\\s*(\\d++)");
-		private static Pattern strReCacheMinFresh = Pattern
-				.compile("min-fresh\\s*=\\s*(\\d++)");
-		private static Pattern strReCacheMaxStale = Pattern
-				.compile("max-stale\\s*(?:=\\s*(\\d*))?");
-		private static Pattern strReContentRange = Pattern
-				.compile("Content-Range\\s*:\\s*bytes (\\d*)\\s*-\\s*(\\d*)\\s*/\\s*(\\d*)");
-		private static Pattern strReIfModifiedSince = Pattern
-				.compile("If-Modified-Since\\s*:");
-		private static Pattern strReIfNoneMatch = Pattern
-				.compile("If-None-Match\\s*:");
 
 		private TCPSession session;
 		private ArrayList<HttpRequestResponseInfo> result = new ArrayList<HttpRequestResponseInfo>();
 		private int counter;
 		private byte[] input;
 
-		private DateFormat rfc1123 = new SimpleDateFormat(PATTERN_RFC1123);
-		private DateFormat rfc1036 = new SimpleDateFormat(PATTERN_RFC1036);
-		private DateFormat asctime = new SimpleDateFormat(PATTERN_ASCTIME);
-		private DateFormat asctime2 = new SimpleDateFormat(PATTERN_ASCTIME2);
-		private DateFormat[] dateFormats = { rfc1123, rfc1036, asctime,
-				asctime2 };
+		// The current line, without its CRLF
+		private int lineStart;
+		private int lineEnd;
+
+		// The start of the value of the current header, and the position of
+		// the date parser
+		private int valueStart;
+		private int position;
+
+		private StringBuilder headers = new StringBuilder();
+		private DateFormat[] dateFormats;
 
 		public RequestResponseBuilder(TCPSession session) throws IOException {
 			this.session = session;
@@ -434,7 +477,7 @@ public class HttpRequestResponseInfo implements
 		 * @return A List of HttpRequestResponseInfo objects that contain the
 		 *         request/response data from a TCP session.
 		 */
-		public synchronized void extractHttpRequestResponseInfo(
+		public void extractHttpRequestResponseInfo(
 				PacketInfo.Direction direction) throws IOException {
 
 			SortedMap<Integer, PacketInfo> packetOffsets;
@@ -454,12 +497,11 @@ public class HttpRequestResponseInfo implements
 			this.counter = 0;
 
 			HttpRequestResponseInfo rrInfo = findNextRequestResponse(direction,	packetOffsets);
-			String line;
-			while ((line = readLine()) != null && rrInfo != null) {
+			while (readLine() && rrInfo != null) {
 
-				if (line.length() == 0) {
+				if (lineEnd == lineStart) {
+					publishHeaders(rrInfo);
 					if (rrInfo.contentLength > 0) {
-						//rrInfo.contentOffsetLength = new TreeMap<Integer, Integer>();
 						rrInfo.contentOffsetLength = new TreeMap<Integer,Integer>();
 						rrInfo.contentOffsetLength.put(counter,
 								rrInfo.contentLength);
@@ -476,34 +518,28 @@ public class HttpRequestResponseInfo implements
 						while (true) {
 
 							// Read each chunk
-							line = readLine();
-							if (line != null) {
-								String[] s = line.split(";");
-								int size = Integer.parseInt(s[0].trim(), 16);
+							if (readLine()) {
+								int size = parseChunkSize();
 								if (size > 0) {
 
 									// Save content offsets
 									rrInfo.contentOffsetLength.put(counter,
 											size);
 									rrInfo.contentLength += size;
-									for (int i = 0; i < size; ++i) {
-										readInput();
-									}
+									counter = (int) Math.min(input.length, (long) counter + size);
 
 									// CRLF at end of each chunk
-									line = readLine();
-									if (line != null && line.length() > 0) {
+									if (readLine() && lineEnd > lineStart) {
 										LOGGER.warning("Unexpected end of chunk: "
-												+ line);
+												+ lineString());
 									}
 								} else {
 									rrInfo.chunkModeFinished = true;
 
 									// End of chunks
-									line = readLine();
-									if (line != null && line.length() > 0) {
+									if (readLine() && lineEnd > lineStart) {
 										LOGGER.warning("Unexpected end of chunked data: "
-												+ line);
+												+ lineString());
 									}
 									break;
 								}
@@ -537,9 +573,12 @@ public class HttpRequestResponseInfo implements
 					}
 					rrInfo = findNextRequestResponse(direction, packetOffsets);
 				} else {
-					parseHeaderLine(line, rrInfo);
+					parseHeaderLine(rrInfo);
 				}
 			} // end: while
+			if (rrInfo != null) {
+				publishHeaders(rrInfo);
+			}
 		}
 
 		/**
@@ -609,10 +648,10 @@ public class HttpRequestResponseInfo implements
 				}
 			}
 			
-			if(direction == PacketInfo.Direction.UPLINK && this.session.getStorageUlEx() != null) {
-				index = this.session.getStorageUlEx().length - 1;
-			} else if(direction == PacketInfo.Direction.DOWNLINK && this.session.getStorageDlEx() != null) {
-				index = this.session.getStorageDlEx().length - 1;
+			if(direction == PacketInfo.Direction.UPLINK && this.session.getStorageUlExLength() >= 0) {
+				index = this.session.getStorageUlExLength() - 1;
+			} else if(direction == PacketInfo.Direction.DOWNLINK && this.session.getStorageDlExLength() >= 0) {
+				index = this.session.getStorageDlExLength() - 1;
 			}
 			
 			for (SortedMap.Entry<Integer, PacketInfo> entry : packetOffsets
@@ -628,43 +667,48 @@ public class HttpRequestResponseInfo implements
 		}
 
 		/**
-		 * Read a line of text from the HTTP request/response stream
+		 * Reads the next line of the HTTP request/response stream, which is
+		 * then the range of the input from lineStart to lineEnd. A CR that is
+		 * not followed by a LF is part of the line, with the byte after it.
 		 * 
-		 * @param input
-		 *            the request/response stream
-		 * @return Next line of text in stream or null if end of stream reached
-		 * @throws IOException
+		 * @return True when a line was read, false when the end of the stream
+		 *         was reached without reading any text
 		 */
-		private synchronized String readLine() throws IOException {
-			ByteArrayOutputStream output = new ByteArrayOutputStream();
-			int b;
-			try {
-
-				// Look for CRLF
-				while ((b = readInput()) != -1) {
-					switch (b) {
-					case '\r':
-						b = readInput();
-						if (b == '\n') {
-
-							// Return found line of text
-							return new String(output.toByteArray(), UTF8);
-						} else {
-							output.write('\r');
-							output.write(b);
-						}
-						break;
-					default:
-						output.write(b);
+		private boolean readLine() {
+			lineStart = counter;
+			while (counter < input.length) {
+				byte b = input[counter++];
+				if (b == '\r') {
+					if (counter < input.length && input[counter] == '\n') {
+						lineEnd = counter - 1;
+						++counter;
+						return true;
+					} else if (counter < input.length) {
+						++counter;
 					}
+				} else if (b == END_OF_INPUT) {
+					lineEnd = counter - 1;
+					return lineEnd > lineStart;
 				}
-
-				// End of stream
-				return output.size() > 0 ? new String(output.toByteArray(),
-						UTF8) : null;
-			} finally {
-				output.close();
 			}
+
+			// End of stream
+			lineEnd = counter;
+			return lineEnd > lineStart;
+		}
+
+		/**
+		 * Returns the text of the current line.
+		 */
+		private String lineString() {
+			return decode(lineStart, lineEnd);
+		}
+
+		/**
+		 * Decodes a range of the input.
+		 */
+		private String decode(int start, int end) {
+			return new String(input, start, end - start, UTF8_CHARSET);
 		}
 
 		/**
@@ -678,61 +722,68 @@ public class HttpRequestResponseInfo implements
 		 * @return next HttpRequestResponseInfo object.
 		 * @throws IOException
 		 */
-		private synchronized HttpRequestResponseInfo findNextRequestResponse(
+		private HttpRequestResponseInfo findNextRequestResponse(
 				PacketInfo.Direction direction,
 				SortedMap<Integer, PacketInfo> packetOffsets)
 				throws IOException {
 			int index = counter;
-			String line = readLine();
-			while (line != null && line.length() == 0) {
+			boolean found = readLine();
+			while (found && lineEnd == lineStart) {
 				index = counter;
-				line = readLine();
+				found = readLine();
 			}
 
 			HttpRequestResponseInfo rrInfo = null;
-			if (line != null) {
-				Matcher matcher;
+			if (found) {
 				rrInfo = new HttpRequestResponseInfo(session, direction);
 				rrInfo.rrStart = index;
+				headers.setLength(0);
 
-				// Check for request type
-				matcher = strReRequestType.matcher(line);
-				if (matcher.lookingAt()) {
-					rrInfo.statusLine = line;
-					rrInfo.requestType = matcher.group(1);
-					rrInfo.direction = Direction.REQUEST;
-					rrInfo.objName = matcher.group(2);
-					try {
-						rrInfo.objUri = new URI(rrInfo.objName);
-						if (rrInfo.objUri.getHost() != null) {
-							rrInfo.hostName = rrInfo.objUri.getHost();
+				// Both the request and the status lines carry the version, so
+				// that other data is not decoded
+				if (lineContains("HTTP/1.") || lineContains("RTSP/1.")) {
+					String line = lineString();
+					Matcher matcher;
+
+					// Check for request type
+					matcher = strReRequestType.matcher(line);
+					if (matcher.lookingAt()) {
+						rrInfo.statusLine = line;
+						rrInfo.requestType = matcher.group(1);
+						rrInfo.direction = Direction.REQUEST;
+						rrInfo.objName = matcher.group(2);
+						try {
+							rrInfo.objUri = new URI(rrInfo.objName);
+							if (rrInfo.objUri.getHost() != null) {
+								rrInfo.hostName = rrInfo.objUri.getHost();
+							}
+						} catch (URISyntaxException e) {
+							// Ignore since value does not have to be a URI
 						}
-					} catch (URISyntaxException e) {
-						// Ignore since value does not have to be a URI
+						rrInfo.version = matcher.group(3);
+						rrInfo.scheme = rrInfo.version.split("/")[0];
+						
+						switch (direction) {
+						case UPLINK:
+							rrInfo.port = session.getRemotePort();
+							break;
+						case DOWNLINK:
+							rrInfo.port = session.getLocalPort();
+							break;
+						}
+	
 					}
-					rrInfo.version = matcher.group(3);
-					rrInfo.scheme = rrInfo.version.split("/")[0];
-					
-					switch (direction) {
-					case UPLINK:
-						rrInfo.port = session.getRemotePort();
-						break;
-					case DOWNLINK:
-						rrInfo.port = session.getLocalPort();
-						break;
+	
+					// Get response
+					matcher = strReResponseResults.matcher(line);
+					if (matcher.lookingAt()) {
+						rrInfo.statusLine = line;
+						rrInfo.direction = Direction.RESPONSE;
+						rrInfo.version = matcher.group(1);
+						rrInfo.scheme = rrInfo.version.split("/")[0];
+						rrInfo.statusCode = Integer.parseInt(matcher.group(2));
+						rrInfo.responseResult = matcher.group(3);
 					}
-
-				}
-
-				// Get response
-				matcher = strReResponseResults.matcher(line);
-				if (matcher.lookingAt()) {
-					rrInfo.statusLine = line;
-					rrInfo.direction = Direction.RESPONSE;
-					rrInfo.version = matcher.group(1);
-					rrInfo.scheme = rrInfo.version.split("/")[0];
-					rrInfo.statusCode = Integer.parseInt(matcher.group(2));
-					rrInfo.responseResult = matcher.group(3);
 				}
 
 				if (rrInfo.direction == null) {
@@ -741,7 +792,7 @@ public class HttpRequestResponseInfo implements
 					if (session.isSsl()) {
 						rrInfo.ssl = true;
 					}
-					while ((line = readLine()) != null && line.length() > 0) {
+					while (readLine() && lineEnd > lineStart) {
 						;
 					}
 					rrInfo.rawSize = counter - index;
@@ -768,68 +819,73 @@ public class HttpRequestResponseInfo implements
 		}
 
 		/**
-		 * Parse data from the line of text
+		 * Parse data from the current line
 		 * 
-		 * @param headerLine
 		 * @param rrInfo
 		 */
-		private synchronized void parseHeaderLine(String headerLine,
-												  HttpRequestResponseInfo rrInfo) {
+		private void parseHeaderLine(HttpRequestResponseInfo rrInfo) {
 			
-			appendHeaderToHttpRequestResponseInfo(headerLine, rrInfo);
+			appendHeader();
 			
-			Matcher matcher;
-			String[] s;
+			int header = findHeader();
+			int start = valueStart;
+			int end = lineEnd;
+			long value;
+
+			switch (header) {
 
 			// Get request host
-			matcher = strReRequestHost.matcher(headerLine);
-			if (matcher.lookingAt()) {
-				String hostName = headerLine.substring(matcher.end()).trim();
-				
-				// Strip port info if included
-				int i = hostName.indexOf(':');
-				if (i >= 0) {
-					hostName = hostName.substring(0, i);
-				}
-				rrInfo.hostName = hostName;
+			case HOST:
+				start = skipWhitespace(start, end);
+				end = trimEnd(start, end);
+				rrInfo.hostName = decode(start, indexOf(':', start, end));
 				return;
-			}
 
 			// Get request content length
-			matcher = strReResponseContentLength.matcher(headerLine);
-			if (matcher.lookingAt() && rrInfo.contentLength == 0) {
-				try{
-					rrInfo.contentLength = Integer.parseInt(headerLine.substring(matcher.end()).trim());
-				}catch(NumberFormatException e) {
-					/* The value exceeds the Interger.MAX_VALUE i.e 2^31-1=2147483647*/
-					LOGGER.log(Level.FINE, "Cannot parse the string to int for contentLength,because"
-							+ " The value to parse is :" 
-							+ (headerLine.substring(matcher.end()).trim()) 
-							+ " which is greater than the Integer.MAX_VALUE (2^31-1=2147483647).");
+			case CONTENT_LENGTH:
+				if (rrInfo.contentLength == 0) {
+					start = skipWhitespace(start, end);
+					end = trimEnd(start, end);
+					value = parseDigits(start, end);
+					if (value >= 0 && value <= Integer.MAX_VALUE && position == end) {
+						rrInfo.contentLength = (int) value;
+					} else {
+						String length = decode(start, end);
+						try {
+							rrInfo.contentLength = Integer.parseInt(length);
+						} catch (NumberFormatException e) {
+							/* The value exceeds the Interger.MAX_VALUE i.e 2^31-1=2147483647*/
+							LOGGER.log(Level.FINE, "Cannot parse the string to int for contentLength,because"
+									+ " The value to parse is :" 
+									+ length 
+									+ " which is greater than the Integer.MAX_VALUE (2^31-1=2147483647).");
+						}
+					}
 				}
-				
 				return;
-			}
 
 			// Get request transfer encoding
-			matcher = strReTransferEncoding.matcher(headerLine);
-			if (matcher.lookingAt()) {
-				rrInfo.chunked = CHUNKED.equals(headerLine.substring(matcher.end())
-						.trim());
+			case TRANSFER_ENCODING:
+				start = skipWhitespace(start, end);
+				rrInfo.chunked = matches(start, trimEnd(start, end), CHUNKED, false);
 				return;
-			}
 
-			// Get request transfer encoding
-			matcher = strReResponseContentEncoding.matcher(headerLine);
-			if (matcher.lookingAt()) {
-				rrInfo.contentEncoding = headerLine.substring(matcher.end()).trim().toLowerCase();
+			// Get request content encoding
+			case CONTENT_ENCODING:
+				start = skipWhitespace(start, end);
+				end = trimEnd(start, end);
+				if (matches(start, end, CONTENT_ENCODING_GZIP, true)) {
+					rrInfo.contentEncoding = CONTENT_ENCODING_GZIP;
+				} else if (matches(start, end, CONTENT_ENCODING_DEFLATE, true)) {
+					rrInfo.contentEncoding = CONTENT_ENCODING_DEFLATE;
+				} else {
+					rrInfo.contentEncoding = decode(start, end).toLowerCase();
+				}
 				return;
-			}
 
 			// Get content type
-			matcher = strReResponseContentType.matcher(headerLine);
-			if (matcher.lookingAt()) {
-				s = headerLine.substring(matcher.end()).trim().split(";");
+			case CONTENT_TYPE:
+				String[] s = decode(start, end).trim().split(";");
 				rrInfo.contentType = s[0].trim().toLowerCase();
 				for (int i = 1; i < s.length; ++i) {
 					int index = s[i].indexOf("=");
@@ -841,233 +897,477 @@ public class HttpRequestResponseInfo implements
 					}
 				}
 				return;
-			}
 
 			// Date
-			matcher = strReResponseDate.matcher(headerLine);
-			if (matcher.lookingAt()) {
-				rrInfo.date = readHttpDate(matcher.group(1), false);
+			case DATE:
+				rrInfo.date = readHttpDate(start, end, false);
 				return;
-			}
 
 			// Pragma: no-cache
-			matcher = strReResponsePragmaNoCache.matcher(headerLine);
-			if (matcher.lookingAt()) {
-				rrInfo.hasCacheHeaders = true;
-				rrInfo.pragmaNoCache = true;
-				return;
-			}
-
-			// Cache-Control
-			matcher = strReResponseCacheControl.matcher(headerLine);
-			if (matcher.lookingAt()) {
-				s = matcher.group(1).split(",");
-				if (s.length > 0) {
+			case PRAGMA:
+				start = skipWhitespace(start, end);
+				if (matches(start, Math.min(end, start + NOCACHE.length()), NOCACHE, false)) {
 					rrInfo.hasCacheHeaders = true;
+					rrInfo.pragmaNoCache = true;
+					return;
 				}
-				for (int i = 0; i < s.length; ++i) {
-					String directive = s[i].trim();
-					if (NOCACHE.equals(directive)) {
-						rrInfo.noCache = true;
-						continue;
-					} else if (NOSTORE.equals(directive)) {
-						rrInfo.noStore = true;
-						continue;
-					}
-
-					// max-age
-					matcher = strReCacheMaxAge.matcher(directive);
-					if (matcher.lookingAt()) {
-						rrInfo.maxAge = Long.valueOf(matcher.group(1));
-						continue;
-					}
-
-					if (rrInfo.direction == Direction.REQUEST) {
-						if (ONLYIFCACHED.equals(directive)) {
-							rrInfo.onlyIfCached = true;
-							continue;
-						}
-
-						// min-fresh
-						matcher = strReCacheMinFresh.matcher(directive);
-						if (matcher.lookingAt()) {
-							rrInfo.minFresh = Long.valueOf(matcher.group(1));
-							continue;
-						}
-
-						// max-stale
-						matcher = strReCacheMaxStale.matcher(directive);
-						if (matcher.lookingAt()) {
-							rrInfo.maxStale = matcher.group(1) != null ? Long
-									.valueOf(matcher.group(1)) : Long.MAX_VALUE;
-							continue;
-						}
-
-					} else if (rrInfo.direction == Direction.RESPONSE) {
-						if (PUBLIC.equals(directive)) {
-							rrInfo.publicCache = true;
-							continue;
-						} else if (PRIVATE.equals(directive)) {
-							rrInfo.privateCache = true;
-							continue;
-						} else if (MUSTREVALIDATE.equals(directive)) {
-							rrInfo.mustRevalidate = true;
-							continue;
-						} else if (PROXYREVALIDATE.equals(directive)) {
-							rrInfo.proxyRevalidate = true;
-							continue;
-						}
-
-						// s-maxage
-						matcher = strReCacheSMaxAge.matcher(directive);
-						if (matcher.lookingAt()) {
-							rrInfo.sMaxAge = Long.valueOf(matcher.group(1));
-							continue;
-						}
+				break;
 
+			// Cache-Control
+			case CACHE_CONTROL:
+				rrInfo.hasCacheHeaders = true;
+				while (true) {
+					int comma = indexOf(',', start, end);
+					int directiveStart = skipWhitespace(start, comma);
+					parseCacheDirective(rrInfo, directiveStart, trimEnd(directiveStart, comma));
+					if (comma == end) {
+						break;
 					}
+					start = comma + 1;
 				}
 				return;
 			}
 
 			if (rrInfo.direction == Direction.RESPONSE) {
+				switch (header) {
 
 				// ETag
-				matcher = strReResponseEtag.matcher(headerLine);
-				if (matcher.lookingAt()) {
-					rrInfo.etag = matcher.group(2);
-					return;
-				}
+				case ETAG:
+					start = skipWhitespace(start, end);
+					if (matches(start, Math.min(end, start + 2), "W/", false)) {
+						start += 2;
+					}
+					if (start < end && input[start] == '"') {
+						int quote = lastIndexOf('"', start + 1, end);
+						if (quote >= 0) {
+							rrInfo.etag = decode(start + 1, quote);
+							return;
+						}
+					}
+					break;
 
 				// Age
-				matcher = strReResponseAge.matcher(headerLine);
-				if (matcher.lookingAt()) {
-					rrInfo.age = Long.valueOf(matcher.group(1));
+				case AGE:
+					value = parseDigits(skipWhitespace(start, end), end);
+					if (value >= 0) {
+						rrInfo.age = Long.valueOf(value);
+					}
 					return;
-				}
 
 				// Expires
-				matcher = strReResponseExpires.matcher(headerLine);
-				if (matcher.lookingAt()) {
-					rrInfo.expires = readHttpDate(matcher.group(1), true);
+				case EXPIRES:
+					rrInfo.expires = readHttpDate(start, end, true);
 					return;
-				}
 
 				// Last modified
-				matcher = strReResponseLastMod.matcher(headerLine);
-				if (matcher.lookingAt()) {
-					rrInfo.lastModified = readHttpDate(matcher.group(1), false);
+				case LAST_MODIFIED:
+					rrInfo.lastModified = readHttpDate(start, end, false);
 					return;
-				}
 
 				// Content-Range
-				matcher = strReContentRange.matcher(headerLine);
-				if (matcher.lookingAt()) {
-					rrInfo.rangeResponse = true;
-					rrInfo.rangeFirst = Integer.parseInt(matcher.group(1));
-					try{
-						rrInfo.rangeLast = Integer.parseInt(matcher.group(2));
-					}catch(NumberFormatException e) {
-					/* The value exceeds the Interger.MAX_VALUE i.e 2^31-1=2147483647.
-					 * Continue.*/
-					LOGGER.log(Level.FINE, "Cannot parse the string to int for rangeLast,because"
-							+ " The value to parse is :" 
-							+ matcher.group(2)
-							+ " which is greater than the Integer.MAX_VALUE (2^31-1=2147483647).");
-					
+				case CONTENT_RANGE:
+					if (parseContentRange(rrInfo, skipWhitespace(start, end), end)) {
+						return;
 					}
-					rrInfo.rangeFull = Long.parseLong(matcher.group(3));
-
-					if (rrInfo.contentLength == 0) {
-						rrInfo.contentLength = rrInfo.rangeLast
-								- rrInfo.rangeFirst + 1;
-					}
-					return;
+					break;
 				}
 
 			} else if (rrInfo.direction == Direction.REQUEST) {
+				switch (header) {
 
 				// Referrer
-				matcher = strReResponseReferer.matcher(headerLine);
-				if (matcher.lookingAt()) {
+				case REFERER:
+					String referrer = decode(start, end);
 					try {
-						rrInfo.referrer = new URI(matcher.group(1).trim());
+						rrInfo.referrer = new URI(referrer.trim());
 					} catch (URISyntaxException e) {
 						LOGGER.fine("Invalid referrer URI: "
-								+ matcher.group(1));
+								+ referrer);
 					}
 					return;
-				}
 
 				// If-Modified-Since
-				matcher = strReIfModifiedSince.matcher(headerLine);
-				if (matcher.lookingAt()) {
+				case IF_MODIFIED_SINCE:
 					rrInfo.ifModifiedSince = true;
 					return;
-				}
 
 				// If-None-Match
-				matcher = strReIfNoneMatch.matcher(headerLine);
-				if (matcher.lookingAt()) {
+				case IF_NONE_MATCH:
 					rrInfo.ifNoneMatch = true;
 					return;
 				}
 
 			}
 			
-			LOGGER.log(Level.FINEST, "found a line that was not parsed: {0}", headerLine);
+			if (LOGGER.isLoggable(Level.FINEST)) {
+				LOGGER.log(Level.FINEST, "found a line that was not parsed: {0}", lineString());
+			}
 		}
 
-		private void appendHeaderToHttpRequestResponseInfo(String line, HttpRequestResponseInfo rrInfo) {
-			if (rrInfo != null) {
-				StringBuilder headersBuilder;
-				if (rrInfo.allHeaders == null) {
-					headersBuilder = new StringBuilder();
-				} else {
-					headersBuilder = new StringBuilder(rrInfo.allHeaders);
+		/**
+		 * Looks up the name of the current header line in the headers of
+		 * interest, and sets valueStart after the colon that follows it.
+		 * 
+		 * @return The header, or -1 for another header or a line that is not
+		 *         a header.
+		 */
+		private int findHeader() {
+			int nameEnd = lineStart;
+			while (nameEnd < lineEnd && input[nameEnd] != ':' && !isWhitespace(input[nameEnd])) {
+				++nameEnd;
+			}
+			int colon = skipWhitespace(nameEnd, lineEnd);
+			int length = nameEnd - lineStart;
+			if (colon == lineEnd || input[colon] != ':' || length >= HEADERS_BY_LENGTH.length) {
+				return -1;
+			}
+			valueStart = colon + 1;
+			for (int header : HEADERS_BY_LENGTH[length]) {
+				if (matches(lineStart, nameEnd, HEADER_NAMES[header], true)) {
+					return header;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * Parses a directive of a Cache-Control header.
+		 */
+		private void parseCacheDirective(HttpRequestResponseInfo rrInfo, int start, int end) {
+			if (matches(start, end, NOCACHE, false)) {
+				rrInfo.noCache = true;
+				return;
+			} else if (matches(start, end, NOSTORE, false)) {
+				rrInfo.noStore = true;
+				return;
+			}
+
+			// max-age
+			long value = parseDirectiveValue(start, end, MAXAGE);
+			if (value >= 0) {
+				rrInfo.maxAge = Long.valueOf(value);
+				return;
+			}
+
+			if (rrInfo.direction == Direction.REQUEST) {
+				if (matches(start, end, ONLYIFCACHED, false)) {
+					rrInfo.onlyIfCached = true;
+					return;
+				}
+
+				// min-fresh
+				value = parseDirectiveValue(start, end, MINFRESH);
+				if (value >= 0) {
+					rrInfo.minFresh = Long.valueOf(value);
+					return;
+				}
+
+				// max-stale, with an optional value
+				int length = MAXSTALE.length();
+				if (matches(start, Math.min(end, start + length), MAXSTALE, false)) {
+					value = parseDirectiveValue(start, end, MAXSTALE);
+					rrInfo.maxStale = Long.valueOf(value >= 0 ? value : Long.MAX_VALUE);
+					return;
+				}
+
+			} else if (rrInfo.direction == Direction.RESPONSE) {
+				if (matches(start, end, PUBLIC, false)) {
+					rrInfo.publicCache = true;
+					return;
+				} else if (matches(start, end, PRIVATE, false)) {
+					rrInfo.privateCache = true;
+					return;
+				} else if (matches(start, end, MUSTREVALIDATE, false)) {
+					rrInfo.mustRevalidate = true;
+					return;
+				} else if (matches(start, end, PROXYREVALIDATE, false)) {
+					rrInfo.proxyRevalidate = true;
+					return;
+				}
+
+				// s-maxage
+				value = parseDirectiveValue(start, end, SMAXAGE);
+				if (value >= 0) {
+					rrInfo.sMaxAge = Long.valueOf(value);
 				}
-				headersBuilder.append(HEADERS_SEPARATOR).append(line);
-				rrInfo.allHeaders = headersBuilder.toString();
 			}
 		}
 
 		/**
-		 * Reads from input stream keeping counter of how much has been read
+		 * Parses the value of a directive of the form name=digits.
 		 * 
-		 * @return
-		 * @throws IOException
+		 * @return The value, or -1 when the directive does not have the name
+		 *         or a value.
 		 */
-		private synchronized int readInput() throws IOException {
-			int result;
-			if (counter < input.length) {
-				result = input[counter];
-				++counter;
+		private long parseDirectiveValue(int start, int end, String name) {
+			int nameEnd = start + name.length();
+			if (nameEnd > end || !matches(start, nameEnd, name, false)) {
+				return -1;
+			}
+			int equals = skipWhitespace(nameEnd, end);
+			if (equals == end || input[equals] != '=') {
+				return -1;
+			}
+			return parseDigits(skipWhitespace(equals + 1, end), end);
+		}
+
+		/**
+		 * Parses the value of a Content-Range header: bytes first-last/full.
+		 * 
+		 * @return False when the value is not a byte range.
+		 */
+		private boolean parseContentRange(HttpRequestResponseInfo rrInfo, int start, int end) {
+			if (!matches(start, Math.min(end, start + BYTES.length()), BYTES, false)) {
+				return false;
+			}
+			long first = parseDigits(start + BYTES.length(), end);
+			if (first < 0 || first > Integer.MAX_VALUE) {
+				return false;
+			}
+			int dash = skipWhitespace(position, end);
+			if (dash == end || input[dash] != '-') {
+				return false;
+			}
+			int lastStart = skipWhitespace(dash + 1, end);
+			long last = parseDigits(lastStart, end);
+			int slash = skipWhitespace(position, end);
+			if (slash == end || input[slash] != '/') {
+				return false;
+			}
+			long full = parseDigits(skipWhitespace(slash + 1, end), end);
+
+			rrInfo.rangeResponse = true;
+			rrInfo.rangeFirst = (int) first;
+			if (last >= 0 && last <= Integer.MAX_VALUE) {
+				rrInfo.rangeLast = (int) last;
 			} else {
-				result = -1;
+				/* The value exceeds the Interger.MAX_VALUE i.e 2^31-1=2147483647.
+				 * Continue.*/
+				LOGGER.log(Level.FINE, "Cannot parse the string to int for rangeLast,because"
+						+ " The value to parse is :" 
+						+ decode(lastStart, Math.max(lastStart, position))
+						+ " which is greater than the Integer.MAX_VALUE (2^31-1=2147483647).");
 			}
-			return result;
+			if (full >= 0) {
+				rrInfo.rangeFull = full;
+			}
+
+			if (rrInfo.contentLength == 0) {
+				rrInfo.contentLength = rrInfo.rangeLast
+						- rrInfo.rangeFirst + 1;
+			}
+			return true;
 		}
 
 		/**
-		 * Parses HTTP date formats. Synchronized because DateFormat objects are
-		 * not thread-safe. If defaultForExpired is true and value is an invalid
-		 * dateFormat (such as -1 or 0 meaning already expired), the returned
-		 * Date will be "beginning of time" Jan 1 1970.
+		 * Parses the size of a chunk at the start of the current line, which
+		 * may be followed by chunk extensions.
 		 * 
-		 * @param value
+		 * @throws NumberFormatException
+		 *             when the size is not a hexadecimal number.
+		 */
+		private int parseChunkSize() {
+			int end = indexOf(';', lineStart, lineEnd);
+			int start = skipWhitespace(lineStart, end);
+			end = trimEnd(start, end);
+			if (start < end && end - start <= 7) {
+				int size = 0;
+				for (int i = start; i < end; ++i) {
+					int digit = Character.digit(input[i], 16);
+					if (digit < 0) {
+						size = -1;
+						break;
+					}
+					size = size * 16 + digit;
+				}
+				if (size >= 0) {
+					return size;
+				}
+			}
+
+			// Leave signs, large and invalid sizes to Integer.parseInt
+			return Integer.parseInt(decode(start, end), 16);
+		}
+
+		/**
+		 * Parses the decimal digits at the start of a range, and sets position
+		 * after them.
+		 * 
+		 * @return The value, or -1 when there are no digits or the value
+		 *         overflows.
+		 */
+		private long parseDigits(int start, int end) {
+			long value = 0;
+			position = start;
+			while (position < end && input[position] >= '0' && input[position] <= '9') {
+				if (value > (Long.MAX_VALUE - 9) / 10) {
+					return -1;
+				}
+				value = value * 10 + input[position++] - '0';
+			}
+			return position > start ? value : -1;
+		}
+
+		/**
+		 * Appends the current line to the headers of the request/response.
+		 */
+		private void appendHeader() {
+			headers.append(HEADERS_SEPARATOR);
+			for (int i = lineStart; i < lineEnd; ++i) {
+				if (input[i] < 0) {
+					headers.append(decode(i, lineEnd));
+					return;
+				}
+				headers.append((char) input[i]);
+			}
+		}
+
+		/**
+		 * Sets the headers appended since the start of the request/response.
+		 */
+		private void publishHeaders(HttpRequestResponseInfo rrInfo) {
+			if (headers.length() > 0) {
+				rrInfo.allHeaders = headers.toString();
+				headers.setLength(0);
+			}
+		}
+
+		/**
+		 * Returns true when the current line contains the specified ASCII
+		 * text.
+		 */
+		private boolean lineContains(String text) {
+			int last = lineEnd - text.length();
+			for (int i = lineStart; i <= last; ++i) {
+				if (matches(i, i + text.length(), text, false)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Returns true when a range of the input is the specified ASCII text.
+		 * 
+		 * @param ignoreCase
+		 *            True to ignore the case of the input, in which case the
+		 *            text must be in lower case.
+		 */
+		private boolean matches(int start, int end, String text, boolean ignoreCase) {
+			return end - start == text.length() && regionMatches(start, text, text.length(), ignoreCase);
+		}
+
+		/**
+		 * Returns true when the input at the specified index starts with the
+		 * specified number of characters of an ASCII text.
+		 * 
+		 * @param ignoreCase
+		 *            True to ignore the case of the input, in which case the
+		 *            text must be in lower case.
+		 */
+		private boolean regionMatches(int start, String text, int length, boolean ignoreCase) {
+			for (int i = 0; i < length; ++i) {
+				int b = input[start + i];
+				if (ignoreCase && b >= 'A' && b <= 'Z') {
+					b += 'a' - 'A';
+				}
+				if (b != text.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Returns the index of a byte in a range of the input, or the end of
+		 * the range when it is not found.
+		 */
+		private int indexOf(char c, int start, int end) {
+			for (int i = start; i < end; ++i) {
+				if (input[i] == c) {
+					return i;
+				}
+			}
+			return end;
+		}
+
+		/**
+		 * Returns the last index of a byte in a range of the input, or -1 when
+		 * it is not found.
+		 */
+		private int lastIndexOf(char c, int start, int end) {
+			for (int i = end - 1; i >= start; --i) {
+				if (input[i] == c) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * Returns the index of the first byte of a range that is not a space
+		 * or a control character, as for String.trim().
+		 */
+		private int skipWhitespace(int start, int end) {
+			while (start < end && isWhitespace(input[start])) {
+				++start;
+			}
+			return start;
+		}
+
+		/**
+		 * Returns the end of a range without its trailing spaces and control
+		 * characters, as for String.trim().
+		 */
+		private int trimEnd(int start, int end) {
+			while (end > start && isWhitespace(input[end - 1])) {
+				--end;
+			}
+			return end;
+		}
+
+		private static boolean isWhitespace(byte b) {
+			return b >= 0 && b <= ' ';
+		}
+
+		private static boolean isLetter(byte b) {
+			return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z');
+		}
+
+		/**
+		 * Parses HTTP date formats. If defaultForExpired is true and value is
+		 * an invalid dateFormat (such as -1 or 0 meaning already expired), the
+		 * returned Date will be "beginning of time" Jan 1 1970.
+		 * 
+		 * @param start
+		 *            The start of the value in the input.
+		 * @param end
+		 *            The end of the value in the input.
 		 * @param defaultForExpired
 		 *            boolean - true/false provide default "beginning of time"
 		 *            Jan 1 1970 GMT Date
 		 * @return formated Date value else null.
 		 */
-		private synchronized Date readHttpDate(String value, boolean defaultForExpired) {
-			if (value != null) {
-				for (DateFormat dateFormat : dateFormats) {
-					try {
-						return dateFormat.parse(value.trim());
-					} catch (ParseException e) {
-						// Ignore for now
-					}
+		private Date readHttpDate(int start, int end, boolean defaultForExpired) {
+			start = skipWhitespace(start, end);
+			end = trimEnd(start, end);
+			long time = parseHttpDate(start, end);
+			if (time != Long.MIN_VALUE) {
+				return new Date(time);
+			}
+
+			// Leave the unusual forms to the lenient date formats
+			String value = decode(start, end);
+			if (dateFormats == null) {
+				dateFormats = new DateFormat[] { new SimpleDateFormat(PATTERN_RFC1123),
+						new SimpleDateFormat(PATTERN_RFC1036), new SimpleDateFormat(PATTERN_ASCTIME),
+						new SimpleDateFormat(PATTERN_ASCTIME2) };
+			}
+			for (DateFormat dateFormat : dateFormats) {
+				try {
+					return dateFormat.parse(value);
+				} catch (ParseException e) {
+					// Ignore for now
 				}
 			}
 			
@@ -1079,6 +1379,203 @@ public class HttpRequestResponseInfo implements
 			return null;
 		}
 
+		/**
+		 * Parses a date in the RFC 1123 (Sun, 06 Nov 1994 08:49:37 GMT), RFC
+		 * 1036 (Sunday, 06-Nov-94 08:49:37 GMT) or asctime (Sun Nov 6 08:49:37
+		 * 1994) format. An asctime date without a time zone is in GMT.
+		 * 
+		 * @return The time in milliseconds since the epoch, or Long.MIN_VALUE
+		 *         when the value is not in one of the formats.
+		 */
+		private long parseHttpDate(int start, int end) {
+			position = start;
+			if (parseName(end, DAYS_OF_WEEK) < 0) {
+				return Long.MIN_VALUE;
+			}
+			if (position < end && input[position] == ',') {
+				++position;
+			}
+			position = skipWhitespace(position, end);
+
+			int day;
+			int month;
+			long year;
+			int offset = 0;
+			if (position < end && input[position] >= '0' && input[position] <= '9') {
+
+				// RFC 1123 or RFC 1036
+				day = (int) parseNumber(end, 2);
+				boolean rfc1036 = position < end && input[position] == '-';
+				if (!skipSeparator(end, rfc1036)) {
+					return Long.MIN_VALUE;
+				}
+				month = parseName(end, MONTHS);
+				if (month < 0 || !skipSeparator(end, rfc1036)) {
+					return Long.MIN_VALUE;
+				}
+				int yearStart = position;
+				year = parseNumber(end, 4);
+				if (position - yearStart == 2) {
+					if (!rfc1036) {
+						return Long.MIN_VALUE;
+					}
+					year += CENTURY_START / 100 * 100;
+					if (year < CENTURY_START) {
+						year += 100;
+					}
+				}
+				int seconds = parseTime(end);
+				offset = parseTimeZone(end);
+				if (seconds < 0 || offset == Integer.MIN_VALUE || position != end) {
+					return Long.MIN_VALUE;
+				}
+				return toMillis(year, month, day, seconds, offset);
+			} else {
+
+				// asctime
+				month = parseName(end, MONTHS);
+				position = skipWhitespace(position, end);
+				day = (int) parseNumber(end, 2);
+				int seconds = parseTime(end);
+				if (month < 0 || day < 0 || seconds < 0) {
+					return Long.MIN_VALUE;
+				}
+				position = skipWhitespace(position, end);
+				if (position < end && (input[position] < '0' || input[position] > '9')) {
+					offset = parseTimeZone(end);
+					if (offset == Integer.MIN_VALUE) {
+						return Long.MIN_VALUE;
+					}
+					position = skipWhitespace(position, end);
+				}
+				int yearStart = position;
+				year = parseNumber(end, 4);
+				if (position - yearStart != 4 || position != end) {
+					return Long.MIN_VALUE;
+				}
+				return toMillis(year, month, day, seconds, offset);
+			}
+		}
+
+		/**
+		 * Parses a name of a month or day of the week, either in full or as its
+		 * first three letters, without regard to case.
+		 * 
+		 * @return The index of the name, or -1 when the word is not a name.
+		 */
+		private int parseName(int end, String[] names) {
+			int start = position;
+			while (position < end && isLetter(input[position])) {
+				++position;
+			}
+			if (position - start < 3) {
+				return -1;
+			}
+			for (int i = 0; i < names.length; ++i) {
+				if (position - start == 3 ? regionMatches(start, names[i], 3, true) : matches(start,
+						position, names[i], true)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * Parses up to the specified number of digits.
+		 * 
+		 * @return The value, or -1 when there are no digits.
+		 */
+		private long parseNumber(int end, int maxDigits) {
+			return parseDigits(position, Math.min(end, position + maxDigits));
+		}
+
+		/**
+		 * Skips the separator between the day, the month and the year: a dash
+		 * for RFC 1036, spaces otherwise.
+		 */
+		private boolean skipSeparator(int end, boolean dash) {
+			if (dash) {
+				if (position == end || input[position] != '-') {
+					return false;
+				}
+				++position;
+				return true;
+			}
+			int start = position;
+			position = skipWhitespace(position, end);
+			return position > start;
+		}
+
+		/**
+		 * Parses a time of the form HH:mm:ss, preceded by spaces.
+		 * 
+		 * @return The seconds since midnight, or -1 when there is no time.
+		 */
+		private int parseTime(int end) {
+			position = skipWhitespace(position, end);
+			long hours = parseNumber(end, 2);
+			if (hours < 0 || position == end || input[position++] != ':') {
+				return -1;
+			}
+			long minutes = parseNumber(end, 2);
+			if (minutes < 0 || position == end || input[position++] != ':') {
+				return -1;
+			}
+			long seconds = parseNumber(end, 2);
+			if (seconds < 0) {
+				return -1;
+			}
+			return (int) (hours * 3600 + minutes * 60 + seconds);
+		}
+
+		/**
+		 * Parses a time zone, preceded by spaces: GMT, UTC, a North American
+		 * zone or an offset of the form +hhmm.
+		 * 
+		 * @return The offset in seconds, or Integer.MIN_VALUE when there is no
+		 *         known time zone.
+		 */
+		private int parseTimeZone(int end) {
+			position = skipWhitespace(position, end);
+			if (position < end && (input[position] == '+' || input[position] == '-')) {
+				int sign = input[position++] == '-' ? -1 : 1;
+				int start = position;
+				long hhmm = parseNumber(end, 4);
+				if (position - start != 4) {
+					return Integer.MIN_VALUE;
+				}
+				return (int) (sign * (hhmm / 100 * 3600 + hhmm % 100 * 60));
+			}
+			int start = position;
+			while (position < end && isLetter(input[position])) {
+				++position;
+			}
+			for (int i = 0; i < TIME_ZONES.length; ++i) {
+				if (matches(start, position, TIME_ZONES[i], true)) {
+					return TIME_ZONE_OFFSETS[i] * 3600;
+				}
+			}
+			return Integer.MIN_VALUE;
+		}
+
+		/**
+		 * Converts a date of the Gregorian calendar to milliseconds since the
+		 * epoch. Days and times beyond their ranges roll over to the next
+		 * month or day, as for a lenient calendar.
+		 */
+		private static long toMillis(long year, int month, int day, int seconds, int offset) {
+
+			// Days since 0000-03-01, with the years starting in March
+			long y = month < 2 ? year - 1 : year;
+			long era = (y >= 0 ? y : y - 399) / 400;
+			long yearOfEra = y - era * 400;
+			int m = month < 2 ? month + 10 : month - 2;
+			long dayOfYear = (153 * m + 2) / 5 + day - 1;
+			long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+			long days = era * 146097 + dayOfEra - 719468;
+			return ((days * 86400) + seconds - offset) * 1000;
+		}
+
 	}
 
 	/**
@@ -1582,7 +2079,9 @@ public class HttpRequestResponseInfo implements
 	}
 	
 	/**
-	 * Returns the binary content of the request/response body.
+	 * Returns the binary content of the request/response body. The body is
+	 * reassembled and decompressed when it is first asked for, and cached by
+	 * the decoder of the session.
 	 * 
 	 * @return An array of bytes containing the binary content of the
 	 *         request/response body, or Null if no content is found.
@@ -1591,6 +2090,15 @@ public class HttpRequestResponseInfo implements
 	 *             - When part of the content is not available.
 	 */
 	public byte[] getContent() throws ContentException, IOException {
+		SessionDecoder decoder = session.getDecoder();
+		return decoder != null ? decoder.getContent(this) : decodeContent();
+	}
+
+	/**
+	 * Reassembles the content of the request/response body from the storage
+	 * of the session, and decompresses it when gzipped.
+	 */
+	byte[] decodeContent() throws ContentException, IOException {
 		if (contentOffsetLength != null) {
 			byte[] buffer = getStorageBuffer();
 			if (buffer == null) {
@@ -1656,6 +2164,53 @@ public class HttpRequestResponseInfo implements
 		}
 	}
 
+	/**
+	 * Returns a stream over the binary content of the request/response body,
+	 * decompressed when gzipped. The content is read from the storage of the
+	 * session as the stream is read, so a caller that only needs the start of
+	 * the content does not copy all of it.
+	 * 
+	 * @return A stream over the content, or Null if no content is found.
+	 * 
+	 * @throws ContentException
+	 *             - When part of the content is not available.
+	 */
+	public InputStream getContentStream() throws ContentException, IOException {
+		if (contentOffsetLength == null) {
+			return null;
+		}
+		final byte[] buffer = getStorageBuffer();
+		if (buffer == null) {
+			return null;
+		}
+		for (Map.Entry<Integer, Integer> entry : contentOffsetLength.entrySet()) {
+			int start = entry.getKey();
+			int size = entry.getValue();
+			if (start + size < 0) {
+				throw new ContentException("The content may be too big.");
+			} else if (buffer.length < start + size) {
+				throw new ContentException("The content may be corrupted.");
+			}
+		}
+		final Iterator<Map.Entry<Integer, Integer>> ranges = contentOffsetLength.entrySet().iterator();
+		InputStream input = new SequenceInputStream(new Enumeration<InputStream>() {
+			@Override
+			public boolean hasMoreElements() {
+				return ranges.hasNext();
+			}
+
+			@Override
+			public InputStream nextElement() {
+				Map.Entry<Integer, Integer> entry = ranges.next();
+				return new ByteArrayInputStream(buffer, entry.getKey(), entry.getValue());
+			}
+		});
+		if (CONTENT_ENCODING_GZIP.equals(contentEncoding)) {
+			input = new GZIPInputStream(input);
+		}
+		return input;
+	}
+
 	/**
 	 * Saves the binary content of the request/response body to the specified
 	 * file.
@@ -1720,6 +2275,19 @@ public class HttpRequestResponseInfo implements
 		}
 	}
 
+	/**
+	 * Returns the digest of the request/response body, computed when it is
+	 * first asked for.
+	 * 
+	 * @return The content digest, or null if no content is found.
+	 */
+	public ContentDigest getContentDigest() {
+		if (contentDigest == null && contentOffsetLength != null) {
+			contentDigest = ContentDigest.compute(getStorageBuffer(), contentOffsetLength);
+		}
+		return contentDigest;
+	}
+
 	/**
 	 * Determines whether the same content is contained in this request/response as in
 	 * the specified request/response
@@ -1733,57 +2301,14 @@ public class HttpRequestResponseInfo implements
 			return false;
 		}
 
-		long count = getActualByteCount();
-		if (count == rr.getActualByteCount()) {
+		ContentDigest digest = getContentDigest();
+		ContentDigest rrDigest = rr.getContentDigest();
+		long count = digest != null ? digest.getLength() : 0;
+		long rrCount = rrDigest != null ? rrDigest.getLength() : 0;
+		if (count == rrCount) {
 			
 			// If not data then they are the same
-			if (count == 0) {
-				return true;
-			}
-			
-			// Otherwise do byte by byte compare
-			byte[] b1 = getStorageBuffer();
-			byte[] b2 = rr.getStorageBuffer();
-
-			Iterator<Map.Entry<Integer, Integer>> it1 = contentOffsetLength.entrySet().iterator();
-			Iterator<Map.Entry<Integer, Integer>> it2 = rr.contentOffsetLength.entrySet().iterator();
-			
-			if (it1.hasNext() && it2.hasNext()) {
-				
-				Map.Entry<Integer, Integer> e1 = it1.next();
-				Map.Entry<Integer, Integer> e2 = it2.next();
-				
-				int i1 = e1.getKey();
-				int i2 = e2.getKey();
-				
-				do {
-					if (b1[i1] != b2[i2]) {
-						return false;
-					}
-
-					++i1; ++i2;
-					if (i1 >= b1.length || i2 >= b2.length) {
-						break;
-					}
-					if (i1 >= e1.getKey() + e1.getValue()) {
-						if (it1.hasNext()) {
-							e1 = it1.next();
-							i1 = e1.getKey();
-						} else {
-							break;
-						}
-					}
-					if (i2 >= e2.getKey() + e2.getValue()) {
-						if (it2.hasNext()) {
-							e2 = it2.next();
-							i2 = e2.getKey();
-						} else {
-							break;
-						}
-					}
-				} while (true);
-			}
-			return true;
+			return count == 0 || digest.equals(rrDigest);
 		} else {
 			return false;
 		}
@@ -1994,69 +2519,6 @@ public class HttpRequestResponseInfo implements
 		return rsp;
 	}
 	
-	/**
-	 * Indicates whether the packet is a response packet and the content type is
-	 * text/html.
-	 * 
-	 * @param AsyncCheckAnalysis
-	 *            - Script loading asynchronous analysis.
-	 * 
-	 * @return Returns true when there are no asynchronously loaded files or the
-	 *         packet's content type is not text/html. Otherwise returns false.
-	 */
-	public boolean checkAsyncAttributeInHead(
-			AsyncCheckAnalysis asyncCheckAnalysis) {
-		// Checking the content length and content type (only text/html).
-		if (contentLength != 0 && contentType != null
-				&& isContentTypeTextHtml(contentType)) {
-			return asyncCheckAnalysis.parseHtmlToFindSyncLoadingScripts(this);
-		} else {
-			return true;
-		}
-	}
-
-	/**
-	 *  Indicates whether the content type is text/html or not.
-	 *  
-	 * @return Returns true if the content type is text/html otherwise return false;
-	 */
-	boolean isContentTypeTextHtml(String contentType){
-		return (contentType.equalsIgnoreCase("text/html"));
-	}
-	
-	public org.jsoup.nodes.Document parseHtml(FileOrderAnalysis fileOrderAnalysis){
-		
-		org.jsoup.nodes.Document doc = null;
-		String packetContent = null;
-		try {
-			if (this.getContentString() != null) {
-				if ((contentLength != 0) && (contentType != null)
-						&& (isContentTypeTextHtml(contentType))) {
-					try {
-						packetContent = this.getContentString();
-					} catch (ContentException e) {
-						LOGGER.log(Level.FINE,
-								"ContentException in parseHtml()");
-					} catch (IOException e) {
-						LOGGER.log(Level.FINE, "IOExecption in parseHtml()");
-					}
-					if (packetContent != null) {
-						doc = Jsoup.parse(packetContent);
-					}
-				}
-			}
-		} catch (ContentException e) {
-			LOGGER.log(Level.FINE,"ContentException in parseHtml()");
-		} catch (IOException e) {
-			LOGGER.log(Level.FINE,"IOExecption in parseHtml()");
-		}
-			if (doc != null) {
-				return doc;
-			} else {
-				return null;
-			}
-	}
-	
 	/**
 	 *  Indicates whether the content type is text or not.
 	 *  
@@ -0,0 +1,592 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.model;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.att.aro.model.PacketInfo.Direction;
+import com.att.aro.pcap.IPPacket;
+import com.att.aro.pcap.Packet;
+import com.att.aro.pcap.PacketListener;
+import com.att.aro.pcap.TCPPacket;
+import com.att.aro.pcap.UDPPacket;
+
+/**
+ * Analysis of a capture that is still running. Packets are added as they are
+ * captured, and the analysis only keeps what is needed for a sliding window of
+ * the most recent packets: their timestamps, directions and lengths, the open
+ * sessions and the last bursts. Snapshots of the window give the throughput,
+ * the bursts and the RRC states and energy while the capture runs, with a
+ * memory use that does not depend on the length of the capture.
+ * <p>
+ * The RRC energy of a snapshot is simulated over the packets of the window
+ * only, starting from the idle state. The RRC state ranges of a snapshot are
+ * simulated from the start of the capture, as packets are added, and only the
+ * ranges that later packets can no longer change are given.
+ */
+public class LiveAnalysis implements PacketListener {
+
+	private static final Logger LOGGER = Logger.getLogger(LiveAnalysis.class.getName());
+
+	/**
+	 * Default length of the window in seconds.
+	 */
+	public static final double DEFAULT_WINDOW = 120.0;
+
+	private static final int MAX_WINDOW_PACKETS = 200000;
+	private static final int MAX_BURSTS = 200;
+	private static final int MAX_SESSIONS = 10000;
+	private static final int MAX_ADDRESS_COUNTS = 10000;
+
+	/**
+	 * A burst of packets.
+	 */
+	public static final class LiveBurst {
+		private final double beginTime;
+		private double endTime;
+		private int packetCount;
+		private long bytes;
+
+		private LiveBurst(double beginTime) {
+			this.beginTime = beginTime;
+			this.endTime = beginTime;
+		}
+
+		private LiveBurst(LiveBurst burst) {
+			this.beginTime = burst.beginTime;
+			this.endTime = burst.endTime;
+			this.packetCount = burst.packetCount;
+			this.bytes = burst.bytes;
+		}
+
+		/**
+		 * @return The time of the first packet, in seconds from the start of
+		 *         the capture.
+		 */
+		public double getBeginTime() {
+			return beginTime;
+		}
+
+		/**
+		 * @return The time of the last packet, in seconds from the start of
+		 *         the capture.
+		 */
+		public double getEndTime() {
+			return endTime;
+		}
+
+		/**
+		 * @return The number of packets of the burst.
+		 */
+		public int getPacketCount() {
+			return packetCount;
+		}
+
+		/**
+		 * @return The number of bytes of the burst.
+		 */
+		public long getBytes() {
+			return bytes;
+		}
+	}
+
+	/**
+	 * A TCP or UDP session seen by the analysis.
+	 */
+	private static final class LiveSession {
+		double lastTime;
+		boolean closed;
+	}
+
+	/**
+	 * The state of the analysis at a point of the capture.
+	 */
+	public static final class Snapshot {
+		private final double time;
+		private final double windowBeginTime;
+		private final long packetCount;
+		private final long uplinkBytes;
+		private final long downlinkBytes;
+		private final int openSessionCount;
+		private final int sessionCount;
+		private final double[] uplinkThroughput;
+		private final double[] downlinkThroughput;
+		private final List<LiveBurst> bursts;
+		private final RrcSimulator.Result rrc;
+		private final List<RrcStateRange> stateRanges;
+
+		private Snapshot(LiveAnalysis analysis, double windowBeginTime, double[] uplinkThroughput,
+				double[] downlinkThroughput, List<LiveBurst> bursts, RrcSimulator.Result rrc,
+				List<RrcStateRange> stateRanges) {
+			this.time = analysis.lastTime;
+			this.windowBeginTime = windowBeginTime;
+			this.packetCount = analysis.packetCount;
+			this.uplinkBytes = analysis.uplinkBytes;
+			this.downlinkBytes = analysis.downlinkBytes;
+			this.openSessionCount = analysis.openSessionCount;
+			this.sessionCount = analysis.sessionCount;
+			this.uplinkThroughput = uplinkThroughput;
+			this.downlinkThroughput = downlinkThroughput;
+			this.bursts = bursts;
+			this.rrc = rrc;
+			this.stateRanges = stateRanges;
+		}
+
+		/**
+		 * @return The time of the last packet, in seconds from the start of
+		 *         the capture.
+		 */
+		public double getTime() {
+			return time;
+		}
+
+		/**
+		 * @return The beginning of the window, in seconds from the start of
+		 *         the capture.
+		 */
+		public double getWindowBeginTime() {
+			return windowBeginTime;
+		}
+
+		/**
+		 * @return The number of packets captured.
+		 */
+		public long getPacketCount() {
+			return packetCount;
+		}
+
+		/**
+		 * @return The number of bytes sent by the device.
+		 */
+		public long getUplinkBytes() {
+			return uplinkBytes;
+		}
+
+		/**
+		 * @return The number of bytes received by the device.
+		 */
+		public long getDownlinkBytes() {
+			return downlinkBytes;
+		}
+
+		/**
+		 * @return The number of sessions that are not closed.
+		 */
+		public int getOpenSessionCount() {
+			return openSessionCount;
+		}
+
+		/**
+		 * @return The number of sessions opened since the start of the
+		 *         capture.
+		 */
+		public int getSessionCount() {
+			return sessionCount;
+		}
+
+		/**
+		 * Returns the uplink throughput of each second of the window.
+		 *
+		 * @return The throughput in kilobits per second.
+		 */
+		public double[] getUplinkThroughput() {
+			return uplinkThroughput.clone();
+		}
+
+		/**
+		 * Returns the downlink throughput of each second of the window.
+		 *
+		 * @return The throughput in kilobits per second.
+		 */
+		public double[] getDownlinkThroughput() {
+			return downlinkThroughput.clone();
+		}
+
+		/**
+		 * Returns the last bursts, the current burst last.
+		 *
+		 * @return An unmodifiable list of bursts.
+		 */
+		public List<LiveBurst> getBursts() {
+			return bursts;
+		}
+
+		/**
+		 * Returns the RRC states and energy of the window.
+		 *
+		 * @return The simulation, or null when the window has no packets or
+		 *         the profile has no RRC state machine.
+		 */
+		public RrcSimulator.Result getRrc() {
+			return rrc;
+		}
+
+		/**
+		 * Returns the final RRC state ranges that end in the window, in
+		 * seconds from the start of the capture.
+		 *
+		 * @return An unmodifiable list of state ranges, empty when the profile
+		 *         has no RRC state machine.
+		 */
+		public List<RrcStateRange> getStateRanges() {
+			return stateRanges;
+		}
+	}
+
+	private final Profile profile;
+	private final double windowLength;
+
+	// timestamp of the first packet, times are relative to it
+	private double time0 = Double.NaN;
+	private double lastTime;
+	private long packetCount;
+	private long uplinkBytes;
+	private long downlinkBytes;
+
+	// packets of the window in a ring
+	private double[] times = new double[1024];
+	private Direction[] directions = new Direction[1024];
+	private int[] lengths = new int[1024];
+	private int first;
+	private int size;
+
+	private final Set<InetAddress> localAddresses = new HashSet<InetAddress>();
+	private final Map<InetAddress, Integer> addressCounts = new HashMap<InetAddress, Integer>();
+
+	private final Map<String, LiveSession> sessions = new LinkedHashMap<String, LiveSession>(16, 0.75f, true);
+	private int openSessionCount;
+	private int sessionCount;
+
+	private LiveBurst currentBurst;
+	private final ArrayDeque<LiveBurst> bursts = new ArrayDeque<LiveBurst>();
+
+	// RRC state machine over the whole capture and its final ranges
+	private final RrcStateRangeBuilder rrcBuilder;
+	private final ArrayDeque<RrcStateRange> stateRanges = new ArrayDeque<RrcStateRange>();
+
+	/**
+	 * Initializes an instance of the LiveAnalysis class with the default
+	 * window.
+	 *
+	 * @param profile
+	 *            The profile used for bursts and RRC states.
+	 */
+	public LiveAnalysis(Profile profile) {
+		this(profile, DEFAULT_WINDOW);
+	}
+
+	/**
+	 * Initializes an instance of the LiveAnalysis class.
+	 *
+	 * @param profile
+	 *            The profile used for bursts and RRC states.
+	 * @param windowLength
+	 *            The length of the window in seconds.
+	 */
+	public LiveAnalysis(Profile profile, double windowLength) {
+		this.profile = profile;
+		this.windowLength = windowLength;
+		RrcStateRangeBuilder builder = null;
+		try {
+			builder = RrcStateRangeBuilder.create(profile, new RrcStateRangeBuilder.Listener() {
+				@Override
+				public void stateRangeFinalized(RrcStateRange range) {
+					stateRanges.addLast(range);
+				}
+			});
+		} catch (IllegalArgumentException e) {
+			LOGGER.log(Level.FINE, "No RRC state machine for the profile", e);
+		}
+		this.rrcBuilder = builder;
+	}
+
+	/**
+	 * Adds a captured packet. Packets that are not IP packets are ignored.
+	 *
+	 * @see com.att.aro.pcap.PacketListener#packetArrived(java.lang.String,
+	 *      com.att.aro.pcap.Packet)
+	 */
+	@Override
+	public synchronized void packetArrived(String appName, Packet packet) {
+		if (!(packet instanceof IPPacket)) {
+			return;
+		}
+		IPPacket ip = (IPPacket) packet;
+		if (Double.isNaN(time0)) {
+			time0 = packet.getTimeStamp();
+		}
+		double time = packet.getTimeStamp() - time0;
+		int length = packet.getLen() - packet.getDatalinkHeaderSize();
+		Direction direction = getDirection(ip);
+
+		++packetCount;
+		if (direction == Direction.UPLINK) {
+			uplinkBytes += length;
+		} else {
+			downlinkBytes += length;
+		}
+		lastTime = Math.max(lastTime, time);
+
+		time = addToWindow(time, direction, length);
+		if (rrcBuilder != null) {
+			rrcBuilder.append(time, direction, length);
+			evictStateRangesBefore(time - windowLength);
+		}
+		addToSession(ip, direction, time);
+		addToBurst(time, length);
+	}
+
+	/**
+	 * Returns the state of the analysis.
+	 *
+	 * @return The snapshot.
+	 */
+	public synchronized Snapshot getSnapshot() {
+		double windowBegin = Math.max(0.0, lastTime - windowLength);
+		evictBefore(windowBegin);
+		evictStateRangesBefore(windowBegin);
+
+		int seconds = (int) Math.ceil(lastTime - windowBegin) + 1;
+		double[] up = new double[seconds];
+		double[] down = new double[seconds];
+		double[] streamTimes = new double[size];
+		Direction[] streamDirections = new Direction[size];
+		int[] streamLengths = new int[size];
+		for (int i = 0; i < size; ++i) {
+			int index = (first + i) % times.length;
+			int second = (int) (times[index] - windowBegin);
+			double kilobits = lengths[index] * 8 / 1000.0;
+			if (directions[index] == Direction.UPLINK) {
+				up[second] += kilobits;
+			} else {
+				down[second] += kilobits;
+			}
+			streamTimes[i] = times[index] - windowBegin;
+			streamDirections[i] = directions[index];
+			streamLengths[i] = lengths[index];
+		}
+
+		List<LiveBurst> burstList = new ArrayList<LiveBurst>(bursts.size() + 1);
+		for (LiveBurst burst : bursts) {
+			burstList.add(burst);
+		}
+		if (currentBurst != null) {
+			burstList.add(new LiveBurst(currentBurst));
+		}
+
+		RrcSimulator.Result rrc = null;
+		if (size > 0) {
+			try {
+				rrc = RrcSimulator.simulate(new RrcPacketStream(streamTimes, streamDirections,
+						streamLengths, lastTime - windowBegin), profile);
+			} catch (IllegalArgumentException e) {
+				LOGGER.log(Level.FINE, "No RRC simulation for the profile", e);
+			}
+		}
+		List<RrcStateRange> rangeList = new ArrayList<RrcStateRange>(stateRanges);
+		return new Snapshot(this, windowBegin, up, down, Collections.unmodifiableList(burstList), rrc,
+				Collections.unmodifiableList(rangeList));
+	}
+
+	/**
+	 * Adds a packet to the window.
+	 *
+	 * @return The time at which the packet is counted.
+	 */
+	private double addToWindow(double time, Direction direction, int length) {
+		if (size > 0 && times[(first + size - 1) % times.length] > time) {
+
+			// Out of order packets are counted at the time of the last one
+			time = times[(first + size - 1) % times.length];
+		}
+		evictBefore(time - windowLength);
+		if (size == times.length) {
+			if (size >= MAX_WINDOW_PACKETS) {
+				first = (first + 1) % times.length;
+				--size;
+			} else {
+				grow();
+			}
+		}
+		int index = (first + size) % times.length;
+		times[index] = time;
+		directions[index] = direction;
+		lengths[index] = length;
+		++size;
+		return time;
+	}
+
+	private void evictBefore(double time) {
+		while (size > 0 && times[first] < time) {
+			first = (first + 1) % times.length;
+			--size;
+		}
+	}
+
+	private void evictStateRangesBefore(double time) {
+		while (!stateRanges.isEmpty() && stateRanges.peekFirst().getEndTime() < time) {
+			stateRanges.removeFirst();
+		}
+	}
+
+	private void grow() {
+		int capacity = Math.min(times.length * 2, MAX_WINDOW_PACKETS);
+		double[] newTimes = new double[capacity];
+		Direction[] newDirections = new Direction[capacity];
+		int[] newLengths = new int[capacity];
+		for (int i = 0; i < size; ++i) {
+			int index = (first + i) % times.length;
+			newTimes[i] = times[index];
+			newDirections[i] = directions[index];
+			newLengths[i] = lengths[index];
+		}
+		times = newTimes;
+		directions = newDirections;
+		lengths = newLengths;
+		first = 0;
+	}
+
+	private void addToSession(IPPacket ip, Direction direction, double time) {
+		int localPort;
+		int remotePort;
+		boolean open = true;
+		boolean close = false;
+		if (ip instanceof TCPPacket) {
+			TCPPacket tcp = (TCPPacket) ip;
+			localPort = direction == Direction.UPLINK ? tcp.getSourcePort() : tcp.getDestinationPort();
+			remotePort = direction == Direction.UPLINK ? tcp.getDestinationPort() : tcp.getSourcePort();
+			open = tcp.isSYN() && !tcp.isACK();
+			close = tcp.isFIN() || tcp.isRST();
+		} else if (ip instanceof UDPPacket) {
+			UDPPacket udp = (UDPPacket) ip;
+			localPort = direction == Direction.UPLINK ? udp.getSourcePort() : udp.getDestinationPort();
+			remotePort = direction == Direction.UPLINK ? udp.getDestinationPort() : udp.getSourcePort();
+		} else {
+			return;
+		}
+		InetAddress remote = direction == Direction.UPLINK ? ip.getDestinationIPAddress() : ip
+				.getSourceIPAddress();
+		String key = (ip instanceof TCPPacket ? "T" : "U") + localPort + ' ' + remote.getHostAddress() + ' '
+				+ remotePort;
+
+		LiveSession session = sessions.get(key);
+		if (session == null || (session.closed && open)) {
+			if (session == null) {
+				session = new LiveSession();
+				sessions.put(key, session);
+			}
+			session.closed = false;
+			++sessionCount;
+			++openSessionCount;
+		}
+		session.lastTime = time;
+		if (close && !session.closed) {
+			session.closed = true;
+			--openSessionCount;
+		}
+
+		// Forget the sessions idle for the whole window, least recent first
+		Iterator<LiveSession> iter = sessions.values().iterator();
+		while (iter.hasNext()) {
+			LiveSession eldest = iter.next();
+			if (sessions.size() <= MAX_SESSIONS && eldest.lastTime >= time - windowLength) {
+				break;
+			}
+			if (!eldest.closed) {
+				--openSessionCount;
+			}
+			iter.remove();
+		}
+	}
+
+	private void addToBurst(double time, int length) {
+		if (currentBurst == null || time - currentBurst.endTime > profile.getBurstTh()) {
+			if (currentBurst != null) {
+				bursts.addLast(currentBurst);
+				if (bursts.size() > MAX_BURSTS) {
+					bursts.removeFirst();
+				}
+			}
+			currentBurst = new LiveBurst(time);
+		}
+		currentBurst.endTime = Math.max(currentBurst.endTime, time);
+		++currentBurst.packetCount;
+		currentBurst.bytes += length;
+	}
+
+	/**
+	 * Determines the direction of a packet the way TraceData does, the
+	 * sender of a connection request being local.
+	 */
+	private Direction getDirection(IPPacket ip) {
+		InetAddress source = ip.getSourceIPAddress();
+		InetAddress dest = ip.getDestinationIPAddress();
+		if (localAddresses.contains(source)) {
+			return Direction.UPLINK;
+		} else if (localAddresses.contains(dest)) {
+			return Direction.DOWNLINK;
+		}
+
+		if (ip instanceof TCPPacket && ((TCPPacket) ip).isSYN() && !((TCPPacket) ip).isACK()) {
+			localAddresses.add(source);
+			return Direction.UPLINK;
+		}
+		boolean sourceLocal = isLocal(source);
+		boolean destLocal = isLocal(dest);
+		if (sourceLocal && !destLocal) {
+			localAddresses.add(source);
+			return Direction.UPLINK;
+		} else if (destLocal && !sourceLocal) {
+			localAddresses.add(dest);
+			return Direction.DOWNLINK;
+		}
+
+		int sourceCount = count(source);
+		int destCount = count(dest);
+		return sourceCount >= destCount ? Direction.UPLINK : Direction.DOWNLINK;
+	}
+
+	private int count(InetAddress address) {
+		if (addressCounts.size() >= MAX_ADDRESS_COUNTS) {
+			addressCounts.clear();
+		}
+		Integer count = addressCounts.get(address);
+		count = count != null ? count + 1 : 1;
+		addressCounts.put(address, count);
+		return count;
+	}
+
+	private boolean isLocal(InetAddress ip) {
+		if (ip instanceof Inet4Address) {
+			byte[] addr = ((Inet4Address) ip).getAddress();
+			return addr[0] == 10;
+		}
+		return false;
+	}
+}
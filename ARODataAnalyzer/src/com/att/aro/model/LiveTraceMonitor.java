@@ -0,0 +1,244 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.att.aro.pcap.PCapFileReader;
+
+/**
+ * Tails the pcap file of a running capture, such as the file written by the
+ * ExternalTcpdumpExecutor or a local copy of the capture of a device, and
+ * feeds its packets to a LiveAnalysis. The listener receives a snapshot of the
+ * analysis after each poll that read new packets. Polls and notifications run
+ * on a single background thread; Swing listeners must hand the snapshots over
+ * to the event dispatch thread.
+ */
+public class LiveTraceMonitor {
+
+	private static final Logger LOGGER = Logger.getLogger(LiveTraceMonitor.class.getName());
+
+	/**
+	 * Default interval between two polls of the capture file, in
+	 * milliseconds.
+	 */
+	public static final long DEFAULT_POLL_INTERVAL = 1000;
+
+	/**
+	 * Receives the results of the live analysis.
+	 */
+	public interface Listener {
+
+		/**
+		 * Called after new packets were analyzed.
+		 *
+		 * @param snapshot
+		 *            The state of the analysis.
+		 */
+		void liveAnalysisUpdated(LiveAnalysis.Snapshot snapshot);
+
+		/**
+		 * Called when the capture file cannot be read. The monitor stops.
+		 *
+		 * @param e
+		 *            The error.
+		 */
+		void liveAnalysisFailed(IOException e);
+	}
+
+	/**
+	 * Provides the file that is tailed. A capture that is not written to a
+	 * local file is copied before each poll, and a capture split into
+	 * segments moves on to the next segment.
+	 */
+	public interface CaptureSource {
+
+		/**
+		 * Brings the local copy of the capture up to date. Called on the
+		 * thread of the monitor before each poll. When the capture moved on to
+		 * a new file, the previous file should be complete when this method
+		 * returns, so that its last packets are read before the new file.
+		 *
+		 * @return The file being written, or null when there is none yet.
+		 * @throws IOException
+		 *             when the capture cannot be copied.
+		 */
+		File update() throws IOException;
+
+		/**
+		 * Releases the resources of the source, once the monitor stopped.
+		 */
+		void close();
+	}
+
+	private final CaptureSource source;
+	private File file;
+	private PCapFileReader reader;
+	private final LiveAnalysis analysis;
+	private final Listener listener;
+	private ScheduledExecutorService executor;
+
+	/**
+	 * Initializes an instance of the LiveTraceMonitor class.
+	 *
+	 * @param pcapFile
+	 *            The capture file, which may not exist yet.
+	 * @param profile
+	 *            The profile of the analysis.
+	 * @param listener
+	 *            Receives the results.
+	 */
+	public LiveTraceMonitor(final File pcapFile, Profile profile, Listener listener) {
+		this(new CaptureSource() {
+			@Override
+			public File update() {
+				return pcapFile;
+			}
+
+			@Override
+			public void close() {
+			}
+		}, profile, listener);
+	}
+
+	/**
+	 * Initializes an instance of the LiveTraceMonitor class that tails the
+	 * files of a capture source.
+	 *
+	 * @param source
+	 *            Provides the capture file.
+	 * @param profile
+	 *            The profile of the analysis.
+	 * @param listener
+	 *            Receives the results.
+	 */
+	public LiveTraceMonitor(CaptureSource source, Profile profile, Listener listener) {
+		this.source = source;
+		this.analysis = new LiveAnalysis(profile);
+		this.listener = listener;
+	}
+
+	/**
+	 * Starts polling the capture file.
+	 *
+	 * @param pollInterval
+	 *            The interval between two polls in milliseconds.
+	 */
+	public synchronized void start(long pollInterval) {
+		if (executor != null) {
+			return;
+		}
+		executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "LiveTraceMonitor");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		executor.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				poll();
+			}
+		}, 0, pollInterval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops polling, after reading the packets written since the last poll.
+	 */
+	public void stop() {
+		ScheduledExecutorService stopped;
+		synchronized (this) {
+			stopped = executor;
+			executor = null;
+		}
+		if (stopped != null) {
+			stopped.shutdown();
+			try {
+				if (stopped.awaitTermination(10, TimeUnit.SECONDS)) {
+					poll();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		synchronized (this) {
+			closeReader();
+			source.close();
+		}
+	}
+
+	/**
+	 * Returns the analysis fed by the monitor.
+	 *
+	 * @return The live analysis.
+	 */
+	public LiveAnalysis getAnalysis() {
+		return analysis;
+	}
+
+	private synchronized void poll() {
+		try {
+			File current = source.update();
+			if (current == null) {
+				return;
+			}
+			int count = 0;
+			if (!current.equals(file)) {
+				// the capture moved on, finish the previous file first
+				if (reader != null) {
+					count = reader.read(analysis);
+					closeReader();
+				}
+				file = current;
+				reader = new PCapFileReader(current);
+			}
+			count += reader.read(analysis);
+			if (count > 0) {
+				listener.liveAnalysisUpdated(analysis.getSnapshot());
+			}
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Unable to read the capture file", e);
+			if (executor != null) {
+				executor.shutdown();
+				executor = null;
+			}
+			listener.liveAnalysisFailed(e);
+		} catch (RuntimeException e) {
+			LOGGER.log(Level.SEVERE, "Unexpected exception in live analysis", e);
+		}
+	}
+
+	private void closeReader() {
+		if (reader == null) {
+			return;
+		}
+		try {
+			reader.close();
+		} catch (IOException e) {
+			LOGGER.log(Level.FINE, "Unable to close the capture file", e);
+		}
+		reader = null;
+	}
+}
@@ -0,0 +1,235 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.model;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Finds the period of a series of events, such as the requests to a host or
+ * the connections to a remote IP.
+ * <p>
+ * The inter-arrival times between each event and its next events are sorted,
+ * and every window of the period cycle tolerance over the sorted times is
+ * counted. The most populated windows are the candidate periods. For each
+ * candidate, the longest chain of events separated by an inter-arrival time in
+ * the window is found in one pass over the events. The events are periodic
+ * when the chain has at least the minimum number of samples of the profile
+ * and its average cycle is longer than the minimum period cycle.
+ */
+public final class PeriodicityDetector {
+
+	/**
+	 * Number of next events paired with each event. Periodic events separated
+	 * by more than this number of other events are not found.
+	 */
+	private static final int MAX_LAG = 16;
+
+	/**
+	 * Number of candidate periods checked for each series.
+	 */
+	private static final int MAX_CANDIDATES = 8;
+
+	/**
+	 * The period of a series of events.
+	 */
+	public static final class Result implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private final double period;
+		private final int samples;
+		private final double confidence;
+
+		private Result(double period, int samples, double confidence) {
+			this.period = period;
+			this.samples = samples;
+			this.confidence = confidence;
+		}
+
+		/**
+		 * Returns the average time between the periodic events.
+		 *
+		 * @return The period in seconds.
+		 */
+		public double getPeriod() {
+			return period;
+		}
+
+		/**
+		 * Returns the number of cycles found in a row.
+		 *
+		 * @return The number of inter-arrival times of the periodic events.
+		 */
+		public int getSamples() {
+			return samples;
+		}
+
+		/**
+		 * Returns the part of the events that are periodic.
+		 *
+		 * @return A value between 0 and 1.
+		 */
+		public double getConfidence() {
+			return confidence;
+		}
+	}
+
+	private final double minCycle;
+	private final double cycleTol;
+	private final int minSamples;
+
+	/**
+	 * Initializes an instance of the PeriodicityDetector class.
+	 *
+	 * @param profile
+	 *            The profile giving the minimum period cycle, the period
+	 *            cycle tolerance and the minimum number of samples.
+	 */
+	public PeriodicityDetector(Profile profile) {
+		this.minCycle = profile.getPeriodMinCycle();
+		this.cycleTol = profile.getPeriodCycleTol();
+		this.minSamples = profile.getPeriodMinSamples();
+	}
+
+	/**
+	 * Finds the period of a series of events.
+	 *
+	 * @param times
+	 *            The timestamps of the events, in any order.
+	 * @return The period, or null when the events are not periodic.
+	 */
+	public Result detect(double[] times) {
+		int n = times.length;
+		if (n < 2 || n <= minSamples) {
+			return null;
+		}
+		double[] sorted = times.clone();
+		Arrays.sort(sorted);
+
+		// Inter-arrival times that may belong to a cycle longer than minCycle
+		double[] iats = new double[n * Math.min(MAX_LAG, n - 1)];
+		int iatCount = 0;
+		double minIat = minCycle - cycleTol;
+		for (int i = 0; i < n - 1; ++i) {
+			int last = Math.min(n - 1, i + MAX_LAG);
+			for (int j = i + 1; j <= last; ++j) {
+				double iat = sorted[j] - sorted[i];
+				if (iat > minIat) {
+					iats[iatCount++] = iat;
+				}
+			}
+		}
+		if (iatCount < minSamples) {
+			return null;
+		}
+		Arrays.sort(iats, 0, iatCount);
+
+		// Count the inter-arrival times in the window starting at each one
+		int[] counts = new int[iatCount];
+		for (int begin = 0, end = 0; begin < iatCount; ++begin) {
+			while (end < iatCount && iats[end] - iats[begin] < cycleTol) {
+				++end;
+			}
+			counts[begin] = end - begin;
+		}
+
+		// Check the most populated windows that do not overlap
+		Result best = null;
+		double[] candidates = new double[MAX_CANDIDATES];
+		int candidateCount = 0;
+		int[] chain = new int[n];
+		int[] deque = new int[n];
+		while (candidateCount < MAX_CANDIDATES) {
+			int peak = -1;
+			for (int i = 0; i < iatCount; ++i) {
+				if (counts[i] >= minSamples && (peak < 0 || counts[i] > counts[peak])
+						&& !overlaps(iats[i], candidates, candidateCount)) {
+					peak = i;
+				}
+			}
+			if (peak < 0) {
+				break;
+			}
+			double low = iats[peak];
+			candidates[candidateCount++] = low;
+			Result result = findChain(sorted, low, low + cycleTol, chain, deque);
+			if (result != null && (best == null || result.samples > best.samples)) {
+				best = result;
+			}
+		}
+		return best;
+	}
+
+	private boolean overlaps(double low, double[] candidates, int candidateCount) {
+		for (int i = 0; i < candidateCount; ++i) {
+			if (Math.abs(low - candidates[i]) < cycleTol) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Finds the longest chain of events separated by an inter-arrival time in
+	 * [low, high). The predecessors of an event form a sliding window over the
+	 * sorted events, so the longest chain ending before it is kept in a
+	 * monotonic queue.
+	 */
+	private Result findChain(double[] sorted, double low, double high, int[] chain, int[] deque) {
+		int n = sorted.length;
+		int head = 0;
+		int tail = 0;
+		int next = 0;
+		int bestEnd = -1;
+		for (int i = 0; i < n; ++i) {
+			double t = sorted[i];
+			while (next < i && t - sorted[next] >= low) {
+				while (tail > head && chain[deque[tail - 1]] <= chain[next]) {
+					--tail;
+				}
+				deque[tail++] = next++;
+			}
+			while (tail > head && t - sorted[deque[head]] >= high) {
+				++head;
+			}
+			chain[i] = tail > head ? chain[deque[head]] + 1 : 0;
+			if (bestEnd < 0 || chain[i] > chain[bestEnd]) {
+				bestEnd = i;
+			}
+		}
+
+		int samples = chain[bestEnd];
+		if (samples < minSamples || samples == 0) {
+			return null;
+		}
+
+		// Walk back to the first event of the chain
+		int first = bestEnd;
+		for (int links = samples; links > 0; --links) {
+			int prev = first - 1;
+			while (chain[prev] != links - 1 || sorted[first] - sorted[prev] < low
+					|| sorted[first] - sorted[prev] >= high) {
+				--prev;
+			}
+			first = prev;
+		}
+		double period = (sorted[bestEnd] - sorted[first]) / samples;
+		if (period <= minCycle) {
+			return null;
+		}
+		return new Result(period, samples, (samples + 1) / (double) n);
+	}
+}
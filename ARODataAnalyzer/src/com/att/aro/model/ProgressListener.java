@@ -0,0 +1,49 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.model;
+
+/**
+ * Receives the progress events of the stages of loading and analyzing a
+ * trace. The events are delivered on the thread running the stage, so
+ * listeners updating the user interface must hand them over to the event
+ * dispatch thread.
+ */
+public interface ProgressListener {
+
+	/**
+	 * Called when a stage starts.
+	 * 
+	 * @param stage
+	 *            The stage.
+	 */
+	void stageStarted(StageProgress stage);
+
+	/**
+	 * Called periodically while a stage advances.
+	 * 
+	 * @param stage
+	 *            The stage.
+	 */
+	void stageProgress(StageProgress stage);
+
+	/**
+	 * Called when a stage finishes.
+	 * 
+	 * @param stage
+	 *            The stage.
+	 */
+	void stageFinished(StageProgress stage);
+}
@@ -0,0 +1,237 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.model;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tracks the stages of loading and analyzing a trace, reports their progress
+ * to listeners and keeps their timings, which can be exported as a profile of
+ * where the time of a load is spent. Finished stages are also logged.
+ */
+public class ProgressMonitor {
+
+	private static final Logger logger = Logger.getLogger(ProgressMonitor.class.getName());
+
+	/**
+	 * Reading the packets of the pcap files, counted in packets.
+	 */
+	public static final String PCAP_READ = "pcapRead";
+
+	/**
+	 * Extracting the TCP and UDP sessions, counted in packets. Includes the
+	 * SSL and HTTP stages.
+	 */
+	public static final String SESSION_EXTRACTION = "sessionExtraction";
+
+	/**
+	 * Decrypting the SSL sessions, counted in sessions.
+	 */
+	public static final String SSL = "ssl";
+
+	/**
+	 * Parsing the HTTP requests and responses, counted in sessions.
+	 */
+	public static final String HTTP_PARSING = "httpParsing";
+
+	/**
+	 * Prefix of the best practice check stages, followed by the class name of
+	 * the check. Counted in requests and responses.
+	 */
+	public static final String BEST_PRACTICE = "bestPractice.";
+
+	/**
+	 * Cache analysis, counted in sessions.
+	 */
+	public static final String CACHE = "cache";
+
+	/**
+	 * Simulating the RRC state machine.
+	 */
+	public static final String RRC = "rrc";
+
+	/**
+	 * Energy model.
+	 */
+	public static final String ENERGY = "energy";
+
+	/**
+	 * Burst analysis.
+	 */
+	public static final String BURST = "burst";
+
+	/**
+	 * Best practice results and application score.
+	 */
+	public static final String SCORE = "score";
+
+	/**
+	 * Displaying the results of the analysis.
+	 */
+	public static final String REPORT = "report";
+
+	private static final long DEFAULT_EVENT_INTERVAL = 250;
+
+	private final List<ProgressListener> listeners = new CopyOnWriteArrayList<ProgressListener>();
+	private final List<StageProgress> stages = new ArrayList<StageProgress>();
+	private long eventInterval = DEFAULT_EVENT_INTERVAL;
+
+	/**
+	 * Adds a listener of the stage events.
+	 * 
+	 * @param listener
+	 *            The listener.
+	 */
+	public void addListener(ProgressListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Removes a listener of the stage events.
+	 * 
+	 * @param listener
+	 *            The listener.
+	 */
+	public void removeListener(ProgressListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Returns the minimum time between two progress events of a stage.
+	 * 
+	 * @return The time in milliseconds.
+	 */
+	public long getEventInterval() {
+		return eventInterval;
+	}
+
+	/**
+	 * Sets the minimum time between two progress events of a stage.
+	 * 
+	 * @param eventInterval
+	 *            The time in milliseconds.
+	 */
+	public void setEventInterval(long eventInterval) {
+		this.eventInterval = eventInterval;
+	}
+
+	/**
+	 * Creates a stage that is timed once it is resumed.
+	 * 
+	 * @param name
+	 *            The name of the stage.
+	 * @param total
+	 *            The expected number of items, or 0 when it is unknown.
+	 * @return The stage.
+	 */
+	public StageProgress createStage(String name, long total) {
+		StageProgress stage = new StageProgress(this, name, total);
+		synchronized (stages) {
+			stages.add(stage);
+		}
+		return stage;
+	}
+
+	/**
+	 * Creates and starts a stage.
+	 * 
+	 * @param name
+	 *            The name of the stage.
+	 * @param total
+	 *            The expected number of items, or 0 when it is unknown.
+	 * @return The stage.
+	 */
+	public StageProgress startStage(String name, long total) {
+		StageProgress stage = createStage(name, total);
+		stage.resume();
+		return stage;
+	}
+
+	/**
+	 * Returns the stages in the order they were created.
+	 * 
+	 * @return A copy of the list of stages.
+	 */
+	public List<StageProgress> getStages() {
+		synchronized (stages) {
+			return new ArrayList<StageProgress>(stages);
+		}
+	}
+
+	/**
+	 * Writes the timings of the stages as comma separated values, one line per
+	 * stage.
+	 * 
+	 * @param writer
+	 *            The output.
+	 * @throws IOException
+	 */
+	public void writeProfile(Writer writer) throws IOException {
+		writer.write("stage,count,total,bytes,elapsedMs,itemsPerSecond,bytesPerSecond\n");
+		for (StageProgress stage : getStages()) {
+			writer.write(stage.getName() + "," + stage.getCount() + "," + stage.getTotal() + ","
+					+ stage.getBytes() + "," + stage.getElapsedMillis() + ","
+					+ Math.round(stage.getItemsPerSecond()) + "," + Math.round(stage.getBytesPerSecond())
+					+ "\n");
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Writes the timings of the stages to a CSV file.
+	 * 
+	 * @param file
+	 *            The file, replaced when it exists.
+	 * @throws IOException
+	 */
+	public void writeProfile(File file) throws IOException {
+		Writer writer = new BufferedWriter(new FileWriter(file));
+		try {
+			writeProfile(writer);
+		} finally {
+			writer.close();
+		}
+	}
+
+	void fireStarted(StageProgress stage) {
+		logger.log(Level.FINE, "Started {0}", stage.getName());
+		for (ProgressListener listener : listeners) {
+			listener.stageStarted(stage);
+		}
+	}
+
+	void fireProgress(StageProgress stage) {
+		for (ProgressListener listener : listeners) {
+			listener.stageProgress(stage);
+		}
+	}
+
+	void fireFinished(StageProgress stage) {
+		logger.log(Level.INFO, "Finished {0}", stage);
+		for (ProgressListener listener : listeners) {
+			listener.stageFinished(stage);
+		}
+	}
+}
@@ -144,7 +144,8 @@ public class RRCStateMachine implements Serializable {
 		List<RrcStateRange> filteredRRCStates = new ArrayList<RrcStateRange>();
 		boolean stateAdded = false;
 
-		for (RrcStateRange rrcRange : rrcRanges) {
+		for (RrcStateRange rrcRange : new TimeIndex<RrcStateRange>(rrcRanges,
+				TimeIndex.RRC_STATES).getOverlapping(beginTime, endTime)) {
 
 			if (rrcRange.getBeginTime() >= beginTime
 					&& rrcRange.getEndTime() <= endTime) {
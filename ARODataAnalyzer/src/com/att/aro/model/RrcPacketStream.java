@@ -0,0 +1,199 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.model;
+
+import java.util.List;
+
+import com.att.aro.model.PacketInfo.Direction;
+
+/**
+ * An immutable, time sorted stream of the packet attributes used by the RRC
+ * state machine simulation: timestamp, direction and length. A stream is built
+ * once from the packets of a trace and can then be simulated with any number
+ * of profiles, from any number of threads.
+ */
+public final class RrcPacketStream {
+
+	private final double[] timestamps;
+	private final Direction[] directions;
+	private final int[] lengths;
+	private final double traceDuration;
+
+	// cumulative uplink and downlink bytes of the packets before index i
+	private final long[] uplinkBytes;
+	private final long[] downlinkBytes;
+
+	/**
+	 * Initializes an instance of the RrcPacketStream class from the attributes
+	 * of the packets. The arrays are copied.
+	 *
+	 * @param timestamps
+	 *            The packet timestamps in seconds, sorted.
+	 * @param directions
+	 *            The packet directions.
+	 * @param lengths
+	 *            The packet lengths in bytes.
+	 * @param traceDuration
+	 *            The duration of the trace in seconds.
+	 * @throws IllegalArgumentException
+	 *             when the arrays differ in length or the timestamps are not
+	 *             sorted.
+	 */
+	public RrcPacketStream(double[] timestamps, Direction[] directions, int[] lengths,
+			double traceDuration) {
+		if (timestamps.length != directions.length || timestamps.length != lengths.length) {
+			throw new IllegalArgumentException("Packet attribute arrays differ in length");
+		}
+		for (int i = 1; i < timestamps.length; ++i) {
+			if (timestamps[i] < timestamps[i - 1]) {
+				throw new IllegalArgumentException("Packet timestamps are not sorted at index " + i);
+			}
+		}
+		this.timestamps = timestamps.clone();
+		this.directions = directions.clone();
+		this.lengths = lengths.clone();
+		this.traceDuration = traceDuration;
+		this.uplinkBytes = new long[timestamps.length + 1];
+		this.downlinkBytes = new long[timestamps.length + 1];
+		for (int i = 0; i < timestamps.length; ++i) {
+			uplinkBytes[i + 1] = uplinkBytes[i];
+			downlinkBytes[i + 1] = downlinkBytes[i];
+			if (directions[i] == Direction.UPLINK) {
+				uplinkBytes[i + 1] += lengths[i];
+			} else if (directions[i] == Direction.DOWNLINK) {
+				downlinkBytes[i + 1] += lengths[i];
+			}
+		}
+	}
+
+	/**
+	 * Creates a stream from a list of packets sorted by timestamp.
+	 *
+	 * @param packets
+	 *            The packets of the trace.
+	 * @param traceDuration
+	 *            The duration of the trace in seconds.
+	 * @return The packet stream.
+	 */
+	public static RrcPacketStream create(List<PacketInfo> packets, double traceDuration) {
+		int size = packets.size();
+		double[] timestamps = new double[size];
+		Direction[] directions = new Direction[size];
+		int[] lengths = new int[size];
+		int i = 0;
+		for (PacketInfo packet : packets) {
+			timestamps[i] = packet.getTimeStamp();
+			directions[i] = packet.getDir();
+			lengths[i] = packet.getLen();
+			++i;
+		}
+		return new RrcPacketStream(timestamps, directions, lengths, traceDuration);
+	}
+
+	/**
+	 * Returns the number of packets in the stream.
+	 *
+	 * @return The packet count.
+	 */
+	public int size() {
+		return timestamps.length;
+	}
+
+	/**
+	 * Returns the timestamp of a packet.
+	 *
+	 * @param index
+	 *            The packet index.
+	 * @return The timestamp in seconds.
+	 */
+	public double getTimeStamp(int index) {
+		return timestamps[index];
+	}
+
+	/**
+	 * Returns the direction of a packet.
+	 *
+	 * @param index
+	 *            The packet index.
+	 * @return The packet direction.
+	 */
+	public Direction getDir(int index) {
+		return directions[index];
+	}
+
+	/**
+	 * Returns the length of a packet.
+	 *
+	 * @param index
+	 *            The packet index.
+	 * @return The packet length in bytes.
+	 */
+	public int getLen(int index) {
+		return lengths[index];
+	}
+
+	/**
+	 * Returns the duration of the trace.
+	 *
+	 * @return The trace duration in seconds.
+	 */
+	public double getTraceDuration() {
+		return traceDuration;
+	}
+
+	/**
+	 * Returns the total number of bytes in the stream.
+	 *
+	 * @return The bytes.
+	 */
+	public long getTotalBytes() {
+		int size = timestamps.length;
+		return uplinkBytes[size] + downlinkBytes[size];
+	}
+
+	/**
+	 * Returns the uplink bytes of the packets with a timestamp in
+	 * [beginTime, endTime).
+	 */
+	long getUplinkBytes(double beginTime, double endTime) {
+		return uplinkBytes[indexOf(endTime)] - uplinkBytes[indexOf(beginTime)];
+	}
+
+	/**
+	 * Returns the downlink bytes of the packets with a timestamp in
+	 * [beginTime, endTime).
+	 */
+	long getDownlinkBytes(double beginTime, double endTime) {
+		return downlinkBytes[indexOf(endTime)] - downlinkBytes[indexOf(beginTime)];
+	}
+
+	/**
+	 * Returns the index of the first packet with a timestamp not before time.
+	 */
+	private int indexOf(double time) {
+		int low = 0;
+		int high = timestamps.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (timestamps[mid] < time) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}
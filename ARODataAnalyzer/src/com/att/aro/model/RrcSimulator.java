@@ -0,0 +1,228 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Simulates the RRC state machine of a profile over a packet stream without
+ * touching the packets of an analysis. Because a simulation only reads the
+ * stream and the profile, many profiles can be evaluated over the same trace
+ * in parallel, e.g. to find the inactivity timers that minimize the energy of
+ * a trace.
+ */
+public final class RrcSimulator {
+
+	private static final List<PacketInfo> NO_PACKETS = Collections.emptyList();
+
+	private RrcSimulator() {
+	}
+
+	/**
+	 * Results of simulating a profile over a packet stream.
+	 */
+	public static final class Result {
+		private final Profile profile;
+		private final List<RrcStateRange> stateRanges;
+		private final Map<RRCState, Double> stateTimes = new EnumMap<RRCState, Double>(RRCState.class);
+		private final Map<RRCState, Double> stateEnergies = new EnumMap<RRCState, Double>(RRCState.class);
+		private double totalEnergy;
+		private final double joulesPerKilobyte;
+
+		private Result(RrcPacketStream stream, Profile profile, List<RrcStateRange> stateRanges) {
+			this.profile = profile;
+			this.stateRanges = Collections.unmodifiableList(stateRanges);
+			for (RrcStateRange range : stateRanges) {
+				double energy = energy(stream, profile, range.getBeginTime(),
+						range.getEndTime(), range.getState());
+				add(stateTimes, range.getState(), range.getEndTime() - range.getBeginTime());
+				add(stateEnergies, range.getState(), energy);
+				totalEnergy += energy;
+			}
+			long bytes = stream.getTotalBytes();
+			this.joulesPerKilobyte = bytes != 0 ? totalEnergy / (bytes / 1000.0) : 0.0;
+		}
+
+		private static void add(Map<RRCState, Double> map, RRCState state, double value) {
+			Double total = map.get(state);
+			map.put(state, total != null ? total + value : value);
+		}
+
+		/**
+		 * Returns the simulated profile.
+		 *
+		 * @return The profile.
+		 */
+		public Profile getProfile() {
+			return profile;
+		}
+
+		/**
+		 * Returns the RRC state ranges of the trace.
+		 *
+		 * @return An unmodifiable List of RrcStateRange objects.
+		 */
+		public List<RrcStateRange> getRRcStateRanges() {
+			return stateRanges;
+		}
+
+		/**
+		 * Returns the total time spent in an RRC state.
+		 *
+		 * @param state
+		 *            The RRC state.
+		 * @return The time in seconds.
+		 */
+		public double getTime(RRCState state) {
+			Double time = stateTimes.get(state);
+			return time != null ? time : 0.0;
+		}
+
+		/**
+		 * Returns the energy expended in an RRC state.
+		 *
+		 * @param state
+		 *            The RRC state.
+		 * @return The energy in Joules.
+		 */
+		public double getEnergy(RRCState state) {
+			Double energy = stateEnergies.get(state);
+			return energy != null ? energy : 0.0;
+		}
+
+		/**
+		 * Returns the total energy expended by the radio over the trace.
+		 *
+		 * @return The total RRC energy value.
+		 */
+		public double getTotalRRCEnergy() {
+			return totalEnergy;
+		}
+
+		/**
+		 * Returns the average amount of Joules per Kilobyte for the trace.
+		 *
+		 * @return The average Joules per Kilobyte value.
+		 */
+		public double getJoulesPerKilobyte() {
+			return joulesPerKilobyte;
+		}
+	}
+
+	/**
+	 * Simulates the RRC state machine of a profile over a packet stream.
+	 *
+	 * @param stream
+	 *            The packets of the trace.
+	 * @param profile
+	 *            A 3G, LTE or WiFi profile.
+	 * @return The state ranges and energy of the trace.
+	 * @throws IllegalArgumentException
+	 *             when the profile type has no state machine.
+	 */
+	public static Result simulate(RrcPacketStream stream, Profile profile) {
+		RRCState[] states = new RRCState[stream.size()];
+		return new Result(stream, profile, RrcStateRange.simulate(stream, profile, states));
+	}
+
+	/**
+	 * Simulates every profile over the same packet stream, using one thread
+	 * per available processor.
+	 *
+	 * @param stream
+	 *            The packets of the trace.
+	 * @param profiles
+	 *            The profiles to evaluate.
+	 * @return The results, in the order of the profiles.
+	 * @throws InterruptedException
+	 */
+	public static List<Result> sweep(RrcPacketStream stream, List<? extends Profile> profiles)
+			throws InterruptedException {
+		return sweep(stream, profiles, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Simulates every profile over the same packet stream in parallel.
+	 *
+	 * @param stream
+	 *            The packets of the trace.
+	 * @param profiles
+	 *            The profiles to evaluate.
+	 * @param threads
+	 *            The number of simulations run at the same time.
+	 * @return The results, in the order of the profiles.
+	 * @throws InterruptedException
+	 */
+	public static List<Result> sweep(final RrcPacketStream stream,
+			List<? extends Profile> profiles, int threads) throws InterruptedException {
+		List<Callable<Result>> tasks = new ArrayList<Callable<Result>>(profiles.size());
+		for (final Profile profile : profiles) {
+			tasks.add(new Callable<Result>() {
+				@Override
+				public Result call() {
+					return simulate(stream, profile);
+				}
+			});
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1,
+				Math.min(threads, tasks.size())));
+		try {
+			List<Result> results = new ArrayList<Result>(tasks.size());
+			for (Future<Result> future : executor.invokeAll(tasks)) {
+				try {
+					results.add(future.get());
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					}
+					throw new IllegalStateException(cause);
+				}
+			}
+			return results;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Energy of a state range. LTE continuous reception depends on the
+	 * throughput; its energy is linear in the bytes sent in the range, so the
+	 * stream's cumulative byte counts give it without sampling the throughput.
+	 */
+	static double energy(RrcPacketStream stream, Profile profile, double begin, double end,
+			RRCState state) {
+		if (state == RRCState.LTE_CONTINUOUS && profile instanceof ProfileLTE) {
+			ProfileLTE lte = (ProfileLTE) profile;
+			double upMegabits = stream.getUplinkBytes(begin, end) * 8 / 1000000.0;
+			double downMegabits = stream.getDownlinkBytes(begin, end) * 8 / 1000000.0;
+			return (lte.getLteAlphaUp() / 1000.0) * upMegabits
+					+ (lte.getLteAlphaDown() / 1000.0) * downMegabits
+					+ lte.getLteBeta() * (end - begin);
+		}
+		return profile.energy(begin, end, state, NO_PACKETS);
+	}
+}
@@ -0,0 +1,213 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.att.aro.model.PacketInfo.Direction;
+
+/**
+ * Runs the RRC state machine of a profile over packets appended in time order,
+ * so that a trace can be simulated in segments without holding all of its
+ * packets. The builder keeps the state of the machine between packets and
+ * passes each RrcStateRange to its listener as soon as later packets can no
+ * longer change it. The ranges that may still change are held until more
+ * packets are appended or the trace is finished.
+ * <p>
+ * Appending all of the packets of a trace and finishing it gives the same
+ * state ranges as RrcStateRange.runTrace.
+ */
+public abstract class RrcStateRangeBuilder {
+
+	/**
+	 * Receives the state ranges of a builder in time order.
+	 */
+	public interface Listener {
+
+		/**
+		 * Called when a state range can no longer change.
+		 *
+		 * @param range
+		 *            The state range.
+		 */
+		void stateRangeFinalized(RrcStateRange range);
+	}
+
+	/**
+	 * The state ranges that may still change, in the order they were added.
+	 */
+	protected final List<RrcStateRange> ranges = new ArrayList<RrcStateRange>();
+
+	private final Listener listener;
+	private int finalizedCount;
+	private int packetCount;
+	private double lastTimeStamp;
+	private boolean finished;
+
+	/**
+	 * Initializes an instance of the RrcStateRangeBuilder class.
+	 *
+	 * @param listener
+	 *            Receives the state ranges.
+	 */
+	protected RrcStateRangeBuilder(Listener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Creates the builder for the RRC state machine of a profile.
+	 *
+	 * @param profile
+	 *            A 3G, LTE or WiFi profile.
+	 * @param listener
+	 *            Receives the state ranges.
+	 * @return The builder.
+	 * @throws IllegalArgumentException
+	 *             when the profile type has no state machine.
+	 */
+	public static RrcStateRangeBuilder create(Profile profile, Listener listener) {
+		if (profile instanceof Profile3G) {
+			return new RrcStateRangeBuilder3G((Profile3G) profile, listener);
+		} else if (profile instanceof ProfileLTE) {
+			return new RrcStateRangeBuilderLTE((ProfileLTE) profile, listener);
+		} else if (profile instanceof ProfileWiFi) {
+			return new RrcStateRangeBuilderWiFi((ProfileWiFi) profile, listener);
+		} else {
+			throw new IllegalArgumentException("Invalid profile type for state machine: "
+					+ profile.getClass());
+		}
+	}
+
+	/**
+	 * Appends a packet to the trace.
+	 *
+	 * @param timeStamp
+	 *            The packet timestamp in seconds, not before the timestamp of
+	 *            the previous packet.
+	 * @param dir
+	 *            The packet direction.
+	 * @param len
+	 *            The packet length in bytes.
+	 * @return The state machine of the packet.
+	 * @throws IllegalArgumentException
+	 *             when the packet is older than the previous one.
+	 * @throws IllegalStateException
+	 *             when the trace is finished.
+	 */
+	public RRCState append(double timeStamp, Direction dir, int len) {
+		if (finished) {
+			throw new IllegalStateException("The trace is finished");
+		}
+		if (packetCount > 0 && timeStamp < lastTimeStamp) {
+			throw new IllegalArgumentException("Packet timestamp " + timeStamp
+					+ " is before the previous one");
+		}
+		RRCState state = addPacket(timeStamp, dir, len);
+		lastTimeStamp = timeStamp;
+		++packetCount;
+		finalizeRanges(getFinalCount());
+		return state;
+	}
+
+	/**
+	 * Ends the trace and passes the remaining state ranges to the listener.
+	 *
+	 * @param traceDuration
+	 *            The duration of the trace in seconds.
+	 * @throws IllegalStateException
+	 *             when the trace is already finished.
+	 */
+	public void finish(double traceDuration) {
+		if (finished) {
+			throw new IllegalStateException("The trace is finished");
+		}
+		finished = true;
+		finishTrace(traceDuration);
+		finalizeRanges(ranges.size());
+		flush();
+	}
+
+	/**
+	 * Returns the number of packets appended.
+	 *
+	 * @return The packet count.
+	 */
+	public int getPacketCount() {
+		return packetCount;
+	}
+
+	/**
+	 * Returns the number of state ranges removed from the ranges list since
+	 * the beginning of the trace.
+	 */
+	int getFinalizedCount() {
+		return finalizedCount;
+	}
+
+	/**
+	 * Runs the state machine for a packet, adding its state ranges to the
+	 * ranges list.
+	 *
+	 * @return The state machine of the packet.
+	 */
+	abstract RRCState addPacket(double timeStamp, Direction dir, int len);
+
+	/**
+	 * Adds the state ranges from the last packet to the end of the trace.
+	 */
+	abstract void finishTrace(double traceDuration);
+
+	/**
+	 * Returns the number of ranges, from the start of the ranges list, that
+	 * later packets can no longer change. By default no range changes once
+	 * added.
+	 */
+	int getFinalCount() {
+		return ranges.size();
+	}
+
+	/**
+	 * Passes a final state range to the listener.
+	 */
+	void emit(RrcStateRange range) {
+		listener.stateRangeFinalized(range);
+	}
+
+	/**
+	 * Called after ranges were removed from the start of the ranges list and
+	 * emitted.
+	 */
+	void rangesFinalized() {
+	}
+
+	/**
+	 * Called at the end of the trace, after the last range was emitted.
+	 */
+	void flush() {
+	}
+
+	private void finalizeRanges(int count) {
+		if (count > 0) {
+			for (int i = 0; i < count; ++i) {
+				emit(ranges.get(i));
+			}
+			ranges.subList(0, count).clear();
+			finalizedCount += count;
+			rangesFinalized();
+		}
+	}
+}
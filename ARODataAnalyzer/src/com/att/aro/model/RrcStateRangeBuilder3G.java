@@ -0,0 +1,788 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.att.aro.model.PacketInfo.Direction;
+
+/**
+ * The RRC state machine of a 3G profile. When a packet is appended, the
+ * machine may still turn the last DCH time into DCH tail, or insert a FACH to
+ * DCH promotion after one of the packets received in FACH since the last state
+ * change. The state ranges that can be changed this way are held until later
+ * packets make them final. Consecutive ranges of the same state are merged,
+ * and the ranges are truncated at the end of the trace.
+ */
+class RrcStateRangeBuilder3G extends RrcStateRangeBuilder {
+
+	private static final double EPS = 1e-5;
+
+	/**
+	 * Handles the calculation related to DCH State and DCH Tail State.
+	 */
+	private static class DchDemotionQueue {
+		private Profile3G profile;
+		private int dchDemotionQueueUL = -1;
+		private int dchDemotionQueueDL = -1;
+		private double dchTimerResetTS;
+		private double dchLastPktTSUL;
+		private double dchLastPktTSDL;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param profile
+		 */
+		public DchDemotionQueue(Profile3G profile) {
+			this.profile = profile;
+		}
+
+		/**
+		 * Initialize the DCH state information.
+		 * 
+		 * @param ts
+		 *            time stamp where DCH starts.
+		 * @param size
+		 *            size of the consumed during that DCH.
+		 * @param dir
+		 *            Direction of the DCH UPLINK/DOWNLINK.
+		 */
+		private void init(double ts, int size, Direction dir) {
+			if (dir == Direction.UPLINK) {
+				dchDemotionQueueUL = size;
+				dchDemotionQueueDL = 0;
+				dchLastPktTSUL = ts;
+				dchLastPktTSDL = -9999.0f;
+			} else if (dir == Direction.DOWNLINK) {
+				dchDemotionQueueUL = 0;
+				dchDemotionQueueDL = size;
+				dchLastPktTSDL = ts;
+				dchLastPktTSUL = -9999.0f;
+			}
+
+			dchTimerResetTS = ts;
+		}
+
+		/**
+		 * Updates the RRC information in existing RRC state.
+		 * 
+		 * @param ts
+		 * @param size
+		 * @param dir
+		 */
+		private void update(double ts, int size, Direction dir) {
+			if (dir == Direction.UPLINK) {
+				if (ts > dchLastPktTSUL + profile.getDchTimerResetWin()) {
+					dchDemotionQueueUL = size;
+				} else {
+					dchDemotionQueueUL += size;
+				}
+				if (ts > dchLastPktTSDL + profile.getDchTimerResetWin()) {
+					dchDemotionQueueDL = 0;
+				}
+				dchLastPktTSUL = ts;
+			}
+
+			else if (dir == Direction.DOWNLINK) {
+				if (ts > dchLastPktTSDL + profile.getDchTimerResetWin()) {
+					dchDemotionQueueDL = size;
+				} else {
+					dchDemotionQueueDL += size;
+				}
+				if (ts > dchLastPktTSUL + profile.getDchTimerResetWin()) {
+					dchDemotionQueueUL = 0;
+				}
+				dchLastPktTSDL = ts;
+
+			}
+
+			if ((dchDemotionQueueUL >= profile.getDchTimerResetSize())
+					|| (dchDemotionQueueDL >= profile.getDchTimerResetSize())) {
+				dchTimerResetTS = ts;
+			}
+		}
+
+		private double getDCHTail(double ts) {
+			double lastTS = Math.max(dchLastPktTSDL, dchLastPktTSUL);
+			double dt = profile.getDchFachTimer() - (lastTS - dchTimerResetTS);
+			return dt;
+		}
+
+	}
+
+	/**
+	 * Handles the calculation related to DCH State and DCH Tail State.
+	 */
+	private static class FachQueue {
+		private Profile3G profile;
+		private int ulQueue, dlQueue;
+		private double ulTS, dlTS;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param profile
+		 */
+		public FachQueue(Profile3G profile) {
+			this.profile = profile;
+		}
+
+		/**
+		 * Initialize the FACH data.
+		 */
+		private void init() {
+			ulQueue = dlQueue = 0;
+			ulTS = dlTS = -1000.0f;
+		}
+
+		/**
+		 * return true if it triggers a FACH->DCH promotion
+		 * 
+		 * @param ts
+		 * @param dir
+		 * @param size
+		 * @return
+		 */
+		private boolean simFACH(double ts, Direction dir, int size) {
+			if (dir == Direction.UPLINK) {
+				// MyAssert(ts >= ulTS, 113);
+				double queueConsumptionTime = (ulQueue * ulQueue * profile.getRlcUlRateP2()
+						+ ulQueue * profile.getRlcUlRateP1() + profile.getRlcUlRateP0()) / 1000.0f;
+				if (ts - ulTS > queueConsumptionTime) {
+					ulQueue = 0;
+				}
+
+				// if (ts - ulTS > 0.2f) ulQueue = 0;
+
+				ulQueue += size;
+				ulTS = ts;
+
+			}
+
+			else if (dir == Direction.DOWNLINK) {
+				// MyAssert(ts >= dlTS, 114);
+				double queueConsumptionTime = (dlQueue * dlQueue * profile.getRlcDlRateP2()
+						+ dlQueue * profile.getRlcDlRateP1() + profile.getRlcDlRateP0()) / 1000.0f;
+				if (ts - dlTS > queueConsumptionTime) {
+					dlQueue = 0;
+				}
+
+				dlQueue += size;
+				dlTS = ts;
+
+			}
+
+			return ((dlQueue > profile.getRlcDlTh()) || (ulQueue > profile.getRlcUlTh()));
+		}
+
+	}
+
+	private final DchDemotionQueue dchDemotionQueue;
+	private final FachQueue fachQueue;
+
+	// Important profile info
+	private final double idleDchPromoAvg;
+	private final double idleDchPromoMin;
+	private final double idleDchPromoMax;
+	private final double fachDchPromoAvg;
+	private final double fachDchPromoMin;
+	private final double fachDchPromoMax;
+	private final double dchFachTimer;
+	private final double fachIdleTimer;
+
+	private double timer;
+
+	// State and timestamp of the previous packet
+	private RRCState prevState;
+	private double prevPacketTimeStamp;
+
+	// Timestamps and directions of the packets in STATE_FACH since the last
+	// packet in another state
+	private double[] fachRunTimeStamps = new double[16];
+	private Direction[] fachRunDirections = new Direction[16];
+	private int fachRunSize;
+
+	// Final ranges sorted by begin time, until no later range can begin
+	// before them
+	private final List<RrcStateRange> sorted = new ArrayList<RrcStateRange>();
+
+	// Merged range not emitted yet
+	private RrcStateRange current;
+	private double traceDuration = Double.MAX_VALUE;
+	private double lastEndTime;
+
+	RrcStateRangeBuilder3G(Profile3G profile, Listener listener) {
+		super(listener);
+		this.dchDemotionQueue = new DchDemotionQueue(profile);
+		this.fachQueue = new FachQueue(profile);
+		this.idleDchPromoAvg = profile.getIdleDchPromoAvg();
+		this.idleDchPromoMin = profile.getIdleDchPromoMin();
+		this.idleDchPromoMax = profile.getIdleDchPromoMax();
+		this.fachDchPromoAvg = profile.getFachDchPromoAvg();
+		this.fachDchPromoMin = profile.getFachDchPromoMin();
+		this.fachDchPromoMax = profile.getFachDchPromoMax();
+		this.dchFachTimer = profile.getDchFachTimer();
+		this.fachIdleTimer = profile.getFachIdleTimer();
+	}
+
+	@Override
+	RRCState addPacket(double timeStamp, Direction dir, int len) {
+		RRCState state;
+		if (getPacketCount() == 0) {
+
+			// Add initial idle state
+			addStateRangeEx(ranges, 0, Double.MAX_VALUE, RRCState.STATE_IDLE, timeStamp);
+			state = RRCState.PROMO_IDLE_DCH;
+		} else {
+			state = nextState(timeStamp, dir, len);
+		}
+
+		if (state == RRCState.STATE_FACH) {
+			if (fachRunSize == fachRunTimeStamps.length) {
+				fachRunTimeStamps = Arrays.copyOf(fachRunTimeStamps, fachRunSize * 2);
+				fachRunDirections = Arrays.copyOf(fachRunDirections, fachRunSize * 2);
+			}
+			fachRunTimeStamps[fachRunSize] = timeStamp;
+			fachRunDirections[fachRunSize] = dir;
+			++fachRunSize;
+		} else {
+			fachRunSize = 0;
+		}
+		prevState = state;
+		prevPacketTimeStamp = timeStamp;
+		return state;
+	}
+
+	@Override
+	void finishTrace(double traceDuration) {
+		this.traceDuration = traceDuration;
+		if (getPacketCount() > 0) {
+
+			// The last iteration of the state machine
+			nextState(Double.MAX_VALUE, Direction.UPLINK, 0);
+		}
+	}
+
+	@Override
+	int getFinalCount() {
+
+		// changeStateRangeBack changes the ranges covering the last
+		// dchFachTimer seconds at most
+		int count = ranges.size();
+		double duration = dchFachTimer + 1e-3;
+		while (count > 0 && duration > EPS) {
+			--count;
+			RrcStateRange range = ranges.get(count);
+			duration -= range.getEndTime() - range.getBeginTime();
+		}
+
+		// A promotion may be inserted after a packet of the FACH run
+		if (fachRunSize > 0) {
+			for (int i = 0; i < count; ++i) {
+				if (ranges.get(i).getBeginTime() >= fachRunTimeStamps[0]) {
+					count = i;
+					break;
+				}
+			}
+		}
+		return count;
+	}
+
+	@Override
+	void emit(RrcStateRange range) {
+		int i = sorted.size();
+		while (i > 0 && sorted.get(i - 1).compareTo(range) > 0) {
+			--i;
+		}
+		sorted.add(i, range);
+	}
+
+	@Override
+	void rangesFinalized() {
+
+		// Later ranges begin at the last packet or in a range still pending
+		double time = prevPacketTimeStamp;
+		for (RrcStateRange range : ranges) {
+			time = Math.min(time, range.getBeginTime());
+		}
+		int count = 0;
+		while (count < sorted.size() && sorted.get(count).getBeginTime() < time) {
+			merge(sorted.get(count++));
+		}
+		sorted.subList(0, count).clear();
+	}
+
+	/**
+	 * Merges a range into the current one when they have the same state.
+	 */
+	private void merge(RrcStateRange range) {
+		if (current != null && current.getState() == range.getState()) {
+			current.setEndTime(range.getEndTime());
+		} else {
+			if (current != null) {
+				emitTruncated(current);
+			}
+			current = range;
+		}
+	}
+
+	@Override
+	void flush() {
+		for (RrcStateRange range : sorted) {
+			merge(range);
+		}
+		sorted.clear();
+		if (current != null) {
+			emitTruncated(current);
+			current = null;
+		}
+		if (lastEndTime < traceDuration) {
+
+			// Add idle time to end of trace
+			super.emit(new RrcStateRange(lastEndTime, traceDuration, RRCState.STATE_IDLE));
+		}
+	}
+
+	/**
+	 * Truncates a state range at the end of the trace before emitting it.
+	 */
+	private void emitTruncated(RrcStateRange range) {
+		if (range.getEndTime() > traceDuration) {
+			range.setEndTime(traceDuration);
+		}
+		lastEndTime = range.getEndTime();
+		if (range.getBeginTime() < traceDuration) {
+			super.emit(range);
+		}
+	}
+
+	/**
+	 * This method contains the main algorithm for creating the state ranges
+	 * from the previous packet to a packet.
+	 *
+	 * @return The state machine of the packet.
+	 */
+	private RRCState nextState(double currTimeStamp, Direction dir, int currLen) {
+		double prevTimeStamp = prevPacketTimeStamp;
+		double deltaTime = currTimeStamp - prevTimeStamp;
+
+		RRCState state = null; // the next state to be determined
+		RRCState promoState = prevState;
+		switch (promoState) {
+		case PROMO_IDLE_DCH:
+		case PROMO_FACH_DCH: {
+			double promoAvg, promoMin, promoMax;
+			if (promoState == RRCState.PROMO_IDLE_DCH) {
+				promoAvg = idleDchPromoAvg;
+				promoMin = idleDchPromoMin;
+				promoMax = idleDchPromoMax;
+			} else {
+				promoAvg = fachDchPromoAvg;
+				promoMin = fachDchPromoMin;
+				promoMax = fachDchPromoMax;
+			}
+
+			if (dir == Direction.UPLINK && timer + deltaTime <= promoMin) { // Case
+																			// 1
+				prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp, Double.MAX_VALUE,
+						promoState, currTimeStamp);
+				state = promoState;
+				timer += deltaTime;
+			} else if (dir == Direction.DOWNLINK && timer + deltaTime <= promoMin) {
+				// TODO: handle an error situation here: a DOWNLINK DCH
+				// packet follows "immediately" after a packet on
+				// FACH/IDLE
+				// promotion
+
+				prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp, Double.MAX_VALUE,
+						promoState, currTimeStamp);
+				state = promoState;
+				timer += deltaTime;
+
+			} else if (timer + deltaTime <= promoMax) { // Case 2
+				prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp, Double.MAX_VALUE,
+						promoState, currTimeStamp);
+				state = RRCState.STATE_DCH;
+
+				dchDemotionQueue.init(currTimeStamp, currLen, dir);
+
+			} else if (timer + deltaTime <= promoAvg + dchFachTimer) { // Case
+																		// 3
+				prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp, promoAvg - timer,
+						promoState, currTimeStamp);
+				prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp, Double.MAX_VALUE,
+						RRCState.STATE_DCH, currTimeStamp);
+				state = RRCState.STATE_DCH;
+
+				dchDemotionQueue.init(currTimeStamp, currLen, dir);
+
+			} else if (timer + deltaTime <= promoAvg + dchFachTimer + fachIdleTimer) { // Case
+																						// 4
+				if (dir == Direction.DOWNLINK) {
+					fachQueue.init();
+					if (fachQueue.simFACH(currTimeStamp, dir, currLen)) { // FACH->DCH
+						double tMax0 = currTimeStamp - fachDchPromoAvg;
+						prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp, promoAvg
+								- timer, promoState, tMax0);
+						prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp,
+								dchFachTimer, RRCState.TAIL_DCH, tMax0);
+						prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp,
+								Double.MAX_VALUE, RRCState.STATE_FACH, tMax0);
+						// promoTime = tMax - tt;
+						prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp,
+								Double.MAX_VALUE, RRCState.PROMO_FACH_DCH, currTimeStamp);
+						state = RRCState.STATE_DCH;
+
+						dchDemotionQueue.init(currTimeStamp, currLen, dir);
+
+					} else {
+						prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp, promoAvg
+								- timer, promoState, currTimeStamp);
+						prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp,
+								dchFachTimer, RRCState.TAIL_DCH, currTimeStamp);
+						prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp,
+								Double.MAX_VALUE, RRCState.STATE_FACH, currTimeStamp);
+						state = RRCState.STATE_FACH;
+					}
+				} else { // downlink
+					fachQueue.init();
+					prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp,
+							promoAvg - timer, promoState, currTimeStamp);
+					prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp, dchFachTimer,
+							RRCState.TAIL_DCH, currTimeStamp);
+					prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp,
+							Double.MAX_VALUE, RRCState.STATE_FACH, currTimeStamp);
+					if (fachQueue.simFACH(currTimeStamp, dir, currLen)) {
+						state = RRCState.PROMO_FACH_DCH;
+						timer = 0;
+					} else {
+						state = RRCState.STATE_FACH;
+					}
+				}
+			} else { // case 5
+				if (dir == Direction.UPLINK) {
+					prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp,
+							promoAvg - timer, promoState, currTimeStamp);
+					prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp, dchFachTimer,
+							RRCState.TAIL_DCH, currTimeStamp);
+					prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp, fachIdleTimer,
+							RRCState.TAIL_FACH, currTimeStamp);
+					prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp,
+							Double.MAX_VALUE, RRCState.STATE_IDLE, currTimeStamp);
+					state = RRCState.PROMO_IDLE_DCH;
+					timer = 0;
+				} else { // downlink
+					double tMax0 = currTimeStamp - idleDchPromoAvg;
+					prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp,
+							promoAvg - timer, promoState, tMax0);
+					prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp, dchFachTimer,
+							RRCState.TAIL_DCH, tMax0);
+					prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp, fachIdleTimer,
+							RRCState.TAIL_FACH, tMax0);
+					prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp,
+							Double.MAX_VALUE, RRCState.STATE_IDLE, tMax0);
+					// promoTime = tMax - tt;
+					prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp,
+							Double.MAX_VALUE, RRCState.PROMO_IDLE_DCH, currTimeStamp);
+					state = RRCState.STATE_DCH;
+
+					dchDemotionQueue.init(currTimeStamp, currLen, dir);
+
+				}
+			}
+			break;
+		}
+
+		case STATE_DCH: {
+			double dchTail = dchDemotionQueue.getDCHTail(currTimeStamp); // ***
+																			// Dynamic
+																			// DCH
+			// Tail ***
+
+			if (deltaTime <= dchTail + 1e-5) { // DCH Case 1
+				prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp, Double.MAX_VALUE,
+						RRCState.STATE_DCH, currTimeStamp);
+				state = RRCState.STATE_DCH;
+
+				dchDemotionQueue.update(currTimeStamp, currLen, dir);
+
+			} else if (deltaTime <= dchTail + fachIdleTimer) { // DCH
+																// Case
+																// 2
+				if (dir == Direction.DOWNLINK) { // downlink
+					fachQueue.init();
+					if (fachQueue.simFACH(currTimeStamp, dir, currLen)) {
+						double tMax0 = currTimeStamp - fachDchPromoAvg;
+						changeStateRangeBack(ranges, dchFachTimer - dchTail,
+								RRCState.STATE_DCH, RRCState.TAIL_DCH);
+						prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp, dchTail,
+								RRCState.TAIL_DCH, tMax0);
+						prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp,
+								Double.MAX_VALUE, RRCState.STATE_FACH, tMax0);
+						// promoTime = tMax - tt;
+						prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp,
+								Double.MAX_VALUE, RRCState.PROMO_FACH_DCH, currTimeStamp);
+						state = RRCState.STATE_DCH;
+
+						dchDemotionQueue.init(currTimeStamp, currLen, dir);
+
+					} else {
+						changeStateRangeBack(ranges, dchFachTimer - dchTail,
+								RRCState.STATE_DCH, RRCState.TAIL_DCH);
+						prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp, dchTail,
+								RRCState.TAIL_DCH, currTimeStamp);
+						prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp,
+								Double.MAX_VALUE, RRCState.STATE_FACH, currTimeStamp);
+						state = RRCState.STATE_FACH;
+					}
+				} else { // uplink
+					fachQueue.init();
+					changeStateRangeBack(ranges, dchFachTimer - dchTail,
+							RRCState.STATE_DCH, RRCState.TAIL_DCH);
+					prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp, dchTail,
+							RRCState.TAIL_DCH, currTimeStamp);
+					prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp,
+							Double.MAX_VALUE, RRCState.STATE_FACH, currTimeStamp);
+					if (fachQueue.simFACH(currTimeStamp, dir, currLen)) {
+						state = RRCState.PROMO_FACH_DCH;
+						timer = 0;
+					} else {
+						state = RRCState.STATE_FACH;
+					}
+				}
+			} else { // DCH Case 3
+				if (dir == Direction.UPLINK) { // uplink
+					changeStateRangeBack(ranges, dchFachTimer - dchTail,
+							RRCState.STATE_DCH, RRCState.TAIL_DCH);
+					prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp, dchTail,
+							RRCState.TAIL_DCH, currTimeStamp);
+					prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp, fachIdleTimer,
+							RRCState.TAIL_FACH, currTimeStamp);
+					prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp,
+							Double.MAX_VALUE, RRCState.STATE_IDLE, currTimeStamp);
+					state = RRCState.PROMO_IDLE_DCH;
+					timer = 0;
+				} else { // downlink
+					double tMax0 = currTimeStamp - idleDchPromoAvg;
+					changeStateRangeBack(ranges, dchFachTimer - dchTail,
+							RRCState.STATE_DCH, RRCState.TAIL_DCH);
+					prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp, dchTail,
+							RRCState.TAIL_DCH, tMax0);
+					prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp, fachIdleTimer,
+							RRCState.TAIL_FACH, tMax0);
+					prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp,
+							Double.MAX_VALUE, RRCState.STATE_IDLE, tMax0);
+					// promoTime = tMax - tt;
+					prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp,
+							Double.MAX_VALUE, RRCState.PROMO_IDLE_DCH, currTimeStamp);
+					state = RRCState.STATE_DCH;
+
+					dchDemotionQueue.init(currTimeStamp, currLen, dir);
+				}
+			}
+			break;
+		}
+
+		case STATE_FACH: {
+			if (deltaTime <= fachIdleTimer) {
+				if (dir == Direction.UPLINK) {
+					prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp,
+							Double.MAX_VALUE, RRCState.STATE_FACH, currTimeStamp);
+					if (fachQueue.simFACH(currTimeStamp, dir, currLen)) {
+						state = RRCState.PROMO_FACH_DCH;
+						timer = 0;
+					} else {
+						state = RRCState.STATE_FACH;
+					}
+				} else { // downlink
+					if (fachQueue.simFACH(currTimeStamp, dir, currLen)) {
+						double tMax0 = currTimeStamp - fachDchPromoAvg;
+
+						/*
+						 * TODO: ( diff ) handle the case where promo
+						 * delay is 0 ( for what - if )
+						 */
+						if (tMax0 > prevTimeStamp || fachDchPromoAvg < 1e-6) {
+							prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp,
+									Double.MAX_VALUE, RRCState.STATE_FACH, tMax0);
+							// promoTime = tMax - tt;
+							prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp,
+									Double.MAX_VALUE, RRCState.PROMO_FACH_DCH,
+									currTimeStamp);
+						} else {
+							// *** handle an error situation here: a
+							// DOWNLINK DCH packet follows "immediately"
+							// after a packet on FACH
+							tMax0 = currTimeStamp - fachDchPromoMin; // try
+																		// y1
+																		// instead
+																		// of
+																		// y?
+							if (tMax0 > prevTimeStamp) {
+								prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp,
+										Double.MAX_VALUE, RRCState.STATE_FACH, tMax0);
+								// promoTime = tMax - tt;
+								prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp,
+										Double.MAX_VALUE, RRCState.PROMO_FACH_DCH,
+										currTimeStamp);
+							} else { // still not working - try to
+										// insert a
+										// promotion after some previous
+										// packet
+								if (!promoteAfterFachPacket(currTimeStamp, prevTimeStamp)) {
+									// still not working - force it on
+									// FACH
+									prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp,
+											Double.MAX_VALUE, RRCState.STATE_FACH,
+											currTimeStamp);
+									state = RRCState.STATE_FACH;
+									fachQueue.init();
+								}
+							}
+						} // finish handling the error case
+
+						state = RRCState.STATE_DCH;
+						dchDemotionQueue.init(currTimeStamp, currLen, dir);
+
+					}
+
+					else {
+						prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp,
+								Double.MAX_VALUE, RRCState.STATE_FACH, currTimeStamp);
+						state = RRCState.STATE_FACH;
+					}
+
+				}
+			} else {
+				if (dir == Direction.UPLINK) {
+					prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp, fachIdleTimer,
+							RRCState.TAIL_FACH, currTimeStamp);
+					prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp,
+							Double.MAX_VALUE, RRCState.STATE_IDLE, currTimeStamp);
+					state = RRCState.PROMO_IDLE_DCH;
+					timer = 0;
+				} else { // downlink
+					double tMax0 = currTimeStamp - idleDchPromoAvg;
+					prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp, fachIdleTimer,
+							RRCState.TAIL_FACH, tMax0);
+					prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp,
+							Double.MAX_VALUE, RRCState.STATE_IDLE, tMax0);
+					// promoTime = tMax - tt;
+					prevTimeStamp = addStateRangeEx(ranges, prevTimeStamp,
+							Double.MAX_VALUE, RRCState.PROMO_IDLE_DCH, currTimeStamp);
+
+					state = RRCState.STATE_DCH;
+
+					dchDemotionQueue.init(currTimeStamp, currLen, dir);
+				}
+			}
+		}
+		}
+
+
+		return state;
+	}
+
+	/**
+	 * Handles a DOWNLINK DCH packet that follows "immediately" after a packet
+	 * on FACH by inserting a promotion after some previous packet of the FACH
+	 * run.
+	 *
+	 * @return false when no packet of the run allows the promotion.
+	 */
+	private boolean promoteAfterFachPacket(double currTimeStamp, double prevTimeStamp) {
+		for (int ii = fachRunSize - 1; ii >= 0; ii--) {
+
+			// FACH-DCH promo: from packets[ii].ts to packets[ii].ts+y
+			// DCH: from packets[ii].ts+y to tMax
+			double t0 = fachRunTimeStamps[ii];
+			if (fachRunDirections[ii] == Direction.UPLINK
+					&& currTimeStamp >= t0 + fachDchPromoMin) {
+
+				// The ranges before the run are final and begin before t0,
+				// and the first range of the trace is never replaced
+				int nn = ranges.size() - 1;
+				for (int jj = nn; jj >= 0 && jj + getFinalizedCount() > 0; jj--) {
+					if (ranges.get(jj).getBeginTime() == t0) {
+						ranges.subList(jj, nn + 1).clear();
+
+						double yy;
+						if (currTimeStamp >= t0 + fachDchPromoAvg) {
+							yy = fachDchPromoAvg;
+						} else {
+							yy = fachDchPromoMin;
+						}
+
+						ranges.add(new RrcStateRange(t0, t0 + yy, RRCState.PROMO_FACH_DCH));
+						ranges.add(new RrcStateRange(t0 + yy, prevTimeStamp, RRCState.STATE_DCH));
+						addStateRangeEx(ranges, prevTimeStamp, Double.MAX_VALUE,
+								RRCState.STATE_DCH, currTimeStamp);
+						break;
+					}
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * This method adds the an RrcStateRange to the list rrc.
+	 * 
+	 * @param t
+	 * @param duration
+	 *            The duration of the state.
+	 * @param state
+	 *            The RRC state
+	 * @param tMax
+	 */
+	private static double addStateRangeEx(List<RrcStateRange> rrc, double t, double duration,
+			RRCState state, double tMax) {
+		if ((t >= tMax) || (duration <= 0)) {
+			return t;
+		}
+		if ((t + duration) > tMax) {
+			duration = tMax - t;
+		}
+
+		double end = t + duration;
+		rrc.add(new RrcStateRange(t, end, state));
+		return end;
+	}
+
+	private static void changeStateRangeBack(List<RrcStateRange> rrc, double duration,
+			RRCState oldState, RRCState newState) {
+
+		if (duration < EPS) {
+			return;
+		}
+
+		int n = rrc.size();
+		for (int i = n - 1; i >= 0; i--) {
+			rrc.get(i).setState(newState);
+			duration -= rrc.get(i).getEndTime() - rrc.get(i).getBeginTime();
+
+			if (duration > EPS) {
+				continue;
+			}
+			return;
+		}
+
+	}
+}
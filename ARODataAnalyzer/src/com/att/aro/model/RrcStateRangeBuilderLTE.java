@@ -0,0 +1,158 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.model;
+
+import java.util.List;
+
+import com.att.aro.model.PacketInfo.Direction;
+
+/**
+ * The RRC state machine of an LTE profile. The state ranges before a packet
+ * are final as soon as the packet is appended.
+ */
+class RrcStateRangeBuilderLTE extends RrcStateRangeBuilder {
+
+	private final ProfileLTE profile;
+
+	// Track time of state changes
+	private double timer;
+
+	// Timestamp of the previous packet
+	private double last;
+
+	RrcStateRangeBuilderLTE(ProfileLTE profile, Listener listener) {
+		super(listener);
+		this.profile = profile;
+	}
+
+	@Override
+	RRCState addPacket(double curr, Direction dir, int len) {
+		if (getPacketCount() == 0) {
+
+			// First packet starts continuous reception
+			timer = promoteLTE(ranges, 0.0, curr, profile);
+		} else if (curr - last > profile.getInactivityTimer()) {
+
+			// We dropped to CR tail
+			timer = tailLTE(ranges, timer, last, curr, profile);
+
+			// If end of tail was reached, we need to promote for new packet
+			if (timer < curr) {
+				timer = promoteLTE(ranges, timer, curr, profile);
+			}
+		}
+		last = curr;
+		return RRCState.LTE_CONTINUOUS;
+	}
+
+	@Override
+	void finishTrace(double traceDuration) {
+		if (getPacketCount() > 0) {
+
+			// Do final LTE tail
+			timer = tailLTE(ranges, timer, last, traceDuration, profile);
+
+			// Check for final idle time
+			if (timer < traceDuration) {
+				ranges.add(new RrcStateRange(timer, traceDuration, RRCState.LTE_IDLE));
+			}
+		} else {
+
+			// State is idle for the entire trace
+			ranges.add(new RrcStateRange(0.0, traceDuration, RRCState.LTE_IDLE));
+		}
+	}
+
+	/**
+	 * Private utility method that creates RRC state range entries for promoting
+	 * between LTE idle and continuous reception. This method will create the
+	 * IDLE and PROMOTION state ranges. The
+	 *
+	 * @param result
+	 *            List where state ranges will be added
+	 * @param start
+	 *            Indicates time of end of last LTE long tail state or beginning
+	 *            of trace
+	 * @param end
+	 *            Indicates time of packet that is causing the promotion.
+	 * @param profile
+	 *            LTE profile being used to model state ranges
+	 * @return The time at which the promotion is complete
+	 */
+	private static double promoteLTE(List<RrcStateRange> result, double start, double end,
+			ProfileLTE profile) {
+
+		// Find the time that the promotion started before the packet was
+		// received
+		double promoStart = Math.max(start, end - profile.getPromotionTime());
+
+		// Check to see if there was some IDLE time
+		if (promoStart > start) {
+			result.add(new RrcStateRange(start, promoStart, RRCState.LTE_IDLE));
+		}
+
+		// Add the promotion state range
+		result.add(new RrcStateRange(promoStart, end, RRCState.LTE_PROMOTION));
+		return end;
+	}
+
+	/**
+	 * Utility method that creates RRC state ranges for an LTE tail sequence.
+	 *
+	 * @param result
+	 *            List where state ranges will be added
+	 * @param timer
+	 *            Time at which first packet was received for LTE continuous
+	 *            reception
+	 * @param start
+	 *            Time at which last packet was received for LTE continuous
+	 *            reception and the tail sequence begins
+	 * @param end
+	 *            Time at which tail sequence is stopped (either by new
+	 *            continuous reception state or end of trace).
+	 * @param profile
+	 *            LTE profile being used to model state ranges
+	 * @return The time at which the tail sequence was completed or stopped
+	 */
+	private static double tailLTE(List<RrcStateRange> result, double timer, double start,
+			double end, ProfileLTE profile) {
+
+		// Add the continuous reception time
+		result.add(new RrcStateRange(timer, start, RRCState.LTE_CONTINUOUS));
+
+		// Check for CR tail time
+		timer = Math.min(start + profile.getInactivityTimer(), end);
+		if (timer > start) {
+			result.add(new RrcStateRange(start, timer, RRCState.LTE_CR_TAIL));
+			start = timer;
+		}
+
+		// Check for DRX short tail time
+		timer = Math.min(start + profile.getDrxShortTime(), end);
+		if (timer > start) {
+			result.add(new RrcStateRange(start, timer, RRCState.LTE_DRX_SHORT));
+			start = timer;
+		}
+
+		// Check for DRX long tail time
+		timer = Math.min(start + profile.getDrxLongTime(), end);
+		if (timer > start) {
+			result.add(new RrcStateRange(start, timer, RRCState.LTE_DRX_LONG));
+			start = timer;
+		}
+		return timer;
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.model;
+
+import com.att.aro.model.PacketInfo.Direction;
+
+/**
+ * The RRC state machine of a WiFi profile. The state ranges before a packet
+ * are final as soon as the packet is appended.
+ */
+class RrcStateRangeBuilderWiFi extends RrcStateRangeBuilder {
+
+	private final ProfileWiFi profile;
+
+	// Track time of state changes
+	private double timer;
+
+	// Timestamp of the previous packet
+	private double last;
+
+	RrcStateRangeBuilderWiFi(ProfileWiFi profile, Listener listener) {
+		super(listener);
+		this.profile = profile;
+	}
+
+	@Override
+	RRCState addPacket(double curr, Direction dir, int len) {
+		if (getPacketCount() == 0) {
+
+			// Idle state till first packet is received
+			ranges.add(new RrcStateRange(0.0, curr, RRCState.WIFI_IDLE));
+			timer = curr;
+		} else if (curr - last > profile.getWifiTailTime()) {
+
+			// We dropped to WiFi tail
+			tailWiFi(curr);
+
+			// If end of tail was reached, we need to the idle time before the
+			// next packet arrives
+			if (timer < curr) {
+				ranges.add(new RrcStateRange(timer, curr, RRCState.WIFI_IDLE));
+				timer = curr;
+			}
+		}
+		last = curr;
+		return RRCState.WIFI_ACTIVE;
+	}
+
+	@Override
+	void finishTrace(double traceDuration) {
+		if (getPacketCount() > 0) {
+
+			// Do final WiFi tail
+			tailWiFi(traceDuration);
+
+			// Check for final idle time
+			if (timer < traceDuration) {
+				ranges.add(new RrcStateRange(timer, traceDuration, RRCState.WIFI_IDLE));
+			}
+		} else {
+
+			// State is idle for the entire trace
+			ranges.add(new RrcStateRange(0.0, traceDuration, RRCState.WIFI_IDLE));
+		}
+	}
+
+	/**
+	 * Adds the active time up to the last packet and the tail that follows
+	 * it, stopped at the specified time.
+	 */
+	private void tailWiFi(double end) {
+		ranges.add(new RrcStateRange(timer, last, RRCState.WIFI_ACTIVE));
+		timer = Math.min(last + profile.getWifiTailTime(), end);
+		if (timer > last) {
+			ranges.add(new RrcStateRange(last, timer, RRCState.WIFI_TAIL));
+		}
+	}
+}
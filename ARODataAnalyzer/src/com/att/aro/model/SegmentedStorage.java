@@ -0,0 +1,273 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.model;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A growable store for the bytes of a TCP stream, addressed with long offsets.
+ * The bytes are kept in fixed-size chunks, so that growing the store never
+ * copies more than a chunk. Only the last chunk may be smaller, so that small
+ * streams do not take a whole chunk. When the chunks held on the heap exceed
+ * the memory limit of the store, the oldest full chunks are written to a
+ * temporary file and read back when needed, so that a large stream does not
+ * have to fit on the heap.
+ * <p>
+ * The memory limit defaults to the value of the com.att.aro.storage.memoryLimit
+ * system property, in bytes, or 64 MB. The spill file is deleted by close;
+ * it is only left for the JVM to delete on exit when that delete fails, so
+ * that long-running analyzers do not accumulate exit hooks.
+ */
+public class SegmentedStorage implements Closeable {
+
+	private static final Logger LOGGER = Logger.getLogger(SegmentedStorage.class.getName());
+
+	/**
+	 * Size of the chunks in bytes.
+	 */
+	static final int CHUNK_SIZE = 64 * 1024;
+
+	private static final int INITIAL_CHUNK_SIZE = 1024;
+
+	private static final long DEFAULT_MEMORY_LIMIT = Long.getLong(
+			"com.att.aro.storage.memoryLimit", 64L * 1024 * 1024);
+
+	private final long memoryLimit;
+
+	// Chunks in stream order, null when written to the spill file
+	private final List<byte[]> chunks = new ArrayList<byte[]>();
+	private long size;
+	private int firstChunkInMemory;
+	private int chunksInMemory;
+
+	private File spillFile;
+	private RandomAccessFile spill;
+	private boolean spillFailed;
+
+	// Last chunk read back from the spill file
+	private int cachedChunk = -1;
+	private byte[] cache;
+
+	/**
+	 * Initializes an instance of the SegmentedStorage class with the default
+	 * memory limit.
+	 */
+	public SegmentedStorage() {
+		this(DEFAULT_MEMORY_LIMIT);
+	}
+
+	/**
+	 * Initializes an instance of the SegmentedStorage class.
+	 *
+	 * @param memoryLimit
+	 *            The number of bytes held on the heap before chunks are
+	 *            written to a temporary file.
+	 */
+	public SegmentedStorage(long memoryLimit) {
+		this.memoryLimit = memoryLimit;
+	}
+
+	/**
+	 * Returns the number of bytes in the store.
+	 *
+	 * @return The size in bytes.
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * Appends bytes to the store.
+	 *
+	 * @param b
+	 *            The bytes.
+	 * @param off
+	 *            The offset of the first byte in b.
+	 * @param len
+	 *            The number of bytes.
+	 */
+	public void write(byte[] b, int off, int len) {
+		if (off < 0 || len < 0 || off + len > b.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		while (len > 0) {
+			int pos = (int) (size % CHUNK_SIZE);
+			int n = Math.min(len, CHUNK_SIZE - pos);
+			byte[] chunk;
+			if (pos == 0) {
+				chunk = new byte[Math.max(INITIAL_CHUNK_SIZE, n)];
+				chunks.add(chunk);
+				++chunksInMemory;
+				spillIfNeeded();
+			} else {
+				chunk = chunks.get(chunks.size() - 1);
+				if (chunk.length < pos + n) {
+					chunk = Arrays.copyOf(chunk, Math.min(CHUNK_SIZE, Math.max(pos + n, chunk.length * 2)));
+					chunks.set(chunks.size() - 1, chunk);
+				}
+			}
+			System.arraycopy(b, off, chunk, pos, n);
+			off += n;
+			len -= n;
+			size += n;
+		}
+	}
+
+	/**
+	 * Copies bytes of the store.
+	 *
+	 * @param position
+	 *            The offset in the store of the first byte.
+	 * @param dst
+	 *            Receives the bytes.
+	 * @param off
+	 *            The offset in dst of the first byte.
+	 * @param len
+	 *            The number of bytes.
+	 * @throws IOException
+	 *             when the bytes cannot be read back from the temporary file.
+	 */
+	public void read(long position, byte[] dst, int off, int len) throws IOException {
+		if (position < 0 || len < 0 || position + len > size || off < 0 || off + len > dst.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		while (len > 0) {
+			int index = (int) (position / CHUNK_SIZE);
+			int pos = (int) (position % CHUNK_SIZE);
+			int n = Math.min(len, CHUNK_SIZE - pos);
+			System.arraycopy(getChunk(index), pos, dst, off, n);
+			position += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Returns the bytes of the store in an array.
+	 *
+	 * @return A new array.
+	 * @throws IOException
+	 *             when the bytes cannot be read back from the temporary file.
+	 * @throws IllegalStateException
+	 *             when the store is too large for an array.
+	 */
+	public byte[] toByteArray() throws IOException {
+		if (size > Integer.MAX_VALUE - 8) {
+			throw new IllegalStateException("Storage of " + size + " bytes is too large for an array");
+		}
+		byte[] result = new byte[(int) size];
+		read(0, result, 0, result.length);
+		return result;
+	}
+
+	/**
+	 * Removes all of the bytes of the store.
+	 */
+	public void reset() {
+		chunks.clear();
+		size = 0;
+		firstChunkInMemory = 0;
+		chunksInMemory = 0;
+		cachedChunk = -1;
+		cache = null;
+	}
+
+	/**
+	 * Removes all of the bytes of the store and deletes its temporary file.
+	 *
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() {
+		reset();
+		if (spill != null) {
+			try {
+				spill.close();
+			} catch (IOException e) {
+				LOGGER.log(Level.FINE, "Unable to close storage file", e);
+			}
+			spill = null;
+		}
+		if (spillFile != null) {
+			if (!spillFile.delete()) {
+				spillFile.deleteOnExit();
+			}
+			spillFile = null;
+		}
+	}
+
+	private byte[] getChunk(int index) throws IOException {
+		byte[] chunk = chunks.get(index);
+		if (chunk != null) {
+			return chunk;
+		}
+		if (index != cachedChunk) {
+			if (cache == null) {
+				cache = new byte[CHUNK_SIZE];
+			}
+			FileChannel channel = spill.getChannel();
+			ByteBuffer buffer = ByteBuffer.wrap(cache);
+			long filePosition = (long) index * CHUNK_SIZE;
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, filePosition + buffer.position()) < 0) {
+					throw new IOException("Unexpected end of storage file");
+				}
+			}
+			cachedChunk = index;
+		}
+		return cache;
+	}
+
+	/**
+	 * Writes the oldest full chunks held on the heap to the spill file until
+	 * the chunks on the heap are within the memory limit.
+	 */
+	private void spillIfNeeded() {
+		while (!spillFailed && (long) chunksInMemory * CHUNK_SIZE > memoryLimit
+				&& firstChunkInMemory < chunks.size() - 1) {
+			try {
+				if (spill == null) {
+					spillFile = File.createTempFile("aro", ".stream");
+					spill = new RandomAccessFile(spillFile, "rw");
+				}
+				FileChannel channel = spill.getChannel();
+				ByteBuffer buffer = ByteBuffer.wrap(chunks.get(firstChunkInMemory));
+				long filePosition = (long) firstChunkInMemory * CHUNK_SIZE;
+				while (buffer.hasRemaining()) {
+					channel.write(buffer, filePosition + buffer.position());
+				}
+			} catch (IOException e) {
+
+				// Keep the stream on the heap
+				LOGGER.log(Level.WARNING, "Unable to write stream storage to a temporary file", e);
+				spillFailed = true;
+				return;
+			}
+			chunks.set(firstChunkInMemory++, null);
+			--chunksInMemory;
+		}
+	}
+}
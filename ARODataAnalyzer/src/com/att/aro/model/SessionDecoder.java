@@ -0,0 +1,222 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import com.att.aro.model.TraceData.Analysis;
+import com.att.aro.pcap.AROCryptoAdapter;
+
+/**
+ * Decodes the TCP sessions of an analysis when their content is needed. When
+ * decoding is deferred, the TLS sessions are decrypted, and their requests and
+ * responses parsed, when the requests and responses of the session are first
+ * asked for, instead of when the sessions are extracted. Until then, the
+ * domain name of such a session is the remote host name or address, and the
+ * session has no downloaded files.
+ * <p>
+ * The decoded bodies of the requests and responses are cached, so that the
+ * best practices, the content viewer and the exports do not reassemble and
+ * decompress the same body again. The least recently used bodies are evicted
+ * when the cache exceeds its memory limit, which defaults to the value of the
+ * com.att.aro.contentCache.memoryLimit system property, in bytes, or 32 MB.
+ */
+class SessionDecoder {
+
+	private static final Logger LOGGER = Logger.getLogger(SessionDecoder.class.getName());
+
+	private static final long DEFAULT_MEMORY_LIMIT = Long.getLong(
+			"com.att.aro.contentCache.memoryLimit", 32L * 1024 * 1024);
+
+	/**
+	 * Identifies a request/response by identity, because requests and
+	 * responses are equal when they have the same time stamp.
+	 */
+	private static final class ContentKey {
+		private final HttpRequestResponseInfo rr;
+
+		private ContentKey(HttpRequestResponseInfo rr) {
+			this.rr = rr;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof ContentKey && ((ContentKey) obj).rr == rr;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(rr);
+		}
+	}
+
+	private final Analysis analysis;
+	private final AROCryptoAdapter crypto;
+	private final boolean deferred;
+	private final long memoryLimit;
+
+	// Sessions not decrypted yet, in the order of extraction
+	private final List<TCPSession> pending = new ArrayList<TCPSession>();
+
+	// True once the pending sessions were decrypted to find a missing key
+	private boolean swept;
+
+	// Decoded bodies in access order
+	private final Map<ContentKey, byte[]> contents = new LinkedHashMap<ContentKey, byte[]>(16,
+			0.75f, true);
+	private long contentBytes;
+
+	/**
+	 * Initializes an instance of the SessionDecoder class.
+	 *
+	 * @param analysis
+	 *            The analysis of the sessions.
+	 * @param crypto
+	 *            The crypto adapter holding the SSL keys of the trace, or null
+	 *            when the sessions are not decrypted.
+	 * @param deferred
+	 *            True to decrypt the TLS sessions when they are needed.
+	 */
+	SessionDecoder(Analysis analysis, AROCryptoAdapter crypto, boolean deferred) {
+		this.analysis = analysis;
+		this.crypto = crypto;
+		this.deferred = deferred && crypto != null;
+		this.memoryLimit = DEFAULT_MEMORY_LIMIT;
+	}
+
+	/**
+	 * Returns whether the TLS sessions are decrypted when they are needed.
+	 *
+	 * @return True when decryption is deferred.
+	 */
+	boolean isDeferred() {
+		return deferred;
+	}
+
+	/**
+	 * Defers the decryption of a TLS session until its requests and responses
+	 * are needed.
+	 *
+	 * @param session
+	 *            The session, with its TLS records matched.
+	 */
+	synchronized void defer(TCPSession session) {
+		session.setDecodePending(true);
+		pending.add(session);
+	}
+
+	/**
+	 * Decrypts a session whose decryption was deferred, and parses its
+	 * requests and responses. Nothing is done when the session is already
+	 * decoded.
+	 *
+	 * @param session
+	 *            The session.
+	 */
+	synchronized void decode(TCPSession session) {
+		if (!session.isDecodePending()) {
+			return;
+		}
+		int retVal = decrypt(session, 1);
+		if (retVal == -2) {
+
+			// As in the second pass of the extraction, the key of the session
+			// is searched again once the keys of the other sessions are used.
+			// The other sessions are decrypted only once, the sessions still
+			// missing their key afterwards keep the result of the second pass.
+			if (!swept) {
+				swept = true;
+				LOGGER.fine("Decrypting the pending sessions before retrying a session");
+				for (TCPSession other : new ArrayList<TCPSession>(pending)) {
+					if (other != session && decrypt(other, 1) != -2) {
+						finish(other);
+					}
+				}
+			}
+			decrypt(session, 2);
+		}
+		finish(session);
+	}
+
+	/**
+	 * Returns the decoded body of a request or response, from the cache when
+	 * it was already decoded.
+	 *
+	 * @param rr
+	 *            The request or response.
+	 * @return A copy of the body, or null if no content is found.
+	 * @throws ContentException
+	 *             When part of the content is not available.
+	 */
+	byte[] getContent(HttpRequestResponseInfo rr) throws ContentException, IOException {
+		ContentKey key = new ContentKey(rr);
+		byte[] content;
+		synchronized (contents) {
+			content = contents.get(key);
+		}
+		if (content == null) {
+			content = rr.decodeContent();
+			if (content == null) {
+				return null;
+			}
+			synchronized (contents) {
+				if (contents.put(key, content) == null) {
+					contentBytes += content.length;
+				}
+				Iterator<byte[]> iter = contents.values().iterator();
+				while (contentBytes > memoryLimit && iter.hasNext()) {
+					contentBytes -= iter.next().length;
+					iter.remove();
+				}
+			}
+		}
+		return content.clone();
+	}
+
+	private int decrypt(TCPSession session, int nPass) {
+		try {
+			int retVal = session.decrypt(crypto, analysis.getPackets(), nPass);
+			if (retVal == 1) {
+				session.addHttpsAnalyzedBytes(analysis);
+			}
+			return retVal;
+		} catch (IOException e) {
+			LOGGER.warning("Unable to decrypt a session: " + e.getMessage());
+			return -1;
+		}
+	}
+
+	private void finish(TCPSession session) {
+		for (Iterator<TCPSession> iter = pending.iterator(); iter.hasNext();) {
+			if (iter.next() == session) {
+				iter.remove();
+				break;
+			}
+		}
+		try {
+			session.parseRequests();
+		} catch (IOException e) {
+			LOGGER.warning("Unable to parse the requests of a session: " + e.getMessage());
+		}
+		session.setDecodePending(false);
+	}
+}
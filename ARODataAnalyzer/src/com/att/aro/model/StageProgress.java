@@ -0,0 +1,238 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.model;
+
+/**
+ * The progress of one stage of loading or analyzing a trace: the number of
+ * items processed, such as packets or sessions, out of the expected total, the
+ * number of bytes processed and the time spent. A stage may be paused and
+ * resumed, so that the time of work interleaved with other stages, such as the
+ * SSL decryption of each TCP session, is accumulated in one stage.
+ */
+public class StageProgress {
+
+	private static final long NANOS_PER_MILLI = 1000000L;
+
+	private final ProgressMonitor monitor;
+	private final String name;
+	private long total;
+	private long count;
+	private long bytes;
+	private long elapsedNanos;
+	private long resumedAt = -1;
+	private long lastEventAt;
+	private boolean started;
+	private boolean finished;
+
+	StageProgress(ProgressMonitor monitor, String name, long total) {
+		this.monitor = monitor;
+		this.name = name;
+		this.total = total;
+	}
+
+	/**
+	 * Starts, or resumes, timing the stage.
+	 */
+	public void resume() {
+		boolean first;
+		synchronized (this) {
+			if (finished || resumedAt >= 0) {
+				return;
+			}
+			resumedAt = System.nanoTime();
+			first = !started;
+			started = true;
+			lastEventAt = resumedAt;
+		}
+		if (first) {
+			monitor.fireStarted(this);
+		}
+	}
+
+	/**
+	 * Stops timing the stage until it is resumed.
+	 */
+	public synchronized void pause() {
+		if (resumedAt >= 0) {
+			elapsedNanos += System.nanoTime() - resumedAt;
+			resumedAt = -1;
+		}
+	}
+
+	/**
+	 * Records processed items. Progress events are sent to the listeners at
+	 * most a few times per second.
+	 * 
+	 * @param items
+	 *            The number of items processed.
+	 * @param byteCount
+	 *            The number of bytes processed.
+	 */
+	public void advance(long items, long byteCount) {
+		boolean notify = false;
+		synchronized (this) {
+			count += items;
+			bytes += byteCount;
+			if (resumedAt >= 0) {
+				long now = System.nanoTime();
+				if (now - lastEventAt >= monitor.getEventInterval() * NANOS_PER_MILLI) {
+					lastEventAt = now;
+					notify = true;
+				}
+			}
+		}
+		if (notify) {
+			monitor.fireProgress(this);
+		}
+	}
+
+	/**
+	 * Finishes the stage. Later calls have no effect.
+	 */
+	public void finish() {
+		synchronized (this) {
+			if (finished) {
+				return;
+			}
+			pause();
+			finished = true;
+		}
+		monitor.fireFinished(this);
+	}
+
+	/**
+	 * Sets the expected number of items when it becomes known after the
+	 * stage started.
+	 * 
+	 * @param total
+	 *            The number of items, or 0 when it is unknown.
+	 */
+	public synchronized void setTotal(long total) {
+		this.total = total;
+	}
+
+	/**
+	 * Returns the name of the stage.
+	 * 
+	 * @return The name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the expected number of items.
+	 * 
+	 * @return The number of items, or 0 when it is unknown.
+	 */
+	public synchronized long getTotal() {
+		return total;
+	}
+
+	/**
+	 * Returns the number of items processed.
+	 * 
+	 * @return The number of items.
+	 */
+	public synchronized long getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the number of bytes processed.
+	 * 
+	 * @return The number of bytes.
+	 */
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Returns whether the stage is finished.
+	 * 
+	 * @return true when finished.
+	 */
+	public synchronized boolean isFinished() {
+		return finished;
+	}
+
+	/**
+	 * Returns the time spent in the stage, up to now when it is running.
+	 * 
+	 * @return The time in milliseconds.
+	 */
+	public synchronized long getElapsedMillis() {
+		long nanos = elapsedNanos;
+		if (resumedAt >= 0) {
+			nanos += System.nanoTime() - resumedAt;
+		}
+		return nanos / NANOS_PER_MILLI;
+	}
+
+	/**
+	 * Returns the percentage of the expected items processed.
+	 * 
+	 * @return The percentage from 0 to 100, or -1 when the total is unknown.
+	 */
+	public synchronized int getPercentDone() {
+		if (finished) {
+			return 100;
+		}
+		return total > 0 ? (int) Math.min(100, count * 100 / total) : -1;
+	}
+
+	/**
+	 * Returns the number of items processed per second.
+	 * 
+	 * @return The throughput, 0 before any time is spent.
+	 */
+	public double getItemsPerSecond() {
+		long millis = getElapsedMillis();
+		return millis > 0 ? getCount() * 1000.0 / millis : 0.0;
+	}
+
+	/**
+	 * Returns the number of bytes processed per second.
+	 * 
+	 * @return The throughput, 0 before any time is spent.
+	 */
+	public double getBytesPerSecond() {
+		long millis = getElapsedMillis();
+		return millis > 0 ? getBytes() * 1000.0 / millis : 0.0;
+	}
+
+	/**
+	 * Estimates the time left from the throughput so far.
+	 * 
+	 * @return The time in milliseconds, or -1 when it cannot be estimated.
+	 */
+	public synchronized long getEstimatedRemainingMillis() {
+		if (finished) {
+			return 0;
+		}
+		if (total <= 0 || count <= 0) {
+			return -1;
+		}
+		long millis = getElapsedMillis();
+		return Math.max(0, (total - count) * millis / count);
+	}
+
+	@Override
+	public String toString() {
+		return name + ": " + getCount() + (getTotal() > 0 ? " of " + getTotal() : "") + " items, "
+				+ getBytes() + " bytes in " + getElapsedMillis() + " ms";
+	}
+}
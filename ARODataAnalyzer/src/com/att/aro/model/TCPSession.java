@@ -15,7 +15,6 @@
 */
 package com.att.aro.model;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
 import java.net.InetAddress;
@@ -182,13 +181,14 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 	private double tsTLSHandshakeEnd = -1;
 	private int protocol;	//app-layer-protocol
 	private int httpsMode = HTTPS_MODE_NONE;
-	private byte[] storageUlext = null;
-	private byte[] storageDlext = null;
-	private ByteArrayOutputStream pStorageULDCPT = new ByteArrayOutputStream(); //May be replaced by storageUl (Already defined above) after testing.
-	private ByteArrayOutputStream pStorageDLDCPT = new ByteArrayOutputStream(); //May be replaced by storageDl (Already defined above) after testing.
-	private ByteArrayOutputStream pStorageBothDCPT = new ByteArrayOutputStream();
+	private int storageUlextLength = -1;	//length of the encrypted storageUl replaced by decrypted data
+	private int storageDlextLength = -1;
+	private SegmentedStorage pStorageULDCPT = new SegmentedStorage(); //May be replaced by storageUl (Already defined above) after testing.
+	private SegmentedStorage pStorageDLDCPT = new SegmentedStorage(); //May be replaced by storageDl (Already defined above) after testing.
 	private List<STORAGE_RANGE_MAPPING> dec2encUL = new ArrayList<STORAGE_RANGE_MAPPING>();
 	private List<STORAGE_RANGE_MAPPING> dec2encDL = new ArrayList<STORAGE_RANGE_MAPPING>();
+	private transient SessionDecoder decoder;
+	private volatile boolean decodePending;
 	
 	/**
 	 * Tracks information about a reassembled session
@@ -197,7 +197,7 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 		private Long baseSeq;
 		private long seq = -1;
 		private List<PacketInfo> ooid = new ArrayList<PacketInfo>();
-		private ByteArrayOutputStream storage = new ByteArrayOutputStream();
+		private SegmentedStorage storage = new SegmentedStorage();
 		private SortedMap<Integer, PacketInfo> packetOffsets = new TreeMap<Integer, PacketInfo>();
 		private List<PacketRangeInStorage> pktRanges =  new ArrayList<PacketRangeInStorage>();
 		
@@ -297,7 +297,10 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 		lOGGER.finest("Starting loop through packets");
 		int packetIndex = 0;
 		Collection<PacketInfo> packets = (Collection<PacketInfo>)analysis.getPackets();
+		ProgressMonitor monitor = analysis.getProgressMonitor();
+		StageProgress extractionStage = monitor.startStage(ProgressMonitor.SESSION_EXTRACTION, packets.size());
 		for (PacketInfo packet : packets) {
+			extractionStage.advance(1, packet.getLen());
 
 			/**
 			 * Save DNS packets
@@ -425,6 +428,10 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 		List<TCPSession> sessions = new ArrayList<TCPSession>(allSessions.values());
 		Reassembler ul = new Reassembler();
 		Reassembler dl = new Reassembler();
+
+		// The stream of both directions is only needed to decrypt sessions
+		AROCryptoAdapter crypto = analysis.getCryptAdapter();
+		boolean keepBothRaw = crypto != null;
 		for (int sessionIndex = 0; sessionIndex < sessions.size(); ++sessionIndex) {
 			lOGGER.log(Level.FINEST, "Working with [{0}] session", sessionIndex);
 			
@@ -582,14 +589,16 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 							int effectivePayloadLen = p.getPayloadLen();
 							int dataOffset = p.getDataOffset();
 							if (data.length >= dataOffset + effectivePayloadLen) {
-								reassembledSession.packetOffsets.put(reassembledSession.storage.size(), packetInfo);
+								reassembledSession.packetOffsets.put((int) reassembledSession.storage.size(), packetInfo);
 								reassembledSession.storage.write(data, dataOffset, effectivePayloadLen);
-								int offset = reassembledSession.storage.size() - effectivePayloadLen; 
+								int offset = (int) reassembledSession.storage.size() - effectivePayloadLen; 
 								if(reassembledSession.pktRanges.size() == 0) {
 									offset = 0;
 								}
 								reassembledSession.pktRanges.add(new PacketRangeInStorage(offset, effectivePayloadLen, packetInfo.getId()));
-								pS.pStorageBothRAW.storage.write(data, dataOffset, effectivePayloadLen); 
+								if (keepBothRaw) {
+									pS.pStorageBothRAW.storage.write(data, dataOffset, effectivePayloadLen);
+								}
 								pS.updateBDC(packetInfo.getDir(), effectivePayloadLen); 
 								reassembledSession.seq += effectivePayloadLen;
 							}
@@ -626,15 +635,17 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 										int effectivePayloadLen = p1.getPayloadLen();
 										int dataOffset = p1.getDataOffset();
 										if (data.length >= dataOffset + effectivePayloadLen) {
-											reassembledSession.packetOffsets.put(reassembledSession.storage.size(),
+											reassembledSession.packetOffsets.put((int) reassembledSession.storage.size(),
 													pi1);
 											reassembledSession.storage.write(data, dataOffset, effectivePayloadLen);
-											int offset = reassembledSession.storage.size() - effectivePayloadLen; 
+											int offset = (int) reassembledSession.storage.size() - effectivePayloadLen; 
 											if(reassembledSession.pktRanges.size() == 0) {
 												offset = 0;
 											}
 											reassembledSession.pktRanges.add(new PacketRangeInStorage(offset, effectivePayloadLen, packetInfo.getId())); 
-											pS.pStorageBothRAW.storage.write(data, dataOffset, effectivePayloadLen); 
+											if (keepBothRaw) {
+												pS.pStorageBothRAW.storage.write(data, dataOffset, effectivePayloadLen);
+											}
 											pS.updateBDC(packetInfo.getDir(), effectivePayloadLen); 
 											reassembledSession.seq += effectivePayloadLen;
 										}
@@ -701,7 +712,12 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 		lOGGER.finest("All sessions where created");
 		lOGGER.finest("Starting looping through all sessions");
 		
-		if(TraceData.getCryptAdapter() == null) {
+		// SSL decryption and HTTP parsing are timed within the session extraction
+		StageProgress sslStage = null;
+		StageProgress httpStage = monitor.createStage(ProgressMonitor.HTTP_PARSING, sessions.size());
+		SessionDecoder decoder = new SessionDecoder(analysis, crypto, analysis.getTraceData()
+				.isDeferredDecoding());
+		if(crypto == null) {
 			for (TCPSession s : sessions) {
 				for (PacketInfo p : s.packets) {
 					s.bytesTransferred += p.getLen();
@@ -719,36 +735,19 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 				//
 
 				// Parse HTTP request response info
+				httpStage.resume();
 				s.requestResponseInfo = HttpRequestResponseInfo
 						.extractHttpRequestResponseInfo(s);
-				for (HttpRequestResponseInfo rr : s.requestResponseInfo) {
-					if (rr.getDirection() == HttpRequestResponseInfo.Direction.REQUEST) {
-
-						// Assume first host found is same for entire session
-						if (s.domainName == null) {
-							String host = rr.getHostName();
-							if (host != null) {
-								URI referrer = rr.getReferrer();
-								s.remoteHostName = host;
-								s.domainName = referrer != null ? referrer
-										.getHost() : host;
-							}
-						}
-					} else if (rr.getDirection() == HttpRequestResponseInfo.Direction.RESPONSE) {
-						if (rr.getContentLength() > 0) {
-							++s.fileDownloadCount;
-						}
-					}
-				}
-				if (s.domainName == null) {
-					s.domainName = s.remoteHostName != null ? s.remoteHostName : s.remoteIP.getHostAddress();
-				}
+				httpStage.advance(1, s.bytesTransferred);
+				httpStage.pause();
+				s.summarizeRequests();
 			}
 		} else {
 			List<List<BIDIR_DATA_CHUNK>> bdcRawList = new ArrayList<List<BIDIR_DATA_CHUNK>>();
 			int passIndex = 0;
 			int bNeed2ndPass = 0;
-			AROCryptoAdapter.resetSSL_keys();
+			crypto.resetSSL_keys();
+			sslStage = monitor.createStage(ProgressMonitor.SSL, sessions.size());
 			for (int nPass=1; nPass<=2; nPass++) {
 				passIndex = 0;
 				// More session parsing
@@ -766,42 +765,26 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 						session.bdcRaw = bdcRawList.get(passIndex);
 					}
 					
+					sslStage.resume();
 					session.generateRecords(PROT_RECORD_TLS);
-					if(session.mrList.size() > 0) {
-						int retVal = session.parse(analysis.getPackets(), nPass);
+
+					// A deferred session is decrypted when its requests and
+					// responses are first needed
+					boolean deferred = decoder.isDeferred() && session.mrList.size() > 0;
+					int retVal = 0;
+					if(session.mrList.size() > 0 && !deferred) {
+						retVal = session.decrypt(crypto, analysis.getPackets(), nPass);
+					}
+					sslStage.advance(nPass == 1 ? 1 : 0, session.mrList.size() > 0 && !deferred ? session.bytesTransferred : 0);
+					sslStage.pause();
+					if(session.mrList.size() > 0 && !deferred) {
 						if(nPass == 1 && retVal == -2) {
-							session.pStorageULDCPT.reset();
-							session.pStorageDLDCPT.reset();
-							session.pStorageBothDCPT.reset();
-							session.dec2encDL.clear();
-							session.dec2encUL.clear();
-							session.tsTLSHandshakeBegin = -1;
-							session.tsTLSHandshakeEnd = -1;
-							session.protocol = -1;
-							session.httpsMode = HTTPS_MODE_NONE;
-							
 							bdcRawList.add(session.bdcRaw);
 							bNeed2ndPass = 1;
 							passIndex++;
 							continue;
 						} else if (retVal == 1){
-							for (PacketInfo packet : session.packets) {
-								if (packet.getPacket() instanceof TCPPacket) {
-									TCPPacket tcp = (TCPPacket) packet.getPacket();
-									if ((tcp.isSsl()) || (tcp.getDestinationPort() == 443) || (tcp.getSourcePort() == 443)) {
-										analysis.setTotalHTTPSAnalyzedBytes(analysis.getTotalHTTPSAnalyzedBytes() + packet.getLen());
-									}
-								}
-							}
-							
-							if(session.pStorageULDCPT.size() > session.storageUl.length) {
-								session.storageUlext = session.storageUl;
-							}
-							if(session.pStorageDLDCPT.size() > session.storageDl.length) {
-								session.storageDlext = session.storageDl;
-							}
-							session.storageUl = session.pStorageULDCPT.toByteArray();
-							session.storageDl = session.pStorageDLDCPT.toByteArray();
+							session.addHttpsAnalyzedBytes(analysis);
 						}
 					} 
 	
@@ -818,30 +801,16 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 					//
 		
 					// Parse HTTP request response info
-					session.requestResponseInfo = HttpRequestResponseInfo
-							.extractHttpRequestResponseInfo(session);
-					for (HttpRequestResponseInfo rr : session.requestResponseInfo) {
-						if (rr.getDirection() == HttpRequestResponseInfo.Direction.REQUEST) {
-							// Assume first host found is same for entire session
-							if (session.domainName == null) {
-								String host = rr.getHostName();
-								if (host != null) {
-									URI referrer = rr.getReferrer();
-									session.remoteHostName = host;
-									session.domainName = referrer != null ? referrer
-											.getHost() : host;
-								}
-							}
-						} else if (rr.getDirection() == HttpRequestResponseInfo.Direction.RESPONSE) {
-							if (rr.getContentLength() > 0) {
-								++session.fileDownloadCount;
-							}
-						}
-					}
-					
-					if (session.domainName == null) {
-						session.domainName = session.remoteHostName != null ? session.remoteHostName : session.remoteIP.getHostAddress();
+					if (deferred) {
+						decoder.defer(session);
+					} else {
+						httpStage.resume();
+						session.requestResponseInfo = HttpRequestResponseInfo
+								.extractHttpRequestResponseInfo(session);
+						httpStage.advance(1, session.bytesTransferred);
+						httpStage.pause();
 					}
+					session.summarizeRequests();
 					
 					if (nPass == 1) {
 						List<BIDIR_DATA_CHUNK> dummy = new ArrayList<BIDIR_DATA_CHUNK>();
@@ -855,6 +824,14 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 				}
 			}
 		}
+		if (sslStage != null) {
+			sslStage.finish();
+		}
+		httpStage.finish();
+		for (TCPSession session : sessions) {
+			session.decoder = decoder;
+			session.releaseStorage();
+		}
 		ul.clear();
 		dl.clear();
 		lOGGER.finest("Ended looping through all sessions");
@@ -870,15 +847,16 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 			List<TCPSession> udpSessions = getUDPSessions(udpPackets,sessions);
 			sessions.addAll(udpSessions);
 		}
+		extractionStage.finish();
 
 		return sessions;
 	}
 	
-	private int parse(List<PacketInfo> packetList, int nPass) {
+	private int parse(AROCryptoAdapter crypto, List<PacketInfo> packetList, int nPass) {
 		TLSHandshake handshake = new TLSHandshake();
-		TLS_SESSION_INFO tsiServer = new TLS_SESSION_INFO(0);
-		TLS_SESSION_INFO tsiClient = new TLS_SESSION_INFO(1);
-		TLS_SESSION_INFO tsiPending = new TLS_SESSION_INFO(2);
+		TLS_SESSION_INFO tsiServer = new TLS_SESSION_INFO(0, crypto);
+		TLS_SESSION_INFO tsiClient = new TLS_SESSION_INFO(1, crypto);
+		TLS_SESSION_INFO tsiPending = new TLS_SESSION_INFO(2, crypto);
 		byte[] clientRandom = null;
 		byte[] serverRandom = null;
 		byte[] sessionID = null;
@@ -907,11 +885,12 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 			}
 			
 			PacketInfo.Direction dir = this.mrList.get(i).getDir();
-			ByteBuffer pData = ByteBuffer.wrap(getRecord(this.mrList.get(i)));
-			if(pData == null) {
+			byte[] record = getRecord(this.mrList.get(i));
+			if(record == null) {
 				lOGGER.fine(Util.RB.getString("tls.error.ssldata"));
 				return -1;
 			}
+			ByteBuffer pData = ByteBuffer.wrap(record);
 			
 			if (dir == PacketInfo.Direction.UPLINK) {
 				sessionOffsetUL += this.mrList.get(i).getBytes();
@@ -1146,7 +1125,7 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 										}
 										
 										//get the master key by directly read from the SSL log
-										retVal = SslKey.getMasterFromSSLLog(serverHelloTS, master,	clientRandom, serverRandom);
+										retVal = SslKey.getMasterFromSSLLog(crypto, serverHelloTS, master,	clientRandom, serverRandom);
 										if (retVal == 0) {
 											if(nPass == 2) {
 												lOGGER.warning(Util.RB.getString("tls.error.masterNotFound"));
@@ -1154,7 +1133,7 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 											return -2;
 										}		
 
-										retVal = SslKey.setupCiphers(master, clientRandom, serverRandom, tsiPending);
+										retVal = SslKey.setupCiphers(crypto, master, clientRandom, serverRandom, tsiPending);
 										if (retVal == -1) {
 											return -1;
 										}
@@ -1186,7 +1165,7 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 										for(int index=0; index<TLS_MASTER_SECRET_LEN; index++) {
 											masterSecret[index] = master[index]; //masterSecret.SetData(master, TLS_MASTER_SECRET_LEN);
 										}
-										retVal = SslKey.saveTLSSessionByID(thisSessionID, master);
+										retVal = SslKey.saveTLSSessionByID(crypto, thisSessionID, master);
 										state = TLS_STATE_C_KEYEXCHANGE;
 										break;
 									}
@@ -1254,7 +1233,7 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 											lOGGER.fine(Util.RB.getString("tls.error.incorrectMasterLen"));
 											return -1;
 										}
-										r = SslKey.saveTLSSessionByTicket(serverIssuedTicket, masterSecret);
+										r = SslKey.saveTLSSessionByTicket(crypto, serverIssuedTicket, masterSecret);
 										break;
 									}
 									
@@ -1293,9 +1272,9 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 									//client side update
 									tsiServer.CopyFrom(tsiPending);
 									tsiServer.setpCipherClient(-1);
-									TraceData.getCryptAdapter().setcryptociphernull(0, 1);
+									crypto.setcryptociphernull(0, 1);
 									tsiPending.setpCipherServer(-1);
-									TraceData.getCryptAdapter().setcryptociphernull(2, 0);
+									crypto.setcryptociphernull(2, 0);
 									tsiServer.InitDecompression();
 									state = TLS_STATE_C_CHANGECIPHERSPEC;
 									bClientChangeCipher = 1;
@@ -1320,10 +1299,10 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 												}
 
 												SAVED_TLS_SESSION[] pSaved = new SAVED_TLS_SESSION[1];
-												int r = SslKey.getSavedTLSSessionByID(sessionID, pSaved);												
+												int r = SslKey.getSavedTLSSessionByID(crypto, sessionID, pSaved);												
 												if (r == 0) {
 													if (bClientTicketExtension == 1) {
-														r = SslKey.getSavedTLSSessionByTicket(clientTicketExtension, pSaved);
+														r = SslKey.getSavedTLSSessionByTicket(crypto, clientTicketExtension, pSaved);
 													} else {
 														r = 0;
 													}
@@ -1337,7 +1316,7 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 												for(int index=0; index<TLS_MASTER_SECRET_LEN; index++) {
 													masterSecret[index] = pSaved[0].getMaster()[index]; //masterSecret.SetData(pSaved.master, TLS_MASTER_SECRET_LEN);
 												}
-												r = SslKey.setupCiphers(pSaved[0].getMaster(), clientRandom, serverRandom, tsiPending);
+												r = SslKey.setupCiphers(crypto, pSaved[0].getMaster(), clientRandom, serverRandom, tsiPending);
 												if (r == -1) {
 													return -1;
 												}
@@ -1352,9 +1331,9 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 									//server side update
 									tsiClient.CopyFrom(tsiPending);
 									tsiClient.setpCipherServer(-1);
-									TraceData.getCryptAdapter().setcryptociphernull(1, 0);
+									crypto.setcryptociphernull(1, 0);
 									tsiPending.setpCipherClient(-1);
-									TraceData.getCryptAdapter().setcryptociphernull(2, 1);
+									crypto.setcryptociphernull(2, 1);
 									tsiClient.InitDecompression();
 									state = TLS_STATE_S_CHANGECIPHERSPEC;
 									bServerChangeChiper = 1;
@@ -1394,11 +1373,10 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 										break;
 									}
 									
-									srm.x = this.pStorageULDCPT.size();
+									srm.x = (int) this.pStorageULDCPT.size();
 									srm.y = srm.x + recPayloadLen[0] - 1;
 	
 									this.pStorageULDCPT.write(recPayload, 0, recPayloadLen[0]); //session.pStorageUL_DCPT->PushData(recPayload);
-									this.pStorageBothDCPT.write(recPayload, 0, recPayloadLen[0]); //session.pStorageBoth_DCPT->PushData(recPayload);
 									this.dec2encUL.add(srm);									
 									break;
 	
@@ -1406,11 +1384,10 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 									if (bServerClosed == 1) {
 										break;
 									}
-									srm.x = this.pStorageDLDCPT.size();
+									srm.x = (int) this.pStorageDLDCPT.size();
 									srm.y = srm.x + recPayloadLen[0] - 1;
 									
 									this.pStorageDLDCPT.write(recPayload, 0, recPayloadLen[0]); //session.pStorageDL_DCPT->PushData(recPayload);
-									this.pStorageBothDCPT.write(recPayload, 0, recPayloadLen[0]); //session.pStorageBoth_DCPT->PushData(recPayload);
 									this.dec2encDL.add(srm);
 									break;
 									
@@ -1475,30 +1452,27 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 	}
 	
 	private byte[] getRecord(MATCHED_RECORD mr) {
-		ByteBuffer pData = null;
-		byte[] pOutput = null;
+		byte[] storage;
 		switch (mr.getDir()) {
 			case UPLINK:
-				pData = ByteBuffer.wrap(this.getStorageUl());
-				pOutput = new byte[this.getStorageUl().length - mr.getUniDirOffset()];
-				for(int i=0; i<mr.getUniDirOffset(); i++) {
-					pData.get();
-				}
-				pData.get(pOutput, 0, this.getStorageUl().length - mr.getUniDirOffset());
+				storage = this.getStorageUl();
 				break;
 				
 			case DOWNLINK:
-				pData = ByteBuffer.wrap(this.getStorageDl());
-				pOutput = new byte[this.getStorageDl().length - mr.getUniDirOffset()];
-				for(int i=0; i<mr.getUniDirOffset(); i++) {
-					pData.get();
-				}
-				pData.get(pOutput, 0, this.getStorageDl().length - mr.getUniDirOffset());
+				storage = this.getStorageDl();
 				break;
 				
 			default:
 				return null;
 		}
+
+		// Only the record is read, not the rest of the stream
+		int length = Math.min(mr.getBytes(), storage.length - mr.getUniDirOffset());
+		if (length < 0) {
+			return null;
+		}
+		byte[] pOutput = new byte[length];
+		System.arraycopy(storage, mr.getUniDirOffset(), pOutput, 0, length);
 		return pOutput;
 	}
 	
@@ -1856,8 +1830,8 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 		while (true) {
 			int availBytes =  bdc.get(i).getBytes() - j;
 			if (availBytes >= nBytes) {					
-				if (pBuffer != null) {
-					System.arraycopy(pBothStorage.storage.toByteArray(), bdc.get(i).getPrevBytes() + j, pBuffer, 0, nBytes); //http://stackoverflow.com/questions/3329163/is-there-an-equivalent-to-memcpy-in-java
+				if (pBuffer != null && !readStorage(pBothStorage, bdc.get(i).getPrevBytes() + j, pBuffer, nBytes)) {
+					return false;
 				}
 				j += nBytes;
 				if (j == bdc.get(i).getBytes()) {
@@ -1875,8 +1849,8 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 				return true;
 			} else {
 				//move to the next chunk with the same direction
-				if (pBuffer != null) {
-					System.arraycopy(pBothStorage.storage.toByteArray(), bdc.get(i).getPrevBytes() + j, pBuffer, 0, availBytes); //http://stackoverflow.com/questions/3329163/is-there-an-equivalent-to-memcpy-in-java
+				if (pBuffer != null && !readStorage(pBothStorage, bdc.get(i).getPrevBytes() + j, pBuffer, availBytes)) {
+					return false;
 				}
 				nBytes -= availBytes;	
 				while (true) {
@@ -1895,6 +1869,150 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 		}
 	}
 	
+	/**
+	 * Copies bytes of the reassembled stream to the start of a buffer.
+	 * 
+	 * @return false when the bytes cannot be read.
+	 */
+	private boolean readStorage(Reassembler pBothStorage, long position, byte pBuffer[], int nBytes) {
+		try {
+			pBothStorage.storage.read(position, pBuffer, 0, nBytes);
+			return true;
+		} catch (IOException e) {
+			lOGGER.log(Level.WARNING, "Unable to read reassembled stream", e);
+			return false;
+		}
+	}
+
+	/**
+	 * Decrypts the TLS records of the session. When the session is decrypted,
+	 * its uplink and downlink storage are replaced by the decrypted data.
+	 * 
+	 * @return 1 when the session is decrypted, -2 when its master key is not
+	 *         found in the SSL log, or 0 or -1 when it cannot be decrypted.
+	 * @throws IOException
+	 *             When the decrypted data cannot be read back.
+	 */
+	int decrypt(AROCryptoAdapter crypto, List<PacketInfo> packetList, int nPass)
+			throws IOException {
+		int retVal;
+
+		// The cipher objects of the native library are shared with the
+		// analyses of other traces
+		synchronized (AROCryptoAdapter.NATIVE_LOCK) {
+			retVal = parse(crypto, packetList, nPass);
+		}
+		if (nPass == 1 && retVal == -2) {
+			pStorageULDCPT.reset();
+			pStorageDLDCPT.reset();
+			dec2encDL.clear();
+			dec2encUL.clear();
+			tsTLSHandshakeBegin = -1;
+			tsTLSHandshakeEnd = -1;
+			protocol = -1;
+			httpsMode = HTTPS_MODE_NONE;
+		} else if (retVal == 1) {
+			if (pStorageULDCPT.size() > storageUl.length) {
+				storageUlextLength = storageUl.length;
+			}
+			if (pStorageDLDCPT.size() > storageDl.length) {
+				storageDlextLength = storageDl.length;
+			}
+			storageUl = pStorageULDCPT.toByteArray();
+			storageDl = pStorageDLDCPT.toByteArray();
+			pStorageULDCPT.close();
+			pStorageDLDCPT.close();
+		}
+		return retVal;
+	}
+
+	/**
+	 * Adds the bytes of the HTTPS packets of a decrypted session to the HTTPS
+	 * bytes analyzed by an analysis.
+	 */
+	void addHttpsAnalyzedBytes(Analysis analysis) {
+		for (PacketInfo packet : packets) {
+			if (packet.getPacket() instanceof TCPPacket) {
+				TCPPacket tcp = (TCPPacket) packet.getPacket();
+				if ((tcp.isSsl()) || (tcp.getDestinationPort() == 443) || (tcp.getSourcePort() == 443)) {
+					analysis.setTotalHTTPSAnalyzedBytes(analysis.getTotalHTTPSAnalyzedBytes() + packet.getLen());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Parses the requests and responses of a session whose decryption was
+	 * deferred, once it is decrypted.
+	 */
+	void parseRequests() throws IOException {
+		domainName = null;
+		fileDownloadCount = 0;
+		requestResponseInfo = HttpRequestResponseInfo.extractHttpRequestResponseInfo(this);
+		summarizeRequests();
+	}
+
+	/**
+	 * Sets the domain name and the number of downloaded files of the session
+	 * from its requests and responses.
+	 */
+	private void summarizeRequests() {
+		for (HttpRequestResponseInfo rr : requestResponseInfo) {
+			if (rr.getDirection() == HttpRequestResponseInfo.Direction.REQUEST) {
+
+				// Assume first host found is same for entire session
+				if (domainName == null) {
+					String host = rr.getHostName();
+					if (host != null) {
+						URI referrer = rr.getReferrer();
+						remoteHostName = host;
+						domainName = referrer != null ? referrer
+								.getHost() : host;
+					}
+				}
+			} else if (rr.getDirection() == HttpRequestResponseInfo.Direction.RESPONSE) {
+				if (rr.getContentLength() > 0) {
+					++fileDownloadCount;
+				}
+			}
+		}
+		if (domainName == null) {
+			domainName = remoteHostName != null ? remoteHostName : remoteIP.getHostAddress();
+		}
+	}
+
+	/**
+	 * Returns whether the decryption of the session is deferred and not done
+	 * yet.
+	 */
+	boolean isDecodePending() {
+		return decodePending;
+	}
+
+	void setDecodePending(boolean decodePending) {
+		this.decodePending = decodePending;
+	}
+
+	/**
+	 * Returns the decoder of the content of the session.
+	 * 
+	 * @return The decoder, or null when the session was not extracted from a
+	 *         trace analysis.
+	 */
+	SessionDecoder getDecoder() {
+		return decoder;
+	}
+
+	/**
+	 * Releases the reassembled stream and the decrypted data once the session
+	 * is parsed. The session keeps its uplink and downlink storage only.
+	 */
+	private void releaseStorage() {
+		pStorageBothRAW.storage.close();
+		pStorageULDCPT.close();
+		pStorageDLDCPT.close();
+	}
+	
 /**
  * Get the UDP sessions from different UDP packets.
  * @return Collection of TCPSession objects containing only UDP packets
@@ -2006,7 +2124,7 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 					int l = packet.getPayloadLen();
 					int dataOffset = packet.getDataOffset();
 					if (data.length >= dataOffset + l) {
-						reassembledSession.packetOffsets.put(reassembledSession.storage.size(), packetInfo);
+						reassembledSession.packetOffsets.put((int) reassembledSession.storage.size(), packetInfo);
 						reassembledSession.storage.write(data, dataOffset, l);
 					}
 				}
@@ -2268,6 +2386,9 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 	 * @return A List of HTTPRequestResponseInfo objects containing the information.
 	 */
 	public List<HttpRequestResponseInfo> getRequestResponseInfo() {
+		if (decodePending) {
+			decoder.decode(this);
+		}
 		return requestResponseInfo;
 	}
 
@@ -2295,21 +2416,23 @@ public class TCPSession implements Serializable, Comparable<TCPSession> {
 	}
 	
 	/**
-	 * Return the extended uplink storage. 
+	 * Return the length of the extended uplink storage. 
 	 * 
-	 * @return An array of bytes containing the extended uplink storage.
+	 * @return The length of the encrypted uplink storage replaced by the
+	 *         decrypted data, or -1 when it was not replaced.
 	 */
-	byte[] getStorageUlEx() {
-		return storageUlext;
+	int getStorageUlExLength() {
+		return storageUlextLength;
 	}
 
 	/**
-	 * Return the extended downlink storage. 
+	 * Return the length of the extended downlink storage. 
 	 * 
-	 * @return An array of bytes containing the extended downlink storage.
+	 * @return The length of the encrypted downlink storage replaced by the
+	 *         decrypted data, or -1 when it was not replaced.
 	 */
-	byte[] getStorageDlEx() {
-		return storageDlext;
+	int getStorageDlExLength() {
+		return storageDlextLength;
 	}
 	
 	/**
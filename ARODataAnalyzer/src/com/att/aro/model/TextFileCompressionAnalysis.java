@@ -18,13 +18,16 @@ package com.att.aro.model;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.att.aro.bp.BestPracticeCheck;
+import com.att.aro.bp.BestPracticeEngine;
+import com.att.aro.bp.ParsedContent;
 import com.att.aro.model.HttpRequestResponseInfo.Direction;
 
 /**
  * Represents Text File Compression Analysis
  *
  */
-public class TextFileCompressionAnalysis {
+public class TextFileCompressionAnalysis extends BestPracticeCheck {
 
 	private static final int KILO = 1024;
 	
@@ -36,9 +39,17 @@ public class TextFileCompressionAnalysis {
 	private int noOfCompressedFiles;
 	private int noOfUncompressedFiles;
 	private int totalUncompressedSize;
+	private HttpRequestResponseInfo lastRequestObj;
 	
 	public enum TextCompressionAnalysisResult {PASS, WARNING, FAIL};
 
+	/**
+	 * Initializes a Text File Compression Analysis to be run by a
+	 * BestPracticeEngine.
+	 */
+	public TextFileCompressionAnalysis() {
+	}
+
 	/** 
 	 * Performs Text File Compression Analysis
 	 * 
@@ -46,22 +57,26 @@ public class TextFileCompressionAnalysis {
 	 * 				- TCP session to be analyzed.
 	 */
 	public TextFileCompressionAnalysis(List<TCPSession> tcpSessions) {
+		new BestPracticeEngine(this).run(tcpSessions);
+	}
 
-		for (TCPSession tcpSession : tcpSessions) {
-			/*Taking this variable inside TCPSession FOR loop because after analyzing the content, 
-			we should always reset lastRequestObj to null for a different TCP session.*/
-			HttpRequestResponseInfo lastRequestObj = null;
-			
-			for (HttpRequestResponseInfo rr : tcpSession.getRequestResponseInfo()) {
-				// if the http payload should be compressed but is not
-				if (rr.setHttpCompression(this)) {
-					results.add(new TextFileCompressionEntry(rr, lastRequestObj));
-				}
-				
-				if (rr.getDirection() == Direction.REQUEST) {
-					lastRequestObj = rr;
-				}
-			}
+	@Override
+	public void beginSession(TCPSession session) {
+		/*Resetting lastRequestObj for every TCP session because after analyzing the content, 
+		we should always reset lastRequestObj to null for a different TCP session.*/
+		lastRequestObj = null;
+	}
+
+	@Override
+	public void visitTransaction(TCPSession session, HttpRequestResponseInfo rr,
+			ParsedContent content) {
+		// if the http payload should be compressed but is not
+		if (rr.setHttpCompression(this)) {
+			results.add(new TextFileCompressionEntry(rr, lastRequestObj));
+		}
+		
+		if (rr.getDirection() == Direction.REQUEST) {
+			lastRequestObj = rr;
 		}
 	}
 
@@ -0,0 +1,444 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Time index of a trace timeline, answering time window queries in
+ * logarithmic time instead of scanning the timeline. Point events (packets,
+ * radio or battery events) are items whose begin and end times are equal;
+ * state ranges (RRC, GPS, WiFi, screen ...) are intervals.
+ * <p>
+ * Items are sorted by begin time, and each position also records the
+ * greatest end time of the items up to it. Both arrays are sorted, so the
+ * first item that may end inside a window and the last item that begins
+ * inside it are found with binary searches. For timelines whose intervals do
+ * not overlap, which is the case of every state timeline of a trace, exactly
+ * the overlapping items lie between these two positions.
+ *
+ * @param <T>
+ *            The type of the timeline items.
+ */
+public final class TimeIndex<T> {
+
+	/**
+	 * Provides the times of the items of a timeline.
+	 *
+	 * @param <T>
+	 *            The type of the timeline items.
+	 */
+	public interface Timeline<T> {
+
+		/**
+		 * Returns the time at which the item begins.
+		 *
+		 * @param item
+		 * @return The begin time in seconds.
+		 */
+		double getBeginTime(T item);
+
+		/**
+		 * Returns the time at which the item ends, the begin time for point
+		 * events.
+		 *
+		 * @param item
+		 * @return The end time in seconds.
+		 */
+		double getEndTime(T item);
+	}
+
+	private final List<T> items;
+	private final double[] beginTimes;
+	private final double[] endTimes;
+	// greatest end time of the items up to each position
+	private final double[] maxEndTimes;
+	private final boolean disjoint;
+
+	/**
+	 * Creates the index of a timeline. The items are copied, so the index is
+	 * not affected by later changes of the list.
+	 *
+	 * @param items
+	 *            The items of the timeline, in any order.
+	 * @param timeline
+	 *            Provides the times of the items.
+	 */
+	public TimeIndex(List<? extends T> items, final Timeline<? super T> timeline) {
+		List<T> sorted = new ArrayList<T>(items);
+		boolean inOrder = true;
+		for (int i = 1; i < sorted.size() && inOrder; ++i) {
+			inOrder = timeline.getBeginTime(sorted.get(i - 1)) <= timeline.getBeginTime(sorted.get(i));
+		}
+		if (!inOrder) {
+			Collections.sort(sorted, new Comparator<T>() {
+				@Override
+				public int compare(T o1, T o2) {
+					return Double.compare(timeline.getBeginTime(o1), timeline.getBeginTime(o2));
+				}
+			});
+		}
+
+		int size = sorted.size();
+		this.items = sorted;
+		this.beginTimes = new double[size];
+		this.endTimes = new double[size];
+		this.maxEndTimes = new double[size];
+		boolean noOverlap = true;
+		for (int i = 0; i < size; ++i) {
+			T item = sorted.get(i);
+			beginTimes[i] = timeline.getBeginTime(item);
+			endTimes[i] = timeline.getEndTime(item);
+			if (i == 0) {
+				maxEndTimes[i] = endTimes[i];
+			} else {
+				noOverlap &= beginTimes[i] >= maxEndTimes[i - 1];
+				maxEndTimes[i] = Math.max(maxEndTimes[i - 1], endTimes[i]);
+			}
+		}
+		this.disjoint = noOverlap;
+	}
+
+	/**
+	 * Returns the number of items in the index.
+	 *
+	 * @return The item count.
+	 */
+	public int size() {
+		return items.size();
+	}
+
+	/**
+	 * Returns an item by position in begin time order.
+	 *
+	 * @param index
+	 *            The position.
+	 * @return The item.
+	 */
+	public T get(int index) {
+		return items.get(index);
+	}
+
+	/**
+	 * Returns true if no two intervals of the timeline overlap.
+	 *
+	 * @return true for a disjoint timeline.
+	 */
+	public boolean isDisjoint() {
+		return disjoint;
+	}
+
+	/**
+	 * Returns the items that begin no later than endTime and end no earlier
+	 * than beginTime, in begin time order. Callers clip or filter the items
+	 * at the edges of the window as they need.
+	 *
+	 * @param beginTime
+	 *            The beginning of the window.
+	 * @param endTime
+	 *            The end of the window.
+	 * @return An unmodifiable view of the overlapping items.
+	 */
+	public List<T> getOverlapping(final double beginTime, double endTime) {
+		final int first = getFirstCandidate(beginTime);
+		final int last = getLastCandidate(endTime);
+		if (first > last) {
+			return Collections.emptyList();
+		}
+		if (disjoint) {
+			return Collections.unmodifiableList(items.subList(first, last + 1));
+		}
+		List<T> result = new ArrayList<T>();
+		for (int i = first; i <= last; ++i) {
+			if (endTimes[i] >= beginTime) {
+				result.add(items.get(i));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the items with a begin time in [beginTime, endTime], in time
+	 * order. This is the query of point event timelines.
+	 *
+	 * @param beginTime
+	 *            The beginning of the window.
+	 * @param endTime
+	 *            The end of the window.
+	 * @return An unmodifiable view of the items.
+	 */
+	public List<T> getBeginningIn(double beginTime, double endTime) {
+		int first = lowerBound(beginTimes, beginTime);
+		int last = upperBound(beginTimes, endTime) - 1;
+		if (first > last) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(items.subList(first, last + 1));
+	}
+
+	/**
+	 * Returns the position of the first item that may end at or after time.
+	 */
+	int getFirstCandidate(double time) {
+		return lowerBound(maxEndTimes, time);
+	}
+
+	/**
+	 * Returns the position of the last item beginning at or before time, -1
+	 * if there is none.
+	 */
+	int getLastCandidate(double time) {
+		return upperBound(beginTimes, time) - 1;
+	}
+
+	double getBeginTime(int index) {
+		return beginTimes[index];
+	}
+
+	double getEndTime(int index) {
+		return endTimes[index];
+	}
+
+	/**
+	 * Binary search over a timeline that is already sorted, such as the
+	 * packets of a TCP session, without building an index.
+	 *
+	 * @param items
+	 *            The items, sorted by begin time.
+	 * @param timeline
+	 *            Provides the times of the items.
+	 * @param time
+	 *            The time searched.
+	 * @return The position of the last item beginning at or before time, -1
+	 *         if there is none.
+	 */
+	public static <T> int lastBeginningAtOrBefore(List<? extends T> items,
+			Timeline<? super T> timeline, double time) {
+		int low = 0;
+		int high = items.size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (timeline.getBeginTime(items.get(mid)) <= time) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low - 1;
+	}
+
+	/**
+	 * Timeline of packets.
+	 */
+	public static final Timeline<PacketInfo> PACKETS = new Timeline<PacketInfo>() {
+		@Override
+		public double getBeginTime(PacketInfo item) {
+			return item.getTimeStamp();
+		}
+
+		@Override
+		public double getEndTime(PacketInfo item) {
+			return item.getTimeStamp();
+		}
+	};
+
+	/**
+	 * Timeline of RRC state ranges.
+	 */
+	public static final Timeline<RrcStateRange> RRC_STATES = new Timeline<RrcStateRange>() {
+		@Override
+		public double getBeginTime(RrcStateRange item) {
+			return item.getBeginTime();
+		}
+
+		@Override
+		public double getEndTime(RrcStateRange item) {
+			return item.getEndTime();
+		}
+	};
+
+	/**
+	 * Timeline of GPS states.
+	 */
+	public static final Timeline<GpsInfo> GPS = new Timeline<GpsInfo>() {
+		@Override
+		public double getBeginTime(GpsInfo item) {
+			return item.getBeginTimeStamp();
+		}
+
+		@Override
+		public double getEndTime(GpsInfo item) {
+			return item.getEndTimeStamp();
+		}
+	};
+
+	/**
+	 * Timeline of Bluetooth states.
+	 */
+	public static final Timeline<BluetoothInfo> BLUETOOTH = new Timeline<BluetoothInfo>() {
+		@Override
+		public double getBeginTime(BluetoothInfo item) {
+			return item.getBeginTimeStamp();
+		}
+
+		@Override
+		public double getEndTime(BluetoothInfo item) {
+			return item.getEndTimeStamp();
+		}
+	};
+
+	/**
+	 * Timeline of WiFi states.
+	 */
+	public static final Timeline<WifiInfo> WIFI = new Timeline<WifiInfo>() {
+		@Override
+		public double getBeginTime(WifiInfo item) {
+			return item.getBeginTimeStamp();
+		}
+
+		@Override
+		public double getEndTime(WifiInfo item) {
+			return item.getEndTimeStamp();
+		}
+	};
+
+	/**
+	 * Timeline of camera states.
+	 */
+	public static final Timeline<CameraInfo> CAMERA = new Timeline<CameraInfo>() {
+		@Override
+		public double getBeginTime(CameraInfo item) {
+			return item.getBeginTimeStamp();
+		}
+
+		@Override
+		public double getEndTime(CameraInfo item) {
+			return item.getEndTimeStamp();
+		}
+	};
+
+	/**
+	 * Timeline of screen states.
+	 */
+	public static final Timeline<ScreenStateInfo> SCREEN_STATES = new Timeline<ScreenStateInfo>() {
+		@Override
+		public double getBeginTime(ScreenStateInfo item) {
+			return item.getBeginTimeStamp();
+		}
+
+		@Override
+		public double getEndTime(ScreenStateInfo item) {
+			return item.getEndTimeStamp();
+		}
+	};
+
+	/**
+	 * Timeline of network bearers.
+	 */
+	public static final Timeline<NetworkBearerTypeInfo> NETWORK_BEARERS = new Timeline<NetworkBearerTypeInfo>() {
+		@Override
+		public double getBeginTime(NetworkBearerTypeInfo item) {
+			return item.getBeginTimestamp();
+		}
+
+		@Override
+		public double getEndTime(NetworkBearerTypeInfo item) {
+			return item.getEndTimestamp();
+		}
+	};
+
+	/**
+	 * Timeline of radio events.
+	 */
+	public static final Timeline<RadioInfo> RADIO = new Timeline<RadioInfo>() {
+		@Override
+		public double getBeginTime(RadioInfo item) {
+			return item.getTimeStamp();
+		}
+
+		@Override
+		public double getEndTime(RadioInfo item) {
+			return item.getTimeStamp();
+		}
+	};
+
+	/**
+	 * Timeline of battery events.
+	 */
+	public static final Timeline<BatteryInfo> BATTERY = new Timeline<BatteryInfo>() {
+		@Override
+		public double getBeginTime(BatteryInfo item) {
+			return item.getBatteryTimeStamp();
+		}
+
+		@Override
+		public double getEndTime(BatteryInfo item) {
+			return item.getBatteryTimeStamp();
+		}
+	};
+
+	/**
+	 * Timeline of user events, from press to release.
+	 */
+	public static final Timeline<UserEvent> USER_EVENTS = new Timeline<UserEvent>() {
+		@Override
+		public double getBeginTime(UserEvent item) {
+			return item.getPressTime();
+		}
+
+		@Override
+		public double getEndTime(UserEvent item) {
+			return item.getReleaseTime();
+		}
+	};
+
+	/**
+	 * first position whose value is not less than key
+	 */
+	static int lowerBound(double[] values, double key) {
+		int low = 0;
+		int high = values.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (values[mid] < key) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * first position whose value is greater than key
+	 */
+	static int upperBound(double[] values, double key) {
+		int low = 0;
+		int high = values.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (values[mid] <= key) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.model;
+
+import java.util.List;
+
+/**
+ * Answers time range analyses of an analysis in logarithmic time. Packet
+ * bytes and the energy and active time of the RRC state ranges are kept as
+ * prefix sums, so a window only needs the binary searches of its bounds and
+ * the clipping of the state ranges at its edges.
+ */
+final class TimeRangeAnalyzer {
+
+	private final Profile profile;
+	private final RrcPacketStream stream;
+
+	// packet timestamps, and cumulative bytes before each packet
+	private final double[] packetTimes;
+	private final long[] bytes;
+	private final long[] payloadBytes;
+
+	private final TimeIndex<RrcStateRange> rrcIndex;
+	// cumulative energy and active time before each state range
+	private final double[] energy;
+	private final double[] activeTime;
+
+	/**
+	 * Builds the prefix sums of an analysis.
+	 *
+	 * @param packets
+	 *            The packets of the analysis, sorted by timestamp.
+	 * @param rrcRanges
+	 *            The RRC state ranges of the analysis.
+	 * @param profile
+	 *            The profile of the analysis.
+	 * @param traceDuration
+	 *            The duration of the trace.
+	 */
+	TimeRangeAnalyzer(List<PacketInfo> packets, List<RrcStateRange> rrcRanges, Profile profile,
+			double traceDuration) {
+		this.profile = profile;
+		this.stream = RrcPacketStream.create(packets, traceDuration);
+
+		int n = packets.size();
+		this.packetTimes = new double[n];
+		this.bytes = new long[n + 1];
+		this.payloadBytes = new long[n + 1];
+		for (int i = 0; i < n; i++) {
+			PacketInfo p = packets.get(i);
+			packetTimes[i] = p.getTimeStamp();
+			bytes[i + 1] = bytes[i] + p.getLen();
+			payloadBytes[i + 1] = payloadBytes[i] + p.getPayloadLen();
+		}
+
+		this.rrcIndex = new TimeIndex<RrcStateRange>(rrcRanges, TimeIndex.RRC_STATES);
+		int m = rrcIndex.size();
+		this.energy = new double[m + 1];
+		this.activeTime = new double[m + 1];
+		for (int i = 0; i < m; i++) {
+			RrcStateRange rrc = rrcIndex.get(i);
+			energy[i + 1] = energy[i] + energy(rrc, rrc.getBeginTime(), rrc.getEndTime());
+			activeTime[i + 1] = activeTime[i] + activeTime(rrc, rrc.getBeginTime(), rrc.getEndTime());
+		}
+	}
+
+	/**
+	 * Performs the analysis of a time range. Packets are counted when their
+	 * timestamp is within the range, bounds included, and the state ranges
+	 * overlapping the range are clipped to it.
+	 *
+	 * @param analyzeBeginTime
+	 * @param analyzeEndTime
+	 * @return The analysis of the time range.
+	 */
+	TimeRangeAnalysis analyze(double analyzeBeginTime, double analyzeEndTime) {
+		int firstPacket = TimeIndex.lowerBound(packetTimes, analyzeBeginTime);
+		int endPacket = Math.max(firstPacket, TimeIndex.upperBound(packetTimes, analyzeEndTime));
+		long totalBytes = bytes[endPacket] - bytes[firstPacket];
+		long payloadLength = payloadBytes[endPacket] - payloadBytes[firstPacket];
+
+		double rangeEnergy = 0.0;
+		double rangeActiveTime = 0.0;
+		int first = rrcIndex.getFirstCandidate(analyzeBeginTime);
+		int last = rrcIndex.getLastCandidate(analyzeEndTime);
+		if (first <= last) {
+			if (rrcIndex.isDisjoint()) {
+
+				// Only the state ranges at the edges can cross the bounds
+				rangeEnergy = energy[last + 1] - energy[first];
+				rangeActiveTime = activeTime[last + 1] - activeTime[first];
+				double[] edge = clipEdge(first, analyzeBeginTime, analyzeEndTime);
+				rangeEnergy += edge[0];
+				rangeActiveTime += edge[1];
+				if (last != first) {
+					edge = clipEdge(last, analyzeBeginTime, analyzeEndTime);
+					rangeEnergy += edge[0];
+					rangeActiveTime += edge[1];
+				}
+			} else {
+				for (int i = first; i <= last; i++) {
+					if (rrcIndex.getEndTime(i) < analyzeBeginTime) {
+						continue;
+					}
+					RrcStateRange rrc = rrcIndex.get(i);
+					double begin = Math.max(rrc.getBeginTime(), analyzeBeginTime);
+					double end = Math.min(rrc.getEndTime(), analyzeEndTime);
+					rangeEnergy += energy(rrc, begin, end);
+					rangeActiveTime += activeTime(rrc, begin, end);
+				}
+			}
+		}
+
+		return new TimeRangeAnalysis(analyzeBeginTime, analyzeEndTime, totalBytes,
+				payloadLength, rangeActiveTime, rangeEnergy);
+	}
+
+	/**
+	 * Returns the corrections of energy and active time when the state range
+	 * at position i is clipped to the time range.
+	 */
+	private double[] clipEdge(int i, double analyzeBeginTime, double analyzeEndTime) {
+		double begin = Math.max(rrcIndex.getBeginTime(i), analyzeBeginTime);
+		double end = Math.min(rrcIndex.getEndTime(i), analyzeEndTime);
+		if (begin == rrcIndex.getBeginTime(i) && end == rrcIndex.getEndTime(i)) {
+			return new double[2];
+		}
+		RrcStateRange rrc = rrcIndex.get(i);
+		return new double[] { energy(rrc, begin, end) - (energy[i + 1] - energy[i]),
+				activeTime(rrc, begin, end) - (activeTime[i + 1] - activeTime[i]) };
+	}
+
+	private double energy(RrcStateRange rrc, double begin, double end) {
+		return RrcSimulator.energy(stream, profile, begin, end, rrc.getState());
+	}
+
+	private double activeTime(RrcStateRange rrc, double begin, double end) {
+		RRCState s = rrc.getState();
+		if ((profile.getProfileType() == ProfileType.T3G && (s == RRCState.STATE_DCH || s == RRCState.TAIL_DCH))
+				|| (profile.getProfileType() == ProfileType.LTE && (s == RRCState.LTE_CONTINUOUS || s == RRCState.LTE_CR_TAIL))
+				|| (profile.getProfileType() == ProfileType.WIFI && (s == RRCState.WIFI_ACTIVE || s == RRCState.WIFI_TAIL))) {
+			return end - begin;
+		}
+		return 0.0;
+	}
+}
@@ -14,13 +14,17 @@
  * limitations under the License.
  */
 package com.att.aro.model;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.net.Inet4Address;
 import java.net.InetAddress;
@@ -37,6 +41,7 @@ import java.util.Date;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
@@ -46,9 +51,10 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
 
-import javax.swing.JOptionPane;
 
+import com.att.aro.bp.BestPracticeEngine;
 import com.att.aro.bp.asynccheck.AsyncCheckAnalysis;
 import com.att.aro.bp.displaynoneincss.DisplayNoneInCSSAnalysis;
 import com.att.aro.bp.emptyurl.EmptyUrlAnalysis;
@@ -58,7 +64,6 @@ import com.att.aro.bp.imageSize.ImageSizeAnalysis;
 import com.att.aro.bp.minification.MinificationAnalysis;
 import com.att.aro.bp.scripts.ScriptsAnalysis;
 import com.att.aro.bp.spriteimage.SpriteImageAnalysis;
-import com.att.aro.commonui.MessageDialogFactory;
 import com.att.aro.main.ResourceBundleManager;
 import com.att.aro.model.AlarmInfo.AlarmType;
 import com.att.aro.model.BluetoothInfo.BluetoothState;
@@ -72,9 +77,11 @@ import com.att.aro.model.WifiInfo.WifiState;
 import com.att.aro.model.cpu.CpuActivity;
 import com.att.aro.model.cpu.CpuActivityList;
 import com.att.aro.pcap.AROCryptoAdapter;
+import com.att.aro.pcap.CaptureFormat;
 import com.att.aro.pcap.IPPacket;
 import com.att.aro.pcap.NetmonAdapter;
 import com.att.aro.pcap.PCapAdapter;
+import com.att.aro.pcap.PCapFileReader;
 import com.att.aro.pcap.Packet;
 import com.att.aro.pcap.PacketListener;
 import com.att.aro.pcap.TCPPacket;
@@ -128,6 +135,8 @@ public class TraceData implements Serializable {
 		private double avgKbps = 0.0;
 		private List<TCPSession> tcpSessions;
 		private RRCStateMachine rrcStateMachine;
+		// prefix sums for time range analyses, built on the first one
+		private transient TimeRangeAnalyzer timeRangeAnalyzer;
 		private CacheAnalysis cacheAnalysis;
 		private TextFileCompressionAnalysis textFileCompressionAnalysis;
 		private AsyncCheckAnalysis asyncCheckAnalysis;
@@ -148,6 +157,10 @@ public class TraceData implements Serializable {
 		
 		// List of Burst Collection Info
 		private BurstCollectionAnalysis bcAnalysis;
+		private boolean contentAnalyzed;
+		// True while the content is analyzed, the analyses built last read
+		// the results of the ones built before them
+		private boolean contentAnalyzing;
 		
 		// CPU activity info
 		private CpuActivityList cpuActivityList;
@@ -280,62 +293,14 @@ public class TraceData implements Serializable {
 		 * @return TimeRangeAnalysis The object containing TimeRangeAnalysis
 		 *         data.
 		 */
-		public TimeRangeAnalysis performTimeRangeAnalysis(double analyzeBeginTime,
+		public synchronized TimeRangeAnalysis performTimeRangeAnalysis(double analyzeBeginTime,
 				double analyzeEndTime) {
-			List<RrcStateRange> rrcCollection = this.rrcStateMachine.getRRcStateRanges();
-			long payloadLength = 0;
-			long totalBytes = 0;
-			int n = packets.size();
-
-			for (int i = 0; i < n; i++) {
-				PacketInfo p = packets.get(i);
-				if (p.getTimeStamp() >= analyzeBeginTime && p.getTimeStamp() <= analyzeEndTime) {
-					payloadLength += p.getPayloadLen();
-					totalBytes += p.getLen();
-				}
+			if (timeRangeAnalyzer == null) {
+				timeRangeAnalyzer = new TimeRangeAnalyzer(packets,
+						this.rrcStateMachine.getRRcStateRanges(), profile, getTraceData()
+								.getTraceDuration());
 			}
-
-			double energy = 0.0f;
-			double activeTime = 0.0f;
-			int m = rrcCollection.size();
-
-			for (int i = 0; i < m; i++) {
-				double beginTime;
-				double endTime;
-
-				RrcStateRange rrc = rrcCollection.get(i);
-				if (rrc.getEndTime() < analyzeBeginTime) {
-					continue;
-				}
-				if (rrc.getBeginTime() > analyzeEndTime) {
-					continue;
-				}
-
-				if (rrc.getBeginTime() >= analyzeBeginTime) {
-					beginTime = rrc.getBeginTime();
-				} else {
-					beginTime = analyzeBeginTime;
-				}
-
-				if (rrc.getEndTime() <= analyzeEndTime) {
-					endTime = rrc.getEndTime();
-				} else {
-					endTime = analyzeEndTime;
-				}
-
-				RRCState s = rrc.getState();
-
-				energy += profile.energy(beginTime, endTime, s, packets);
-				if ((profile.getProfileType() == ProfileType.T3G && (s == RRCState.STATE_DCH || s == RRCState.TAIL_DCH))
-						|| (profile.getProfileType() == ProfileType.LTE && (s == RRCState.LTE_CONTINUOUS || s == RRCState.LTE_CR_TAIL))
-						|| (profile.getProfileType() == ProfileType.WIFI && (s == RRCState.WIFI_ACTIVE || s == RRCState.WIFI_TAIL))) {
-
-					activeTime += endTime - beginTime;
-				}
-			}
-
-			return new TimeRangeAnalysis(analyzeBeginTime, analyzeEndTime, totalBytes,
-					payloadLength, activeTime, energy);
+			return timeRangeAnalyzer.analyze(analyzeBeginTime, analyzeEndTime);
 		}
 
 		/**
@@ -739,6 +704,24 @@ public class TraceData implements Serializable {
 		public void setPackets(List<PacketInfo> packets) { //greg Story
 			this.packets = packets;
 		}
+
+		/**
+		 * Returns the adapter decrypting the SSL sessions of the trace.
+		 * 
+		 * @return The CryptAdapter, or null when the trace has no SSL keys.
+		 */
+		public AROCryptoAdapter getCryptAdapter() {
+			return TraceData.this.getCryptAdapter();
+		}
+
+		/**
+		 * Returns the monitor of the progress of the analysis.
+		 * 
+		 * @return The progress monitor of the trace.
+		 */
+		public ProgressMonitor getProgressMonitor() {
+			return TraceData.this.getProgressMonitor();
+		}
 		
 		public void extractTCPSessions(){
 			try{
@@ -793,6 +776,7 @@ public class TraceData implements Serializable {
 		 * @return The cacheAnalysis
 		 */
 		public CacheAnalysis getCacheAnalysis() {
+			ensureContentAnalyzed();
 			return cacheAnalysis;
 		}
 		
@@ -801,6 +785,7 @@ public class TraceData implements Serializable {
 		 * @return Text file compression analysis
 		 */
 		public TextFileCompressionAnalysis getTextFileCompressionAnalysis() {
+			ensureContentAnalyzed();
 			return textFileCompressionAnalysis;
 		}
 	
@@ -809,6 +794,7 @@ public class TraceData implements Serializable {
 		 * @return async check analysis
 		 */
 		public AsyncCheckAnalysis getAsyncCheckAnalysis() {
+			ensureContentAnalyzed();
 			return asyncCheckAnalysis;
 		}
 	
@@ -816,6 +802,7 @@ public class TraceData implements Serializable {
 		 * Returns results of file order analysis
 		 * */
 		public FileOrderAnalysis getFileOrderAnalysis(){
+			ensureContentAnalyzed();
 			return fileOrderAnalysis;
 		}
 		/**
@@ -823,6 +810,7 @@ public class TraceData implements Serializable {
 		 * @return Image Size analysis
 		 */
 		public ImageSizeAnalysis getImageSizeAnalysis() {
+			ensureContentAnalyzed();
 			return imageSizeAnalysis;
 		}
 
@@ -831,6 +819,7 @@ public class TraceData implements Serializable {
 		 * @return minification analysis
 		 */
 		public MinificationAnalysis getMinificationAnalysis() {
+			ensureContentAnalyzed();
 			return minificationAnalysis;
 		}
 		
@@ -839,6 +828,7 @@ public class TraceData implements Serializable {
 		 * @return empty HTML analysis
 		 */
 		public EmptyUrlAnalysis getEmptyUrlAnalysis() {
+			ensureContentAnalyzed();
 			return emptyUrlAnalysis;
 		}
 
@@ -847,6 +837,7 @@ public class TraceData implements Serializable {
 		 * @return flash analysis
 		 */
 		public FlashAnalysis getFlashAnalysis() {
+			ensureContentAnalyzed();
 			return flashAnalysis;
 		}
 		
@@ -855,6 +846,7 @@ public class TraceData implements Serializable {
 		 * @return result of 3rd party scripts analysis
 		 */
 		public ScriptsAnalysis getScriptsAnalysis() {
+			ensureContentAnalyzed();
 			return scriptsAnalysis;
 		}
 
@@ -863,6 +855,7 @@ public class TraceData implements Serializable {
 		 * @return Sprite Image analysis
 		 */
 		public SpriteImageAnalysis getSpriteImageAnalysis() {
+			ensureContentAnalyzed();
 			return spriteImageAnalysis;
 		}
 
@@ -878,6 +871,7 @@ public class TraceData implements Serializable {
 		 * @return The cacheAnalysis
 		 */
 		public CacheInfoParser getCacheInfoParser() {
+			ensureContentAnalyzed();
 			return cacheInfoParser;
 		}
 		
@@ -885,6 +879,7 @@ public class TraceData implements Serializable {
 		 * @return The displayNoneInCSSAnalysis
 		 */
 		public DisplayNoneInCSSAnalysis getDisplayNoneInCSSAnalysis() {
+			ensureContentAnalyzed();
 			return displayNoneInCSSAnalysis;
 		}
 
@@ -892,6 +887,7 @@ public class TraceData implements Serializable {
 		 * @return The bestPractice
 		 */
 		public BestPractices getBestPractice() {
+			ensureContentAnalyzed();
 			return bestPractice;
 		}
 
@@ -899,6 +895,7 @@ public class TraceData implements Serializable {
 		 * @return The ApplicationScore
 		 */
 		public ApplicationScore getApplicationScore() {
+			ensureContentAnalyzed();
 			return applicationScore;
 		}
 
@@ -915,6 +912,7 @@ public class TraceData implements Serializable {
 		 * @return The list of burst infos.
 		 */
 		public List<Burst> getBurstInfos() {
+			ensureContentAnalyzed();
 			return bcAnalysis.getBurstCollection();
 		}
 
@@ -922,6 +920,7 @@ public class TraceData implements Serializable {
 		 * @return The bcAnalysis
 		 */
 		public BurstCollectionAnalysis getBcAnalysis() {
+			ensureContentAnalyzed();
 			return bcAnalysis;
 		}
 
@@ -1090,69 +1089,98 @@ public class TraceData implements Serializable {
 			}
 			
 			
-			// Do text file compression analysis
-			logger.fine("Performing text file compression analysis");
-			this.textFileCompressionAnalysis = new TextFileCompressionAnalysis(this.tcpSessions);
-			
-			// Do async check analysis 
-			logger.fine("Performing async loading of scripts analysis");
-			this.asyncCheckAnalysis = new AsyncCheckAnalysis(this.tcpSessions);
-		
-			//Do File Order Analysis
-			logger.fine("Performing file order analysis");
-			this.fileOrderAnalysis = new FileOrderAnalysis(this.tcpSessions);
-			
-			// Do image size analysis
-			logger.fine("Performing image size analysis");
-			this.imageSizeAnalysis = new ImageSizeAnalysis(this.tcpSessions, getDeviceScreenSizeX(), getDeviceScreenSizeY());
+			// Simulate RRC state machine
+			ProgressMonitor monitor = getProgressMonitor();
+			logger.fine("Initializing RRCStateMachine");
+			StageProgress stage = monitor.startStage(ProgressMonitor.RRC, packets.size());
+			this.rrcStateMachine = new RRCStateMachine(this);
+			this.timeRangeAnalyzer = null;
+			stage.advance(packets.size(), 0);
+			stage.finish();
+
+			// Create energy model
+			logger.fine("Initializing EnergyModel");
+			stage = monitor.startStage(ProgressMonitor.ENERGY, 0);
+			this.energyModel = new EnergyModel(this);
+			stage.finish();
+
+			// The analyses of the HTTP content need the requests and responses
+			// of the TLS sessions, so they are done when first asked for when
+			// the decryption of the sessions is deferred
+			this.contentAnalyzed = false;
+			if (!getTraceData().isDeferredDecoding()) {
+				analyzeContent();
+			}
 
-			// Do minification analysis
-			logger.fine("Performing minification analysis");
-			this.minificationAnalysis = new MinificationAnalysis(this.tcpSessions);
+			logger.fine("runAnalysis is complted");
 			
-			// Do empty URL analysis
-			logger.fine("Performing empty URL analysis");
-			this.emptyUrlAnalysis = new EmptyUrlAnalysis(this.tcpSessions);
+		}
 
-			// Do 3rd party scripts analysis
-			logger.fine("Performing 3rd party scripts analysis");
-			this.scriptsAnalysis = new ScriptsAnalysis(this.tcpSessions);
+		/**
+		 * Performs the analyses of the HTTP content of the sessions, the burst
+		 * analysis, the best practices and the score, unless already done.
+		 * They are done again on the next call when they fail.
+		 */
+		private synchronized void analyzeContent() throws IOException {
+			if (contentAnalyzed || contentAnalyzing) {
+				return;
+			}
+			contentAnalyzing = true;
+			try {
+				doAnalyzeContent();
+				contentAnalyzed = true;
+			} finally {
+				contentAnalyzing = false;
+			}
+		}
+
+		private void doAnalyzeContent() throws IOException {
+
+			// Do the best practice analyses of the HTTP content in a single pass:
+			// text file compression, async loading of scripts, file order,
+			// image size, minification, empty URL, 3rd party scripts, flash,
+			// Sprite image and Display:none in CSS
+			logger.fine("Performing HTTP content best practice analyses");
+			this.textFileCompressionAnalysis = new TextFileCompressionAnalysis();
+			this.asyncCheckAnalysis = new AsyncCheckAnalysis();
+			this.fileOrderAnalysis = new FileOrderAnalysis();
+			this.imageSizeAnalysis = new ImageSizeAnalysis(getDeviceScreenSizeX(), getDeviceScreenSizeY());
+			this.minificationAnalysis = new MinificationAnalysis();
+			this.emptyUrlAnalysis = new EmptyUrlAnalysis();
+			this.scriptsAnalysis = new ScriptsAnalysis();
+			this.flashAnalysis = new FlashAnalysis();
+			this.spriteImageAnalysis = new SpriteImageAnalysis();
+			this.displayNoneInCSSAnalysis = new DisplayNoneInCSSAnalysis();
+			ProgressMonitor monitor = getProgressMonitor();
+			new BestPracticeEngine(textFileCompressionAnalysis, asyncCheckAnalysis,
+					fileOrderAnalysis, imageSizeAnalysis, minificationAnalysis,
+					emptyUrlAnalysis, scriptsAnalysis, flashAnalysis,
+					spriteImageAnalysis, displayNoneInCSSAnalysis).run(this.tcpSessions, monitor);
 
-			// Do flash analysis
-			logger.fine("Performing flash analysis");
-			this.flashAnalysis = new FlashAnalysis(this.tcpSessions);
-			
 //			// Do Small request analysis
 //			logger.fine("Performing Small request analysis");
 //			this.smallRequestAnalysis = new SmallRequestAnalysis(this.tcpSessions);
-			
-			// Do Sprite image analysis
-			logger.fine("Performing Sprite image analysis");
-			this.spriteImageAnalysis = new SpriteImageAnalysis(this.tcpSessions);
 
-			// Do cache analysis
+			// Do cache analysis, which needs the requests and responses of
+			// all the sessions sorted by time
 			logger.fine("Performing cache analysis");
+			StageProgress stage = monitor.startStage(ProgressMonitor.CACHE,
+					this.tcpSessions != null ? this.tcpSessions.size() : 0);
 			this.cacheAnalysis = new CacheAnalysis(this.tcpSessions);
-			
-			// Do DisplayNoneInCSS analysis
-			logger.fine("Performing Display:none in CSS analysis");
-			this.displayNoneInCSSAnalysis = new DisplayNoneInCSSAnalysis(this.tcpSessions);
-
-			// Simulate RRC state machine
-			logger.fine("Initializing RRCStateMachine");
-			this.rrcStateMachine = new RRCStateMachine(this);
+			stage.advance(stage.getTotal(), 0);
+			stage.finish();
 
-			// Create energy model
-			logger.fine("Initializing EnergyModel");
-			this.energyModel = new EnergyModel(this);
-			
 			// Burst Analysis
 			logger.fine("Initializing BurstCollectionAnalysis");
+			stage = monitor.startStage(ProgressMonitor.BURST, packets.size());
 			this.bcAnalysis = new BurstCollectionAnalysis(this);
+			stage.advance(packets.size(), 0);
+			stage.finish();
 
 			// Creates BestPractices object
 			logger.fine("Initializing BestPractices");
-			this.bestPractice = new BestPractices(this, datadump);
+			stage = monitor.startStage(ProgressMonitor.SCORE, 0);
+			this.bestPractice = new BestPractices(this);
 
 			// Calculate score
 			logger.fine("Initializing ApplicationScore");
@@ -1161,9 +1189,23 @@ public class TraceData implements Serializable {
 			// Do cache analysis
 			logger.fine("Initializing CacheInfoParser");
 			this.cacheInfoParser = new CacheInfoParser(cacheAnalysis);
+			stage.finish();
+		}
 
-			logger.fine("runAnalysis is complted");
-			
+		/**
+		 * Performs the deferred analyses of the HTTP content when a result of
+		 * them is first asked for.
+		 *
+		 * @throws IllegalStateException
+		 *             when the content cannot be analyzed, rather than
+		 *             leaving the results null.
+		 */
+		private void ensureContentAnalyzed() {
+			try {
+				analyzeContent();
+			} catch (IOException e) {
+				throw new IllegalStateException("Unable to analyze the HTTP content", e);
+			}
 		}
 
 		/**
@@ -1172,7 +1214,8 @@ public class TraceData implements Serializable {
 		private List<UserEvent> getUserEventsForTheTimeRange(List<UserEvent> userEvents,
 				double beginTime, double endTime) {
 			List<UserEvent> filteredUserEvents = new ArrayList<UserEvent>();
-			for (UserEvent userEvent : userEvents) {
+			for (UserEvent userEvent : getTimeIndex(userEvents, TimeIndex.USER_EVENTS).getOverlapping(
+					beginTime, endTime)) {
 				if (userEvent.getPressTime() >= beginTime && userEvent.getReleaseTime() <= endTime) {
 
 					filteredUserEvents.add(userEvent);
@@ -1188,7 +1231,8 @@ public class TraceData implements Serializable {
 				List<ScreenStateInfo> screenStateInfos, double beginTime, double endTime) {
 
 			List<ScreenStateInfo> filteredScreenStateInfos = new ArrayList<ScreenStateInfo>();
-			for (ScreenStateInfo screenStateInfo : screenStateInfos) {
+			for (ScreenStateInfo screenStateInfo : getTimeIndex(screenStateInfos,
+					TimeIndex.SCREEN_STATES).getOverlapping(beginTime, endTime)) {
 
 				if (screenStateInfo.getBeginTimeStamp() >= beginTime
 						&& screenStateInfo.getEndTimeStamp() <= endTime) {
@@ -1225,7 +1269,8 @@ public class TraceData implements Serializable {
 
 			List<CameraInfo> filteredCameraInfos = new ArrayList<CameraInfo>();
 			CameraInfo filteredCameraInfo = null;
-			for (CameraInfo cameraInfo : cameraInfos) {
+			for (CameraInfo cameraInfo : getTimeIndex(cameraInfos, TimeIndex.CAMERA).getOverlapping(
+					beginTime, endTime)) {
 
 				if (cameraInfo.getBeginTimeStamp() >= beginTime
 						&& cameraInfo.getEndTimeStamp() <= endTime) {
@@ -1277,7 +1322,8 @@ public class TraceData implements Serializable {
 				double beginTime, double endTime) {
 
 			List<RadioInfo> filteredRadioInfos = new ArrayList<RadioInfo>();
-			for (RadioInfo radioInfo : radioInfos) {
+			for (RadioInfo radioInfo : getTimeIndex(radioInfos, TimeIndex.RADIO).getBeginningIn(
+					beginTime, endTime)) {
 
 				if (radioInfo.getTimeStamp() >= beginTime && radioInfo.getTimeStamp() <= endTime) {
 					filteredRadioInfos.add(radioInfo);
@@ -1293,7 +1339,8 @@ public class TraceData implements Serializable {
 				double beginTime, double endTime) {
 
 			List<BatteryInfo> filteredBatteryInfos = new ArrayList<BatteryInfo>();
-			for (BatteryInfo batteryInfo : batteryInfos) {
+			for (BatteryInfo batteryInfo : getTimeIndex(batteryInfos, TimeIndex.BATTERY)
+					.getBeginningIn(beginTime, endTime)) {
 
 				if (batteryInfo.getBatteryTimeStamp() >= beginTime
 						&& batteryInfo.getBatteryTimeStamp() <= endTime) {
@@ -1310,7 +1357,8 @@ public class TraceData implements Serializable {
 				double beginTime, double endTime) {
 
 			List<WifiInfo> filteredWifiInfos = new ArrayList<WifiInfo>();
-			for (WifiInfo wifiInfo : wifiInfos) {
+			for (WifiInfo wifiInfo : getTimeIndex(wifiInfos, TimeIndex.WIFI).getOverlapping(
+					beginTime, endTime)) {
 
 				if (wifiInfo.getBeginTimeStamp() >= beginTime
 						&& wifiInfo.getEndTimeStamp() <= endTime) {
@@ -1348,7 +1396,8 @@ public class TraceData implements Serializable {
 
 			BluetoothInfo filteredBluetoothInfo = null;
 
-			for (BluetoothInfo bluetoothInfo : bluetoothInfos) {
+			for (BluetoothInfo bluetoothInfo : getTimeIndex(bluetoothInfos, TimeIndex.BLUETOOTH)
+					.getOverlapping(beginTime, endTime)) {
 
 				if (bluetoothInfo.getBeginTimeStamp() >= beginTime
 						&& bluetoothInfo.getEndTimeStamp() <= endTime) {
@@ -1403,7 +1452,8 @@ public class TraceData implements Serializable {
 
 			GpsInfo filteredGpsInfo = null;
 
-			for (GpsInfo gpsInfo : gpsInfos) {
+			for (GpsInfo gpsInfo : getTimeIndex(gpsInfos, TimeIndex.GPS).getOverlapping(beginTime,
+					endTime)) {
 
 				if (gpsInfo.getBeginTimeStamp() >= beginTime
 						&& gpsInfo.getEndTimeStamp() <= endTime) {
@@ -1457,7 +1507,8 @@ public class TraceData implements Serializable {
 				List<NetworkBearerTypeInfo> bearerInfos, double beginTime, double endTime) {
 
 			List<NetworkBearerTypeInfo> filteredBearerInfos = new ArrayList<NetworkBearerTypeInfo>();
-			for (NetworkBearerTypeInfo bearerInfo : bearerInfos) {
+			for (NetworkBearerTypeInfo bearerInfo : getTimeIndex(bearerInfos,
+					TimeIndex.NETWORK_BEARERS).getOverlapping(beginTime, endTime)) {
 
 				if (bearerInfo.getBeginTimestamp() >= beginTime
 						&& bearerInfo.getEndTimestamp() <= endTime) {
@@ -1710,6 +1761,17 @@ public class TraceData implements Serializable {
 	public static final String TRAFFIC = "traffic";
 	public static final String CAP_EXT = ".cap";
 
+	/**
+	 * The name of the pcap segment index written by collectors that rotate the capture,
+	 * one segment file name per line in capture order
+	 */
+	public static final String SEGMENT_INDEX_FILE = "traffic.segments";
+
+	/**
+	 * Extension of gzip compressed pcap segments
+	 */
+	public static final String GZIP_EXT = ".gz";
+
 	/**
 	 * The name of the device_info file
 	 */
@@ -1935,6 +1997,9 @@ public class TraceData implements Serializable {
 	private List<NetworkBearerTypeInfo> networkTypeInfos = new ArrayList<NetworkBearerTypeInfo>();
 	private NetworkType networkType;
 
+	// time indexes of the timelines above, built on the first time range query
+	private transient Map<List<?>, TimeIndex<?>> timeIndexes;
+
 	// time
 	private String collectorName;
 	private String deviceModel;
@@ -1955,6 +2020,7 @@ public class TraceData implements Serializable {
 	private int captureOffset = -1;
 
 	private Set<String> missingFiles = new HashSet<String>();
+	private List<String> loadErrors = new ArrayList<String>();
 	private boolean exVideoTimeFileNotFound;
 	private boolean exVideoFound;
 	private boolean nativeVideo;
@@ -1968,11 +2034,13 @@ public class TraceData implements Serializable {
 	private Set<String> allAppNames = new HashSet<String>();
 	private Map<String, Set<InetAddress>> appIps = new HashMap<String, Set<InetAddress>>();
 	private List<NetworkType> networkTypesList = new ArrayList<NetworkType>();
-	private static AROCryptoAdapter cryptAdapter = null;
+	private transient AROCryptoAdapter cryptAdapter = null;
+	private boolean deferredDecoding = Boolean.getBoolean("com.att.aro.deferredDecoding");
 	
-	public static int packetIdx = 0;
-	public static int totalNoPackets = 0;
-	public static int remainingPackets = 0;
+	// Progress of the load and analyses of this trace
+	private transient ProgressMonitor progressMonitor = new ProgressMonitor();
+	private transient StageProgress pcapStage;
+
 	/**
 	 * Pcap packet listener
 	 */
@@ -1992,18 +2060,9 @@ public class TraceData implements Serializable {
 				addIpCount(ip.getSourceIPAddress());
 				addIpCount(ip.getDestinationIPAddress());
 			}
-			incrementPacket();
 			allPackets.add(new PacketInfo(appName, packet));
-
-		}
-		
-		public void incrementPacket()
-		{
-			packetIdx++;			
-			remainingPackets = totalNoPackets - packetIdx;
-			
+			pcapStage.advance(1, packet.getLen());
 		}
-				
 	};
 
 	/**
@@ -2020,6 +2079,28 @@ public class TraceData implements Serializable {
 	 *             when error occurs reading trace information
 	 */
 	public TraceData(File traceDir) throws IOException, UnsatisfiedLinkError {
+		this(traceDir, new ProgressMonitor());
+	}
+
+	/**
+	 * Initializes an instance of the TraceData class, using the specified trace
+	 * directory and reporting the progress of the load and of the analyses of
+	 * the trace to the specified monitor.
+	 * 
+	 * @param traceDir
+	 *            - Directory where the trace files are located, or a pcap file.
+	 * @param progressMonitor
+	 *            - Receives the progress of the stages of the load.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if traceDir does not represent and existing directory in the
+	 *             file system
+	 * @throws IOException
+	 *             when error occurs reading trace information
+	 */
+	public TraceData(File traceDir, ProgressMonitor progressMonitor) throws IOException,
+			UnsatisfiedLinkError {
+		this.progressMonitor = progressMonitor;
 
 		// Check input directory
 		if (traceDir == null || !traceDir.exists()) {
@@ -2034,7 +2115,12 @@ public class TraceData implements Serializable {
 		} else {
 
 			// Read PCAP file only
-			readPcapTrace(traceDir, null, null, null);
+			pcapStage = progressMonitor.startStage(ProgressMonitor.PCAP_READ, 0);
+			try {
+				readPcapTrace(traceDir, null, null, null);
+			} finally {
+				pcapStage.finish();
+			}
 		}
 		
 	}
@@ -2125,6 +2211,24 @@ public class TraceData implements Serializable {
 		return traceDateTime;
 	}
 
+	/**
+	 * Returns the time index of a timeline of the trace, creating it on the
+	 * first call or when the timeline has grown since.
+	 */
+	@SuppressWarnings("unchecked")
+	private synchronized <T> TimeIndex<T> getTimeIndex(List<T> timeline,
+			TimeIndex.Timeline<? super T> times) {
+		if (timeIndexes == null) {
+			timeIndexes = new IdentityHashMap<List<?>, TimeIndex<?>>();
+		}
+		TimeIndex<T> index = (TimeIndex<T>) timeIndexes.get(timeline);
+		if (index == null || index.size() != timeline.size()) {
+			index = new TimeIndex<T>(timeline, times);
+			timeIndexes.put(timeline, index);
+		}
+		return index;
+	}
+
 	/**
 	 * Returns the total duration of the loaded trace file.
 	 * 
@@ -2263,10 +2367,35 @@ public class TraceData implements Serializable {
 	 * 
 	 * @return The CryptAdapter.
 	 */
-	static public AROCryptoAdapter getCryptAdapter() {
+	public AROCryptoAdapter getCryptAdapter() {
 		return cryptAdapter;
 	}
 
+	/**
+	 * Returns whether the TLS sessions of the analyses of this trace are
+	 * decrypted when their requests and responses are first needed, instead
+	 * of when the sessions are extracted. The analyses of the HTTP content,
+	 * the burst analysis, the best practices and the score are then done when
+	 * first asked for. The default is the value of the
+	 * com.att.aro.deferredDecoding system property.
+	 * 
+	 * @return True when decoding is deferred.
+	 */
+	public boolean isDeferredDecoding() {
+		return deferredDecoding;
+	}
+
+	/**
+	 * Sets whether the TLS sessions of the analyses of this trace are
+	 * decrypted when their requests and responses are first needed.
+	 * 
+	 * @param deferredDecoding
+	 *            True to defer decoding.
+	 */
+	public void setDeferredDecoding(boolean deferredDecoding) {
+		this.deferredDecoding = deferredDecoding;
+	}
+
 	/**
 	 * Returns the start time of the video.
 	 * 
@@ -2293,6 +2422,26 @@ public class TraceData implements Serializable {
 	public Set<String> getMissingFiles() {
 		return Collections.unmodifiableSet(missingFiles);
 	}
+
+	/**
+	 * Returns the errors that occurred while reading the trace, such as
+	 * failing to read the SSL keys. The trace is loaded without the data
+	 * concerned.
+	 * 
+	 * @return The localized error messages.
+	 */
+	public List<String> getLoadErrors() {
+		return Collections.unmodifiableList(loadErrors);
+	}
+
+	/**
+	 * Logs an error reading the trace and keeps it for the user interface.
+	 */
+	private void reportLoadError(String key) {
+		String message = Util.RB.getString(key);
+		logger.severe(message);
+		loadErrors.add(message);
+	}
 	
 	/**
 	 * Get device screen width.
@@ -2330,6 +2479,21 @@ public class TraceData implements Serializable {
 		return new Analysis(profile, filter, datadump);
 	}
 
+	/**
+	 * Returns the monitor of the progress of the load and of the analyses of
+	 * the trace.
+	 * 
+	 * @return The progress monitor.
+	 */
+	public ProgressMonitor getProgressMonitor() {
+		if (progressMonitor == null) {
+
+			// Deserialized trace
+			progressMonitor = new ProgressMonitor();
+		}
+		return progressMonitor;
+	}
+
 	/**
 	 * Reads the application names from the appinfo trace file.
 	 * 
@@ -2450,20 +2614,119 @@ public class TraceData implements Serializable {
 		}
 
 		// Read the pcap files to get default times
-		File pcap = new File(traceDir, PCAP_FILE);
 		List<Integer> appIds = readAppIDs();
 		
-		
-		totalNoPackets = appIds.size();
-		readPcapTrace(pcap, appIds, startTime, duration);
+		pcapStage = progressMonitor.startStage(ProgressMonitor.PCAP_READ, appIds.size());
+		try {
+			for (File pcapFile : getPcapSegments(traceDir)) {
+				readPcapTrace(pcapFile, appIds, startTime, duration);
+			}
+		} finally {
+			pcapStage.finish();
+		}
+	}
+
+	/**
+	 * Returns the pcap files of a trace in capture order. When the collector wrote a
+	 * segment index it lists the segments, compressed segments are inflated next to
+	 * the archive the first time they are read. Otherwise the files are traffic.cap
+	 * followed by traffic1.cap, traffic2.cap ... as long as they exist.
+	 * 
+	 * @param traceDir
+	 * @return pcap files, the first one may not exist when the trace has no pcap
+	 * @throws IOException
+	 */
+	static List<File> getPcapSegments(File traceDir) throws IOException {
+		List<File> segments = new ArrayList<File>();
+		File index = new File(traceDir, SEGMENT_INDEX_FILE);
+		if (index.exists()) {
+			for (String name : readSegmentIndex(index)) {
+				File segment = new File(traceDir, name);
+				if (name.endsWith(GZIP_EXT)) {
+					segment = inflateSegment(segment);
+				}
+				if (segment.exists()) {
+					segments.add(segment);
+				} else {
+					logger.warning("Missing pcap segment " + name);
+				}
+			}
+			if (!segments.isEmpty()) {
+				return segments;
+			}
+		}
+		segments.add(new File(traceDir, PCAP_FILE));
 		for (int i = 1;; i++) {
 			File pcapFile = new File(traceDir, TRAFFIC + i + CAP_EXT);
 			if (pcapFile.exists()) {
-				readPcapTrace(pcapFile, appIds, startTime, duration);
+				segments.add(pcapFile);
 			} else {
 				break;
 			}
 		}
+		return segments;
+	}
+
+	/**
+	 * Reads the names listed in a pcap segment index.
+	 * 
+	 * @param index
+	 *            the segment index file
+	 * @return segment file names in capture order
+	 * @throws IOException
+	 */
+	public static List<String> readSegmentIndex(File index) throws IOException {
+		List<String> names = new ArrayList<String>();
+		BufferedReader br = new BufferedReader(new FileReader(index));
+		try {
+			String line;
+			while ((line = br.readLine()) != null) {
+				line = line.trim();
+				// only plain file names, never paths out of the trace folder
+				if (line.length() > 0 && line.indexOf('/') < 0 && line.indexOf('\\') < 0) {
+					names.add(line);
+				}
+			}
+		} finally {
+			br.close();
+		}
+		return names;
+	}
+
+	/**
+	 * Inflates a gzip compressed segment next to it, unless that was already done.
+	 * 
+	 * @param archive
+	 * @return the uncompressed segment
+	 * @throws IOException
+	 */
+	private static File inflateSegment(File archive) throws IOException {
+		String path = archive.getPath();
+		File segment = new File(path.substring(0, path.length() - GZIP_EXT.length()));
+		if (segment.exists() || !archive.exists()) {
+			return segment;
+		}
+		File tmp = new File(segment.getPath() + ".tmp");
+		InputStream in = new GZIPInputStream(new FileInputStream(archive), 64 * 1024);
+		try {
+			OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp));
+			try {
+				byte[] buffer = new byte[64 * 1024];
+				int read;
+				while ((read = in.read(buffer)) > 0) {
+					out.write(buffer, 0, read);
+				}
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+		if (!tmp.renameTo(segment)) {
+			tmp.delete();
+			throw new IOException("Unable to inflate " + archive.getName());
+		}
+		return segment;
 	}
 
 	/**
@@ -2513,10 +2776,12 @@ public class TraceData implements Serializable {
 		while(cryptAdapter == null) {
 			try {
 				cryptAdapter = new AROCryptoAdapter();
-				if (osname != null && osname.contains("Windows")) {
-					ret = cryptAdapter.ReadSSLKeys(traceDir + "\\" + SSLKEY_FILE);
-				} else if (osname != null && osname.contains("Mac")) {
-					ret = cryptAdapter.ReadSSLKeys(traceDir + "/" + SSLKEY_FILE);
+				synchronized (AROCryptoAdapter.NATIVE_LOCK) {
+					if (osname != null && osname.contains("Windows")) {
+						ret = cryptAdapter.ReadSSLKeys(traceDir + "\\" + SSLKEY_FILE);
+					} else if (osname != null && osname.contains("Mac")) {
+						ret = cryptAdapter.ReadSSLKeys(traceDir + "/" + SSLKEY_FILE);
+					}
 				}
 				
 				if(ret == -1) {
@@ -2530,24 +2795,24 @@ public class TraceData implements Serializable {
 						}
 						continue;
 					} else {
-						MessageDialogFactory.showMessageDialog(null, Util.RB.getString("tls.error.readssl"), Util.RB.getString("Error.title"), JOptionPane.ERROR_MESSAGE);
+						reportLoadError("tls.error.readssl");
 						break;
 					}
 				} else {
-					AROCryptoAdapter.getSSL_keys().remove(AROCryptoAdapter.getSSL_keys().size() - 1); //Work around as it gets total sslkeys + 1 (which is not in MPPtool code).
-					Collections.sort(AROCryptoAdapter.getSSL_keys());
+					cryptAdapter.getSSL_keys().remove(cryptAdapter.getSSL_keys().size() - 1); //Work around as it gets total sslkeys + 1 (which is not in MPPtool code).
+					Collections.sort(cryptAdapter.getSSL_keys());
 				}
 			} catch (UnsatisfiedLinkError e1) {
 				cryptAdapter = null;
 				if (osname != null && osname.contains("Windows")) {
 					String uleMsg = e1.getMessage();
 					if (uleMsg.endsWith("in java.library.path")) {
-						MessageDialogFactory.showMessageDialog(null, Util.RB.getString("tls.error.dllload"), Util.RB.getString("Error.title"), JOptionPane.ERROR_MESSAGE);
+						reportLoadError("tls.error.dllload");
 					} else if (uleMsg.endsWith("Can't find dependent libraries")) {
-						MessageDialogFactory.showMessageDialog(null, Util.RB.getString("tls.error.dllload.dep"), Util.RB.getString("Error.title"), JOptionPane.ERROR_MESSAGE);
+						reportLoadError("tls.error.dllload.dep");
 					}			
 				} else if (osname != null && osname.contains("Mac")) {
-					MessageDialogFactory.showMessageDialog(null, Util.RB.getString("tls.error.jnilibload"), Util.RB.getString("Error.title"), JOptionPane.ERROR_MESSAGE);
+					reportLoadError("tls.error.jnilibload");
 				}
 				break;
 			} catch (Exception e1) {
@@ -2561,7 +2826,7 @@ public class TraceData implements Serializable {
 					}
 					continue;
 				} else {
-					MessageDialogFactory.showMessageDialog(null, Util.RB.getString("tls.error.readsslfile"), Util.RB.getString("Error.title"), JOptionPane.ERROR_MESSAGE);
+					reportLoadError("tls.error.readsslfile");
 					break;
 				}
 			}
@@ -2725,6 +2990,21 @@ public class TraceData implements Serializable {
 		this.pcapFile = pcap;
 		try {
 			new PCapAdapter(pcap, packetListener);
+		} catch (UnsatisfiedLinkError e) {
+
+			// Without the native pcap library, such as in headless analyses,
+			// classic pcap files are read in Java
+			CaptureFormat format = CaptureFormat.detect(pcap);
+			if (format != CaptureFormat.PCAP && format != CaptureFormat.PCAP_NANOSECONDS) {
+				throw e;
+			}
+			logger.info("Native pcap library not loaded, reading " + pcap.getName() + " in Java");
+			PCapFileReader reader = new PCapFileReader(pcap);
+			try {
+				reader.read(packetListener);
+			} finally {
+				reader.close();
+			}
 		} catch (IOException e) {
 			String osname = System.getProperty("os.name");
 			if (osname != null && osname.contains("Windows")) {
@@ -4146,7 +4426,7 @@ public class TraceData implements Serializable {
 			logger.log(Level.FINE, "Number of scheduled alarm = " + totalScheduledAlarms 
 					+ "\n Number of apps has scheduled alarms: " + scheduledAlarms.size());
 		} catch (Exception e) {
-			MessageDialogFactory.showMessageDialog(null, Util.RB.getString("Error.alammanalysis"), Util.RB.getString("Error.title"), JOptionPane.ERROR_MESSAGE);
+			reportLoadError("Error.alammanalysis");
 			return null;
 		} finally {
 			br.close();
@@ -20,15 +20,27 @@ import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import com.att.aro.commonui.MessageDialogFactory;
+import com.att.aro.ssl.SAVED_TLS_SESSION;
 import com.att.aro.ssl.SslKey;
-import com.att.aro.util.Util;
 
 
+/**
+ * Decrypts the SSL sessions of a trace with the keys of its SSL key log. An
+ * instance holds the keys and the saved TLS sessions of one trace. The cipher
+ * objects of the native library are shared by the process, so the decryption
+ * of a trace must hold the NATIVE_LOCK.
+ */
 public class AROCryptoAdapter {
 	
+	/**
+	 * Serializes the use of the cipher objects of the native library.
+	 */
+	public static final Object NATIVE_LOCK = new Object();
+
 	private static final Logger logger = Logger.getLogger(AROCryptoAdapter.class.getName());
-	private static List<SslKey> ssl_keys = new ArrayList<SslKey>();
+	private List<SslKey> ssl_keys = new ArrayList<SslKey>();
+	private List<SAVED_TLS_SESSION> savedTLSSessionsByID = new ArrayList<SAVED_TLS_SESSION>();
+	private List<SAVED_TLS_SESSION> savedTLSSessionsByTicket = new ArrayList<SAVED_TLS_SESSION>();
 	
 	public AROCryptoAdapter() {
 		loadAroCryptoLib();
@@ -68,14 +80,28 @@ public class AROCryptoAdapter {
 		}
 	}
 	
-	static public List<SslKey> getSSL_keys() {
+	public List<SslKey> getSSL_keys() {
 		return ssl_keys;
 	}
 	
-	static public void resetSSL_keys() {
+	public List<SAVED_TLS_SESSION> getSavedTLSSessionsByID() {
+		return savedTLSSessionsByID;
+	}
+	
+	public List<SAVED_TLS_SESSION> getSavedTLSSessionsByTicket() {
+		return savedTLSSessionsByTicket;
+	}
+	
+	/**
+	 * Marks all the keys as unused and forgets the saved TLS sessions, before
+	 * the SSL sessions of the trace are decrypted again.
+	 */
+	public void resetSSL_keys() {
 		int size = ssl_keys.size();
 		for(int index=0; index<size; index++) {
 			ssl_keys.get(index).setbUsed(0);
 		}
+		savedTLSSessionsByID.clear();
+		savedTLSSessionsByTicket.clear();
 	}
 }
\ No newline at end of file
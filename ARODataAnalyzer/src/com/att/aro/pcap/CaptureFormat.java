@@ -0,0 +1,89 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.pcap;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * The file formats of packet captures, detected from the magic number at the
+ * start of the file.
+ */
+public enum CaptureFormat {
+
+	/**
+	 * Classic pcap with microsecond timestamps.
+	 */
+	PCAP,
+
+	/**
+	 * Classic pcap with nanosecond timestamps.
+	 */
+	PCAP_NANOSECONDS,
+
+	/**
+	 * pcapng, starting with a section header block.
+	 */
+	PCAPNG,
+
+	/**
+	 * pcapng written by the tcpdump of Mac OS X 10.9 and later, whose packets
+	 * carry a 4 byte header before the IP packet.
+	 */
+	APPLE_PCAPNG,
+
+	/**
+	 * Any other file.
+	 */
+	UNKNOWN;
+
+	private static final int MAGIC_MICROSECONDS = 0xa1b2c3d4;
+	private static final int MAGIC_NANOSECONDS = 0xa1b23c4d;
+	private static final int MAGIC_PCAPNG = 0x0a0d0d0a;
+
+	/**
+	 * Detects the format of a capture file. Only the header of the file is
+	 * read.
+	 *
+	 * @param file
+	 *            The capture file.
+	 * @return The format of the file.
+	 * @throws IOException
+	 *             when the file cannot be read.
+	 */
+	public static CaptureFormat detect(File file) throws IOException {
+		int magic;
+		DataInputStream input = new DataInputStream(new FileInputStream(file));
+		try {
+			magic = input.readInt();
+		} catch (EOFException e) {
+			return UNKNOWN;
+		} finally {
+			input.close();
+		}
+		if (magic == MAGIC_PCAPNG) {
+			return new PcapngHelper().isApplePcapng(file) ? APPLE_PCAPNG : PCAPNG;
+		} else if (magic == MAGIC_MICROSECONDS || Integer.reverseBytes(magic) == MAGIC_MICROSECONDS) {
+			return PCAP;
+		} else if (magic == MAGIC_NANOSECONDS || Integer.reverseBytes(magic) == MAGIC_NANOSECONDS) {
+			return PCAP_NANOSECONDS;
+		}
+		return UNKNOWN;
+	}
+}
@@ -0,0 +1,42 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.pcap;
+
+/**
+ * Decodes the link-layer header of the frames of one capture datalink type
+ * and creates the packets they carry. Decoders are registered for their
+ * datalink types in a DatalinkRegistry.
+ */
+public interface DatalinkDecoder {
+
+	/**
+	 * Creates the packet carried by a captured frame.
+	 *
+	 * @param seconds
+	 *            The number of seconds for the packet.
+	 * @param microSeconds
+	 *            The number of microseconds for the packet.
+	 * @param len
+	 *            The length of the frame (in bytes) including both the
+	 *            header and the data.
+	 * @param data
+	 *            The captured bytes of the frame, starting with the
+	 *            link-layer header.
+	 * @return The packet; a plain Packet when the frame does not carry an IP
+	 *         packet or is truncated.
+	 */
+	Packet decode(long seconds, long microSeconds, int len, byte[] data);
+}
@@ -0,0 +1,228 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.pcap;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps the pcap datalink types of captures to the decoders of their
+ * link-layer headers. The default registry decodes Ethernet, raw IPv4 and
+ * IPv6, BSD loopback (DLT_NULL and DLT_LOOP), Linux cooked captures v1 and v2
+ * and IEEE 802.11 frames with or without a radiotap header. Decoders for other
+ * datalink types can be registered.
+ */
+public class DatalinkRegistry {
+
+	public static final int DLT_NULL = 0;
+	public static final int DLT_EN10MB = 1;
+	public static final int DLT_RAW = 12;
+	public static final int DLT_RAW_OPENBSD = 14;
+	public static final int DLT_LINKTYPE_RAW = 101;
+	public static final int DLT_IEEE802_11 = 105;
+	public static final int DLT_LOOP = 108;
+	public static final int DLT_LINUX_SLL = 113;
+	public static final int DLT_IEEE802_11_RADIO = 127;
+	public static final int DLT_IPV4 = 228;
+	public static final int DLT_IPV6 = 229;
+	public static final int DLT_LINUX_SLL2 = 276;
+
+	private static final short VLAN = (short) 0x8100;
+
+	/**
+	 * Decodes the frames of unknown datalink types as packets without a
+	 * network protocol.
+	 */
+	public static final DatalinkDecoder UNKNOWN = new DatalinkDecoder() {
+		@Override
+		public Packet decode(long seconds, long microSeconds, int len, byte[] data) {
+			return Packet.createPacket((short) 0, seconds, microSeconds, len, 0, data);
+		}
+	};
+
+	/**
+	 * Decodes IP packets behind a 4 byte header, such as the BSD loopback
+	 * header. The IP version is read from the packet. This is also the
+	 * layout of the packets of the pcapng captures of the Apple tcpdump.
+	 */
+	public static final DatalinkDecoder LOOPBACK = new DatalinkDecoder() {
+		@Override
+		public Packet decode(long seconds, long microSeconds, int len, byte[] data) {
+			return Packet.createPacket(ipVersion(data, 4), seconds, microSeconds, len, 4, data);
+		}
+	};
+
+	private static final DatalinkRegistry DEFAULT = new DatalinkRegistry();
+
+	static {
+		DEFAULT.register(DLT_NULL, LOOPBACK);
+		DEFAULT.register(DLT_LOOP, LOOPBACK);
+		DEFAULT.register(DLT_EN10MB, new DatalinkDecoder() {
+			@Override
+			public Packet decode(long seconds, long microSeconds, int len, byte[] data) {
+				short network = 0;
+				int hdrLen = 14;
+				try {
+					ByteBuffer bytes = ByteBuffer.wrap(data);
+					network = bytes.getShort(12);
+					if (network == VLAN) {
+						network = bytes.getShort(16);
+						hdrLen = 18;
+					}
+				} catch (IndexOutOfBoundsException e) {
+					// Truncated packet
+				}
+				return Packet.createPacket(network, seconds, microSeconds, len, hdrLen, data);
+			}
+		});
+		DatalinkDecoder raw = new DatalinkDecoder() {
+			@Override
+			public Packet decode(long seconds, long microSeconds, int len, byte[] data) {
+				return Packet.createPacket(ipVersion(data, 0), seconds, microSeconds, len, 0, data);
+			}
+		};
+		DEFAULT.register(DLT_RAW, raw);
+		DEFAULT.register(DLT_RAW_OPENBSD, raw);
+		DEFAULT.register(DLT_LINKTYPE_RAW, raw);
+		DEFAULT.register(DLT_IPV4, raw);
+		DEFAULT.register(DLT_IPV6, raw);
+		DEFAULT.register(DLT_LINUX_SLL, new DatalinkDecoder() {
+			@Override
+			public Packet decode(long seconds, long microSeconds, int len, byte[] data) {
+				short network = 0;
+				try {
+					network = ByteBuffer.wrap(data).getShort(14);
+				} catch (IndexOutOfBoundsException e) {
+					// Truncated packet
+				}
+				return Packet.createPacket(network, seconds, microSeconds, len, 16, data);
+			}
+		});
+		DEFAULT.register(DLT_LINUX_SLL2, new DatalinkDecoder() {
+			@Override
+			public Packet decode(long seconds, long microSeconds, int len, byte[] data) {
+				short network = 0;
+				try {
+					network = ByteBuffer.wrap(data).getShort(0);
+				} catch (IndexOutOfBoundsException e) {
+					// Truncated packet
+				}
+				return Packet.createPacket(network, seconds, microSeconds, len, 20, data);
+			}
+		});
+		DEFAULT.register(DLT_IEEE802_11, new DatalinkDecoder() {
+			@Override
+			public Packet decode(long seconds, long microSeconds, int len, byte[] data) {
+				return decodeIeee80211(seconds, microSeconds, len, data, 0);
+			}
+		});
+		DEFAULT.register(DLT_IEEE802_11_RADIO, new DatalinkDecoder() {
+			@Override
+			public Packet decode(long seconds, long microSeconds, int len, byte[] data) {
+				int radiotapLen = data.length >= 4 ? (data[2] & 0xff) | ((data[3] & 0xff) << 8) : data.length;
+				return decodeIeee80211(seconds, microSeconds, len, data, radiotapLen);
+			}
+		});
+	}
+
+	private final Map<Integer, DatalinkDecoder> decoders = new ConcurrentHashMap<Integer, DatalinkDecoder>();
+
+	/**
+	 * Returns the registry of the built-in decoders, shared by the captures
+	 * of the application.
+	 *
+	 * @return The default registry.
+	 */
+	public static DatalinkRegistry getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Registers the decoder of a datalink type, replacing any previous one.
+	 *
+	 * @param datalink
+	 *            The pcap datalink type.
+	 * @param decoder
+	 *            The decoder.
+	 */
+	public void register(int datalink, DatalinkDecoder decoder) {
+		decoders.put(datalink, decoder);
+	}
+
+	/**
+	 * Returns the decoder of a datalink type.
+	 *
+	 * @param datalink
+	 *            The pcap datalink type.
+	 * @return The decoder, or null when the datalink type is not registered.
+	 */
+	public DatalinkDecoder get(int datalink) {
+		return decoders.get(datalink);
+	}
+
+	/**
+	 * Returns the network protocol of an IP packet from its version.
+	 */
+	private static short ipVersion(byte[] data, int offset) {
+		if (data.length > offset) {
+			switch ((data[offset] & 0xf0) >> 4) {
+			case 4:
+				return Packet.IP;
+			case 6:
+				return Packet.IPv6;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Decodes the IP packet of an IEEE 802.11 data frame with an LLC/SNAP
+	 * header. Other frames, and encrypted frames, carry no network protocol.
+	 */
+	private static Packet decodeIeee80211(long seconds, long microSeconds, int len, byte[] data,
+			int offset) {
+		short network = 0;
+		int hdrLen = offset;
+		try {
+			int type = data[offset] & 0xff;
+			int flags = data[offset + 1] & 0xff;
+
+			// Data frame, carrying data, not protected
+			if ((type & 0x0c) == 0x08 && (type & 0x40) == 0 && (flags & 0x40) == 0) {
+				int macLen = 24;
+				if ((flags & 0x03) == 0x03) {
+
+					// Fourth address between access points
+					macLen += 6;
+				}
+				if ((type & 0x80) != 0) {
+
+					// QoS control, and HT control when ordered
+					macLen += (flags & 0x80) != 0 ? 6 : 2;
+				}
+				int llc = offset + macLen;
+				if ((data[llc] & 0xff) == 0xaa && (data[llc + 1] & 0xff) == 0xaa && data[llc + 2] == 0x03) {
+					network = ByteBuffer.wrap(data).getShort(llc + 6);
+					hdrLen = llc + 8;
+				}
+			}
+		} catch (IndexOutOfBoundsException e) {
+			// Truncated packet
+		}
+		return Packet.createPacket(network, seconds, microSeconds, len, hdrLen, data);
+	}
+}
@@ -20,7 +20,6 @@ import java.io.IOException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import com.att.aro.pcap.packetRebuild.PCapFileWriter;
 import com.att.aro.util.Util;
 
 /**
@@ -37,16 +36,13 @@ public class PCapAdapter {
 	static String aroJpcapLibFileName;
 
 	private PacketListener pl;
-	
-	private File currentPcapfile = null;
 
 	/*
-	 * converting pcap file support
+	 * Format of the file and decoder of its datalink, detected once per file
 	 */
-	String convertedCapFile = "converted.cap";
-	String backupCapFileName = "backup.cap";
-	private File convertedPcapFile;
-	private PCapFileWriter pcapOutput;
+	private CaptureFormat format;
+	private int datalink = -1;
+	private DatalinkDecoder decoder;
 
 	/**
 	 * Checks that all necessary Pcap libraries are installed on the system
@@ -60,6 +56,7 @@ public class PCapAdapter {
 	 * Creates a new instance of the PCapAdapter class using the specified file,
 	 * and a PacketLIstener object to create a callback for capturing packets.
 	 * This constructor initiates the WinPcap native API to loop the packets.
+	 * The pcapng captures of the Apple tcpdump are decoded in place.
 	 * 
 	 * @param file
 	 *            The file object to access.
@@ -69,74 +66,24 @@ public class PCapAdapter {
 	 * @throws java.io.IOException
 	 */
 	public PCapAdapter(File file, final PacketListener pl) throws IOException {
-		currentPcapfile = file;
 		logger.fine("Creating a new instance of the PCapAdapter");
 
-		provisionalStartPcapConversion(file);
-		
 		if (pl == null) {
 			logger.severe("PacketListener cannot be null");
 			throw new IllegalArgumentException("PacketListener cannot be null");
 		}
 
 		this.pl = pl;
+		format = CaptureFormat.detect(file);
+		logger.fine("Capture format: " + format);
 		String result = loopPacket(file.getAbsolutePath());
 
-		if (pcapOutput != null) {
-			logger.info("close converted.cap and rename stuff");
-			pcapOutput.close();
-			pcapOutput = null;
-
-			if (renameFile(currentPcapfile, backupCapFileName)) {
-				renameFile(convertedPcapFile, currentPcapfile.getName());
-			}
-		}
-
 		if (result != null) {
 			logger.info("Result from executing all pcap packets: " +  result);
 			throw new IOException(result);
 		}
 		logger.fine("Created PCapAdapter");
 	}
-	/**
-	 * Potentially start the pcapng conversion process. Two conditions are tested, has conversion already been done and is the pcap file a pcapng.
-	 * 
-	 * @param file
-	 */
-	private void provisionalStartPcapConversion(File file) {
-		String tracePath = file.getAbsolutePath().substring(0, file.getAbsolutePath().length() - file.getName().length());
-		File backupCapFile = new File(tracePath, backupCapFileName);
-		if (!backupCapFile.exists()) {
-			try {
-				if (Packet.getPcapng().isApplePcapng(file)) {
-					convertedPcapFile = new File(tracePath, convertedCapFile);
-					pcapOutput = new PCapFileWriter(convertedPcapFile);
-				}
-			} catch (Exception e) {
-				logger.severe("failed to create :" + convertedPcapFile);
-				pcapOutput = null;
-			}
-		}
-	}
-	
-	/**
-	 * rename a File with a newName
-	 * 
-	 * @param origFileName a File
-	 * @param newName a String containing a new name
-	 * @return
-	 */
-	private boolean renameFile(File origFileName, String newName){
-		String path = origFileName.getAbsolutePath().substring(0, origFileName.getAbsolutePath().length() - origFileName.getName().length());
-		File renameFile = new File(path, newName);
-		if (!renameFile.exists()){
-			if (origFileName.renameTo(renameFile)){
-				return true;
-			} 
-		}
-		return false;
-	}
-
 	/**
 	 * Callback listener used by the native code that accesses pcap
 	 * 
@@ -148,17 +95,11 @@ public class PCapAdapter {
 	 */
 	private void pcapHandler(int datalink, long seconds, long microSeconds, int len, byte[] data) {
 		try {
-			Packet packet = Packet.createPacketFromPcap(datalink, seconds, microSeconds, len, data, currentPcapfile);
-			pl.packetArrived(null, packet);
-			if (pcapOutput != null) {
-				int offset = packet.getDatalinkHeaderSize();
-				if (offset == 4) {
-					int length = packet.getData().length;
-					pcapOutput.addPacketConvertedPcapng(packet.getData(), offset, length, seconds * 1000000 + microSeconds);
-				} else {
-					pcapOutput.addPacket(packet.getData(), seconds * 1000000 + microSeconds);
-				}
+			if (datalink != this.datalink) {
+				this.datalink = datalink;
+				decoder = getDecoder(datalink);
 			}
+			pl.packetArrived(null, decoder.decode(seconds, microSeconds, len, data));
 		} catch (Throwable t) {
 
 			// Log exceptions before they are returned to native code
@@ -166,6 +107,24 @@ public class PCapAdapter {
 		}
 	}
 
+	/**
+	 * Returns the decoder of a datalink of the file. Unknown datalinks of the
+	 * pcapng captures of the Apple tcpdump carry IP packets behind a 4 byte
+	 * header.
+	 */
+	private DatalinkDecoder getDecoder(int datalink) {
+		DatalinkDecoder result = DatalinkRegistry.getDefault().get(datalink);
+		if (result == null) {
+			if (format == CaptureFormat.APPLE_PCAPNG) {
+				result = DatalinkRegistry.LOOPBACK;
+			} else {
+				logger.warning("Unknown datalink: " + datalink);
+				result = DatalinkRegistry.UNKNOWN;
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * Executes all packets from the pcap files.
 	 * 
@@ -0,0 +1,191 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.pcap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Reads the packets of a pcap file that is still being written, such as the
+ * capture file of a running tcpdump. Each call to read returns the packets
+ * completed since the previous call and leaves a partially written packet for
+ * the next one, so the file can be tailed while the capture runs. Only the
+ * classic pcap format is read; pcapng files are read by PCapAdapter once the
+ * capture is complete. The decoder of the datalink of the file is looked up
+ * once, when the file header is read. Complete pcap traces are also read with
+ * this class when the native pcap library is not loaded.
+ */
+public class PCapFileReader {
+
+	private static final int FILE_HEADER_SIZE = 24;
+	private static final int RECORD_HEADER_SIZE = 16;
+	private static final int MAGIC_MICROSECONDS = 0xa1b2c3d4;
+	private static final int MAGIC_NANOSECONDS = 0xa1b23c4d;
+	private static final int MAGIC_PCAPNG = 0x0a0d0d0a;
+
+	// records larger than this are considered as corruption of the file
+	private static final int MAX_RECORD_SIZE = 256 * 1024;
+
+	private final File file;
+	private RandomAccessFile input;
+
+	// file offset of the next record
+	private long position;
+	private int datalink = -1;
+	private DatalinkDecoder decoder;
+	private boolean nanoseconds;
+	private ByteOrder byteOrder;
+
+	// bytes of the file from bufferPosition, up to buffer.limit()
+	private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+	private long bufferPosition;
+
+	/**
+	 * Initializes an instance of the PCapFileReader class. The file does not
+	 * need to exist yet.
+	 *
+	 * @param file
+	 *            The pcap file.
+	 */
+	public PCapFileReader(File file) {
+		this.file = file;
+		buffer.limit(0);
+	}
+
+	/**
+	 * Reads the packets written since the previous call.
+	 *
+	 * @param listener
+	 *            Receives the packets.
+	 * @return The number of packets read.
+	 * @throws IOException
+	 *             when the file cannot be read or is not a pcap file.
+	 */
+	public int read(PacketListener listener) throws IOException {
+		if (input == null) {
+			if (!file.exists()) {
+				return 0;
+			}
+			input = new RandomAccessFile(file, "r");
+		}
+		if (datalink < 0 && !readFileHeader()) {
+			return 0;
+		}
+
+		int count = 0;
+		while (fill(position, RECORD_HEADER_SIZE)) {
+			int offset = (int) (position - bufferPosition);
+			long seconds = buffer.getInt(offset) & 0xffffffffL;
+			long fraction = buffer.getInt(offset + 4) & 0xffffffffL;
+			int capturedLength = buffer.getInt(offset + 8);
+			int length = buffer.getInt(offset + 12);
+			if (capturedLength < 0 || capturedLength > MAX_RECORD_SIZE) {
+				throw new IOException("Invalid packet length " + capturedLength + " at offset " + position
+						+ " of " + file);
+			}
+			if (!fill(position, RECORD_HEADER_SIZE + capturedLength)) {
+				break;
+			}
+			offset = (int) (position - bufferPosition);
+			byte[] data = new byte[capturedLength];
+			System.arraycopy(buffer.array(), offset + RECORD_HEADER_SIZE, data, 0, capturedLength);
+			position += RECORD_HEADER_SIZE + capturedLength;
+
+			long microSeconds = nanoseconds ? fraction / 1000 : fraction;
+			listener.packetArrived(null, decoder.decode(seconds, microSeconds, length, data));
+			++count;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of bytes of the file read.
+	 *
+	 * @return The file offset of the next packet.
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	/**
+	 * Closes the file.
+	 *
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		if (input != null) {
+			input.close();
+			input = null;
+		}
+	}
+
+	private boolean readFileHeader() throws IOException {
+		if (!fill(0, FILE_HEADER_SIZE)) {
+			return false;
+		}
+		int magic = buffer.order(ByteOrder.BIG_ENDIAN).getInt(0);
+		if (magic == MAGIC_PCAPNG) {
+			throw new IOException(file + " is a pcapng file");
+		}
+		if (magic == MAGIC_MICROSECONDS || magic == MAGIC_NANOSECONDS) {
+			byteOrder = ByteOrder.BIG_ENDIAN;
+		} else if (Integer.reverseBytes(magic) == MAGIC_MICROSECONDS
+				|| Integer.reverseBytes(magic) == MAGIC_NANOSECONDS) {
+			byteOrder = ByteOrder.LITTLE_ENDIAN;
+			magic = Integer.reverseBytes(magic);
+		} else {
+			throw new IOException(file + " is not a pcap file");
+		}
+		nanoseconds = magic == MAGIC_NANOSECONDS;
+		buffer.order(byteOrder);
+		datalink = buffer.getInt(20);
+		decoder = DatalinkRegistry.getDefault().get(datalink);
+		if (decoder == null) {
+			decoder = DatalinkRegistry.UNKNOWN;
+		}
+		position = FILE_HEADER_SIZE;
+		return true;
+	}
+
+	/**
+	 * Makes the buffer hold the bytes [start, start + size) of the file.
+	 * Returns false when the file is shorter.
+	 */
+	private boolean fill(long start, int size) throws IOException {
+		if (start >= bufferPosition && start + size <= bufferPosition + buffer.limit()) {
+			return true;
+		}
+		long length = input.length();
+		if (start + size > length) {
+			return false;
+		}
+		if (size > buffer.capacity()) {
+			buffer = ByteBuffer.allocate(Integer.highestOneBit(size) << 1);
+			if (byteOrder != null) {
+				buffer.order(byteOrder);
+			}
+		}
+		int count = (int) Math.min(buffer.capacity(), length - start);
+		input.seek(start);
+		input.readFully(buffer.array(), 0, count);
+		buffer.limit(count);
+		bufferPosition = start;
+		return true;
+	}
+}
@@ -15,8 +15,6 @@
  */
 package com.att.aro.pcap;
 
-import java.io.File;
-import java.io.IOException;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
 
@@ -26,28 +24,18 @@ import java.nio.ByteBuffer;
 public class Packet implements Serializable {
 	private static final long serialVersionUID = 1L;
 
-	private static final short IP = 0x0800;
-	private static final short IPv6 = (short)0x86DD;
-
-	private static final int DLT_EN10MB = 1;
-	private static final int DLT_RAW = 12;
-	private static final int DLT_LINUX_SLL = 113;
+	static final short IP = 0x0800;
+	static final short IPv6 = (short)0x86DD;
 
 	private static final int NETMON_ETHERNET = 1;
 	private static final int NETMON_WIFI = 6;
 	private static final int NETMON_WIRELESSWAN = 8;
 	private static final int NETMON_RAW = 9;
 
-	private static PcapngHelper pcapng = null;
-	synchronized static PcapngHelper getPcapng(){
-		if(pcapng == null){
-			pcapng = new PcapngHelper();
-		}
-		return pcapng;
-	}
 	/**
 	 * Returns a new instance of the Packet class, using a datalink to a Pcap file and the specified 
-	 * parameters to initialize the class members.
+	 * parameters to initialize the class members. The link-layer header is decoded by the decoder 
+	 * of the datalink in the default DatalinkRegistry.
 	 * @param datalink The datalink to a Pcap file.
 	 * @param seconds The number of seconds for the packet.
 	 * @param microSeconds The number of microseconds for the packet.
@@ -57,43 +45,12 @@ public class Packet implements Serializable {
 	 * @return The newly created packet.
 	 */
 	public static Packet createPacketFromPcap(int datalink, long seconds, long microSeconds, int len,
-			byte[] data, File pcapfile) {
-
-		// Determine network protocol
-		short network = 0;
-		int hdrLen = 0;
-		ByteBuffer bytes = ByteBuffer.wrap(data);
-		try {
-			switch (datalink) {
-			case DLT_RAW: // Raw IP
-				network = IP;
-				break;
-			case DLT_EN10MB: // Ethernet (WiFi)
-				network = bytes.getShort(12);
-				hdrLen = 14;
-				break;
-			case DLT_LINUX_SLL: // Linux cooked capture (Android)
-				network = bytes.getShort(14);
-				hdrLen = 16;
-				break;
-			default:
-				if(pcapfile != null){
-					try {
-						if(Packet.getPcapng().isApplePcapng(pcapfile)){
-							network = IP;
-							hdrLen = 4;
-						}
-					} catch (IOException e) {
-						e.printStackTrace();
-					}
-				}
-				break;
-			}
-		} catch (IndexOutOfBoundsException e) {
-			// Truncated packet
+			byte[] data) {
+		DatalinkDecoder decoder = DatalinkRegistry.getDefault().get(datalink);
+		if (decoder == null) {
+			decoder = DatalinkRegistry.UNKNOWN;
 		}
-		
-		return createPacket(network, seconds, microSeconds, len, hdrLen, data);
+		return decoder.decode(seconds, microSeconds, len, data);
 	}
 
 	/**
@@ -112,7 +69,7 @@ public class Packet implements Serializable {
 
 		// Check for PCAP datalink
 		if (datalink >= 0xe000 && datalink <= 0xefff) {
-			return createPacketFromPcap(datalink - 0xe000, seconds, microSeconds, len, data, null);
+			return createPacketFromPcap(datalink - 0xe000, seconds, microSeconds, len, data);
 		}
 		
 		// Determine network protocol
@@ -158,57 +158,6 @@ public class PCapFileWriter implements CaptureFileWriter
 		myTotalBytes += PCapFileHeader.HEADER_SIZE;
 	}
 	
-	/**
-	 * 0 Byte Header (null/loopback) add packet to already opened cap. if close
-	 * method was called earlier then will not add it.
-	 * 
-	 * @param thepkt
-	 * @param time
-	 *            - time offset in micro sec
-	 * @return true if packet added and false otherwise
-	 * @throws IOException
-	 * @throws IOException
-	 */
-	public boolean addPacketConvertedPcapng(byte[] thepkt, int offset, int length, long time) throws IOException {
-
-		if (thepkt == null || !_isopened || myTotalBytes > myLimit)
-			return false;
-
-		PCapPacketHeader hder = new PCapPacketHeader();
-
-		length -= offset;
-		
-		if (time == 0) {
-			time = getNanoTime() - myStartTime; // the gap since start in nano sec
-		}
-
-		hder.setTimeValMsec32Uint((time ) % 1000000);
-		hder.setTimeValSec32Uint(time / 1000000l);
-
-		// updated to use the real packet length
-		hder.setPktlenUint32(length + ETHERNET_HDR_LEN);
-		hder.setCaplen32Uint(length + ETHERNET_HDR_LEN);
-
-		if (length > MAX_PACKET_SIZE)
-			throw new IOException("Got illeagl packet size : " + thepkt.length);
-
-		byte[] x = hder.getAsByteArray();
-		myOutStrm.write(hder.getAsByteArray());
-
-		// added to write fake ethernet header
-
-		byte[] y = StubbedEthernetHeader.getEthernetHeader();
-		myOutStrm.write(StubbedEthernetHeader.getEthernetHeader());
-
-		myOutStrm.write(thepkt, offset, length);
-
-		// update to use real packet length and add in len of ethernet header
-		myTotalBytes += length + ETHERNET_HDR_LEN + PCapPacketHeader.HEADER_SIZE;
-
-		return true;
-	}
-
-
 	/**
 	 * add packet to already opened cap.
 	 * if close method was called earlier then will not add it.
@@ -18,15 +18,10 @@ package com.att.aro.ssl;
 import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import javax.swing.JOptionPane;
-
-import com.att.aro.commonui.MessageDialogFactory;
-import com.att.aro.model.TraceData;
 import com.att.aro.pcap.AROCryptoAdapter;
 import com.att.aro.ssl.crypto_openssl.crypto_hash_alg;
 import com.att.aro.util.Util;
@@ -40,8 +35,6 @@ public class SslKey implements Comparable<SslKey> {
 	private int masterLen;
 	private byte[] preMaster = new byte[256];
 	private byte[] master = new byte[48];
-	private static List<SAVED_TLS_SESSION>savedTLSSessionsByID = new ArrayList<SAVED_TLS_SESSION>();
-	private static List<SAVED_TLS_SESSION>savedTLSSessionsByTicket = new ArrayList<SAVED_TLS_SESSION>();
 	
 	public static final int TLS_MASTER_SECRET_LEN = 48;
 	public static final int TLS_RANDOM_LEN = 32;
@@ -90,12 +83,12 @@ public class SslKey implements Comparable<SslKey> {
 		}
 	}
 	
-	private static int search(int nBegin, int nEnd, double shTS) {
+	private static int search(List<SslKey> keys, int nBegin, int nEnd, double shTS) {
 		if (nEnd - nBegin <= 5) {
-			double best = Math.abs(AROCryptoAdapter.getSSL_keys().get(nBegin).ts - shTS);
+			double best = Math.abs(keys.get(nBegin).ts - shTS);
 			int bestI = nBegin;
 			for (int i=nBegin+1; i<=nEnd; i++) {
-				double t = Math.abs(AROCryptoAdapter.getSSL_keys().get(i).ts - shTS);
+				double t = Math.abs(keys.get(i).ts - shTS);
 				if (t < best) {
 					bestI = i;
 					best = t;
@@ -104,8 +97,8 @@ public class SslKey implements Comparable<SslKey> {
 			return bestI;
 		}
 
-		double deltaBegin = AROCryptoAdapter.getSSL_keys().get(nBegin).ts - shTS;
-		double deltaEnd   = AROCryptoAdapter.getSSL_keys().get(nEnd).ts - shTS;
+		double deltaBegin = keys.get(nBegin).ts - shTS;
+		double deltaEnd   = keys.get(nEnd).ts - shTS;
 
 		if (sgn(deltaBegin) == sgn(deltaEnd)) {
 			if (Math.abs(deltaBegin) < Math.abs(deltaEnd)) {
@@ -116,11 +109,11 @@ public class SslKey implements Comparable<SslKey> {
 		}
 
 		int nMid = (nBegin + nEnd) / 2;
-		double deltaMid = AROCryptoAdapter.getSSL_keys().get(nMid).ts - shTS;
+		double deltaMid = keys.get(nMid).ts - shTS;
 		if (sgn(deltaBegin) == sgn(deltaMid)) {
-			return search(nMid, nEnd, shTS);
+			return search(keys, nMid, nEnd, shTS);
 		} else {
-			return search(nBegin, nMid, shTS);
+			return search(keys, nBegin, nMid, shTS);
 		}
 	}
 	
@@ -533,8 +526,9 @@ public class SslKey implements Comparable<SslKey> {
 		}
 	}
 	
-	public static int getMasterFromSSLLog(double serverHelloTS, byte[] master, byte[] clientRandom, byte[] serverRandom) {
-		int n = AROCryptoAdapter.getSSL_keys().size();
+	public static int getMasterFromSSLLog(AROCryptoAdapter crypto, double serverHelloTS, byte[] master, byte[] clientRandom, byte[] serverRandom) {
+		List<SslKey> keys = crypto.getSSL_keys();
+		int n = keys.size();
 		if (n == 0) {
 			return 0;
 		}
@@ -550,19 +544,18 @@ public class SslKey implements Comparable<SslKey> {
 		}
 		
 		//Step 1: find the key whose ts is closest to serverHelloTS
-		int i = search(0, n-1, serverHelloTS);
+		int i = search(keys, 0, n-1, serverHelloTS);
 		int j = i + 1;
 
 		while (true) {
 			while (i >= 0) {
 				if ((j < n)
-						&& (Math.abs(AROCryptoAdapter.getSSL_keys().get(j).ts
-								- serverHelloTS) < Math.abs(AROCryptoAdapter
-								.getSSL_keys().get(i).ts - serverHelloTS))) {
+						&& (Math.abs(keys.get(j).ts
+								- serverHelloTS) < Math.abs(keys.get(i).ts - serverHelloTS))) {
 					break;
 				}
-				if ((AROCryptoAdapter.getSSL_keys().get(i).bUsed == 0)
-						&& (match(AROCryptoAdapter.getSSL_keys().get(i),
+				if ((keys.get(i).bUsed == 0)
+						&& (match(keys.get(i),
 								random, master) == 1)) {
 					return 1;
 				}
@@ -571,13 +564,12 @@ public class SslKey implements Comparable<SslKey> {
 
 			while (j < n) {
 				if ((i >= 0)
-						&& (Math.abs(AROCryptoAdapter.getSSL_keys().get(i).ts
-								- serverHelloTS) < Math.abs(AROCryptoAdapter
-								.getSSL_keys().get(j).ts - serverHelloTS))) {
+						&& (Math.abs(keys.get(i).ts
+								- serverHelloTS) < Math.abs(keys.get(j).ts - serverHelloTS))) {
 					break;
 				}
-				if ((AROCryptoAdapter.getSSL_keys().get(j).bUsed == 0)
-						&& (match(AROCryptoAdapter.getSSL_keys().get(j),
+				if ((keys.get(j).bUsed == 0)
+						&& (match(keys.get(j),
 								random, master) == 1)) {
 					return 1;
 				}
@@ -591,7 +583,7 @@ public class SslKey implements Comparable<SslKey> {
 		return 0;
 	}
 	
-	public static int setupCiphers(byte[] master, byte[] clientRandom, byte[] serverRandom, TLS_SESSION_INFO tsiPending) {
+	public static int setupCiphers(AROCryptoAdapter crypto, byte[] master, byte[] clientRandom, byte[] serverRandom, TLS_SESSION_INFO tsiPending) {
 			byte[] random = new byte[64];
 			for(int j=0; j<32; j++) {
 				random[j] = serverRandom[j];
@@ -617,12 +609,12 @@ public class SslKey implements Comparable<SslKey> {
 				random, TLS_RANDOM_LEN + TLS_RANDOM_LEN, tsiPending.keyBlock, tsiPending.keyBlockLen
 				);
 			if (r != 0) {
-				MessageDialogFactory.showMessageDialog(null, Util.RB.getString("tls.error.prf"), Util.RB.getString("Error.title"), JOptionPane.ERROR_MESSAGE);
+				sslLogger.severe(Util.RB.getString("tls.error.prf"));
 				return -1;
 			}
 
-			tsiPending.pCipherClient = initCipher(tsiPending.pCipherData, tsiPending.keyBlock, hash_size[0], 1);
-			tsiPending.pCipherServer = initCipher(tsiPending.pCipherData, tsiPending.keyBlock, hash_size[0], 0);
+			tsiPending.pCipherClient = initCipher(crypto, tsiPending.pCipherData, tsiPending.keyBlock, hash_size[0], 1);
+			tsiPending.pCipherServer = initCipher(crypto, tsiPending.pCipherData, tsiPending.keyBlock, hash_size[0], 0);
 
 			if ((tsiPending.pCipherClient == -1) || (tsiPending.pCipherServer == -1)) {
 				return 0;
@@ -631,7 +623,7 @@ public class SslKey implements Comparable<SslKey> {
 			}
 	}
 	
-	private static int initCipher(tls_cipher_data pCipherData, byte[] keyBlock, int hash_size, int bClient) {
+	private static int initCipher(AROCryptoAdapter crypto, tls_cipher_data pCipherData, byte[] keyBlock, int hash_size, int bClient) {
 
 			//key negotiated, now start transferring data
 
@@ -681,9 +673,9 @@ public class SslKey implements Comparable<SslKey> {
 				keyBlockbuff.position(0);
 			}
 			
-			int ret = TraceData.getCryptAdapter().cryptocipherinit(pCipherData.alg.ordinal(), temp1, temp2, pCipherData.key_material, bClient);
+			int ret = crypto.cryptocipherinit(pCipherData.alg.ordinal(), temp1, temp2, pCipherData.key_material, bClient);
 			if(ret != 0) {
-				MessageDialogFactory.showMessageDialog(null, Util.RB.getString("tls.error.init"), Util.RB.getString("Error.title"), JOptionPane.ERROR_MESSAGE);
+				sslLogger.severe(Util.RB.getString("tls.error.init"));
 				return -1;
 			}
 			return ret;
@@ -710,8 +702,8 @@ public class SslKey implements Comparable<SslKey> {
 		}
 	}
 	
-	public static int saveTLSSessionByID(byte[] sessionID, byte[] master) {
-		return saveTLSSessionCore(savedTLSSessionsByID, sessionID, master);
+	public static int saveTLSSessionByID(AROCryptoAdapter crypto, byte[] sessionID, byte[] master) {
+		return saveTLSSessionCore(crypto.getSavedTLSSessionsByID(), sessionID, master);
 	}
 	
 	private static int saveTLSSessionCore(List<SAVED_TLS_SESSION>savedTLSSessions, byte[] sessionID, byte[] master) {
@@ -774,24 +766,15 @@ public class SslKey implements Comparable<SslKey> {
 		return 0;
 	}
 	
-	public static int saveTLSSessionByTicket(byte[] sessionID, byte[] master) {
-		return saveTLSSessionCore(savedTLSSessionsByTicket, sessionID, master);
-	}
-	
-	public static int getSavedTLSSessionByID(byte[] sessionID, SAVED_TLS_SESSION[] pSaved) {
-		return getSavedTLSSessionCore(savedTLSSessionsByID, sessionID, pSaved);
+	public static int saveTLSSessionByTicket(AROCryptoAdapter crypto, byte[] sessionID, byte[] master) {
+		return saveTLSSessionCore(crypto.getSavedTLSSessionsByTicket(), sessionID, master);
 	}
 	
-	public static int getSavedTLSSessionByTicket(byte[] sessionID, SAVED_TLS_SESSION[] pSaved) {
-		return getSavedTLSSessionCore(savedTLSSessionsByTicket, sessionID, pSaved);
+	public static int getSavedTLSSessionByID(AROCryptoAdapter crypto, byte[] sessionID, SAVED_TLS_SESSION[] pSaved) {
+		return getSavedTLSSessionCore(crypto.getSavedTLSSessionsByID(), sessionID, pSaved);
 	}
 	
-	public static void clearSavedTLSSessions() {
-		if(savedTLSSessionsByID != null) {
-			savedTLSSessionsByID.clear();
-		}
-		if(savedTLSSessionsByTicket != null) {
-			savedTLSSessionsByTicket.clear();
-		}
+	public static int getSavedTLSSessionByTicket(AROCryptoAdapter crypto, byte[] sessionID, SAVED_TLS_SESSION[] pSaved) {
+		return getSavedTLSSessionCore(crypto.getSavedTLSSessionsByTicket(), sessionID, pSaved);
 	}
 }
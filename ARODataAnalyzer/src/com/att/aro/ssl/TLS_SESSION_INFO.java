@@ -20,7 +20,7 @@ import java.util.logging.Logger;
 import java.util.zip.Inflater;
 
 import com.att.aro.model.PacketInfo;
-import com.att.aro.model.TraceData;
+import com.att.aro.pcap.AROCryptoAdapter;
 import com.att.aro.ssl.crypto_openssl.crypto_hash_alg;
 import com.att.aro.util.Util;
 
@@ -39,6 +39,7 @@ public class TLS_SESSION_INFO {
 	int pCipherClient = -1;
 	int pCipherServer = -1;
 	int objectType = -1;
+	private final AROCryptoAdapter crypto;
 	byte[] seqNum = new byte[TLS_SEQ_NUM_LEN];
 	byte[] keyBlock = new byte[MAX_KEY_BLOCK_SIZE];
 	int keyBlockLen;
@@ -67,14 +68,15 @@ public class TLS_SESSION_INFO {
 		return decompresser;
 	}
 
-	public TLS_SESSION_INFO(int objectType) {
+	public TLS_SESSION_INFO(int objectType, AROCryptoAdapter crypto) {
 		this.objectType = objectType;
+		this.crypto = crypto;
 		this.pSuite = null;
 		this.pCipherData = null;
 		this.pCipherClient = -1;
-		TraceData.getCryptAdapter().setcryptociphernull(this.objectType, 1);
+		crypto.setcryptociphernull(this.objectType, 1);
 		this.pCipherServer = -1;
-		TraceData.getCryptAdapter().setcryptociphernull(this.objectType, 0);
+		crypto.setcryptociphernull(this.objectType, 0);
 		this.compressionMethod = COMPRESS_NONE;
 		this.keyBlockLen = 0;
 		for(int i=0; i<this.seqNum.length; i++) {
@@ -96,7 +98,7 @@ public class TLS_SESSION_INFO {
 		this.compressionMethod = tsi.compressionMethod;
 		this.pCipherClient = tsi.pCipherClient;
 		this.pCipherServer = tsi.pCipherServer;
-		TraceData.getCryptAdapter().copycryptocipher(tsi.objectType, this.objectType);
+		crypto.copycryptocipher(tsi.objectType, this.objectType);
 		this.keyBlockLen = tsi.keyBlockLen;
 		for(int i=0; i<MAX_KEY_BLOCK_SIZE; i++) {
 			this.keyBlock[i] = tsi.keyBlock[i];
@@ -106,7 +108,7 @@ public class TLS_SESSION_INFO {
 	public void Clean() {
 		this.pCipherClient = -1;
 		this.pCipherServer = -1;
-		TraceData.getCryptAdapter().cryptocipherdeinit(this.objectType);
+		crypto.cryptocipherdeinit(this.objectType);
 		
 		if (this.inflationBuf != null) {
 			this.inflationBuf = null;
@@ -201,7 +203,7 @@ public class TLS_SESSION_INFO {
 		
 		int PLAIN_TEXT_BUF_SIZE = 65536;
 		byte[] _plain = new byte[PLAIN_TEXT_BUF_SIZE];
-		int r = TraceData.getCryptAdapter().cryptocipherdecrypt(pCipher, enc, _plain, enc.length, this.objectType);
+		int r = crypto.cryptocipherdecrypt(pCipher, enc, _plain, enc.length, this.objectType);
 		if(r != 0) {
 			logger.fine(Util.RB.getString("tls.error.decrypt"));
 			return -1;
@@ -223,7 +225,7 @@ public class TLS_SESSION_INFO {
 		int ret = 0;
 		String osname = System.getProperty("os.name");
 		if (osname != null && osname.contains("Windows")) {
-			ret = TraceData.getCryptAdapter().cryptohashInitUpdateFinish(
+			ret = crypto.cryptohashInitUpdateFinish(
 					dir.ordinal(), hash_alg[0].ordinal(), this.keyBlock, hash_size[0], recType, payloadLen, plain, this.seqNum);			
 		}
 		if(ret != 0) {
@@ -0,0 +1,345 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.synthetic;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A TCP connection of a synthetic trace, optionally carrying TLS, that sends
+ * HTTP requests one after the other and receives their responses. The packets
+ * of one phase of the connection (the handshake, a request and its response,
+ * the close) are planned when the previous phase has been written, so that
+ * only the content of the current object is held in memory.
+ */
+class Connection extends Flow {
+
+	/**
+	 * The maximum segment size.
+	 */
+	static final int MSS = 1460;
+
+	static final int FIN = 0x01;
+	static final int SYN = 0x02;
+	static final int PSH = 0x08;
+	static final int ACK = 0x10;
+
+	private static final String USER_AGENT = "Mozilla/5.0 (Linux; Android 4.4.2; Synthetic) AppleWebKit/537.36";
+
+	/**
+	 * A request of the connection.
+	 */
+	static class Request {
+		private final String method;
+		private final String path;
+		private final int objectId;
+		private final byte[] body;
+
+		/**
+		 * Initializes an instance of the Request class.
+		 *
+		 * @param method
+		 *            The HTTP method.
+		 * @param path
+		 *            The requested path, or null for the path of the object.
+		 * @param objectId
+		 *            The ID of the object of the response, or -1 for a short
+		 *            JSON response.
+		 * @param body
+		 *            The body of the request, or null.
+		 */
+		Request(String method, String path, int objectId, byte[] body) {
+			this.method = method;
+			this.path = path;
+			this.objectId = objectId;
+			this.body = body;
+		}
+	}
+
+	/**
+	 * A packet to write.
+	 */
+	static class Segment {
+		final long time;
+		final boolean uplink;
+		final int flags;
+		final long seq;
+		final long ack;
+		final byte[] data;
+		final int offset;
+		final int length;
+
+		Segment(long time, boolean uplink, int flags, long seq, long ack, byte[] data, int offset,
+				int length) {
+			this.time = time;
+			this.uplink = uplink;
+			this.flags = flags;
+			this.seq = seq;
+			this.ack = ack;
+			this.data = data;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+
+	private final TraceGenerator generator;
+	private final int app;
+	private final String host;
+	private final byte[] remoteIP;
+	private final int localPort;
+	private final boolean https;
+	private final List<Request> requests;
+	private final Random random;
+	private final ArrayDeque<Segment> segments = new ArrayDeque<Segment>();
+	private final long rtt;
+	private final double downlinkGap;
+	private final double uplinkGap;
+
+	private TlsSession tls;
+	private long localSeq;
+	private long remoteSeq;
+	private long clock;
+	private int phase;
+
+	/**
+	 * Initializes an instance of the Connection class.
+	 *
+	 * @param generator
+	 *            The generator writing the trace.
+	 * @param id
+	 *            The creation order of the connection.
+	 * @param time
+	 *            The time of the SYN, in microseconds since the epoch.
+	 * @param app
+	 *            The index of the application of the connection.
+	 * @param host
+	 *            The name of the server.
+	 * @param remoteIP
+	 *            The address of the server.
+	 * @param localPort
+	 *            The local port.
+	 * @param https
+	 *            True for a TLS connection to port 443.
+	 * @param requests
+	 *            The requests sent on the connection.
+	 * @param random
+	 *            The source of the random choices of the connection.
+	 */
+	Connection(TraceGenerator generator, long id, long time, int app, String host, byte[] remoteIP,
+			int localPort, boolean https, List<Request> requests, Random random) {
+		super(id, time);
+		this.generator = generator;
+		this.app = app;
+		this.host = host;
+		this.remoteIP = remoteIP;
+		this.localPort = localPort;
+		this.https = https;
+		this.requests = requests;
+		this.random = random;
+
+		Workload workload = generator.getWorkload();
+		this.rtt = (long) (workload.getRtt() * 1000000);
+		this.downlinkGap = MSS * 1000000.0 / workload.getBandwidth();
+		this.uplinkGap = downlinkGap * 4;
+		this.clock = time;
+		this.localSeq = random.nextInt() & 0xffffffffL;
+		this.remoteSeq = random.nextInt() & 0xffffffffL;
+	}
+
+	/**
+	 * @return The index of the application of the connection.
+	 */
+	int getApp() {
+		return app;
+	}
+
+	/**
+	 * @return The address of the server.
+	 */
+	byte[] getRemoteIP() {
+		return remoteIP;
+	}
+
+	/**
+	 * @return The local port.
+	 */
+	int getLocalPort() {
+		return localPort;
+	}
+
+	/**
+	 * @return The port of the server.
+	 */
+	int getRemotePort() {
+		return https ? 443 : 80;
+	}
+
+	@Override
+	boolean step() throws IOException {
+		if (segments.isEmpty() && !plan()) {
+			return false;
+		}
+		generator.writePacket(this, segments.poll());
+		if (segments.isEmpty() && !plan()) {
+			return false;
+		}
+		setTime(segments.peek().time);
+		return true;
+	}
+
+	/**
+	 * Plans the packets of the next phase.
+	 *
+	 * @return False when the connection is closed.
+	 */
+	private boolean plan() throws IOException {
+		if (phase == 0) {
+			planOpen();
+		} else if (phase <= requests.size()) {
+			planRequest(requests.get(phase - 1));
+		} else if (phase == requests.size() + 1) {
+			planClose();
+		} else {
+			return false;
+		}
+		++phase;
+		return true;
+	}
+
+	private void planOpen() {
+		add(true, SYN, null, 0, 0);
+		clock += rtt;
+		add(false, SYN | ACK, null, 0, 0);
+		clock += 200;
+		add(true, ACK, null, 0, 0);
+		if (https) {
+			tls = new TlsSession(random, clock / 1000000);
+			send(true, tls.clientHello());
+			clock += rtt;
+			generator.logKey(clock, tls);
+			send(false, tls.serverHello());
+			clock += 1000 + random.nextInt(4000);
+			send(true, tls.clientFinished());
+			clock += rtt;
+			send(false, tls.serverFinished());
+		}
+	}
+
+	private void planRequest(Request request) throws IOException {
+		clock += phase == 1 ? 1000 : 20000 + random.nextInt(480000);
+
+		ContentFactory.WebObject object = request.objectId >= 0 ? generator.getContent().create(
+				request.objectId) : null;
+		StringBuilder headers = new StringBuilder(256);
+		headers.append(request.method).append(' ').append(request.path != null ? request.path
+				: object.getPath()).append(" HTTP/1.1\r\nHost: ").append(host).append(
+				"\r\nUser-Agent: ").append(USER_AGENT).append(
+				"\r\nAccept-Encoding: gzip\r\nConnection: keep-alive\r\n");
+		if (request.body != null) {
+			headers.append("Content-Type: application/json\r\nContent-Length: ").append(
+					request.body.length).append("\r\n");
+		}
+		headers.append("\r\n");
+		send(true, wrap(true, concat(ContentFactory.ascii(headers.toString()), request.body)));
+
+		clock += rtt + 2000 + random.nextInt(40000);
+		headers.setLength(0);
+		byte[] body;
+		if (object != null) {
+			body = object.getBody();
+			headers.append("HTTP/1.1 200 OK\r\nDate: ").append(generator.formatDate(clock)).append(
+					"\r\nContent-Type: ").append(object.getContentType()).append(
+					"\r\nContent-Length: ").append(body.length);
+			if (object.isGzip()) {
+				headers.append("\r\nContent-Encoding: gzip");
+			}
+			headers.append("\r\nCache-Control: ").append(object.getMaxAge() > 0 ? "max-age="
+					+ object.getMaxAge() : "no-cache").append("\r\nETag: \"").append(
+					Integer.toHexString(object.getId())).append("\"\r\nLast-Modified: ").append(
+					generator.formatDate(generator.getStartTime())).append("\r\n\r\n");
+		} else {
+			body = ContentFactory.ascii("{\"status\":\"ok\"}");
+			headers.append("HTTP/1.1 200 OK\r\nDate: ").append(generator.formatDate(clock)).append(
+					"\r\nContent-Type: application/json\r\nContent-Length: ").append(body.length)
+					.append("\r\nCache-Control: no-cache\r\n\r\n");
+		}
+		send(false, wrap(false, concat(ContentFactory.ascii(headers.toString()), body)));
+	}
+
+	private void planClose() {
+		clock += 500000 + random.nextInt(9500000);
+		if (https) {
+			send(true, tls.closeNotify(true));
+		}
+		add(true, FIN | ACK, null, 0, 0);
+		clock += rtt;
+		if (https) {
+			send(false, tls.closeNotify(false));
+		}
+		add(false, FIN | ACK, null, 0, 0);
+		clock += 200;
+		add(true, ACK, null, 0, 0);
+	}
+
+	private byte[] wrap(boolean uplink, byte[] data) {
+		return https ? tls.applicationData(uplink, data) : data;
+	}
+
+	/**
+	 * Sends data in segments paced by the bandwidth. The client acknowledges
+	 * every second downlink segment.
+	 */
+	private void send(boolean uplink, byte[] data) {
+		double gap = uplink ? uplinkGap : downlinkGap;
+		double start = clock;
+		int count = 0;
+		for (int offset = 0; offset < data.length; offset += MSS) {
+			int length = Math.min(MSS, data.length - offset);
+			boolean last = offset + length == data.length;
+			clock = (long) (start + count * gap);
+			add(uplink, ACK | (last ? PSH : 0), data, offset, length);
+			++count;
+			if (!uplink && (count % 2 == 0 || last)) {
+				add(true, ACK, null, 0, 0);
+			}
+		}
+		clock = (long) (start + count * gap);
+	}
+
+	private void add(boolean uplink, int flags, byte[] data, int offset, int length) {
+		long seq = uplink ? localSeq : remoteSeq;
+		long ack = (flags & ACK) != 0 ? uplink ? remoteSeq : localSeq : 0;
+		segments.add(new Segment(clock, uplink, flags, seq, ack, data, offset, length));
+		long next = (seq + length + ((flags & (SYN | FIN)) != 0 ? 1 : 0)) & 0xffffffffL;
+		if (uplink) {
+			localSeq = next;
+		} else {
+			remoteSeq = next;
+		}
+	}
+
+	private static byte[] concat(byte[] a, byte[] b) {
+		if (b == null) {
+			return a;
+		}
+		byte[] result = new byte[a.length + b.length];
+		System.arraycopy(a, 0, result, 0, a.length);
+		System.arraycopy(b, 0, result, a.length, b.length);
+		return result;
+	}
+}
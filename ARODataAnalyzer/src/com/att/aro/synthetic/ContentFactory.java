@@ -0,0 +1,271 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.synthetic;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Creates the objects downloaded in a synthetic trace. An object only depends
+ * on its ID and on the seed of the workload, so that a duplicate download
+ * carries the same content as the first one.
+ */
+class ContentFactory {
+
+	private static final String[] WORDS = { "account", "action", "article", "banner", "button",
+			"cache", "category", "channel", "comment", "content", "counter", "data", "date",
+			"detail", "device", "event", "feed", "filter", "footer", "header", "image", "index",
+			"item", "label", "layout", "link", "list", "media", "menu", "message", "module",
+			"name", "network", "offer", "option", "page", "panel", "photo", "player", "price",
+			"profile", "query", "rating", "request", "result", "review", "score", "search",
+			"section", "session", "setting", "share", "status", "story", "style", "summary",
+			"table", "target", "thumbnail", "title", "track", "update", "user", "video", "view" };
+
+	private static final String[][] TEXT_TYPES = { { "text/html", ".html" },
+			{ "application/javascript", ".js" }, { "text/css", ".css" },
+			{ "application/json", ".json" } };
+	private static final int TEXT_HTML = 0;
+	private static final int TEXT_JS = 1;
+	private static final int TEXT_CSS = 2;
+	private static final int TEXT_JSON = 3;
+
+	/**
+	 * An object of a response.
+	 */
+	static class WebObject {
+		private final int id;
+		private final String contentType;
+		private final String path;
+		private final boolean gzip;
+		private final int maxAge;
+		private final byte[] body;
+
+		WebObject(int id, String contentType, String path, boolean gzip, int maxAge, byte[] body) {
+			this.id = id;
+			this.contentType = contentType;
+			this.path = path;
+			this.gzip = gzip;
+			this.maxAge = maxAge;
+			this.body = body;
+		}
+
+		/**
+		 * @return The ID of the object.
+		 */
+		int getId() {
+			return id;
+		}
+
+		/**
+		 * @return The content type.
+		 */
+		String getContentType() {
+			return contentType;
+		}
+
+		/**
+		 * @return The path of the object on its server.
+		 */
+		String getPath() {
+			return path;
+		}
+
+		/**
+		 * @return True when the body is gzipped.
+		 */
+		boolean isGzip() {
+			return gzip;
+		}
+
+		/**
+		 * @return The max-age of the cache control, 0 for no-cache.
+		 */
+		int getMaxAge() {
+			return maxAge;
+		}
+
+		/**
+		 * @return The body as sent, gzipped when isGzip() is true.
+		 */
+		byte[] getBody() {
+			return body;
+		}
+	}
+
+	private final Workload workload;
+
+	/**
+	 * Initializes an instance of the ContentFactory class.
+	 *
+	 * @param workload
+	 *            The workload.
+	 */
+	ContentFactory(Workload workload) {
+		this.workload = workload;
+	}
+
+	/**
+	 * Creates an object.
+	 *
+	 * @param id
+	 *            The ID of the object.
+	 * @return The object.
+	 * @throws IOException
+	 *             when the object cannot be gzipped.
+	 */
+	WebObject create(int id) throws IOException {
+		Random random = new Random(workload.getSeed() * 31 + id);
+		double min = Math.log(workload.getObjectSizeMin());
+		double max = Math.log(workload.getObjectSizeMax());
+		int size = (int) Math.exp(min + random.nextDouble() * (max - min));
+		int maxAge = random.nextInt(4) == 0 ? 0 : random.nextBoolean() ? 3600 : 86400;
+
+		if (random.nextDouble() < workload.getTextRatio()) {
+			int type = random.nextInt(TEXT_TYPES.length);
+			byte[] body = text(random, type, size);
+			boolean gzip = random.nextDouble() < workload.getGzipRatio();
+			if (gzip) {
+				body = gzip(body);
+			}
+			return new WebObject(id, TEXT_TYPES[type][0], "/static/" + id + TEXT_TYPES[type][1], gzip,
+					maxAge, body);
+		} else {
+			return new WebObject(id, "image/png", "/img/" + id + ".png", false, maxAge, png(random,
+					size));
+		}
+	}
+
+	/**
+	 * Creates the report posted by a beacon.
+	 *
+	 * @param random
+	 *            The source of the content.
+	 * @param size
+	 *            The size of the report.
+	 * @return The report.
+	 */
+	byte[] report(Random random, int size) {
+		StringBuilder report = new StringBuilder(size + 32).append("{\"events\":[");
+		while (report.length() < size) {
+			report.append("{\"").append(word(random)).append("\":")
+					.append(random.nextInt(100000)).append("},");
+		}
+		report.setLength(report.length() - 1);
+		return ascii(report.append("]}").toString());
+	}
+
+	/**
+	 * Creates text of a type of TEXT_TYPES, written the way the type is
+	 * usually written so that the best practices parse it as they would parse
+	 * real content.
+	 */
+	private static byte[] text(Random random, int type, int size) {
+		StringBuilder text = new StringBuilder(size + 256);
+		if (type == TEXT_HTML) {
+			text.append("<!DOCTYPE html>\n<html>\n<head>\n<title>").append(word(random)).append(
+					"</title>\n</head>\n<body>\n");
+		} else if (type == TEXT_JSON) {
+			text.append("{\"items\": [\n");
+		}
+		while (text.length() < size) {
+			String word = word(random);
+			int words = 3 + random.nextInt(12);
+			switch (type) {
+			case TEXT_HTML:
+				text.append("    <div class=\"").append(word).append("\">");
+				for (int i = 0; i < words; ++i) {
+					text.append(word(random)).append(' ');
+				}
+				text.append(random.nextInt(1000000)).append("</div>\n");
+				break;
+			case TEXT_JS:
+				text.append("function ").append(word).append(random.nextInt(100000)).append(
+						"(value) {\n    var ").append(word(random)).append(" = value * ").append(
+						random.nextInt(1000)).append(";\n    return \"");
+				for (int i = 0; i < words; ++i) {
+					text.append(word(random)).append(' ');
+				}
+				text.append("\" + value;\n}\n\n");
+				break;
+			case TEXT_CSS:
+				text.append(".").append(word).append('-').append(word(random)).append(
+						" {\n    margin: ").append(random.nextInt(32)).append("px;\n    color: #").append(
+						Integer.toHexString(0x100000 + random.nextInt(0xefffff))).append(
+						";\n    font-size: ").append(8 + random.nextInt(24)).append("px;\n}\n\n");
+				break;
+			default:
+				text.append("    {\"").append(word).append("\": ").append(random.nextInt(1000000))
+						.append(", \"").append(word(random)).append("\": \"");
+				for (int i = 0; i < words; ++i) {
+					text.append(word(random)).append(' ');
+				}
+				text.append("\"},\n");
+				break;
+			}
+		}
+		if (type == TEXT_HTML) {
+			text.append("</body>\n</html>\n");
+		} else if (type == TEXT_JSON) {
+			text.append("    {}\n]}\n");
+		}
+		return ascii(text.toString());
+	}
+
+	private static String word(Random random) {
+		return WORDS[random.nextInt(WORDS.length)];
+	}
+
+	private static byte[] png(Random random, int size) {
+		byte[] body = new byte[Math.max(size, 24)];
+		random.nextBytes(body);
+		int width = 16 + random.nextInt(1024);
+		int height = 16 + random.nextInt(1024);
+
+		// PNG signature and IHDR chunk
+		int[] header = { 0x89504E47, 0x0D0A1A0A, 13, 0x49484452, width, height };
+		for (int i = 0; i < header.length; ++i) {
+			for (int j = 0; j < 4; ++j) {
+				body[i * 4 + j] = (byte) (header[i] >>> (24 - j * 8));
+			}
+		}
+		return body;
+	}
+
+	private static byte[] gzip(byte[] data) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream(data.length / 3 + 64);
+		GZIPOutputStream gzip = new GZIPOutputStream(output);
+		gzip.write(data);
+		gzip.close();
+		return output.toByteArray();
+	}
+
+	/**
+	 * Encodes a string of ASCII characters.
+	 *
+	 * @param s
+	 *            The string.
+	 * @return The bytes.
+	 */
+	static byte[] ascii(String s) {
+		byte[] bytes = new byte[s.length()];
+		for (int i = 0; i < bytes.length; ++i) {
+			bytes[i] = (byte) s.charAt(i);
+		}
+		return bytes;
+	}
+}
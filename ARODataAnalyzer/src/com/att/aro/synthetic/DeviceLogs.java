@@ -0,0 +1,292 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.synthetic;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Random;
+
+import com.att.aro.model.TraceData;
+
+/**
+ * Writes the files of a synthetic trace other than the pcap file: the
+ * application names, the times, the device details, the user events and the
+ * logs of the CPU and of the peripherals. The user events and the screen
+ * events follow the bursts of the user, the other logs are sampled over the
+ * whole trace when it is closed.
+ */
+class DeviceLogs {
+
+	private static final String LOCAL_IP = "10.0.0.2";
+	private static final int WIFI = -1;
+	private static final double SCREEN_TIMEOUT = 30;
+	private static final double CPU_INTERVAL = 1;
+	private static final double BATTERY_INTERVAL = 60;
+	private static final double RADIO_INTERVAL = 5;
+	private static final double BUSY_TIME = 5;
+
+	private final File traceDir;
+	private final Workload workload;
+	private final Random random;
+	private final double startTime;
+	private final Writer userEvents;
+	private final Writer screenEvents;
+
+	private boolean screenOn = true;
+	private double lastTouch;
+	private double[] burstTimes = new double[256];
+	private int[] burstApps = new int[256];
+	private int bursts;
+
+	/**
+	 * Initializes an instance of the DeviceLogs class, and opens the event
+	 * files.
+	 *
+	 * @param traceDir
+	 *            The trace directory.
+	 * @param workload
+	 *            The workload.
+	 * @throws IOException
+	 *             when the files cannot be created.
+	 */
+	DeviceLogs(File traceDir, Workload workload) throws IOException {
+		this.traceDir = traceDir;
+		this.workload = workload;
+		this.random = new Random(workload.getSeed() ^ 0x5DEECE66DL);
+		this.startTime = workload.getStartTime();
+		this.lastTouch = startTime;
+		this.userEvents = open(TraceData.USER_EVENTS_FILE);
+		this.screenEvents = open(TraceData.SCREEN_STATE_FILE);
+		screenEvents.write(time(startTime) + " ON " + (int) SCREEN_TIMEOUT + " 128\n");
+	}
+
+	/**
+	 * Records the touch of the user that starts a burst.
+	 *
+	 * @param time
+	 *            The time of the burst, in seconds since the epoch.
+	 * @param app
+	 *            The index of the application of the burst.
+	 * @throws IOException
+	 *             when the events cannot be written.
+	 */
+	void touch(double time, int app) throws IOException {
+		double press = Math.max(lastTouch, time - 0.4);
+		if (screenOn && press > lastTouch + SCREEN_TIMEOUT) {
+			screenEvents.write(time(lastTouch + SCREEN_TIMEOUT) + " OFF\n");
+			screenOn = false;
+		}
+		if (!screenOn) {
+			screenEvents.write(time(press) + " ON " + (int) SCREEN_TIMEOUT + " "
+					+ (64 + random.nextInt(192)) + "\n");
+			screenOn = true;
+		}
+		userEvents.write(time(press) + " screen press\n");
+		userEvents.write(time(press + 0.1) + " screen release\n");
+		lastTouch = press + 0.1;
+
+		if (bursts == burstTimes.length) {
+			double[] times = new double[bursts * 2];
+			int[] apps = new int[bursts * 2];
+			System.arraycopy(burstTimes, 0, times, 0, bursts);
+			System.arraycopy(burstApps, 0, apps, 0, bursts);
+			burstTimes = times;
+			burstApps = apps;
+		}
+		burstTimes[bursts] = time;
+		burstApps[bursts++] = app;
+	}
+
+	/**
+	 * Writes the remaining files and closes the event files.
+	 *
+	 * @param endTime
+	 *            The end of the trace, in seconds since the epoch.
+	 * @param appNames
+	 *            The names of the applications.
+	 * @throws IOException
+	 *             when the files cannot be written.
+	 */
+	void close(double endTime, String[] appNames) throws IOException {
+		if (screenOn && endTime > lastTouch + SCREEN_TIMEOUT) {
+			screenEvents.write(time(lastTouch + SCREEN_TIMEOUT) + " OFF\n");
+		}
+		userEvents.close();
+		screenEvents.close();
+
+		Writer writer = open(TraceData.APPNAME_FILE);
+		try {
+			for (String appName : appNames) {
+				writer.write(appName + " 1.0\n");
+			}
+		} finally {
+			writer.close();
+		}
+
+		writer = open(TraceData.TIME_FILE);
+		try {
+			writer.write("Synchronized timestamps\n" + time(startTime) + "\n"
+					+ (long) (3600000 + random.nextInt(3600000)) + "\n" + time(endTime) + "\n");
+		} finally {
+			writer.close();
+		}
+
+		writer = open(TraceData.DEVICEINFO_FILE);
+		try {
+			writer.write(LOCAL_IP + "\n");
+		} finally {
+			writer.close();
+		}
+
+		writer = open(TraceData.DEVICEDETAILS_FILE);
+		try {
+			writer.write("com.att.aro.synthetic\nSynthetic\nAT&T\nandroid\n4.4.2\n1.0\n"
+					+ workload.getNetworkType() + "\n720*1280\n");
+		} finally {
+			writer.close();
+		}
+
+		writer = open(TraceData.NETWORKINFO_FILE);
+		try {
+			writer.write(time(startTime) + " " + workload.getNetworkType() + "\n");
+		} finally {
+			writer.close();
+		}
+
+		writeCpu(endTime, appNames);
+		writeBattery(endTime);
+		writeRadio(endTime);
+		writeGps(endTime);
+
+		writer = open(TraceData.WIFI_FILE);
+		try {
+			writer.write(time(startTime)
+					+ (workload.getNetworkType() == WIFI ? " CONNECTED 00:1a:2b:3c:4d:5e -55 Synthetic\n"
+							: " OFF\n"));
+		} finally {
+			writer.close();
+		}
+
+		writer = open(TraceData.BLUETOOTH_FILE);
+		try {
+			writer.write(time(startTime) + " DISCONNECTED\n");
+		} finally {
+			writer.close();
+		}
+
+		writer = open(TraceData.CAMERA_FILE);
+		try {
+			writer.write(time(startTime) + " OFF\n");
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Writes the CPU usage, which is high for a few seconds after each burst
+	 * and mostly used by the application of the burst.
+	 */
+	private void writeCpu(double endTime, String[] appNames) throws IOException {
+		Writer writer = open(TraceData.CPU_FILE);
+		try {
+			StringBuilder line = new StringBuilder();
+			int burst = 0;
+			for (double t = startTime; t < endTime; t += CPU_INTERVAL) {
+				while (burst + 1 < bursts && burstTimes[burst + 1] <= t) {
+					++burst;
+				}
+				boolean busy = bursts > 0 && burstTimes[burst] <= t
+						&& t < burstTimes[burst] + BUSY_TIME;
+				double total = busy ? 40 + random.nextInt(50) : 2 + random.nextInt(8);
+				line.setLength(0);
+				line.append(time(t)).append(' ').append((int) total);
+				double left = total;
+				for (int app = 0; app < appNames.length; ++app) {
+					double usage = busy && burstApps[burst] == app ? total * 0.7 : Math.min(left,
+							random.nextInt(2));
+					left -= usage;
+					line.append(' ').append(appNames[app]).append('=').append((int) usage);
+				}
+				writer.write(line.append('\n').toString());
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	private void writeBattery(double endTime) throws IOException {
+		Writer writer = open(TraceData.BATTERY_FILE);
+		try {
+			int level = 100;
+			for (double t = startTime; t < endTime; t += BATTERY_INTERVAL) {
+				if (random.nextInt(3) == 0 && level > 1) {
+					--level;
+				}
+				writer.write(time(t) + " " + level + " " + (28 + random.nextInt(8)) + " false\n");
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	private void writeRadio(double endTime) throws IOException {
+		Writer writer = open(TraceData.RADIO_EVENTS_FILE);
+		try {
+			int dbm = -85;
+			for (double t = startTime; t < endTime; t += RADIO_INTERVAL) {
+				dbm = Math.max(-115, Math.min(-60, dbm + random.nextInt(7) - 3));
+				writer.write(time(t) + " " + dbm + "\n");
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Writes the GPS states: standby, with an active fix of up to two
+	 * minutes every few minutes.
+	 */
+	private void writeGps(double endTime) throws IOException {
+		Writer writer = open(TraceData.GPS_FILE);
+		try {
+			writer.write(time(startTime) + " STANDBY\n");
+			double t = startTime + 60 + random.nextInt(600);
+			while (t < endTime) {
+				writer.write(time(t) + " ACTIVE\n");
+				t += 30 + random.nextInt(90);
+				if (t >= endTime) {
+					break;
+				}
+				writer.write(time(t) + " STANDBY\n");
+				t += 120 + random.nextInt(900);
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	private Writer open(String name) throws IOException {
+		return new BufferedWriter(new FileWriter(new File(traceDir, name)));
+	}
+
+	private static String time(double seconds) {
+		return String.format(Locale.US, "%.3f", seconds);
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.synthetic;
+
+import java.io.IOException;
+
+/**
+ * Something that happens at a time of the trace: a connection sending its
+ * next packet, the user starting a burst or a beacon firing. The generator
+ * runs the flows in the order of their times, so that the packets of
+ * concurrent connections are interleaved and the pcap file is in time order.
+ */
+abstract class Flow implements Comparable<Flow> {
+
+	private final long id;
+	private long time;
+
+	/**
+	 * Initializes an instance of the Flow class.
+	 *
+	 * @param id
+	 *            The creation order of the flow, which orders the flows that
+	 *            run at the same time.
+	 * @param time
+	 *            The time of the first step, in microseconds since the epoch.
+	 */
+	Flow(long id, long time) {
+		this.id = id;
+		this.time = time;
+	}
+
+	/**
+	 * @return The time of the next step, in microseconds since the epoch.
+	 */
+	long getTime() {
+		return time;
+	}
+
+	/**
+	 * @param time
+	 *            The time of the next step, in microseconds since the epoch.
+	 */
+	void setTime(long time) {
+		this.time = time;
+	}
+
+	/**
+	 * Runs the step of the current time, and sets the time of the next one.
+	 *
+	 * @return False when the flow is finished.
+	 * @throws IOException
+	 *             when the trace cannot be written.
+	 */
+	abstract boolean step() throws IOException;
+
+	@Override
+	public int compareTo(Flow o) {
+		if (time != o.time) {
+			return time < o.time ? -1 : 1;
+		}
+		return id < o.id ? -1 : id == o.id ? 0 : 1;
+	}
+}
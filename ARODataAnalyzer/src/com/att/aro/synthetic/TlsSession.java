@@ -0,0 +1,424 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.synthetic;
+
+import java.io.ByteArrayOutputStream;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Random;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Writes the records of a TLS 1.0 session with the RSA key exchange and the
+ * TLS_RSA_WITH_AES_128_CBC_SHA cipher suite, the session the analyzer can
+ * decrypt with the master secret logged in keys.ssl. The pre-master secret is
+ * chosen instead of being encrypted with the key of a server certificate, so
+ * the certificate and the encrypted pre-master secret are random bytes.
+ */
+class TlsSession {
+
+	private static final int CONTENT_CHANGE_CIPHER_SPEC = 20;
+	private static final int CONTENT_ALERT = 21;
+	private static final int CONTENT_HANDSHAKE = 22;
+	private static final int CONTENT_APPLICATION_DATA = 23;
+
+	private static final int HANDSHAKE_CLIENT_HELLO = 1;
+	private static final int HANDSHAKE_SERVER_HELLO = 2;
+	private static final int HANDSHAKE_CERTIFICATE = 11;
+	private static final int HANDSHAKE_SERVER_HELLO_DONE = 14;
+	private static final int HANDSHAKE_CLIENT_KEY_EXCHANGE = 16;
+	private static final int HANDSHAKE_FINISHED = 20;
+
+	private static final int TLS_RSA_WITH_AES_128_CBC_SHA = 0x002F;
+	private static final int TLS_RSA_WITH_AES_256_CBC_SHA = 0x0035;
+	private static final int TLS_RSA_WITH_3DES_EDE_CBC_SHA = 0x000A;
+
+	private static final int MAX_RECORD_PLAINTEXT = 16384;
+	private static final int MAC_LEN = 20;
+	private static final int KEY_LEN = 16;
+	private static final int BLOCK_LEN = 16;
+
+	/**
+	 * Length of the pre-master secret of the RSA key exchange.
+	 */
+	static final int PRE_MASTER_LEN = 48;
+
+	/**
+	 * Length of the master secret.
+	 */
+	static final int MASTER_LEN = 48;
+
+	/**
+	 * The state of the records sent in a direction.
+	 */
+	private static class RecordWriter {
+		private final Mac mac;
+		private final Cipher cipher;
+		private long sequence;
+
+		RecordWriter(byte[] keyBlock, int macOffset, int keyOffset, int ivOffset)
+				throws GeneralSecurityException {
+			mac = Mac.getInstance("HmacSHA1");
+			mac.init(new SecretKeySpec(keyBlock, macOffset, MAC_LEN, "HmacSHA1"));
+			cipher = Cipher.getInstance("AES/CBC/NoPadding");
+
+			// The CBC state is kept from a record to the next one, as TLS 1.0
+			// uses the last block of a record as the IV of the next one
+			cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(keyBlock, keyOffset, KEY_LEN, "AES"),
+					new IvParameterSpec(keyBlock, ivOffset, BLOCK_LEN));
+		}
+
+		void write(ByteArrayOutputStream out, int type, byte[] data, int offset, int length) {
+			for (int i = 7; i >= 0; --i) {
+				mac.update((byte) (sequence >>> (i * 8)));
+			}
+			++sequence;
+			mac.update((byte) type);
+			mac.update((byte) 3);
+			mac.update((byte) 1);
+			mac.update((byte) (length >>> 8));
+			mac.update((byte) length);
+			mac.update(data, offset, length);
+			byte[] digest = mac.doFinal();
+
+			int padding = BLOCK_LEN - 1 - (length + MAC_LEN) % BLOCK_LEN;
+			byte[] plain = new byte[length + MAC_LEN + padding + 1];
+			System.arraycopy(data, offset, plain, 0, length);
+			System.arraycopy(digest, 0, plain, length, MAC_LEN);
+			for (int i = length + MAC_LEN; i < plain.length; ++i) {
+				plain[i] = (byte) padding;
+			}
+			writeHeader(out, type, plain.length);
+			byte[] encrypted = cipher.update(plain);
+			out.write(encrypted, 0, encrypted.length);
+		}
+	}
+
+	private final Random random;
+	private final byte[] clientRandom = new byte[32];
+	private final byte[] serverRandom = new byte[32];
+	private final byte[] preMaster = new byte[PRE_MASTER_LEN];
+	private final byte[] master;
+	private final ByteArrayOutputStream handshakeMessages = new ByteArrayOutputStream();
+	private RecordWriter client;
+	private RecordWriter server;
+
+	/**
+	 * Initializes an instance of the TlsSession class.
+	 *
+	 * @param random
+	 *            The source of the randoms and secrets of the session.
+	 * @param time
+	 *            The time of the handshake, in seconds since the epoch.
+	 */
+	TlsSession(Random random, long time) {
+		this.random = random;
+		random.nextBytes(clientRandom);
+		random.nextBytes(serverRandom);
+		putInt(clientRandom, 0, (int) time);
+		putInt(serverRandom, 0, (int) time);
+		random.nextBytes(preMaster);
+		preMaster[0] = 3;
+		preMaster[1] = 1;
+		master = prf(preMaster, "master secret", concat(clientRandom, serverRandom), MASTER_LEN);
+	}
+
+	/**
+	 * @return The pre-master secret.
+	 */
+	byte[] getPreMaster() {
+		return preMaster;
+	}
+
+	/**
+	 * @return The master secret.
+	 */
+	byte[] getMaster() {
+		return master;
+	}
+
+	/**
+	 * Returns the first flight of the client: the ClientHello.
+	 *
+	 * @return The records.
+	 */
+	byte[] clientHello() {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		body.write(3);
+		body.write(1);
+		body.write(clientRandom, 0, clientRandom.length);
+
+		// No session ID
+		body.write(0);
+		body.write(0);
+		body.write(6);
+		writeShort(body, TLS_RSA_WITH_AES_128_CBC_SHA);
+		writeShort(body, TLS_RSA_WITH_AES_256_CBC_SHA);
+		writeShort(body, TLS_RSA_WITH_3DES_EDE_CBC_SHA);
+
+		// Null compression only
+		body.write(1);
+		body.write(0);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writeHandshakeRecord(out, handshake(HANDSHAKE_CLIENT_HELLO, body.toByteArray()));
+		return out.toByteArray();
+	}
+
+	/**
+	 * Returns the first flight of the server: the ServerHello, a certificate
+	 * and the ServerHelloDone.
+	 *
+	 * @return The records.
+	 */
+	byte[] serverHello() {
+		ByteArrayOutputStream hello = new ByteArrayOutputStream();
+		hello.write(3);
+		hello.write(1);
+		hello.write(serverRandom, 0, serverRandom.length);
+		byte[] sessionID = new byte[32];
+		random.nextBytes(sessionID);
+		hello.write(sessionID.length);
+		hello.write(sessionID, 0, sessionID.length);
+		writeShort(hello, TLS_RSA_WITH_AES_128_CBC_SHA);
+		hello.write(0);
+
+		byte[] der = new byte[600 + random.nextInt(600)];
+		random.nextBytes(der);
+		der[0] = 0x30;
+		der[1] = (byte) 0x82;
+		der[2] = (byte) ((der.length - 4) >>> 8);
+		der[3] = (byte) (der.length - 4);
+		ByteArrayOutputStream certificates = new ByteArrayOutputStream();
+		writeInt24(certificates, der.length + 3);
+		writeInt24(certificates, der.length);
+		certificates.write(der, 0, der.length);
+
+		ByteArrayOutputStream messages = new ByteArrayOutputStream();
+		write(messages, handshake(HANDSHAKE_SERVER_HELLO, hello.toByteArray()));
+		write(messages, handshake(HANDSHAKE_CERTIFICATE, certificates.toByteArray()));
+		write(messages, handshake(HANDSHAKE_SERVER_HELLO_DONE, new byte[0]));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writeHandshakeRecord(out, messages.toByteArray());
+		return out.toByteArray();
+	}
+
+	/**
+	 * Returns the second flight of the client: the ClientKeyExchange, the
+	 * ChangeCipherSpec and the encrypted Finished.
+	 *
+	 * @return The records.
+	 */
+	byte[] clientFinished() {
+		byte[] encrypted = new byte[256];
+		random.nextBytes(encrypted);
+		ByteArrayOutputStream exchange = new ByteArrayOutputStream();
+		writeShort(exchange, encrypted.length);
+		exchange.write(encrypted, 0, encrypted.length);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writeHandshakeRecord(out, handshake(HANDSHAKE_CLIENT_KEY_EXCHANGE, exchange.toByteArray()));
+		initCiphers();
+		writeChangeCipherSpec(out);
+		byte[] finished = handshake(HANDSHAKE_FINISHED, verifyData("client finished"));
+		client.write(out, CONTENT_HANDSHAKE, finished, 0, finished.length);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Returns the second flight of the server: the ChangeCipherSpec and the
+	 * encrypted Finished.
+	 *
+	 * @return The records.
+	 */
+	byte[] serverFinished() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		writeChangeCipherSpec(out);
+		byte[] finished = handshake(HANDSHAKE_FINISHED, verifyData("server finished"));
+		server.write(out, CONTENT_HANDSHAKE, finished, 0, finished.length);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Encrypts application data in records.
+	 *
+	 * @param uplink
+	 *            True for data sent by the client.
+	 * @param data
+	 *            The application data.
+	 * @return The records.
+	 */
+	byte[] applicationData(boolean uplink, byte[] data) {
+		RecordWriter writer = uplink ? client : server;
+		ByteArrayOutputStream out = new ByteArrayOutputStream(data.length + data.length / 256 + 64);
+		for (int offset = 0; offset < data.length; offset += MAX_RECORD_PLAINTEXT) {
+			writer.write(out, CONTENT_APPLICATION_DATA, data, offset,
+					Math.min(MAX_RECORD_PLAINTEXT, data.length - offset));
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Returns the encrypted close_notify alert.
+	 *
+	 * @param uplink
+	 *            True for the alert of the client.
+	 * @return The record.
+	 */
+	byte[] closeNotify(boolean uplink) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] alert = { 1, 0 };
+		(uplink ? client : server).write(out, CONTENT_ALERT, alert, 0, alert.length);
+		return out.toByteArray();
+	}
+
+	private void initCiphers() {
+		byte[] keyBlock = prf(master, "key expansion", concat(serverRandom, clientRandom),
+				2 * (MAC_LEN + KEY_LEN + BLOCK_LEN));
+		try {
+			client = new RecordWriter(keyBlock, 0, 2 * MAC_LEN, 2 * MAC_LEN + 2 * KEY_LEN);
+			server = new RecordWriter(keyBlock, MAC_LEN, 2 * MAC_LEN + KEY_LEN, 2 * MAC_LEN + 2
+					* KEY_LEN + BLOCK_LEN);
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private byte[] verifyData(String label) {
+		try {
+			byte[] messages = handshakeMessages.toByteArray();
+			byte[] hashes = concat(MessageDigest.getInstance("MD5").digest(messages), MessageDigest
+					.getInstance("SHA-1").digest(messages));
+			return prf(master, label, hashes, 12);
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private byte[] handshake(int type, byte[] body) {
+		ByteArrayOutputStream message = new ByteArrayOutputStream(body.length + 4);
+		message.write(type);
+		writeInt24(message, body.length);
+		message.write(body, 0, body.length);
+		byte[] result = message.toByteArray();
+		write(handshakeMessages, result);
+		return result;
+	}
+
+	private static void writeHandshakeRecord(ByteArrayOutputStream out, byte[] messages) {
+		writeHeader(out, CONTENT_HANDSHAKE, messages.length);
+		write(out, messages);
+	}
+
+	private static void writeChangeCipherSpec(ByteArrayOutputStream out) {
+		writeHeader(out, CONTENT_CHANGE_CIPHER_SPEC, 1);
+		out.write(1);
+	}
+
+	private static void writeHeader(ByteArrayOutputStream out, int type, int length) {
+		out.write(type);
+		out.write(3);
+		out.write(1);
+		writeShort(out, length);
+	}
+
+	/**
+	 * The pseudo random function of TLS 1.0 and 1.1.
+	 *
+	 * @param secret
+	 *            The secret.
+	 * @param label
+	 *            The label.
+	 * @param seed
+	 *            The seed.
+	 * @param length
+	 *            The length of the result.
+	 * @return The pseudo random bytes.
+	 */
+	static byte[] prf(byte[] secret, String label, byte[] seed, int length) {
+		int half = (secret.length + 1) / 2;
+		byte[] s1 = new byte[half];
+		byte[] s2 = new byte[half];
+		System.arraycopy(secret, 0, s1, 0, half);
+		System.arraycopy(secret, secret.length - half, s2, 0, half);
+		byte[] labelSeed = new byte[label.length() + seed.length];
+		for (int i = 0; i < label.length(); ++i) {
+			labelSeed[i] = (byte) label.charAt(i);
+		}
+		System.arraycopy(seed, 0, labelSeed, label.length(), seed.length);
+
+		byte[] result = pHash("HmacMD5", s1, labelSeed, length);
+		byte[] sha = pHash("HmacSHA1", s2, labelSeed, length);
+		for (int i = 0; i < length; ++i) {
+			result[i] ^= sha[i];
+		}
+		return result;
+	}
+
+	private static byte[] pHash(String algorithm, byte[] secret, byte[] seed, int length) {
+		try {
+			Mac mac = Mac.getInstance(algorithm);
+			mac.init(new SecretKeySpec(secret, algorithm));
+			byte[] result = new byte[length];
+			byte[] a = seed;
+			for (int offset = 0; offset < length;) {
+				a = mac.doFinal(a);
+				mac.update(a);
+				byte[] block = mac.doFinal(seed);
+				int n = Math.min(block.length, length - offset);
+				System.arraycopy(block, 0, result, offset, n);
+				offset += n;
+			}
+			return result;
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void putInt(byte[] data, int offset, int value) {
+		data[offset] = (byte) (value >>> 24);
+		data[offset + 1] = (byte) (value >>> 16);
+		data[offset + 2] = (byte) (value >>> 8);
+		data[offset + 3] = (byte) value;
+	}
+
+	private static void writeShort(ByteArrayOutputStream out, int value) {
+		out.write(value >>> 8);
+		out.write(value);
+	}
+
+	private static void writeInt24(ByteArrayOutputStream out, int value) {
+		out.write(value >>> 16);
+		out.write(value >>> 8);
+		out.write(value);
+	}
+
+	private static void write(ByteArrayOutputStream out, byte[] data) {
+		out.write(data, 0, data.length);
+	}
+
+	private static byte[] concat(byte[] a, byte[] b) {
+		byte[] result = new byte[a.length + b.length];
+		System.arraycopy(a, 0, result, 0, a.length);
+		System.arraycopy(b, 0, result, a.length, b.length);
+		return result;
+	}
+}
@@ -0,0 +1,455 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.synthetic;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.logging.Logger;
+
+import com.att.aro.model.TraceData;
+import com.att.aro.pcap.packetRebuild.PCapFileWriter;
+
+/**
+ * Writes a synthetic trace directory that the analyzer opens like a trace
+ * recorded on a device: traffic.cap with the packets of the HTTP and HTTPS
+ * connections described by a {@link Workload}, the appid and appname files
+ * that assign the packets to the applications, keys.ssl with the master
+ * secrets of the HTTPS connections, and the time, device, CPU, user event and
+ * peripheral files. The same workload always writes the same trace, so large
+ * traces can be generated again instead of being stored.
+ * <p>
+ * Usage: TraceGenerator &lt;trace directory&gt; [workload file] [NAME=value ...]
+ */
+public class TraceGenerator {
+
+	private static final Logger logger = Logger.getLogger(TraceGenerator.class.getName());
+
+	private static final byte[] LOCAL_IP = { 10, 0, 0, 2 };
+	private static final String[] HOSTS = { "www", "api", "cdn", "img" };
+	private static final int LOCAL_PORT_MIN = 32768;
+	private static final int LOCAL_PORT_MAX = 60999;
+	private static final int DUPLICATES = 1024;
+	private static final long PROGRESS_BYTES = 256L * 1024 * 1024;
+
+	// Sizes of the pcap record header, the stubbed Ethernet header and the
+	// IP and TCP headers
+	private static final int PCAP_RECORD_OVERHEAD = 16 + 14;
+	private static final int HEADERS = 40;
+
+	private final Workload workload;
+	private final ContentFactory content;
+	private final Random random;
+	private final String[] appNames;
+	private final SimpleDateFormat dateFormat;
+	private final PriorityQueue<Flow> flows = new PriorityQueue<Flow>();
+	private final byte[] packet = new byte[HEADERS + Connection.MSS];
+	private final int[] recentObjects = new int[DUPLICATES];
+
+	private PCapFileWriter pcap;
+	private Writer appIds;
+	private OutputStream sslKeys;
+	private DeviceLogs deviceLogs;
+	private long endTime;
+	private long flowCount;
+	private int connections;
+	private int nextObjectId;
+	private int objectCount;
+	private int nextLocalPort = LOCAL_PORT_MIN;
+	private int ipId;
+	private long bytes;
+	private long nextProgress;
+	private long lastPacketTime;
+	private long dateSecond = -1;
+	private String date;
+
+	/**
+	 * Initializes an instance of the TraceGenerator class.
+	 *
+	 * @param workload
+	 *            The workload of the trace.
+	 * @throws IllegalArgumentException
+	 *             when the workload is not valid.
+	 */
+	public TraceGenerator(Workload workload) {
+		workload.validate();
+		this.workload = workload;
+		this.content = new ContentFactory(workload);
+		this.random = new Random(workload.getSeed());
+		this.appNames = new String[workload.getApps()];
+		for (int i = 0; i < appNames.length; ++i) {
+			appNames[i] = "com.synthetic.app" + i;
+		}
+		this.dateFormat = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+		dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+	}
+
+	/**
+	 * Writes the trace.
+	 *
+	 * @param traceDir
+	 *            The trace directory, created if needed.
+	 * @throws IOException
+	 *             when the trace cannot be written.
+	 */
+	public void generate(File traceDir) throws IOException {
+		if (!traceDir.isDirectory() && !traceDir.mkdirs()) {
+			throw new IOException("Unable to create " + traceDir);
+		}
+		long start = getStartTime();
+		endTime = workload.getDuration() > 0 ? start + (long) (workload.getDuration() * 1000000)
+				: Long.MAX_VALUE;
+		lastPacketTime = start;
+
+		pcap = new PCapFileWriter(new BufferedOutputStream(new FileOutputStream(new File(traceDir,
+				TraceData.PCAP_FILE)), 1 << 20));
+		bytes = 24;
+		nextProgress = PROGRESS_BYTES;
+		appIds = new BufferedWriter(new FileWriter(new File(traceDir, TraceData.APPID_FILE)), 1 << 16);
+		File keyFile = new File(traceDir, TraceData.SSLKEY_FILE);
+		if (workload.isSslKeys()) {
+			sslKeys = new BufferedOutputStream(new FileOutputStream(keyFile));
+		} else {
+			keyFile.delete();
+		}
+		deviceLogs = new DeviceLogs(traceDir, workload);
+		try {
+			flows.add(new UserActivity(start + 1000000 + random.nextInt(4000000)));
+			for (int i = 0; i < workload.getBeacons(); ++i) {
+				long interval = (long) (workload.getBeaconInterval() * 1000000);
+				flows.add(new Beacon(i, start + (long) (random.nextDouble() * interval)));
+			}
+			while (!flows.isEmpty()) {
+				Flow flow = flows.poll();
+				if (flow.step()) {
+					flows.add(flow);
+				}
+			}
+		} finally {
+			pcap.close();
+			appIds.close();
+			if (sslKeys != null) {
+				sslKeys.close();
+			}
+		}
+		long end = Math.max(lastPacketTime, endTime != Long.MAX_VALUE ? endTime : 0);
+		deviceLogs.close(end / 1e6, appNames);
+		logger.info("Wrote " + traceDir + ": " + connections + " connections, " + bytes
+				+ " bytes, " + (end - start) / 1000000 + " s");
+	}
+
+	/**
+	 * Writes a trace directory.
+	 *
+	 * @param args
+	 *            The trace directory, optionally followed by a workload file
+	 *            and by workload properties in the NAME=value form that
+	 *            override the file.
+	 */
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.err.println("Usage: TraceGenerator <trace directory> [workload file] [NAME=value ...]");
+			System.exit(1);
+		}
+		try {
+			Properties properties = new Properties();
+			for (int i = 1; i < args.length; ++i) {
+				int equals = args[i].indexOf('=');
+				if (equals > 0) {
+					properties.setProperty(args[i].substring(0, equals), args[i].substring(equals + 1));
+				} else {
+					FileReader reader = new FileReader(args[i]);
+					try {
+						Properties file = new Properties();
+						file.load(reader);
+						for (String name : file.stringPropertyNames()) {
+							if (!properties.containsKey(name)) {
+								properties.setProperty(name, file.getProperty(name));
+							}
+						}
+					} finally {
+						reader.close();
+					}
+				}
+			}
+			new TraceGenerator(new Workload(properties)).generate(new File(args[0]));
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * @return The workload of the trace.
+	 */
+	Workload getWorkload() {
+		return workload;
+	}
+
+	/**
+	 * @return The factory of the downloaded objects.
+	 */
+	ContentFactory getContent() {
+		return content;
+	}
+
+	/**
+	 * @return The start of the trace, in microseconds since the epoch.
+	 */
+	long getStartTime() {
+		return workload.getStartTime() * 1000000;
+	}
+
+	/**
+	 * Formats an HTTP date.
+	 *
+	 * @param time
+	 *            The time, in microseconds since the epoch.
+	 * @return The date in the RFC 1123 format.
+	 */
+	String formatDate(long time) {
+		long second = time / 1000000;
+		if (second != dateSecond) {
+			dateSecond = second;
+			date = dateFormat.format(new Date(second * 1000));
+		}
+		return date;
+	}
+
+	/**
+	 * Writes a packet of a connection.
+	 *
+	 * @param connection
+	 *            The connection.
+	 * @param segment
+	 *            The packet.
+	 * @throws IOException
+	 *             when the packet cannot be written.
+	 */
+	void writePacket(Connection connection, Connection.Segment segment) throws IOException {
+		ByteBuffer header = ByteBuffer.wrap(packet);
+		byte[] src = segment.uplink ? LOCAL_IP : connection.getRemoteIP();
+		byte[] dst = segment.uplink ? connection.getRemoteIP() : LOCAL_IP;
+
+		// IPv4 header
+		header.put((byte) 0x45).put((byte) 0).putShort((short) (HEADERS + segment.length));
+		header.putShort((short) ipId++).putShort((short) 0x4000);
+		header.put((byte) 64).put((byte) 6).putShort((short) 0);
+		header.put(src).put(dst);
+		header.putShort(10, checksum(packet, 0, 20));
+
+		// TCP header
+		int srcPort = segment.uplink ? connection.getLocalPort() : connection.getRemotePort();
+		int dstPort = segment.uplink ? connection.getRemotePort() : connection.getLocalPort();
+		header.putShort((short) srcPort).putShort((short) dstPort);
+		header.putInt((int) segment.seq).putInt((int) segment.ack);
+		header.put((byte) 0x50).put((byte) segment.flags).putShort((short) 65535);
+		header.putShort((short) 0).putShort((short) 0);
+		if (segment.length > 0) {
+			System.arraycopy(segment.data, segment.offset, packet, HEADERS, segment.length);
+		}
+		pcap.addPacket(packet, 0, HEADERS + segment.length, segment.time * 1000);
+		appIds.write(Integer.toString(connection.getApp()));
+		appIds.write('\n');
+
+		lastPacketTime = segment.time;
+		bytes += PCAP_RECORD_OVERHEAD + HEADERS + segment.length;
+		if (bytes >= nextProgress) {
+			nextProgress += PROGRESS_BYTES;
+			logger.info("Wrote " + bytes / (1024 * 1024) + " MB, "
+					+ (segment.time - getStartTime()) / 1000000 + " s of trace");
+		}
+	}
+
+	/**
+	 * Logs the master secret of a TLS session, as the collector does when the
+	 * session is negotiated. The connections log their keys in the order
+	 * they open, so the key file is in time order.
+	 *
+	 * @param time
+	 *            The time of the ServerHello, in microseconds since the epoch.
+	 * @param tls
+	 *            The TLS session.
+	 * @throws IllegalStateException
+	 *             when the key cannot be written.
+	 */
+	void logKey(long time, TlsSession tls) {
+		if (sslKeys == null) {
+			return;
+		}
+
+		// The layout of the native structure: time, pre-master length,
+		// pre-master and master secrets
+		ByteBuffer key = ByteBuffer.allocate(8 + 4 + TlsSession.PRE_MASTER_LEN
+				+ TlsSession.MASTER_LEN).order(ByteOrder.LITTLE_ENDIAN);
+		key.putDouble(time / 1e6).putInt(TlsSession.PRE_MASTER_LEN).put(tls.getPreMaster()).put(
+				tls.getMaster());
+		try {
+			sslKeys.write(key.array());
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @return True when a connection may be opened at the specified time.
+	 */
+	private boolean canOpen(long time) {
+		return time < endTime && (workload.getMaxSize() <= 0 || bytes < workload.getMaxSize())
+				&& (workload.getMaxConnections() <= 0 || connections < workload.getMaxConnections());
+	}
+
+	private void open(long time, int app, String host, byte[] remoteIP, boolean https,
+			List<Connection.Request> requests) {
+		int localPort = nextLocalPort;
+		nextLocalPort = localPort == LOCAL_PORT_MAX ? LOCAL_PORT_MIN : localPort + 1;
+		++connections;
+		flows.add(new Connection(this, flowCount++, time, app, host, remoteIP, localPort, https,
+				requests, new Random(random.nextLong())));
+	}
+
+	/**
+	 * Returns the object of a new request, which is a duplicate of a recent
+	 * object with the probability of the workload.
+	 */
+	private int nextObject() {
+		if (objectCount > 0 && random.nextDouble() < workload.getDuplicateRatio()) {
+			return recentObjects[random.nextInt(Math.min(objectCount, DUPLICATES))];
+		}
+		int id = nextObjectId++;
+		recentObjects[objectCount++ % DUPLICATES] = id;
+		return id;
+	}
+
+	private static int uniform(Random random, int min, int max) {
+		return min + random.nextInt(max - min + 1);
+	}
+
+	private static short checksum(byte[] data, int offset, int length) {
+		int sum = 0;
+		for (int i = offset; i < offset + length; i += 2) {
+			sum += ((data[i] & 0xff) << 8) | (data[i + 1] & 0xff);
+		}
+		while ((sum >> 16) != 0) {
+			sum = (sum & 0xffff) + (sum >> 16);
+		}
+		return (short) ~sum;
+	}
+
+	/**
+	 * The user, who touches the screen of an application every now and then,
+	 * which then opens a burst of connections.
+	 */
+	private class UserActivity extends Flow {
+
+		UserActivity(long time) {
+			super(flowCount++, time);
+		}
+
+		@Override
+		boolean step() throws IOException {
+			long time = getTime();
+			if (!canOpen(time)) {
+				return false;
+			}
+			int app = random.nextInt(appNames.length);
+			deviceLogs.touch(time / 1e6, app);
+
+			int count = uniform(random, workload.getConnectionsPerBurstMin(), workload
+					.getConnectionsPerBurstMax());
+			for (int i = 0; i < count && canOpen(time); ++i) {
+				int hostIndex = random.nextInt(HOSTS.length);
+				String host = HOSTS[hostIndex] + ".app" + app + ".example.com";
+				byte[] remoteIP = { 23, (byte) (app >>> 8), (byte) app, (byte) (hostIndex + 1) };
+				boolean https = random.nextDouble() < workload.getHttpsRatio();
+
+				int requestCount = uniform(random, workload.getRequestsPerConnectionMin(), workload
+						.getRequestsPerConnectionMax());
+				List<Connection.Request> requests = new ArrayList<Connection.Request>(requestCount);
+				for (int r = 0; r < requestCount; ++r) {
+					int object = nextObject();
+
+					// Some duplicates are requested from another URL
+					String path = random.nextInt(8) == 0 ? "/static/" + object + "?v="
+							+ random.nextInt(1000) : null;
+					requests.add(new Connection.Request("GET", path, object, null));
+				}
+				open(time + (i == 0 ? 0 : random.nextInt(300000)), app, host, remoteIP, https,
+						requests);
+			}
+
+			double min = workload.getBurstIntervalMin();
+			double max = workload.getBurstIntervalMax();
+			setTime(time + (long) ((min + random.nextDouble() * (max - min)) * 1000000));
+			return true;
+		}
+	}
+
+	/**
+	 * A beacon of an application that periodically posts a report on a new
+	 * connection, whatever the user does.
+	 */
+	private class Beacon extends Flow {
+		private final int index;
+		private final int app;
+		private final boolean https;
+		private int sequence;
+
+		Beacon(int index, long time) {
+			super(flowCount++, time);
+			this.index = index;
+			this.app = index % appNames.length;
+			this.https = random.nextDouble() < workload.getHttpsRatio();
+		}
+
+		@Override
+		boolean step() {
+			long time = getTime();
+			if (!canOpen(time)) {
+				return false;
+			}
+			byte[] report = content.report(random, workload.getBeaconSize());
+			List<Connection.Request> requests = new ArrayList<Connection.Request>(1);
+			requests.add(new Connection.Request("POST", "/collect?seq=" + sequence++, -1, report));
+			open(time, app, "beacon" + index + ".example.com", new byte[] { 23, (byte) 255,
+					(byte) (index >>> 8), (byte) index }, https, requests);
+
+			// The period drifts by a few milliseconds, as timers do
+			setTime(time + (long) (workload.getBeaconInterval() * 1000000) + random.nextInt(20000));
+			return true;
+		}
+	}
+}
@@ -0,0 +1,684 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.synthetic;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * Describes the traffic and device activity of a synthetic trace. A workload
+ * is read from a properties file, any property that is not set keeps its
+ * default. Times are in seconds and sizes in bytes.
+ * <p>
+ * The user of the device starts a burst of connections of one application
+ * every BURST_INTERVAL_MIN to BURST_INTERVAL_MAX seconds, and each connection
+ * downloads a few objects. In the background, each of the BEACONS beacons
+ * posts a small report every BEACON_INTERVAL seconds. The trace ends at the
+ * first of the DURATION, MAX_SIZE and MAX_CONNECTIONS limits that is set; the
+ * connections that are open at that time are completed.
+ */
+public class Workload {
+
+	/**
+	 * The seed of all the random choices. The same workload and seed write
+	 * the same trace.
+	 */
+	public static final String SEED = "SEED";
+
+	/**
+	 * The start of the trace, in seconds since the epoch.
+	 */
+	public static final String START_TIME = "START_TIME";
+
+	/**
+	 * The duration of the trace, 0 for no limit.
+	 */
+	public static final String DURATION = "DURATION";
+
+	/**
+	 * The size of the pcap file after which no connection is opened, 0 for
+	 * no limit.
+	 */
+	public static final String MAX_SIZE = "MAX_SIZE";
+
+	/**
+	 * The number of connections after which no connection is opened, 0 for
+	 * no limit.
+	 */
+	public static final String MAX_CONNECTIONS = "MAX_CONNECTIONS";
+
+	/**
+	 * The number of applications.
+	 */
+	public static final String APPS = "APPS";
+
+	/**
+	 * The network type code of the device details, such as 13 for LTE, 3 for
+	 * UMTS or -1 for WiFi.
+	 */
+	public static final String NETWORK_TYPE = "NETWORK_TYPE";
+
+	/**
+	 * The minimum time between two bursts of the user.
+	 */
+	public static final String BURST_INTERVAL_MIN = "BURST_INTERVAL_MIN";
+
+	/**
+	 * The maximum time between two bursts of the user.
+	 */
+	public static final String BURST_INTERVAL_MAX = "BURST_INTERVAL_MAX";
+
+	/**
+	 * The minimum number of connections of a burst.
+	 */
+	public static final String CONNECTIONS_PER_BURST_MIN = "CONNECTIONS_PER_BURST_MIN";
+
+	/**
+	 * The maximum number of connections of a burst.
+	 */
+	public static final String CONNECTIONS_PER_BURST_MAX = "CONNECTIONS_PER_BURST_MAX";
+
+	/**
+	 * The minimum number of requests of a connection.
+	 */
+	public static final String REQUESTS_PER_CONNECTION_MIN = "REQUESTS_PER_CONNECTION_MIN";
+
+	/**
+	 * The maximum number of requests of a connection.
+	 */
+	public static final String REQUESTS_PER_CONNECTION_MAX = "REQUESTS_PER_CONNECTION_MAX";
+
+	/**
+	 * The ratio of the connections that use HTTPS.
+	 */
+	public static final String HTTPS_RATIO = "HTTPS_RATIO";
+
+	/**
+	 * The minimum size of an object.
+	 */
+	public static final String OBJECT_SIZE_MIN = "OBJECT_SIZE_MIN";
+
+	/**
+	 * The maximum size of an object. The sizes are distributed uniformly on
+	 * a logarithmic scale.
+	 */
+	public static final String OBJECT_SIZE_MAX = "OBJECT_SIZE_MAX";
+
+	/**
+	 * The ratio of the objects that are text, the others are images.
+	 */
+	public static final String TEXT_RATIO = "TEXT_RATIO";
+
+	/**
+	 * The ratio of the text objects that are sent gzipped.
+	 */
+	public static final String GZIP_RATIO = "GZIP_RATIO";
+
+	/**
+	 * The ratio of the requests for an object that was already downloaded.
+	 */
+	public static final String DUPLICATE_RATIO = "DUPLICATE_RATIO";
+
+	/**
+	 * The number of periodic beacons.
+	 */
+	public static final String BEACONS = "BEACONS";
+
+	/**
+	 * The period of the beacons.
+	 */
+	public static final String BEACON_INTERVAL = "BEACON_INTERVAL";
+
+	/**
+	 * The size of the report posted by a beacon.
+	 */
+	public static final String BEACON_SIZE = "BEACON_SIZE";
+
+	/**
+	 * The round trip time between the device and the servers.
+	 */
+	public static final String RTT = "RTT";
+
+	/**
+	 * The downlink bandwidth, in bytes per second.
+	 */
+	public static final String BANDWIDTH = "BANDWIDTH";
+
+	/**
+	 * Whether the keys of the HTTPS connections are written to keys.ssl.
+	 */
+	public static final String SSL_KEYS = "SSL_KEYS";
+
+	private long seed = 1;
+	private long startTime = 1388534400;
+	private double duration = 3600;
+	private long maxSize;
+	private int maxConnections;
+	private int apps = 5;
+	private int networkType = 13;
+	private double burstIntervalMin = 20;
+	private double burstIntervalMax = 120;
+	private int connectionsPerBurstMin = 1;
+	private int connectionsPerBurstMax = 6;
+	private int requestsPerConnectionMin = 1;
+	private int requestsPerConnectionMax = 8;
+	private double httpsRatio = 0.5;
+	private int objectSizeMin = 500;
+	private int objectSizeMax = 500000;
+	private double textRatio = 0.6;
+	private double gzipRatio = 0.5;
+	private double duplicateRatio = 0.1;
+	private int beacons = 2;
+	private double beaconInterval = 60;
+	private int beaconSize = 300;
+	private double rtt = 0.08;
+	private double bandwidth = 1000000;
+	private boolean sslKeys = true;
+
+	/**
+	 * Initializes an instance of the Workload class with the default values.
+	 */
+	public Workload() {
+	}
+
+	/**
+	 * Initializes an instance of the Workload class from the specified
+	 * properties.
+	 *
+	 * @param properties
+	 *            The workload properties.
+	 * @throws IllegalArgumentException
+	 *             when a value is not valid.
+	 */
+	public Workload(Properties properties) {
+		seed = readLong(properties, SEED, seed);
+		startTime = readLong(properties, START_TIME, startTime);
+		duration = readDouble(properties, DURATION, duration);
+		maxSize = readLong(properties, MAX_SIZE, maxSize);
+		maxConnections = readInt(properties, MAX_CONNECTIONS, maxConnections);
+		apps = readInt(properties, APPS, apps);
+		networkType = readInt(properties, NETWORK_TYPE, networkType);
+		burstIntervalMin = readDouble(properties, BURST_INTERVAL_MIN, burstIntervalMin);
+		burstIntervalMax = readDouble(properties, BURST_INTERVAL_MAX, burstIntervalMax);
+		connectionsPerBurstMin = readInt(properties, CONNECTIONS_PER_BURST_MIN, connectionsPerBurstMin);
+		connectionsPerBurstMax = readInt(properties, CONNECTIONS_PER_BURST_MAX, connectionsPerBurstMax);
+		requestsPerConnectionMin = readInt(properties, REQUESTS_PER_CONNECTION_MIN, requestsPerConnectionMin);
+		requestsPerConnectionMax = readInt(properties, REQUESTS_PER_CONNECTION_MAX, requestsPerConnectionMax);
+		httpsRatio = readDouble(properties, HTTPS_RATIO, httpsRatio);
+		objectSizeMin = readInt(properties, OBJECT_SIZE_MIN, objectSizeMin);
+		objectSizeMax = readInt(properties, OBJECT_SIZE_MAX, objectSizeMax);
+		textRatio = readDouble(properties, TEXT_RATIO, textRatio);
+		gzipRatio = readDouble(properties, GZIP_RATIO, gzipRatio);
+		duplicateRatio = readDouble(properties, DUPLICATE_RATIO, duplicateRatio);
+		beacons = readInt(properties, BEACONS, beacons);
+		beaconInterval = readDouble(properties, BEACON_INTERVAL, beaconInterval);
+		beaconSize = readInt(properties, BEACON_SIZE, beaconSize);
+		rtt = readDouble(properties, RTT, rtt);
+		bandwidth = readDouble(properties, BANDWIDTH, bandwidth);
+		sslKeys = Boolean.valueOf(properties.getProperty(SSL_KEYS, Boolean.toString(sslKeys)));
+	}
+
+	/**
+	 * Reads a workload from a properties file.
+	 *
+	 * @param file
+	 *            The properties file.
+	 * @return The workload.
+	 * @throws IOException
+	 *             when the file cannot be read.
+	 * @throws IllegalArgumentException
+	 *             when a value is not valid.
+	 */
+	public static Workload load(File file) throws IOException {
+		FileReader reader = new FileReader(file);
+		try {
+			Properties properties = new Properties();
+			properties.load(reader);
+			return new Workload(properties);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Checks that the workload can be generated.
+	 *
+	 * @throws IllegalArgumentException
+	 *             when a value is out of its range, or when the trace has no
+	 *             limit.
+	 */
+	public void validate() {
+		if (duration <= 0 && maxSize <= 0 && maxConnections <= 0) {
+			throw new IllegalArgumentException("One of " + DURATION + ", " + MAX_SIZE + " and "
+					+ MAX_CONNECTIONS + " must be set");
+		}
+		check(APPS, apps >= 1);
+		check(BURST_INTERVAL_MIN, burstIntervalMin > 0);
+		check(BURST_INTERVAL_MAX, burstIntervalMax >= burstIntervalMin);
+		check(CONNECTIONS_PER_BURST_MIN, connectionsPerBurstMin >= 1);
+		check(CONNECTIONS_PER_BURST_MAX, connectionsPerBurstMax >= connectionsPerBurstMin);
+		check(REQUESTS_PER_CONNECTION_MIN, requestsPerConnectionMin >= 1);
+		check(REQUESTS_PER_CONNECTION_MAX, requestsPerConnectionMax >= requestsPerConnectionMin);
+		check(HTTPS_RATIO, httpsRatio >= 0 && httpsRatio <= 1);
+		check(OBJECT_SIZE_MIN, objectSizeMin >= 1);
+		check(OBJECT_SIZE_MAX, objectSizeMax >= objectSizeMin);
+		check(TEXT_RATIO, textRatio >= 0 && textRatio <= 1);
+		check(GZIP_RATIO, gzipRatio >= 0 && gzipRatio <= 1);
+		check(DUPLICATE_RATIO, duplicateRatio >= 0 && duplicateRatio <= 1);
+		check(BEACONS, beacons >= 0);
+		check(BEACON_INTERVAL, beacons == 0 || beaconInterval > 0);
+		check(BEACON_SIZE, beaconSize >= 0);
+		check(RTT, rtt >= 0);
+		check(BANDWIDTH, bandwidth > 0);
+	}
+
+	private static void check(String attribute, boolean valid) {
+		if (!valid) {
+			throw new IllegalArgumentException("Invalid value of " + attribute);
+		}
+	}
+
+	private static String value(Properties properties, String attribute) {
+		String value = properties.getProperty(attribute);
+		return value != null ? value.trim() : null;
+	}
+
+	private static double readDouble(Properties properties, String attribute, double defaultVal) {
+		String value = value(properties, attribute);
+		try {
+			return value != null ? Double.parseDouble(value) : defaultVal;
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid value of " + attribute + ": " + value);
+		}
+	}
+
+	private static long readLong(Properties properties, String attribute, long defaultVal) {
+		String value = value(properties, attribute);
+		try {
+			return value != null ? Long.parseLong(value) : defaultVal;
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid value of " + attribute + ": " + value);
+		}
+	}
+
+	private static int readInt(Properties properties, String attribute, int defaultVal) {
+		String value = value(properties, attribute);
+		try {
+			return value != null ? Integer.parseInt(value) : defaultVal;
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid value of " + attribute + ": " + value);
+		}
+	}
+
+	/**
+	 * @return The seed of the random choices.
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @param seed
+	 *            The seed of the random choices.
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * @return The start of the trace, in seconds since the epoch.
+	 */
+	public long getStartTime() {
+		return startTime;
+	}
+
+	/**
+	 * @param startTime
+	 *            The start of the trace, in seconds since the epoch.
+	 */
+	public void setStartTime(long startTime) {
+		this.startTime = startTime;
+	}
+
+	/**
+	 * @return The duration of the trace, 0 for no limit.
+	 */
+	public double getDuration() {
+		return duration;
+	}
+
+	/**
+	 * @param duration
+	 *            The duration of the trace, 0 for no limit.
+	 */
+	public void setDuration(double duration) {
+		this.duration = duration;
+	}
+
+	/**
+	 * @return The size of the pcap file after which no connection is opened,
+	 *         0 for no limit.
+	 */
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * @param maxSize
+	 *            The size of the pcap file after which no connection is
+	 *            opened, 0 for no limit.
+	 */
+	public void setMaxSize(long maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * @return The number of connections of the trace, 0 for no limit.
+	 */
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+
+	/**
+	 * @param maxConnections
+	 *            The number of connections of the trace, 0 for no limit.
+	 */
+	public void setMaxConnections(int maxConnections) {
+		this.maxConnections = maxConnections;
+	}
+
+	/**
+	 * @return The number of applications.
+	 */
+	public int getApps() {
+		return apps;
+	}
+
+	/**
+	 * @param apps
+	 *            The number of applications.
+	 */
+	public void setApps(int apps) {
+		this.apps = apps;
+	}
+
+	/**
+	 * @return The network type code of the device details.
+	 */
+	public int getNetworkType() {
+		return networkType;
+	}
+
+	/**
+	 * @param networkType
+	 *            The network type code of the device details.
+	 */
+	public void setNetworkType(int networkType) {
+		this.networkType = networkType;
+	}
+
+	/**
+	 * @return The minimum time between two bursts.
+	 */
+	public double getBurstIntervalMin() {
+		return burstIntervalMin;
+	}
+
+	/**
+	 * @return The maximum time between two bursts.
+	 */
+	public double getBurstIntervalMax() {
+		return burstIntervalMax;
+	}
+
+	/**
+	 * @param min
+	 *            The minimum time between two bursts.
+	 * @param max
+	 *            The maximum time between two bursts.
+	 */
+	public void setBurstInterval(double min, double max) {
+		this.burstIntervalMin = min;
+		this.burstIntervalMax = max;
+	}
+
+	/**
+	 * @return The minimum number of connections of a burst.
+	 */
+	public int getConnectionsPerBurstMin() {
+		return connectionsPerBurstMin;
+	}
+
+	/**
+	 * @return The maximum number of connections of a burst.
+	 */
+	public int getConnectionsPerBurstMax() {
+		return connectionsPerBurstMax;
+	}
+
+	/**
+	 * @param min
+	 *            The minimum number of connections of a burst.
+	 * @param max
+	 *            The maximum number of connections of a burst.
+	 */
+	public void setConnectionsPerBurst(int min, int max) {
+		this.connectionsPerBurstMin = min;
+		this.connectionsPerBurstMax = max;
+	}
+
+	/**
+	 * @return The minimum number of requests of a connection.
+	 */
+	public int getRequestsPerConnectionMin() {
+		return requestsPerConnectionMin;
+	}
+
+	/**
+	 * @return The maximum number of requests of a connection.
+	 */
+	public int getRequestsPerConnectionMax() {
+		return requestsPerConnectionMax;
+	}
+
+	/**
+	 * @param min
+	 *            The minimum number of requests of a connection.
+	 * @param max
+	 *            The maximum number of requests of a connection.
+	 */
+	public void setRequestsPerConnection(int min, int max) {
+		this.requestsPerConnectionMin = min;
+		this.requestsPerConnectionMax = max;
+	}
+
+	/**
+	 * @return The ratio of the connections that use HTTPS.
+	 */
+	public double getHttpsRatio() {
+		return httpsRatio;
+	}
+
+	/**
+	 * @param httpsRatio
+	 *            The ratio of the connections that use HTTPS.
+	 */
+	public void setHttpsRatio(double httpsRatio) {
+		this.httpsRatio = httpsRatio;
+	}
+
+	/**
+	 * @return The minimum size of an object.
+	 */
+	public int getObjectSizeMin() {
+		return objectSizeMin;
+	}
+
+	/**
+	 * @return The maximum size of an object.
+	 */
+	public int getObjectSizeMax() {
+		return objectSizeMax;
+	}
+
+	/**
+	 * @param min
+	 *            The minimum size of an object.
+	 * @param max
+	 *            The maximum size of an object.
+	 */
+	public void setObjectSize(int min, int max) {
+		this.objectSizeMin = min;
+		this.objectSizeMax = max;
+	}
+
+	/**
+	 * @return The ratio of the objects that are text.
+	 */
+	public double getTextRatio() {
+		return textRatio;
+	}
+
+	/**
+	 * @param textRatio
+	 *            The ratio of the objects that are text.
+	 */
+	public void setTextRatio(double textRatio) {
+		this.textRatio = textRatio;
+	}
+
+	/**
+	 * @return The ratio of the text objects that are sent gzipped.
+	 */
+	public double getGzipRatio() {
+		return gzipRatio;
+	}
+
+	/**
+	 * @param gzipRatio
+	 *            The ratio of the text objects that are sent gzipped.
+	 */
+	public void setGzipRatio(double gzipRatio) {
+		this.gzipRatio = gzipRatio;
+	}
+
+	/**
+	 * @return The ratio of the requests for an object already downloaded.
+	 */
+	public double getDuplicateRatio() {
+		return duplicateRatio;
+	}
+
+	/**
+	 * @param duplicateRatio
+	 *            The ratio of the requests for an object already downloaded.
+	 */
+	public void setDuplicateRatio(double duplicateRatio) {
+		this.duplicateRatio = duplicateRatio;
+	}
+
+	/**
+	 * @return The number of periodic beacons.
+	 */
+	public int getBeacons() {
+		return beacons;
+	}
+
+	/**
+	 * @param beacons
+	 *            The number of periodic beacons.
+	 */
+	public void setBeacons(int beacons) {
+		this.beacons = beacons;
+	}
+
+	/**
+	 * @return The period of the beacons.
+	 */
+	public double getBeaconInterval() {
+		return beaconInterval;
+	}
+
+	/**
+	 * @param beaconInterval
+	 *            The period of the beacons.
+	 */
+	public void setBeaconInterval(double beaconInterval) {
+		this.beaconInterval = beaconInterval;
+	}
+
+	/**
+	 * @return The size of the report posted by a beacon.
+	 */
+	public int getBeaconSize() {
+		return beaconSize;
+	}
+
+	/**
+	 * @param beaconSize
+	 *            The size of the report posted by a beacon.
+	 */
+	public void setBeaconSize(int beaconSize) {
+		this.beaconSize = beaconSize;
+	}
+
+	/**
+	 * @return The round trip time.
+	 */
+	public double getRtt() {
+		return rtt;
+	}
+
+	/**
+	 * @param rtt
+	 *            The round trip time.
+	 */
+	public void setRtt(double rtt) {
+		this.rtt = rtt;
+	}
+
+	/**
+	 * @return The downlink bandwidth, in bytes per second.
+	 */
+	public double getBandwidth() {
+		return bandwidth;
+	}
+
+	/**
+	 * @param bandwidth
+	 *            The downlink bandwidth, in bytes per second.
+	 */
+	public void setBandwidth(double bandwidth) {
+		this.bandwidth = bandwidth;
+	}
+
+	/**
+	 * @return Whether the keys of the HTTPS connections are written.
+	 */
+	public boolean isSslKeys() {
+		return sslKeys;
+	}
+
+	/**
+	 * @param sslKeys
+	 *            Whether the keys of the HTTPS connections are written.
+	 */
+	public void setSslKeys(boolean sslKeys) {
+		this.sslKeys = sslKeys;
+	}
+}
@@ -16,26 +16,13 @@
 
 package com.att.android.arodatacollector.main;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.DataOutputStream;
-import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.net.SocketException;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import android.app.ActivityManager;
 import android.app.ActivityManager.RecentTaskInfo;
@@ -70,6 +57,7 @@ import android.util.Log;
 import com.att.android.arodatacollector.R;
 import com.att.android.arodatacollector.utils.AROCollectorUtils;
 import com.att.android.arodatacollector.utils.AROLogger;
+import com.att.android.arodatacollector.utils.ProcCpuSampler;
 import com.flurry.android.FlurryAgent;
 
 /**
@@ -125,6 +113,9 @@ public class AROCollectorTraceService extends Service {
 	/** cpu event file name */
 	private static final String outCpuFileName = "cpu";
 
+	/** cpu sampling log file name */
+	private static final String outCpuDebugFileName = "cpu_log.txt";
+
 	/**
 	 * LandScape Screen orientation
 	 */
@@ -191,28 +182,28 @@ public class AROCollectorTraceService extends Service {
 	/** Previous GPS enabled state */
 	private boolean prevGpsEnabledState = false;
 
-	/** Timer to run every 500 milliseconds to check GPS states */
-	private Timer checkLocationService = new Timer();
+	/** Poll to run every second to check GPS states */
+	private AROEventJournal.Poll checkLocationService;
 
-	/** Timer to run every 500 milliseconds to check Camera states */
-	private Timer checkCameraLaunch = new Timer();
+	/** Poll to run every second to check Camera states */
+	private AROEventJournal.Poll checkCameraLaunch;
 
 	/**
-	 * Timer to run every 5 seconds to check SD card space is always greater
+	 * Poll to run every 5 seconds to check SD card space is always greater
 	 * than 5MB to continue trace
 	 */
-	private Timer checkSDCardSpace = new Timer();
+	private AROEventJournal.Poll checkSDCardSpace;
 	
 	/**
-	 * Timer to run every 1 second to check Airplane mode has not been enabled
+	 * Poll to run every 1 second to check Airplane mode has not been enabled
 	 */
-	private Timer checkAirplaneModeEnabled = new Timer();
+	private AROEventJournal.Poll checkAirplaneModeEnabled;
 
 	/**
-	 * Timer to run every 500 milliseconds to get screen brightness value in
+	 * Poll to run every second to get screen brightness value in
 	 * order to get change
 	 */
-	private Timer checkScreenBrightness = new Timer();
+	private AROEventJournal.Poll checkScreenBrightness;
 
 	/** Intent filter to adding action for broadcast receivers **/
 	private IntentFilter mAROIntentFilter;
@@ -236,33 +227,11 @@ public class AROCollectorTraceService extends Service {
 	/**indicates whether WIFI, MOBILE, or UNKNOWN **/
 	private String mAROPrevBearer = AroTraceFileConstants.NOT_ASSIGNED_NETWORK;
 	
-	/** Output stream and Buffer Writer for peripherals traces files */
-	private OutputStream mWifiTraceOutputFile;
-	private BufferedWriter mWifiTracewriter;
-	private OutputStream mBatteryTraceOutputFile;
-	private BufferedWriter mBatteryTracewriter;
-	private OutputStream mGPSTraceOutputFile;
-	private BufferedWriter mGPSTracewriter;
-	private OutputStream mRadioTraceOutputFile;
-	private BufferedWriter mRadioTracewriter;
-	private OutputStream mCameraTraceOutputFile;
-	private BufferedWriter mCameraTracewriter;
-	private OutputStream mBluetoohTraceOutputFile;
-	private BufferedWriter mBluetoothTracewriter;
-	private OutputStream mScreenOutputFile;
-	private BufferedWriter mScreenTracewriter;
-	private OutputStream mScreenRotationOutputFile;
-	private BufferedWriter mScreenRotationTracewriter;
-	private OutputStream mActiveProcessOutputFile;
-	private BufferedWriter mActiveProcessTracewriter;
-	private OutputStream mDeviceInfoOutputFile;
-	private OutputStream mDeviceDetailsOutputFile;
-	private BufferedWriter mDeviceInfoWriter;
-	private BufferedWriter mDeviceDetailsWriter;
-	private OutputStream mNetworkDetailsOutputFile;
-	private BufferedWriter mNetworkTracewriter;
-	private OutputStream mCpuTraceOutputFile;
-	private BufferedWriter mCpuTraceWriter;
+	/**
+	 * Journal writing the peripherals traces files, also runs the periodic
+	 * polls of the trace
+	 */
+	private AROEventJournal mEventJournal;
 	
 	/** ARO Data Collector utilities class object */
 	private AROCollectorUtils mAroUtils;
@@ -301,28 +270,11 @@ public class AROCollectorTraceService extends Service {
 	public static FlurryEvent makeModelEvent = null;			//log Flurry event at end of trace
 	
 	//for cpu tracing
-	private boolean columnHeaderLineProcessed = false, columnIndicesSet = false, totalCpuLineProcessed = false;
-	private boolean doneParsingProcessCpu = false;
-	private static int processCpuColumnIndex = -1, processNameColumnIndex = -1, curProcessCount = 0, nonEmptyLineNum = 0;
-	private static final int PROCESS_LIMIT = 8;
-	
-	private static final String CPU_HEADER = "CPU%";
-	private static final String PROCESS_NAME_HEADER = "Name";
-	
-	//private static final Pattern totalCpuLinePattern = Pattern.compile("^User (\\d+)%, System (\\d+)%, IOW (\\d+)%, IRQ (\\d+)%");
-	//total cpu line has pattern: "User 261 + Nice 1 + Sys 105 + Idle 388 + IOW 7 + IRQ 0 + SIRQ 0 = 762"
-	private static final Pattern totalCpuLinePattern = Pattern.compile("^User (\\d+) \\+ Nice (\\d+) \\+ Sys (\\d+) \\+ Idle (\\d+) \\+ IOW (\\d+) \\+ IRQ (\\d+) \\+ SIRQ (\\d+) = (\\d+)");
-	private static final int CPU_PATTERN_GROUP_COUNT = 8;
-	private static final int TOTAL_CPU_GROUP_NUMBER = 8;
-	private static final int IDLE_CPU_GROUP_NUMBER = 4;
-	
-	private static final String WHITE_SPACE_REG_EXP = "\\s+";
-	private static final int CPU_TRACE_INTERVAL_MILLIS = 5000;
-	private static final int CPU_TRACE_INITIAL_DELAY_MILLIS = 4000;
+	private static final int CPU_TRACE_INTERVAL_MILLIS = 2000;
+	private static final String CPU_TRACE_INTERVAL_PREF = "CPU_TRACE_INTERVAL_MILLIS";
 	
-	Timer cpuProcessingTimer;
-	private final String CPU_DIR = "CpuFiles/";
-	private static final String CPU_SCRIPT_PID = "CPU_SCRIPT_PID";
+	private AROEventJournal.Poll cpuProcessingPoll;
+	private ProcCpuSampler cpuSampler;
 	
 	public static final String USB_BROADCAST_ACTION = "USB_BROADCAST_ACTION";
 	private static Intent usbBroadcastIntent;
@@ -439,415 +391,63 @@ public class AROCollectorTraceService extends Service {
 	
 
 	/**
-	 * save the pid of the cpu script
-	 * @param pid
+	 * get the cpu sampling interval, can be changed with the
+	 * CPU_TRACE_INTERVAL_MILLIS preference
+	 * @return interval in milliseconds
 	 */
-	public void setCpuScriptPid(String pid) {
-		int pidInt = -1;
-		try {
-			pidInt = Integer.parseInt(pid);
-		} catch (Exception e){
-			e.printStackTrace();
-		}
-		
+	private int getCpuTraceInterval() {
 		final SharedPreferences prefs = getSharedPreferences(ARODataCollector.PREFS, 0);
-		SharedPreferences.Editor editor = prefs.edit();
-		editor.putInt(CPU_SCRIPT_PID, pidInt);
-		editor.commit();
-	}
-	
-	/**
-	 * get the full path of the directory of the cpu files
-	 * @return full path of the cpu dir
-	 */
-	private String getCpuDirFullPath(){
-		return mApp.getTcpDumpTraceFolderName() + CPU_DIR;
-	}
-	
-
-	/**
-	 * get the pid of the cpu script
-	 * 
-	 * @return pid of the cpu script
-	 */
-	public int getCpuScriptPid() {
-		final SharedPreferences prefs = getSharedPreferences(ARODataCollector.PREFS, 0);
-		return prefs.getInt(CPU_SCRIPT_PID, -1);
-	}
-	
-	/**
-	 * Start the script that tracks the cpu usage stats
-	 * 1. give script executable permission
-	 * 2. make output dir
-	 * 3. execute script
-	 */
-	private void startAROCpuTraceScript(){
-		
-		AROLogger.d(TAG, "starting startAROCpuTraceScript()");
-		final int cpuScriptPid = getCpuScriptPid();
-		
-		String traceFolder = mApp.getTcpDumpTraceFolderName();
-		File traceName= new File(traceFolder);
-		if (!traceName.exists()){
-			traceName.mkdir();
-		}
-		
-		if (cpuScriptPid == -1){
-			//script NOT already running,  need to start it
-			String cpuDirFullPath = getCpuDirFullPath();
-			
-			DataOutputStream os = null;
-			try {
-				File cpuDir = new File(cpuDirFullPath);
-				if (!cpuDir.exists()){
-					cpuDir.mkdir();
-				}
-					
-				Process cpuMonProcess = Runtime.getRuntime().exec("su");  AROLogger.e(TAG, "startAROCpuTraceScript - su pid = "+cpuMonProcess);
-				os = new DataOutputStream(cpuMonProcess.getOutputStream());
-				String Command = "chmod 777 " + ARODataCollector.INTERNAL_DATA_PATH + ARODataCollector.PROCESS_CPU_MON + "\n";
-				os.writeBytes(Command);
-					
-				int currentApiVersion = android.os.Build.VERSION.SDK_INT;
-				
-				Command = android.os.Build.VERSION.RELEASE.equals("5.0") ? "su -cn u:r:untrusted_app:s0 -c " : "";
-				Command += "sh " + ARODataCollector.INTERNAL_DATA_PATH + ARODataCollector.PROCESS_CPU_MON + " " + cpuDirFullPath + "\n";
-				os.writeBytes(Command);
-				os.flush();
-					
-				BufferedReader reader = new BufferedReader(new InputStreamReader(cpuMonProcess.getInputStream()));
-				//the pid is the first line of the output
-				String pid = reader.readLine();
-				setCpuScriptPid(pid);
-			} catch (Exception e){
-				e.printStackTrace();
-			}
-			finally {
-				if (os != null){
-					try {
-						os.close();
-					} catch (IOException e) {
-						e.printStackTrace();
-					}
-				}
-			}
-		}
-		else {
-			AROLogger.d(TAG, "script already running under pid=" + cpuScriptPid);
-			writeTraceLineToAROTraceFile(mCpuDebugWriter, "script already running under pid=" + cpuScriptPid, true);
-		}
+		return Math.max(prefs.getInt(CPU_TRACE_INTERVAL_PREF, CPU_TRACE_INTERVAL_MILLIS), 500);
 	}
 	
 	/**
 	 * method to start the cpu trace
+	 * samples /proc/stat and /proc/<pid>/stat at a fixed rate
 	 */
 	private void startAROCpuTrace(){
-		//start the script
-		startAROCpuTraceScript();
+		cpuSampler = new ProcCpuSampler();
 		
-		//start timer to process the script output files
-		cpuProcessingTimer = new Timer();
-				
-		TimerTask checkCpuUsageTask = new TimerTask(){
-		//Runnable cpuTrace = new Runnable(){
+		//first sample only sets the baseline
+		cpuSampler.sample(mAroUtils.getDataCollectorEventTimeStamp());
+		
+		cpuProcessingPoll = mEventJournal.schedulePoll(new Runnable(){
 			public void run(){
-				processCpuDirectory(); 
+				sampleCpu(); 
 			}
-
-		};
-		
-		cpuProcessingTimer.scheduleAtFixedRate(checkCpuUsageTask, CPU_TRACE_INITIAL_DELAY_MILLIS, CPU_TRACE_INTERVAL_MILLIS);
+		}, getCpuTraceInterval());
 	}
 	
 	/**
-	 * Method to process all the files in the cpu directory.
-	 * needs synchronization here so that in case the timertask is already in progress,
+	 * take a cpu sample and write it to the cpu trace file.
+	 * needs synchronization here so that in case the poll is already in progress,
 	 * the stop code calling this method will need to wait
 	 */
-	private synchronized void processCpuDirectory() {
-		long start = System.currentTimeMillis();
-		AROLogger.v(TAG, "processCpuDirectory() started at " + start);
-		writeTraceLineToAROTraceFile(mCpuDebugWriter, "cpu file processing started", true);
-		try {
-			File cpuDir = new File(getCpuDirFullPath());
-			if (cpuDir.exists() && cpuDir.listFiles() != null){
-				for (File cpuFile : cpuDir.listFiles()){
-					processCpuFile(cpuFile);
-				}
-			}
-			
-		} catch (Exception e) {
-			writeTraceLineToAROTraceFile(mCpuDebugWriter, "Exception occurred in checkCpuUsageTask: " + e.getMessage(), true);
-			e.printStackTrace();
-		}
-		
-		long end = System.currentTimeMillis();
-
-		if (AROLogger.logVerbose){
-			AROLogger.v(TAG, "processCpuDirectory() ended at " + end + ". Duration: " + (end - start));
-		}
-	}
-
-	
-	/**
-	 * Method to process the cpu statistic file, which is the output of the 'top' command
-	 * @param cpuFile
-	 */
-	private void processCpuFile(File cpuFile){
-		writeTraceLineToAROTraceFile(mCpuDebugWriter, "start processing " + cpuFile.getName(), true);
-		long start = System.currentTimeMillis();
-		//reset columnHeaderLineProcessed, totalCpuLineProcessed
-		columnHeaderLineProcessed = false;
-		totalCpuLineProcessed = false;
-		curProcessCount = 0;
-		nonEmptyLineNum = 0;
-		
-		doneParsingProcessCpu = false;
-		
-		String line = "";
-		boolean isDelete = true;
-		StringBuffer content = new StringBuffer();
-		BufferedReader input =  null;
-		try {
-			input =  new BufferedReader(new FileReader(cpuFile));
-			while ((!doneParsingProcessCpu && curProcessCount < PROCESS_LIMIT) 
-					&& ( line = input.readLine()) != null){
-				parseCpuInfo(content, line);
-			}
-			String contentStr = content.toString().trim();
-			if (contentStr.length() > 0){
-				double traceFileTimestamp = Double.parseDouble(cpuFile.getName());
-				writeTraceLineToAROTraceFile(mCpuTraceWriter, traceFileTimestamp + " " + contentStr, false);
-			}
-			else {
-				isDelete = false;
-			}
-			
-			long end = System.currentTimeMillis();
-			writeTraceLineToAROTraceFile(mCpuDebugWriter, (end - start) + "ms| " + contentStr, true);
-			
-		} catch (Exception e){
-			//this file has error, allow processing to continue to the next file
-			writeTraceLineToAROTraceFile(mCpuDebugWriter, cpuFile.getName() + ": Exception: " + e.getMessage() + ". Line: " + line, true);
-			e.printStackTrace();
-		}
-		finally {
-			try {
-				input.close();
-				
-				if (isDelete){
-					cpuFile.delete();
-				}
-			} catch (IOException e) {
-				e.printStackTrace();
-				writeTraceLineToAROTraceFile(mCpuDebugWriter, cpuFile.getName() + ": Exception: " + e.getMessage(), true);
-			}
-		}
-	}
-	
-	
-	/**
-	 * Method to parse the cpu info from a line of text outputted by the 'top' command
-	 * @param content
-	 * @param line
-	 */
-	private void parseCpuInfo(StringBuffer content, String line) {
-		//writeTraceLineToAROTraceFile(mCpuDebugWriter, "parseCpuInfo for line=: " + line, false);
-
-		line = line.replaceAll("\r", "").replaceAll("\n", "").trim();
-		if (line.length() > 0){
-			++nonEmptyLineNum;
-			
-			if (!columnHeaderLineProcessed){
-				if (!totalCpuLineProcessed && parseTotalCpuLine(content, line)){
-					totalCpuLineProcessed = true;
-				}
-					
-				else if (totalCpuLineProcessed && isColumnHeaderLine(line)){
-					if (!columnIndicesSet){
-						//columnIndices are set just once per app run
-						setColumnHeaderIndices(line);
-					}
-					
-					columnHeaderLineProcessed = true;
-				}
-			}
-	
-			else if (!doneParsingProcessCpu && curProcessCount < PROCESS_LIMIT){
-				//get process cpu info
-				getProcessCpuInfo(content, line);
-			}
-		} 
-	}
-
-	/**
-	 * get the process name and cpu percentage from the line outputted by
-	 * the 'top' command
-	 * @param content
-	 * @param line
-	 */
-	private void getProcessCpuInfo(StringBuffer content, String line) {
-		String[] cpuInfoComp = line.split(WHITE_SPACE_REG_EXP);
-		
-		String processName = "";
-		String processCpu = cpuInfoComp[processCpuColumnIndex].replace("%", "");
-		
-		//workaround for blank column values
-		if (cpuInfoComp.length > processNameColumnIndex){
-			processName = cpuInfoComp[processNameColumnIndex];
-		}
-		else {
-			processName = cpuInfoComp[cpuInfoComp.length - 1];
-		}
-		
-		if (Integer.parseInt(processCpu) == 0){
-			//the top command returns process ordered by cpu usage,
-			//we only want non-zero processes, so we can stop when the processCpu is 0.
-			doneParsingProcessCpu = true;
-		}
-		else {
-			content.append(processName + "=" + processCpu + " ");
-			++curProcessCount;
-		}
-	}
-
-	/**
-	 * need to set the col header indices because different
-	 * android devices/platform returns the header in different order
-	 * @param line
-	 */
-	private void setColumnHeaderIndices(String line) {
-		String[] colHeaders = line.split(WHITE_SPACE_REG_EXP);
-		int colHeaderIndex = 0;
-		
-		for (int i = 0; i < colHeaders.length; ++i){
-			String curHeader = colHeaders[i].trim();
-			
-			if (curHeader.length() > 0){
-				if (curHeader.equalsIgnoreCase(CPU_HEADER)){
-					processCpuColumnIndex = colHeaderIndex;
-				}
-				else if (curHeader.equalsIgnoreCase(PROCESS_NAME_HEADER)){
-					processNameColumnIndex = colHeaderIndex;
-				}
-				
-				++colHeaderIndex;
-			}
+	private synchronized void sampleCpu() {
+		if (cpuSampler == null) {
+			return;
 		}
-		
-		if (processCpuColumnIndex != -1 && processNameColumnIndex != -1){
-			columnIndicesSet = true;
-		}
-		else {
-			AROLogger.w(TAG, "could not set processCpuColumnIndex/processNameColumnIndex for line=" + line);
-			writeTraceLineToAROTraceFile(mCpuDebugWriter, "could not set processCpuColumnIndex/processNameColumnIndex for line=" + line, false);
-		}
-	}
-
-	
-	/**
-	 * check if the line matches the total cpu line.
-	 * if yes, parse the cpu line and return true.
-	 * Otherwise, return false.
-	 * @param content
-	 * @param line
-	 */
-	private boolean parseTotalCpuLine(StringBuffer content, String line) {
-
-		Matcher totalCpuLineMatcher = totalCpuLinePattern.matcher(line);
-		
-		boolean isTotalCpuLine = totalCpuLineMatcher.find();
-		if (isTotalCpuLine){
-			//capturing group is numbered starting at 1 from left to right based on placement of opening parenthesis
-			//total cpu group = 8, idle cpu group = 4
-			
-			if (totalCpuLineMatcher.groupCount() == CPU_PATTERN_GROUP_COUNT){
-				
-				int total = Integer.parseInt(totalCpuLineMatcher.group(TOTAL_CPU_GROUP_NUMBER));
-				int idle = Integer.parseInt(totalCpuLineMatcher.group(IDLE_CPU_GROUP_NUMBER));
-				int usage = total - idle;
-				int usagePercent = usage * 100 / total;
-				content.append(usagePercent + " ");
-				
-			}
-			else {
-				AROLogger.w(TAG, "totalCpuLineMatcher doesn't return 8 capturing groups for line=" + line);
-				writeTraceLineToAROTraceFile(mCpuDebugWriter, "totalCpuLineMatcher doesn't return 8 capturing groups for line= " + line, true);
-				isTotalCpuLine = false;
-			}
-		}
-		else if (nonEmptyLineNum == 2){
-			//2nd line isnt a parsable total cpu line
-			writeTraceLineToAROTraceFile(mCpuDebugWriter, "2nd line is not totalCpuLine; line= " + line, true);
+		String line = cpuSampler.sample(mAroUtils.getDataCollectorEventTimeStamp());
+		if (line != null) {
+			writeTraceLineToAROTraceFile(outCpuFileName, line, false);
+		} else {
+			writeTraceLineToAROTraceFile(outCpuDebugFileName, "cpu sample skipped, /proc/stat not readable or unchanged", true);
 		}
-		
-		return isTotalCpuLine;
-	}
-	
-	/**
-	 * check if the line contains the column header
-	 * @param line
-	 * @return
-	 */
-	private boolean isColumnHeaderLine(String line) {
-		return line.contains("PID") && line.contains("CPU%") && line.contains("Name");
 	}
 
 	/**
 	 * method to stop the cpu trace
-	 * 1. stop the cpu script
-	 * 2. process the remaining cpu files
+	 * 1. stop sampling
+	 * 2. write a last sample for the end of the trace
 	 */
 	private void stopAROCpuTrace(){
-		/*if (cpuTimeOutTimer != null){
-			cpuTimeOutTimer.cancel();
-			cpuTimeOutTimer = null;
-		}*/
-		
-		/*if (scheduler != null){
-			cpuTraceHandle.cancel(false);
-			scheduler.shutdown();
-		}*/
-		try {
-			Process sh = null;
-			DataOutputStream os = null;
-			int pid = getCpuScriptPid();
-			
-			if (pid != -1) {
-				sh = Runtime.getRuntime().exec("su"); AROLogger.e(TAG, "stopAROCpuTrace - su pid = "+sh);
-				os = new DataOutputStream(sh.getOutputStream());
-				String command = "kill -15 " + pid + "\n";
-				os.writeBytes(command);
-				
-				command = "exit\n";
-				os.writeBytes(command);
-				os.flush();
-				
-				//clear out the sharedpref
-				setCpuScriptPid("-1");
-			}
-		}
-		catch (Exception e){
-			e.printStackTrace();
+		if (cpuProcessingPoll != null){
+			cpuProcessingPoll.cancel();
+			cpuProcessingPoll = null;
 		}
-		
-		if (cpuProcessingTimer != null){
-			cpuProcessingTimer.cancel();
-			cpuProcessingTimer = null;
+		sampleCpu();
+		synchronized (this) {
+			cpuSampler = null;
 		}
-		
-		//process the directory for any files that hasnt been processed
-		processCpuDirectory();
-		
-		//delete the directory
-		File cpuDir = new File(getCpuDirFullPath());
-		if (cpuDir.listFiles() != null){
-			for (File cpuFile : cpuDir.listFiles()){
-				cpuFile.delete();
-			}
-		}
-		cpuDir.delete();
-
 	}
 
 	/** 
@@ -881,25 +481,25 @@ public class AROCollectorTraceService extends Service {
 		try {
 			ipAddress = mAroUtils.getLocalIpAddress();
 			if (ipAddress != null) {
-				writeTraceLineToAROTraceFile(mDeviceInfoWriter, ipAddress, false);
+				writeTraceLineToAROTraceFile(outDeviceInfoFileName, ipAddress, false);
 			}
 		} catch (SocketException e) {
 			AROLogger.e(TAG, "exception in getLocalIpAddress", e);
 		}
-		writeTraceLineToAROTraceFile(mDeviceDetailsWriter,
+		writeTraceLineToAROTraceFile(outDeviceDetailsFileName,
 				getApplicationContext().getPackageName(), false);
-		writeTraceLineToAROTraceFile(mDeviceDetailsWriter, deviceModel, false);
+		writeTraceLineToAROTraceFile(outDeviceDetailsFileName, deviceModel, false);
 		
 		mApp.writeToFlurry(makeModelEvent.getMapToWrite(), makeModelEvent.getEventName(), 
 				deviceMake + "/" + deviceModel, makeModelEvent.getEventName(), 
 				AROCollectorUtils.NOT_APPLICABLE, AROCollectorUtils.EMPTY_STRING);
 	
-		writeTraceLineToAROTraceFile(mDeviceDetailsWriter, deviceMake, false);
-		writeTraceLineToAROTraceFile(mDeviceDetailsWriter, "android", false);
-		writeTraceLineToAROTraceFile(mDeviceDetailsWriter, osVersion, false);
-		writeTraceLineToAROTraceFile(mDeviceDetailsWriter, appVersion, false);
-		writeTraceLineToAROTraceFile(mDeviceDetailsWriter, Integer.toString(getDeviceNetworkType(mCurrentNetworkType)), false);
-		writeTraceLineToAROTraceFile(mDeviceDetailsWriter, Integer.toString(mApp.getDeviceScreenWidth())+"*"+Integer.toString(mApp.getDeviceScreenHeight()), false);
+		writeTraceLineToAROTraceFile(outDeviceDetailsFileName, deviceMake, false);
+		writeTraceLineToAROTraceFile(outDeviceDetailsFileName, "android", false);
+		writeTraceLineToAROTraceFile(outDeviceDetailsFileName, osVersion, false);
+		writeTraceLineToAROTraceFile(outDeviceDetailsFileName, appVersion, false);
+		writeTraceLineToAROTraceFile(outDeviceDetailsFileName, Integer.toString(getDeviceNetworkType(mCurrentNetworkType)), false);
+		writeTraceLineToAROTraceFile(outDeviceDetailsFileName, Integer.toString(mApp.getDeviceScreenWidth())+"*"+Integer.toString(mApp.getDeviceScreenHeight()), false);
 		final String tempNetworkTypeFlurryState = (getifCurrentBearerWifi() ? AROCollectorUtils.NOT_APPLICABLE : mCurrentNetworkType.getSubtypeName());
 		writeToFlurryAndMaintainStateAndLogEvent(networkTypeFlurryEvent, this.getString(R.string.flurry_param_status), tempNetworkTypeFlurryState, true);
 		
@@ -953,12 +553,8 @@ public class AROCollectorTraceService extends Service {
 			
 	}
 
-	 
-	private OutputStream mCpuTraceDebugFile;
-	private BufferedWriter mCpuDebugWriter; 
-	
 	/**
-	 * Method will initialize all the trace files Streams and open it for
+	 * Method will create the event journal and open all the trace files for
 	 * writing (i.e wifi/ Baterry/Gps trace files etc)
 	 * 
 	 * @throws FileNotFoundException
@@ -969,130 +565,55 @@ public class AROCollectorTraceService extends Service {
 		if (AROLogger.logDebug) {
 			AROLogger.d(TAG, "mAroTraceDatapath=" + mAroTraceDatapath);
 		}
+		mEventJournal = new AROEventJournal(mAroTraceDatapath, new AROEventJournal.ErrorListener() {
+			@Override
+			public void onWriteError(String fileName, IOException e) {
+				// TODO: Need to display the exception error instead of Mid Trace
+				// mounted error
+				mApp.setMediaMountedMidAROTrace(mAroUtils.checkSDCardMounted());
+			}
+		});
 		try {
 			
-			mWifiTraceOutputFile		= new FileOutputStream(mAroTraceDatapath + outWifiFileName ,true);				
-			mRadioTraceOutputFile		= new FileOutputStream(mAroTraceDatapath + outRadioFileName , true);			
-			mCameraTraceOutputFile		= new FileOutputStream(mAroTraceDatapath + outCameraFileName , true);			
-			mBatteryTraceOutputFile 	= new FileOutputStream(mAroTraceDatapath + outBatteryFileName , true);			
-			mGPSTraceOutputFile			= new FileOutputStream(mAroTraceDatapath + outGPSFileName ,true);				
-
-			mScreenOutputFile			= new FileOutputStream(mAroTraceDatapath + outScreenFileName,true);				
-			mNetworkDetailsOutputFile	= new FileOutputStream(mAroTraceDatapath + outNetworkDetailsFileName ,true);	
-			mCpuTraceOutputFile 		= new FileOutputStream(mAroTraceDatapath + outCpuFileName ,true);				
-			mCpuTraceDebugFile 			= new FileOutputStream(mAroTraceDatapath + "cpu_log.txt" ,true);				
+			mEventJournal.open(outWifiFileName, true);
+			mEventJournal.open(outRadioFileName, true);
+			mEventJournal.open(outCameraFileName, true);
+			mEventJournal.open(outBatteryFileName, true);
+			mEventJournal.open(outGPSFileName, true);
+
+			mEventJournal.open(outScreenFileName, true);
+			mEventJournal.open(outNetworkDetailsFileName, true);
+			mEventJournal.open(outCpuFileName, true);
+			mEventJournal.open(outCpuDebugFileName, true);
 			
-			mScreenRotationOutputFile 	= new FileOutputStream(mAroTraceDatapath+ outScreenRotationFileName,true);		
-			mActiveProcessOutputFile 	= new FileOutputStream(mAroTraceDatapath+ outActiveProcessFileName, true);		
-			mBluetoohTraceOutputFile 	= new FileOutputStream(mAroTraceDatapath + outBluetoothFileName, true);			
-			mDeviceInfoOutputFile 		= new FileOutputStream(mAroTraceDatapath + outDeviceInfoFileName, true);		
-			mDeviceDetailsOutputFile 	= new FileOutputStream(mAroTraceDatapath+ outDeviceDetailsFileName, false);	
-			
-			mWifiTracewriter			= new BufferedWriter(new OutputStreamWriter(mWifiTraceOutputFile));      
-			mRadioTracewriter			= new BufferedWriter(new OutputStreamWriter(mRadioTraceOutputFile));     
-			mCameraTracewriter			= new BufferedWriter(new OutputStreamWriter(mCameraTraceOutputFile));    
-			mBatteryTracewriter			= new BufferedWriter(new OutputStreamWriter(mBatteryTraceOutputFile));   
-			mGPSTracewriter				= new BufferedWriter(new OutputStreamWriter(mGPSTraceOutputFile));       
-			                                                                                                     
-			mScreenTracewriter 			= new BufferedWriter(new OutputStreamWriter(mScreenOutputFile));         
-			mNetworkTracewriter 		= new BufferedWriter(new OutputStreamWriter(mNetworkDetailsOutputFile)); 
-			mCpuTraceWriter 			= new BufferedWriter(new OutputStreamWriter(mCpuTraceOutputFile));       
-			mCpuDebugWriter 			= new BufferedWriter(new OutputStreamWriter(mCpuTraceDebugFile));        
-			                                                                                                     
-			mScreenRotationTracewriter 	= new BufferedWriter(new OutputStreamWriter(mScreenRotationOutputFile)); 
-			mActiveProcessTracewriter 	= new BufferedWriter(new OutputStreamWriter(mActiveProcessOutputFile));  
-			mBluetoothTracewriter 		= new BufferedWriter(new OutputStreamWriter(mBluetoohTraceOutputFile));  
-			mDeviceInfoWriter 			= new BufferedWriter(new OutputStreamWriter(mDeviceInfoOutputFile));     
-			mDeviceDetailsWriter 		= new BufferedWriter(new OutputStreamWriter(mDeviceDetailsOutputFile));  
+			mEventJournal.open(outScreenRotationFileName, true);
+			mEventJournal.open(outActiveProcessFileName, true);
+			mEventJournal.open(outBluetoothFileName, true);
+			mEventJournal.open(outDeviceInfoFileName, true);
+			mEventJournal.open(outDeviceDetailsFileName, false);
 			
 		} catch (Exception e) {
 			Log.e(TAG, "Exception with tracefile :"+e.getMessage());
+			mEventJournal.close();
+			mEventJournal = null;
 			throw new FileNotFoundException(e.getMessage());
 		}
 
 	}
 
 	/**
-	 * Method will close all trace file Streams and closes the files.
-	 * Should set the writer to null after closing, so that a check to 
-	 * verify an open writer can be performed in writeTraceLineToAROTraceFile
+	 * Method will stop the journal's polls, write the pending events and
+	 * close all trace files.
+	 * Should set the journal to null after closing, so that a check to 
+	 * verify an open journal can be performed in writeTraceLineToAROTraceFile
 	 * 
 	 * @throws IOException
 	 */
 	private void closeAROTraceFile() throws IOException {
-		if (mWifiTracewriter != null) {
-			mWifiTracewriter.close();
-			mWifiTracewriter = null;
-			mWifiTraceOutputFile.close();
-		}
-		if (mRadioTracewriter != null) {
-			mRadioTracewriter.close();
-			mRadioTracewriter = null;
-			mRadioTraceOutputFile.close();
-		}
-		if (mCameraTracewriter != null) {
-			mCameraTracewriter.close();
-			mCameraTracewriter = null;
-			mCameraTraceOutputFile.close();
-		}
-		if (mBluetoothTracewriter != null) {
-
-			mBluetoothTracewriter.close();
-			mBluetoothTracewriter = null;
-			mBluetoohTraceOutputFile.close();
-		}
-		if (mBatteryTracewriter != null) {
-			mBatteryTracewriter.close();
-			mBatteryTracewriter = null;
-			mBatteryTraceOutputFile.close();
-		}
-		if (mGPSTracewriter != null) {
-			mGPSTracewriter.close();
-			mGPSTracewriter = null;
-			mGPSTraceOutputFile.close();
-		}
-		if (mScreenTracewriter != null) {
-			mScreenTracewriter.close();
-			mScreenTracewriter = null;
-			mScreenOutputFile.close();
-		}
-		if (mScreenRotationTracewriter != null) {
-			mScreenRotationTracewriter.close();
-			mScreenRotationTracewriter = null;
-			mScreenRotationOutputFile.close();
-		}
-		if (mActiveProcessTracewriter != null) {
-			mActiveProcessTracewriter.close();
-			mActiveProcessTracewriter = null;
-			mActiveProcessOutputFile.close();
-		}
-		if (mDeviceInfoWriter != null) {
-			mDeviceInfoWriter.close();
-			mDeviceInfoWriter = null;
-			mDeviceInfoOutputFile.close();
-		}
-		if (mDeviceDetailsWriter != null) {
-			mDeviceDetailsWriter.close();
-			mDeviceDetailsWriter = null;
-			mDeviceDetailsOutputFile.close();
-		}
-		if (mNetworkTracewriter != null) {
-			mNetworkTracewriter.close();
-			mNetworkTracewriter = null;
-			mNetworkDetailsOutputFile.close();
-			
-		}
-		
-		if (mCpuTraceWriter != null){
-			mCpuTraceOutputFile.close();
-			mCpuTraceWriter.close();
-			mCpuTraceWriter = null;
-		}
-		
-		if (mCpuDebugWriter != null){
-			mCpuTraceDebugFile.close();
-			mCpuDebugWriter.close();
-			mCpuDebugWriter = null;
+		if (mEventJournal != null) {
+			final AROEventJournal journal = mEventJournal;
+			mEventJournal = null;
+			journal.close();
 		}
 	}
 
@@ -1109,29 +630,20 @@ public class AROCollectorTraceService extends Service {
 	}
 
 	/**
-	 * Method write given String message to trace file passed as an argument
-	 * outputfilewriter : Name of Trace File writer to which trace has to be
+	 * Method append given String message to trace file passed as an argument.
+	 * The event journal writes it to the file with the next batch.
+	 * traceFileName : Name of Trace File to which trace has to be
 	 * written content : Trace message to be written
 	 */
-	private void writeTraceLineToAROTraceFile(BufferedWriter outputfilewriter, String content,
+	private void writeTraceLineToAROTraceFile(String traceFileName, String content,
 			boolean timestamp) {
-		try {
-			if (outputfilewriter != null){
-				
-				final String eol = System.getProperty("line.separator");
-				if (timestamp) {
-					outputfilewriter.write(mAroUtils.getDataCollectorEventTimeStamp() + " " + content + eol);
-					outputfilewriter.flush();
-				} else {
-					outputfilewriter.write(content + eol);
-					outputfilewriter.flush();
-				}
+		final AROEventJournal journal = mEventJournal;
+		if (journal != null){
+			if (timestamp) {
+				journal.append(traceFileName, mAroUtils.getDataCollectorEventTimeStamp(), content);
+			} else {
+				journal.append(traceFileName, content);
 			}
-		} catch (IOException e) {
-			// TODO: Need to display the exception error instead of Mid Trace
-			// mounted error
-			mApp.setMediaMountedMidAROTrace(mAroUtils.checkSDCardMounted());
-			AROLogger.e(TAG, "exception in writeTraceLineToAROTraceFile", e);
 		}
 	}
 
@@ -1141,7 +653,7 @@ public class AROCollectorTraceService extends Service {
 	 */
 	private void startARODeviceSDCardSpaceMidTrace() {
 
-		checkSDCardSpace.scheduleAtFixedRate(new TimerTask() {
+		checkSDCardSpace = mEventJournal.schedulePoll(new Runnable() {
 			public void run() {
 				if (mAroUtils.checkSDCardMemoryAvailable() < AROSDCARD_MIN_SPACEKBYTES) {
 					aroSDCardErrorUIUpdate();
@@ -1154,7 +666,7 @@ public class AROCollectorTraceService extends Service {
 					return;
 				}
 			}
-		}, SDCARD_TARCE_TIMER_REPATE_TIME, SDCARD_TARCE_TIMER_REPATE_TIME);
+		}, SDCARD_TARCE_TIMER_REPATE_TIME);
 
 	}
 	
@@ -1199,20 +711,25 @@ public class AROCollectorTraceService extends Service {
 		
 		final ConnectivityManager mAROConnectiviyMgr;
 		mAROConnectiviyMgr = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
-		checkAirplaneModeEnabled.scheduleAtFixedRate(new TimerTask() {
+		checkAirplaneModeEnabled = mEventJournal.schedulePoll(new Runnable() {
 			public void run() {
 				final NetworkInfo.State wifiState = mAROConnectiviyMgr.getNetworkInfo(ConnectivityManager.TYPE_WIFI).getState();
 				if( mAroUtils.isAirplaneModeOn(getApplicationContext())
 						&& (wifiState == NetworkInfo.State.UNKNOWN || wifiState == NetworkInfo.State.DISCONNECTED)){
-					//We should cancel the timer here as we detected Air plane mode was turned on during trace cyle.
-					aroAirplaneModeUIUpdate();
+					//We should cancel the poll here as we detected Air plane mode was turned on during trace cyle.
+					//aroAirplaneModeUIUpdate waits for tcpdump, which must not block the journal's thread
 					checkAirplaneModeEnabled.cancel();
+					new Thread(new Runnable() {
+						public void run() {
+							aroAirplaneModeUIUpdate();
+						}
+					}).start();
 					AROLogger.d(TAG,
 								"startAROAirplaneMidMidTrace= Airplane Mode was turned on Mid Trace");
 					return;
 				}
 			}
-		}, AIRPLANE_TARCE_TIMER_REPATE_TIME, AIRPLANE_TARCE_TIMER_REPATE_TIME);
+		}, AIRPLANE_TARCE_TIMER_REPATE_TIME);
 
 	}
 	
@@ -1230,7 +747,7 @@ public class AROCollectorTraceService extends Service {
 	 * Starts the camera trace collection
 	 */
 	private void startCameraTrace() {
-		checkCameraLaunch.scheduleAtFixedRate(new TimerTask() {
+		checkCameraLaunch = mEventJournal.schedulePoll(new Runnable() {
 			public void run() {
 				final String recentTaskName = getRecentTaskInfo().toLowerCase();
 				if (recentTaskName.contains("camera")
@@ -1242,19 +759,19 @@ public class AROCollectorTraceService extends Service {
 					mCameraOn = false;
 				if (mCameraOn && !mPrevCameraOn) {
 					AROLogger.d(TAG, "Camera Turned on");
-					writeTraceLineToAROTraceFile(mCameraTracewriter, "ON", true);
+					writeTraceLineToAROTraceFile(outCameraFileName, "ON", true);
 					writeToFlurryAndMaintainStateAndLogEvent(cameraFlurryEvent, getString(R.string.flurry_param_status), "ON", true);
 					mCameraOn = true;
 					mPrevCameraOn = true;
 				} else if (!mCameraOn && mPrevCameraOn) {
 					AROLogger.d(TAG, "Camera Turned Off");
-					writeTraceLineToAROTraceFile(mCameraTracewriter, AroTraceFileConstants.OFF, true);
+					writeTraceLineToAROTraceFile(outCameraFileName, AroTraceFileConstants.OFF, true);
 					writeToFlurryAndMaintainStateAndLogEvent(cameraFlurryEvent, getString(R.string.flurry_param_status), AroTraceFileConstants.OFF, true);
 					mCameraOn = false;
 					mPrevCameraOn = false;
 				}
 			}
-		}, HALF_SECOND_TARCE_TIMER_REPATE_TIME, HALF_SECOND_TARCE_TIMER_REPATE_TIME);
+		}, HALF_SECOND_TARCE_TIMER_REPATE_TIME);
 	}
 
 	/**
@@ -1286,12 +803,12 @@ public class AROCollectorTraceService extends Service {
 			}
 			getScreenBrigthnessTimeout();
 			if (mScreenOn) {
-				writeTraceLineToAROTraceFile(mScreenTracewriter, AroTraceFileConstants.ON + " "
+				writeTraceLineToAROTraceFile(outScreenFileName, AroTraceFileConstants.ON + " "
 						+ mScreenTimeout + " " + mScreencurBrightness, true);
 				mPrevScreencurBrightness = mScreencurBrightness;
 				mPrevScreenTimeout = mScreenTimeout;
 			} else {
-				writeTraceLineToAROTraceFile(mScreenTracewriter, AroTraceFileConstants.OFF, true);
+				writeTraceLineToAROTraceFile(outScreenFileName, AroTraceFileConstants.OFF, true);
 				mPrevScreencurBrightness = mScreencurBrightness;
 				mPrevScreenTimeout = mScreenTimeout;
 			}
@@ -1349,7 +866,7 @@ public class AROCollectorTraceService extends Service {
 			if(!mAROPrevBearer.equals(currentBearer)) {
 				//bearer change, signaling a failover
 				mAROPrevBearer = currentBearer;
-				writeTraceLineToAROTraceFile(mNetworkTracewriter,Integer.toString(currentNetworkType), true);
+				writeTraceLineToAROTraceFile(outNetworkDetailsFileName,Integer.toString(currentNetworkType), true);
 				
 				if (AROLogger.logDebug){
 					AROLogger.d(TAG, "failover, wrote networkType=" + currentNetworkType + " to networkdetails completed at timestamp: " + mAroUtils.getDataCollectorEventTimeStamp());
@@ -1365,7 +882,7 @@ public class AROCollectorTraceService extends Service {
 			//We need to handle case when we switch between 4G-3G-2G ( This is not as handover)
 			//-1 - Wifi (We don't want to check for wifi network for 4G-3G-2G transition)
 			else if( currentNetworkType != -1 && mAROPrevNetworkType != currentNetworkType){
-				writeTraceLineToAROTraceFile(mNetworkTracewriter,Integer.toString(currentNetworkType), true);
+				writeTraceLineToAROTraceFile(outNetworkDetailsFileName,Integer.toString(currentNetworkType), true);
 				if (AROLogger.logDebug){
 					AROLogger.d(TAG, "4g-3g-2g switch, wrote networkType=" + currentNetworkType + " to networkdetails completed at timestamp: " + mAroUtils.getDataCollectorEventTimeStamp());
 				}
@@ -1422,7 +939,7 @@ public class AROCollectorTraceService extends Service {
 				
 				if (mWifiManager.getWifiState() == WifiManager.WIFI_STATE_ENABLED) {
 					AROLogger.d(TAG, "entered WIFI_STATE_CHANGED_ACTION--DISCONNECTED");
-					writeTraceLineToAROTraceFile(mWifiTracewriter,
+					writeTraceLineToAROTraceFile(outWifiFileName,
 							AroTraceFileConstants.DISCONNECTED_NETWORK, true);
 					
 					writeToFlurryAndMaintainStateAndLogEvent(wifiFlurryEvent, getString(R.string.flurry_param_status), 
@@ -1430,7 +947,7 @@ public class AROCollectorTraceService extends Service {
 
 				} else if (mWifiManager.getWifiState() == WifiManager.WIFI_STATE_DISABLED) {
 					AROLogger.d(TAG, "entered WIFI_STATE_CHANGED_ACTION--OFF");
-					writeTraceLineToAROTraceFile(mWifiTracewriter, AroTraceFileConstants.OFF, true);
+					writeTraceLineToAROTraceFile(outWifiFileName, AroTraceFileConstants.OFF, true);
 					
 					writeToFlurryAndMaintainStateAndLogEvent(wifiFlurryEvent, getString(R.string.flurry_param_status), 
 							AroTraceFileConstants.OFF, true);
@@ -1445,7 +962,7 @@ public class AROCollectorTraceService extends Service {
 				switch (state) {
 
 				case CONNECTING:
-					writeTraceLineToAROTraceFile(mWifiTracewriter,
+					writeTraceLineToAROTraceFile(outWifiFileName,
 							AroTraceFileConstants.CONNECTING_NETWORK, true);
 					writeToFlurryAndMaintainStateAndLogEvent(wifiFlurryEvent, getString(R.string.flurry_param_status), 
 							AroTraceFileConstants.CONNECTING_NETWORK, true);
@@ -1454,26 +971,26 @@ public class AROCollectorTraceService extends Service {
 					recordAndLogConnectedWifiDetails();					
 					break;
 				case DISCONNECTING:
-					writeTraceLineToAROTraceFile(mWifiTracewriter,
+					writeTraceLineToAROTraceFile(outWifiFileName,
 							AroTraceFileConstants.DISCONNECTING_NETWORK, true);
 					writeToFlurryAndMaintainStateAndLogEvent(wifiFlurryEvent, getString(R.string.flurry_param_status), 
 							AroTraceFileConstants.DISCONNECTING_NETWORK, true);				
 					break;
 				case DISCONNECTED:
-					writeTraceLineToAROTraceFile(mWifiTracewriter,
+					writeTraceLineToAROTraceFile(outWifiFileName,
 							AroTraceFileConstants.DISCONNECTED_NETWORK, true);
 					writeToFlurryAndMaintainStateAndLogEvent(wifiFlurryEvent, getString(R.string.flurry_param_status), 
 							AroTraceFileConstants.DISCONNECTED_NETWORK, true);
 
 					break;
 				case SUSPENDED:
-					writeTraceLineToAROTraceFile(mWifiTracewriter,
+					writeTraceLineToAROTraceFile(outWifiFileName,
 							AroTraceFileConstants.SUSPENDED_NETWORK, true);
 					writeToFlurryAndMaintainStateAndLogEvent(wifiFlurryEvent, getString(R.string.flurry_param_status), 
 							AroTraceFileConstants.SUSPENDED_NETWORK, true);					
 					break;
 				case UNKNOWN:
-					writeTraceLineToAROTraceFile(mWifiTracewriter,
+					writeTraceLineToAROTraceFile(outWifiFileName,
 							AroTraceFileConstants.UNKNOWN_NETWORK, true);
 					writeToFlurryAndMaintainStateAndLogEvent(wifiFlurryEvent, getString(R.string.flurry_param_status), 
 							AroTraceFileConstants.UNKNOWN_NETWORK, true);					
@@ -1497,14 +1014,14 @@ public class AROCollectorTraceService extends Service {
 
 				switch (BluetoothAdapter.getDefaultAdapter().getState()) {
 				case BluetoothAdapter.STATE_ON:
-					writeTraceLineToAROTraceFile(mBluetoothTracewriter,
+					writeTraceLineToAROTraceFile(outBluetoothFileName,
 							AroTraceFileConstants.DISCONNCTED, true);
 					writeToFlurryAndMaintainStateAndLogEvent(bluetoothFlurryEvent, getString(R.string.flurry_param_status), 
 							AroTraceFileConstants.DISCONNCTED, true);
 					break;
 
 				case BluetoothAdapter.STATE_OFF:
-					writeTraceLineToAROTraceFile(mBluetoothTracewriter, AroTraceFileConstants.OFF,
+					writeTraceLineToAROTraceFile(outBluetoothFileName, AroTraceFileConstants.OFF,
 							true);
 					writeToFlurryAndMaintainStateAndLogEvent(bluetoothFlurryEvent, getString(R.string.flurry_param_status), 
 							AroTraceFileConstants.OFF, true);
@@ -1518,12 +1035,12 @@ public class AROCollectorTraceService extends Service {
 				final BluetoothDevice device = intent
 						.getParcelableExtra(BluetoothDevice.EXTRA_DEVICE);
 				if (device.getBondState() != BluetoothDevice.BOND_BONDED) {
-					writeTraceLineToAROTraceFile(mBluetoothTracewriter,
+					writeTraceLineToAROTraceFile(outBluetoothFileName,
 							AroTraceFileConstants.DISCONNCTED, true);
 					writeToFlurryAndMaintainStateAndLogEvent(bluetoothFlurryEvent, getString(R.string.flurry_param_status), 
 							AroTraceFileConstants.DISCONNCTED, true);
 				} else if (device.getBondState() == BluetoothDevice.BOND_BONDED) {
-					writeTraceLineToAROTraceFile(mBluetoothTracewriter,
+					writeTraceLineToAROTraceFile(outBluetoothFileName,
 							AroTraceFileConstants.CONNECTED, true);
 					writeToFlurryAndMaintainStateAndLogEvent(bluetoothFlurryEvent, getString(R.string.flurry_param_status), 
 							AroTraceFileConstants.CONNECTED, true);
@@ -1627,7 +1144,7 @@ public class AROCollectorTraceService extends Service {
 				if (AROLogger.logVerbose) {
 					AROLogger.v(TAG, "signal strength changed to " + mRadioSignalStrength);
 				}
-				writeTraceLineToAROTraceFile(mRadioTracewriter, mRadioSignalStrength, true);
+				writeTraceLineToAROTraceFile(outRadioFileName, mRadioSignalStrength, true);
 			}
 
 			//added to listen for 4g-3g-2g transitions
@@ -1661,12 +1178,12 @@ public class AROCollectorTraceService extends Service {
 
 			switch (event) {
 			case GpsStatus.GPS_EVENT_STARTED:
-				writeTraceLineToAROTraceFile(mGPSTracewriter, "ACTIVE", true);
+				writeTraceLineToAROTraceFile(outGPSFileName, "ACTIVE", true);
 				writeToFlurryAndMaintainStateAndLogEvent(gpsFlurryEvent, getString(R.string.flurry_param_status), "ACTIVE", true);
 				mGPSActive = true;
 				break;
 			case GpsStatus.GPS_EVENT_STOPPED:
-				writeTraceLineToAROTraceFile(mGPSTracewriter, AroTraceFileConstants.STANDBY, true);
+				writeTraceLineToAROTraceFile(outGPSFileName, AroTraceFileConstants.STANDBY, true);
 				writeToFlurryAndMaintainStateAndLogEvent(gpsFlurryEvent, getString(R.string.flurry_param_status), AroTraceFileConstants.STANDBY, true);
 				mGPSActive = false;
 				break;
@@ -1706,7 +1223,7 @@ public class AROCollectorTraceService extends Service {
 		writeGpsStateToTraceFile(initialGpsState);
 		prevGpsEnabledState = initialGpsState;
 		
-		checkLocationService.scheduleAtFixedRate(new TimerTask() {
+		checkLocationService = mEventJournal.schedulePoll(new Runnable() {
 			public void run() {
 				// Current GPS enabled state
 				final boolean currentGpsEnabledState = isLocationServiceEnabled();
@@ -1715,7 +1232,7 @@ public class AROCollectorTraceService extends Service {
 				}
 				prevGpsEnabledState = currentGpsEnabledState;
 			}
-		}, HALF_SECOND_TARCE_TIMER_REPATE_TIME, HALF_SECOND_TARCE_TIMER_REPATE_TIME);
+		}, HALF_SECOND_TARCE_TIMER_REPATE_TIME);
 	}
 	
 	/**
@@ -1726,13 +1243,13 @@ public class AROCollectorTraceService extends Service {
 		if (currentGpsEnabledState) {
 			AROLogger.d(TAG, "gps enabled: ");
 			if (!mGPSActive) {
-				writeTraceLineToAROTraceFile(mGPSTracewriter, AroTraceFileConstants.STANDBY, true);
+				writeTraceLineToAROTraceFile(outGPSFileName, AroTraceFileConstants.STANDBY, true);
 				writeToFlurryAndMaintainStateAndLogEvent(gpsFlurryEvent, 
 						getString(R.string.flurry_param_status), AroTraceFileConstants.STANDBY, true);
 			}
 		} else {
 			AROLogger.d(TAG, "gps Disabled: ");
-			writeTraceLineToAROTraceFile(mGPSTracewriter, AroTraceFileConstants.OFF, true);
+			writeTraceLineToAROTraceFile(outGPSFileName, AroTraceFileConstants.OFF, true);
 			writeToFlurryAndMaintainStateAndLogEvent(gpsFlurryEvent, 
 					getString(R.string.flurry_param_status), AroTraceFileConstants.OFF, true);
 		}
@@ -1746,7 +1263,10 @@ public class AROCollectorTraceService extends Service {
 			mGPSStatesManager.removeGpsStatusListener(mGPSStatesListner);
 			mGPSStatesManager = null;
 		}
-		checkLocationService.cancel();
+		if (checkLocationService != null) {
+			checkLocationService.cancel();
+			checkLocationService = null;
+		}
 	}
 
 	/**
@@ -1778,19 +1298,19 @@ public class AROCollectorTraceService extends Service {
 		mAROIntentFilter = new IntentFilter();
 		mAROIntentFilter.addAction(Intent.ACTION_SCREEN_OFF);
 		mAROIntentFilter.addAction(Intent.ACTION_SCREEN_ON);
-		checkScreenBrightness.scheduleAtFixedRate(new TimerTask() {
+		checkScreenBrightness = mEventJournal.schedulePoll(new Runnable() {
 			public void run() {
 				getScreenBrigthnessTimeout();
 				if ((mScreencurBrightness != mPrevScreencurBrightness)
 						|| (mScreenTimeout != mPrevScreenTimeout)) {
-					writeTraceLineToAROTraceFile(mScreenTracewriter, AroTraceFileConstants.ON + " "
+					writeTraceLineToAROTraceFile(outScreenFileName, AroTraceFileConstants.ON + " "
 							+ mScreenTimeout + " " + mScreencurBrightness, true);
 					mPrevScreencurBrightness = mScreencurBrightness;
 					mPrevScreenTimeout = mScreenTimeout;
 
 				}
 			}
-		}, HALF_SECOND_TARCE_TIMER_REPATE_TIME, HALF_SECOND_TARCE_TIMER_REPATE_TIME);
+		}, HALF_SECOND_TARCE_TIMER_REPATE_TIME);
 		registerReceiver(mAROScreenTraceReceiver, mAROIntentFilter);
 	}
 
@@ -1801,7 +1321,9 @@ public class AROCollectorTraceService extends Service {
 		try {
 			if (mAROScreenTraceReceiver != null) {
 				unregisterReceiver(mAROScreenTraceReceiver);
-				checkScreenBrightness.cancel();
+				if (checkScreenBrightness != null) {
+					checkScreenBrightness.cancel();
+				}
 			}
 			checkScreenBrightness = null;
 			mAROIntentFilter = null;
@@ -1817,12 +1339,12 @@ public class AROCollectorTraceService extends Service {
 		switch (BluetoothAdapter.getDefaultAdapter().getState()) {
 		case BluetoothAdapter.STATE_ON:
 			if (BluetoothAdapter.getDefaultAdapter().getBondedDevices().isEmpty()) {
-				writeTraceLineToAROTraceFile(mBluetoothTracewriter,
+				writeTraceLineToAROTraceFile(outBluetoothFileName,
 						AroTraceFileConstants.DISCONNCTED, true);
 				writeToFlurryAndMaintainStateAndLogEvent(bluetoothFlurryEvent, this.getString(R.string.flurry_param_status), 
 						AroTraceFileConstants.DISCONNCTED, true);
 			} else {
-				writeTraceLineToAROTraceFile(mBluetoothTracewriter,
+				writeTraceLineToAROTraceFile(outBluetoothFileName,
 						AroTraceFileConstants.CONNECTED, true);
 				writeToFlurryAndMaintainStateAndLogEvent(bluetoothFlurryEvent, this.getString(R.string.flurry_param_status), 
 						AroTraceFileConstants.CONNECTED, true);
@@ -1830,7 +1352,7 @@ public class AROCollectorTraceService extends Service {
 			break;
 
 		case BluetoothAdapter.STATE_OFF:
-			writeTraceLineToAROTraceFile(mBluetoothTracewriter, AroTraceFileConstants.OFF, true);
+			writeTraceLineToAROTraceFile(outBluetoothFileName, AroTraceFileConstants.OFF, true);
 			writeToFlurryAndMaintainStateAndLogEvent(bluetoothFlurryEvent, this.getString(R.string.flurry_param_status), 
 					AroTraceFileConstants.OFF, true);
 			break;
@@ -2014,7 +1536,7 @@ public class AROCollectorTraceService extends Service {
 			case RunningAppProcessInfo.IMPORTANCE_BACKGROUND:
 				mActiveProcessStates[Index] = "Name:" + runningAppProcessInfo.processName
 						+ " State:" + AroTraceFileConstants.IMPORTANCE_BACKGROUND;
-				writeTraceLineToAROTraceFile(mActiveProcessTracewriter,
+				writeTraceLineToAROTraceFile(outActiveProcessFileName,
 						mActiveProcessStates[Index], true);
 
 				//Flurry only allows max of 10 parameters to an event; if exceed, event is not logged.
@@ -2030,7 +1552,7 @@ public class AROCollectorTraceService extends Service {
 			case RunningAppProcessInfo.IMPORTANCE_FOREGROUND:
 				mActiveProcessStates[Index] = "Name:" + runningAppProcessInfo.processName
 						+ " State:" + AroTraceFileConstants.IMPORTANCE_FOREGROUND;
-				writeTraceLineToAROTraceFile(mActiveProcessTracewriter, mActiveProcessStates[Index], true);
+				writeTraceLineToAROTraceFile(outActiveProcessFileName, mActiveProcessStates[Index], true);
 				Index++;
 				break;
 			}
@@ -2146,7 +1668,7 @@ public class AROCollectorTraceService extends Service {
 			AROLogger.d(TAG, "received battery temp: " + mBatteryTemp / 10 + "C");
 			AROLogger.d(TAG, "received power source " + mPowerSource);
 		}
-		writeTraceLineToAROTraceFile(mBatteryTracewriter, mBatteryLevel + " " + mBatteryTemp / 10
+		writeTraceLineToAROTraceFile(outBatteryFileName, mBatteryLevel + " " + mBatteryTemp / 10
 				+ " " + mPowerSource, true);
 		
 		//write to Flurry only if the values change
@@ -2211,9 +1733,9 @@ public class AROCollectorTraceService extends Service {
 	private void recordScreenRotation() {
 		final Configuration newConfig = getResources().getConfiguration();
 		if (newConfig.orientation == Configuration.ORIENTATION_LANDSCAPE) {
-			writeTraceLineToAROTraceFile(mScreenRotationTracewriter,LANDSCAPE_MODE, true);
+			writeTraceLineToAROTraceFile(outScreenRotationFileName,LANDSCAPE_MODE, true);
 		} else if (newConfig.orientation == Configuration.ORIENTATION_PORTRAIT) {
-			writeTraceLineToAROTraceFile(mScreenRotationTracewriter, PORTRAIT_MODE,
+			writeTraceLineToAROTraceFile(outScreenRotationFileName, PORTRAIT_MODE,
 					true);
 		}
 	}
@@ -2348,7 +1870,7 @@ public class AROCollectorTraceService extends Service {
 	 */
 	private void recordAndLogConnectedWifiDetails() {
 		collectWifiNetworkData();
-		writeTraceLineToAROTraceFile(mWifiTracewriter,
+		writeTraceLineToAROTraceFile(outWifiFileName,
 				AroTraceFileConstants.CONNECTED_NETWORK + " " + mWifiMacAddress + " "
 				+ mWifiRssi + " " + mWifiNetworkSSID, true);
 		
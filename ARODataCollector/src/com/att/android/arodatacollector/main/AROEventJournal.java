@@ -0,0 +1,331 @@
+/*
+ * Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.att.android.arodatacollector.main;
+
+import java.io.BufferedWriter;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.att.android.arodatacollector.utils.AROLogger;
+
+/**
+ * Journal of the peripheral trace events of the ARO-Data Collector.
+ *
+ * Events are appended as records from any thread, including the main thread,
+ * without touching the file system. A single scheduler thread writes the
+ * queued records to their trace files in batches, and flushes every file
+ * written once per batch, so a trace wakes the storage up every few seconds
+ * instead of on every event. The same thread runs every periodic poll of the
+ * service; polls are driven by one tick so that polls with the same period run
+ * together instead of waking separate Timer threads.
+ *
+ * The trace files keep the line format the ARO Analyzer reads: an optional
+ * timestamp followed by the event content.
+ */
+public class AROEventJournal {
+
+	/** A string for logging the journal. */
+	private static final String TAG = "AROEventJournal";
+
+	/** tick of the scheduler, poll periods are rounded up to a multiple of it */
+	private static final long TICK_MILLIS = 1000;
+
+	/** maximum time a record waits before it is written */
+	private static final long FLUSH_INTERVAL_MILLIS = 5000;
+
+	/** number of queued records that triggers a write before the flush interval */
+	private static final int FLUSH_BATCH_SIZE = 256;
+
+	private static final String EOL = System.getProperty("line.separator");
+
+	/** trace folder, ends with a separator */
+	private final String traceFolder;
+
+	/** open trace files, only used on the scheduler thread after open */
+	private final Map<String, BufferedWriter> writers = new HashMap<String, BufferedWriter>();
+
+	private final ConcurrentLinkedQueue<Record> records = new ConcurrentLinkedQueue<Record>();
+	private final AtomicInteger queued = new AtomicInteger();
+
+	private final List<Poll> polls = new ArrayList<Poll>();
+	private final ScheduledExecutorService scheduler;
+	private long tick = 0;
+	private long lastFlushTick = 0;
+	private volatile boolean closed = false;
+
+	/** listener notified when a trace file cannot be written */
+	private final ErrorListener errorListener;
+
+	/**
+	 * Notified on the scheduler thread when writing a trace file fails.
+	 */
+	public interface ErrorListener {
+		void onWriteError(String fileName, IOException e);
+	}
+
+	/**
+	 * A periodic task run by the journal's scheduler.
+	 */
+	public static final class Poll {
+		private final Runnable task;
+		private final long periodTicks;
+		private volatile boolean cancelled = false;
+
+		private Poll(Runnable task, long periodTicks) {
+			this.task = task;
+			this.periodTicks = periodTicks;
+		}
+
+		/**
+		 * stops running the task; a run in progress completes
+		 */
+		public void cancel() {
+			cancelled = true;
+		}
+	}
+
+	/**
+	 * One event of a trace file.
+	 */
+	private static final class Record {
+		final String fileName;
+		final double timestamp;
+		final String content;
+
+		Record(String fileName, double timestamp, String content) {
+			this.fileName = fileName;
+			this.timestamp = timestamp;
+			this.content = content;
+		}
+	}
+
+	/**
+	 * Creates the journal and starts its scheduler thread.
+	 *
+	 * @param traceFolder
+	 *            folder of the trace files, ending with a separator
+	 * @param errorListener
+	 *            notified when writing fails, may be null
+	 */
+	public AROEventJournal(String traceFolder, ErrorListener errorListener) {
+		this.traceFolder = traceFolder;
+		this.errorListener = errorListener;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, TAG);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		scheduler.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				onTick();
+			}
+		}, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Opens a trace file of the journal. Must be called before events are
+	 * appended to the file.
+	 *
+	 * @param fileName
+	 *            name of the file in the trace folder
+	 * @param append
+	 *            true to keep the current content of the file
+	 * @throws FileNotFoundException
+	 */
+	public synchronized void open(String fileName, boolean append) throws FileNotFoundException {
+		final BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(traceFolder + fileName, append)));
+		writers.put(fileName, writer);
+	}
+
+	/**
+	 * Appends an event without timestamp.
+	 *
+	 * @param fileName
+	 * @param content
+	 */
+	public void append(String fileName, String content) {
+		append(fileName, Double.NaN, content);
+	}
+
+	/**
+	 * Appends an event.
+	 *
+	 * @param fileName
+	 * @param timestamp
+	 *            event time in seconds, or NaN for no timestamp
+	 * @param content
+	 */
+	public void append(String fileName, double timestamp, String content) {
+		if (closed) {
+			return;
+		}
+		records.add(new Record(fileName, timestamp, content));
+		if (queued.incrementAndGet() == FLUSH_BATCH_SIZE) {
+			try {
+				scheduler.execute(new Runnable() {
+					@Override
+					public void run() {
+						writeRecords();
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				// closing, the remaining records are written by close
+			}
+		}
+	}
+
+	/**
+	 * Runs a task periodically on the journal's thread. The task should not
+	 * block, it delays the other polls and the writes.
+	 *
+	 * @param task
+	 * @param periodMillis
+	 *            period, rounded up to a multiple of the journal's tick
+	 * @return the poll, to cancel it
+	 */
+	public Poll schedulePoll(Runnable task, long periodMillis) {
+		final Poll poll = new Poll(task, Math.max(1, (periodMillis + TICK_MILLIS - 1) / TICK_MILLIS));
+		synchronized (polls) {
+			polls.add(poll);
+		}
+		return poll;
+	}
+
+	/**
+	 * Stops the polls, writes the queued events and closes the trace files.
+	 */
+	public void close() {
+		closed = true;
+		synchronized (polls) {
+			for (Poll poll : polls) {
+				poll.cancel();
+			}
+			polls.clear();
+		}
+		scheduler.shutdown();
+		try {
+			if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
+				AROLogger.w(TAG, "journal thread did not stop");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		synchronized (this) {
+			writeRecords();
+			for (Map.Entry<String, BufferedWriter> entry : writers.entrySet()) {
+				try {
+					entry.getValue().close();
+				} catch (IOException e) {
+					reportError(entry.getKey(), e);
+				}
+			}
+			writers.clear();
+		}
+	}
+
+	/**
+	 * runs the polls due at this tick, and writes the queued events when the
+	 * flush interval elapsed
+	 */
+	private void onTick() {
+		tick++;
+		Poll[] due;
+		synchronized (polls) {
+			due = polls.toArray(new Poll[polls.size()]);
+		}
+		for (Poll poll : due) {
+			if (poll.cancelled || tick % poll.periodTicks != 0) {
+				continue;
+			}
+			try {
+				poll.task.run();
+			} catch (RuntimeException e) {
+				AROLogger.e(TAG, "exception in journal poll", e);
+			}
+			if (poll.cancelled) {
+				synchronized (polls) {
+					polls.remove(poll);
+				}
+			}
+		}
+		if ((tick - lastFlushTick) * TICK_MILLIS >= FLUSH_INTERVAL_MILLIS) {
+			lastFlushTick = tick;
+			writeRecords();
+		}
+	}
+
+	/**
+	 * writes every queued record to its file, then flushes each file written once
+	 */
+	private synchronized void writeRecords() {
+		List<BufferedWriter> written = new ArrayList<BufferedWriter>();
+		Record record;
+		final StringBuilder line = new StringBuilder(128);
+		while ((record = records.poll()) != null) {
+			queued.decrementAndGet();
+			final BufferedWriter writer = writers.get(record.fileName);
+			if (writer == null) {
+				AROLogger.w(TAG, "event for a trace file that is not open: " + record.fileName);
+				continue;
+			}
+			line.setLength(0);
+			if (!Double.isNaN(record.timestamp)) {
+				line.append(record.timestamp).append(' ');
+			}
+			line.append(record.content).append(EOL);
+			try {
+				writer.write(line.toString());
+				if (!written.contains(writer)) {
+					written.add(writer);
+				}
+			} catch (IOException e) {
+				reportError(record.fileName, e);
+			}
+		}
+		for (BufferedWriter writer : written) {
+			try {
+				writer.flush();
+			} catch (IOException e) {
+				reportError(null, e);
+			}
+		}
+	}
+
+	private void reportError(String fileName, IOException e) {
+		AROLogger.e(TAG, "exception writing trace file " + fileName, e);
+		if (errorListener != null) {
+			errorListener.onWriteError(fileName, e);
+		}
+	}
+}
@@ -16,24 +16,24 @@
 
 package com.att.aro.android.arocollector;
 
-import com.att.aro.android.arocollector.ip.IPv4Header;
+import com.att.aro.android.arocollector.ip.IPHeader;
 import com.att.aro.android.arocollector.tcp.TCPHeader;
 
 /**
- * Data structure that encapsulate both IPv4Header and TCPHeader
+ * Data structure that encapsulate both IP header and TCPHeader
  * @author Borey Sao
  * Date: May 27, 2014
  */
 public class Packet {
 
-	private IPv4Header ipheader;
+	private IPHeader ipheader;
 	private TCPHeader tcpheader;
 	private byte[] buffer;
 	
-	public IPv4Header getIpheader() {
+	public IPHeader getIpheader() {
 		return ipheader;
 	}
-	public void setIpheader(IPv4Header ipheader) {
+	public void setIpheader(IPHeader ipheader) {
 		this.ipheader = ipheader;
 	}
 	public TCPHeader getTcpheader() {
@@ -18,11 +18,14 @@ package com.att.aro.android.arocollector;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
 import java.nio.channels.DatagramChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 
-import com.att.aro.android.arocollector.ip.IPv4Header;
+import com.att.aro.android.arocollector.ip.IPHeader;
+import com.att.aro.android.arocollector.socket.SocketEventLoop;
 import com.att.aro.android.arocollector.tcp.TCPHeader;
 import com.att.aro.android.arocollector.udp.UDPHeader;
 
@@ -48,10 +51,11 @@ public class Session {
 	
 	private DatagramChannel udpchannel = null;
 	
-	private int destAddress = 0;
+	//IPv4 or IPv6 address
+	private InetAddress destAddress = null;
 	private int destPort = 0;
 	
-	private int sourceIp = 0;
+	private InetAddress sourceIp = null;
 	private int sourcePort = 0;
 	
 	//sequence received from client
@@ -85,7 +89,7 @@ public class Session {
 	private boolean hasReceivedLastSegment = false;
 	
 	//last packet received from client
-	private IPv4Header lastIPheader = null;
+	private IPHeader lastIPheader = null;
 	private TCPHeader lastTCPheader = null;
 	private UDPHeader lastUDPheader = null;
 
@@ -112,15 +116,17 @@ public class Session {
 	//timestamp when FIN as been acked, this is used to removed session after n minute
 	private long ackedToFinTime = 0;
 	
-	//indicate that this session is currently being worked on by some SocketDataWorker already
-	private volatile boolean isbusyread = false;
-	private volatile boolean isbusywrite = false;
+	//data already taken from sendingStream that the remote socket did not accept yet
+	private ByteBuffer pendingWrite = null;
 	
 	//closing session and aborting connection, will be done by background task
 	private volatile boolean abortingConnection = false;
 	
 	private SelectionKey selectionkey = null;
 	
+	//event loop that owns this session's channel
+	private SocketEventLoop eventLoop = null;
+	
 	public long connectionStartTime = 0;
 	
 	public Session(){
@@ -254,11 +260,11 @@ public class Session {
 		return sendingStream.size() > 0;
 	}
 
-	public int getDestAddress() {
+	public InetAddress getDestAddress() {
 		return destAddress;
 	}
 
-	public void setDestAddress(int destAddress) {
+	public void setDestAddress(InetAddress destAddress) {
 		this.destAddress = destAddress;
 	}
 
@@ -314,11 +320,11 @@ public class Session {
 		return sendingStream;
 	}
 
-	public int getSourceIp() {
+	public InetAddress getSourceIp() {
 		return sourceIp;
 	}
 
-	public void setSourceIp(int sourceIp) {
+	public void setSourceIp(InetAddress sourceIp) {
 		this.sourceIp = sourceIp;
 	}
 
@@ -340,6 +346,18 @@ public class Session {
 		this.sendWindow = sendWindowSize * sendWindowScale;
 	}
 
+	/**
+	 * set the window from the client's SYN, which is never scaled (RFC 7323). The scale
+	 * it offered is kept and applies from the next segment on.
+	 * @param sendWindowSize window field of the SYN
+	 * @param sendWindowScale scale factor offered by the SYN, 1 if none
+	 */
+	public void setSynWindowSizeAndScale(int sendWindowSize, int sendWindowScale) {
+		this.sendWindowSize = sendWindowSize;
+		this.sendWindowScale = sendWindowScale;
+		this.sendWindow = sendWindowSize;
+	}
+
 	public int getSendWindowScale() {
 		return sendWindowScale;
 	}
@@ -380,14 +398,14 @@ public class Session {
 	public void setHasReceivedLastSegment(boolean hasReceivedLastSegment) {
 		this.hasReceivedLastSegment = hasReceivedLastSegment;
 	}
-	public IPv4Header getLastIPheader() {
-		IPv4Header header = null;
+	public IPHeader getLastIPheader() {
+		IPHeader header = null;
 		synchronized(syncLastHeader){
 			header = lastIPheader;
 		}
 		return header;
 	}
-	public void setLastIPheader(IPv4Header lastIPheader) {
+	public void setLastIPheader(IPHeader lastIPheader) {
 		synchronized(syncLastHeader){
 			this.lastIPheader = lastIPheader;
 		}
@@ -473,17 +491,18 @@ public class Session {
 		this.ackedToFinTime = ackedToFinTime;
 	}
 	
-	public boolean isBusyread() {
-		return isbusyread;
+	public ByteBuffer getPendingWrite() {
+		return pendingWrite;
 	}
-	public void setBusyread(boolean isbusyread) {
-		this.isbusyread = isbusyread;
+	public void setPendingWrite(ByteBuffer pendingWrite) {
+		this.pendingWrite = pendingWrite;
 	}
-	public boolean isBusywrite() {
-		return isbusywrite;
-	}
-	public void setBusywrite(boolean isbusywrite) {
-		this.isbusywrite = isbusywrite;
+	/**
+	 * part of the last write to the remote server is still waiting for the socket to accept it
+	 * @return
+	 */
+	public boolean hasPendingWrite(){
+		return pendingWrite != null && pendingWrite.hasRemaining();
 	}
 	public boolean isAbortingConnection() {
 		return abortingConnection;
@@ -497,6 +516,12 @@ public class Session {
 	public void setSelectionkey(SelectionKey selectionkey) {
 		this.selectionkey = selectionkey;
 	}
+	public SocketEventLoop getEventLoop() {
+		return eventLoop;
+	}
+	public void setEventLoop(SocketEventLoop eventLoop) {
+		this.eventLoop = eventLoop;
+	}
 	
 	
 }
@@ -17,10 +17,11 @@
 package com.att.aro.android.arocollector;
 
 import java.io.IOException;
+import java.net.InetAddress;
 import java.util.Date;
 
 import com.att.aro.android.arocollector.ip.IPPacketFactory;
-import com.att.aro.android.arocollector.ip.IPv4Header;
+import com.att.aro.android.arocollector.ip.IPHeader;
 import com.att.aro.android.arocollector.socket.SocketData;
 import com.att.aro.android.arocollector.tcp.PacketHeaderException;
 import com.att.aro.android.arocollector.tcp.TCPHeader;
@@ -70,12 +71,12 @@ public class SessionHandler {
 	public void setWriter(IClientPacketWriter writer){
 		this.writer = writer;
 	}
-	private void handleUDPPacket(byte[] clientpacketdata, IPv4Header ipheader, UDPHeader udpheader){
-		Session session = sdata.getSession(ipheader.getDestinationIP(), udpheader.getDestinationPort(), 
-				ipheader.getSourceIP(), udpheader.getSourcePort());
+	private void handleUDPPacket(byte[] clientpacketdata, IPHeader ipheader, UDPHeader udpheader){
+		Session session = sdata.getSession(ipheader.getDestinationAddress(), udpheader.getDestinationPort(), 
+				ipheader.getSourceAddress(), udpheader.getSourcePort());
 		if(session == null){
-			session = sdata.createNewUDPSession(ipheader.getDestinationIP(), udpheader.getDestinationPort(), 
-					ipheader.getSourceIP(), udpheader.getSourcePort());
+			session = sdata.createNewUDPSession(ipheader.getDestinationAddress(), udpheader.getDestinationPort(), 
+					ipheader.getSourceAddress(), udpheader.getSourcePort());
 		}
 		if(session == null){
 			return;
@@ -86,8 +87,9 @@ public class SessionHandler {
 		session.setDataForSendingReady(true);
 		Log.d(TAG,"added UDP data for bg worker to send: "+len);
 		sdata.keepSessionAlive(session);
+		sdata.notifySessionChanged(session);
 	}
-	private void handleTCPPacket(byte[] clientpacketdata, IPv4Header ipheader, TCPHeader tcpheader){
+	private void handleTCPPacket(byte[] clientpacketdata, IPHeader ipheader, TCPHeader tcpheader){
 		int length = clientpacketdata.length;
         int datalength = length - ipheader.getIPHeaderLength() - tcpheader.getTCPHeaderLength();
         /* for debugging purpose 
@@ -108,12 +110,12 @@ public class SessionHandler {
         	replySynAck(ipheader,tcpheader);
         	
         }else if(tcpheader.isACK()){
-        	Session session = sdata.getSession(ipheader.getDestinationIP(), tcpheader.getDestinationPort(), 
-    				ipheader.getSourceIP(), tcpheader.getSourcePort());
+        	Session session = sdata.getSession(ipheader.getDestinationAddress(), tcpheader.getDestinationPort(), 
+    				ipheader.getSourceAddress(), tcpheader.getSourcePort());
         	if(session == null){
         		Log.d(TAG,"**** ==> Session not found: "+
-        					PacketUtil.intToIPAddress(ipheader.getDestinationIP())+":"+tcpheader.getDestinationPort()
-        					+"-"+PacketUtil.intToIPAddress(ipheader.getSourceIP())+":"+tcpheader.getSourcePort());
+        					ipheader.getDestinationAddress().getHostAddress()+":"+tcpheader.getDestinationPort()
+        					+"-"+ipheader.getSourceAddress().getHostAddress()+":"+tcpheader.getSourcePort());
         		if(!tcpheader.isRST() && !tcpheader.isFIN()){
         			this.sendRstPacket(ipheader, tcpheader, datalength);
         		}
@@ -156,8 +158,8 @@ public class SessionHandler {
         			sendFinAck(ipheader, tcpheader, session);
         		}else if(session.isAckedToFin() && !tcpheader.isFIN()){
         			//the last ACK from client after FIN-ACK flag was sent
-        			sdata.closeSession(ipheader.getDestinationIP(), tcpheader.getDestinationPort(), 
-        					ipheader.getSourceIP(), tcpheader.getSourcePort());
+        			sdata.closeSession(ipheader.getDestinationAddress(), tcpheader.getDestinationPort(), 
+        					ipheader.getSourceAddress(), tcpheader.getSourcePort());
         			Log.d(TAG,"got last ACK after FIN, session is now closed.");
         		}
         	}
@@ -179,16 +181,16 @@ public class SessionHandler {
         	}
         }else if(tcpheader.isFIN()){
         	//case client sent FIN without ACK
-        	Session session = sdata.getSession(ipheader.getDestinationIP(), tcpheader.getDestinationPort(), 
-    				ipheader.getSourceIP(), tcpheader.getSourcePort());
+        	Session session = sdata.getSession(ipheader.getDestinationAddress(), tcpheader.getDestinationPort(), 
+    				ipheader.getSourceAddress(), tcpheader.getSourcePort());
         	if(session == null){
         		ackFinAck(ipheader,tcpheader,session);
         	}else{
         		sdata.keepSessionAlive(session);
         	}
         }else if(tcpheader.isRST()){
-        	Log.d(TAG,"**** Reset client connection for dest: "+PacketUtil.intToIPAddress(ipheader.getDestinationIP())+":"+tcpheader.getDestinationPort()
-        			+"-"+PacketUtil.intToIPAddress(ipheader.getSourceIP())+":"+tcpheader.getSourcePort());
+        	Log.d(TAG,"**** Reset client connection for dest: "+ipheader.getDestinationAddress().getHostAddress()+":"+tcpheader.getDestinationPort()
+        			+"-"+ipheader.getSourceAddress().getHostAddress()+":"+tcpheader.getSourcePort());
         	resetConnection(ipheader, tcpheader);
         }else{
         	Log.d(TAG,"unknown TCP flag");
@@ -208,22 +210,17 @@ public class SessionHandler {
 		byte[] clientpacketdata = new byte[length];
 		System.arraycopy(data, 0, clientpacketdata, 0, length);
 		packetdata.addData(clientpacketdata);
-		IPv4Header ipheader = IPPacketFactory.createIPv4Header(clientpacketdata, 0);
-		if(ipheader.getIpVersion() != 4 || (ipheader.getProtocol() != 6 && ipheader.getProtocol() != 17)){
-			//only support IPv4 with TCP and UDP protocol
-			if(ipheader.getIpVersion() != 4){
-				Log.e(TAG,"********===> Unsupported IP Version: "+ipheader.getIpVersion());
-			}
-			if(ipheader.getProtocol() != 6 && ipheader.getProtocol() != 17){
-				Log.e(TAG,"******===> Unsupported protocol: "+ipheader.getProtocol());
-			}
+		IPHeader ipheader = IPPacketFactory.createIPHeader(clientpacketdata, 0);
+		if(ipheader.getProtocol() != 6 && ipheader.getProtocol() != 17){
+			//only support TCP and UDP protocol over IPv4 and IPv6
+			Log.e(TAG,"******===> Unsupported protocol: "+ipheader.getProtocol()+" over IPv"+ipheader.getIpVersion());
 			return;
 		}
 		UDPHeader udpheader = null;
 		TCPHeader tcpheader = null;
 		if(ipheader.getProtocol() == 6){
 			//check whitelist for now
-			//String ips = PacketUtil.intToIPAddress(ipheader.getDestinationIP());
+			//String ips = ipheader.getDestinationAddress().getHostAddress();
 			//if(inWhitelist(ips)){
 				tcpheader = factory.createTCPHeader(clientpacketdata, ipheader.getIPHeaderLength());
 			//}
@@ -253,17 +250,17 @@ public class SessionHandler {
 		}
 		return yes;
 	}
-	void sendRstPacket(IPv4Header ip, TCPHeader tcp, int datalength){
+	void sendRstPacket(IPHeader ip, TCPHeader tcp, int datalength){
 		byte[] data = factory.createRstData(ip, tcp, datalength);
 		try {
 			writer.write(data);
 			packetdata.addData(data);
-			Log.d(TAG,"Sent RST Packet to client with dest => "+PacketUtil.intToIPAddress(ip.getDestinationIP())+":"+tcp.getDestinationPort());
+			Log.d(TAG,"Sent RST Packet to client with dest => "+ip.getDestinationAddress().getHostAddress()+":"+tcp.getDestinationPort());
 		} catch (IOException e) {
 			Log.e(TAG,"failed to send RST packet: "+e.getMessage());
 		}
 	}
-	void ackFinAck(IPv4Header ip, TCPHeader tcp, Session session){
+	void ackFinAck(IPHeader ip, TCPHeader tcp, Session session){
 		//TODO: check if client only sent FIN without ACK
 		int ack = tcp.getSequenceNumber() + 1;
 		int seq = tcp.getAckNumber();
@@ -274,14 +271,14 @@ public class SessionHandler {
 			if(session != null){
 				session.getSelectionkey().cancel();
 				sdata.closeSession(session);
-				Log.d(TAG,"ACK to client's FIN and close session => "+PacketUtil.intToIPAddress(ip.getDestinationIP())+":"+tcp.getDestinationPort()
-						+"-"+PacketUtil.intToIPAddress(ip.getSourceIP())+":"+tcp.getSourcePort());
+				Log.d(TAG,"ACK to client's FIN and close session => "+ip.getDestinationAddress().getHostAddress()+":"+tcp.getDestinationPort()
+						+"-"+ip.getSourceAddress().getHostAddress()+":"+tcp.getSourcePort());
 			}
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
-	void sendFinAck(IPv4Header ip, TCPHeader tcp, Session session){
+	void sendFinAck(IPHeader ip, TCPHeader tcp, Session session){
 		int ack = tcp.getSequenceNumber();
 		int seq = tcp.getAckNumber();
 		byte[] data = factory.createFinAckData(ip, tcp, ack, seq,true,false);
@@ -289,9 +286,9 @@ public class SessionHandler {
 			writer.write(data);
 			packetdata.addData(data);
 			Log.d(TAG,"00000000000 FIN-ACK packet data to vpn client 000000000000");
-			IPv4Header vpnip = null;
+			IPHeader vpnip = null;
 			try {
-				vpnip = IPPacketFactory.createIPv4Header(data, 0);
+				vpnip = IPPacketFactory.createIPHeader(data, 0);
 			} catch (PacketHeaderException e) {
 				e.printStackTrace();
 			}
@@ -313,7 +310,7 @@ public class SessionHandler {
 		//avoid re-sending it, from here client should take care the rest
 		session.setClosingConnection(false);
 	}
-	void pushDataToDestination(Session session, IPv4Header ip, TCPHeader tcp){
+	void pushDataToDestination(Session session, IPHeader ip, TCPHeader tcp){
 		
 		session.setDataForSendingReady(true);
 		
@@ -324,6 +321,7 @@ public class SessionHandler {
 		int timestampSender = (int)dt.getTime();
 		session.setTimestampSender(timestampSender);
 		Log.d(TAG,"set data ready for sending to dest, bg will do it. data size: "+session.getSendingDataSize());
+		sdata.notifySessionChanged(session);
 		
 	}
 	
@@ -334,7 +332,7 @@ public class SessionHandler {
 	 * @param acceptedDataLength
 	 * @param session
 	 */
-	void sendAck(IPv4Header ipheader, TCPHeader tcpheader, int acceptedDataLength, Session session){
+	void sendAck(IPHeader ipheader, TCPHeader tcpheader, int acceptedDataLength, Session session){
 		int acknumber = session.getRecSequence() + acceptedDataLength;
 		Log.d(TAG,"sent ack, ack# "+session.getRecSequence()+" + "+acceptedDataLength+" = "+acknumber);
 		session.setRecSequence(acknumber);
@@ -344,7 +342,7 @@ public class SessionHandler {
 			packetdata.addData(data);
 			/* for debugging purpose
 			Log.d(TAG,"&&&&&&&&&&&&& ACK packet data to vpn client &&&&&&&&&&&&&&");
-			IPv4Header vpnip = null;
+			IPHeader vpnip = null;
 			try {
 				vpnip = factory.createIPv4Header(data, 0);
 			} catch (PacketHeaderException e) {
@@ -372,12 +370,14 @@ public class SessionHandler {
 	 * @param tcpheader
 	 * @param session
 	 */
-	void acceptAck(IPv4Header ipheader, TCPHeader tcpheader, Session session){
+	void acceptAck(IPHeader ipheader, TCPHeader tcpheader, Session session){
 		boolean iscorrupted = PacketUtil.isPacketCorrupted(tcpheader);
 		session.setPacketCorrupted(iscorrupted);
 		if(iscorrupted){
 			Log.e(TAG,"prev packet was corrupted, last ack# "+tcpheader.getAckNumber());
 		}
+		//read before the window changes, a new window or acked bytes can reopen a full client window
+		boolean wasFull = session.isClientWindowFull();
 		if((tcpheader.getAckNumber() > session.getSendUnack()) || (tcpheader.getAckNumber() == session.getSendNext())){
 			session.setAcked(true);
 			//Log.d(TAG,"Accepted ack from client, ack# "+tcpheader.getAckNumber());
@@ -390,8 +390,8 @@ public class SessionHandler {
 				session.decreaseAmountSentSinceLastAck(byteReceived);
 			}
 			if(session.isClientWindowFull()){
-				Log.d(TAG,"window: "+session.getSendWindow()+" is full? "+session.isClientWindowFull() + " for "+PacketUtil.intToIPAddress(ipheader.getDestinationIP())
-					+":"+tcpheader.getDestinationPort()+"-"+PacketUtil.intToIPAddress(ipheader.getSourceIP())+":"+tcpheader.getSourcePort());
+				Log.d(TAG,"window: "+session.getSendWindow()+" is full? "+session.isClientWindowFull() + " for "+ipheader.getDestinationAddress().getHostAddress()
+					+":"+tcpheader.getDestinationPort()+"-"+ipheader.getSourceAddress().getHostAddress()+":"+tcpheader.getSourcePort());
 			}
 			session.setSendUnack(tcpheader.getAckNumber());
 			session.setRecSequence(tcpheader.getSequenceNumber());
@@ -399,21 +399,32 @@ public class SessionHandler {
 			Date dt = new Date();
 			int timestampSender = (int)dt.getTime();
 			session.setTimestampSender(timestampSender);
+		}else if(tcpheader.getAckNumber() == session.getSendUnack()){
+			//duplicate ack or pure window update, nothing new acked
+			session.setAcked(false);
+			if(tcpheader.getWindowSize() > 0){
+				session.setSendWindowSizeAndScale(tcpheader.getWindowSize(), session.getSendWindowScale());
+			}
 		}else{
 			Log.d(TAG,"Not Accepting ack# "+tcpheader.getAckNumber() +" , it should be: "+session.getSendNext());
 			Log.d(TAG,"Prev sendUnack: "+session.getSendUnack());
 			session.setAcked(false);
 		}
+		if(wasFull && !session.isClientWindowFull()){
+			//let event loop resume reading from remote server
+			sdata.notifySessionChanged(session);
+		}
 	}
 	/**
 	 * set connection as aborting so that background worker will close it.
 	 * @param ip
 	 * @param tcp
 	 */
-	void resetConnection(IPv4Header ip, TCPHeader tcp){
-		Session sess = sdata.getSession(ip.getDestinationIP(), tcp.getDestinationPort(), ip.getSourceIP(), tcp.getSourcePort());
+	void resetConnection(IPHeader ip, TCPHeader tcp){
+		Session sess = sdata.getSession(ip.getDestinationAddress(), tcp.getDestinationPort(), ip.getSourceAddress(), tcp.getSourcePort());
 		if(sess != null){
 			sess.setAbortingConnection(true);
+			sdata.notifySessionChanged(sess);
 		}
 	}
 
@@ -422,22 +433,24 @@ public class SessionHandler {
 	 * @param ip
 	 * @param tcp
 	 */
-	void replySynAck(IPv4Header ip, TCPHeader tcp){
+	void replySynAck(IPHeader ip, TCPHeader tcp){
 		
 		ip.setIdenfication(0);
 		Packet packet = factory.createSynAckPacketData(ip, tcp);
 		
 		TCPHeader tcpheader = packet.getTcpheader();
 		
-		Session session = sdata.createNewSession(ip.getDestinationIP(), tcp.getDestinationPort(), 
-													ip.getSourceIP(), tcp.getSourcePort());
+		Session session = sdata.createNewSession(ip.getDestinationAddress(), tcp.getDestinationPort(), 
+													ip.getSourceAddress(), tcp.getSourcePort());
 		if(session == null){
 			return;
 		}
 		
-    	int windowScaleFactor = (int) Math.pow(2,tcpheader.getWindowScale());
+    	//scale offered by client in its SYN, SYN-ACK only echo window scale option when client offered it.
+    	//the SYN's own window is not scaled, the scale applies from the next segment on
+    	int windowScaleFactor = 1 << Math.min(tcp.getWindowScale(), 14);
     	//Log.d(TAG,"window scale: Math.power(2,"+tcpheader.getWindowScale()+") is "+windowScaleFactor);
-    	session.setSendWindowSizeAndScale(tcpheader.getWindowSize(), windowScaleFactor);
+    	session.setSynWindowSizeAndScale(tcp.getWindowSize(), windowScaleFactor);
     	Log.d(TAG,"send-window size: "+session.getSendWindow());
     	session.setMaxSegmentSize(tcpheader.getMaxSegmentSize());
     	session.setSendUnack(tcpheader.getSequenceNumber());
@@ -17,23 +17,25 @@
 package com.att.aro.android.arocollector;
 
 import java.io.IOException;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.net.SocketException;
+import java.nio.channels.Channel;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.DatagramChannel;
 import java.nio.channels.SelectionKey;
-import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
 import java.nio.channels.UnresolvedAddressException;
 import java.nio.channels.UnsupportedAddressTypeException;
 import java.util.Date;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import com.att.aro.android.arocollector.ip.IPv4Header;
+import com.att.aro.android.arocollector.ip.IPHeader;
 import com.att.aro.android.arocollector.socket.DataConst;
-import com.att.aro.android.arocollector.socket.SocketNIODataService;
+import com.att.aro.android.arocollector.socket.SocketEventLoop;
 import com.att.aro.android.arocollector.socket.SocketProtector;
 import com.att.aro.android.arocollector.tcp.TCPHeader;
 import com.att.aro.android.arocollector.udp.UDPHeader;
@@ -53,15 +55,12 @@ public class SessionManager {
 	private Hashtable<String, Session> table = null;
 	public static Object syncTable = new Object();
 	private SocketProtector protector = null;
-	Selector selector;
+	//event loops that new sessions are assigned to, round robin
+	private volatile SocketEventLoop[] eventLoops = new SocketEventLoop[0];
+	private AtomicInteger nextLoop = new AtomicInteger();
 	private SessionManager(){
 		table = new Hashtable<String,Session>(10);
 		protector = SocketProtector.getInstance();
-		try {
-			selector = Selector.open();
-		} catch (IOException e) {
-			Log.e(TAG,"Failed to create Socket Selector");
-		}
 	}
 	public static SessionManager getInstance(){
 		if(instance == null){
@@ -73,8 +72,34 @@ public class SessionManager {
 		}
 		return instance;
 	}
-	public Selector getSelector(){
-		return selector;
+	/**
+	 * set event loops which will own the channels of new sessions
+	 * @param loops
+	 */
+	public void setEventLoops(SocketEventLoop[] loops){
+		this.eventLoops = loops;
+	}
+	/**
+	 * pick an event loop for a new session
+	 * @return null if no event loop is running
+	 */
+	private SocketEventLoop nextEventLoop(){
+		SocketEventLoop[] loops = eventLoops;
+		if(loops.length == 0){
+			return null;
+		}
+		int index = (nextLoop.getAndIncrement() & Integer.MAX_VALUE) % loops.length;
+		return loops[index];
+	}
+	/**
+	 * tell the event loop owning a session that the session state changed: data from vpn client is ready
+	 * to send, client's window opened up or connection is aborting.
+	 * @param sess
+	 */
+	public void notifySessionChanged(Session sess){
+		if(sess != null && sess.getEventLoop() != null){
+			sess.getEventLoop().refresh(sess);
+		}
 	}
 	/**
 	 * keep java garbage collector from collecting a session
@@ -91,7 +116,7 @@ public class SessionManager {
 	public Iterator<Session> getAllSession(){
 		return table.values().iterator();
 	}
-	public int addClientUDPData(IPv4Header ip, UDPHeader udp, byte[] buffer, Session session){
+	public int addClientUDPData(IPHeader ip, UDPHeader udp, byte[] buffer, Session session){
 		int start = ip.getIPHeaderLength() + 8;
 		int len = udp.getLength() - 8;//exclude header size
 		if(len < 1){
@@ -111,8 +136,8 @@ public class SessionManager {
 	 * @param tcp
 	 * @param buffer
 	 */
-	public int addClientData(IPv4Header ip, TCPHeader tcp, byte[] buffer){
-		Session session = getSession(ip.getDestinationIP(), tcp.getDestinationPort(), ip.getSourceIP(), tcp.getSourcePort());
+	public int addClientData(IPHeader ip, TCPHeader tcp, byte[] buffer){
+		Session session = getSession(ip.getDestinationAddress(), tcp.getDestinationPort(), ip.getSourceAddress(), tcp.getSourcePort());
 		if(session == null){
 			return 0;
 		}
@@ -129,11 +154,11 @@ public class SessionManager {
 		session.setSendingData(data);
 		return len;
 	}
-	public boolean hasSession(int ipaddress, int port, int srcIp, int srcPort){
+	public boolean hasSession(InetAddress ipaddress, int port, InetAddress srcIp, int srcPort){
 		String key = createKey(ipaddress, port, srcIp, srcPort);
 		return table.containsKey(key);
 	}
-	public Session getSession(int ipaddress, int port, int srcIp, int srcPort){
+	public Session getSession(InetAddress ipaddress, int port, InetAddress srcIp, int srcPort){
 		String key = createKey(ipaddress, port, srcIp, srcPort);
 		Session session = null;
 		synchronized(syncTable){
@@ -203,8 +228,8 @@ public class SessionManager {
 			}
 		}
 		if(session != null){
-			Log.d(TAG,"closed session -> "+PacketUtil.intToIPAddress(session.getDestAddress())+":"+session.getDestPort()
-					+"-"+PacketUtil.intToIPAddress(session.getSourceIp())+":"+session.getSourcePort());
+			Log.d(TAG,"closed session -> "+session.getDestAddress().getHostAddress()+":"+session.getDestPort()
+					+"-"+session.getSourceIp().getHostAddress()+":"+session.getSourcePort());
 			session = null;
 		}
 	}
@@ -215,7 +240,7 @@ public class SessionManager {
 	 * @param srcIp
 	 * @param srcPort
 	 */
-	public void closeSession(int ip, int port, int srcIp, int srcPort){
+	public void closeSession(InetAddress ip, int port, InetAddress srcIp, int srcPort){
 		String keys = createKey(ip,port, srcIp, srcPort);
 		Session session = null; //getSession(ip, port, srcIp, srcPort);
 		synchronized(syncTable){
@@ -230,8 +255,8 @@ public class SessionManager {
 			} catch (IOException e) {
 				e.printStackTrace();
 			}
-			Log.d(TAG,"closed session -> "+PacketUtil.intToIPAddress(session.getDestAddress())+":"+session.getDestPort()
-					+"-"+PacketUtil.intToIPAddress(session.getSourceIp())+":"+session.getSourcePort());
+			Log.d(TAG,"closed session -> "+session.getDestAddress().getHostAddress()+":"+session.getDestPort()
+					+"-"+session.getSourceIp().getHostAddress()+":"+session.getSourcePort());
 			session = null;
 		}
 	}
@@ -252,12 +277,12 @@ public class SessionManager {
 			} catch (IOException e) {
 				e.printStackTrace();
 			}
-			Log.d(TAG,"closed session -> "+PacketUtil.intToIPAddress(session.getDestAddress())+":"+session.getDestPort()
-					+"-"+PacketUtil.intToIPAddress(session.getSourceIp())+":"+session.getSourcePort());
+			Log.d(TAG,"closed session -> "+session.getDestAddress().getHostAddress()+":"+session.getDestPort()
+					+"-"+session.getSourceIp().getHostAddress()+":"+session.getSourcePort());
 			session = null;
 		}
 	}
-	public Session createNewUDPSession(int ip, int port, int srcIp, int srcPort){
+	public Session createNewUDPSession(InetAddress ip, int port, InetAddress srcIp, int srcPort){
 		String keys = createKey(ip,port, srcIp, srcPort);
 		boolean found = false;
 		synchronized(syncTable){
@@ -289,9 +314,9 @@ public class SessionManager {
 		protector.protect(channel.socket());
 		
 		//initiate connection to redude latency
-		String ips = PacketUtil.intToIPAddress(ip);
-		String srcips = PacketUtil.intToIPAddress(srcIp);
-		SocketAddress addr = new InetSocketAddress(ips,port);
+		String ips = ip.getHostAddress();
+		String srcips = srcIp.getHostAddress();
+		SocketAddress addr = new InetSocketAddress(ip, port);
 		Log.d(TAG,"initialized connection to remote UDP server: "+ips+":"+port+" from "+srcips+":"+srcPort);
 		
 		
@@ -305,31 +330,24 @@ public class SessionManager {
 		}catch(IOException ex5){
 		}
 		
-				
-		Object isudp = new Object();
+		
+		ses.setUdpchannel(channel);
+		SocketEventLoop loop = nextEventLoop();
+		if(loop == null){
+			Log.e(TAG,"no event loop is running, dropping udp session");
+			closeChannel(channel);
+			return null;
+		}
 		try {
-			
-			synchronized(SocketNIODataService.syncSelector2){
-				selector.wakeup();
-				synchronized(SocketNIODataService.syncSelector){
-					SelectionKey selectkey = null;
-					if(!channel.isConnected()){
-						selectkey = channel.register(selector, SelectionKey.OP_CONNECT | SelectionKey.OP_READ | SelectionKey.OP_WRITE, isudp);
-					}else{
-						selectkey = channel.register(selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE, isudp);
-					}
-					ses.setSelectionkey(selectkey);
-					Log.d(TAG,"Registered udp selector successfully");
-				}
-			}
+			//OP_WRITE is added by the event loop once data from client is ready
+			loop.register(ses, channel, SelectionKey.OP_READ);
+			Log.d(TAG,"Registered udp selector successfully");
 		} catch (ClosedChannelException e1) {
 			e1.printStackTrace();
 			Log.e(TAG,"failed to register udp channel with selector: "+e1.getMessage());
 			return null;
 		}
 		
-		ses.setUdpchannel(channel);
-		
 		synchronized(syncTable){
 			if(!table.containsKey(keys)){
 				table.put(keys, ses);
@@ -349,7 +367,7 @@ public class SessionManager {
 		}
 		return ses;
 	}
-	public Session createNewSession(int ip, int port, int srcIp, int srcPort){
+	public Session createNewSession(InetAddress ip, int port, InetAddress srcIp, int srcPort){
 		String keys = createKey(ip,port, srcIp, srcPort);
 		boolean found = false;
 		synchronized(syncTable){
@@ -379,15 +397,15 @@ public class SessionManager {
 			Log.e(TAG,"Failed to create SocketChannel: "+e.getMessage());
 			return null;
 		}
-		String ips = PacketUtil.intToIPAddress(ip);
-		Log.d(TAG,"created new socketchannel for "+ips+":"+port+"-"+PacketUtil.intToIPAddress(srcIp)+":"+srcPort);
+		String ips = ip.getHostAddress();
+		Log.d(TAG,"created new socketchannel for "+ips+":"+port+"-"+srcIp.getHostAddress()+":"+srcPort);
 		
 		protector.protect(channel.socket());
 		
 		Log.d(TAG,"Protected new socketchannel");
 		
 		//initiate connection to redude latency
-		SocketAddress addr = new InetSocketAddress(ips,port);
+		SocketAddress addr = new InetSocketAddress(ip, port);
 		Log.d(TAG,"initiate connecting to remote tcp server: "+ips+":"+port);
 		boolean connected = false;
 		try{
@@ -402,24 +420,25 @@ public class SessionManager {
 		
 		ses.setConnected(connected);
 		
+		ses.setSocketchannel(channel);
+		
 		//register for non-blocking operation
+		SocketEventLoop loop = nextEventLoop();
+		if(loop == null){
+			Log.e(TAG,"no event loop is running, dropping tcp session");
+			closeChannel(channel);
+			return null;
+		}
 		try {
-			synchronized(SocketNIODataService.syncSelector2){
-				selector.wakeup();
-				synchronized(SocketNIODataService.syncSelector){
-					SelectionKey selectkey = channel.register(selector, SelectionKey.OP_CONNECT | SelectionKey.OP_READ | SelectionKey.OP_WRITE);
-					ses.setSelectionkey(selectkey);
-					Log.d(TAG,"Registered tcp selector successfully");
-				}
-			}
+			int ops = connected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT;
+			loop.register(ses, channel, ops);
+			Log.d(TAG,"Registered tcp selector successfully");
 		} catch (ClosedChannelException e1) {
 			e1.printStackTrace();
 			Log.e(TAG,"failed to register tcp channel with selector: "+e1.getMessage());
 			return null;
 		}
 		
-		ses.setSocketchannel(channel);
-		
 		synchronized(syncTable){
 			if(!table.containsKey(keys)){
 				table.put(keys, ses);
@@ -438,15 +457,23 @@ public class SessionManager {
 		
 		return ses;
 	}
+	private void closeChannel(Channel channel){
+		try {
+			channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
 	/**
-	 * create session key based on destination ip+port and source ip+port
+	 * create session key based on destination ip+port and source ip+port, IPv4 and IPv6 addresses
+	 * never collide since their textual forms differ
 	 * @param ip
 	 * @param port
 	 * @param srcIp
 	 * @param srcPort
 	 * @return
 	 */
-	public String createKey(int ip, int port, int srcIp, int srcPort){
-		return ip + ":" + port+"-"+srcIp+":"+srcPort;
+	public String createKey(InetAddress ip, int port, InetAddress srcIp, int srcPort){
+		return ip.getHostAddress() + "|" + port+"-"+srcIp.getHostAddress()+"|"+srcPort;
 	}
 }
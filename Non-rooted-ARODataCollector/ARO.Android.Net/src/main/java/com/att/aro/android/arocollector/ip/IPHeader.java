@@ -0,0 +1,79 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.att.aro.android.arocollector.ip;
+
+import java.net.InetAddress;
+
+/**
+ * Common view of an IPv4 or IPv6 header used by TCP/UDP packet handling, so that sessions and
+ * packet factories work the same way for both IP versions.
+ */
+public interface IPHeader {
+	/**
+	 * 4 for IPv4Header, 6 for IPv6Header
+	 * @return
+	 */
+	byte getIpVersion();
+	
+	/**
+	 * total length of IP header in bytes, including IPv6 extension headers if any.
+	 * @return
+	 */
+	int getIPHeaderLength();
+	
+	/**
+	 * protocol of the data portion: IPv4 protocol field or the upper layer IPv6 next header (TCP => 6, UDP => 17)
+	 * @return
+	 */
+	byte getProtocol();
+	
+	/**
+	 * total length of this packet in bytes including IP Header and body(TCP/UDP header + data)
+	 * @return
+	 */
+	int getTotalLength();
+	
+	void setTotalLength(int totalLength);
+	
+	/**
+	 * IPv4 identification, IPv6 header does not have one
+	 * @return
+	 */
+	int getIdenfication();
+	
+	void setIdenfication(int idenfication);
+	
+	InetAddress getSourceAddress();
+	
+	void setSourceAddress(InetAddress address);
+	
+	InetAddress getDestinationAddress();
+	
+	void setDestinationAddress(InetAddress address);
+	
+	/**
+	 * raw bytes of source address, 4 bytes for IPv4 and 16 bytes for IPv6
+	 * @return
+	 */
+	byte[] getSourceAddressBytes();
+	
+	/**
+	 * raw bytes of destination address, 4 bytes for IPv4 and 16 bytes for IPv6
+	 * @return
+	 */
+	byte[] getDestinationAddressBytes();
+}
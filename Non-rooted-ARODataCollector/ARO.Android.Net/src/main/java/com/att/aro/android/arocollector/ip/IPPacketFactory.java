@@ -12,6 +12,123 @@ import com.att.aro.android.arocollector.util.PacketUtil;
  * Date: June 30, 2014
  */
 public class IPPacketFactory {
+	//IPv6 extension headers that may sit between the fixed header and TCP/UDP
+	private static final int HOP_BY_HOP_OPTIONS = 0;
+	private static final int ROUTING = 43;
+	private static final int DESTINATION_OPTIONS = 60;
+	
+	/**
+	 * create a copy of IPv4 or IPv6 header
+	 * @param ipheader
+	 * @return
+	 */
+	public static IPHeader copyIPHeader(IPHeader ipheader){
+		if(ipheader instanceof IPv6Header){
+			return copyIPv6Header((IPv6Header)ipheader);
+		}
+		return copyIPv4Header((IPv4Header)ipheader);
+	}
+	/**
+	 * copy of IPv6 header without its extension headers, TCP/UDP header directly follows the fixed header
+	 * @param ipheader
+	 * @return
+	 */
+	public static IPv6Header copyIPv6Header(IPv6Header ipheader){
+		IPv6Header ip = new IPv6Header(ipheader.getTrafficClass(), ipheader.getFlowLabel(), 
+				ipheader.getPayloadLength() - ipheader.getExtensionHeaderLength(), ipheader.getNextHeader(), 
+				ipheader.getHopLimit(), 0, ipheader.getSourceAddressBytes().clone(), ipheader.getDestinationAddressBytes().clone());
+		return ip;
+	}
+	/**
+	 * create header array of byte for IPv4 or IPv6 header. IPv4 header checksum is left to caller.
+	 * @param header
+	 * @return
+	 */
+	public static byte[] createIPHeaderData(IPHeader header){
+		if(header instanceof IPv6Header){
+			return createIPv6HeaderData((IPv6Header)header);
+		}
+		return createIPv4HeaderData((IPv4Header)header);
+	}
+	/**
+	 * create IPv6 fixed header array of byte from a given IPv6Header object
+	 * @param header instance of IPv6Header
+	 * @return array of byte
+	 */
+	public static byte[] createIPv6HeaderData(IPv6Header header){
+		byte[] buffer = new byte[IPv6Header.FIXED_HEADER_LENGTH];
+		int first = (6 << 28) | ((header.getTrafficClass() & 0xFF) << 20) | (header.getFlowLabel() & 0xFFFFF);
+		PacketUtil.writeIntToBytes(first, buffer, 0);
+		buffer[4] = (byte)(header.getPayloadLength() >> 8);
+		buffer[5] = (byte)header.getPayloadLength();
+		buffer[6] = header.getNextHeader();
+		buffer[7] = header.getHopLimit();
+		System.arraycopy(header.getSourceAddressBytes(), 0, buffer, 8, 16);
+		System.arraycopy(header.getDestinationAddressBytes(), 0, buffer, 24, 16);
+		return buffer;
+	}
+	/**
+	 * create IPv4 or IPv6 header from a given array of byte, depending on the version field
+	 * @param buffer array of byte
+	 * @param start position to start extracting data
+	 * @return a new instance of IPv4Header or IPv6Header
+	 * @throws PacketHeaderException
+	 */
+	public static IPHeader createIPHeader(byte[] buffer, int start) throws PacketHeaderException{
+		if(buffer.length <= start){
+			throw new PacketHeaderException("Empty IP packet");
+		}
+		int ipversion = (buffer[start] >> 4) & 0x0F;
+		if(ipversion == 6){
+			return createIPv6Header(buffer, start);
+		}
+		return createIPv4Header(buffer, start);
+	}
+	/**
+	 * create IPv6 Header from a given array of byte. Hop-by-hop, routing and destination options extension
+	 * headers are skipped so that the protocol is the one of the upper layer.
+	 * @param buffer array of byte
+	 * @param start position to start extracting data
+	 * @return a new instance of IPv6Header
+	 * @throws PacketHeaderException
+	 */
+	public static IPv6Header createIPv6Header(byte[] buffer, int start) throws PacketHeaderException{
+		if((buffer.length - start) < IPv6Header.FIXED_HEADER_LENGTH){
+			throw new PacketHeaderException("Minimum IPv6 header is 40 bytes. There are less than 40 bytes"
+					+ " from start position to the end of array.");
+		}
+		int first = PacketUtil.getNetworkInt(buffer, start, 4);
+		if(((first >> 28) & 0x0F) != 6){
+			throw new PacketHeaderException("Invalid IPv6 header. IP version should be 6.");
+		}
+		byte trafficClass = (byte)(first >> 20);
+		int flowLabel = first & 0xFFFFF;
+		int payloadLength = PacketUtil.getNetworkInt(buffer, start + 4, 2);
+		int nextHeader = buffer[start + 6] & 0xFF;
+		byte hopLimit = buffer[start + 7];
+		byte[] sourceIp = new byte[16];
+		byte[] destIp = new byte[16];
+		System.arraycopy(buffer, start + 8, sourceIp, 0, 16);
+		System.arraycopy(buffer, start + 24, destIp, 0, 16);
+		
+		int extensionLength = 0;
+		int offset = start + IPv6Header.FIXED_HEADER_LENGTH;
+		while(nextHeader == HOP_BY_HOP_OPTIONS || nextHeader == ROUTING || nextHeader == DESTINATION_OPTIONS){
+			if(buffer.length < offset + 8){
+				throw new PacketHeaderException("Not enough space in array for IPv6 extension header");
+			}
+			//length is in 8 bytes unit, not including the first 8 bytes
+			int len = ((buffer[offset + 1] & 0xFF) + 1) * 8;
+			nextHeader = buffer[offset] & 0xFF;
+			offset += len;
+			extensionLength += len;
+		}
+		if(buffer.length < offset){
+			throw new PacketHeaderException("Not enough space in array for IPv6 extension header");
+		}
+		return new IPv6Header(trafficClass, flowLabel, payloadLength, (byte)nextHeader, hopLimit, extensionLength, 
+				sourceIp, destIp);
+	}
 	public static IPv4Header copyIPv4Header(IPv4Header ipheader){
 		IPv4Header ip = new IPv4Header(ipheader.getIpVersion(), ipheader.getInternetHeaderLength(), 
 				ipheader.getDscpOrTypeOfService(), ipheader.getEcn(), ipheader.getTotalLength(), ipheader.getIdenfication(), 
@@ -16,12 +16,15 @@
 
 package com.att.aro.android.arocollector.ip;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
 /**
  * Data structure for IPv4 header as defined in RFC 791.
  * @author Borey Sao
  * Date: May 8, 2014
  */
-public class IPv4Header {
+public class IPv4Header implements IPHeader {
 	//IP packet is the four-bit version field. For IPv4, this has a value of 4 (hence the name IPv4).
 	private byte ipVersion;
 	
@@ -187,6 +190,53 @@ public class IPv4Header {
 		return optionBytes;
 	}
 
+	@Override
+	public InetAddress getSourceAddress() {
+		return toInetAddress(sourceIP);
+	}
+
+	@Override
+	public void setSourceAddress(InetAddress address) {
+		this.sourceIP = toInt(address.getAddress());
+	}
+
+	@Override
+	public InetAddress getDestinationAddress() {
+		return toInetAddress(destinationIP);
+	}
+
+	@Override
+	public void setDestinationAddress(InetAddress address) {
+		this.destinationIP = toInt(address.getAddress());
+	}
+
+	@Override
+	public byte[] getSourceAddressBytes() {
+		return toBytes(sourceIP);
+	}
+
+	@Override
+	public byte[] getDestinationAddressBytes() {
+		return toBytes(destinationIP);
+	}
+
+	private static byte[] toBytes(int address){
+		return new byte[]{(byte)(address >>> 24), (byte)(address >>> 16), (byte)(address >>> 8), (byte)address};
+	}
+
+	private static int toInt(byte[] address){
+		return ((address[0] & 0xFF) << 24) | ((address[1] & 0xFF) << 16) | ((address[2] & 0xFF) << 8) | (address[3] & 0xFF);
+	}
+
+	private static InetAddress toInetAddress(int address){
+		try {
+			return InetAddress.getByAddress(toBytes(address));
+		} catch (UnknownHostException e) {
+			//only thrown for illegal address length
+			return null;
+		}
+	}
+
 	public void setInternetHeaderLength(byte internetHeaderLength) {
 		this.internetHeaderLength = internetHeaderLength;
 	}
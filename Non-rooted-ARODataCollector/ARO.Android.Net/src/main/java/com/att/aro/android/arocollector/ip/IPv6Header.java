@@ -0,0 +1,197 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+
+package com.att.aro.android.arocollector.ip;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Data structure for IPv6 header as defined in RFC 2460.
+ * Extension headers found between the fixed header and TCP/UDP are counted in the header length
+ * but are not kept, response packets are always created with the 40 bytes fixed header only.
+ */
+public class IPv6Header implements IPHeader {
+	//length of the fixed IPv6 header in bytes
+	public static final int FIXED_HEADER_LENGTH = 40;
+	
+	//8 bits traffic class, same purpose as IPv4 DSCP + ECN
+	private byte trafficClass = 0;
+	
+	//20 bits flow label
+	private int flowLabel = 0;
+	
+	//length of the payload in bytes, including extension headers
+	private int payloadLength = 0;
+	
+	//protocol of the upper layer (TCP => 6, UDP => 17) after skipping extension headers
+	private byte nextHeader = 0;
+	
+	//same as IPv4 time to live
+	private byte hopLimit = 0;
+	
+	//length of extension headers between fixed header and upper layer header
+	private int extensionHeaderLength = 0;
+	
+	private byte[] sourceIP;
+	
+	private byte[] destinationIP;
+	
+	/**
+	 * create a new IPv6 header
+	 * @param trafficClass traffic class
+	 * @param flowLabel 20 bits flow label
+	 * @param payloadLength length of the data following the fixed header, in bytes
+	 * @param nextHeader protocol of the upper layer header
+	 * @param hopLimit max number of hops
+	 * @param extensionHeaderLength length of extension headers before the upper layer header
+	 * @param sourceIP 16 bytes source address
+	 * @param destinationIP 16 bytes destination address
+	 */
+	public IPv6Header(byte trafficClass, int flowLabel, int payloadLength, byte nextHeader, byte hopLimit,
+			int extensionHeaderLength, byte[] sourceIP, byte[] destinationIP){
+		this.trafficClass = trafficClass;
+		this.flowLabel = flowLabel;
+		this.payloadLength = payloadLength;
+		this.nextHeader = nextHeader;
+		this.hopLimit = hopLimit;
+		this.extensionHeaderLength = extensionHeaderLength;
+		this.sourceIP = sourceIP;
+		this.destinationIP = destinationIP;
+	}
+
+	@Override
+	public byte getIpVersion() {
+		return 6;
+	}
+
+	@Override
+	public int getIPHeaderLength() {
+		return FIXED_HEADER_LENGTH + extensionHeaderLength;
+	}
+
+	@Override
+	public byte getProtocol() {
+		return nextHeader;
+	}
+
+	@Override
+	public int getTotalLength() {
+		return FIXED_HEADER_LENGTH + payloadLength;
+	}
+
+	@Override
+	public void setTotalLength(int totalLength) {
+		this.payloadLength = totalLength - FIXED_HEADER_LENGTH;
+	}
+
+	@Override
+	public int getIdenfication() {
+		return 0;
+	}
+
+	@Override
+	public void setIdenfication(int idenfication) {
+		//IPv6 has no identification field in the fixed header
+	}
+
+	@Override
+	public InetAddress getSourceAddress() {
+		return toInetAddress(sourceIP);
+	}
+
+	@Override
+	public void setSourceAddress(InetAddress address) {
+		this.sourceIP = address.getAddress();
+	}
+
+	@Override
+	public InetAddress getDestinationAddress() {
+		return toInetAddress(destinationIP);
+	}
+
+	@Override
+	public void setDestinationAddress(InetAddress address) {
+		this.destinationIP = address.getAddress();
+	}
+
+	@Override
+	public byte[] getSourceAddressBytes() {
+		return sourceIP;
+	}
+
+	@Override
+	public byte[] getDestinationAddressBytes() {
+		return destinationIP;
+	}
+
+	public byte getTrafficClass() {
+		return trafficClass;
+	}
+
+	public void setTrafficClass(byte trafficClass) {
+		this.trafficClass = trafficClass;
+	}
+
+	public int getFlowLabel() {
+		return flowLabel;
+	}
+
+	public void setFlowLabel(int flowLabel) {
+		this.flowLabel = flowLabel;
+	}
+
+	public int getPayloadLength() {
+		return payloadLength;
+	}
+
+	public void setPayloadLength(int payloadLength) {
+		this.payloadLength = payloadLength;
+	}
+
+	public byte getNextHeader() {
+		return nextHeader;
+	}
+
+	public void setNextHeader(byte nextHeader) {
+		this.nextHeader = nextHeader;
+	}
+
+	public byte getHopLimit() {
+		return hopLimit;
+	}
+
+	public void setHopLimit(byte hopLimit) {
+		this.hopLimit = hopLimit;
+	}
+
+	public int getExtensionHeaderLength() {
+		return extensionHeaderLength;
+	}
+
+	public void setExtensionHeaderLength(int extensionHeaderLength) {
+		this.extensionHeaderLength = extensionHeaderLength;
+	}
+
+	private static InetAddress toInetAddress(byte[] address){
+		try {
+			return InetAddress.getByAddress(address);
+		} catch (UnknownHostException e) {
+			//only thrown for illegal address length
+			return null;
+		}
+	}
+}
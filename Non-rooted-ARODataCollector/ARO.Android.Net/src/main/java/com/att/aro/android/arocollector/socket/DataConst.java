@@ -21,4 +21,6 @@ package com.att.aro.android.arocollector.socket;
  */
 public class DataConst {
 	public static final int MAX_RECEIVE_BUFFER_SIZE = 4096;
+	//number of event loops handling socket I/O for all sessions
+	public static final int EVENT_LOOP_COUNT = 2;
 }
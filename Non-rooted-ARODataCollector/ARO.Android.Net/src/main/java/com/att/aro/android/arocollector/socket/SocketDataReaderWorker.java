@@ -13,9 +13,8 @@ import android.util.Log;
 
 import com.att.aro.android.arocollector.IClientPacketWriter;
 import com.att.aro.android.arocollector.Session;
-import com.att.aro.android.arocollector.SessionManager;
 import com.att.aro.android.arocollector.ip.IPPacketFactory;
-import com.att.aro.android.arocollector.ip.IPv4Header;
+import com.att.aro.android.arocollector.ip.IPHeader;
 import com.att.aro.android.arocollector.tcp.PacketHeaderException;
 import com.att.aro.android.arocollector.tcp.TCPHeader;
 import com.att.aro.android.arocollector.tcp.TCPPacketFactory;
@@ -24,77 +23,49 @@ import com.att.aro.android.arocollector.udp.UDPPacketFactory;
 import com.att.aro.android.arocollector.util.PacketUtil;
 
 /**
- * background task for reading data from remote server and write data to vpn client
+ * read data from remote server and write data to vpn client, driven by SocketEventLoop
  * @author Borey Sao
  * Date: July 30, 2014
  */
-public class SocketDataReaderWorker implements Runnable {
+public class SocketDataReaderWorker {
 	public static final String TAG = "AROCollector";
 	private IClientPacketWriter writer;
 	private TCPPacketFactory factory;
 	private UDPPacketFactory udpfactory;
-	private SessionManager sessionmg;
-	private String sessionKey = "";
 	private SocketData pdata;
 	public SocketDataReaderWorker(){
-		sessionmg = SessionManager.getInstance();
 		pdata = SocketData.getInstance();
 	}
 	public SocketDataReaderWorker(TCPPacketFactory tcpfactory, UDPPacketFactory udpfactory, IClientPacketWriter writer){
-		sessionmg = SessionManager.getInstance();
 		pdata = SocketData.getInstance();
 		this.factory = tcpfactory;
 		this.udpfactory = udpfactory;
 		this.writer = writer;
 	}
-	@Override
-	public void run() {
-		Session sess = sessionmg.getSessionByKey(sessionKey);
-		if(sess == null){
-			return;
-		}
+	/**
+	 * read whatever the remote server has sent for the session and push it to the VPN client.
+	 * Called on the event loop that owns the session when its channel is readable.
+	 * @param sess
+	 * @param buffer read buffer owned by the calling event loop
+	 */
+	public void read(Session sess, ByteBuffer buffer){
+		buffer.clear();
 		if(sess.getSocketchannel() != null){
 			try{
-				readTCP(sess);
+				readTCP(sess, buffer);
 			}catch(Exception ex){
 				Log.e(TAG,"error processRead: "+ex.getMessage());
 			}
 		}else if(sess.getUdpchannel() != null){
-			readUDP(sess);
-		}
-		if(sess != null){
-			
-			if(sess.isAbortingConnection()){
-				Log.d(TAG,"removing aborted connection -> "+
-						PacketUtil.intToIPAddress(sess.getDestAddress())+":"+sess.getDestPort()
-						+"-"+PacketUtil.intToIPAddress(sess.getSourceIp())+":"+sess.getSourcePort());
-				sess.getSelectionkey().cancel();
-				if(sess.getSocketchannel() != null && sess.getSocketchannel().isConnected()){
-					try {
-						sess.getSocketchannel().close();
-					} catch (IOException e) {
-						e.printStackTrace();
-					}
-				}else if(sess.getUdpchannel() != null && sess.getUdpchannel().isConnected()){
-					try {
-						sess.getUdpchannel().close();
-					} catch (IOException e) {
-						e.printStackTrace();
-					}
-				}
-				sessionmg.closeSession(sess);
-			}else{
-				sess.setBusyread(false);
-			}
+			readUDP(sess, buffer);
 		}
 	}
 	
-	void readTCP(Session sess){
+	void readTCP(Session sess, ByteBuffer buffer){
 		SocketChannel channel = sess.getSocketchannel();
-		ByteBuffer buffer = ByteBuffer.allocate(DataConst.MAX_RECEIVE_BUFFER_SIZE);
 		int len = 0;
-		String name = PacketUtil.intToIPAddress(sess.getDestAddress())+":"+sess.getDestPort()+"-"+
-				PacketUtil.intToIPAddress(sess.getSourceIp())+":"+sess.getSourcePort();
+		String name = sess.getDestAddress().getHostAddress()+":"+sess.getDestPort()+"-"+
+				sess.getSourceIp().getHostAddress()+":"+sess.getSourcePort();
 		try {
 			
 			do{
@@ -117,8 +88,9 @@ public class SocketDataReaderWorker implements Runnable {
 					}
 				}else{
 
-					Log.e(TAG,"*** client window is full, now pause for "+PacketUtil.intToIPAddress(sess.getDestAddress())+":"+sess.getDestPort()+"-"+
-							PacketUtil.intToIPAddress(sess.getSourceIp())+":"+sess.getSourcePort());
+					//event loop stops selecting OP_READ until client acks more data
+					Log.d(TAG,"*** client window is full, now pause for "+sess.getDestAddress().getHostAddress()+":"+sess.getDestPort()+"-"+
+							sess.getSourceIp().getHostAddress()+":"+sess.getSourcePort());
 					break;
 				}
 			}while(len > 0);
@@ -173,7 +145,7 @@ public class SocketDataReaderWorker implements Runnable {
 			return false;
 		}
 		
-		IPv4Header ipheader = session.getLastIPheader();
+		IPHeader ipheader = session.getLastIPheader();
 		TCPHeader tcpheader = session.getLastTCPheader();
 		int max = session.getMaxSegmentSize() - 60;
 		
@@ -195,12 +167,12 @@ public class SocketDataReaderWorker implements Runnable {
 			try {
 				writer.write(data);
 				pdata.addData(data);
-				//Log.d(TAG,"finished sending "+data.length+" to vpn client: "+PacketUtil.intToIPAddress(session.getDestAddress())+":"+session.getDestPort()+"-"+
-				//		PacketUtil.intToIPAddress(session.getSourceIp())+":"+session.getSourcePort());
+				//Log.d(TAG,"finished sending "+data.length+" to vpn client: "+session.getDestAddress().getHostAddress()+":"+session.getDestPort()+"-"+
+				//		session.getSourceIp().getHostAddress()+":"+session.getSourcePort());
 				
 				/* for debugging purpose 
 				Log.d(TAG,"========> BG: packet data to vpn client++++++++");
-				IPv4Header vpnip = null;
+				IPHeader vpnip = null;
 				try {
 					vpnip = factory.createIPv4Header(data, 0);
 				} catch (PacketHeaderException e) {
@@ -239,7 +211,7 @@ public class SocketDataReaderWorker implements Runnable {
 		return false;
 	}
 	private void sendFin(Session session){
-		IPv4Header ipheader = session.getLastIPheader();
+		IPHeader ipheader = session.getLastIPheader();
 		TCPHeader tcpheader = session.getLastTCPheader();
 		byte[] data = factory.createFinData(ipheader, tcpheader, session.getSendNext(), session.getRecSequence(), session.getTimestampSender(), session.getTimestampReplyto());
 		try {
@@ -247,7 +219,7 @@ public class SocketDataReaderWorker implements Runnable {
 			pdata.addData(data);
 			/* for debugging purpose 
 			Log.d(TAG,"========> BG: FIN packet data to vpn client++++++++");
-			IPv4Header vpnip = null;
+			IPHeader vpnip = null;
 			try {
 				vpnip = factory.createIPv4Header(data, 0);
 			} catch (PacketHeaderException e) {
@@ -272,9 +244,8 @@ public class SocketDataReaderWorker implements Runnable {
 			
 		}
 	}
-	private void readUDP(Session sess){
+	private void readUDP(Session sess, ByteBuffer buffer){
 		DatagramChannel channel = sess.getUdpchannel();
-		ByteBuffer buffer = ByteBuffer.allocate(DataConst.MAX_RECEIVE_BUFFER_SIZE);
 		int len = 0;
 		try {
 			do{
@@ -300,7 +271,7 @@ public class SocketDataReaderWorker implements Runnable {
 					buffer.clear();
 					
 					try {
-						IPv4Header ip = IPPacketFactory.createIPv4Header(packetdata, 0);
+						IPHeader ip = IPPacketFactory.createIPHeader(packetdata, 0);
 						UDPHeader udp = udpfactory.createUDPHeader(packetdata, ip.getIPHeaderLength());
 						String str = PacketUtil.getUDPoutput(ip, udp);
 						Log.d(TAG,"++++++ SD: packet sending to client ++++++++");
@@ -320,12 +291,6 @@ public class SocketDataReaderWorker implements Runnable {
 			sess.setAbortingConnection(true);
 		}
 	}
-	public String getSessionKey() {
-		return sessionKey;
-	}
-	public void setSessionKey(String sessionKey) {
-		this.sessionKey = sessionKey;
-	}
 
 	
 }
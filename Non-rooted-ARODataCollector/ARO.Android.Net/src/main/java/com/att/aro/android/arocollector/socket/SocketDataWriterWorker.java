@@ -11,83 +11,50 @@ import android.util.Log;
 
 import com.att.aro.android.arocollector.IClientPacketWriter;
 import com.att.aro.android.arocollector.Session;
-import com.att.aro.android.arocollector.SessionManager;
 import com.att.aro.android.arocollector.ip.IPPacketFactory;
-import com.att.aro.android.arocollector.ip.IPv4Header;
+import com.att.aro.android.arocollector.ip.IPHeader;
 import com.att.aro.android.arocollector.tcp.PacketHeaderException;
 import com.att.aro.android.arocollector.tcp.TCPPacketFactory;
 import com.att.aro.android.arocollector.udp.UDPHeader;
 import com.att.aro.android.arocollector.udp.UDPPacketFactory;
 import com.att.aro.android.arocollector.util.PacketUtil;
 
-public class SocketDataWriterWorker implements Runnable{
+/**
+ * write data from vpn client to remote server, driven by SocketEventLoop
+ */
+public class SocketDataWriterWorker {
 	public static final String TAG = "AROCollector";
 	private IClientPacketWriter writer;
 	private TCPPacketFactory factory;
 	private UDPPacketFactory udpfactory;
-	private SessionManager sessionmg;
-	private String sessionKey = "";
 	private SocketData pdata;
 	public SocketDataWriterWorker(TCPPacketFactory tcpfactory, UDPPacketFactory udpfactory, IClientPacketWriter writer){
-		sessionmg = SessionManager.getInstance();
 		pdata = SocketData.getInstance();
 		this.factory = tcpfactory;
 		this.udpfactory = udpfactory;
 		this.writer = writer;
 	}
-	public String getSessionKey() {
-		return sessionKey;
-	}
-	public void setSessionKey(String sessionKey) {
-		this.sessionKey = sessionKey;
-	}
-	@Override
-	public void run() {
-		Session sess = sessionmg.getSessionByKey(sessionKey);
-		if(sess == null){
-			return;
-		}
-		sess.setBusywrite(true);
+	/**
+	 * write data queued by the VPN client to the remote server. Called on the event loop that owns
+	 * the session when its channel is writable.
+	 * @param sess
+	 */
+	public void write(Session sess){
 		if(sess.getSocketchannel() != null){
 			writeTCP(sess);
 		}else if(sess.getUdpchannel() != null){
 			writeUDP(sess);
 		}
-		if(sess != null){
-			sess.setBusywrite(false);
-			if(sess.isAbortingConnection()){
-				Log.d(TAG,"removing aborted connection -> "+
-						PacketUtil.intToIPAddress(sess.getDestAddress())+":"+sess.getDestPort()
-						+"-"+PacketUtil.intToIPAddress(sess.getSourceIp())+":"+sess.getSourcePort());
-				sess.getSelectionkey().cancel();
-				if(sess.getSocketchannel() != null && sess.getSocketchannel().isConnected()){
-					try {
-						sess.getSocketchannel().close();
-					} catch (IOException e) {
-						e.printStackTrace();
-					}
-				}else if(sess.getUdpchannel() != null && sess.getUdpchannel().isConnected()){
-					try {
-						sess.getUdpchannel().close();
-					} catch (IOException e) {
-						e.printStackTrace();
-					}
-				}
-				sessionmg.closeSession(sess);
-			}
-		}
 	}
 	void writeUDP(Session sess){
 		if(!sess.hasDataToSend()){
 			return;
 		}
 		DatagramChannel channel = sess.getUdpchannel();
-		String name = PacketUtil.intToIPAddress(sess.getDestAddress())+":"+sess.getDestPort()+
-				"-"+PacketUtil.intToIPAddress(sess.getSourceIp())+":"+sess.getSourcePort();
+		String name = sess.getDestAddress().getHostAddress()+":"+sess.getDestPort()+
+				"-"+sess.getSourceIp().getHostAddress()+":"+sess.getSourcePort();
 		byte[] data = sess.getSendingData();
-		ByteBuffer buffer = ByteBuffer.allocate(data.length);
-		buffer.put(data);
-		buffer.flip();
+		ByteBuffer buffer = ByteBuffer.wrap(data);
 		try {
 			String str = new String(data);
 			Log.d(TAG,"****** data write to server ********");
@@ -110,17 +77,23 @@ public class SocketDataWriterWorker implements Runnable{
 	void writeTCP(Session sess){
 		SocketChannel channel = sess.getSocketchannel();
 
-		String name = PacketUtil.intToIPAddress(sess.getDestAddress())+":"+sess.getDestPort()+
-				"-"+PacketUtil.intToIPAddress(sess.getSourceIp())+":"+sess.getSourcePort();
+		String name = sess.getDestAddress().getHostAddress()+":"+sess.getDestPort()+
+				"-"+sess.getSourceIp().getHostAddress()+":"+sess.getSourcePort();
 		
-		byte[] data = sess.getSendingData();
-		ByteBuffer buffer = ByteBuffer.allocate(data.length);
-		buffer.put(data);
-		buffer.flip();
+		ByteBuffer buffer = sess.getPendingWrite();
+		if(buffer == null){
+			if(!sess.hasDataToSend()){
+				return;
+			}
+			byte[] data = sess.getSendingData();
+			buffer = ByteBuffer.wrap(data);
+		}
 		
 		try {
 			Log.d(TAG,"writing TCP data to: "+name);
 			channel.write(buffer);
+			//socket buffer is full, rest is written on next OP_WRITE
+			sess.setPendingWrite(buffer.hasRemaining() ? buffer : null);
 			//Log.d(TAG,"finished writing data to: "+name);
 		}catch(NotYetConnectedException ex){
 			Log.e(TAG,"failed to write to unconnected socket: "+ex.getMessage());
@@ -0,0 +1,290 @@
+/*
+ *  Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package com.att.aro.android.arocollector.socket;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.UnresolvedAddressException;
+import java.nio.channels.UnsupportedAddressTypeException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import android.util.Log;
+
+import com.att.aro.android.arocollector.IClientPacketWriter;
+import com.att.aro.android.arocollector.Session;
+import com.att.aro.android.arocollector.SessionManager;
+import com.att.aro.android.arocollector.tcp.TCPPacketFactory;
+import com.att.aro.android.arocollector.udp.UDPPacketFactory;
+import com.att.aro.android.arocollector.util.PacketUtil;
+
+/**
+ * Event loop that owns a Selector and every session registered with it. Connect, read and write
+ * readiness are handled inline on the loop thread, and interest ops are toggled so that the
+ * selector only wakes up for work that can actually be done: OP_WRITE is set only while the session
+ * has data ready for the remote server, and OP_READ is cleared while the VPN client's window is full.
+ */
+public class SocketEventLoop implements Runnable {
+	public static final String TAG = "AROCollector";
+
+	private final Selector selector;
+	//held by threads registering channels so that select() does not block the registration
+	private final Object syncRegister = new Object();
+	//sessions whose interest ops must be re-evaluated on the loop thread
+	private final ConcurrentLinkedQueue<Session> pending = new ConcurrentLinkedQueue<Session>();
+	private final SessionManager sessionmg;
+	private final SocketDataReaderWorker reader;
+	private final SocketDataWriterWorker sender;
+	//reused for every read on this loop
+	private final ByteBuffer readBuffer = ByteBuffer.allocate(DataConst.MAX_RECEIVE_BUFFER_SIZE);
+	private volatile boolean shutdown = false;
+
+	public SocketEventLoop(SessionManager sessionmg, TCPPacketFactory factory, UDPPacketFactory udpfactory, IClientPacketWriter writer) throws IOException{
+		this.sessionmg = sessionmg;
+		this.selector = Selector.open();
+		this.reader = new SocketDataReaderWorker(factory, udpfactory, writer);
+		this.sender = new SocketDataWriterWorker(factory, udpfactory, writer);
+	}
+	/**
+	 * register a session's channel with this loop. The session is attached to the SelectionKey so that
+	 * readiness events need no session lookup.
+	 * @param sess
+	 * @param channel
+	 * @param ops
+	 * @return SelectionKey of the channel
+	 * @throws ClosedChannelException
+	 */
+	public SelectionKey register(Session sess, SelectableChannel channel, int ops) throws ClosedChannelException{
+		SelectionKey key = null;
+		synchronized(syncRegister){
+			selector.wakeup();
+			key = channel.register(selector, ops, sess);
+		}
+		sess.setEventLoop(this);
+		sess.setSelectionkey(key);
+		return key;
+	}
+	/**
+	 * ask the loop to re-evaluate interest ops of a session, e.g. after new data from the VPN client
+	 * is ready, the client's window opened up again, or the connection is aborting.
+	 * @param sess
+	 */
+	public void refresh(Session sess){
+		pending.add(sess);
+		selector.wakeup();
+	}
+	/**
+	 * notify loop to shutdown
+	 */
+	public void shutdown(){
+		shutdown = true;
+		selector.wakeup();
+	}
+	@Override
+	public void run() {
+		Log.d(TAG, "Event loop is running...");
+		while(!shutdown){
+			try {
+				selector.select();
+			} catch (IOException e) {
+				Log.e(TAG,"Error in Selector.select(): "+e.getMessage());
+				try {
+					Thread.sleep(100);
+				} catch (InterruptedException e1) {
+				}
+				continue;
+			}
+			//wait for any thread registering a channel
+			synchronized(syncRegister){
+			}
+			if(shutdown){
+				break;
+			}
+			Iterator<SelectionKey> iter = selector.selectedKeys().iterator();
+			while(iter.hasNext()){
+				SelectionKey key = iter.next();
+				iter.remove();
+				Session sess = (Session)key.attachment();
+				try{
+					if(sess.getUdpchannel() != null){
+						processUDPSelectionKey(key, sess);
+					}else{
+						processTCPSelectionKey(key, sess);
+					}
+				}catch(CancelledKeyException ex){
+					sess.setAbortingConnection(true);
+				}catch(IOException e){
+					sess.setAbortingConnection(true);
+				}
+				updateInterestOps(sess);
+			}
+			Session sess;
+			while((sess = pending.poll()) != null){
+				updateInterestOps(sess);
+			}
+		}
+		try {
+			selector.close();
+		} catch (IOException e) {
+			Log.e(TAG,"Error closing Selector: "+e.getMessage());
+		}
+		Log.d(TAG, "Event loop stopped");
+	}
+	void processUDPSelectionKey(SelectionKey key, Session sess){
+		if(!key.isValid()){
+			Log.d(TAG,"Invalid SelectionKey for UDP");
+			return;
+		}
+		DatagramChannel channel = sess.getUdpchannel();
+		if(!channel.isConnected()){
+			String ips = sess.getDestAddress().getHostAddress();
+			int port = sess.getDestPort();
+			SocketAddress addr = new InetSocketAddress(sess.getDestAddress(), port);
+			Log.d(TAG,"selector: connecting to remote UDP server: "+ips+":"+port);
+			try{
+				channel = channel.connect(addr);
+				sess.setUdpchannel(channel);
+				sess.setConnected(channel.isConnected());
+			}catch(ClosedChannelException ex){
+				sess.setAbortingConnection(true);
+			}catch(UnresolvedAddressException ex2){
+				sess.setAbortingConnection(true);
+			}catch(UnsupportedAddressTypeException ex3){
+				sess.setAbortingConnection(true);
+			}catch(SecurityException ex4){
+				sess.setAbortingConnection(true);
+			}catch(IOException e){
+				Log.e(TAG,"failed to connect to udp: "+e.getMessage());
+				sess.setAbortingConnection(true);
+			}
+		}
+		if(channel.isConnected()){
+			processSelector(key, sess);
+		}
+	}
+	void processTCPSelectionKey(SelectionKey key, Session sess) throws IOException{
+		if(!key.isValid()){
+			Log.d(TAG,"Invalid SelectionKey for TCP");
+			return;
+		}
+		SocketChannel channel = sess.getSocketchannel();
+		if(!sess.isConnected() && key.isConnectable()){
+			String ips = sess.getDestAddress().getHostAddress();
+			int port = sess.getDestPort();
+			SocketAddress addr = new InetSocketAddress(sess.getDestAddress(), port);
+			Log.d(TAG,"connecting to remote tcp server: "+ips+":"+port);
+			boolean connected = false;
+			if(!channel.isConnected() && !channel.isConnectionPending()){
+				try{
+					connected = channel.connect(addr);
+				}catch(ClosedChannelException ex){
+					sess.setAbortingConnection(true);
+				}catch(UnresolvedAddressException ex2){
+					sess.setAbortingConnection(true);
+				}catch(UnsupportedAddressTypeException ex3){
+					sess.setAbortingConnection(true);
+				}catch(SecurityException ex4){
+					sess.setAbortingConnection(true);
+				}catch(IOException ex5){
+					sess.setAbortingConnection(true);
+				}
+			}
+			if(connected){
+				sess.setConnected(connected);
+				Log.d(TAG,"connected immediately to remote tcp server: "+ips+":"+port);
+			}else if(channel.isConnectionPending()){
+				connected = channel.finishConnect();
+				sess.setConnected(connected);
+				if(connected){
+					Log.d(TAG,"connected to remote tcp server: "+ips+":"+port);
+				}
+			}
+		}
+		if(channel.isConnected()){
+			processSelector(key, sess);
+		}
+	}
+	private void processSelector(SelectionKey key, Session sess){
+		if(key.isValid() && key.isWritable() && !sess.isAbortingConnection()){
+			sender.write(sess);
+		}
+		if(key.isValid() && key.isReadable() && !sess.isAbortingConnection()){
+			reader.read(sess, readBuffer);
+		}
+	}
+	/**
+	 * set interest ops of a session's key to match what the session can do right now,
+	 * or close the session if its connection is aborting.
+	 * @param sess
+	 */
+	private void updateInterestOps(Session sess){
+		SelectionKey key = sess.getSelectionkey();
+		if(key == null || !key.isValid()){
+			return;
+		}
+		if(sess.isAbortingConnection()){
+			closeAbortedSession(sess);
+			return;
+		}
+		int ops = 0;
+		if(sess.getSocketchannel() != null && !sess.getSocketchannel().isConnected()){
+			ops = SelectionKey.OP_CONNECT;
+		}else{
+			if(sess.getUdpchannel() != null || !sess.isClientWindowFull()){
+				ops |= SelectionKey.OP_READ;
+			}
+			if(sess.hasPendingWrite() || (sess.hasDataToSend() && sess.isDataForSendingReady())){
+				ops |= SelectionKey.OP_WRITE;
+			}
+		}
+		try{
+			if(key.interestOps() != ops){
+				key.interestOps(ops);
+			}
+		}catch(CancelledKeyException ex){
+			Log.d(TAG,"SelectionKey already cancelled");
+		}
+	}
+	private void closeAbortedSession(Session sess){
+		Log.d(TAG,"removing aborted connection -> "+
+				sess.getDestAddress().getHostAddress()+":"+sess.getDestPort()
+				+"-"+sess.getSourceIp().getHostAddress()+":"+sess.getSourcePort());
+		sess.getSelectionkey().cancel();
+		if(sess.getSocketchannel() != null && sess.getSocketchannel().isConnected()){
+			try {
+				sess.getSocketchannel().close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}else if(sess.getUdpchannel() != null && sess.getUdpchannel().isConnected()){
+			try {
+				sess.getUdpchannel().close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		sessionmg.closeSession(sess);
+	}
+}
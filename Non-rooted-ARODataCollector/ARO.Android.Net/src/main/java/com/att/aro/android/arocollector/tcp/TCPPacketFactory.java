@@ -16,6 +16,7 @@
 
 package com.att.aro.android.arocollector.tcp;
 
+import java.net.InetAddress;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.Date;
@@ -23,19 +24,27 @@ import java.util.Random;
 
 import com.att.aro.android.arocollector.Packet;
 import com.att.aro.android.arocollector.ip.IPPacketFactory;
-import com.att.aro.android.arocollector.ip.IPv4Header;
+import com.att.aro.android.arocollector.ip.IPHeader;
 import com.att.aro.android.arocollector.util.PacketUtil;
 
 import android.util.Log;
 
 /**
- * class to create IPv4 Header, TCP header, and packet data.
+ * class to create TCP header and packet data over IPv4 or IPv6.
  * @author Borey Sao
  * Date: May 8, 2014
  */
 public class TCPPacketFactory {
 	public static final String TAG = "AROCollector";
 	
+	//largest value of window field, all ACK sent to client advertise it
+	public static final int MAX_WINDOW_SIZE = 65535;
+	//window scale shift count offered to client when client's SYN has window scale option
+	public static final int WINDOW_SCALE = 6;
+	//MSS offered to client, typical Ethernet MTU minus IP and TCP headers
+	public static final int MAX_SEGMENT_SIZE_IPV4 = 1460;
+	public static final int MAX_SEGMENT_SIZE_IPV6 = 1440;
+	
 	public TCPHeader copyTCPHeader(TCPHeader tcpheader){
 		TCPHeader tcp = new TCPHeader(tcpheader.getSourcePort(), tcpheader.getDestinationPort(), tcpheader.getSequenceNumber(), 
 				tcpheader.getDataOffset(), tcpheader.isNS(), tcpheader.getTcpFlags(), tcpheader.getWindowSize(), 
@@ -55,22 +64,22 @@ public class TCPPacketFactory {
 	 * @param seqToClient
 	 * @return
 	 */
-	public byte[] createFinAckData(IPv4Header ipheader, TCPHeader tcpheader, int ackToClient, int seqToClient, boolean isfin, boolean isack){
+	public byte[] createFinAckData(IPHeader ipheader, TCPHeader tcpheader, int ackToClient, int seqToClient, boolean isfin, boolean isack){
 		byte[] buffer = null;
-		IPv4Header ip = IPPacketFactory.copyIPv4Header(ipheader);
+		IPHeader ip = IPPacketFactory.copyIPHeader(ipheader);
 		TCPHeader tcp = copyTCPHeader(tcpheader);
 		
 		//flip IP from source to dest and vice-versa
-		int sourceIp = ip.getDestinationIP();
-		int destIp = ip.getSourceIP();
+		InetAddress sourceIp = ip.getDestinationAddress();
+		InetAddress destIp = ip.getSourceAddress();
 		int sourcePort = tcp.getDestinationPort();
 		int destPort = tcp.getSourcePort();
 		
 		int ackNumber = ackToClient;
 		int seqNumber = seqToClient;
 		
-		ip.setDestinationIP(destIp);
-		ip.setSourceIP(sourceIp);
+		ip.setDestinationAddress(destIp);
+		ip.setSourceAddress(sourceIp);
 		tcp.setDestinationPort(destPort);
 		tcp.setSourcePort(sourcePort);
 		
@@ -81,6 +90,7 @@ public class TCPPacketFactory {
 		
 		//ACK
 		tcp.setIsACK(isack);
+		tcp.setWindowSize(MAX_WINDOW_SIZE);
 		tcp.setIsSYN(false);
 		tcp.setIsPSH(false);
 		tcp.setIsFIN(isfin);
@@ -100,12 +110,12 @@ public class TCPPacketFactory {
 		
 		return buffer;
 	}
-	public byte[] createFinData(IPv4Header ip, TCPHeader tcp, int ackNumber, int seqNumber, int timeSender, int timeReplyto){
+	public byte[] createFinData(IPHeader ip, TCPHeader tcp, int ackNumber, int seqNumber, int timeSender, int timeReplyto){
 		byte[] buffer = null;
 		
 		//flip IP from source to dest and vice-versa
-		int sourceIp = ip.getDestinationIP();
-		int destIp = ip.getSourceIP();
+		InetAddress sourceIp = ip.getDestinationAddress();
+		InetAddress destIp = ip.getSourceAddress();
 		int sourcePort = tcp.getDestinationPort();
 		int destPort = tcp.getSourcePort();
 		
@@ -115,8 +125,8 @@ public class TCPPacketFactory {
 		tcp.setTimeStampReplyTo(timeReplyto);
 		tcp.setTimeStampSender(timeSender);
 		
-		ip.setDestinationIP(destIp);
-		ip.setSourceIP(sourceIp);
+		ip.setDestinationAddress(destIp);
+		ip.setSourceAddress(sourceIp);
 		tcp.setDestinationPort(destPort);
 		tcp.setSourcePort(sourcePort);
 		
@@ -155,14 +165,14 @@ public class TCPPacketFactory {
 	 * @param datalength
 	 * @return
 	 */
-	public byte[] createRstData(IPv4Header ipheader, TCPHeader tcpheader, int datalength){
+	public byte[] createRstData(IPHeader ipheader, TCPHeader tcpheader, int datalength){
 		byte[] buffer = null;
-		IPv4Header ip = IPPacketFactory.copyIPv4Header(ipheader);
+		IPHeader ip = IPPacketFactory.copyIPHeader(ipheader);
 		TCPHeader tcp = copyTCPHeader(tcpheader);
 		
 		//flip IP from source to dest and vice-versa
-		int sourceIp = ip.getDestinationIP();
-		int destIp = ip.getSourceIP();
+		InetAddress sourceIp = ip.getDestinationAddress();
+		InetAddress destIp = ip.getSourceAddress();
 		int sourcePort = tcp.getDestinationPort();
 		int destPort = tcp.getSourcePort();
 		
@@ -177,8 +187,8 @@ public class TCPPacketFactory {
 		tcp.setAckNumber(ackNumber);
 		tcp.setSequenceNumber(seqNumber);
 		
-		ip.setDestinationIP(destIp);
-		ip.setSourceIP(sourceIp);
+		ip.setDestinationAddress(destIp);
+		ip.setSourceAddress(sourceIp);
 		tcp.setDestinationPort(destPort);
 		tcp.setSourcePort(sourcePort);
 		
@@ -217,22 +227,22 @@ public class TCPPacketFactory {
 	 * @param clientDataSize
 	 * @return
 	 */
-	public byte[] createResponseAckData(IPv4Header ipheader, TCPHeader tcpheader, int ackToClient){
+	public byte[] createResponseAckData(IPHeader ipheader, TCPHeader tcpheader, int ackToClient){
 		byte[] buffer = null;
-		IPv4Header ip = IPPacketFactory.copyIPv4Header(ipheader);
+		IPHeader ip = IPPacketFactory.copyIPHeader(ipheader);
 		TCPHeader tcp = copyTCPHeader(tcpheader);
 		
 		//flip IP from source to dest and vice-versa
-		int sourceIp = ip.getDestinationIP();
-		int destIp = ip.getSourceIP();
+		InetAddress sourceIp = ip.getDestinationAddress();
+		InetAddress destIp = ip.getSourceAddress();
 		int sourcePort = tcp.getDestinationPort();
 		int destPort = tcp.getSourcePort();
 		
 		int ackNumber = ackToClient;
 		int seqNumber = tcp.getAckNumber();
 		
-		ip.setDestinationIP(destIp);
-		ip.setSourceIP(sourceIp);
+		ip.setDestinationAddress(destIp);
+		ip.setSourceAddress(sourceIp);
 		tcp.setDestinationPort(destPort);
 		tcp.setSourcePort(sourcePort);
 		
@@ -245,6 +255,7 @@ public class TCPPacketFactory {
 		tcp.setIsACK(true);
 		tcp.setIsSYN(false);
 		tcp.setIsPSH(false);
+		tcp.setWindowSize(MAX_WINDOW_SIZE);
 		
 		//set response timestamps in options fields
 		tcp.setTimeStampReplyTo(tcp.getTimeStampSender());
@@ -268,21 +279,21 @@ public class TCPPacketFactory {
 	 * @param packetdata
 	 * @return
 	 */
-	public byte[] createResponsePacketData(IPv4Header ip, TCPHeader tcp, byte[] packetdata, boolean ispsh, 
+	public byte[] createResponsePacketData(IPHeader ip, TCPHeader tcp, byte[] packetdata, boolean ispsh, 
 			int ackNumber, int seqNumber, int timeSender, int timeReplyto){
 		byte[] buffer = null;
-		IPv4Header ipheader = IPPacketFactory.copyIPv4Header(ip);
+		IPHeader ipheader = IPPacketFactory.copyIPHeader(ip);
 		TCPHeader tcpheader = copyTCPHeader(tcp);
 		
 		//flip IP from source to dest and vice-versa
-		int sourceIp = ipheader.getDestinationIP();
-		int destIp = ipheader.getSourceIP();
+		InetAddress sourceIp = ipheader.getDestinationAddress();
+		InetAddress destIp = ipheader.getSourceAddress();
 		int sourcePort = tcpheader.getDestinationPort();
 		int destPort = tcpheader.getSourcePort();
 		
 		
-		ipheader.setDestinationIP(destIp);
-		ipheader.setSourceIP(sourceIp);
+		ipheader.setDestinationAddress(destIp);
+		ipheader.setSourceAddress(sourceIp);
 		tcpheader.setDestinationPort(destPort);
 		tcpheader.setSourcePort(sourcePort);
 		
@@ -293,6 +304,7 @@ public class TCPPacketFactory {
 		
 		//ACK is always sent
 		tcpheader.setIsACK(true);
+		tcpheader.setWindowSize(MAX_WINDOW_SIZE);
 		tcpheader.setIsSYN(false);
 		tcpheader.setIsPSH(ispsh);
 		tcpheader.setIsFIN(false);
@@ -315,16 +327,16 @@ public class TCPPacketFactory {
 	 * @param tcpheader
 	 * @return
 	 */
-	public Packet createSynAckPacketData(IPv4Header ip, TCPHeader tcp){
+	public Packet createSynAckPacketData(IPHeader ip, TCPHeader tcp){
 		byte[] buffer = null;
 		Packet packet = new Packet();
 		
-		IPv4Header ipheader = IPPacketFactory.copyIPv4Header(ip);
+		IPHeader ipheader = IPPacketFactory.copyIPHeader(ip);
 		TCPHeader tcpheader = copyTCPHeader(tcp);
 		
 		//flip IP from source to dest and vice-versa
-		int sourceIp = ipheader.getDestinationIP();
-		int destIp = ipheader.getSourceIP();
+		InetAddress sourceIp = ipheader.getDestinationAddress();
+		InetAddress destIp = ipheader.getSourceAddress();
 		int sourcePort = tcpheader.getDestinationPort();
 		int destPort = tcpheader.getSourcePort();
 		int ackNumber = tcpheader.getSequenceNumber() + 1;
@@ -334,8 +346,8 @@ public class TCPPacketFactory {
 		if(seqNumber < 0){
 			seqNumber = seqNumber * -1;
 		}
-		ipheader.setDestinationIP(destIp);
-		ipheader.setSourceIP(sourceIp);
+		ipheader.setDestinationAddress(destIp);
+		ipheader.setSourceAddress(sourceIp);
 		tcpheader.setDestinationPort(destPort);
 		tcpheader.setSourcePort(sourcePort);
 		
@@ -350,6 +362,10 @@ public class TCPPacketFactory {
 		tcpheader.setIsACK(true);
 		tcpheader.setIsSYN(true);
 		
+		//window in SYN-ACK is never scaled
+		tcpheader.setWindowSize(MAX_WINDOW_SIZE);
+		setSynAckOptions(tcp, tcpheader, ipheader.getIpVersion() == 6);
+		
 		//timestamp in options fields
 		tcpheader.setTimeStampReplyTo(tcpheader.getTimeStampSender());
 		Date currentdate = new Date();
@@ -364,20 +380,78 @@ public class TCPPacketFactory {
 		packet.setBuffer(buffer);
 		return packet;
 	}
+	/**
+	 * build options of SYN-ACK from what the client offered in its SYN: MSS is always sent, window scale,
+	 * SACK-permitted and timestamp are only sent back when the client offered them (RFC 7323 and RFC 2018).
+	 * @param syn TCP header of SYN from client
+	 * @param synack TCP header of SYN-ACK to be sent to client
+	 * @param ipv6 true if the connection is over IPv6
+	 */
+	void setSynAckOptions(TCPHeader syn, TCPHeader synack, boolean ipv6){
+		boolean hasWindowScale = false;
+		boolean hasTimestamp = false;
+		byte[] synoptions = syn.getOptions();
+		for(int i = 0; i < synoptions.length; i++){
+			byte kind = synoptions[i];
+			if(kind == 0){
+				break;
+			}else if(kind == 1){
+				continue;
+			}else if(kind == 3){
+				hasWindowScale = true;
+			}else if(kind == 8){
+				hasTimestamp = true;
+			}
+			if((i + 1) >= synoptions.length || synoptions[i + 1] < 2){
+				break;
+			}
+			i = i + synoptions[i + 1] - 1;
+		}
+		boolean sackPermitted = syn.isSelectiveAckPermitted();
+		
+		int mss = ipv6 ? MAX_SEGMENT_SIZE_IPV6 : MAX_SEGMENT_SIZE_IPV4;
+		if(syn.getMaxSegmentSize() > 0 && syn.getMaxSegmentSize() < mss){
+			mss = syn.getMaxSegmentSize();
+		}
+		ByteBuffer options = ByteBuffer.allocate(20);
+		options.order(ByteOrder.BIG_ENDIAN);
+		//MSS
+		options.put((byte)2).put((byte)4).putShort((short)mss);
+		if(sackPermitted && hasTimestamp){
+			options.put((byte)4).put((byte)2);
+		}else if(hasTimestamp){
+			options.put((byte)1).put((byte)1);
+		}else if(sackPermitted){
+			options.put((byte)1).put((byte)1).put((byte)4).put((byte)2);
+		}
+		if(hasTimestamp){
+			//values are set by createTCPHeaderData
+			options.put((byte)8).put((byte)10).putInt(0).putInt(0);
+		}
+		if(hasWindowScale){
+			options.put((byte)1).put((byte)3).put((byte)3).put((byte)WINDOW_SCALE);
+		}
+		byte[] data = new byte[options.position()];
+		System.arraycopy(options.array(), 0, data, 0, data.length);
+		synack.setOptions(data);
+		synack.setDataOffset(5 + data.length / 4);
+		synack.setMaxSegmentSize(mss);
+		synack.setSelectiveAckPermitted(sackPermitted);
+	}
 	/**
 	 * create packet data from IP Header, TCP header and data
-	 * @param ipheader IPv4Header object
+	 * @param ipheader IPv4Header or IPv6Header object
 	 * @param tcpheader TCPHeader object
 	 * @param data array of byte (packet body)
 	 * @return array of byte
 	 */
-	public byte[] createPacketData(IPv4Header ipheader, TCPHeader tcpheader, byte[] data){
+	public byte[] createPacketData(IPHeader ipheader, TCPHeader tcpheader, byte[] data){
 		int datalength = 0;
 		if(data != null){
 			datalength = data.length;
 		}
 		byte[] buffer = new byte[ipheader.getIPHeaderLength() + tcpheader.getTCPHeaderLength() + datalength];
-		byte[] ipbuffer = IPPacketFactory.createIPv4HeaderData(ipheader);
+		byte[] ipbuffer = IPPacketFactory.createIPHeaderData(ipheader);
 		byte[] tcpbuffer = createTCPHeaderData(tcpheader);
 		
 		System.arraycopy(ipbuffer, 0, buffer, 0, ipbuffer.length);
@@ -386,19 +460,21 @@ public class TCPPacketFactory {
 			int offset = ipbuffer.length + tcpbuffer.length;
 			System.arraycopy(data, 0, buffer, offset, datalength);
 		}
-		//calculate checksum for both IP and TCP header
 		byte[] zero = {0,0};
-		//zero out checksum first before calculation
-		System.arraycopy(zero, 0, buffer, 10, 2);
-		byte[] ipchecksum = PacketUtil.calculateChecksum(buffer, 0, ipbuffer.length);
-		//write result of checksum back to buffer
-		System.arraycopy(ipchecksum, 0, buffer, 10, 2);
+		//only IPv4 header has a checksum
+		if(ipheader.getIpVersion() == 4){
+			//zero out checksum first before calculation
+			System.arraycopy(zero, 0, buffer, 10, 2);
+			byte[] ipchecksum = PacketUtil.calculateChecksum(buffer, 0, ipbuffer.length);
+			//write result of checksum back to buffer
+			System.arraycopy(ipchecksum, 0, buffer, 10, 2);
+		}
 		
 		//zero out TCP header checksum first
 		int tcpstart = ipbuffer.length;
 		System.arraycopy(zero, 0, buffer,tcpstart + 16, 2);
-		byte[] tcpchecksum = PacketUtil.calculateTCPHeaderChecksum(buffer, tcpstart, tcpbuffer.length + datalength , 
-				ipheader.getDestinationIP(), ipheader.getSourceIP());
+		byte[] tcpchecksum = PacketUtil.calculatePseudoHeaderChecksum(buffer, tcpstart, tcpbuffer.length + datalength, 
+				PacketUtil.TCP_PROTOCOL, ipheader.getSourceAddressBytes(), ipheader.getDestinationAddressBytes());
 		
 		//write new checksum back to array
 		System.arraycopy(tcpchecksum, 0, buffer,tcpstart + 16, 2);
@@ -1,8 +1,11 @@
 package com.att.aro.android.arocollector.udp;
 
+import java.net.InetAddress;
+
 import android.util.Log;
 
 import com.att.aro.android.arocollector.ip.IPPacketFactory;
+import com.att.aro.android.arocollector.ip.IPHeader;
 import com.att.aro.android.arocollector.ip.IPv4Header;
 import com.att.aro.android.arocollector.tcp.PacketHeaderException;
 import com.att.aro.android.arocollector.util.PacketUtil;
@@ -37,12 +40,12 @@ public class UDPPacketFactory {
 	}
 	/**
 	 * create packet data for responding to vpn client
-	 * @param ip IPv4Header sent from VPN client, will be used as the template for response
+	 * @param ip IPv4Header or IPv6Header sent from VPN client, will be used as the template for response
 	 * @param udp UDPHeader sent from VPN client
 	 * @param packetdata packet data to be sent to client
 	 * @return array of byte
 	 */
-	public byte[] createResponsePacket(IPv4Header ip, UDPHeader udp, byte[] packetdata){
+	public byte[] createResponsePacket(IPHeader ip, UDPHeader udp, byte[] packetdata){
 		byte[] buffer = null;
 		int udplen = 8;
 		if(packetdata != null){
@@ -52,13 +55,15 @@ public class UDPPacketFactory {
 		int destPort = udp.getSourcePort();
 		short checksum = 0;
 		
-		IPv4Header ipheader = IPPacketFactory.copyIPv4Header(ip);
+		IPHeader ipheader = IPPacketFactory.copyIPHeader(ip);
 		
-		int srcIp = ip.getDestinationIP();
-		int destIp = ip.getSourceIP();
-		ipheader.setMayFragment(false);
-		ipheader.setSourceIP(srcIp);
-		ipheader.setDestinationIP(destIp);
+		InetAddress srcIp = ip.getDestinationAddress();
+		InetAddress destIp = ip.getSourceAddress();
+		if(ipheader instanceof IPv4Header){
+			((IPv4Header)ipheader).setMayFragment(false);
+		}
+		ipheader.setSourceAddress(srcIp);
+		ipheader.setDestinationAddress(destIp);
 		ipheader.setIdenfication(PacketUtil.getPacketId());
 		
 		//ip's length is the length of the entire packet => IP header length + UDP header length (8) + UDP body length
@@ -66,14 +71,16 @@ public class UDPPacketFactory {
 		
 		ipheader.setTotalLength(totallength);
 		buffer = new byte[totallength];
-		byte[] ipdata = IPPacketFactory.createIPv4HeaderData(ipheader);
-		//calculate checksum for IP header
-		byte[] zero = {0,0};
-		//zero out checksum first before calculation
-		System.arraycopy(zero, 0, ipdata, 10, 2);
-		byte[] ipchecksum = PacketUtil.calculateChecksum(ipdata, 0, ipdata.length);
-		//write result of checksum back to buffer
-		System.arraycopy(ipchecksum, 0, ipdata, 10, 2);
+		byte[] ipdata = IPPacketFactory.createIPHeaderData(ipheader);
+		if(ipheader.getIpVersion() == 4){
+			//calculate checksum for IP header
+			byte[] zero = {0,0};
+			//zero out checksum first before calculation
+			System.arraycopy(zero, 0, ipdata, 10, 2);
+			byte[] ipchecksum = PacketUtil.calculateChecksum(ipdata, 0, ipdata.length);
+			//write result of checksum back to buffer
+			System.arraycopy(ipchecksum, 0, ipdata, 10, 2);
+		}
 		System.arraycopy(ipdata, 0, buffer, 0, ipdata.length);
 		
 		//copy UDP header to buffer
@@ -99,6 +106,18 @@ public class UDPPacketFactory {
 		//now copy udp data
 		System.arraycopy(packetdata, 0, buffer, start, packetdata.length);
 		
+		//UDP checksum is optional over IPv4 but mandatory over IPv6
+		if(ipheader.getIpVersion() == 6){
+			byte[] udpchecksum = PacketUtil.calculatePseudoHeaderChecksum(buffer, ipdata.length, udplen, 
+					PacketUtil.UDP_PROTOCOL, ipheader.getSourceAddressBytes(), ipheader.getDestinationAddressBytes());
+			if(udpchecksum[0] == 0 && udpchecksum[1] == 0){
+				//zero means no checksum, send all ones instead
+				udpchecksum[0] = (byte)0xFF;
+				udpchecksum[1] = (byte)0xFF;
+			}
+			System.arraycopy(udpchecksum, 0, buffer, ipdata.length + 6, 2);
+		}
+		
 		return buffer;
 	}
 	
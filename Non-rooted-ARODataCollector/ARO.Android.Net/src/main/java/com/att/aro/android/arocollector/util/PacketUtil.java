@@ -26,6 +26,7 @@ import java.util.Enumeration;
 
 import android.util.Log;
 
+import com.att.aro.android.arocollector.ip.IPHeader;
 import com.att.aro.android.arocollector.ip.IPv4Header;
 import com.att.aro.android.arocollector.tcp.TCPHeader;
 import com.att.aro.android.arocollector.udp.UDPHeader;
@@ -38,6 +39,8 @@ import com.att.aro.android.arocollector.udp.UDPHeader;
  */
 public class PacketUtil {
 	public static final String TAG = "AROCollector";
+	public static final byte TCP_PROTOCOL = 6;
+	public static final byte UDP_PROTOCOL = 17;
 	private volatile static boolean enabledDebugLog = false;
 	private volatile static int packetid = 0;
 	public synchronized static int getPacketId(){
@@ -221,6 +224,45 @@ public class PacketUtil {
 		
 		return tcpchecksum;
 	}
+	/**
+	 * calculate TCP or UDP checksum over the IPv4 or IPv6 pseudo header followed by the segment
+	 * @param data array of byte containing the segment
+	 * @param offset start of TCP/UDP header in data
+	 * @param length length of TCP/UDP header + body
+	 * @param protocol TCP_PROTOCOL or UDP_PROTOCOL
+	 * @param sourceip 4 or 16 bytes of source address
+	 * @param destip 4 or 16 bytes of destination address
+	 * @return 2 bytes checksum
+	 */
+	public static byte[] calculatePseudoHeaderChecksum(byte[] data, int offset, int length, byte protocol, 
+			byte[] sourceip, byte[] destip){
+		//IPv4 pseudo header is 12 bytes, IPv6 pseudo header is 40 bytes
+		int pseudolength = sourceip.length == 16 ? 40 : 12;
+		int buffersize = length + pseudolength;
+		boolean odd = false;
+		if(buffersize % 2 != 0){
+			buffersize++;
+			odd = true;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(buffersize);
+		buffer.order(ByteOrder.BIG_ENDIAN);
+		buffer.put(sourceip);
+		buffer.put(destip);
+		if(sourceip.length == 16){
+			buffer.putInt(length);
+			buffer.put((byte)0).put((byte)0).put((byte)0);
+			buffer.put(protocol);
+		}else{
+			buffer.put((byte)0);//reserved => 0
+			buffer.put(protocol);
+			buffer.putShort((short)length);
+		}
+		buffer.put(data, offset, length);
+		if(odd){
+			buffer.put((byte)0);
+		}
+		return calculateChecksum(buffer.array(), 0, buffersize);
+	}
 	public static String intToIPAddress(int addressInt)
 	{
 	    StringBuffer buffer = new StringBuffer(16);
@@ -254,29 +296,33 @@ public class PacketUtil {
 	    }
 	    return null;
 	}
-	public static String getUDPoutput(IPv4Header ipheader, UDPHeader udp){
+	public static String getUDPoutput(IPHeader ipheader, UDPHeader udp){
 		StringBuilder str = new StringBuilder();
 		str.append("\r\nIP Version: "+ipheader.getIpVersion());
     	str.append("\r\nProtocol: "+ipheader.getProtocol());
     	str.append("\r\nID# "+ipheader.getIdenfication());
     	str.append("\r\nIP Total Length: "+ipheader.getTotalLength());
     	str.append("\r\nIP Header length: "+ipheader.getIPHeaderLength());
-    	str.append("\r\nIP checksum: "+ipheader.getHeaderChecksum());
-    	str.append("\r\nMay fragement? "+ipheader.isMayFragment());
-    	str.append("\r\nLast fragment? "+ipheader.isLastFragment());
-    	str.append("\r\nFlag: "+ipheader.getFlag());
-    	str.append("\r\nFragment Offset: "+ipheader.getFragmentOffset());
-    	str.append("\r\nDest: "+intToIPAddress(ipheader.getDestinationIP())+":"+udp.getDestinationPort());
-    	str.append("\r\nSrc: "+intToIPAddress(ipheader.getSourceIP())+":"+udp.getSourcePort());
+    	if(ipheader instanceof IPv4Header){
+    		IPv4Header ipv4 = (IPv4Header)ipheader;
+	    	str.append("\r\nIP checksum: "+ipv4.getHeaderChecksum());
+	    	str.append("\r\nMay fragement? "+ipv4.isMayFragment());
+	    	str.append("\r\nLast fragment? "+ipv4.isLastFragment());
+	    	str.append("\r\nFlag: "+ipv4.getFlag());
+	    	str.append("\r\nFragment Offset: "+ipv4.getFragmentOffset());
+    	}
+    	str.append("\r\nDest: "+ipheader.getDestinationAddress().getHostAddress()+":"+udp.getDestinationPort());
+    	str.append("\r\nSrc: "+ipheader.getSourceAddress().getHostAddress()+":"+udp.getSourcePort());
     	str.append("\r\nUDP Length: "+udp.getLength());
     	str.append("\r\nUDP Checksum: "+udp.getChecksum());
 		return str.toString();
 	}
-	public static String getOutput(IPv4Header ipheader, TCPHeader tcpheader, byte[] packetdata){
-		short tcplength = (short)(packetdata.length - ipheader.getIPHeaderLength());
-		boolean isvalidchecksum = PacketUtil.isValidTCPChecksum(ipheader.getSourceIP(),ipheader.getDestinationIP(),
-				packetdata,tcplength,ipheader.getIPHeaderLength());
-		boolean isvalidIPChecsum = PacketUtil.isValidIPChecksum(packetdata, ipheader.getIPHeaderLength());
+	public static String getOutput(IPHeader ipheader, TCPHeader tcpheader, byte[] packetdata){
+		int tcplength = packetdata.length - ipheader.getIPHeaderLength();
+		byte[] tcpchecksum = PacketUtil.calculatePseudoHeaderChecksum(packetdata, ipheader.getIPHeaderLength(), tcplength, 
+				TCP_PROTOCOL, ipheader.getSourceAddressBytes(), ipheader.getDestinationAddressBytes());
+		//checksum over a segment including its own checksum is zero when valid
+		boolean isvalidchecksum = tcpchecksum[0] == 0 && tcpchecksum[1] == 0;
 		int packetbodylength = packetdata.length - ipheader.getIPHeaderLength() - tcpheader.getTCPHeaderLength();
     	StringBuffer str = new StringBuffer();
     	str.append("\r\nIP Version: "+ipheader.getIpVersion());
@@ -284,8 +330,8 @@ public class PacketUtil {
     	str.append("\r\nID# "+ipheader.getIdenfication());
     	str.append("\r\nTotal Length: "+ipheader.getTotalLength());
     	str.append("\r\nData Length: "+packetbodylength);
-		str.append("\r\nDest: "+intToIPAddress(ipheader.getDestinationIP())+":"+tcpheader.getDestinationPort());
-    	str.append("\r\nSrc: "+intToIPAddress(ipheader.getSourceIP())+":"+tcpheader.getSourcePort());
+		str.append("\r\nDest: "+ipheader.getDestinationAddress().getHostAddress()+":"+tcpheader.getDestinationPort());
+    	str.append("\r\nSrc: "+ipheader.getSourceAddress().getHostAddress()+":"+tcpheader.getSourcePort());
     	str.append("\r\nACK: "+tcpheader.getAckNumber());
     	str.append("\r\nSeq: "+tcpheader.getSequenceNumber());
     	str.append("\r\nIP Header length: "+ipheader.getIPHeaderLength());
@@ -299,14 +345,21 @@ public class PacketUtil {
     	str.append("\r\nPSH: "+tcpheader.isPSH());
     	str.append("\r\nRST: "+tcpheader.isRST());
     	str.append("\r\nURG: "+tcpheader.isURG());
-    	str.append("\r\nIP checksum: "+ipheader.getHeaderChecksum());
-    	str.append("\r\nIs Valid IP Checksum: "+isvalidIPChecsum);
+    	if(ipheader instanceof IPv4Header){
+    		IPv4Header ipv4 = (IPv4Header)ipheader;
+    		boolean isvalidIPChecsum = PacketUtil.isValidIPChecksum(packetdata, ipheader.getIPHeaderLength());
+	    	str.append("\r\nIP checksum: "+ipv4.getHeaderChecksum());
+	    	str.append("\r\nIs Valid IP Checksum: "+isvalidIPChecsum);
+    	}
     	str.append("\r\nTCP Checksum: "+tcpheader.getChecksum());
     	str.append("\r\nIs Valid TCP checksum: "+isvalidchecksum);
-    	str.append("\r\nMay fragement? "+ipheader.isMayFragment());
-    	str.append("\r\nLast fragment? "+ipheader.isLastFragment());
-    	str.append("\r\nFlag: "+ipheader.getFlag());
-    	str.append("\r\nFragment Offset: "+ipheader.getFragmentOffset());
+    	if(ipheader instanceof IPv4Header){
+    		IPv4Header ipv4 = (IPv4Header)ipheader;
+	    	str.append("\r\nMay fragement? "+ipv4.isMayFragment());
+	    	str.append("\r\nLast fragment? "+ipv4.isLastFragment());
+	    	str.append("\r\nFlag: "+ipv4.getFlag());
+	    	str.append("\r\nFragment Offset: "+ipv4.getFragmentOffset());
+    	}
     	str.append("\r\nWindow: "+tcpheader.getWindowSize());
     	str.append("\r\nWindow scale: "+tcpheader.getWindowScale());
     	str.append("\r\nData Offset: "+tcpheader.getDataOffset());
@@ -0,0 +1,62 @@
+package com.att.aro.android.arocollector.ip;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+import com.att.aro.android.arocollector.Packet;
+import com.att.aro.android.arocollector.tcp.PacketHeaderException;
+import com.att.aro.android.arocollector.tcp.TCPHeader;
+import com.att.aro.android.arocollector.tcp.TCPPacketFactory;
+import com.att.aro.android.arocollector.util.PacketUtil;
+
+public class IPPacketFactoryTest {
+	//IPv6 SYN from fd00::2:40000 to 2001:db8::1:443, tcp length: 40
+	//options: MSS 1440, SACK permitted, timestamp, NOP, window scale 7
+	byte[] synv6 = {96,0,0,0,0,40,6,64,
+			-3,0,0,0,0,0,0,0,0,0,0,0,0,0,0,2,
+			32,1,13,-72,0,0,0,0,0,0,0,0,0,0,0,1,
+			-100,64,1,-69,0,0,0,1,0,0,0,0,-96,2,-1,-1,0,0,0,0,
+			2,4,5,-96,4,2,8,10,0,0,0,1,0,0,0,0,1,3,3,7};
+	@Test
+	public void createIPv6Header() throws PacketHeaderException{
+		IPHeader ip = IPPacketFactory.createIPHeader(synv6, 0);
+		assertTrue(ip instanceof IPv6Header);
+		assertEquals(6, ip.getIpVersion());
+		assertEquals(40, ip.getIPHeaderLength());
+		assertEquals(6, ip.getProtocol());
+		assertEquals(80, ip.getTotalLength());
+		assertEquals("2001:db8:0:0:0:0:0:1", ip.getDestinationAddress().getHostAddress());
+		byte[] data = IPPacketFactory.createIPHeaderData(ip);
+		for(int i = 0; i < data.length; i++){
+			assertEquals(synv6[i], data[i]);
+		}
+	}
+	@Test
+	public void createSynAckPacketDataIPv6() throws PacketHeaderException{
+		TCPPacketFactory factory = new TCPPacketFactory();
+		IPHeader ip = IPPacketFactory.createIPHeader(synv6, 0);
+		TCPHeader tcp = factory.createTCPHeader(synv6, ip.getIPHeaderLength());
+		assertEquals(7, tcp.getWindowScale());
+		assertTrue(tcp.isSelectiveAckPermitted());
+		
+		Packet packet = factory.createSynAckPacketData(ip, tcp);
+		byte[] synack = packet.getBuffer();
+		IPHeader ipsynack = IPPacketFactory.createIPHeader(synack, 0);
+		assertEquals(ip.getSourceAddress(), ipsynack.getDestinationAddress());
+		assertEquals(synack.length, ipsynack.getTotalLength());
+		
+		TCPHeader tcpsynack = factory.createTCPHeader(synack, ipsynack.getIPHeaderLength());
+		assertTrue(tcpsynack.isSYN());
+		assertTrue(tcpsynack.isACK());
+		assertEquals(TCPPacketFactory.WINDOW_SCALE, tcpsynack.getWindowScale());
+		assertTrue(tcpsynack.isSelectiveAckPermitted());
+		assertEquals(1440, tcpsynack.getMaxSegmentSize());
+		
+		byte[] checksum = PacketUtil.calculatePseudoHeaderChecksum(synack, ipsynack.getIPHeaderLength(), 
+				synack.length - ipsynack.getIPHeaderLength(), PacketUtil.TCP_PROTOCOL, 
+				ipsynack.getSourceAddressBytes(), ipsynack.getDestinationAddressBytes());
+		assertEquals(0, checksum[0]);
+		assertEquals(0, checksum[1]);
+	}
+}
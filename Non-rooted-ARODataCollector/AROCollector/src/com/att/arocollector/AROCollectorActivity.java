@@ -140,6 +140,10 @@ public class AROCollectorActivity extends Activity {
 		if (resultCode == RESULT_OK) {
 			String prefix = getPackageName();
 			captureVpnServiceIntent = new Intent(getApplicationContext(), CaptureVpnService.class);
+			// pass on capture segment settings given when the collector was launched
+			if (getIntent().getExtras() != null) {
+				captureVpnServiceIntent.putExtras(getIntent().getExtras());
+			}
 			captureVpnServiceIntent.putExtra("TRACE_DIR", "/sdcard/ARO/");
 			componentName = startService(captureVpnServiceIntent);
 			vpnStatus = true;
@@ -50,10 +50,11 @@ import com.att.aro.android.arocollector.socket.SocketDataPublisher;
 import com.att.aro.android.arocollector.socket.SocketNIODataService;
 import com.att.aro.android.arocollector.socket.SocketProtector;
 import com.att.aro.android.arocollector.tcp.PacketHeaderException;
-import com.att.arocollector.packetRebuild.PCapFileWriter;
+import com.att.arocollector.packetRebuild.RotatingPCapFileWriter;
 import com.att.arodatacollector.AROCameraMonitorService;
 import com.att.arodatacollector.AROCollectorService;
 import com.att.arodatacollector.AROGpsMonitorService;
+import com.att.arodatacollector.AROCpuTraceService;
 import com.att.arodatacollector.ARORadioMonitorService;
 
 public class CaptureVpnService 
@@ -92,8 +93,16 @@ public class CaptureVpnService
 	/*
 	 * pcap file
 	 */
-	private File pcapFile;
-	private PCapFileWriter pcapOutput;
+	private RotatingPCapFileWriter pcapOutput;
+
+	/*
+	 * pcap segment rotation, see loadExtras
+	 */
+	private static final long DEFAULT_SEGMENT_MB = 100;
+	private long segmentBytes = DEFAULT_SEGMENT_MB * 1024 * 1024;
+	private long segmentSeconds = 0;
+	private boolean compressSegments = false;
+	private int maxSegments = 0;
 
 	/*
 	 * time file
@@ -115,6 +124,10 @@ public class CaptureVpnService
 
 	private ComponentName radioMonitorService;
 
+	private Intent aROCpuTraceService;
+
+	private int cpuTraceInterval;
+
 
 	@Override
 	public int onStartCommand(Intent intent, int flags, int startId) {
@@ -171,6 +184,7 @@ public class CaptureVpnService
 	//	launchAROGpsMonitorService();
 		launchAROCameraMonitorService();
 		launchARORadioMonitorService();
+		launchAROCpuTraceService();
 	}
 
 	private void stopServices(){
@@ -178,6 +192,7 @@ public class CaptureVpnService
 	//	stopAROGpsMonitorService();
 		stopAROCameraMonitorService();
 		stopARORadioMonitorService();
+		stopAROCpuTraceService();
 	}
 
 	/**
@@ -202,6 +217,20 @@ public class CaptureVpnService
 		radioMonitorService = startService(aRORadioMonitorService);
 	}
 
+	/**
+	 * launch AROCpuTraceService for the collection of the cpu trace
+	 */
+	private void launchAROCpuTraceService() {
+		Log.i(TAG, "launchAROCpuTraceService()");
+		aROCpuTraceService = new Intent(getApplicationContext(), AROCpuTraceService.class);
+		aROCpuTraceService.putExtra("TRACE_DIR", "/sdcard/ARO/");
+		aROCpuTraceService.putExtra("TRACE_FILE_NAME", "cpu");
+		if (cpuTraceInterval > 0) {
+			aROCpuTraceService.putExtra(AROCpuTraceService.CPU_INTERVAL_EXTRA, cpuTraceInterval);
+		}
+		startService(aROCpuTraceService);
+	}
+
 	/**
 	 * stop AROCameraMonitorService
 	 */
@@ -218,11 +247,24 @@ public class CaptureVpnService
 		stopService(aRORadioMonitorService);
 	}
 
+	/**
+	 * stop AROCpuTraceService
+	 */
+	private void stopAROCpuTraceService() {
+		Log.i(TAG, "stopAROCpuTraceService()");
+		stopService(aROCpuTraceService);
+	}
+
 
 	private void loadExtras(Intent intent) {
 		Log.i(TAG, "loadExtras");
 		String traceDirStr = intent.getStringExtra("TRACE_DIR");
 		traceDir = new File(traceDirStr);
+		segmentBytes = intent.getLongExtra("SEGMENT_SIZE_MB", DEFAULT_SEGMENT_MB) * 1024 * 1024;
+		segmentSeconds = intent.getLongExtra("SEGMENT_SECONDS", 0);
+		compressSegments = intent.getBooleanExtra("COMPRESS_SEGMENTS", false);
+		maxSegments = intent.getIntExtra("MAX_SEGMENTS", 0);
+		cpuTraceInterval = intent.getIntExtra(AROCpuTraceService.CPU_INTERVAL_EXTRA, 0);
 	}
 
 	private void unregisterAnalyzerCloseCmdReceiver() {
@@ -514,6 +556,7 @@ public class CaptureVpnService
 	
 	/**
 	 * Create and leave open, the pcap file
+	 * traffic.cap rotates into traffic1.cap, traffic2.cap ... listed in traffic.segments
 	 * @throws IOException
 	 */
 	private void instanciatePcapFile() throws IOException {
@@ -523,9 +566,7 @@ public class CaptureVpnService
 		}
 
 		// gen & open pcap file
-		String sFileName = "traffic.cap";
-		pcapFile = new File(traceDir, sFileName);
-		pcapOutput = new PCapFileWriter(pcapFile);
+		pcapOutput = new RotatingPCapFileWriter(traceDir, segmentBytes, segmentSeconds, compressSegments, maxSegments);
 	}
 
 	/**
@@ -596,10 +637,13 @@ public class CaptureVpnService
 		}
 		
 		Log.i(TAG, "startVpnServide=> create builder");
-		// Configure a builder while parsing the parameters.
+		// Configure a builder while parsing the parameters. The IPv6 address
+		// and route make the tun receive IPv6 traffic as well.
 		Builder builder = new Builder()
 			.addAddress("10.120.0.1", 32)
+			.addAddress("fd00:1:fd00:1:fd00:1:fd00:1", 128)
 			.addRoute("0.0.0.0", 0)
+			.addRoute("::", 0)
 			.setSession("AROCollector")
 			.setConfigureIntent(mConfigureIntent)
 			;
@@ -0,0 +1,319 @@
+package com.att.arocollector.packetRebuild;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import android.util.Log;
+
+/**
+ * Capture file writer that splits the capture into numbered pcap segments.<br>
+ *
+ * Segments are named traffic.cap, traffic1.cap, traffic2.cap ... which is the naming
+ * the analyzer already reads. A new segment is started when the current one reaches
+ * the size limit or covers more than the time limit. Closed segments can be gzipped
+ * on a background thread, and the oldest segments can be dropped to bound the storage
+ * used by long captures.<br>
+ *
+ * Every change to the set of segments rewrites the segment index (traffic.segments),
+ * one file name per line in capture order, so the analyzer pulls and reads exactly
+ * the segments that exist. The segment being written is listed under its plain name,
+ * a compressed segment is renamed in the index once it is compressed.
+ */
+public class RotatingPCapFileWriter implements CaptureFileWriter
+{
+	private static final String TAG = "RotatingPCapFileWriter";
+
+	public static final String SEGMENT_PREFIX = "traffic";
+	public static final String SEGMENT_EXT = ".cap";
+	public static final String COMPRESSED_EXT = ".gz";
+	public static final String INDEX_FILE = "traffic.segments";
+
+	// pcap record overhead written by PCapFileWriter for each packet
+	private static final int RECORD_OVERHEAD = PCapPacketHeader.HEADER_SIZE + 14;
+
+	private final File myDir;
+	private final long mySegmentBytes;
+	private final long mySegmentNanos;
+	private final boolean myCompress;
+	private final int myMaxSegments;
+
+	// index entries, in capture order, also updated by the background thread
+	private final List<String> mySegments = new ArrayList<String>();
+
+	// compression, deletion and index updates run here so they are serialized
+	private final ExecutorService myBackground;
+
+	private PCapFileWriter myCurrent = null;
+	private int mySegmentNumber = 0;
+	private long mySegmentStart = -1;
+	private int mySegmentPackets = 0;
+	private boolean _isopened = true;
+
+	/**
+	 * open the first segment in the given folder.
+	 * @param dir - trace folder
+	 * @param segmentBytes - max bytes per segment, 0 for no size limit
+	 * @param segmentSeconds - max seconds covered by a segment, 0 for no time limit
+	 * @param compress - gzip closed segments
+	 * @param maxSegments - number of segments kept, oldest are deleted, 0 keeps all
+	 * @throws IOException - on file creation failure.
+	 */
+	public RotatingPCapFileWriter(File dir, long segmentBytes, long segmentSeconds, boolean compress, int maxSegments) throws IOException
+	{
+		if (dir == null) throw new IllegalArgumentException("Got null folder object");
+
+		myDir = dir;
+		mySegmentBytes = segmentBytes;
+		mySegmentNanos = segmentSeconds * 1000000000l;
+		myCompress = compress;
+		myMaxSegments = maxSegments;
+		myBackground = Executors.newSingleThreadExecutor();
+
+		openSegment();
+	}
+
+	/**
+	 * @param number - segment number
+	 * @return file name of an uncompressed segment
+	 */
+	public static String getSegmentName(int number)
+	{
+		return number == 0 ? SEGMENT_PREFIX + SEGMENT_EXT : SEGMENT_PREFIX + number + SEGMENT_EXT;
+	}
+
+	/**
+	 * write packet to the current segment.
+	 * @param thepkt - packet as byte array
+	 * @param time - time in nano seconds.
+	 */
+	public synchronized boolean addPacket(byte[] thepkt, long time) throws IOException
+	{
+		if (thepkt == null || !_isopened) return false;
+
+		rotateIfNeeded(thepkt.length, time);
+		boolean added = myCurrent.addPacket(thepkt, time);
+		if (added) mySegmentPackets++;
+		return added;
+	}
+
+	/**
+	 * write packet to the current segment, with a stubbed ethernet header.
+	 * @param thepkt packet to store
+	 * @param offset
+	 * @param length length of packet
+	 * @param time timestamp in nano seconds
+	 * @return true if packet added and false otherwise
+	 * @throws IOException
+	 */
+	public synchronized boolean addPacket(byte[] thepkt, int offset, int length, long time) throws IOException
+	{
+		if (thepkt == null || !_isopened) return false;
+
+		rotateIfNeeded(length, time);
+		boolean added = myCurrent.addPacket(thepkt, offset, length, time);
+		if (added) mySegmentPackets++;
+		return added;
+	}
+
+	/**
+	 * close the current segment and wait for pending compression and index updates.
+	 * not reversible
+	 */
+	public synchronized void close()
+	{
+		if (!_isopened) return;
+		_isopened = false;
+
+		closeSegment();
+		myBackground.shutdown();
+		try
+		{
+			if (!myBackground.awaitTermination(5, TimeUnit.MINUTES))
+			{
+				Log.e(TAG, "timed out waiting for segment compression");
+			}
+		} catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return number of segments started so far.
+	 */
+	public synchronized int getSegmentCount()
+	{
+		return mySegmentNumber;
+	}
+
+	private void rotateIfNeeded(int length, long time) throws IOException
+	{
+		if (mySegmentStart < 0) mySegmentStart = time;
+		if (mySegmentPackets == 0) return;
+
+		boolean full = mySegmentBytes > 0 && myCurrent.getTotalBytes() + length + RECORD_OVERHEAD > mySegmentBytes;
+		boolean expired = mySegmentNanos > 0 && time - mySegmentStart >= mySegmentNanos;
+		if (full || expired)
+		{
+			closeSegment();
+			openSegment();
+			mySegmentStart = time;
+		}
+	}
+
+	private void openSegment() throws IOException
+	{
+		String name = getSegmentName(mySegmentNumber++);
+		myCurrent = new PCapFileWriter(new File(myDir, name));
+		mySegmentPackets = 0;
+		mySegmentStart = -1;
+
+		final List<String> dropped = new ArrayList<String>();
+		final List<String> index;
+		synchronized (mySegments)
+		{
+			mySegments.add(name);
+			while (myMaxSegments > 0 && mySegments.size() > myMaxSegments)
+			{
+				dropped.add(mySegments.remove(0));
+			}
+			index = new ArrayList<String>(mySegments);
+		}
+		myBackground.execute(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				for (String old : dropped)
+				{
+					deleteSegment(old);
+				}
+				writeIndex(index);
+			}
+		});
+	}
+
+	private void closeSegment()
+	{
+		if (myCurrent == null) return;
+
+		myCurrent.close();
+		myCurrent = null;
+		if (myCompress)
+		{
+			final String name = getSegmentName(mySegmentNumber - 1);
+			myBackground.execute(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					if (!compress(new File(myDir, name))) return;
+					List<String> index;
+					synchronized (mySegments)
+					{
+						int entry = mySegments.indexOf(name);
+						if (entry < 0) return;
+						mySegments.set(entry, name + COMPRESSED_EXT);
+						index = new ArrayList<String>(mySegments);
+					}
+					writeIndex(index);
+				}
+			});
+		}
+	}
+
+	private void deleteSegment(String name)
+	{
+		// segment may have been compressed after it was dropped from the index
+		String plain = name.endsWith(COMPRESSED_EXT) ? name.substring(0, name.length() - COMPRESSED_EXT.length()) : name;
+		new File(myDir, plain).delete();
+		new File(myDir, plain + COMPRESSED_EXT).delete();
+	}
+
+	/**
+	 * @return true if the segment was replaced by its compressed copy
+	 */
+	private boolean compress(File segment)
+	{
+		if (!segment.exists()) return false;
+
+		File target = new File(segment.getPath() + COMPRESSED_EXT);
+		byte[] buffer = new byte[64 * 1024];
+		InputStream in = null;
+		OutputStream out = null;
+		try
+		{
+			in = new FileInputStream(segment);
+			out = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(target)), buffer.length);
+			int read;
+			while ((read = in.read(buffer)) > 0)
+			{
+				out.write(buffer, 0, read);
+			}
+			out.close();
+			out = null;
+			segment.delete();
+			return true;
+		} catch (IOException e)
+		{
+			Log.e(TAG, "failed to compress " + segment.getName() + ": " + e.getMessage());
+			target.delete();
+			return false;
+		} finally
+		{
+			closeQuietly(in);
+			closeQuietly(out);
+		}
+	}
+
+	private void writeIndex(List<String> index)
+	{
+		File tmp = new File(myDir, INDEX_FILE + ".tmp");
+		PrintWriter writer = null;
+		try
+		{
+			writer = new PrintWriter(new FileOutputStream(tmp));
+			for (String name : index)
+			{
+				writer.println(name);
+			}
+			writer.close();
+			writer = null;
+			if (!tmp.renameTo(new File(myDir, INDEX_FILE)))
+			{
+				Log.e(TAG, "failed to update " + INDEX_FILE);
+			}
+		} catch (IOException e)
+		{
+			Log.e(TAG, "failed to write " + INDEX_FILE + ": " + e.getMessage());
+		} finally
+		{
+			if (writer != null) writer.close();
+		}
+	}
+
+	private static void closeQuietly(Closeable stream)
+	{
+		if (stream == null) return;
+		try
+		{
+			stream.close();
+		} catch (IOException e)
+		{
+			// nothing to do
+		}
+	}
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright 2014 AT&T
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.att.arocollector.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Samples CPU usage directly from /proc/stat and /proc/&lt;pid&gt;/stat.
+ *
+ * Each call to {@link #sample(double)} reads the cumulative jiffies of the
+ * system and of every process, and turns the difference with the previous
+ * sample into a line of the cpu trace file:
+ *
+ * <pre>
+ * timestamp totalCpu% name=cpu% name=cpu% ...
+ * </pre>
+ *
+ * which is the format read by the analyzer's CpuActivity.parseCpuLine. The
+ * processes are the busiest ones, in decreasing order, and idle processes
+ * are left out. Unlike running top, sampling forks nothing and reuses its
+ * buffers, so it hardly shows up in the measurements it takes.
+ *
+ * The same sampler is com.att.android.arodatacollector.utils.ProcCpuSampler
+ * in the rooted ARODataCollector.
+ * The rooted collector does not depend on ARO.Android.Net, and AROCollector
+ * links that module as a prebuilt jar, so each collector keeps its own copy.
+ * Keep the two identical apart from the package.
+ */
+public class ProcCpuSampler {
+
+	/** default number of processes written per sample */
+	public static final int DEFAULT_PROCESS_LIMIT = 8;
+
+	private static final String PROC_DIR = "/proc";
+	private static final String STAT_FILE = "stat";
+	private static final String CMDLINE_FILE = "cmdline";
+
+	// /proc/<pid>/stat: utime and stime are fields 14 and 15, counted from 1
+	private static final int UTIME_FIELD = 14;
+
+	private final File procDir;
+	private final int processLimit;
+
+	private final byte[] buffer = new byte[4096];
+	private final StringBuilder line = new StringBuilder(256);
+
+	// previous cumulative jiffies of every process seen, keyed by pid
+	private Map<Integer, ProcessTicks> processes = new HashMap<Integer, ProcessTicks>();
+	private Map<Integer, ProcessTicks> current = new HashMap<Integer, ProcessTicks>();
+
+	private long lastTotal = -1;
+	private long lastIdle = -1;
+
+	// busiest processes of the current sample
+	private final ProcessTicks[] top;
+
+	/**
+	 * Creates a sampler writing at most {@link #DEFAULT_PROCESS_LIMIT}
+	 * processes per sample.
+	 */
+	public ProcCpuSampler() {
+		this(new File(PROC_DIR), DEFAULT_PROCESS_LIMIT);
+	}
+
+	/**
+	 * @param procDir
+	 *            mount point of procfs
+	 * @param processLimit
+	 *            maximum number of processes written per sample
+	 */
+	public ProcCpuSampler(File procDir, int processLimit) {
+		this.procDir = procDir;
+		this.processLimit = processLimit;
+		this.top = new ProcessTicks[processLimit];
+	}
+
+	/**
+	 * Takes a sample.
+	 *
+	 * @param timestamp
+	 *            time of the sample in seconds, written as is
+	 * @return the cpu trace line, or null for the first sample which only
+	 *         sets the baseline, or when /proc/stat cannot be read
+	 */
+	public synchronized String sample(double timestamp) {
+		long total;
+		long idle;
+		int length = read(new File(procDir, STAT_FILE));
+		if (length <= 0) {
+			return null;
+		}
+		// first line: cpu user nice system idle iowait irq softirq steal ...
+		int pos = skipToken(buffer, 0, length);
+		total = 0;
+		idle = 0;
+		for (int field = 0; field < 8; field++) {
+			pos = skipSpaces(buffer, pos, length);
+			if (pos >= length || buffer[pos] == '\n') {
+				break;
+			}
+			long value = parseLong(buffer, pos, length);
+			total += value;
+			if (field == 3 || field == 4) {
+				idle += value;
+			}
+			pos = skipToken(buffer, pos, length);
+		}
+
+		sampleProcesses();
+
+		long deltaTotal = total - lastTotal;
+		long deltaIdle = idle - lastIdle;
+		boolean baseline = lastTotal < 0 || deltaTotal <= 0;
+		lastTotal = total;
+		lastIdle = idle;
+
+		// swap the maps so the ticks of exited processes are dropped
+		Map<Integer, ProcessTicks> swap = processes;
+		processes = current;
+		current = swap;
+		current.clear();
+		if (baseline) {
+			return null;
+		}
+
+		int count = selectBusiest();
+		line.setLength(0);
+		line.append(timestamp).append(' ').append((deltaTotal - deltaIdle) * 100 / deltaTotal);
+		for (int i = 0; i < count; i++) {
+			line.append(' ').append(top[i].name).append('=').append(percent(top[i].delta, deltaTotal));
+			top[i] = null;
+		}
+		return line.toString();
+	}
+
+	/**
+	 * read the cumulative jiffies of every process into current
+	 */
+	private void sampleProcesses() {
+		String[] pids = procDir.list();
+		if (pids == null) {
+			return;
+		}
+		for (String pidName : pids) {
+			if (pidName.length() == 0 || pidName.charAt(0) < '0' || pidName.charAt(0) > '9') {
+				continue;
+			}
+			int pid;
+			try {
+				pid = Integer.parseInt(pidName);
+			} catch (NumberFormatException e) {
+				continue;
+			}
+			File dir = new File(procDir, pidName);
+			int length = read(new File(dir, STAT_FILE));
+			if (length <= 0) {
+				// process exited since the directory was listed
+				continue;
+			}
+			// the command in parentheses may contain spaces, fields restart after the last ')'
+			int pos = length - 1;
+			while (pos > 0 && buffer[pos] != ')') {
+				pos--;
+			}
+			pos += 1;
+			// state is field 3, skip to utime
+			for (int field = 3; field < UTIME_FIELD && pos < length; field++) {
+				pos = skipToken(buffer, skipSpaces(buffer, pos, length), length);
+			}
+			pos = skipSpaces(buffer, pos, length);
+			long ticks = parseLong(buffer, pos, length);
+			pos = skipSpaces(buffer, skipToken(buffer, pos, length), length);
+			ticks += parseLong(buffer, pos, length);
+
+			ProcessTicks previous = processes.get(pid);
+			if (previous != null) {
+				previous.delta = ticks - previous.ticks;
+				previous.ticks = ticks;
+				current.put(pid, previous);
+			} else {
+				ProcessTicks process = new ProcessTicks(readName(dir), ticks);
+				// a process started since the last sample used all of its ticks in the interval
+				process.delta = lastTotal < 0 ? 0 : ticks;
+				current.put(pid, process);
+			}
+		}
+	}
+
+	/**
+	 * fills top with the busiest processes, busiest first
+	 * @return number of processes selected
+	 */
+	private int selectBusiest() {
+		int count = 0;
+		for (Iterator<ProcessTicks> it = processes.values().iterator(); it.hasNext();) {
+			ProcessTicks process = it.next();
+			if (process.delta <= 0 || processLimit == 0) {
+				continue;
+			}
+			if (count == processLimit && process.delta <= top[count - 1].delta) {
+				continue;
+			}
+			int i = count < processLimit ? count++ : count - 1;
+			while (i > 0 && top[i - 1].delta < process.delta) {
+				top[i] = top[i - 1];
+				i--;
+			}
+			top[i] = process;
+		}
+		return count;
+	}
+
+	/**
+	 * name shown by top: the command line up to the first NUL, else the
+	 * command from stat. Spaces and '=' would break the trace line format.
+	 */
+	private String readName(File dir) {
+		String name = null;
+		int length = read(new File(dir, CMDLINE_FILE));
+		if (length > 0) {
+			int end = 0;
+			while (end < length && buffer[end] != 0) {
+				end++;
+			}
+			name = new String(buffer, 0, end);
+		}
+		if (name == null || name.length() == 0) {
+			name = dir.getName();
+			length = read(new File(dir, STAT_FILE));
+			int open = 0;
+			while (open < length && buffer[open] != '(') {
+				open++;
+			}
+			int close = length - 1;
+			while (close > open && buffer[close] != ')') {
+				close--;
+			}
+			if (close > open + 1) {
+				name = new String(buffer, open + 1, close - open - 1);
+			}
+		}
+		return name.replace(' ', '_').replace('=', '_').replace('\n', '_');
+	}
+
+	private static String percent(long ticks, long total) {
+		// one decimal is plenty for a few seconds of jiffies
+		long tenths = ticks * 1000 / total;
+		return (tenths / 10) + "." + (tenths % 10);
+	}
+
+	/**
+	 * read a whole small file into buffer
+	 * @return number of bytes read, -1 if the file cannot be read
+	 */
+	private int read(File file) {
+		FileInputStream in = null;
+		try {
+			in = new FileInputStream(file);
+			int length = 0;
+			int read;
+			while (length < buffer.length && (read = in.read(buffer, length, buffer.length - length)) > 0) {
+				length += read;
+			}
+			return length;
+		} catch (IOException e) {
+			return -1;
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+					// nothing to do
+				}
+			}
+		}
+	}
+
+	private static int skipSpaces(byte[] data, int pos, int length) {
+		while (pos < length && data[pos] == ' ') {
+			pos++;
+		}
+		return pos;
+	}
+
+	private static int skipToken(byte[] data, int pos, int length) {
+		while (pos < length && data[pos] != ' ' && data[pos] != '\n') {
+			pos++;
+		}
+		return pos;
+	}
+
+	private static long parseLong(byte[] data, int pos, int length) {
+		long value = 0;
+		while (pos < length && data[pos] >= '0' && data[pos] <= '9') {
+			value = value * 10 + (data[pos++] - '0');
+		}
+		return value;
+	}
+
+	/**
+	 * cumulative user + system jiffies of a process
+	 */
+	private static final class ProcessTicks {
+		final String name;
+		long ticks;
+		long delta;
+
+		ProcessTicks(String name, long ticks) {
+			this.name = name;
+			this.ticks = ticks;
+		}
+	}
+}